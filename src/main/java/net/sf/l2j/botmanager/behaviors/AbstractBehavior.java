@@ -1,6 +1,7 @@
 package net.sf.l2j.botmanager.behaviors;
 
 import net.sf.l2j.botmanager.core.BotContext;
+import net.sf.l2j.botmanager.core.ContextKey;
 import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
 import net.sf.l2j.botmanager.utils.Logger;
 
@@ -17,6 +18,7 @@ public abstract class AbstractBehavior implements IBehavior {
     protected static final Logger _log = Logger.getLogger(AbstractBehavior.class);
     
     protected final BehaviorType behaviorType;
+    private final String dataKeyPrefix;
     protected BotContext context;
     protected final AtomicBoolean active = new AtomicBoolean(false);
     protected long lastExecutionTime = 0;
@@ -29,6 +31,33 @@ public abstract class AbstractBehavior implements IBehavior {
     
     public AbstractBehavior(BehaviorType behaviorType) {
         this.behaviorType = behaviorType;
+        this.dataKeyPrefix = "behavior_" + behaviorType.name() + "_";
+    }
+    
+    /**
+     * Регистрирует типизированный ключ данных поведения.
+     * Имя ключа совпадает с прежним строковым ключом {@code behavior_<TYPE>_<name>}.
+     * Вызывается один раз при инициализации класса поведения.
+     * 
+     * @param behaviorType тип поведения
+     * @param name имя данных
+     * @param type тип значения
+     * @return ключ контекста
+     */
+    protected static <T> ContextKey<T> behaviorKey(BehaviorType behaviorType, String name, Class<T> type) {
+        return ContextKey.of("behavior_" + behaviorType.name() + "_" + name, type);
+    }
+    
+    /**
+     * Регистрирует типизированный long ключ данных поведения.
+     * 
+     * @param behaviorType тип поведения
+     * @param name имя данных
+     * @param defaultValue значение по умолчанию
+     * @return ключ контекста
+     */
+    protected static ContextKey<Long> behaviorLongKey(BehaviorType behaviorType, String name, long defaultValue) {
+        return ContextKey.ofLong("behavior_" + behaviorType.name() + "_" + name, defaultValue);
     }
     
     @Override
@@ -90,7 +119,7 @@ public abstract class AbstractBehavior implements IBehavior {
     public void onEnd(BotContext context) {
         _log.debug("Ended behavior " + behaviorType.getName() + " for bot " + context.getBotId());
         // Очищаем данные поведения
-        context.removeData("behavior_" + behaviorType.name() + "_data");
+        context.removeData(dataKeyPrefix + "data");
     }
     
     @Override
@@ -193,26 +222,52 @@ public abstract class AbstractBehavior implements IBehavior {
     /**
      * Устанавливает данные поведения в контексте
      * 
+     * @param key типизированный ключ
+     * @param value значение
+     */
+    protected <T> void setBehaviorData(ContextKey<T> key, T value) {
+        if (context != null) {
+            context.set(key, value);
+        }
+    }
+    
+    /**
+     * Получает данные поведения из контекста
+     * 
+     * @param key типизированный ключ
+     * @param defaultValue значение по умолчанию
+     * @return значение
+     */
+    protected <T> T getBehaviorData(ContextKey<T> key, T defaultValue) {
+        if (context != null) {
+            return context.get(key, defaultValue);
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * Устанавливает данные поведения в контексте по строковому ключу.
+     * Для данных, читаемых на каждом шаге, используйте {@link #setBehaviorData(ContextKey, Object)}.
+     * 
      * @param key ключ
      * @param value значение
      */
     protected void setBehaviorData(String key, Object value) {
         if (context != null) {
-            context.setData("behavior_" + behaviorType.name() + "_" + key, value);
+            context.setData(dataKeyPrefix + key, value);
         }
     }
     
     /**
-     * Получает данные поведения из контекста
+     * Получает данные поведения из контекста по строковому ключу
      * 
      * @param key ключ
      * @param defaultValue значение по умолчанию
      * @return значение
      */
-    @SuppressWarnings("unchecked")
     protected <T> T getBehaviorData(String key, T defaultValue) {
         if (context != null) {
-            return context.getData("behavior_" + behaviorType.name() + "_" + key, defaultValue);
+            return context.getData(dataKeyPrefix + key, defaultValue);
         }
         return defaultValue;
     }
@@ -2,6 +2,7 @@ package net.sf.l2j.botmanager.behaviors;
 
 import net.sf.l2j.botmanager.core.BotContext;
 import net.sf.l2j.botmanager.core.BotState;
+import net.sf.l2j.botmanager.core.ContextKey;
 import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
 import net.sf.l2j.botmanager.utils.Logger;
 import net.sf.l2j.gameserver.model.L2World;
@@ -36,6 +37,12 @@ public class FarmingBehavior extends AbstractBehavior {
         LOOTING,      // Сбор лута
         RESTING       // Восстановление
     }
+
+    // Данные поведения в контексте бота
+    private static final ContextKey<FarmingState> FARMING_STATE =
+        behaviorKey(BehaviorType.FARMING, "farming_state", FarmingState.class);
+    private static final ContextKey<L2MonsterInstance> FARMING_TARGET =
+        behaviorKey(BehaviorType.FARMING, "farming_target", L2MonsterInstance.class);
     
     public FarmingBehavior() {
         super(BehaviorType.FARMING);
@@ -53,7 +60,7 @@ public class FarmingBehavior extends AbstractBehavior {
         }
         
         // Получаем текущее состояние фарма
-        FarmingState currentState = getBehaviorData("farming_state", FarmingState.SEARCHING);
+        FarmingState currentState = getBehaviorData(FARMING_STATE, FarmingState.SEARCHING);
         
         switch (currentState) {
             case SEARCHING:
@@ -67,7 +74,7 @@ public class FarmingBehavior extends AbstractBehavior {
             case RESTING:
                 return handleResting(bot, player);
             default:
-                setBehaviorData("farming_state", FarmingState.SEARCHING);
+                setBehaviorData(FARMING_STATE, FarmingState.SEARCHING);
                 return false;
         }
     }
@@ -78,7 +85,7 @@ public class FarmingBehavior extends AbstractBehavior {
     private boolean handleSearching(EnhancedFakePlayer bot, L2PcInstance player) {
         // Проверяем, нужно ли отдохнуть
         if (needsRest(player)) {
-            setBehaviorData("farming_state", FarmingState.RESTING);
+            setBehaviorData(FARMING_STATE, FarmingState.RESTING);
             context.setState(BotState.RESTING);
             return false;
         }
@@ -87,8 +94,8 @@ public class FarmingBehavior extends AbstractBehavior {
         L2MonsterInstance target = findNearestMonster(player);
         
         if (target != null) {
-            setBehaviorData("farming_target", target);
-            setBehaviorData("farming_state", FarmingState.MOVING);
+            setBehaviorData(FARMING_TARGET, target);
+            setBehaviorData(FARMING_STATE, FarmingState.MOVING);
             context.setState(BotState.MOVING);
             _log.debug("Bot " + context.getBotId() + " found target: " + target.getName());
         } else {
@@ -107,10 +114,10 @@ public class FarmingBehavior extends AbstractBehavior {
      * Обработка состояния движения к мобу
      */
     private boolean handleMoving(EnhancedFakePlayer bot, L2PcInstance player) {
-        L2MonsterInstance target = getBehaviorData("farming_target", null);
+        L2MonsterInstance target = getBehaviorData(FARMING_TARGET, null);
         
         if (target == null || target.isDead()) {
-            setBehaviorData("farming_state", FarmingState.SEARCHING);
+            setBehaviorData(FARMING_STATE, FarmingState.SEARCHING);
             return false;
         }
         
@@ -118,13 +125,13 @@ public class FarmingBehavior extends AbstractBehavior {
         
         if (distance <= ATTACK_RADIUS) {
             // Достаточно близко для атаки
-            setBehaviorData("farming_state", FarmingState.ATTACKING);
+            setBehaviorData(FARMING_STATE, FarmingState.ATTACKING);
             context.setState(BotState.FIGHTING);
             return false;
         } else if (distance > SEARCH_RADIUS) {
             // Слишком далеко, ищем другого моба
-            setBehaviorData("farming_target", null);
-            setBehaviorData("farming_state", FarmingState.SEARCHING);
+            setBehaviorData(FARMING_TARGET, null);
+            setBehaviorData(FARMING_STATE, FarmingState.SEARCHING);
             return false;
         } else {
             // Двигаемся к цели
@@ -144,17 +151,17 @@ public class FarmingBehavior extends AbstractBehavior {
      * Обработка состояния атаки моба
      */
     private boolean handleAttacking(EnhancedFakePlayer bot, L2PcInstance player) {
-        L2MonsterInstance target = getBehaviorData("farming_target", null);
+        L2MonsterInstance target = getBehaviorData(FARMING_TARGET, null);
         
         if (target == null || target.isDead()) {
-            setBehaviorData("farming_state", FarmingState.LOOTING);
+            setBehaviorData(FARMING_STATE, FarmingState.LOOTING);
             context.setState(BotState.FARMING);
             return false;
         }
         
         // Проверяем, нужно ли отдохнуть
         if (needsRest(player)) {
-            setBehaviorData("farming_state", FarmingState.RESTING);
+            setBehaviorData(FARMING_STATE, FarmingState.RESTING);
             context.setState(BotState.RESTING);
             return false;
         }
@@ -163,7 +170,7 @@ public class FarmingBehavior extends AbstractBehavior {
         
         if (distance > ATTACK_RADIUS) {
             // Слишком далеко, переходим к движению
-            setBehaviorData("farming_state", FarmingState.MOVING);
+            setBehaviorData(FARMING_STATE, FarmingState.MOVING);
             context.setState(BotState.MOVING);
             return false;
         }
@@ -184,11 +191,11 @@ public class FarmingBehavior extends AbstractBehavior {
      * Обработка состояния сбора лута
      */
     private boolean handleLooting(EnhancedFakePlayer bot, L2PcInstance player) {
-        L2MonsterInstance target = getBehaviorData("farming_target", null);
+        L2MonsterInstance target = getBehaviorData(FARMING_TARGET, null);
         
         if (target != null && !target.isDead()) {
             // Моб еще жив, продолжаем атаку
-            setBehaviorData("farming_state", FarmingState.ATTACKING);
+            setBehaviorData(FARMING_STATE, FarmingState.ATTACKING);
             context.setState(BotState.FIGHTING);
             return false;
         }
@@ -198,8 +205,8 @@ public class FarmingBehavior extends AbstractBehavior {
         context.setState(BotState.FARMING);
         
         // Очищаем цель и переходим к поиску
-        setBehaviorData("farming_target", null);
-        setBehaviorData("farming_state", FarmingState.SEARCHING);
+        setBehaviorData(FARMING_TARGET, null);
+        setBehaviorData(FARMING_STATE, FarmingState.SEARCHING);
         
         _log.debug("Bot " + context.getBotId() + " finished looting, searching for new target");
         
@@ -212,7 +219,7 @@ public class FarmingBehavior extends AbstractBehavior {
     private boolean handleResting(EnhancedFakePlayer bot, L2PcInstance player) {
         // Проверяем, восстановился ли бот
         if (!needsRest(player)) {
-            setBehaviorData("farming_state", FarmingState.SEARCHING);
+            setBehaviorData(FARMING_STATE, FarmingState.SEARCHING);
             context.setState(BotState.IDLE);
             return false;
         }
@@ -290,16 +297,16 @@ public class FarmingBehavior extends AbstractBehavior {
     @Override
     public void init(BotContext context) {
         super.init(context);
-        setBehaviorData("farming_state", FarmingState.SEARCHING);
-        setBehaviorData("farming_target", null);
+        setBehaviorData(FARMING_STATE, FarmingState.SEARCHING);
+        setBehaviorData(FARMING_TARGET, null);
         _log.info("Initialized farming behavior for bot " + context.getBotId());
     }
     
     @Override
     public void onEnd(BotContext context) {
         super.onEnd(context);
-        setBehaviorData("farming_target", null);
-        setBehaviorData("farming_state", FarmingState.SEARCHING);
+        setBehaviorData(FARMING_TARGET, null);
+        setBehaviorData(FARMING_STATE, FarmingState.SEARCHING);
         _log.info("Ended farming behavior for bot " + context.getBotId());
     }
 }
@@ -2,6 +2,7 @@ package net.sf.l2j.botmanager.behaviors;
 
 import net.sf.l2j.botmanager.core.BotContext;
 import net.sf.l2j.botmanager.core.BotState;
+import net.sf.l2j.botmanager.core.ContextKey;
 import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
 import net.sf.l2j.botmanager.utils.Logger;
 import net.sf.l2j.gameserver.model.actor.instance.L2PcInstance;
@@ -20,6 +21,10 @@ public class IdleBehavior extends AbstractBehavior {
     private static final long IDLE_DURATION = 5000; // Длительность бездействия в миллисекундах
     private static final long MIN_IDLE_TIME = 1000; // Минимальное время бездействия
     
+    // Время начала бездействия (0 - бездействие не начато)
+    private static final ContextKey<Long> IDLE_START_TIME =
+        behaviorLongKey(BehaviorType.IDLE, "idle_start_time", 0L);
+    
     public IdleBehavior() {
         super(BehaviorType.IDLE);
         setMinExecutionInterval(1000); // Минимум 1 секунда между проверками
@@ -39,10 +44,10 @@ public class IdleBehavior extends AbstractBehavior {
         context.setState(BotState.IDLE);
         
         // Получаем время начала бездействия
-        Long idleStartTime = getBehaviorData("idle_start_time", null);
-        if (idleStartTime == null) {
+        long idleStartTime = context.getLong(IDLE_START_TIME);
+        if (idleStartTime == 0) {
             idleStartTime = System.currentTimeMillis();
-            setBehaviorData("idle_start_time", idleStartTime);
+            context.setLong(IDLE_START_TIME, idleStartTime);
             _log.debug("Bot " + context.getBotId() + " started idling");
         }
         
@@ -52,7 +57,7 @@ public class IdleBehavior extends AbstractBehavior {
         
         if (idleDuration >= IDLE_DURATION) {
             // Время бездействия истекло, сбрасываем таймер
-            setBehaviorData("idle_start_time", null);
+            context.remove(IDLE_START_TIME);
             _log.debug("Bot " + context.getBotId() + " finished idling after " + idleDuration + "ms");
             return true; // Поведение завершено
         }
@@ -85,14 +90,14 @@ public class IdleBehavior extends AbstractBehavior {
     @Override
     public void init(BotContext context) {
         super.init(context);
-        setBehaviorData("idle_start_time", null);
+        context.remove(IDLE_START_TIME);
         _log.debug("Initialized idle behavior for bot " + context.getBotId());
     }
     
     @Override
     public void onEnd(BotContext context) {
         super.onEnd(context);
-        setBehaviorData("idle_start_time", null);
+        context.remove(IDLE_START_TIME);
         _log.debug("Ended idle behavior for bot " + context.getBotId());
     }
     
@@ -102,8 +107,8 @@ public class IdleBehavior extends AbstractBehavior {
      * @return true если можно прервать
      */
     public boolean canInterrupt() {
-        Long idleStartTime = getBehaviorData("idle_start_time", null);
-        if (idleStartTime == null) {
+        long idleStartTime = context != null ? context.getLong(IDLE_START_TIME) : 0;
+        if (idleStartTime == 0) {
             return true;
         }
         
@@ -119,8 +124,8 @@ public class IdleBehavior extends AbstractBehavior {
      * @return оставшееся время в миллисекундах
      */
     public long getRemainingIdleTime() {
-        Long idleStartTime = getBehaviorData("idle_start_time", null);
-        if (idleStartTime == null) {
+        long idleStartTime = context != null ? context.getLong(IDLE_START_TIME) : 0;
+        if (idleStartTime == 0) {
             return IDLE_DURATION;
         }
         
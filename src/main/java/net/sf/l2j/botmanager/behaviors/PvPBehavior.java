@@ -2,6 +2,7 @@ package net.sf.l2j.botmanager.behaviors;
 
 import net.sf.l2j.botmanager.core.BotContext;
 import net.sf.l2j.botmanager.core.BotState;
+import net.sf.l2j.botmanager.core.ContextKey;
 import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
 import net.sf.l2j.botmanager.utils.Logger;
 import net.sf.l2j.gameserver.model.L2World;
@@ -38,6 +39,12 @@ public class PvPBehavior extends AbstractBehavior {
         HEALING,        // Восстановление
         WAITING         // Ожидание
     }
+
+    // Данные поведения в контексте бота
+    private static final ContextKey<PvPState> PVP_STATE =
+        behaviorKey(BehaviorType.PVP, "pvp_state", PvPState.class);
+    private static final ContextKey<L2PcInstance> PVP_TARGET =
+        behaviorKey(BehaviorType.PVP, "pvp_target", L2PcInstance.class);
     
     public PvPBehavior() {
         super(BehaviorType.PVP);
@@ -55,7 +62,7 @@ public class PvPBehavior extends AbstractBehavior {
         }
         
         // Получаем текущее состояние PvP
-        PvPState currentState = getBehaviorData("pvp_state", PvPState.SEARCHING);
+        PvPState currentState = getBehaviorData(PVP_STATE, PvPState.SEARCHING);
         
         switch (currentState) {
             case SEARCHING:
@@ -73,7 +80,7 @@ public class PvPBehavior extends AbstractBehavior {
             case WAITING:
                 return handleWaiting(bot, player);
             default:
-                setBehaviorData("pvp_state", PvPState.SEARCHING);
+                setBehaviorData(PVP_STATE, PvPState.SEARCHING);
                 return false;
         }
     }
@@ -84,7 +91,7 @@ public class PvPBehavior extends AbstractBehavior {
     private boolean handleSearching(EnhancedFakePlayer bot, L2PcInstance player) {
         // Проверяем, нужно ли восстановиться
         if (needsHealing(player)) {
-            setBehaviorData("pvp_state", PvPState.HEALING);
+            setBehaviorData(PVP_STATE, PvPState.HEALING);
             context.setState(BotState.RESTING);
             return false;
         }
@@ -93,13 +100,13 @@ public class PvPBehavior extends AbstractBehavior {
         L2PcInstance target = findEnemy(player);
         
         if (target != null) {
-            setBehaviorData("pvp_target", target);
-            setBehaviorData("pvp_state", PvPState.APPROACHING);
+            setBehaviorData(PVP_TARGET, target);
+            setBehaviorData(PVP_STATE, PvPState.APPROACHING);
             context.setState(BotState.MOVING);
             _log.debug("Bot " + context.getBotId() + " found enemy: " + target.getName());
         } else {
             // Противников нет, ждем
-            setBehaviorData("pvp_state", PvPState.WAITING);
+            setBehaviorData(PVP_STATE, PvPState.WAITING);
             context.setState(BotState.IDLE);
         }
         
@@ -110,10 +117,10 @@ public class PvPBehavior extends AbstractBehavior {
      * Обработка приближения к противнику
      */
     private boolean handleApproaching(EnhancedFakePlayer bot, L2PcInstance player) {
-        L2PcInstance target = getBehaviorData("pvp_target", null);
+        L2PcInstance target = getBehaviorData(PVP_TARGET, null);
         
         if (target == null || target.isDead()) {
-            setBehaviorData("pvp_state", PvPState.SEARCHING);
+            setBehaviorData(PVP_STATE, PvPState.SEARCHING);
             return false;
         }
         
@@ -121,13 +128,13 @@ public class PvPBehavior extends AbstractBehavior {
         
         if (distance <= ATTACK_RADIUS) {
             // Достаточно близко для атаки
-            setBehaviorData("pvp_state", PvPState.ATTACKING);
+            setBehaviorData(PVP_STATE, PvPState.ATTACKING);
             context.setState(BotState.FIGHTING);
             return false;
         } else if (distance > SEARCH_RADIUS) {
             // Слишком далеко, ищем другого противника
-            setBehaviorData("pvp_target", null);
-            setBehaviorData("pvp_state", PvPState.SEARCHING);
+            setBehaviorData(PVP_TARGET, null);
+            setBehaviorData(PVP_STATE, PvPState.SEARCHING);
             return false;
         } else {
             // Двигаемся к цели
@@ -142,16 +149,16 @@ public class PvPBehavior extends AbstractBehavior {
      * Обработка атаки противника
      */
     private boolean handleAttacking(EnhancedFakePlayer bot, L2PcInstance player) {
-        L2PcInstance target = getBehaviorData("pvp_target", null);
+        L2PcInstance target = getBehaviorData(PVP_TARGET, null);
         
         if (target == null || target.isDead()) {
-            setBehaviorData("pvp_state", PvPState.SEARCHING);
+            setBehaviorData(PVP_STATE, PvPState.SEARCHING);
             return false;
         }
         
         // Проверяем, нужно ли отступить
         if (shouldEscape(player, target)) {
-            setBehaviorData("pvp_state", PvPState.ESCAPING);
+            setBehaviorData(PVP_STATE, PvPState.ESCAPING);
             context.setState(BotState.MOVING);
             return false;
         }
@@ -160,7 +167,7 @@ public class PvPBehavior extends AbstractBehavior {
         
         if (distance > ATTACK_RADIUS) {
             // Слишком далеко, приближаемся
-            setBehaviorData("pvp_state", PvPState.APPROACHING);
+            setBehaviorData(PVP_STATE, PvPState.APPROACHING);
             context.setState(BotState.MOVING);
             return false;
         }
@@ -187,13 +194,13 @@ public class PvPBehavior extends AbstractBehavior {
         L2PcInstance attacker = getAttacker(player);
         
         if (attacker == null) {
-            setBehaviorData("pvp_state", PvPState.SEARCHING);
+            setBehaviorData(PVP_STATE, PvPState.SEARCHING);
             return false;
         }
         
         // Проверяем, нужно ли отступить
         if (shouldEscape(player, attacker)) {
-            setBehaviorData("pvp_state", PvPState.ESCAPING);
+            setBehaviorData(PVP_STATE, PvPState.ESCAPING);
             context.setState(BotState.MOVING);
             return false;
         }
@@ -211,7 +218,7 @@ public class PvPBehavior extends AbstractBehavior {
     private boolean handleEscaping(EnhancedFakePlayer bot, L2PcInstance player) {
         // Проверяем, можно ли прекратить отступление
         if (!shouldEscape(player, null)) {
-            setBehaviorData("pvp_state", PvPState.SEARCHING);
+            setBehaviorData(PVP_STATE, PvPState.SEARCHING);
             return false;
         }
         
@@ -234,7 +241,7 @@ public class PvPBehavior extends AbstractBehavior {
     private boolean handleHealing(EnhancedFakePlayer bot, L2PcInstance player) {
         // Проверяем, восстановился ли бот
         if (!needsHealing(player)) {
-            setBehaviorData("pvp_state", PvPState.SEARCHING);
+            setBehaviorData(PVP_STATE, PvPState.SEARCHING);
             context.setState(BotState.IDLE);
             return false;
         }
@@ -263,7 +270,7 @@ public class PvPBehavior extends AbstractBehavior {
             Thread.currentThread().interrupt();
         }
         
-        setBehaviorData("pvp_state", PvPState.SEARCHING);
+        setBehaviorData(PVP_STATE, PvPState.SEARCHING);
         return false;
     }
     
@@ -379,16 +386,16 @@ public class PvPBehavior extends AbstractBehavior {
     @Override
     public void init(BotContext context) {
         super.init(context);
-        setBehaviorData("pvp_state", PvPState.SEARCHING);
-        setBehaviorData("pvp_target", null);
+        setBehaviorData(PVP_STATE, PvPState.SEARCHING);
+        setBehaviorData(PVP_TARGET, null);
         _log.info("Initialized PvP behavior for bot " + context.getBotId());
     }
     
     @Override
     public void onEnd(BotContext context) {
         super.onEnd(context);
-        setBehaviorData("pvp_target", null);
-        setBehaviorData("pvp_state", PvPState.SEARCHING);
+        setBehaviorData(PVP_TARGET, null);
+        setBehaviorData(PVP_STATE, PvPState.SEARCHING);
         _log.info("Ended PvP behavior for bot " + context.getBotId());
     }
 }
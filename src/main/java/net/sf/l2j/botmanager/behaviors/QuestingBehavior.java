@@ -2,6 +2,7 @@ package net.sf.l2j.botmanager.behaviors;
 
 import net.sf.l2j.botmanager.core.BotContext;
 import net.sf.l2j.botmanager.core.BotState;
+import net.sf.l2j.botmanager.core.ContextKey;
 import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
 import net.sf.l2j.botmanager.utils.Logger;
 import net.sf.l2j.gameserver.model.L2World;
@@ -36,6 +37,14 @@ public class QuestingBehavior extends AbstractBehavior {
         RETURNING_NPC,    // Возвращение к NPC
         COMPLETING_QUEST  // Завершение квеста
     }
+
+    // Данные поведения в контексте бота
+    private static final ContextKey<QuestingState> QUESTING_STATE =
+        behaviorKey(BehaviorType.QUESTING, "questing_state", QuestingState.class);
+    private static final ContextKey<L2NpcInstance> QUESTING_NPC =
+        behaviorKey(BehaviorType.QUESTING, "questing_npc", L2NpcInstance.class);
+    private static final ContextKey<Object> QUESTING_TARGET =
+        behaviorKey(BehaviorType.QUESTING, "questing_target", Object.class);
     
     public QuestingBehavior() {
         super(BehaviorType.QUESTING);
@@ -53,7 +62,7 @@ public class QuestingBehavior extends AbstractBehavior {
         }
         
         // Получаем текущее состояние квестов
-        QuestingState currentState = getBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
+        QuestingState currentState = getBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
         
         switch (currentState) {
             case SEARCHING_NPC:
@@ -71,7 +80,7 @@ public class QuestingBehavior extends AbstractBehavior {
             case COMPLETING_QUEST:
                 return handleCompletingQuest(bot, player);
             default:
-                setBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
+                setBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
                 return false;
         }
     }
@@ -82,7 +91,7 @@ public class QuestingBehavior extends AbstractBehavior {
     private boolean handleSearchingNpc(EnhancedFakePlayer bot, L2PcInstance player) {
         // Проверяем, есть ли активные квесты
         if (hasActiveQuests(player)) {
-            setBehaviorData("questing_state", QuestingState.MOVING_TO_TARGET);
+            setBehaviorData(QUESTING_STATE, QuestingState.MOVING_TO_TARGET);
             return false;
         }
         
@@ -90,8 +99,8 @@ public class QuestingBehavior extends AbstractBehavior {
         L2NpcInstance questNpc = findQuestNpc(player);
         
         if (questNpc != null) {
-            setBehaviorData("questing_npc", questNpc);
-            setBehaviorData("questing_state", QuestingState.INTERACTING);
+            setBehaviorData(QUESTING_NPC, questNpc);
+            setBehaviorData(QUESTING_STATE, QuestingState.INTERACTING);
             context.setState(BotState.MOVING);
             _log.debug("Bot " + context.getBotId() + " found quest NPC: " + questNpc.getName());
         } else {
@@ -110,10 +119,10 @@ public class QuestingBehavior extends AbstractBehavior {
      * Обработка взаимодействия с NPC
      */
     private boolean handleInteracting(EnhancedFakePlayer bot, L2PcInstance player) {
-        L2NpcInstance npc = getBehaviorData("questing_npc", null);
+        L2NpcInstance npc = getBehaviorData(QUESTING_NPC, null);
         
         if (npc == null || npc.isDead()) {
-            setBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
+            setBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
             return false;
         }
         
@@ -121,7 +130,7 @@ public class QuestingBehavior extends AbstractBehavior {
         
         if (distance > INTERACTION_RADIUS) {
             // Слишком далеко, двигаемся к NPC
-            setBehaviorData("questing_state", QuestingState.MOVING_TO_TARGET);
+            setBehaviorData(QUESTING_STATE, QuestingState.MOVING_TO_TARGET);
             return false;
         }
         
@@ -131,10 +140,10 @@ public class QuestingBehavior extends AbstractBehavior {
         
         // Имитируем принятие квеста
         if (ThreadLocalRandom.current().nextBoolean()) {
-            setBehaviorData("questing_state", QuestingState.MOVING_TO_TARGET);
+            setBehaviorData(QUESTING_STATE, QuestingState.MOVING_TO_TARGET);
             _log.debug("Bot " + context.getBotId() + " accepted quest from " + npc.getName());
         } else {
-            setBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
+            setBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
             _log.debug("Bot " + context.getBotId() + " no quests available from " + npc.getName());
         }
         
@@ -146,19 +155,19 @@ public class QuestingBehavior extends AbstractBehavior {
      */
     private boolean handleMovingToTarget(EnhancedFakePlayer bot, L2PcInstance player) {
         // Получаем цель квеста
-        Object questTarget = getBehaviorData("questing_target", null);
+        Object questTarget = getBehaviorData(QUESTING_TARGET, null);
         
         if (questTarget == null) {
             // Нет цели, ищем новую
-            setBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
+            setBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
             return false;
         }
         
         // Определяем тип цели и переходим к соответствующему состоянию
         if (questTarget instanceof L2Character) {
-            setBehaviorData("questing_state", QuestingState.KILLING_MOBS);
+            setBehaviorData(QUESTING_STATE, QuestingState.KILLING_MOBS);
         } else {
-            setBehaviorData("questing_state", QuestingState.COLLECTING_ITEMS);
+            setBehaviorData(QUESTING_STATE, QuestingState.COLLECTING_ITEMS);
         }
         
         context.setState(BotState.MOVING);
@@ -171,7 +180,7 @@ public class QuestingBehavior extends AbstractBehavior {
     private boolean handleKillingMobs(EnhancedFakePlayer bot, L2PcInstance player) {
         // Проверяем, завершен ли квест
         if (isQuestCompleted(player)) {
-            setBehaviorData("questing_state", QuestingState.RETURNING_NPC);
+            setBehaviorData(QUESTING_STATE, QuestingState.RETURNING_NPC);
             return false;
         }
         
@@ -200,7 +209,7 @@ public class QuestingBehavior extends AbstractBehavior {
     private boolean handleCollectingItems(EnhancedFakePlayer bot, L2PcInstance player) {
         // Проверяем, завершен ли квест
         if (isQuestCompleted(player)) {
-            setBehaviorData("questing_state", QuestingState.RETURNING_NPC);
+            setBehaviorData(QUESTING_STATE, QuestingState.RETURNING_NPC);
             return false;
         }
         
@@ -222,10 +231,10 @@ public class QuestingBehavior extends AbstractBehavior {
      * Обработка возвращения к NPC
      */
     private boolean handleReturningNpc(EnhancedFakePlayer bot, L2PcInstance player) {
-        L2NpcInstance npc = getBehaviorData("questing_npc", null);
+        L2NpcInstance npc = getBehaviorData(QUESTING_NPC, null);
         
         if (npc == null || npc.isDead()) {
-            setBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
+            setBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
             return false;
         }
         
@@ -237,7 +246,7 @@ public class QuestingBehavior extends AbstractBehavior {
             // Здесь должна быть логика движения
         } else {
             // Достаточно близко, завершаем квест
-            setBehaviorData("questing_state", QuestingState.COMPLETING_QUEST);
+            setBehaviorData(QUESTING_STATE, QuestingState.COMPLETING_QUEST);
         }
         
         return false;
@@ -247,10 +256,10 @@ public class QuestingBehavior extends AbstractBehavior {
      * Обработка завершения квеста
      */
     private boolean handleCompletingQuest(EnhancedFakePlayer bot, L2PcInstance player) {
-        L2NpcInstance npc = getBehaviorData("questing_npc", null);
+        L2NpcInstance npc = getBehaviorData(QUESTING_NPC, null);
         
         if (npc == null) {
-            setBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
+            setBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
             return false;
         }
         
@@ -259,9 +268,9 @@ public class QuestingBehavior extends AbstractBehavior {
         context.setState(BotState.IDLE);
         
         // Очищаем данные квеста
-        setBehaviorData("questing_npc", null);
-        setBehaviorData("questing_target", null);
-        setBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
+        setBehaviorData(QUESTING_NPC, null);
+        setBehaviorData(QUESTING_TARGET, null);
+        setBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
         
         _log.debug("Bot " + context.getBotId() + " completed quest");
         
@@ -350,18 +359,18 @@ public class QuestingBehavior extends AbstractBehavior {
     @Override
     public void init(BotContext context) {
         super.init(context);
-        setBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
-        setBehaviorData("questing_npc", null);
-        setBehaviorData("questing_target", null);
+        setBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
+        setBehaviorData(QUESTING_NPC, null);
+        setBehaviorData(QUESTING_TARGET, null);
         _log.info("Initialized questing behavior for bot " + context.getBotId());
     }
     
     @Override
     public void onEnd(BotContext context) {
         super.onEnd(context);
-        setBehaviorData("questing_npc", null);
-        setBehaviorData("questing_target", null);
-        setBehaviorData("questing_state", QuestingState.SEARCHING_NPC);
+        setBehaviorData(QUESTING_NPC, null);
+        setBehaviorData(QUESTING_TARGET, null);
+        setBehaviorData(QUESTING_STATE, QuestingState.SEARCHING_NPC);
         _log.info("Ended questing behavior for bot " + context.getBotId());
     }
 }
@@ -60,7 +60,7 @@ public class CastleBotGroup {
 
         bots.put(bot.getBotId(), bot);
 
-        BotType botType = bot.getData("botType");
+        BotType botType = bot.get(BotContext.BOT_TYPE);
         if (botType != null) {
             organizeHierarchy(bot);
             _log.info("Added bot " + bot.getBotId() + " (" + botType.getName() + ") to castle group " + castleId);
@@ -73,7 +73,7 @@ public class CastleBotGroup {
     public void removeBot(int botId) {
         BotContext bot = bots.remove(botId);
         if (bot != null) {
-            BotType botType = bot.getData("botType");
+            BotType botType = bot.get(BotContext.BOT_TYPE);
             if (botType != null) {
                 reorganizeHierarchy();
                 _log.info("Removed bot " + botId + " (" + botType.getName() + ") from castle group " + castleId);
@@ -85,7 +85,7 @@ public class CastleBotGroup {
      * Организует иерархию командиров
      */
     private void organizeHierarchy(BotContext newBot) {
-        BotType botType = newBot.getData("botType");
+        BotType botType = newBot.get(BotContext.BOT_TYPE);
 
         switch (botType) {
             case VICE_GUILDMASTER:
@@ -143,7 +143,7 @@ public class CastleBotGroup {
      */
     public void enterPeaceMode() {
         for (BotContext bot : bots.values()) {
-            BotType botType = bot.getData("botType");
+            BotType botType = bot.get(BotContext.BOT_TYPE);
             if (botType == BotType.SOLDIER || botType == BotType.OFFICER || botType == BotType.HIGH_OFFICER) {
                 bot.setState(BotState.PATROLLING);
                 bot.setData("mode", "peace_patrol");
@@ -186,7 +186,7 @@ public class CastleBotGroup {
      */
     public Collection<BotContext> getBotsByType(BotType type) {
         return bots.values().stream()
-                .filter(bot -> type.equals(bot.getData("botType")))
+                .filter(bot -> type == bot.get(BotContext.BOT_TYPE))
                 .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
     }
 
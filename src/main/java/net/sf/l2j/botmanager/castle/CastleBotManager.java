@@ -91,8 +91,8 @@ public class CastleBotManager {
 
         // Создаем бота
         BotContext bot = botManager.createBot(botType, botName);
-        bot.setData("owner", owner);
-        bot.setData("castleId", castleId);
+        bot.set(BotContext.OWNER, owner);
+        bot.setInt(BotContext.CASTLE_ID, castleId);
         bot.setData("groupId", group.getGroupId());
 
         // Добавляем бота в группу
@@ -118,7 +118,7 @@ public class CastleBotManager {
      */
     public Collection<BotContext> getCastleBotsByType(int castleId, BotType type) {
         return getCastleBots(castleId).stream()
-                .filter(bot -> type.equals(bot.getData("botType")))
+                .filter(bot -> type == bot.get(BotContext.BOT_TYPE))
                 .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
     }
 
@@ -126,9 +126,9 @@ public class CastleBotManager {
      * Получает ботов замка по владельцу
      */
     public Collection<BotContext> getCastleBotsByOwner(int castleId, L2PcInstance owner) {
-        return getCastleBots(castleId).stream()
-                .filter(bot -> owner.equals(bot.getData("owner")))
-                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        Collection<BotContext> bots = botManager.getBotsByCastle(castleId);
+        bots.removeIf(bot -> !owner.equals(bot.get(BotContext.OWNER)));
+        return bots;
     }
 
     /**
@@ -168,12 +168,16 @@ public class CastleBotManager {
         stats.append("Total bots: ").append(group.getBotCount()).append("\n");
 
         // Статистика по типам
-        for (BotType type : BotType.values()) {
-            Collection<BotContext> bots = getCastleBotsByType(castleId, type);
-            if (!bots.isEmpty()) {
-                stats.append(type.getName()).append(": ").append(bots.size()).append("\n");
+        Map<BotType, Integer> typeCount = new EnumMap<>(BotType.class);
+        for (BotContext bot : group.getAllBots()) {
+            BotType type = bot.get(BotContext.BOT_TYPE);
+            if (type != null) {
+                typeCount.merge(type, 1, Integer::sum);
             }
         }
+        for (Map.Entry<BotType, Integer> entry : typeCount.entrySet()) {
+            stats.append(entry.getKey().getName()).append(": ").append(entry.getValue()).append("\n");
+        }
 
         return stats.toString();
     }
@@ -1,25 +1,65 @@
 package net.sf.l2j.botmanager.core;
 
 import net.sf.l2j.gameserver.model.actor.instance.L2PcInstance;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Контекст состояния бота
+ *
+ * <p>Данные бота адресуются типизированными ключами {@link ContextKey}: значения
+ * хранятся в массивах слотов по индексу ключа, примитивные значения - в
+ * {@code long[]} без упаковки. Слоты читаются с acquire-семантикой и пишутся с
+ * release-семантикой через {@link VarHandle}; предполагается один писатель на
+ * бота (поток, выполняющий его тик), читать можно из любого потока.</p>
+ *
+ * <p>Строковый API ({@link #setData(String, Object)} и т.д.) сохранен для
+ * совместимости: имена зарегистрированных ключей направляются в слоты,
+ * остальные - в потокобезопасную карту.</p>
  */
 public class BotContext {
+
+    /** Экземпляр бота, которому принадлежит контекст */
+    public static final ContextKey<EnhancedFakePlayer> BOT = ContextKey.of("bot", EnhancedFakePlayer.class);
+
+    /** Имя бота */
+    public static final ContextKey<String> BOT_NAME = ContextKey.of("botName", String.class);
+
+    /** Тип бота */
+    public static final ContextKey<BotType> BOT_TYPE = ContextKey.of("botType", BotType.class);
+
+    /** Владелец бота (персональный или замковый бот) */
+    public static final ContextKey<L2PcInstance> OWNER = ContextKey.of("owner", L2PcInstance.class);
+
+    /** Замок, к которому привязан бот (0 - не привязан) */
+    public static final ContextKey<Integer> CASTLE_ID = ContextKey.ofInt("castleId", 0);
+
+    private static final VarHandle OBJECT_SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final VarHandle PRIMITIVE_SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
     private final int botId;
-    private final Map<String, Object> data = new HashMap<>();
+    private final Map<String, Object> data = new ConcurrentHashMap<>();
+    private volatile Object[] objectSlots;
+    private volatile long[] primitiveSlots;
     private final AtomicReference<BotState> state = new AtomicReference<>(BotState.IDLE);
     private final AtomicReference<L2PcInstance> playerInstance = new AtomicReference<>();
     private final long creationTime;
     private volatile long lastActivityTime;
+    private volatile IContextListener listener;
 
     public BotContext(int botId) {
         this.botId = botId;
         this.creationTime = System.currentTimeMillis();
         this.lastActivityTime = creationTime;
+        this.objectSlots = new Object[ContextKey.objectSlotCount()];
+        this.primitiveSlots = new long[ContextKey.primitiveSlotCount()];
+        fillPrimitiveDefaults(primitiveSlots, 0);
     }
 
     public int getBotId() {
@@ -34,6 +74,10 @@ public class BotContext {
         BotState oldState = state.getAndSet(newState);
         if (oldState != newState) {
             updateLastActivity();
+            IContextListener l = listener;
+            if (l != null) {
+                l.onStateChanged(this, oldState, newState);
+            }
             // Здесь можно добавить логирование смены состояния
         }
     }
@@ -45,36 +89,194 @@ public class BotContext {
     public void setPlayerInstance(L2PcInstance instance) {
         playerInstance.set(instance);
         updateLastActivity();
+        IContextListener l = listener;
+        if (l != null) {
+            l.onPlayerInstanceChanged(this);
+        }
+    }
+
+    /**
+     * Устанавливает слушатель изменений контекста (например, индексы BotManager).
+     *
+     * @param listener слушатель или null
+     */
+    public void setListener(IContextListener listener) {
+        this.listener = listener;
     }
     
     public void setBot(EnhancedFakePlayer bot) {
-        setData("bot", bot);
+        set(BOT, bot);
         updateLastActivity();
     }
     
     public EnhancedFakePlayer getBot() {
-        return getData("bot");
+        return get(BOT);
+    }
+
+    /**
+     * Получает значение по типизированному ключу.
+     *
+     * @param key ключ
+     * @return значение или null (для примитивных ключей - упакованное значение слота)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ContextKey<T> key) {
+        if (key.isPrimitive()) {
+            return (T) key.box(readPrimitive(key));
+        }
+        Object[] slots = objectSlots;
+        int index = key.getIndex();
+        return index < slots.length ? (T) OBJECT_SLOT.getAcquire(slots, index) : null;
+    }
+
+    /**
+     * Получает значение по типизированному ключу.
+     *
+     * @param key ключ
+     * @param defaultValue значение, если слот пуст
+     * @return значение
+     */
+    public <T> T get(ContextKey<T> key, T defaultValue) {
+        T value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Устанавливает значение по типизированному ключу.
+     * Значение null очищает слот.
+     *
+     * @param key ключ
+     * @param value значение
+     */
+    public <T> void set(ContextKey<T> key, T value) {
+        if (key.isPrimitive()) {
+            writePrimitive(key, key.unbox(value));
+            return;
+        }
+        int index = key.getIndex();
+        Object[] slots = objectSlots;
+        if (index >= slots.length) {
+            slots = growObjectSlots(index);
+        }
+        OBJECT_SLOT.setRelease(slots, index, value);
+        // Массив мог быть заменен при расширении - повторяем запись в актуальный
+        while (slots != objectSlots) {
+            slots = objectSlots;
+            OBJECT_SLOT.setRelease(slots, index, value);
+        }
+        notifyDataChanged(key);
+    }
+
+    /**
+     * Очищает слот ключа (примитивный слот возвращается к значению по умолчанию).
+     *
+     * @param key ключ
+     */
+    public void remove(ContextKey<?> key) {
+        if (key.isPrimitive()) {
+            writePrimitive(key, key.getDefaultBits());
+        } else {
+            set(key, null);
+        }
+    }
+
+    /**
+     * Проверяет наличие значения по ключу.
+     * Для примитивных ключей - отличается ли значение от значения по умолчанию.
+     *
+     * @param key ключ
+     * @return true если значение установлено
+     */
+    public boolean has(ContextKey<?> key) {
+        if (key.isPrimitive()) {
+            return readPrimitive(key) != key.getDefaultBits();
+        }
+        return get(key) != null;
+    }
+
+    public int getInt(ContextKey<Integer> key) {
+        requireKind(key, ContextKey.Kind.INT);
+        return (int) readPrimitive(key);
+    }
+
+    public void setInt(ContextKey<Integer> key, int value) {
+        requireKind(key, ContextKey.Kind.INT);
+        writePrimitive(key, value);
+    }
+
+    public long getLong(ContextKey<Long> key) {
+        requireKind(key, ContextKey.Kind.LONG);
+        return readPrimitive(key);
+    }
+
+    public void setLong(ContextKey<Long> key, long value) {
+        requireKind(key, ContextKey.Kind.LONG);
+        writePrimitive(key, value);
+    }
+
+    public double getDouble(ContextKey<Double> key) {
+        requireKind(key, ContextKey.Kind.DOUBLE);
+        return Double.longBitsToDouble(readPrimitive(key));
+    }
+
+    public void setDouble(ContextKey<Double> key, double value) {
+        requireKind(key, ContextKey.Kind.DOUBLE);
+        writePrimitive(key, Double.doubleToRawLongBits(value));
     }
 
+    @SuppressWarnings("unchecked")
     public void setData(String key, Object value) {
-        data.put(key, value);
+        ContextKey<Object> typed = (ContextKey<Object>) ContextKey.forName(key);
+        if (typed != null) {
+            set(typed, typed.isPrimitive() ? value : typed.getType().cast(value));
+        } else if (value == null) {
+            data.remove(key);
+        } else {
+            data.put(key, value);
+        }
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getData(String key) {
+        ContextKey<?> typed = ContextKey.forName(key);
+        if (typed != null) {
+            return (T) get(typed);
+        }
         return (T) data.get(key);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Получает значение по строковому ключу.
+     * Для примитивного ключа значение по умолчанию возвращается, пока слот
+     * не отличается от объявленного значения ключа.
+     *
+     * @param key имя ключа
+     * @param defaultValue значение, если ключ не установлен
+     * @return значение
+     */
     public <T> T getData(String key, T defaultValue) {
-        return (T) data.getOrDefault(key, defaultValue);
+        ContextKey<?> typed = ContextKey.forName(key);
+        if (typed != null && typed.isPrimitive() && !has(typed)) {
+            return defaultValue;
+        }
+        T value = getData(key);
+        return value != null ? value : defaultValue;
     }
 
     public void removeData(String key) {
-        data.remove(key);
+        ContextKey<?> typed = ContextKey.forName(key);
+        if (typed != null) {
+            remove(typed);
+        } else {
+            data.remove(key);
+        }
     }
 
     public boolean hasData(String key) {
+        ContextKey<?> typed = ContextKey.forName(key);
+        if (typed != null) {
+            return has(typed);
+        }
         return data.containsKey(key);
     }
 
@@ -99,10 +301,100 @@ public class BotContext {
     }
 
     public Map<String, Object> getAllData() {
-        return new HashMap<>(data);
+        Map<String, Object> result = new HashMap<>(data);
+        for (ContextKey<?> key : ContextKey.registeredKeys()) {
+            if (has(key)) {
+                result.put(key.getName(), get(key));
+            }
+        }
+        return result;
     }
 
-    public void clearData() {
+    public synchronized void clearData() {
         data.clear();
+        Object[] slots = objectSlots;
+        for (int i = 0; i < slots.length; i++) {
+            OBJECT_SLOT.setRelease(slots, i, (Object) null);
+        }
+        long[] primitives = primitiveSlots;
+        fillPrimitiveDefaults(primitives, 0);
+        // null - изменились все ключи
+        notifyDataChanged(null);
+    }
+
+    /**
+     * Проверяет вид ключа перед обращением к примитивному слоту, иначе
+     * объектный ключ или ключ другого вида читал бы чужой слот.
+     *
+     * @param key ключ
+     * @param kind ожидаемый вид
+     */
+    private static void requireKind(ContextKey<?> key, ContextKey.Kind kind) {
+        if (key.getKind() != kind) {
+            throw new ClassCastException("Context key " + key.getName() + " is " + key.getKind() + ", not " + kind);
+        }
+    }
+
+    private long readPrimitive(ContextKey<?> key) {
+        long[] slots = primitiveSlots;
+        int index = key.getIndex();
+        return index < slots.length ? (long) PRIMITIVE_SLOT.getAcquire(slots, index) : key.getDefaultBits();
+    }
+
+    private void writePrimitive(ContextKey<?> key, long bits) {
+        int index = key.getIndex();
+        long[] slots = primitiveSlots;
+        if (index >= slots.length) {
+            slots = growPrimitiveSlots(index);
+        }
+        PRIMITIVE_SLOT.setRelease(slots, index, bits);
+        while (slots != primitiveSlots) {
+            slots = primitiveSlots;
+            PRIMITIVE_SLOT.setRelease(slots, index, bits);
+        }
+        notifyDataChanged(key);
+    }
+
+    private void notifyDataChanged(ContextKey<?> key) {
+        IContextListener l = listener;
+        if (l != null) {
+            l.onDataChanged(this, key);
+        }
+    }
+
+    /**
+     * Расширяет массив объектных слотов под ключи, зарегистрированные после создания контекста.
+     */
+    private synchronized Object[] growObjectSlots(int index) {
+        Object[] slots = objectSlots;
+        if (index < slots.length) {
+            return slots;
+        }
+        Object[] grown = Arrays.copyOf(slots, Math.max(index + 1, ContextKey.objectSlotCount()));
+        objectSlots = grown;
+        return grown;
+    }
+
+    /**
+     * Расширяет массив примитивных слотов, заполняя новые слоты значениями по умолчанию.
+     */
+    private synchronized long[] growPrimitiveSlots(int index) {
+        long[] slots = primitiveSlots;
+        if (index < slots.length) {
+            return slots;
+        }
+        long[] grown = Arrays.copyOf(slots, Math.max(index + 1, ContextKey.primitiveSlotCount()));
+        fillPrimitiveDefaults(grown, slots.length);
+        primitiveSlots = grown;
+        return grown;
+    }
+
+    private static void fillPrimitiveDefaults(long[] slots, int fromIndex) {
+        for (ContextKey<?> key : ContextKey.registeredKeys()) {
+            int index = key.getIndex();
+            if (key.isPrimitive() && index >= fromIndex && index < slots.length) {
+                PRIMITIVE_SLOT.setRelease(slots, index, key.getDefaultBits());
+            }
+        }
     }
 }
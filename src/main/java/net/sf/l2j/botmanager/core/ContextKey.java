@@ -0,0 +1,232 @@
+package net.sf.l2j.botmanager.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Типизированный ключ данных контекста бота.
+ *
+ * <p>Ключи регистрируются один раз (обычно как {@code static final} константы)
+ * и получают небольшой целочисленный индекс. {@link BotContext} хранит значения
+ * в массивах по этому индексу, поэтому доступ к данным не требует построения
+ * строк, хеширования и (для примитивных ключей) упаковки значений.</p>
+ *
+ * <p>Объектные ключи и примитивные ключи (int/long/double) индексируются
+ * независимо: первые адресуют слот в {@code Object[]}, вторые - в {@code long[]}.</p>
+ *
+ * @param <T> тип значения
+ * @author ni-okr
+ * @version 1.0
+ */
+public final class ContextKey<T> {
+
+    /**
+     * Вид хранения значения ключа.
+     */
+    public enum Kind {
+        /** Ссылочное значение в слоте {@code Object[]} */
+        OBJECT,
+        /** Значение int в слоте {@code long[]} */
+        INT,
+        /** Значение long в слоте {@code long[]} */
+        LONG,
+        /** Значение double в слоте {@code long[]} (сырые биты) */
+        DOUBLE
+    }
+
+    private static final Map<String, ContextKey<?>> REGISTRY = new ConcurrentHashMap<>();
+    private static int objectSlots;
+    private static int primitiveSlots;
+
+    private final String name;
+    private final Class<T> type;
+    private final Kind kind;
+    private final int index;
+    private final long defaultBits;
+
+    private ContextKey(String name, Class<T> type, Kind kind, int index, long defaultBits) {
+        this.name = name;
+        this.type = type;
+        this.kind = kind;
+        this.index = index;
+        this.defaultBits = defaultBits;
+    }
+
+    /**
+     * Регистрирует объектный ключ.
+     *
+     * @param name уникальное имя ключа
+     * @param type тип значения
+     * @return зарегистрированный ключ
+     */
+    public static <T> ContextKey<T> of(String name, Class<T> type) {
+        return register(name, type, Kind.OBJECT, 0L);
+    }
+
+    /**
+     * Регистрирует примитивный int ключ.
+     *
+     * @param name уникальное имя ключа
+     * @param defaultValue значение по умолчанию
+     * @return зарегистрированный ключ
+     */
+    public static ContextKey<Integer> ofInt(String name, int defaultValue) {
+        return register(name, Integer.class, Kind.INT, defaultValue);
+    }
+
+    /**
+     * Регистрирует примитивный long ключ.
+     *
+     * @param name уникальное имя ключа
+     * @param defaultValue значение по умолчанию
+     * @return зарегистрированный ключ
+     */
+    public static ContextKey<Long> ofLong(String name, long defaultValue) {
+        return register(name, Long.class, Kind.LONG, defaultValue);
+    }
+
+    /**
+     * Регистрирует примитивный double ключ.
+     *
+     * @param name уникальное имя ключа
+     * @param defaultValue значение по умолчанию
+     * @return зарегистрированный ключ
+     */
+    public static ContextKey<Double> ofDouble(String name, double defaultValue) {
+        return register(name, Double.class, Kind.DOUBLE, Double.doubleToRawLongBits(defaultValue));
+    }
+
+    /**
+     * Ищет зарегистрированный ключ по имени.
+     *
+     * @param name имя ключа
+     * @return ключ или null если ключ не зарегистрирован
+     */
+    public static ContextKey<?> forName(String name) {
+        return REGISTRY.get(name);
+    }
+
+    /**
+     * Получает все зарегистрированные ключи.
+     *
+     * @return коллекция ключей
+     */
+    static Iterable<ContextKey<?>> registeredKeys() {
+        return REGISTRY.values();
+    }
+
+    /**
+     * Получает текущее количество объектных слотов.
+     * Читается под той же блокировкой, что и регистрация, поэтому все ключи
+     * с индексом меньше результата уже видны в {@link #registeredKeys()}.
+     *
+     * @return количество слотов
+     */
+    static synchronized int objectSlotCount() {
+        return objectSlots;
+    }
+
+    /**
+     * Получает текущее количество примитивных слотов.
+     *
+     * @return количество слотов
+     */
+    static synchronized int primitiveSlotCount() {
+        return primitiveSlots;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static synchronized <T> ContextKey<T> register(String name, Class<T> type, Kind kind, long defaultBits) {
+        if (name == null || type == null) {
+            throw new IllegalArgumentException("Context key name and type must not be null");
+        }
+
+        ContextKey<?> existing = REGISTRY.get(name);
+        if (existing != null) {
+            if (existing.kind != kind || existing.type != type) {
+                throw new IllegalArgumentException("Context key " + name + " is already registered as " +
+                    existing.kind + "<" + existing.type.getSimpleName() + ">");
+            }
+            return (ContextKey<T>) existing;
+        }
+
+        int index = kind == Kind.OBJECT ? objectSlots++ : primitiveSlots++;
+        ContextKey<T> key = new ContextKey<>(name, type, kind, index, defaultBits);
+        REGISTRY.put(name, key);
+        return key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Проверяет, хранится ли значение ключа в примитивном слоте.
+     *
+     * @return true для int/long/double ключей
+     */
+    public boolean isPrimitive() {
+        return kind != Kind.OBJECT;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    long getDefaultBits() {
+        return defaultBits;
+    }
+
+    /**
+     * Упаковывает сырые биты примитивного слота в объект.
+     *
+     * @param bits значение слота
+     * @return упакованное значение
+     */
+    Object box(long bits) {
+        switch (kind) {
+            case INT:
+                return (int) bits;
+            case LONG:
+                return bits;
+            case DOUBLE:
+                return Double.longBitsToDouble(bits);
+            default:
+                throw new IllegalStateException("Context key " + name + " is not primitive");
+        }
+    }
+
+    /**
+     * Преобразует объект в сырые биты примитивного слота.
+     *
+     * @param value значение
+     * @return биты для записи в слот
+     */
+    long unbox(Object value) {
+        if (value == null) {
+            return defaultBits;
+        }
+        switch (kind) {
+            case INT:
+            case LONG:
+                return ((Number) value).longValue();
+            case DOUBLE:
+                return Double.doubleToRawLongBits(((Number) value).doubleValue());
+            default:
+                throw new IllegalStateException("Context key " + name + " is not primitive");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ContextKey{" + name + ", " + kind + "#" + index + "}";
+    }
+}
@@ -119,7 +119,7 @@ public class EnhancedFakePlayer {
      */
     public String getBotName() {
         if (context != null) {
-            return context.getData("botName", "Unknown");
+            return context.get(BotContext.BOT_NAME, "Unknown");
         }
         return playerInstance != null ? playerInstance.getName() : "Unknown";
     }
@@ -131,7 +131,7 @@ public class EnhancedFakePlayer {
      */
     public BotType getBotType() {
         if (context != null) {
-            return context.getData("botType", BotType.SOLDIER);
+            return context.get(BotContext.BOT_TYPE, BotType.SOLDIER);
         }
         return BotType.SOLDIER;
     }
@@ -0,0 +1,34 @@
+package net.sf.l2j.botmanager.core;
+
+/**
+ * Слушатель изменений контекста бота.
+ *
+ * <p>Вызывается синхронно в потоке, изменившем контекст, поэтому реализации
+ * должны быть быстрыми (например, обновление индексов в {@code BotManager}).</p>
+ */
+public interface IContextListener {
+
+    /**
+     * Вызывается при смене состояния бота
+     *
+     * @param context контекст бота
+     * @param oldState предыдущее состояние
+     * @param newState новое состояние
+     */
+    void onStateChanged(BotContext context, BotState oldState, BotState newState);
+
+    /**
+     * Вызывается при изменении значения типизированного ключа
+     *
+     * @param context контекст бота
+     * @param key измененный ключ или null, если контекст очищен целиком
+     */
+    void onDataChanged(BotContext context, ContextKey<?> key);
+
+    /**
+     * Вызывается при привязке или отвязке экземпляра игрока
+     *
+     * @param context контекст бота
+     */
+    void onPlayerInstanceChanged(BotContext context);
+}
@@ -28,7 +28,7 @@ public class BotCreatedEvent extends BotEvent {
      * Получает тип созданного бота
      */
     public BotType getBotType() {
-        return getSource().getData("botType");
+        return getSource().get(BotContext.BOT_TYPE);
     }
 
     /**
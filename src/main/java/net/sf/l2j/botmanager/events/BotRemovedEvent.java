@@ -28,7 +28,7 @@ public class BotRemovedEvent extends BotEvent {
      * Получает тип удаленного бота
      */
     public BotType getBotType() {
-        return getSource().getData("botType");
+        return getSource().get(BotContext.BOT_TYPE);
     }
 
     /**
@@ -26,8 +26,11 @@ public class BotStateManager {
     /** Состояния ботов */
     private final Map<Integer, BotStateInfo> botStates;
     
-    /** История переходов состояний */
-    private final Map<Integer, List<StateTransition>> stateHistory;
+    /** Емкость истории переходов одного бота */
+    public static final int HISTORY_CAPACITY = 100;
+    
+    /** История переходов состояний (кольцевые буферы упакованных записей) */
+    private final Map<Integer, StateHistory> stateHistory;
     
     /** Счетчик переходов состояний */
     private final AtomicLong stateTransitions;
@@ -69,7 +72,7 @@ public class BotStateManager {
             botStates.put(botId, stateInfo);
             
             // Инициализируем историю состояний
-            stateHistory.put(botId, new ArrayList<>());
+            stateHistory.put(botId, new StateHistory(HISTORY_CAPACITY, stateInfo.getLastStateChangeTime()));
             
             logger.info("Bot " + botId + " state initialized");
             return true;
@@ -118,6 +121,18 @@ public class BotStateManager {
      * @return true если обновление успешно
      */
     public boolean updateBotState(EnhancedFakePlayer bot, BotState newState, String reason) {
+        return updateBotState(bot, newState, TransitionReasons.intern(reason));
+    }
+    
+    /**
+     * Обновление состояния бота с причиной из {@link TransitionReasons}.
+     * 
+     * @param bot бот
+     * @param newState новое состояние
+     * @param reasonId идентификатор причины
+     * @return true если обновление успешно
+     */
+    public boolean updateBotState(EnhancedFakePlayer bot, BotState newState, int reasonId) {
         if (bot == null || newState == null) {
             logger.warn("Cannot update state: bot or newState is null");
             return false;
@@ -141,23 +156,23 @@ public class BotStateManager {
             }
             
             // Обновляем состояние
+            long now = System.currentTimeMillis();
+            String reason = TransitionReasons.name(reasonId);
             stateInfo.setCurrentState(newState);
-            stateInfo.setLastStateChangeTime(System.currentTimeMillis());
+            stateInfo.setLastStateChangeTime(now);
             stateInfo.setStateReason(reason);
             
-            // Записываем переход в историю
-            StateTransition transition = new StateTransition(oldState, newState, reason, System.currentTimeMillis());
-            stateHistory.get(botId).add(transition);
-            
-            // Ограничиваем размер истории
-            List<StateTransition> history = stateHistory.get(botId);
-            if (history.size() > 100) {
-                history.remove(0); // Удаляем самый старый переход
+            // Записываем переход в историю; старые переходы вытесняются буфером
+            StateHistory history = stateHistory.get(botId);
+            if (history != null) {
+                history.record(oldState, newState, reasonId, now);
             }
             
             stateTransitions.incrementAndGet();
             
-            logger.debug("Bot " + botId + " state updated: " + oldState + " -> " + newState + " (" + reason + ")");
+            if (logger.isDebugEnabled()) {
+                logger.debug("Bot " + botId + " state updated: " + oldState + " -> " + newState + " (" + reason + ")");
+            }
             return true;
             
         } catch (Exception e) {
@@ -200,15 +215,15 @@ public class BotStateManager {
      * Получение истории переходов состояний бота.
      * 
      * @param bot бот
-     * @return история переходов или null если бот не найден
+     * @return история переходов (от старых к новым) или null если бот не найден
      */
     public List<StateTransition> getBotStateHistory(EnhancedFakePlayer bot) {
         if (bot == null) {
             return null;
         }
         
-        List<StateTransition> history = stateHistory.get(bot.getBotId());
-        return history != null ? new ArrayList<>(history) : null;
+        StateHistory history = stateHistory.get(bot.getBotId());
+        return history != null ? history.snapshot() : null;
     }
     
     /**
@@ -248,7 +263,7 @@ public class BotStateManager {
         
         BotState newState = mapBehaviorToState(behavior);
         if (newState != null) {
-            return updateBotState(bot, newState, "Behavior: " + behavior.getType());
+            return updateBotState(bot, newState, TransitionReasons.forBehavior(behavior.getType()));
         }
         
         return false;
@@ -268,7 +283,7 @@ public class BotStateManager {
         
         BotState newState = mapActionToState(action);
         if (newState != null) {
-            return updateBotState(bot, newState, "Action: " + action.getType());
+            return updateBotState(bot, newState, TransitionReasons.forAction(action.getType()));
         }
         
         return false;
@@ -354,7 +369,7 @@ public class BotStateManager {
             return null;
         }
         
-        List<StateTransition> history = stateHistory.get(botId);
+        StateHistory history = stateHistory.get(botId);
         int historySize = history != null ? history.size() : 0;
         
         return String.format("Bot %d State: %s, Last Change=%d, History Size=%d",
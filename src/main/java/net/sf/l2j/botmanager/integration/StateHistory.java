@@ -0,0 +1,144 @@
+package net.sf.l2j.botmanager.integration;
+
+import net.sf.l2j.botmanager.core.BotState;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Кольцевой буфер истории переходов состояний одного бота.
+ *
+ * Каждый переход упакован в один {@code long}:
+ * <pre>
+ *  63        32 31      20 19      8 7    0
+ * [ delta ms  ][ reason  ][ (rsv)  ][to|fr]
+ * </pre>
+ * где {@code fr}/{@code to} - ordinal состояний (по 4 бита), {@code reason} -
+ * идентификатор из {@link TransitionReasons}, {@code delta} - время в мс с
+ * предыдущего перехода (без знака, с насыщением). Абсолютное время хранится
+ * только для последнего перехода, остальные восстанавливаются при чтении.
+ * Запись не создает объектов; чтение копирует буфер и декодирует
+ * {@link BotStateManager.StateTransition} по требованию.
+ *
+ * @author AI Bot System
+ * @version 1.0
+ */
+public final class StateHistory {
+
+    private static final int STATE_BITS = 4;
+    private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+    private static final int REASON_SHIFT = 20;
+    private static final long REASON_MASK = TransitionReasons.MAX_REASONS - 1;
+    private static final int DELTA_SHIFT = 32;
+    private static final long MAX_DELTA = 0xFFFFFFFFL;
+
+    private static final BotState[] STATES = BotState.values();
+
+    static {
+        if (STATES.length > (1 << STATE_BITS)) {
+            throw new IllegalStateException("BotState does not fit into " + STATE_BITS + " bits");
+        }
+    }
+
+    private final long[] entries;
+    private int head;
+    private int size;
+    private long lastTimestamp;
+
+    /**
+     * Конструктор.
+     *
+     * @param capacity максимальное количество хранимых переходов
+     * @param startTime время, от которого отсчитывается первый переход
+     */
+    public StateHistory(int capacity, long startTime) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive");
+        }
+        this.entries = new long[capacity];
+        this.lastTimestamp = startTime;
+    }
+
+    /**
+     * Записывает переход, вытесняя самый старый при заполнении буфера.
+     *
+     * @param fromState исходное состояние
+     * @param toState новое состояние
+     * @param reasonId идентификатор причины
+     * @param timestamp время перехода
+     */
+    public synchronized void record(BotState fromState, BotState toState, int reasonId, long timestamp) {
+        long delta = Math.min(Math.max(timestamp - lastTimestamp, 0L), MAX_DELTA);
+        long packed = (delta << DELTA_SHIFT)
+            | ((reasonId & REASON_MASK) << REASON_SHIFT)
+            | ((long) toState.ordinal() << STATE_BITS)
+            | fromState.ordinal();
+
+        entries[head] = packed;
+        head = (head + 1) % entries.length;
+        if (size < entries.length) {
+            size++;
+        }
+        lastTimestamp = Math.max(timestamp, lastTimestamp);
+    }
+
+    /**
+     * Получает количество хранимых переходов.
+     *
+     * @return количество переходов
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Получает емкость буфера.
+     *
+     * @return емкость
+     */
+    public int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Получает снимок истории от старого перехода к новому.
+     * Переходы декодируются при обращении к элементу списка.
+     *
+     * @return неизменяемый список переходов
+     */
+    public List<BotStateManager.StateTransition> snapshot() {
+        final long[] packed;
+        final long[] timestamps;
+        synchronized (this) {
+            packed = new long[size];
+            int start = (head - size + entries.length) % entries.length;
+            for (int i = 0; i < size; i++) {
+                packed[i] = entries[(start + i) % entries.length];
+            }
+            // Абсолютное время восстанавливается от последнего перехода назад
+            timestamps = new long[size];
+            long time = lastTimestamp;
+            for (int i = size - 1; i >= 0; i--) {
+                timestamps[i] = time;
+                time -= packed[i] >>> DELTA_SHIFT;
+            }
+        }
+
+        return new AbstractList<BotStateManager.StateTransition>() {
+            @Override
+            public BotStateManager.StateTransition get(int index) {
+                long entry = packed[index];
+                return new BotStateManager.StateTransition(
+                    STATES[(int) (entry & STATE_MASK)],
+                    STATES[(int) ((entry >>> STATE_BITS) & STATE_MASK)],
+                    TransitionReasons.name((int) ((entry >>> REASON_SHIFT) & REASON_MASK)),
+                    timestamps[index]);
+            }
+
+            @Override
+            public int size() {
+                return packed.length;
+            }
+        };
+    }
+}
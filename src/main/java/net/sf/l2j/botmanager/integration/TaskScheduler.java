@@ -7,7 +7,11 @@ import net.sf.l2j.botmanager.behaviors.IBehavior;
 import net.sf.l2j.botmanager.utils.Logger;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -16,6 +20,19 @@ import java.util.concurrent.atomic.AtomicLong;
  * Управляет выполнением задач ботов, планированием действий
  * и координацией между различными системами.
  * 
+ * Отложенные и периодические задачи (задержанные действия, кулдауны,
+ * таймауты поведений) хранятся в иерархическом колесе таймеров
+ * {@link TimingWheel}: добавление и отмена выполняются за O(1), а цикл
+ * обработки продвигает колесо по тикам. Сработавшие задачи попадают в
+ * очередь готовых задач своего бота, а боты распределены по шардам,
+ * которые обрабатываются пакетами (параллельно, если задан исполнитель).
+ * 
+ * В режиме {@link DispatchMode#EDF} готовые задачи выбираются по ближайшему
+ * сроку выполнения, а бюджет цикла делится между ботами по схеме deficit
+ * round-robin: бот не может потратить больше своей доли, даже если заполнил
+ * очередь задачами, поэтому срочные задачи (лечение, отступление) остальных
+ * ботов выполняются вовремя и при перегрузке планировщика.
+ * 
  * @author AI Bot System
  * @version 1.0
  */
@@ -26,18 +43,48 @@ public class TaskScheduler {
     /** Активные задачи ботов */
     private final Map<Integer, BotTaskQueue> botTasks;
     
-    /** Глобальная очередь задач */
-    private final PriorityQueue<ScheduledTask> globalTaskQueue;
+    /** Длительность тика колеса таймеров по умолчанию (мс) */
+    public static final long DEFAULT_TICK_MS = 10;
+    
+    /** Количество ячеек на уровне колеса таймеров */
+    public static final int WHEEL_SIZE = 512;
+    
+    /** Срок выполнения задачи по умолчанию (мс) */
+    public static final long DEFAULT_TASK_DEADLINE_MS = 1000;
+    
+    /** Бюджет стоимости задач одного шарда за цикл по умолчанию */
+    public static final long DEFAULT_CYCLE_BUDGET = 100;
+    
+    /** Колесо таймеров отложенных задач */
+    private final TimingWheel<ScheduledTask> timerWheel;
+    
+    /** Шарды ботов с готовыми к выполнению задачами */
+    private final Queue<BotTaskQueue>[] readyShards;
+    
+    /** Исполнитель шардов (null - последовательная обработка) */
+    private final Executor shardExecutor;
+    
+    /** Режим выбора готовых задач */
+    private final DispatchMode dispatchMode;
+    
+    /** Бюджет стоимости задач одного шарда за цикл (режим EDF) */
+    private volatile long cycleBudget = DEFAULT_CYCLE_BUDGET;
     
     /** Счетчик выполненных задач */
     private final AtomicLong completedTasks;
     
+    /** Счетчик задач, завершившихся неудачей */
+    private final AtomicLong failedTasks;
+    
     /** Счетчик отмененных задач */
     private final AtomicLong cancelledTasks;
     
     /** Счетчик ошибок задач */
     private final AtomicLong taskErrors;
     
+    /** Счетчик задач, не выполненных к своему сроку */
+    private final AtomicLong missedDeadlines;
+    
     /** Флаг активности */
     private volatile boolean isActive = false;
     
@@ -45,11 +92,55 @@ public class TaskScheduler {
      * Конструктор.
      */
     public TaskScheduler() {
+        this(null, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Конструктор.
+     * 
+     * @param shardExecutor исполнитель для параллельной обработки шардов или null
+     * @param shardCount количество шардов ботов
+     */
+    public TaskScheduler(Executor shardExecutor, int shardCount) {
+        this(shardExecutor, shardCount, DispatchMode.PRIORITY);
+    }
+    
+    /**
+     * Конструктор.
+     * 
+     * @param shardExecutor исполнитель для параллельной обработки шардов или null
+     * @param shardCount количество шардов ботов
+     * @param dispatchMode режим выбора готовых задач
+     */
+    public TaskScheduler(Executor shardExecutor, int shardCount, DispatchMode dispatchMode) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        if (dispatchMode == null) {
+            throw new IllegalArgumentException("Dispatch mode cannot be null");
+        }
         this.botTasks = new ConcurrentHashMap<>();
-        this.globalTaskQueue = new PriorityQueue<>(Comparator.comparing(ScheduledTask::getPriority).reversed());
+        this.timerWheel = new TimingWheel<>(DEFAULT_TICK_MS, WHEEL_SIZE, System.currentTimeMillis());
+        this.readyShards = createShards(shardCount);
+        this.shardExecutor = shardExecutor;
+        this.dispatchMode = dispatchMode;
         this.completedTasks = new AtomicLong(0);
+        this.failedTasks = new AtomicLong(0);
         this.cancelledTasks = new AtomicLong(0);
         this.taskErrors = new AtomicLong(0);
+        this.missedDeadlines = new AtomicLong(0);
+    }
+    
+    /**
+     * Создание очередей готовых ботов по шардам.
+     */
+    @SuppressWarnings("unchecked")
+    private static Queue<BotTaskQueue>[] createShards(int shardCount) {
+        Queue<BotTaskQueue>[] shards = (Queue<BotTaskQueue>[]) new Queue<?>[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new ConcurrentLinkedQueue<>();
+        }
+        return shards;
     }
     
     /**
@@ -80,7 +171,10 @@ public class TaskScheduler {
         }
         
         botTasks.clear();
-        globalTaskQueue.clear();
+        timerWheel.clear();
+        for (Queue<BotTaskQueue> shard : readyShards) {
+            shard.clear();
+        }
         isActive = false;
         logger.info("TaskScheduler shutdown");
     }
@@ -94,6 +188,42 @@ public class TaskScheduler {
      * @return ID задачи или -1 если не удалось добавить
      */
     public long addTask(EnhancedFakePlayer bot, ITask task, double priority) {
+        return scheduleTask(bot, task, priority, 0);
+    }
+    
+    /**
+     * Добавление отложенной задачи для бота.
+     * 
+     * @param bot бот
+     * @param task задача
+     * @param priority приоритет задачи
+     * @param delayMs задержка перед выполнением в миллисекундах
+     * @return ID задачи или -1 если не удалось добавить
+     */
+    public long scheduleTask(EnhancedFakePlayer bot, ITask task, double priority, long delayMs) {
+        return schedule(bot, task, priority, delayMs, 0);
+    }
+    
+    /**
+     * Добавление периодической задачи для бота.
+     * 
+     * @param bot бот
+     * @param task задача
+     * @param priority приоритет задачи
+     * @param initialDelayMs задержка перед первым выполнением
+     * @param periodMs период повторения
+     * @return ID задачи или -1 если не удалось добавить
+     */
+    public long scheduleAtFixedRate(EnhancedFakePlayer bot, ITask task, double priority,
+                                    long initialDelayMs, long periodMs) {
+        if (periodMs <= 0) {
+            logger.warn("Cannot schedule periodic task with non-positive period");
+            return -1;
+        }
+        return schedule(bot, task, priority, initialDelayMs, periodMs);
+    }
+    
+    private long schedule(EnhancedFakePlayer bot, ITask task, double priority, long delayMs, long periodMs) {
         if (bot == null || task == null) {
             logger.warn("Cannot add task: bot or task is null");
             return -1;
@@ -108,16 +238,26 @@ public class TaskScheduler {
         
         try {
             // Создаем очередь задач для бота если её нет
-            BotTaskQueue taskQueue = botTasks.computeIfAbsent(botId, k -> new BotTaskQueue(bot));
+            BotTaskQueue taskQueue = botTasks.computeIfAbsent(botId,
+                k -> new BotTaskQueue(bot, timerWheel, readyShards[Math.floorMod(botId, readyShards.length)],
+                    dispatchMode == DispatchMode.EDF ? BotTaskQueue.BY_DEADLINE : BotTaskQueue.BY_PRIORITY));
             
             // Создаем запланированную задачу
-            ScheduledTask scheduledTask = new ScheduledTask(task, priority, System.currentTimeMillis());
+            long now = System.currentTimeMillis();
+            ScheduledTask scheduledTask = new ScheduledTask(task, priority, now, taskQueue, periodMs);
+            long runTime = now + Math.max(delayMs, 0);
+            scheduledTask.updateDispatchDeadline(runTime);
             long taskId = taskQueue.addTask(scheduledTask);
             
-            // Добавляем в глобальную очередь
-            globalTaskQueue.offer(scheduledTask);
+            // Задачи без задержки сразу готовы, остальные ждут в колесе таймеров
+            if (delayMs <= 0 || !timerWheel.add(scheduledTask, runTime)) {
+                taskQueue.offerReady(scheduledTask);
+            }
             
-            logger.debug("Task added for bot " + botId + ": " + task.getType() + " (priority: " + priority + ")");
+            if (logger.isDebugEnabled()) {
+                logger.debug("Task added for bot " + botId + ": " + task.getType() + " (priority: " + priority +
+                    ", delay: " + delayMs + "ms)");
+            }
             return taskId;
             
         } catch (Exception e) {
@@ -201,6 +341,16 @@ public class TaskScheduler {
      * @return количество обработанных задач
      */
     public int processCycle() {
+        return processCycle(System.currentTimeMillis());
+    }
+    
+    /**
+     * Обработка одного цикла планировщика на указанный момент времени.
+     * 
+     * @param now текущее время в миллисекундах
+     * @return количество обработанных задач
+     */
+    public int processCycle(long now) {
         if (!isActive) {
             return 0;
         }
@@ -208,15 +358,23 @@ public class TaskScheduler {
         int processedTasks = 0;
         
         try {
-            // Обрабатываем задачи по приоритету
-            while (!globalTaskQueue.isEmpty()) {
-                ScheduledTask scheduledTask = globalTaskQueue.poll();
-                if (scheduledTask == null || scheduledTask.isCancelled()) {
-                    continue;
+            // Сработавшие таймеры переносятся в очереди готовых задач своих ботов
+            timerWheel.advance(now, task -> task.getQueue().offerReady(task));
+            
+            long budget = cycleBudget;
+            if (shardExecutor == null || readyShards.length == 1) {
+                for (Queue<BotTaskQueue> shard : readyShards) {
+                    processedTasks += processShard(shard, now, budget);
                 }
-                
-                if (processTask(scheduledTask)) {
-                    processedTasks++;
+            } else {
+                List<CompletableFuture<Integer>> futures = new ArrayList<>(readyShards.length);
+                for (Queue<BotTaskQueue> shard : readyShards) {
+                    if (!shard.isEmpty()) {
+                        futures.add(CompletableFuture.supplyAsync(() -> processShard(shard, now, budget), shardExecutor));
+                    }
+                }
+                for (CompletableFuture<Integer> future : futures) {
+                    processedTasks += future.join();
                 }
             }
             
@@ -228,6 +386,130 @@ public class TaskScheduler {
         return processedTasks;
     }
     
+    /**
+     * Обработка пакета готовых задач одного шарда.
+     * 
+     * @param shard очереди ботов шарда
+     * @param now текущее время
+     * @param budget бюджет стоимости задач шарда (режим EDF)
+     * @return количество успешно выполненных задач
+     */
+    private int processShard(Queue<BotTaskQueue> shard, long now, long budget) {
+        // Снимок ботов цикла: боты, получившие задачи во время обработки, ждут следующего цикла
+        List<BotTaskQueue> bots = new ArrayList<>();
+        BotTaskQueue taskQueue;
+        while ((taskQueue = shard.poll()) != null) {
+            taskQueue.markDequeued();
+            bots.add(taskQueue);
+        }
+        if (bots.isEmpty()) {
+            return 0;
+        }
+        
+        if (dispatchMode == DispatchMode.EDF) {
+            return processShardEdf(bots, now, budget);
+        }
+        
+        int processed = 0;
+        List<ScheduledTask> batch = new ArrayList<>();
+        for (BotTaskQueue botQueue : bots) {
+            botQueue.drainReady(batch);
+            for (ScheduledTask scheduledTask : batch) {
+                if (scheduledTask.isCancelled()) {
+                    continue;
+                }
+                boolean success = runTask(scheduledTask, now);
+                if (success) {
+                    processed++;
+                }
+                botQueue.onExecuted(scheduledTask, now, success);
+            }
+            batch.clear();
+        }
+        return processed;
+    }
+    
+    /**
+     * Обработка шарда в режиме EDF с deficit round-robin между ботами.
+     * 
+     * Каждый бот получает за цикл квант, равный его доле бюджета шарда.
+     * Из ботов, у которых хватает дефицита на головную задачу, всегда
+     * выбирается задача с ближайшим сроком. Неизрасходованный дефицит
+     * сохраняется только пока у бота есть ожидающие задачи. Стоимость
+     * задач цикла не превышает бюджет; задача дороже всего бюджета
+     * выполняется только первой в цикле. Просроченные головные задачи,
+     * которые остаются ждать следующего цикла, учитываются как пропущенные
+     * сроки сразу, а не только когда будут выполнены.
+     * 
+     * @param bots боты с готовыми задачами
+     * @param now текущее время
+     * @param budget бюджет стоимости задач шарда
+     * @return количество успешно выполненных задач
+     */
+    private int processShardEdf(List<BotTaskQueue> bots, long now, long budget) {
+        long quantum = Math.max(1, budget / bots.size());
+        PriorityQueue<BotTaskQueue> byDeadline =
+            new PriorityQueue<>(bots.size(), Comparator.comparingLong(BotTaskQueue::getHeadDeadline));
+        for (BotTaskQueue botQueue : bots) {
+            if (botQueue.refreshHead()) {
+                botQueue.addQuantum(quantum);
+                byDeadline.add(botQueue);
+            }
+        }
+        
+        int processed = 0;
+        long remaining = budget;
+        while (remaining > 0 && !byDeadline.isEmpty()) {
+            BotTaskQueue botQueue = byDeadline.poll();
+            long limit = remaining == budget ? botQueue.getDeficit() : Math.min(botQueue.getDeficit(), remaining);
+            ScheduledTask scheduledTask = botQueue.pollReady(limit);
+            if (scheduledTask == null) {
+                // Доля бота или остаток бюджета в этом цикле исчерпаны
+                continue;
+            }
+            
+            long cost = scheduledTask.getEstimatedCost();
+            botQueue.consume(cost);
+            remaining = Math.max(0, remaining - cost);
+            boolean success = runTask(scheduledTask, now);
+            if (success) {
+                processed++;
+            }
+            botQueue.onExecuted(scheduledTask, now, success);
+            
+            if (botQueue.refreshHead()) {
+                byDeadline.add(botQueue);
+            }
+        }
+        
+        // Боты с оставшимися задачами переходят в следующий цикл
+        for (BotTaskQueue botQueue : bots) {
+            if (botQueue.refreshHead()) {
+                if (botQueue.markOverdueHead(now)) {
+                    missedDeadlines.incrementAndGet();
+                }
+                botQueue.requeue();
+            } else {
+                botQueue.resetDeficit();
+            }
+        }
+        return processed;
+    }
+    
+    /**
+     * Выполнение готовой задачи с учетом ее срока.
+     * 
+     * @param scheduledTask задача
+     * @param now текущее время
+     * @return true если задача выполнена успешно
+     */
+    private boolean runTask(ScheduledTask scheduledTask, long now) {
+        if (scheduledTask.markDeadlineMissed(now)) {
+            missedDeadlines.incrementAndGet();
+        }
+        return processTask(scheduledTask);
+    }
+    
     /**
      * Обработка одной задачи.
      * 
@@ -240,6 +522,7 @@ public class TaskScheduler {
             EnhancedFakePlayer bot = scheduledTask.getBot();
             
             if (bot == null || bot.getContext().getState() == BotState.DISCONNECTED) {
+                failedTasks.incrementAndGet();
                 return false;
             }
             
@@ -250,6 +533,7 @@ public class TaskScheduler {
                 completedTasks.incrementAndGet();
                 logger.debug("Task completed for bot " + bot.getBotId() + ": " + task.getType());
             } else {
+                failedTasks.incrementAndGet();
                 logger.debug("Task failed for bot " + bot.getBotId() + ": " + task.getType());
             }
             
@@ -283,14 +567,16 @@ public class TaskScheduler {
      */
     public String getStatistics() {
         long completed = completedTasks.get();
+        long failed = failedTasks.get();
         long cancelled = cancelledTasks.get();
         long errors = taskErrors.get();
         int activeBots = botTasks.size();
-        int globalQueueSize = globalTaskQueue.size();
+        int pendingTimers = timerWheel.size();
+        long missed = missedDeadlines.get();
         
-        return String.format("TaskScheduler Stats: Active=%s, Bots=%d, Global Queue=%d, " +
-                           "Completed=%d, Cancelled=%d, Errors=%d",
-                isActive, activeBots, globalQueueSize, completed, cancelled, errors);
+        return String.format("TaskScheduler Stats: Active=%s, Mode=%s, Bots=%d, Pending Timers=%d, " +
+                           "Completed=%d, Failed=%d, Cancelled=%d, Errors=%d, Missed Deadlines=%d",
+                isActive, dispatchMode, activeBots, pendingTimers, completed, failed, cancelled, errors, missed);
     }
     
     /**
@@ -308,6 +594,68 @@ public class TaskScheduler {
         return taskQueue.getStatistics();
     }
     
+    /**
+     * Получение количества отложенных задач в колесе таймеров.
+     * 
+     * @return количество задач
+     */
+    public int getPendingTimerCount() {
+        return timerWheel.size();
+    }
+    
+    /**
+     * Получение количества задач, завершившихся неудачей.
+     * 
+     * @return количество неудачных задач
+     */
+    public long getFailedTasks() {
+        return failedTasks.get();
+    }
+    
+    /**
+     * Получение количества задач, не выполненных к своему сроку.
+     * 
+     * Задача учитывается один раз за запуск: при выполнении после срока
+     * или когда в режиме EDF она остается просроченной головной задачей
+     * бота до следующего цикла.
+     * 
+     * @return количество пропущенных сроков
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines.get();
+    }
+    
+    /**
+     * Получение режима выбора готовых задач.
+     * 
+     * @return режим
+     */
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+    
+    /**
+     * Получение бюджета стоимости задач одного шарда за цикл.
+     * 
+     * @return бюджет
+     */
+    public long getCycleBudget() {
+        return cycleBudget;
+    }
+    
+    /**
+     * Установка бюджета стоимости задач одного шарда за цикл.
+     * Используется только в режиме EDF.
+     * 
+     * @param cycleBudget бюджет
+     */
+    public void setCycleBudget(long cycleBudget) {
+        if (cycleBudget <= 0) {
+            throw new IllegalArgumentException("Cycle budget must be positive");
+        }
+        this.cycleBudget = cycleBudget;
+    }
+    
     /**
      * Проверка активности планировщика.
      * 
@@ -342,24 +690,69 @@ public class TaskScheduler {
          * @return приоритет (0.0 - 1.0)
          */
         double getPriority();
+        
+        /**
+         * Получение срока выполнения задачи относительно момента готовности.
+         * 
+         * @return допустимая задержка выполнения в миллисекундах
+         */
+        default long getDeadlineMs() {
+            return DEFAULT_TASK_DEADLINE_MS;
+        }
+        
+        /**
+         * Получение оценки стоимости выполнения задачи.
+         * Стоимость расходует бюджет цикла в режиме EDF.
+         * 
+         * @return стоимость (не меньше 1)
+         */
+        default long getEstimatedCost() {
+            return 1;
+        }
+    }
+    
+    /**
+     * Режим выбора готовых задач.
+     */
+    public enum DispatchMode {
+        /** Все готовые задачи бота выполняются за цикл в порядке приоритета */
+        PRIORITY,
+        /** Ближайший срок первым, бюджет цикла делится между ботами (deficit round-robin) */
+        EDF
     }
     
     /**
      * Запланированная задача.
+     * Является узлом колеса таймеров, поэтому отмена не требует поиска.
      */
-    public static class ScheduledTask {
+    public static class ScheduledTask extends TimingWheel.Entry {
         private final ITask task;
         private final double priority;
         private final long scheduledTime;
         private final long taskId;
+        private final BotTaskQueue queue;
+        private final long periodMs;
+        private final long deadlineMs;
+        private final long estimatedCost;
+        private volatile long dispatchDeadline = Long.MAX_VALUE;
+        private volatile long runTime;
+        private volatile boolean deadlineMissed;
         private volatile boolean cancelled = false;
         
         private static final AtomicLong taskIdCounter = new AtomicLong(1);
         
         public ScheduledTask(ITask task, double priority, long scheduledTime) {
+            this(task, priority, scheduledTime, null, 0);
+        }
+        
+        ScheduledTask(ITask task, double priority, long scheduledTime, BotTaskQueue queue, long periodMs) {
             this.task = task;
             this.priority = priority;
             this.scheduledTime = scheduledTime;
+            this.queue = queue;
+            this.periodMs = periodMs;
+            this.deadlineMs = Math.max(task.getDeadlineMs(), 0);
+            this.estimatedCost = Math.max(task.getEstimatedCost(), 1);
             this.taskId = taskIdCounter.getAndIncrement();
         }
         
@@ -387,9 +780,59 @@ public class TaskScheduler {
             this.cancelled = cancelled;
         }
         
+        public boolean isPeriodic() {
+            return periodMs > 0;
+        }
+        
+        public long getPeriodMs() {
+            return periodMs;
+        }
+        
+        /**
+         * Абсолютный срок выполнения текущего запуска задачи.
+         */
+        public long getDispatchDeadline() {
+            return dispatchDeadline;
+        }
+        
+        public long getEstimatedCost() {
+            return estimatedCost;
+        }
+        
+        /**
+         * Плановое время текущего запуска задачи.
+         */
+        public long getRunTime() {
+            return runTime;
+        }
+        
+        void updateDispatchDeadline(long runTime) {
+            this.runTime = runTime;
+            long deadline = runTime + deadlineMs;
+            this.dispatchDeadline = deadline < runTime ? Long.MAX_VALUE : deadline;
+            this.deadlineMissed = false;
+        }
+        
+        /**
+         * Отмечает пропуск срока текущего запуска, если срок уже прошел.
+         * 
+         * @param now текущее время
+         * @return true если срок пропущен и ранее не учитывался
+         */
+        boolean markDeadlineMissed(long now) {
+            if (deadlineMissed || now <= dispatchDeadline) {
+                return false;
+            }
+            deadlineMissed = true;
+            return true;
+        }
+        
+        BotTaskQueue getQueue() {
+            return queue;
+        }
+        
         public EnhancedFakePlayer getBot() {
-            // Предполагаем, что задача знает о боте
-            return null; // Это нужно будет реализовать в конкретных задачах
+            return queue != null ? queue.getBot() : null;
         }
     }
     
@@ -397,32 +840,197 @@ public class TaskScheduler {
      * Очередь задач бота.
      */
     public static class BotTaskQueue {
+        static final Comparator<ScheduledTask> BY_PRIORITY =
+            Comparator.comparingDouble(ScheduledTask::getPriority).reversed();
+        static final Comparator<ScheduledTask> BY_DEADLINE =
+            Comparator.comparingLong(ScheduledTask::getDispatchDeadline).thenComparing(BY_PRIORITY);
+        
         private final EnhancedFakePlayer bot;
-        private final PriorityQueue<ScheduledTask> tasks;
+        private final TimingWheel<ScheduledTask> timerWheel;
+        private final Queue<BotTaskQueue> shard;
+        private final PriorityQueue<ScheduledTask> readyTasks;
         private final Map<Long, ScheduledTask> taskMap;
+        private final AtomicBoolean inShard;
         private final AtomicLong completedTasks;
+        private final AtomicLong failedTasks;
         private final AtomicLong cancelledTasks;
         
+        // Состояние deficit round-robin; изменяется только потоком, обрабатывающим шард
+        private long deficit;
+        private long headDeadline;
+        
         public BotTaskQueue(EnhancedFakePlayer bot) {
+            this(bot, null, null, BY_PRIORITY);
+        }
+        
+        BotTaskQueue(EnhancedFakePlayer bot, TimingWheel<ScheduledTask> timerWheel, Queue<BotTaskQueue> shard,
+                     Comparator<ScheduledTask> readyOrder) {
             this.bot = bot;
-            this.tasks = new PriorityQueue<>(Comparator.comparing(ScheduledTask::getPriority).reversed());
+            this.timerWheel = timerWheel;
+            this.shard = shard;
+            this.readyTasks = new PriorityQueue<>(readyOrder);
             this.taskMap = new ConcurrentHashMap<>();
+            this.inShard = new AtomicBoolean(false);
             this.completedTasks = new AtomicLong(0);
+            this.failedTasks = new AtomicLong(0);
             this.cancelledTasks = new AtomicLong(0);
         }
         
+        public EnhancedFakePlayer getBot() {
+            return bot;
+        }
+        
         public long addTask(ScheduledTask task) {
-            tasks.offer(task);
             taskMap.put(task.getTaskId(), task);
             return task.getTaskId();
         }
         
+        /**
+         * Помещает задачу в очередь готовых и ставит бота в очередь шарда.
+         */
+        void offerReady(ScheduledTask task) {
+            synchronized (readyTasks) {
+                readyTasks.offer(task);
+            }
+            if (shard != null && inShard.compareAndSet(false, true)) {
+                shard.offer(this);
+            }
+        }
+        
+        /**
+         * Отмечает, что бот извлечен из очереди шарда.
+         */
+        void markDequeued() {
+            inShard.set(false);
+        }
+        
+        /**
+         * Возвращает бота с оставшимися задачами в очередь шарда.
+         */
+        void requeue() {
+            if (shard != null && inShard.compareAndSet(false, true)) {
+                shard.offer(this);
+            }
+        }
+        
+        /**
+         * Забирает готовые задачи в порядке очереди.
+         */
+        void drainReady(List<ScheduledTask> batch) {
+            synchronized (readyTasks) {
+                ScheduledTask task;
+                while ((task = readyTasks.poll()) != null) {
+                    batch.add(task);
+                }
+            }
+        }
+        
+        /**
+         * Запоминает срок головной задачи, пропуская отмененные.
+         * 
+         * @return true если есть готовые задачи
+         */
+        boolean refreshHead() {
+            synchronized (readyTasks) {
+                ScheduledTask head = peekLive();
+                headDeadline = head != null ? head.getDispatchDeadline() : Long.MAX_VALUE;
+                return head != null;
+            }
+        }
+        
+        /**
+         * Забирает головную задачу, если ее стоимость укладывается в лимит.
+         * 
+         * @param costLimit доступная стоимость
+         * @return задача или null
+         */
+        ScheduledTask pollReady(long costLimit) {
+            synchronized (readyTasks) {
+                ScheduledTask head = peekLive();
+                if (head == null || head.getEstimatedCost() > costLimit) {
+                    return null;
+                }
+                return readyTasks.poll();
+            }
+        }
+        
+        private ScheduledTask peekLive() {
+            ScheduledTask head;
+            while ((head = readyTasks.peek()) != null && head.isCancelled()) {
+                readyTasks.poll();
+            }
+            return head;
+        }
+        
+        /**
+         * Отмечает пропуск срока головной задачи, ожидающей следующего цикла.
+         * 
+         * @param now текущее время
+         * @return true если срок головной задачи пропущен впервые
+         */
+        boolean markOverdueHead(long now) {
+            synchronized (readyTasks) {
+                ScheduledTask head = peekLive();
+                return head != null && head.markDeadlineMissed(now);
+            }
+        }
+        
+        long getHeadDeadline() {
+            return headDeadline;
+        }
+        
+        long getDeficit() {
+            return deficit;
+        }
+        
+        void addQuantum(long quantum) {
+            // Дефицит не копится сверх того, что нужно для головной задачи
+            ScheduledTask head;
+            synchronized (readyTasks) {
+                head = readyTasks.peek();
+            }
+            long cap = Math.max(quantum, head != null ? head.getEstimatedCost() : 0);
+            deficit = Math.min(deficit + quantum, cap);
+        }
+        
+        void consume(long cost) {
+            deficit -= cost;
+        }
+        
+        void resetDeficit() {
+            deficit = 0;
+        }
+        
+        /**
+         * Учет выполнения задачи: периодические задачи возвращаются в колесо.
+         * 
+         * @param task выполненная задача
+         * @param now текущее время
+         * @param success true если задача выполнена успешно
+         */
+        void onExecuted(ScheduledTask task, long now, boolean success) {
+            if (task.isPeriodic() && !task.isCancelled() && timerWheel != null) {
+                // Следующий запуск отсчитывается от планового, а не от записи в колесе:
+                // задачи без начальной задержки в колесо не попадают
+                long nextRun = Math.max(task.getRunTime() + task.getPeriodMs(), now);
+                task.updateDispatchDeadline(nextRun);
+                if (!timerWheel.add(task, nextRun)) {
+                    offerReady(task);
+                }
+            } else {
+                taskMap.remove(task.getTaskId());
+            }
+            (success ? completedTasks : failedTasks).incrementAndGet();
+        }
+        
         public boolean cancelTask(long taskId) {
-            ScheduledTask task = taskMap.get(taskId);
+            ScheduledTask task = taskMap.remove(taskId);
             if (task != null) {
                 task.setCancelled(true);
-                taskMap.remove(taskId);
-                tasks.remove(task);
+                // Готовые задачи пропускаются при выборке, ждущие снимаются с колеса за O(1)
+                if (timerWheel != null) {
+                    timerWheel.cancel(task);
+                }
                 cancelledTasks.incrementAndGet();
                 return true;
             }
@@ -430,19 +1038,25 @@ public class TaskScheduler {
         }
         
         public int cancelAllTasks() {
-            int count = taskMap.size();
+            int count = 0;
             for (ScheduledTask task : taskMap.values()) {
-                task.setCancelled(true);
+                if (cancelTask(task.getTaskId())) {
+                    count++;
+                }
+            }
+            synchronized (readyTasks) {
+                readyTasks.clear();
             }
-            taskMap.clear();
-            tasks.clear();
-            cancelledTasks.addAndGet(count);
             return count;
         }
         
+        public int getPendingTaskCount() {
+            return taskMap.size();
+        }
+        
         public String getStatistics() {
-            return String.format("Bot %d Tasks: Queue=%d, Completed=%d, Cancelled=%d",
-                    bot.getBotId(), tasks.size(), completedTasks.get(), cancelledTasks.get());
+            return String.format("Bot %d Tasks: Queue=%d, Completed=%d, Failed=%d, Cancelled=%d",
+                    bot.getBotId(), taskMap.size(), completedTasks.get(), failedTasks.get(), cancelledTasks.get());
         }
     }
 }
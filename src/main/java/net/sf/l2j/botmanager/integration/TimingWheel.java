@@ -0,0 +1,287 @@
+package net.sf.l2j.botmanager.integration;
+
+import java.util.function.Consumer;
+
+/**
+ * Иерархическое хешированное колесо таймеров.
+ *
+ * Нижний уровень делит время на тики длиной {@code tickMs} и содержит
+ * {@code wheelSize} ячеек; каждый следующий уровень покрывает в
+ * {@code wheelSize} раз больший интервал и создается по мере необходимости.
+ * Когда время доходит до границы ячейки верхнего уровня, ее записи
+ * перераспределяются на нижние уровни (каскад), поэтому добавление и отмена
+ * выполняются за O(1), а продвижение на один тик обрабатывает только одну
+ * ячейку на уровень.
+ *
+ * Записи хранятся в интрузивных двусвязных списках ячеек, поэтому сам
+ * элемент является узлом списка и не требует дополнительных объектов.
+ *
+ * @param <E> тип записи
+ * @author AI Bot System
+ * @version 1.0
+ */
+public class TimingWheel<E extends TimingWheel.Entry> {
+
+    /** Максимальное количество уровней колеса */
+    private static final int MAX_LEVELS = 8;
+
+    /**
+     * Запись колеса таймеров (узел списка ячейки).
+     */
+    public static abstract class Entry {
+        private long deadline;
+        private Entry prev;
+        private Entry next;
+        private Bucket bucket;
+
+        /**
+         * Получение времени срабатывания.
+         *
+         * @return время срабатывания в миллисекундах
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Проверка, находится ли запись в колесе.
+         *
+         * @return true если запись ожидает срабатывания
+         */
+        public boolean isScheduled() {
+            return bucket != null;
+        }
+    }
+
+    /**
+     * Ячейка колеса - кольцевой список записей с головным узлом.
+     */
+    private static final class Bucket extends Entry {
+        Bucket() {
+            clear();
+        }
+
+        void link(Entry entry) {
+            Entry tail = ((Entry) this).prev;
+            entry.prev = tail;
+            entry.next = this;
+            tail.next = entry;
+            ((Entry) this).prev = entry;
+            entry.bucket = this;
+        }
+
+        static void unlink(Entry entry) {
+            entry.prev.next = entry.next;
+            entry.next.prev = entry.prev;
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+
+        boolean isEmpty() {
+            return ((Entry) this).next == this;
+        }
+
+        void clear() {
+            ((Entry) this).prev = this;
+            ((Entry) this).next = this;
+        }
+    }
+
+    private final long tickMs;
+    private final int wheelBits;
+    private final int mask;
+    private final Bucket[][] levels;
+    private int levelCount;
+    private long currentTime;
+    private int size;
+
+    /**
+     * Конструктор.
+     *
+     * @param tickMs длительность тика в миллисекундах
+     * @param wheelSize количество ячеек на уровне (степень двойки)
+     * @param startTime начальное время
+     */
+    public TimingWheel(long tickMs, int wheelSize, long startTime) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+        this.tickMs = tickMs;
+        this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = new Bucket[MAX_LEVELS][];
+        this.currentTime = startTime - (startTime % tickMs);
+        addLevel();
+    }
+
+    /**
+     * Добавление записи.
+     *
+     * @param entry запись
+     * @param deadline время срабатывания
+     * @return false если время уже наступило и запись нужно выполнить сразу
+     */
+    public synchronized boolean add(E entry, long deadline) {
+        Entry node = entry;
+        if (node.bucket != null) {
+            throw new IllegalStateException("Entry is already scheduled");
+        }
+        node.deadline = deadline;
+        return place(node);
+    }
+
+    /**
+     * Отмена записи.
+     *
+     * @param entry запись
+     * @return true если запись была в колесе
+     */
+    public synchronized boolean cancel(E entry) {
+        Entry node = entry;
+        if (node.bucket == null) {
+            return false;
+        }
+        Bucket.unlink(node);
+        size--;
+        return true;
+    }
+
+    /**
+     * Продвижение колеса до указанного времени.
+     *
+     * @param now текущее время
+     * @param expired получатель сработавших записей
+     * @return количество сработавших записей
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized int advance(long now, Consumer<? super E> expired) {
+        int fired = 0;
+
+        // Пустое колесо не нужно прокручивать по тикам
+        if (size == 0) {
+            if (now >= currentTime + tickMs) {
+                currentTime = now - (now % tickMs);
+            }
+            return 0;
+        }
+
+        while (currentTime + tickMs <= now) {
+            // Ячейка завершившегося тика: все ее записи истекли
+            Bucket bucket = levels[0][(int) ((currentTime / tickMs) & mask)];
+            currentTime += tickMs;
+            while (!bucket.isEmpty()) {
+                Entry entry = ((Entry) bucket).next;
+                Bucket.unlink(entry);
+                size--;
+                expired.accept((E) entry);
+                fired++;
+            }
+
+            // Каскад: на границе интервала верхнего уровня переносим его ячейку вниз
+            long levelTick = tickMs;
+            for (int level = 1; level < levelCount; level++) {
+                levelTick <<= wheelBits;
+                if (currentTime % levelTick != 0) {
+                    break;
+                }
+                Bucket upper = levels[level][(int) ((currentTime / levelTick) & mask)];
+                while (!upper.isEmpty()) {
+                    Entry entry = ((Entry) upper).next;
+                    Bucket.unlink(entry);
+                    size--;
+                    if (!place(entry)) {
+                        expired.accept((E) entry);
+                        fired++;
+                    }
+                }
+            }
+
+            if (size == 0) {
+                currentTime = now - (now % tickMs);
+                break;
+            }
+        }
+
+        return fired;
+    }
+
+    /**
+     * Получение количества ожидающих записей.
+     *
+     * @return количество записей
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Получение текущего времени колеса (начало текущего тика).
+     *
+     * @return время в миллисекундах
+     */
+    public synchronized long getCurrentTime() {
+        return currentTime;
+    }
+
+    /**
+     * Получение длительности тика.
+     *
+     * @return тик в миллисекундах
+     */
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    /**
+     * Удаление всех записей.
+     */
+    public synchronized void clear() {
+        for (int level = 0; level < levelCount; level++) {
+            for (Bucket bucket : levels[level]) {
+                while (!bucket.isEmpty()) {
+                    Bucket.unlink(((Entry) bucket).next);
+                }
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * Размещение записи на минимальном уровне, чей диапазон ее вмещает.
+     */
+    private boolean place(Entry entry) {
+        long deadline = entry.deadline;
+        if (deadline < currentTime) {
+            // Время срабатывания уже прошло
+            return false;
+        }
+
+        long levelTick = tickMs;
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            long distance = deadline / levelTick - currentTime / levelTick;
+            if (distance <= mask || level == MAX_LEVELS - 1) {
+                while (level >= levelCount) {
+                    addLevel();
+                }
+                long slot = Math.min(distance, mask) + currentTime / levelTick;
+                levels[level][(int) (slot & mask)].link(entry);
+                size++;
+                return true;
+            }
+            levelTick <<= wheelBits;
+        }
+        return false;
+    }
+
+    private void addLevel() {
+        Bucket[] buckets = new Bucket[mask + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+        levels[levelCount++] = buckets;
+    }
+}
@@ -0,0 +1,120 @@
+package net.sf.l2j.botmanager.integration;
+
+import net.sf.l2j.botmanager.actions.ActionType;
+import net.sf.l2j.botmanager.behaviors.BehaviorType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Таблица интернированных причин переходов состояний.
+ *
+ * Каждой причине назначается компактный числовой идентификатор, который
+ * хранится в упакованной записи истории вместо строки. Причины вида
+ * "Behavior: X" и "Action: Y" регистрируются заранее для всех типов,
+ * поэтому переходы из поведений и действий не строят строк.
+ *
+ * @author AI Bot System
+ * @version 1.0
+ */
+public final class TransitionReasons {
+
+    /** Максимальное количество различных причин (ограничено разрядностью записи) */
+    public static final int MAX_REASONS = 4096;
+
+    /** Идентификатор причины для пустого значения и переполнения таблицы */
+    public static final int UNKNOWN = 0;
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final String[] NAMES = new String[MAX_REASONS];
+    private static int size;
+
+    private static final int[] BEHAVIOR_REASONS = new int[BehaviorType.values().length];
+    private static final int[] ACTION_REASONS = new int[ActionType.values().length];
+
+    static {
+        NAMES[UNKNOWN] = "Unknown";
+        IDS.put(NAMES[UNKNOWN], UNKNOWN);
+        size = 1;
+        for (BehaviorType type : BehaviorType.values()) {
+            BEHAVIOR_REASONS[type.ordinal()] = intern("Behavior: " + type);
+        }
+        for (ActionType type : ActionType.values()) {
+            ACTION_REASONS[type.ordinal()] = intern("Action: " + type);
+        }
+    }
+
+    private TransitionReasons() {
+    }
+
+    /**
+     * Получает идентификатор причины, регистрируя ее при первом обращении.
+     * При переполнении таблицы возвращается {@link #UNKNOWN}.
+     *
+     * @param reason причина
+     * @return идентификатор причины
+     */
+    public static int intern(String reason) {
+        if (reason == null) {
+            return UNKNOWN;
+        }
+        Integer id = IDS.get(reason);
+        if (id != null) {
+            return id;
+        }
+        synchronized (TransitionReasons.class) {
+            id = IDS.get(reason);
+            if (id != null) {
+                return id;
+            }
+            if (size >= MAX_REASONS) {
+                return UNKNOWN;
+            }
+            int newId = size;
+            NAMES[newId] = reason;
+            size = newId + 1;
+            IDS.put(reason, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Получает причину по идентификатору.
+     *
+     * @param id идентификатор причины
+     * @return причина
+     */
+    public static String name(int id) {
+        if (id <= 0 || id >= MAX_REASONS) {
+            return NAMES[UNKNOWN];
+        }
+        String name = NAMES[id];
+        if (name == null) {
+            // Запись идентификатора видна раньше имени только при гонке с регистрацией
+            synchronized (TransitionReasons.class) {
+                name = NAMES[id];
+            }
+        }
+        return name != null ? name : NAMES[UNKNOWN];
+    }
+
+    /**
+     * Получает идентификатор причины для поведения.
+     *
+     * @param type тип поведения
+     * @return идентификатор причины
+     */
+    public static int forBehavior(BehaviorType type) {
+        return type != null ? BEHAVIOR_REASONS[type.ordinal()] : UNKNOWN;
+    }
+
+    /**
+     * Получает идентификатор причины для действия.
+     *
+     * @param type тип действия
+     * @return идентификатор причины
+     */
+    public static int forAction(ActionType type) {
+        return type != null ? ACTION_REASONS[type.ordinal()] : UNKNOWN;
+    }
+}
@@ -2,28 +2,31 @@ package net.sf.l2j.botmanager.learning;
 
 import net.sf.l2j.botmanager.actions.ActionType;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Статистика обратной связи для конкретного типа действия.
+ * 
+ * Счетчики распределены по ячейкам ({@link LongAdder}), среднее время
+ * вычисляется при чтении, а детали хранятся кодами в кольце
+ * {@link FeedbackDetails}, поэтому запись выполнения не блокируется
+ * и не выделяет память.
  */
 public class ActionFeedback {
     private final ActionType actionType;
-    private final AtomicLong totalExecutions = new AtomicLong(0);
-    private final AtomicLong successfulExecutions = new AtomicLong(0);
-    private final AtomicLong failedExecutions = new AtomicLong(0);
-    private final AtomicLong totalExecutionTime = new AtomicLong(0);
+    private final LongAdder successfulExecutions = new LongAdder();
+    private final LongAdder failedExecutions = new LongAdder();
+    private final LongAdder totalExecutionTime = new LongAdder();
     private final AtomicLong minExecutionTime = new AtomicLong(Long.MAX_VALUE);
     private final AtomicLong maxExecutionTime = new AtomicLong(0);
-    private final AtomicReference<Double> averageExecutionTime = new AtomicReference<>(0.0);
     
     // Детали выполнения
-    private final List<String> recentDetails = new CopyOnWriteArrayList<>();
-    private final int maxDetails = 100;
+    private final FeedbackDetails recentDetails = new FeedbackDetails();
     
+    /**
+     * @param actionType тип действия (null - сводная статистика всех действий бота)
+     */
     public ActionFeedback(ActionType actionType) {
         this.actionType = actionType;
     }
@@ -32,21 +35,25 @@ public class ActionFeedback {
      * Записать выполнение действия.
      */
     public void recordExecution(boolean success, long executionTime, String details) {
-        totalExecutions.incrementAndGet();
-        
+        recordExecution(success, executionTime, FeedbackDetails.codeOf(details));
+    }
+    
+    /**
+     * Записать выполнение действия с кодом деталей.
+     */
+    void recordExecution(boolean success, long executionTime, int detailsCode) {
         if (success) {
-            successfulExecutions.incrementAndGet();
+            successfulExecutions.increment();
         } else {
-            failedExecutions.incrementAndGet();
+            failedExecutions.increment();
         }
         
         // Обновление времени выполнения
-        totalExecutionTime.addAndGet(executionTime);
+        totalExecutionTime.add(executionTime);
         updateMinMaxTime(executionTime);
-        updateAverageTime();
         
         // Добавление деталей
-        addDetails(details);
+        recentDetails.record(detailsCode, success, executionTime);
     }
     
     /**
@@ -64,54 +71,32 @@ public class ActionFeedback {
         }
     }
     
-    /**
-     * Обновить среднее время выполнения.
-     */
-    private void updateAverageTime() {
-        long total = totalExecutions.get();
-        if (total > 0) {
-            double average = (double) totalExecutionTime.get() / total;
-            averageExecutionTime.set(average);
-        }
-    }
-    
-    /**
-     * Добавить детали выполнения.
-     */
-    private void addDetails(String details) {
-        if (details != null && !details.isEmpty()) {
-            recentDetails.add(details);
-            
-            // Ограничение количества деталей
-            while (recentDetails.size() > maxDetails) {
-                recentDetails.remove(0);
-            }
-        }
-    }
-    
     /**
      * Получить коэффициент успешности.
      */
     public double getSuccessRate() {
-        long total = totalExecutions.get();
+        long successful = successfulExecutions.sum();
+        long total = successful + failedExecutions.sum();
         if (total == 0) return 0.0;
-        return (double) successfulExecutions.get() / total * 100.0;
+        return (double) successful / total * 100.0;
     }
     
     /**
      * Получить коэффициент неудач.
      */
     public double getFailureRate() {
-        long total = totalExecutions.get();
+        long failed = failedExecutions.sum();
+        long total = successfulExecutions.sum() + failed;
         if (total == 0) return 0.0;
-        return (double) failedExecutions.get() / total * 100.0;
+        return (double) failed / total * 100.0;
     }
     
     /**
      * Получить среднее время выполнения.
      */
     public double getAverageExecutionTime() {
-        return averageExecutionTime.get();
+        long total = getTotalExecutions();
+        return total > 0 ? (double) totalExecutionTime.sum() / total : 0.0;
     }
     
     /**
@@ -133,35 +118,35 @@ public class ActionFeedback {
      * Получить общее время выполнения.
      */
     public long getTotalExecutionTime() {
-        return totalExecutionTime.get();
+        return totalExecutionTime.sum();
     }
     
     /**
      * Получить количество выполнений.
      */
     public long getTotalExecutions() {
-        return totalExecutions.get();
+        return successfulExecutions.sum() + failedExecutions.sum();
     }
     
     /**
      * Получить количество успешных выполнений.
      */
     public long getSuccessfulExecutions() {
-        return successfulExecutions.get();
+        return successfulExecutions.sum();
     }
     
     /**
      * Получить количество неудачных выполнений.
      */
     public long getFailedExecutions() {
-        return failedExecutions.get();
+        return failedExecutions.sum();
     }
     
     /**
      * Получить недавние детали.
      */
     public List<String> getRecentDetails() {
-        return new ArrayList<>(recentDetails);
+        return recentDetails.recentDetails();
     }
     
     /**
@@ -170,8 +155,8 @@ public class ActionFeedback {
     public String getStats() {
         return String.format(
             "Action: %s | Executions: %d | Success: %.2f%% | Avg Time: %.2fms | Min: %dms | Max: %dms",
-            actionType,
-            totalExecutions.get(),
+            actionType != null ? actionType : "ALL",
+            getTotalExecutions(),
             getSuccessRate(),
             getAverageExecutionTime(),
             getMinExecutionTime(),
@@ -184,10 +169,10 @@ public class ActionFeedback {
      */
     public String getDetailedStats() {
         StringBuilder stats = new StringBuilder();
-        stats.append("=== Action Feedback: ").append(actionType).append(" ===\n");
-        stats.append("Total Executions: ").append(totalExecutions.get()).append("\n");
-        stats.append("Successful: ").append(successfulExecutions.get()).append("\n");
-        stats.append("Failed: ").append(failedExecutions.get()).append("\n");
+        stats.append("=== Action Feedback: ").append(actionType != null ? actionType : "ALL").append(" ===\n");
+        stats.append("Total Executions: ").append(getTotalExecutions()).append("\n");
+        stats.append("Successful: ").append(getSuccessfulExecutions()).append("\n");
+        stats.append("Failed: ").append(getFailedExecutions()).append("\n");
         stats.append("Success Rate: ").append(String.format("%.2f", getSuccessRate())).append("%\n");
         stats.append("Failure Rate: ").append(String.format("%.2f", getFailureRate())).append("%\n");
         stats.append("Average Time: ").append(String.format("%.2f", getAverageExecutionTime())).append("ms\n");
@@ -195,9 +180,10 @@ public class ActionFeedback {
         stats.append("Max Time: ").append(getMaxExecutionTime()).append("ms\n");
         stats.append("Total Time: ").append(getTotalExecutionTime()).append("ms\n");
         
-        if (!recentDetails.isEmpty()) {
+        List<String> details = getRecentDetails();
+        if (!details.isEmpty()) {
             stats.append("Recent Details:\n");
-            for (String detail : recentDetails) {
+            for (String detail : details) {
                 stats.append("  - ").append(detail).append("\n");
             }
         }
@@ -209,13 +195,11 @@ public class ActionFeedback {
      * Сбросить статистику.
      */
     public void reset() {
-        totalExecutions.set(0);
-        successfulExecutions.set(0);
-        failedExecutions.set(0);
-        totalExecutionTime.set(0);
+        successfulExecutions.reset();
+        failedExecutions.reset();
+        totalExecutionTime.reset();
         minExecutionTime.set(Long.MAX_VALUE);
         maxExecutionTime.set(0);
-        averageExecutionTime.set(0.0);
         recentDetails.clear();
     }
 }
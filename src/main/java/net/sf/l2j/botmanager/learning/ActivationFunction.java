@@ -29,6 +29,22 @@ public abstract class ActivationFunction {
      */
     public abstract double derivative(double x);
     
+    /**
+     * Применяет функцию активации к массиву: y[i] = activate(x[i])
+     * 
+     * Распространенные функции переопределяют метод векторными ядрами
+     * {@link TensorOps}.
+     * 
+     * @param x входные значения
+     * @param y выходные значения (может совпадать с x)
+     * @param length количество элементов
+     */
+    public void activate(double[] x, double[] y, int length) {
+        for (int i = 0; i < length; i++) {
+            y[i] = activate(x[i]);
+        }
+    }
+    
     /**
      * Возвращает название функции активации
      * 
@@ -74,6 +90,11 @@ public abstract class ActivationFunction {
             return 1.0 / (1.0 + Math.exp(-x));
         }
         
+        @Override
+        public void activate(double[] x, double[] y, int length) {
+            TensorOps.sigmoid(x, y, 0, length);
+        }
+        
         @Override
         public double derivative(double x) {
             double s = activate(x);
@@ -98,6 +119,11 @@ public abstract class ActivationFunction {
             return Math.tanh(x);
         }
         
+        @Override
+        public void activate(double[] x, double[] y, int length) {
+            TensorOps.tanh(x, y, 0, length);
+        }
+        
         @Override
         public double derivative(double x) {
             double t = activate(x);
@@ -119,6 +145,11 @@ public abstract class ActivationFunction {
             return Math.max(0.0, x);
         }
         
+        @Override
+        public void activate(double[] x, double[] y, int length) {
+            TensorOps.relu(x, y, 0, length);
+        }
+        
         @Override
         public double derivative(double x) {
             return x > 0 ? 1.0 : 0.0;
@@ -3,6 +3,7 @@ package net.sf.l2j.botmanager.learning;
 import net.sf.l2j.botmanager.utils.Logger;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Bagging Ensemble - ансамбль моделей с бэггингом
@@ -11,6 +12,13 @@ import java.util.Random;
  * моделей на разных подвыборках данных, что помогает уменьшить
  * переобучение и повысить обобщающую способность.
  * 
+ * Каждая модель получает собственный поток случайных чисел, выделенный из
+ * общего генератора до начала обучения, поэтому подвыборки зависят только
+ * от зерна ({@link #setSeed(long)}) и не зависят от того, обучаются ли
+ * модели параллельно. В каскадном режиме усредненное предсказание дает тот
+ * же класс с наибольшим выходом, что и полное, если выходы моделей лежат
+ * в [0, 1].
+ * 
  * @author ni-okr
  * @version 3.4
  */
@@ -100,8 +108,10 @@ public class BaggingEnsemble extends EnsembleModel {
         }
         
         try {
-            // Получаем предсказания от всех моделей
-            double[][] predictions = getAllPredictions(input);
+            // Получаем предсказания от всех моделей или каскадом до определенного исхода
+            double[][] predictions = isCascadeEnabled()
+                ? getCascadePredictions(input, outputClasses, false, null)
+                : getAllPredictions(input);
             
             // Усредняем предсказания
             double[] result = averagePredictions(predictions);
@@ -140,16 +150,12 @@ public class BaggingEnsemble extends EnsembleModel {
         }
         
         try {
-            // Обучаем каждую модель на своей подвыборке
-            for (int i = 0; i < modelCount; i++) {
-                Object model = models.get(i);
-                
-                // Создаем подвыборку для текущей модели
-                BootstrapSample sample = createBootstrapSample(inputs, targets);
-                
-                // Обучаем модель на подвыборке
-                trainModelOnSample(model, sample.inputs, sample.targets, epochs);
-            }
+            // Обучаем каждую модель на своей подвыборке со своим потоком случайных чисел
+            SplittableRandom[] streams = createMemberStreams();
+            forEachMember(i -> {
+                BootstrapSample sample = createBootstrapSample(inputs, targets, streams[i]);
+                trainModelOnSample(models.get(i), sample.inputs, sample.targets, epochs);
+            });
             
             _log.info("BaggingEnsemble training completed for bot " + botId);
             return true;
@@ -162,21 +168,39 @@ public class BaggingEnsemble extends EnsembleModel {
     
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
+    /**
+     * Создает потоки случайных чисел моделей
+     * 
+     * Потоки выделяются последовательно из общего генератора, поэтому
+     * поток каждой модели определяется зерном и индексом модели.
+     * 
+     * @return поток случайных чисел для каждой модели
+     */
+    SplittableRandom[] createMemberStreams() {
+        SplittableRandom root = new SplittableRandom(random.nextLong());
+        SplittableRandom[] streams = new SplittableRandom[modelCount];
+        for (int i = 0; i < modelCount; i++) {
+            streams[i] = root.split();
+        }
+        return streams;
+    }
+    
     /**
      * Создает бутстрап-подвыборку
      * 
      * @param inputs входные данные
      * @param targets целевые значения
+     * @param stream поток случайных чисел модели
      * @return бутстрап-подвыборка
      */
-    private BootstrapSample createBootstrapSample(double[][] inputs, double[][] targets) {
+    BootstrapSample createBootstrapSample(double[][] inputs, double[][] targets, SplittableRandom stream) {
         int sampleSizeInt = (int) (inputs.length * sampleSize);
         double[][] sampleInputs = new double[sampleSizeInt][];
         double[][] sampleTargets = new double[sampleSizeInt][];
         
         // Создаем подвыборку с возвращением
         for (int i = 0; i < sampleSizeInt; i++) {
-            int randomIndex = random.nextInt(inputs.length);
+            int randomIndex = stream.nextInt(inputs.length);
             sampleInputs[i] = inputs[randomIndex].clone();
             sampleTargets[i] = targets[randomIndex].clone();
         }
@@ -355,6 +379,15 @@ public class BaggingEnsemble extends EnsembleModel {
         }
     }
     
+    /**
+     * Устанавливает зерно генератора подвыборок
+     * 
+     * @param seed зерно
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+    
     /**
      * Возвращает количество выходных классов
      * 
@@ -380,7 +413,7 @@ public class BaggingEnsemble extends EnsembleModel {
     /**
      * Класс для хранения бутстрап-подвыборки
      */
-    private static class BootstrapSample {
+    static class BootstrapSample {
         final double[][] inputs;
         final double[][] targets;
         
@@ -2,32 +2,32 @@ package net.sf.l2j.botmanager.learning;
 
 import net.sf.l2j.botmanager.behaviors.BehaviorType;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Статистика обратной связи для конкретного типа поведения.
+ * 
+ * Устроена как {@link ActionFeedback}: распределенные счетчики,
+ * средние значения при чтении и кольцо кодов деталей.
  */
 public class BehaviorFeedback {
     private final BehaviorType behaviorType;
-    private final AtomicLong totalExecutions = new AtomicLong(0);
-    private final AtomicLong successfulExecutions = new AtomicLong(0);
-    private final AtomicLong failedExecutions = new AtomicLong(0);
-    private final AtomicLong totalExecutionTime = new AtomicLong(0);
+    private final LongAdder successfulExecutions = new LongAdder();
+    private final LongAdder failedExecutions = new LongAdder();
+    private final LongAdder totalExecutionTime = new LongAdder();
     private final AtomicLong minExecutionTime = new AtomicLong(Long.MAX_VALUE);
     private final AtomicLong maxExecutionTime = new AtomicLong(0);
-    private final AtomicReference<Double> averageExecutionTime = new AtomicReference<>(0.0);
-    private final AtomicLong totalActionsPerformed = new AtomicLong(0);
+    private final LongAdder totalActionsPerformed = new LongAdder();
     private final AtomicLong minActionsPerformed = new AtomicLong(Long.MAX_VALUE);
     private final AtomicLong maxActionsPerformed = new AtomicLong(0);
-    private final AtomicReference<Double> averageActionsPerformed = new AtomicReference<>(0.0);
     
     // Детали выполнения
-    private final List<String> recentDetails = new CopyOnWriteArrayList<>();
-    private final int maxDetails = 100;
+    private final FeedbackDetails recentDetails = new FeedbackDetails();
     
+    /**
+     * @param behaviorType тип поведения (null - сводная статистика всех поведений бота)
+     */
     public BehaviorFeedback(BehaviorType behaviorType) {
         this.behaviorType = behaviorType;
     }
@@ -36,26 +36,29 @@ public class BehaviorFeedback {
      * Записать выполнение поведения.
      */
     public void recordExecution(boolean success, long executionTime, int actionsPerformed, String details) {
-        totalExecutions.incrementAndGet();
-        
+        recordExecution(success, executionTime, actionsPerformed, FeedbackDetails.codeOf(details));
+    }
+    
+    /**
+     * Записать выполнение поведения с кодом деталей.
+     */
+    void recordExecution(boolean success, long executionTime, int actionsPerformed, int detailsCode) {
         if (success) {
-            successfulExecutions.incrementAndGet();
+            successfulExecutions.increment();
         } else {
-            failedExecutions.incrementAndGet();
+            failedExecutions.increment();
         }
         
         // Обновление времени выполнения
-        totalExecutionTime.addAndGet(executionTime);
+        totalExecutionTime.add(executionTime);
         updateMinMaxTime(executionTime);
-        updateAverageTime();
         
         // Обновление количества действий
-        totalActionsPerformed.addAndGet(actionsPerformed);
+        totalActionsPerformed.add(actionsPerformed);
         updateMinMaxActions(actionsPerformed);
-        updateAverageActions();
         
         // Добавление деталей
-        addDetails(details);
+        recentDetails.record(detailsCode, success, executionTime);
     }
     
     /**
@@ -73,17 +76,6 @@ public class BehaviorFeedback {
         }
     }
     
-    /**
-     * Обновить среднее время выполнения.
-     */
-    private void updateAverageTime() {
-        long total = totalExecutions.get();
-        if (total > 0) {
-            double average = (double) totalExecutionTime.get() / total;
-            averageExecutionTime.set(average);
-        }
-    }
-    
     /**
      * Обновить минимальное и максимальное количество действий.
      */
@@ -99,54 +91,32 @@ public class BehaviorFeedback {
         }
     }
     
-    /**
-     * Обновить среднее количество действий.
-     */
-    private void updateAverageActions() {
-        long total = totalExecutions.get();
-        if (total > 0) {
-            double average = (double) totalActionsPerformed.get() / total;
-            averageActionsPerformed.set(average);
-        }
-    }
-    
-    /**
-     * Добавить детали выполнения.
-     */
-    private void addDetails(String details) {
-        if (details != null && !details.isEmpty()) {
-            recentDetails.add(details);
-            
-            // Ограничение количества деталей
-            while (recentDetails.size() > maxDetails) {
-                recentDetails.remove(0);
-            }
-        }
-    }
-    
     /**
      * Получить коэффициент успешности.
      */
     public double getSuccessRate() {
-        long total = totalExecutions.get();
+        long successful = successfulExecutions.sum();
+        long total = successful + failedExecutions.sum();
         if (total == 0) return 0.0;
-        return (double) successfulExecutions.get() / total * 100.0;
+        return (double) successful / total * 100.0;
     }
     
     /**
      * Получить коэффициент неудач.
      */
     public double getFailureRate() {
-        long total = totalExecutions.get();
+        long failed = failedExecutions.sum();
+        long total = successfulExecutions.sum() + failed;
         if (total == 0) return 0.0;
-        return (double) failedExecutions.get() / total * 100.0;
+        return (double) failed / total * 100.0;
     }
     
     /**
      * Получить среднее время выполнения.
      */
     public double getAverageExecutionTime() {
-        return averageExecutionTime.get();
+        long total = getTotalExecutions();
+        return total > 0 ? (double) totalExecutionTime.sum() / total : 0.0;
     }
     
     /**
@@ -168,7 +138,8 @@ public class BehaviorFeedback {
      * Получить среднее количество действий.
      */
     public double getAverageActionsPerformed() {
-        return averageActionsPerformed.get();
+        long total = getTotalExecutions();
+        return total > 0 ? (double) totalActionsPerformed.sum() / total : 0.0;
     }
     
     /**
@@ -190,42 +161,42 @@ public class BehaviorFeedback {
      * Получить общее время выполнения.
      */
     public long getTotalExecutionTime() {
-        return totalExecutionTime.get();
+        return totalExecutionTime.sum();
     }
     
     /**
      * Получить общее количество действий.
      */
     public long getTotalActionsPerformed() {
-        return totalActionsPerformed.get();
+        return totalActionsPerformed.sum();
     }
     
     /**
      * Получить количество выполнений.
      */
     public long getTotalExecutions() {
-        return totalExecutions.get();
+        return successfulExecutions.sum() + failedExecutions.sum();
     }
     
     /**
      * Получить количество успешных выполнений.
      */
     public long getSuccessfulExecutions() {
-        return successfulExecutions.get();
+        return successfulExecutions.sum();
     }
     
     /**
      * Получить количество неудачных выполнений.
      */
     public long getFailedExecutions() {
-        return failedExecutions.get();
+        return failedExecutions.sum();
     }
     
     /**
      * Получить недавние детали.
      */
     public List<String> getRecentDetails() {
-        return new ArrayList<>(recentDetails);
+        return recentDetails.recentDetails();
     }
     
     /**
@@ -234,8 +205,8 @@ public class BehaviorFeedback {
     public String getStats() {
         return String.format(
             "Behavior: %s | Executions: %d | Success: %.2f%% | Avg Time: %.2fms | Avg Actions: %.2f",
-            behaviorType,
-            totalExecutions.get(),
+            behaviorType != null ? behaviorType : "ALL",
+            getTotalExecutions(),
             getSuccessRate(),
             getAverageExecutionTime(),
             getAverageActionsPerformed()
@@ -247,10 +218,10 @@ public class BehaviorFeedback {
      */
     public String getDetailedStats() {
         StringBuilder stats = new StringBuilder();
-        stats.append("=== Behavior Feedback: ").append(behaviorType).append(" ===\n");
-        stats.append("Total Executions: ").append(totalExecutions.get()).append("\n");
-        stats.append("Successful: ").append(successfulExecutions.get()).append("\n");
-        stats.append("Failed: ").append(failedExecutions.get()).append("\n");
+        stats.append("=== Behavior Feedback: ").append(behaviorType != null ? behaviorType : "ALL").append(" ===\n");
+        stats.append("Total Executions: ").append(getTotalExecutions()).append("\n");
+        stats.append("Successful: ").append(getSuccessfulExecutions()).append("\n");
+        stats.append("Failed: ").append(getFailedExecutions()).append("\n");
         stats.append("Success Rate: ").append(String.format("%.2f", getSuccessRate())).append("%\n");
         stats.append("Failure Rate: ").append(String.format("%.2f", getFailureRate())).append("%\n");
         stats.append("Average Time: ").append(String.format("%.2f", getAverageExecutionTime())).append("ms\n");
@@ -262,9 +233,10 @@ public class BehaviorFeedback {
         stats.append("Max Actions: ").append(getMaxActionsPerformed()).append("\n");
         stats.append("Total Actions: ").append(getTotalActionsPerformed()).append("\n");
         
-        if (!recentDetails.isEmpty()) {
+        List<String> details = getRecentDetails();
+        if (!details.isEmpty()) {
             stats.append("Recent Details:\n");
-            for (String detail : recentDetails) {
+            for (String detail : details) {
                 stats.append("  - ").append(detail).append("\n");
             }
         }
@@ -276,17 +248,14 @@ public class BehaviorFeedback {
      * Сбросить статистику.
      */
     public void reset() {
-        totalExecutions.set(0);
-        successfulExecutions.set(0);
-        failedExecutions.set(0);
-        totalExecutionTime.set(0);
+        successfulExecutions.reset();
+        failedExecutions.reset();
+        totalExecutionTime.reset();
         minExecutionTime.set(Long.MAX_VALUE);
         maxExecutionTime.set(0);
-        averageExecutionTime.set(0.0);
-        totalActionsPerformed.set(0);
+        totalActionsPerformed.reset();
         minActionsPerformed.set(Long.MAX_VALUE);
         maxActionsPerformed.set(0);
-        averageActionsPerformed.set(0.0);
         recentDetails.clear();
     }
 }
@@ -2,7 +2,10 @@ package net.sf.l2j.botmanager.learning;
 
 import net.sf.l2j.botmanager.utils.Logger;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Сверточный слой (Conv2D) для обработки 2D изображений
@@ -12,6 +15,14 @@ import java.util.Random;
  * извлекают локальные особенности из изображений, такие как края,
  * текстуры и более сложные паттерны.
  * 
+ * Свертка выполняется через развертку окон (im2col): окна входа
+ * раскладываются в строки матрицы, после чего прямой проход и оба
+ * обратных прохода сводятся к блочным матричным умножениям
+ * {@link TensorOps}. Входы, выходы и градиенты хранятся в плоских
+ * буферах с раскладкой NHWC (каналы последнего измерения подряд), буферы
+ * переиспользуются между вызовами. Позиции выхода могут делиться между
+ * задачами {@link ForkJoinPool} ({@link #setParallelism(int)}).
+ * 
  * @author ni-okr
  * @version 3.2
  */
@@ -39,23 +50,44 @@ public class Conv2DLayer extends NetworkLayer {
     /** Размеры выхода: [высота, ширина, каналы] */
     private int[] outputShape;
     
-    /** Веса фильтров: [filters, kernelHeight, kernelWidth, inputChannels] */
-    private double[][][][] weights;
+    /**
+     * Веса фильтров: плоская матрица [filters * patchSize], строка фильтра
+     * хранит ядро в порядке [kernelHeight][kernelWidth][inputChannels]
+     */
+    private double[] weights;
     
     /** Смещения (bias) для каждого фильтра */
     private double[] biases;
     
-    /** Градиенты весов для обратного распространения */
-    private double[][][][] weightGradients;
+    /** Градиенты весов для обратного распространения (раскладка весов) */
+    private double[] weightGradients;
     
     /** Градиенты смещений */
     private double[] biasGradients;
     
-    /** Кэш для входных данных (для обратного распространения) */
-    private double[][][] inputCache;
+    /** Кэш входных данных в раскладке NHWC (для обратного распространения) */
+    private double[] inputCache;
+    
+    /** Признак того, что прямой проход был выполнен */
+    private boolean hasInput;
+    
+    /** Развернутые окна входа (im2col): [outputPositions * patchSize] */
+    private double[] columns;
     
-    /** Кэш для выходных данных */
-    private double[][][] outputCache;
+    /** Выход свертки в раскладке NHWC: [outputPositions * filters] */
+    private double[] output;
+    
+    /** Градиенты окон входа: [outputPositions * patchSize] */
+    private double[] columnGradients;
+    
+    /** Градиент относительно входа в раскладке NHWC */
+    private double[] inputGradient;
+    
+    /** Частичные градиенты весов параллельных частей (часть 0 пишет в weightGradients) */
+    private double[][] partialGradients;
+    
+    /** Количество параллельных частей свертки (1 - последовательное выполнение) */
+    private int parallelism = 1;
     
     /** Генератор случайных чисел для инициализации весов */
     private final Random random;
@@ -80,6 +112,9 @@ public class Conv2DLayer extends NetworkLayer {
     /** Максимальный шаг */
     private static final int MAX_STRIDE = 5;
     
+    /** Минимальное количество позиций выхода на одну параллельную часть */
+    private static final int MIN_POSITIONS_PER_TASK = 64;
+    
     // ==================== КОНСТРУКТОРЫ ====================
     
     /**
@@ -153,8 +188,9 @@ public class Conv2DLayer extends NetworkLayer {
         initializeWeights();
         initializeBiases();
         
-        // Инициализируем градиенты
+        // Инициализируем градиенты и рабочие буферы
         initializeGradients();
+        initializeBuffers();
         
         _log.info("Conv2DLayer initialized: input=" + java.util.Arrays.toString(inputShape) + 
                  ", output=" + java.util.Arrays.toString(outputShape));
@@ -163,15 +199,25 @@ public class Conv2DLayer extends NetworkLayer {
     /**
      * Выполняет прямое распространение (forward pass) - 1D версия
      * 
+     * Вход интерпретируется в раскладке NHWC; недостающие значения
+     * считаются нулями.
+     * 
      * @param inputs входные данные
-     * @return выходные данные
+     * @return выходные данные в раскладке NHWC
      */
     @Override
     public double[] forward(double[] inputs) {
-        // Преобразуем 1D в 3D и вызываем 3D версию
-        double[][][] input3D = reshapeTo3D(inputs);
-        double[][][] output3D = forward(input3D);
-        return flatten3D(output3D);
+        if (inputs == null) {
+            throw new IllegalArgumentException("Input cannot be null");
+        }
+        requireInitialized();
+        
+        int length = Math.min(inputs.length, inputCache.length);
+        System.arraycopy(inputs, 0, inputCache, 0, length);
+        Arrays.fill(inputCache, length, inputCache.length, 0.0);
+        
+        convolve();
+        return output.clone();
     }
     
     /**
@@ -184,36 +230,44 @@ public class Conv2DLayer extends NetworkLayer {
         if (input == null) {
             throw new IllegalArgumentException("Input cannot be null");
         }
+        requireInitialized();
         
         if (!isValidInput(input)) {
             throw new IllegalArgumentException("Invalid input shape for Conv2D layer");
         }
         
         // Сохраняем входные данные для обратного распространения
-        this.inputCache = copy3DArray(input);
+        flattenInto(input, inputCache);
         
         // Выполняем свертку
-        double[][][] output = performConvolution(input);
+        convolve();
         
-        // Сохраняем выходные данные
-        this.outputCache = copy3DArray(output);
-        
-        return output;
+        return reshape(output, outputShape);
     }
     
     /**
      * Выполняет обратное распространение (backward pass) - 1D версия
      * 
-     * @param inputs входные данные
-     * @param outputGradients градиенты выходного слоя
-     * @return градиенты входного слоя
+     * Использует вход последнего прямого прохода.
+     * 
+     * @param inputs входные данные (не используются)
+     * @param outputGradients градиенты выхода в раскладке NHWC
+     * @return градиенты входа в раскладке NHWC
      */
     @Override
     public double[] backward(double[] inputs, double[] outputGradients) {
-        // Преобразуем 1D в 3D и вызываем 3D версию
-        double[][][] gradient3D = reshapeTo3D(outputGradients);
-        double[][][] inputGradient3D = backward(gradient3D);
-        return flatten3D(inputGradient3D);
+        if (outputGradients == null) {
+            throw new IllegalArgumentException("Gradient cannot be null");
+        }
+        requireForward();
+        
+        double[] gradient = outputGradients;
+        if (gradient.length != output.length) {
+            gradient = Arrays.copyOf(outputGradients, output.length);
+        }
+        
+        backpropagate(gradient);
+        return inputGradient.clone();
     }
     
     /**
@@ -226,19 +280,18 @@ public class Conv2DLayer extends NetworkLayer {
         if (gradient == null) {
             throw new IllegalArgumentException("Gradient cannot be null");
         }
+        requireForward();
         
-        if (inputCache == null) {
-            throw new IllegalStateException("Forward pass must be called before backward pass");
+        if (gradient.length != outputShape[0] || gradient[0].length != outputShape[1]
+                || gradient[0][0].length != outputShape[2]) {
+            throw new IllegalArgumentException("Invalid gradient shape for Conv2D layer");
         }
         
-        // Вычисляем градиенты весов и смещений
-        computeWeightGradients(gradient);
-        computeBiasGradients(gradient);
-        
-        // Вычисляем градиент относительно входа
-        double[][][] inputGradient = computeInputGradient(gradient);
+        double[] flatGradient = new double[output.length];
+        flattenInto(gradient, flatGradient);
+        backpropagate(flatGradient);
         
-        return inputGradient;
+        return reshape(inputGradient, inputShape);
     }
     
     /**
@@ -253,21 +306,9 @@ public class Conv2DLayer extends NetworkLayer {
             return;
         }
         
-        // Обновляем веса
-        for (int f = 0; f < filters; f++) {
-            for (int h = 0; h < kernelSize; h++) {
-                for (int w = 0; w < kernelSize; w++) {
-                    for (int c = 0; c < inputShape[2]; c++) {
-                        weights[f][h][w][c] -= learningRate * weightGradients[f][h][w][c];
-                    }
-                }
-            }
-        }
-        
-        // Обновляем смещения
-        for (int f = 0; f < filters; f++) {
-            biases[f] -= learningRate * biasGradients[f];
-        }
+        // Обновляем веса и смещения
+        TensorOps.axpy(-learningRate, weightGradients, weights, weights.length);
+        TensorOps.axpy(-learningRate, biasGradients, biases, filters);
         
         // Сбрасываем градиенты
         resetGradients();
@@ -341,19 +382,13 @@ public class Conv2DLayer extends NetworkLayer {
      * Инициализирует веса фильтров
      */
     private void initializeWeights() {
-        weights = new double[filters][kernelSize][kernelSize][inputShape[2]];
+        weights = new double[filters * getPatchSize()];
         
         // Используем инициализацию Xavier/He
         double limit = Math.sqrt(6.0 / (kernelSize * kernelSize * inputShape[2]));
         
-        for (int f = 0; f < filters; f++) {
-            for (int h = 0; h < kernelSize; h++) {
-                for (int w = 0; w < kernelSize; w++) {
-                    for (int c = 0; c < inputShape[2]; c++) {
-                        weights[f][h][w][c] = (random.nextDouble() * 2 - 1) * limit;
-                    }
-                }
-            }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (random.nextDouble() * 2 - 1) * limit;
         }
     }
     
@@ -361,190 +396,219 @@ public class Conv2DLayer extends NetworkLayer {
      * Инициализирует смещения
      */
     private void initializeBiases() {
-        biases = new double[filters];
         // Инициализируем смещения нулями
-        for (int f = 0; f < filters; f++) {
-            biases[f] = 0.0;
-        }
+        biases = new double[filters];
     }
     
     /**
      * Инициализирует градиенты
      */
     private void initializeGradients() {
-        weightGradients = new double[filters][kernelSize][kernelSize][inputShape[2]];
+        weightGradients = new double[filters * getPatchSize()];
         biasGradients = new double[filters];
     }
     
     /**
-     * Выполняет сверточную операцию
+     * Выделяет рабочие буферы прямого и обратного прохода
+     */
+    private void initializeBuffers() {
+        int positions = getOutputPositions();
+        int patchSize = getPatchSize();
+        inputCache = new double[inputShape[0] * inputShape[1] * inputShape[2]];
+        inputGradient = new double[inputCache.length];
+        columns = new double[positions * patchSize];
+        columnGradients = new double[positions * patchSize];
+        output = new double[positions * filters];
+        partialGradients = null;
+        hasInput = false;
+    }
+    
+    /**
+     * Выполняет свертку кэшированного входа в буфер выхода
      * 
-     * @param input входные данные
-     * @return результат свертки
+     * Каждая часть позиций выхода разворачивает свои окна и умножает их
+     * на матрицу весов: output = columns * weights^T + biases.
      */
-    private double[][][] performConvolution(double[][][] input) {
-        int outputHeight = outputShape[0];
-        int outputWidth = outputShape[1];
-        double[][][] output = new double[outputHeight][outputWidth][filters];
-        
-        // Применяем каждый фильтр
-        for (int f = 0; f < filters; f++) {
-            for (int oh = 0; oh < outputHeight; oh++) {
-                for (int ow = 0; ow < outputWidth; ow++) {
-                    double sum = 0.0;
-                    
-                    // Свертка с ядром
-                    for (int kh = 0; kh < kernelSize; kh++) {
-                        for (int kw = 0; kw < kernelSize; kw++) {
-                            int ih = oh * stride + kh - padding;
-                            int iw = ow * stride + kw - padding;
-                            
-                            // Проверяем границы
-                            if (ih >= 0 && ih < inputShape[0] && 
-                                iw >= 0 && iw < inputShape[1]) {
-                                
-                                // Суммируем по всем входным каналам
-                                for (int c = 0; c < inputShape[2]; c++) {
-                                    sum += input[ih][iw][c] * weights[f][kh][kw][c];
-                                }
-                            }
-                        }
-                    }
-                    
-                    output[oh][ow][f] = sum + biases[f];
-                }
-            }
-        }
-        
-        return output;
+    private void convolve() {
+        int patchSize = getPatchSize();
+        runParallel((part, from, to) -> {
+            im2col(from, to);
+            TensorOps.gemmABt(columns, weights, biases, output, from, to, filters, patchSize);
+        });
+        hasInput = true;
     }
     
     /**
-     * Вычисляет градиенты весов
+     * Вычисляет градиенты весов, смещений и входа
+     * 
+     * Градиенты весов частей складываются в фиксированном порядке, поэтому
+     * результат не зависит от планирования потоков.
      * 
-     * @param gradient градиент потерь
+     * @param gradient градиенты выхода в раскладке NHWC
      */
-    private void computeWeightGradients(double[][][] gradient) {
-        // Сбрасываем градиенты
-        for (int f = 0; f < filters; f++) {
-            for (int h = 0; h < kernelSize; h++) {
-                for (int w = 0; w < kernelSize; w++) {
-                    for (int c = 0; c < inputShape[2]; c++) {
-                        weightGradients[f][h][w][c] = 0.0;
-                    }
-                }
-            }
+    private void backpropagate(double[] gradient) {
+        int patchSize = getPatchSize();
+        int parts = getPartCount();
+        if (parts > 1 && (partialGradients == null || partialGradients.length < parts)) {
+            partialGradients = new double[parts][weightGradients.length];
         }
         
-        // Вычисляем градиенты
-        for (int f = 0; f < filters; f++) {
-            for (int oh = 0; oh < outputShape[0]; oh++) {
-                for (int ow = 0; ow < outputShape[1]; ow++) {
-                    double grad = gradient[oh][ow][f];
-                    
-                    for (int kh = 0; kh < kernelSize; kh++) {
-                        for (int kw = 0; kw < kernelSize; kw++) {
-                            int ih = oh * stride + kh - padding;
-                            int iw = ow * stride + kw - padding;
-                            
-                            if (ih >= 0 && ih < inputShape[0] && 
-                                iw >= 0 && iw < inputShape[1]) {
-                                
-                                for (int c = 0; c < inputShape[2]; c++) {
-                                    weightGradients[f][kh][kw][c] += 
-                                        grad * inputCache[ih][iw][c];
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        // dW = G^T * columns, dColumns = G * W
+        runParallel((part, from, to) -> {
+            double[] target = part == 0 ? weightGradients : partialGradients[part];
+            TensorOps.gemmAtB(gradient, columns, target, from, to, filters, patchSize);
+            TensorOps.gemmAB(gradient, weights, columnGradients, from, to, filters, patchSize);
+        });
+        for (int part = 1; part < parts; part++) {
+            TensorOps.axpy(1.0, partialGradients[part], weightGradients, weightGradients.length);
         }
+        
+        TensorOps.sumRows(gradient, biasGradients, getOutputPositions(), filters);
+        col2im();
     }
     
     /**
-     * Вычисляет градиенты смещений
+     * Разворачивает окна входа для позиций выхода [from, to) в строки columns
      * 
-     * @param gradient градиент потерь
+     * @param from первая позиция выхода
+     * @param to позиция после последней
      */
-    private void computeBiasGradients(double[][][] gradient) {
-        for (int f = 0; f < filters; f++) {
-            biasGradients[f] = 0.0;
-            
-            for (int oh = 0; oh < outputShape[0]; oh++) {
-                for (int ow = 0; ow < outputShape[1]; ow++) {
-                    biasGradients[f] += gradient[oh][ow][f];
+    private void im2col(int from, int to) {
+        int inputHeight = inputShape[0];
+        int inputWidth = inputShape[1];
+        int channels = inputShape[2];
+        int outputWidth = outputShape[1];
+        int patchSize = getPatchSize();
+        int kernelRow = kernelSize * channels;
+        
+        for (int p = from; p < to; p++) {
+            int oh = p / outputWidth;
+            int ow = p - oh * outputWidth;
+            int index = p * patchSize;
+            for (int kh = 0; kh < kernelSize; kh++) {
+                int ih = oh * stride + kh - padding;
+                if (ih < 0 || ih >= inputHeight) {
+                    Arrays.fill(columns, index, index + kernelRow, 0.0);
+                    index += kernelRow;
+                    continue;
+                }
+                for (int kw = 0; kw < kernelSize; kw++) {
+                    int iw = ow * stride + kw - padding;
+                    if (iw < 0 || iw >= inputWidth) {
+                        Arrays.fill(columns, index, index + channels, 0.0);
+                    } else {
+                        System.arraycopy(inputCache, (ih * inputWidth + iw) * channels, columns, index, channels);
+                    }
+                    index += channels;
                 }
             }
         }
     }
     
     /**
-     * Вычисляет градиент относительно входа
-     * 
-     * @param gradient градиент потерь
-     * @return градиент относительно входа
+     * Собирает градиенты окон в градиент входа (операция, обратная im2col)
      */
-    private double[][][] computeInputGradient(double[][][] gradient) {
-        double[][][] inputGradient = new double[inputShape[0]][inputShape[1]][inputShape[2]];
+    private void col2im() {
+        int inputHeight = inputShape[0];
+        int inputWidth = inputShape[1];
+        int channels = inputShape[2];
+        int outputWidth = outputShape[1];
+        int positions = getOutputPositions();
+        int patchSize = getPatchSize();
         
-        for (int f = 0; f < filters; f++) {
-            for (int oh = 0; oh < outputShape[0]; oh++) {
-                for (int ow = 0; ow < outputShape[1]; ow++) {
-                    double grad = gradient[oh][ow][f];
-                    
-                    for (int kh = 0; kh < kernelSize; kh++) {
-                        for (int kw = 0; kw < kernelSize; kw++) {
-                            int ih = oh * stride + kh - padding;
-                            int iw = ow * stride + kw - padding;
-                            
-                            if (ih >= 0 && ih < inputShape[0] && 
-                                iw >= 0 && iw < inputShape[1]) {
-                                
-                                for (int c = 0; c < inputShape[2]; c++) {
-                                    inputGradient[ih][iw][c] += 
-                                        grad * weights[f][kh][kw][c];
-                                }
-                            }
-                        }
+        Arrays.fill(inputGradient, 0.0);
+        for (int p = 0; p < positions; p++) {
+            int oh = p / outputWidth;
+            int ow = p - oh * outputWidth;
+            int index = p * patchSize;
+            for (int kh = 0; kh < kernelSize; kh++) {
+                int ih = oh * stride + kh - padding;
+                for (int kw = 0; kw < kernelSize; kw++, index += channels) {
+                    int iw = ow * stride + kw - padding;
+                    if (ih < 0 || ih >= inputHeight || iw < 0 || iw >= inputWidth) {
+                        continue;
+                    }
+                    int target = (ih * inputWidth + iw) * channels;
+                    for (int c = 0; c < channels; c++) {
+                        inputGradient[target + c] += columnGradients[index + c];
                     }
                 }
             }
         }
-        
-        return inputGradient;
     }
     
     /**
      * Сбрасывает градиенты
      */
     private void resetGradients() {
-        for (int f = 0; f < filters; f++) {
-            for (int h = 0; h < kernelSize; h++) {
-                for (int w = 0; w < kernelSize; w++) {
-                    for (int c = 0; c < inputShape[2]; c++) {
-                        weightGradients[f][h][w][c] = 0.0;
-                    }
-                }
-            }
-            biasGradients[f] = 0.0;
-        }
+        Arrays.fill(weightGradients, 0.0);
+        Arrays.fill(biasGradients, 0.0);
     }
     
+    // ==================== ПАРАЛЛЕЛЬНОЕ ВЫПОЛНЕНИЕ ====================
+    
     /**
-     * Копирует 3D массив
+     * Обработчик части позиций выхода
+     */
+    @FunctionalInterface
+    private interface PartBody {
+        void run(int part, int from, int to);
+    }
+    
+    /**
+     * Возвращает количество частей, на которые делятся позиции выхода
      * 
-     * @param array исходный массив
-     * @return копия массива
+     * @return количество частей
      */
-    private double[][][] copy3DArray(double[][][] array) {
-        double[][][] copy = new double[array.length][array[0].length][array[0][0].length];
-        for (int i = 0; i < array.length; i++) {
-            for (int j = 0; j < array[i].length; j++) {
-                System.arraycopy(array[i][j], 0, copy[i][j], 0, array[i][j].length);
+    private int getPartCount() {
+        int positions = getOutputPositions();
+        return Math.max(1, Math.min(parallelism, positions / MIN_POSITIONS_PER_TASK));
+    }
+    
+    /**
+     * Выполняет обработчик по непрерывным частям позиций выхода
+     * 
+     * @param body обработчик части
+     */
+    private void runParallel(PartBody body) {
+        int positions = getOutputPositions();
+        int parts = getPartCount();
+        if (parts == 1) {
+            body.run(0, 0, positions);
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new PartTask(body, parts, positions, 0, parts));
+    }
+    
+    /**
+     * Задача обработки частей [lo, hi)
+     */
+    private static final class PartTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PartBody body;
+        private final int parts;
+        private final int positions;
+        private final int lo;
+        private final int hi;
+        
+        PartTask(PartBody body, int parts, int positions, int lo, int hi) {
+            this.body = body;
+            this.parts = parts;
+            this.positions = positions;
+            this.lo = lo;
+            this.hi = hi;
+        }
+        
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                body.run(lo, (int) ((long) lo * positions / parts), (int) ((long) (lo + 1) * positions / parts));
+                return;
             }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new PartTask(body, parts, positions, lo, mid), new PartTask(body, parts, positions, mid, hi));
         }
-        return copy;
     }
     
     // ==================== ГЕТТЕРЫ ====================
@@ -594,52 +658,134 @@ public class Conv2DLayer extends NetworkLayer {
         return inputShape != null ? inputShape.clone() : null;
     }
     
-    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ДЛЯ 1D/3D ПРЕОБРАЗОВАНИЙ ====================
+    /**
+     * Устанавливает количество параллельных частей свертки
+     * 
+     * Позиции выхода делятся на части не меньше
+     * {@link #MIN_POSITIONS_PER_TASK}, поэтому малые входы обрабатываются
+     * последовательно.
+     * 
+     * @param parallelism количество частей (1 - последовательное выполнение)
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
     
     /**
-     * Преобразует 1D массив в 3D
+     * Возвращает количество параллельных частей свертки
      * 
-     * @param array 1D массив
-     * @return 3D массив
+     * @return количество частей
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    /**
+     * Возвращает веса фильтров (плоская матрица [filters * patchSize])
+     * 
+     * @return массив весов слоя
+     */
+    double[] getWeights() {
+        return weights;
+    }
+    
+    /**
+     * Возвращает смещения фильтров
+     * 
+     * @return массив смещений слоя
+     */
+    double[] getBiases() {
+        return biases;
+    }
+    
+    /**
+     * Возвращает градиенты весов последнего обратного прохода
+     * 
+     * @return массив градиентов в раскладке весов
+     */
+    double[] getWeightGradients() {
+        return weightGradients;
+    }
+    
+    /**
+     * Возвращает градиенты смещений последнего обратного прохода
+     * 
+     * @return массив градиентов смещений
      */
-    private double[][][] reshapeTo3D(double[] array) {
+    double[] getBiasGradients() {
+        return biasGradients;
+    }
+    
+    /**
+     * Возвращает размер окна свертки (kernelSize * kernelSize * каналы)
+     * 
+     * @return количество значений в окне
+     */
+    private int getPatchSize() {
+        return kernelSize * kernelSize * inputShape[2];
+    }
+    
+    /**
+     * Возвращает количество позиций выхода (высота * ширина)
+     * 
+     * @return количество позиций
+     */
+    private int getOutputPositions() {
+        return outputShape[0] * outputShape[1];
+    }
+    
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ДЛЯ 1D/3D ПРЕОБРАЗОВАНИЙ ====================
+    
+    /**
+     * Проверяет, что слой инициализирован
+     */
+    private void requireInitialized() {
         if (inputShape == null) {
             throw new IllegalStateException("Layer not initialized");
         }
-        
-        double[][][] reshaped = new double[inputShape[0]][inputShape[1]][inputShape[2]];
+    }
+    
+    /**
+     * Проверяет, что прямой проход был выполнен
+     */
+    private void requireForward() {
+        if (inputShape == null || !hasInput) {
+            throw new IllegalStateException("Forward pass must be called before backward pass");
+        }
+    }
+    
+    /**
+     * Записывает 3D массив в плоский буфер в раскладке NHWC
+     * 
+     * @param array 3D массив
+     * @param target буфер
+     */
+    private static void flattenInto(double[][][] array, double[] target) {
         int index = 0;
-        
-        for (int h = 0; h < inputShape[0] && index < array.length; h++) {
-            for (int w = 0; w < inputShape[1] && index < array.length; w++) {
-                for (int c = 0; c < inputShape[2] && index < array.length; c++) {
-                    reshaped[h][w][c] = array[index++];
-                }
+        for (double[][] row : array) {
+            for (double[] pixel : row) {
+                System.arraycopy(pixel, 0, target, index, pixel.length);
+                index += pixel.length;
             }
         }
-        
-        return reshaped;
     }
     
     /**
-     * Преобразует 3D массив в 1D
+     * Преобразует плоский буфер в раскладке NHWC в 3D массив
      * 
-     * @param array 3D массив
-     * @return 1D массив
+     * @param flat буфер
+     * @param shape размеры [высота, ширина, каналы]
+     * @return 3D массив
      */
-    private double[] flatten3D(double[][][] array) {
-        int totalSize = array.length * array[0].length * array[0][0].length;
-        double[] flattened = new double[totalSize];
+    private static double[][][] reshape(double[] flat, int[] shape) {
+        double[][][] reshaped = new double[shape[0]][shape[1]][];
         int index = 0;
-        
-        for (int h = 0; h < array.length; h++) {
-            for (int w = 0; w < array[h].length; w++) {
-                for (int c = 0; c < array[h][w].length; c++) {
-                    flattened[index++] = array[h][w][c];
-                }
+        for (int h = 0; h < shape[0]; h++) {
+            for (int w = 0; w < shape[1]; w++) {
+                reshaped[h][w] = Arrays.copyOfRange(flat, index, index + shape[2]);
+                index += shape[2];
             }
         }
-        
-        return flattened;
+        return reshaped;
     }
 }
@@ -3,6 +3,8 @@ package net.sf.l2j.botmanager.learning;
 import net.sf.l2j.botmanager.utils.Logger;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -21,6 +23,26 @@ import java.util.concurrent.atomic.AtomicLong;
  * - Автоматическое определение архитектуры
  * - Статистика и мониторинг обучения
  * 
+ * Инференс через {@link #forward(double[], double[])} проходит полносвязные
+ * слои методом {@link DenseLayer#infer(double[], double[])} с буферами,
+ * выделенными один раз на поток, и не выделяет память.
+ * 
+ * Если сеть состоит только из полносвязных слоев, обучение идет
+ * мини-пакетами: пакет из B примеров проходит каждый слой как матрица
+ * B x N через матричные ядра {@link TensorOps}, градиенты усредняются по
+ * пакету, а оптимизатор вызывается один раз на пакет. Остальные
+ * архитектуры обучаются по одному примеру. Мини-пакет может делиться на
+ * части, обучаемые параллельно в {@link ForkJoinPool} с детерминированной
+ * древовидной редукцией градиентов ({@link #setTrainingShards(int)}).
+ * 
+ * Сеть из полносвязных слоев может обучаться дистилляцией
+ * ({@link #distill(double[][], double[][], double, int)}): выходы последнего
+ * слоя считаются логитами и приближаются к смягченным температурой
+ * распределениям учителя, например ансамбля моделей.
+ * 
+ * Полносвязные слои, созданные через {@link #addDenseLayer}, хранят веса
+ * в точности, заданной при создании сети ({@link Precision}).
+ * 
  * @author AI Assistant
  * @version 3.2
  * @since 2025-09-27
@@ -66,6 +88,26 @@ public class DeepNeuralNetwork {
      */
     private static final double MIN_ERROR = 0.0001;
     
+    /**
+     * Наименьшая вероятность при логарифмировании распределений
+     */
+    private static final double MIN_PROBABILITY = 1e-12;
+    
+    /**
+     * Размер мини-пакета по умолчанию
+     */
+    public static final int DEFAULT_BATCH_SIZE = 32;
+    
+    /**
+     * Максимальный размер мини-пакета
+     */
+    private static final int MAX_BATCH_SIZE = 4096;
+    
+    /**
+     * Максимальное количество параллельных частей мини-пакета
+     */
+    private static final int MAX_TRAINING_SHARDS = 256;
+    
     // ==================== ПОЛЯ ====================
     
     /**
@@ -73,6 +115,11 @@ public class DeepNeuralNetwork {
      */
     private final int botId;
     
+    /**
+     * Точность весов создаваемых полносвязных слоев
+     */
+    private final Precision precision;
+    
     /**
      * Слои нейронной сети
      */
@@ -103,6 +150,26 @@ public class DeepNeuralNetwork {
      */
     private volatile long lastTrainingTime = 0;
     
+    /**
+     * Размер мини-пакета
+     */
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    
+    /**
+     * Количество параллельных частей мини-пакета (1 - однопоточное обучение)
+     */
+    private volatile int trainingShards = 1;
+    
+    /**
+     * Пул потоков параллельного обучения (null - общий пул)
+     */
+    private volatile ForkJoinPool trainingPool;
+    
+    /**
+     * Пропускная способность последнего обучения (примеров в секунду)
+     */
+    private volatile double trainingThroughput = 0.0;
+    
     /**
      * История ошибок обучения
      */
@@ -113,6 +180,11 @@ public class DeepNeuralNetwork {
      */
     private static final int MAX_ERROR_HISTORY = 1000;
     
+    /**
+     * Буферы выходов слоев для инференса в текущем потоке
+     */
+    private final ThreadLocal<double[][]> inferenceBuffers = new ThreadLocal<>();
+    
     // ==================== КОНСТРУКТОР ====================
     
     /**
@@ -121,7 +193,21 @@ public class DeepNeuralNetwork {
      * @param botId ID бота
      */
     public DeepNeuralNetwork(int botId) {
+        this(botId, Precision.FLOAT64);
+    }
+    
+    /**
+     * Конструктор глубокой нейронной сети с заданной точностью весов
+     * 
+     * @param botId ID бота
+     * @param precision точность весов полносвязных слоев
+     */
+    public DeepNeuralNetwork(int botId, Precision precision) {
+        if (precision == null) {
+            throw new IllegalArgumentException("Precision must not be null");
+        }
         this.botId = botId;
+        this.precision = precision;
         this.layers = new ArrayList<>();
         this.optimizer = new AdvancedOptimizer();
         
@@ -192,7 +278,7 @@ public class DeepNeuralNetwork {
             return false;
         }
         
-        DenseLayer layer = new DenseLayer(neurons, activation);
+        DenseLayer layer = new DenseLayer(neurons, activation, precision);
         
         // Определяем размер входа для слоя
         int inputSize = layers.isEmpty() ? 10 : layers.get(layers.size() - 1).getOutputSize();
@@ -264,25 +350,107 @@ public class DeepNeuralNetwork {
         }
         
         try {
-            double[] currentInputs = inputs.clone();
-            
-            // Проходим через все слои
-            for (NetworkLayer layer : layers) {
-                currentInputs = layer.forward(currentInputs);
-                if (currentInputs == null) {
-                    _log.error("Layer forward propagation failed for bot " + botId);
-                    return null;
-                }
-            }
-            
-            return currentInputs;
-            
+            double[] output = infer(inputs);
+            return output != null ? output.clone() : null;
         } catch (Exception e) {
             _log.error("Error in forward propagation for bot " + botId + ": " + e.getMessage(), e);
             return null;
         }
     }
     
+    /**
+     * Выполняет прямое распространение сигнала через сеть без выделения памяти
+     * 
+     * @param inputs входные данные
+     * @param output буфер для выходных данных размера выхода последнего слоя
+     * @return true, если результат записан в output
+     */
+    public boolean forward(double[] inputs, double[] output) {
+        if (!isActive.get() || inputs == null || output == null || layers.isEmpty()) {
+            return false;
+        }
+        
+        try {
+            double[] result = infer(inputs);
+            if (result == null || result.length != output.length) {
+                return false;
+            }
+            System.arraycopy(result, 0, output, 0, result.length);
+            return true;
+        } catch (Exception e) {
+            _log.error("Error in forward propagation for bot " + botId + ": " + e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Возвращает распределение классов по выходам сети
+     * 
+     * Выходы последнего слоя считаются логитами и переводятся в
+     * вероятности через softmax. Так предсказывает сеть-ученик,
+     * обученная дистилляцией ({@link EnsembleDistiller}): результат
+     * сопоставим с {@link EnsembleModel#predict(double[])} учителя.
+     * 
+     * @param inputs входные данные
+     * @return вероятности классов или null
+     */
+    public double[] predictProbabilities(double[] inputs) {
+        double[] logits = forward(inputs);
+        return logits != null ? softmax(logits, 1.0) : null;
+    }
+    
+    /**
+     * Проходит через слои, используя буферы текущего потока
+     * 
+     * @param inputs входные данные
+     * @return выход последнего слоя (буфер потока) или null
+     */
+    private double[] infer(double[] inputs) {
+        double[][] buffers = getInferenceBuffers();
+        double[] currentInputs = inputs;
+        
+        for (int i = 0; i < buffers.length; i++) {
+            NetworkLayer layer = layers.get(i);
+            if (layer instanceof DenseLayer) {
+                ((DenseLayer) layer).infer(currentInputs, buffers[i]);
+                currentInputs = buffers[i];
+            } else {
+                currentInputs = layer.forward(currentInputs);
+            }
+            if (currentInputs == null) {
+                _log.error("Layer forward propagation failed for bot " + botId);
+                return null;
+            }
+        }
+        
+        return currentInputs;
+    }
+    
+    /**
+     * Возвращает буферы инференса текущего потока, пересоздавая их при изменении слоев
+     * 
+     * @return буферы выходов слоев
+     */
+    private double[][] getInferenceBuffers() {
+        double[][] buffers = inferenceBuffers.get();
+        int layerCount = layers.size();
+        boolean valid = buffers != null && buffers.length == layerCount;
+        for (int i = 0; valid && i < layerCount; i++) {
+            NetworkLayer layer = layers.get(i);
+            valid = !(layer instanceof DenseLayer) || buffers[i].length == layer.getOutputSize();
+        }
+        
+        if (!valid) {
+            buffers = new double[layerCount][];
+            for (int i = 0; i < layerCount; i++) {
+                NetworkLayer layer = layers.get(i);
+                buffers[i] = layer instanceof DenseLayer ? new double[layer.getOutputSize()] : null;
+            }
+            inferenceBuffers.set(buffers);
+        }
+        return buffers;
+    }
+    
     /**
      * Выполняет обратное распространение ошибки
      * 
@@ -347,11 +515,72 @@ public class DeepNeuralNetwork {
         if (!isActive.get() || data == null || layers.isEmpty()) {
             return false;
         }
+        return fit(data.getInputs(), data.getTargets(), 0.0, MAX_EPOCHS);
+    }
+    
+    /**
+     * Обучает сеть-ученика по выходам учителя (дистилляция знаний)
+     * 
+     * Выход последнего слоя считается логитами z; полносвязный слой с
+     * {@link ActivationFunction.Softmax} передает взвешенные суммы без
+     * изменений и подходит для выхода ученика. Выходы учителя -
+     * распределения вероятностей p - смягчаются температурой T:
+     * q = softmax(ln p / T). Минимизируется T^2 * KL(q || softmax(z / T)),
+     * градиент по логитам равен T * (softmax(z / T) - q). Ошибка эпохи -
+     * средняя дивергенция KL на пример.
+     * 
+     * Поддерживаются только сети из полносвязных слоев.
+     * 
+     * @param inputs входы ситуаций
+     * @param teacherOutputs распределения учителя для каждого входа
+     * @param temperature температура смягчения (больше нуля)
+     * @param maxEpochs максимальное количество эпох
+     * @return true, если обучение прошло успешно
+     */
+    public boolean distill(double[][] inputs, double[][] teacherOutputs, double temperature, int maxEpochs) {
+        if (!(temperature > 0.0)) {
+            throw new IllegalArgumentException("Temperature must be positive: " + temperature);
+        }
+        if (!isActive.get() || inputs == null || teacherOutputs == null || layers.isEmpty()) {
+            return false;
+        }
+        if (!isBatchTrainable()) {
+            _log.warn("Cannot distill into bot " + botId + " network: only dense layers are supported");
+            return false;
+        }
+        if (inputs.length != teacherOutputs.length) {
+            return false;
+        }
+        
+        // Смягчаем распределения учителя один раз; примеры с другим числом классов пропускаются
+        int outputSize = layers.get(layers.size() - 1).getOutputSize();
+        double[][] softTargets = new double[teacherOutputs.length][];
+        for (int i = 0; i < teacherOutputs.length; i++) {
+            double[] output = teacherOutputs[i];
+            if (output == null || output.length != outputSize) {
+                continue;
+            }
+            double[] logits = new double[output.length];
+            for (int j = 0; j < output.length; j++) {
+                logits[j] = Math.log(Math.max(output[j], MIN_PROBABILITY));
+            }
+            softTargets[i] = softmax(logits, temperature);
+        }
         
+        return fit(inputs, softTargets, temperature, Math.max(1, Math.min(maxEpochs, MAX_EPOCHS)));
+    }
+    
+    /**
+     * Обучает сеть до сходимости или исчерпания эпох
+     * 
+     * @param inputs входные данные
+     * @param targets целевые значения (при дистилляции - смягченные распределения)
+     * @param temperature температура дистилляции (0 - среднеквадратичная ошибка)
+     * @param maxEpochs максимальное количество эпох
+     * @return true, если обучение прошло успешно
+     */
+    private boolean fit(double[][] inputs, double[][] targets, double temperature, int maxEpochs) {
         try {
-            double[][] inputs = data.getInputs();
-            double[][] targets = data.getTargets();
-            
             if (inputs == null || targets == null || inputs.length != targets.length) {
                 return false;
             }
@@ -362,33 +591,12 @@ public class DeepNeuralNetwork {
             int patience = 0;
             int maxPatience = 100; // Early stopping patience
             
-            while (epochs < MAX_EPOCHS && error > MIN_ERROR && patience < maxPatience) {
-                error = 0.0;
-                
-                // Проходим по всем обучающим примерам
-                for (int i = 0; i < inputs.length; i++) {
-                    double[] input = inputs[i];
-                    double[] target = targets[i];
-                    
-                    // Прямое распространение
-                    double[] output = forward(input);
-                    if (output == null) {
-                        continue;
-                    }
-                    
-                    // Вычисляем ошибку
-                    double[] sampleError = new double[output.length];
-                    for (int j = 0; j < output.length; j++) {
-                        sampleError[j] = target[j] - output[j];
-                        error += sampleError[j] * sampleError[j];
-                    }
-                    
-                    // Обратное распространение
-                    backward(input, target);
-                    
-                    // Обновляем веса
-                    optimizer.updateWeights(layers);
-                }
+            MiniBatchTrainer batchTrainer = isBatchTrainable()
+                ? new MiniBatchTrainer(inputs, targets, batchSize, trainingShards, temperature) : null;
+            long startTime = System.nanoTime();
+            
+            while (epochs < maxEpochs && error > MIN_ERROR && patience < maxPatience) {
+                error = batchTrainer != null ? batchTrainer.trainEpoch() : trainEpochPerSample(inputs, targets);
                 
                 error /= inputs.length;
                 errorHistory.add(error);
@@ -419,8 +627,13 @@ public class DeepNeuralNetwork {
             trainingEpochs.addAndGet(epochs);
             lastTrainingTime = System.currentTimeMillis();
             
+            double elapsedSeconds = Math.max(System.nanoTime() - startTime, 1L) / 1e9;
+            trainingThroughput = (double) epochs * inputs.length / elapsedSeconds;
+            
             _log.info("DeepNeuralNetwork training completed for bot " + botId + 
-                     " in " + epochs + " epochs with error " + String.format("%.6f", error));
+                     " in " + epochs + " epochs with error " + String.format("%.6f", error) +
+                     " (" + String.format("%.0f", trainingThroughput) + " samples/sec, batch " +
+                     (batchTrainer != null ? batchSize : 1) + ", shards " + (batchTrainer != null ? trainingShards : 1) + ")");
             
             return true;
             
@@ -430,6 +643,317 @@ public class DeepNeuralNetwork {
         }
     }
     
+    /**
+     * Выполняет эпоху обучения по одному примеру
+     * 
+     * @param inputs входные данные
+     * @param targets целевые значения
+     * @return сумма квадратов ошибок за эпоху
+     */
+    private double trainEpochPerSample(double[][] inputs, double[][] targets) {
+        double error = 0.0;
+        
+        // Проходим по всем обучающим примерам
+        for (int i = 0; i < inputs.length; i++) {
+            double[] input = inputs[i];
+            double[] target = targets[i];
+            
+            // Прямое распространение
+            double[] output = forward(input);
+            if (output == null) {
+                continue;
+            }
+            
+            // Вычисляем ошибку
+            for (int j = 0; j < output.length; j++) {
+                double sampleError = target[j] - output[j];
+                error += sampleError * sampleError;
+            }
+            
+            // Обратное распространение
+            backward(input, target);
+            
+            // Обновляем веса
+            optimizer.updateWeights(layers);
+        }
+        
+        return error;
+    }
+    
+    /**
+     * Проверяет, поддерживает ли архитектура обучение мини-пакетами
+     * 
+     * @return true, если все слои полносвязные
+     */
+    private boolean isBatchTrainable() {
+        for (NetworkLayer layer : layers) {
+            if (!(layer instanceof DenseLayer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Обучение мини-пакетами для сети из полносвязных слоев
+     * 
+     * Примеры с неподходящим размером входа или цели пропускаются, как и
+     * при обучении по одному примеру. Буферы пакета выделяются один раз на
+     * вызов обучения.
+     * 
+     * При нескольких частях ({@link #setTrainingShards(int)}) каждый пакет
+     * делится на непрерывные части, которые обрабатываются параллельно в
+     * {@link ForkJoinPool}. Каждая часть работает со своими репликами слоев
+     * (общие веса, собственные градиенты), ее градиенты взвешиваются долей
+     * примеров, а затем складываются попарным деревом в фиксированном
+     * порядке перед одним шагом оптимизатора. Порядок суммирования не
+     * зависит от планирования потоков, поэтому результат детерминирован
+     * при заданных начальных весах и количестве частей.
+     */
+    private final class MiniBatchTrainer {
+        private final double[][] inputs;
+        private final double[][] targets;
+        private final int[] validSamples;
+        private final int batchSize;
+        private final int inputSize;
+        private final int outputSize;
+        private final Shard[] shards;
+        private final ForkJoinPool pool;
+        private final double temperature;
+        
+        MiniBatchTrainer(double[][] inputs, double[][] targets, int batchSize, int shardCount, double temperature) {
+            this.inputs = inputs;
+            this.targets = targets;
+            this.temperature = temperature;
+            this.inputSize = layers.get(0).getInputSize();
+            this.outputSize = layers.get(layers.size() - 1).getOutputSize();
+            
+            int count = 0;
+            int[] valid = new int[inputs.length];
+            for (int i = 0; i < inputs.length; i++) {
+                if (inputs[i] != null && targets[i] != null
+                        && inputs[i].length == inputSize && targets[i].length >= outputSize) {
+                    valid[count++] = i;
+                }
+            }
+            this.validSamples = Arrays.copyOf(valid, count);
+            this.batchSize = Math.max(1, Math.min(batchSize, Math.max(count, 1)));
+            
+            // Часть 0 работает с самими слоями сети, остальные - с репликами
+            int parts = Math.max(1, Math.min(shardCount, this.batchSize));
+            int capacity = (this.batchSize + parts - 1) / parts;
+            this.shards = new Shard[parts];
+            for (int s = 0; s < parts; s++) {
+                DenseLayer[] shardLayers = new DenseLayer[layers.size()];
+                for (int l = 0; l < shardLayers.length; l++) {
+                    DenseLayer layer = (DenseLayer) layers.get(l);
+                    shardLayers[l] = s == 0 ? layer : layer.createReplica();
+                }
+                shards[s] = new Shard(shardLayers, s == 0 ? this.batchSize : capacity);
+            }
+            ForkJoinPool configured = trainingPool;
+            this.pool = configured != null ? configured : ForkJoinPool.commonPool();
+        }
+        
+        /**
+         * Выполняет эпоху обучения мини-пакетами
+         * 
+         * @return сумма квадратов ошибок за эпоху
+         */
+        double trainEpoch() {
+            double error = 0.0;
+            
+            for (int start = 0; start < validSamples.length; start += batchSize) {
+                int size = Math.min(batchSize, validSamples.length - start);
+                int parts = Math.min(shards.length, size);
+                
+                if (parts == 1) {
+                    shards[0].run(start, size, 1.0);
+                    error += shards[0].error;
+                } else {
+                    pool.invoke(new ShardTask(start, size, parts, 0, parts));
+                    for (int s = 0; s < parts; s++) {
+                        error += shards[s].error;
+                    }
+                    
+                    // Попарное дерево: на уровне stride часть s получает градиенты части s + stride
+                    for (int stride = 1; stride < parts; stride <<= 1) {
+                        int pairs = (parts - stride + 2 * stride - 1) / (2 * stride);
+                        pool.invoke(new ReduceTask(stride, 0, pairs));
+                    }
+                }
+                
+                // Один шаг оптимизатора на пакет по градиентам части 0
+                optimizer.updateWeights(layers);
+            }
+            
+            return error;
+        }
+        
+        /**
+         * Часть пакета со своими репликами слоев и буферами
+         */
+        private final class Shard {
+            private final DenseLayer[] shardLayers;
+            private final double[] batchInputs;
+            private final double[] batchGradients;
+            private final double[][] layerInputs;
+            private double error;
+            
+            Shard(DenseLayer[] shardLayers, int capacity) {
+                this.shardLayers = shardLayers;
+                this.batchInputs = new double[capacity * inputSize];
+                this.batchGradients = new double[capacity * outputSize];
+                this.layerInputs = new double[shardLayers.length][];
+            }
+            
+            /**
+             * Выполняет прямой и обратный проход по примерам части
+             * 
+             * @param first позиция первого примера в списке допустимых
+             * @param size количество примеров
+             * @param weight доля части в пакете (множитель градиентов)
+             */
+            void run(int first, int size, double weight) {
+                // Упаковываем пакет в матрицу примеров
+                for (int r = 0; r < size; r++) {
+                    System.arraycopy(inputs[validSamples[first + r]], 0, batchInputs, r * inputSize, inputSize);
+                }
+                
+                // Прямое распространение матрицы пакета
+                double[] current = batchInputs;
+                for (int l = 0; l < shardLayers.length; l++) {
+                    layerInputs[l] = current;
+                    current = shardLayers[l].forwardBatch(current, size);
+                }
+                
+                // Ошибка выходного слоя
+                double sum = 0.0;
+                for (int r = 0; r < size; r++) {
+                    double[] target = targets[validSamples[first + r]];
+                    int row = r * outputSize;
+                    if (temperature > 0.0) {
+                        sum += distillationGradients(target, current, row);
+                        continue;
+                    }
+                    for (int j = 0; j < outputSize; j++) {
+                        double sampleError = target[j] - current[row + j];
+                        batchGradients[row + j] = sampleError;
+                        sum += sampleError * sampleError;
+                    }
+                }
+                error = sum;
+                
+                // Обратное распространение; градиенты усредняются по части
+                double[] gradients = batchGradients;
+                for (int l = shardLayers.length - 1; l >= 0; l--) {
+                    gradients = shardLayers[l].backwardBatch(layerInputs[l], gradients, size);
+                }
+                if (weight != 1.0) {
+                    for (DenseLayer layer : shardLayers) {
+                        layer.scaleGradients(weight);
+                    }
+                }
+            }
+            
+            /**
+             * Записывает градиенты дистилляции по логитам одного примера
+             * 
+             * @param target смягченное распределение учителя
+             * @param logits выходы пакета
+             * @param row смещение строки примера
+             * @return дивергенция KL примера
+             */
+            private double distillationGradients(double[] target, double[] logits, int row) {
+                double max = Double.NEGATIVE_INFINITY;
+                for (int j = 0; j < outputSize; j++) {
+                    max = Math.max(max, logits[row + j] / temperature);
+                }
+                double total = 0.0;
+                for (int j = 0; j < outputSize; j++) {
+                    double e = Math.exp(logits[row + j] / temperature - max);
+                    batchGradients[row + j] = e;
+                    total += e;
+                }
+                double divergence = 0.0;
+                for (int j = 0; j < outputSize; j++) {
+                    double student = batchGradients[row + j] / total;
+                    double teacher = target[j];
+                    batchGradients[row + j] = temperature * (teacher - student);
+                    if (teacher > 0.0) {
+                        divergence += teacher * Math.log(teacher / Math.max(student, MIN_PROBABILITY));
+                    }
+                }
+                return divergence;
+            }
+        }
+        
+        /**
+         * Параллельная обработка частей [lo, hi) пакета
+         */
+        private final class ShardTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final int start;
+            private final int size;
+            private final int parts;
+            private final int lo;
+            private final int hi;
+            
+            ShardTask(int start, int size, int parts, int lo, int hi) {
+                this.start = start;
+                this.size = size;
+                this.parts = parts;
+                this.lo = lo;
+                this.hi = hi;
+            }
+            
+            @Override
+            protected void compute() {
+                if (hi - lo == 1) {
+                    int from = (int) ((long) lo * size / parts);
+                    int to = (int) ((long) (lo + 1) * size / parts);
+                    shards[lo].run(start + from, to - from, (double) (to - from) / size);
+                    return;
+                }
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ShardTask(start, size, parts, lo, mid), new ShardTask(start, size, parts, mid, hi));
+            }
+        }
+        
+        /**
+         * Параллельное сложение пар [lo, hi) одного уровня дерева редукции
+         */
+        private final class ReduceTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final int stride;
+            private final int lo;
+            private final int hi;
+            
+            ReduceTask(int stride, int lo, int hi) {
+                this.stride = stride;
+                this.lo = lo;
+                this.hi = hi;
+            }
+            
+            @Override
+            protected void compute() {
+                if (hi - lo == 1) {
+                    int target = lo * 2 * stride;
+                    DenseLayer[] into = shards[target].shardLayers;
+                    DenseLayer[] from = shards[target + stride].shardLayers;
+                    for (int l = 0; l < into.length; l++) {
+                        into[l].addGradients(from[l]);
+                    }
+                    return;
+                }
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ReduceTask(stride, lo, mid), new ReduceTask(stride, mid, hi));
+            }
+        }
+    }
+    
     /**
      * Адаптирует сеть на основе обратной связи
      * 
@@ -459,6 +983,66 @@ public class DeepNeuralNetwork {
         }
     }
     
+    /**
+     * Вычисляет распределение softmax(z / T)
+     * 
+     * @param logits логиты
+     * @param temperature температура
+     * @return распределение вероятностей
+     */
+    static double[] softmax(double[] logits, double temperature) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double logit : logits) {
+            max = Math.max(max, logit / temperature);
+        }
+        double[] result = new double[logits.length];
+        double total = 0.0;
+        for (int j = 0; j < logits.length; j++) {
+            result[j] = Math.exp(logits[j] / temperature - max);
+            total += result[j];
+        }
+        for (int j = 0; j < result.length; j++) {
+            result[j] /= total;
+        }
+        return result;
+    }
+    
+    // ==================== ТОЧНОСТЬ ====================
+    
+    /**
+     * Создает копию сети с весами полносвязных слоев в заданной точности
+     * 
+     * Копия получает преобразованные слои, скорость обучения, размер пакета
+     * и состояние активности; история обучения не копируется. Поддерживаются
+     * только сети из полносвязных слоев, так как остальные слои не имеют
+     * представления в другой точности.
+     * 
+     * @param target точность копии
+     * @return новая сеть
+     */
+    public DeepNeuralNetwork toPrecision(Precision target) {
+        if (!isBatchTrainable()) {
+            throw new IllegalStateException("Only networks of dense layers can change precision");
+        }
+        DeepNeuralNetwork copy = new DeepNeuralNetwork(botId, target);
+        for (NetworkLayer layer : layers) {
+            copy.layers.add(((DenseLayer) layer).toPrecision(target));
+        }
+        copy.setLearningRate(getLearningRate());
+        copy.batchSize = batchSize;
+        copy.isActive.set(isActive.get());
+        return copy;
+    }
+    
+    /**
+     * Возвращает точность весов полносвязных слоев
+     * 
+     * @return точность
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+    
     // ==================== НАСТРОЙКА ====================
     
     /**
@@ -527,6 +1111,63 @@ public class DeepNeuralNetwork {
         return lastTrainingTime;
     }
     
+    /**
+     * Устанавливает размер мини-пакета
+     * 
+     * @param batchSize размер пакета (1 - обучение по одному примеру)
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, batchSize));
+    }
+    
+    /**
+     * Устанавливает количество параллельных частей мини-пакета
+     * 
+     * Применяется к сетям из полносвязных слоев. Результат обучения зависит
+     * от количества частей только через порядок суммирования градиентов.
+     * 
+     * @param shards количество частей (1 - однопоточное обучение)
+     */
+    public void setTrainingShards(int shards) {
+        this.trainingShards = Math.max(1, Math.min(MAX_TRAINING_SHARDS, shards));
+    }
+    
+    /**
+     * Возвращает количество параллельных частей мини-пакета
+     * 
+     * @return количество частей
+     */
+    public int getTrainingShards() {
+        return trainingShards;
+    }
+    
+    /**
+     * Устанавливает пул потоков параллельного обучения
+     * 
+     * @param pool пул потоков или null для общего пула
+     */
+    public void setTrainingPool(ForkJoinPool pool) {
+        this.trainingPool = pool;
+    }
+    
+    /**
+     * Возвращает размер мини-пакета
+     * 
+     * @return размер пакета
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    /**
+     * Возвращает пропускную способность последнего обучения
+     * 
+     * @return количество примеров в секунду
+     */
+    public double getTrainingThroughput() {
+        return trainingThroughput;
+    }
+    
     /**
      * Возвращает историю ошибок
      * 
@@ -576,6 +1217,10 @@ public class DeepNeuralNetwork {
         stats.append("Training Epochs: ").append(trainingEpochs.get()).append("\n");
         stats.append("Learning Rate: ").append(String.format("%.6f", getLearningRate())).append("\n");
         stats.append("Optimizer: ").append(optimizer.getType()).append("\n");
+        stats.append("Precision: ").append(precision).append("\n");
+        stats.append("Batch Size: ").append(batchSize).append("\n");
+        stats.append("Training Shards: ").append(trainingShards).append("\n");
+        stats.append("Throughput: ").append(String.format("%.0f samples/sec", trainingThroughput)).append("\n");
         stats.append("Active: ").append(isActive.get()).append("\n");
         
         if (!errorHistory.isEmpty()) {
@@ -1,5 +1,6 @@
 package net.sf.l2j.botmanager.learning;
 
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -9,6 +10,24 @@ import java.util.Random;
  * где каждый нейрон связан со всеми нейронами предыдущего слоя.
  * Слой поддерживает различные функции активации и методы инициализации весов.
  * 
+ * Веса хранятся в одном непрерывном массиве построчно по выходам
+ * (раскладка {@link TensorOps}), а буферы активаций, градиентов и
+ * промежуточных сумм выделяются один раз при инициализации и
+ * переиспользуются. Метод {@link #infer(double[], double[])} не изменяет
+ * состояние слоя и не выделяет память, поэтому подходит для инференса
+ * модели, разделяемой несколькими потоками.
+ * 
+ * Для обучения мини-пакетами {@link #forwardBatch(double[], int)} и
+ * {@link #backwardBatch(double[], double[], int)} обрабатывают пакет как
+ * матрицу примеров через матричные ядра {@link TensorOps}, а градиенты
+ * усредняются по пакету.
+ * 
+ * Точность хранения весов задается при создании слоя ({@link Precision}).
+ * В режиме {@link Precision#FLOAT32} веса и их градиенты хранятся в
+ * {@code float[]}, а вычисления выполняются в double теми же ядрами
+ * {@link TensorOps}. {@link #toPrecision(Precision)} создает копию слоя
+ * с другой точностью.
+ * 
  * @author AI Assistant
  * @version 3.2
  * @since 2025-09-27
@@ -18,9 +37,19 @@ public class DenseLayer extends NetworkLayer {
     // ==================== ПОЛЯ ====================
     
     /**
-     * Веса слоя [inputSize][outputSize]
+     * Точность хранения весов
+     */
+    private final Precision precision;
+    
+    /**
+     * Веса слоя [outputSize * inputSize], строка j - веса нейрона j (FLOAT64)
      */
-    private double[][] weights;
+    private double[] weights;
+    
+    /**
+     * Веса слоя в одинарной точности (FLOAT32), раскладка как у weights
+     */
+    private float[] weights32;
     
     /**
      * Смещения [outputSize]
@@ -28,9 +57,14 @@ public class DenseLayer extends NetworkLayer {
     private double[] biases;
     
     /**
-     * Градиенты весов [inputSize][outputSize]
+     * Градиенты весов [outputSize * inputSize] (FLOAT64)
+     */
+    private double[] weightGradients;
+    
+    /**
+     * Градиенты весов в одинарной точности (FLOAT32)
      */
-    private double[][] weightGradients;
+    private float[] weightGradients32;
     
     /**
      * Градиенты смещений [outputSize]
@@ -52,6 +86,24 @@ public class DenseLayer extends NetworkLayer {
      */
     private double[] weightedSums;
     
+    /**
+     * Градиенты по взвешенным суммам (буфер обратного прохода)
+     */
+    private double[] weightedSumGradients;
+    
+    /**
+     * Градиенты входа (буфер обратного прохода)
+     */
+    private double[] inputGradients;
+    
+    /**
+     * Пакетные буферы [batch * outputSize] и [batch * inputSize], растут по необходимости
+     */
+    private double[] batchWeightedSums;
+    private double[] batchActivations;
+    private double[] batchDeltas;
+    private double[] batchInputGradients;
+    
     // ==================== КОНСТРУКТОР ====================
     
     /**
@@ -61,9 +113,24 @@ public class DenseLayer extends NetworkLayer {
      * @param activationFunction функция активации
      */
     public DenseLayer(int outputSize, ActivationFunction activationFunction) {
+        this(outputSize, activationFunction, Precision.FLOAT64);
+    }
+    
+    /**
+     * Конструктор полносвязного слоя с заданной точностью весов
+     * 
+     * @param outputSize количество выходных нейронов
+     * @param activationFunction функция активации
+     * @param precision точность хранения весов
+     */
+    public DenseLayer(int outputSize, ActivationFunction activationFunction, Precision precision) {
         super(LayerType.DENSE);
+        if (precision == null) {
+            throw new IllegalArgumentException("Precision must not be null");
+        }
         this.outputSize = outputSize;
         this.activationFunction = activationFunction;
+        this.precision = precision;
     }
     
     // ==================== ОСНОВНЫЕ МЕТОДЫ ====================
@@ -83,9 +150,23 @@ public class DenseLayer extends NetworkLayer {
         initializeWeights();
         initializeBiases();
         
-        // Инициализируем градиенты
-        weightGradients = new double[inputSize][outputSize];
+        allocateBuffers();
+    }
+    
+    /**
+     * Выделяет градиенты и рабочие буферы
+     */
+    private void allocateBuffers() {
+        if (isSinglePrecision()) {
+            weightGradients32 = new float[outputSize * inputSize];
+        } else {
+            weightGradients = new double[outputSize * inputSize];
+        }
         biasGradients = new double[outputSize];
+        weightedSums = new double[outputSize];
+        activations = new double[outputSize];
+        weightedSumGradients = new double[outputSize];
+        inputGradients = new double[inputSize];
     }
     
     /**
@@ -100,27 +181,51 @@ public class DenseLayer extends NetworkLayer {
             throw new IllegalArgumentException("Input size mismatch: expected " + inputSize + ", got " + inputs.length);
         }
         
-        // Вычисляем взвешенные суммы
-        weightedSums = new double[outputSize];
-        for (int j = 0; j < outputSize; j++) {
-            weightedSums[j] = biases[j];
-            for (int i = 0; i < inputSize; i++) {
-                weightedSums[j] += inputs[i] * weights[i][j];
-            }
-        }
+        // Вычисляем взвешенные суммы и активации во внутренние буферы
+        linear(inputs, weightedSums);
+        activationFunction.activate(weightedSums, activations, outputSize);
         
-        // Применяем функцию активации
-        activations = new double[outputSize];
-        for (int j = 0; j < outputSize; j++) {
-            activations[j] = activationFunction.activate(weightedSums[j]);
+        return activations.clone();
+    }
+    
+    /**
+     * Выполняет прямое распространение без сохранения состояния
+     * 
+     * Не выделяет память и не изменяет поля слоя, поэтому может вызываться
+     * одновременно из нескольких потоков.
+     * 
+     * @param inputs входные данные [inputSize]
+     * @param output буфер для выходных данных [outputSize]
+     */
+    public void infer(double[] inputs, double[] output) {
+        if (inputs.length != inputSize) {
+            throw new IllegalArgumentException("Input size mismatch: expected " + inputSize + ", got " + inputs.length);
         }
         
-        return activations.clone();
+        linear(inputs, output);
+        activationFunction.activate(output, output, outputSize);
+    }
+    
+    /**
+     * Вычисляет взвешенные суммы W * x + b ядром нужной точности
+     * 
+     * @param inputs входные данные [inputSize]
+     * @param sums буфер для сумм [outputSize]
+     */
+    private void linear(double[] inputs, double[] sums) {
+        if (isSinglePrecision()) {
+            TensorOps.matVec(weights32, biases, inputs, sums, outputSize, inputSize);
+        } else {
+            TensorOps.matVec(weights, biases, inputs, sums, outputSize, inputSize);
+        }
     }
     
     /**
      * Выполняет обратное распространение
      * 
+     * Возвращаемый массив является буфером слоя и действителен до
+     * следующего вызова обратного распространения.
+     * 
      * @param inputs входные данные
      * @param outputGradients градиенты выходного слоя
      * @return градиенты входного слоя
@@ -132,32 +237,105 @@ public class DenseLayer extends NetworkLayer {
         }
         
         // Вычисляем градиенты по взвешенным суммам
-        double[] weightedSumGradients = new double[outputSize];
         for (int j = 0; j < outputSize; j++) {
             weightedSumGradients[j] = outputGradients[j] * activationFunction.derivative(weightedSums[j]);
         }
         
-        // Вычисляем градиенты весов
-        for (int i = 0; i < inputSize; i++) {
-            for (int j = 0; j < outputSize; j++) {
-                weightGradients[i][j] = inputs[i] * weightedSumGradients[j];
-            }
+        // Вычисляем градиенты весов и смещений, затем градиенты входного слоя
+        if (isSinglePrecision()) {
+            TensorOps.outer(weightedSumGradients, inputs, weightGradients32, outputSize, inputSize);
+            TensorOps.matTVec(weights32, weightedSumGradients, inputGradients, outputSize, inputSize);
+        } else {
+            TensorOps.outer(weightedSumGradients, inputs, weightGradients, outputSize, inputSize);
+            TensorOps.matTVec(weights, weightedSumGradients, inputGradients, outputSize, inputSize);
         }
+        System.arraycopy(weightedSumGradients, 0, biasGradients, 0, outputSize);
         
-        // Вычисляем градиенты смещений
-        for (int j = 0; j < outputSize; j++) {
-            biasGradients[j] = weightedSumGradients[j];
+        return inputGradients;
+    }
+    
+    /**
+     * Выполняет прямое распространение для пакета примеров
+     * 
+     * Возвращаемый массив является буфером слоя и действителен до
+     * следующего пакетного вызова.
+     * 
+     * @param inputs входы пакета [batchSize * inputSize] построчно
+     * @param batchSize количество примеров в пакете
+     * @return выходы пакета [batchSize * outputSize] построчно
+     */
+    public double[] forwardBatch(double[] inputs, int batchSize) {
+        if (batchSize <= 0 || inputs.length < batchSize * inputSize) {
+            throw new IllegalArgumentException("Batch input size mismatch: expected " + batchSize * inputSize
+                + ", got " + inputs.length);
         }
+        ensureBatchCapacity(batchSize);
         
-        // Вычисляем градиенты входного слоя
-        double[] inputGradients = new double[inputSize];
-        for (int i = 0; i < inputSize; i++) {
-            for (int j = 0; j < outputSize; j++) {
-                inputGradients[i] += weights[i][j] * weightedSumGradients[j];
-            }
+        int size = batchSize * outputSize;
+        if (isSinglePrecision()) {
+            TensorOps.gemmABt(inputs, weights32, biases, batchWeightedSums, batchSize, outputSize, inputSize);
+        } else {
+            TensorOps.gemmABt(inputs, weights, biases, batchWeightedSums, batchSize, outputSize, inputSize);
         }
+        activationFunction.activate(batchWeightedSums, batchActivations, size);
         
-        return inputGradients;
+        return batchActivations;
+    }
+    
+    /**
+     * Выполняет обратное распространение для пакета примеров
+     * 
+     * Градиенты весов и смещений усредняются по пакету, поэтому
+     * последующий {@link #updateWeights(double)} выполняет один шаг на пакет.
+     * 
+     * @param inputs входы пакета [batchSize * inputSize], переданные в forwardBatch
+     * @param outputGradients градиенты выходов [batchSize * outputSize]
+     * @param batchSize количество примеров в пакете
+     * @return градиенты входов [batchSize * inputSize] (буфер слоя)
+     */
+    public double[] backwardBatch(double[] inputs, double[] outputGradients, int batchSize) {
+        if (batchSize <= 0 || outputGradients.length < batchSize * outputSize) {
+            throw new IllegalArgumentException("Batch gradient size mismatch: expected " + batchSize * outputSize
+                + ", got " + outputGradients.length);
+        }
+        ensureBatchCapacity(batchSize);
+        
+        // Градиенты по взвешенным суммам
+        int size = batchSize * outputSize;
+        for (int k = 0; k < size; k++) {
+            batchDeltas[k] = outputGradients[k] * activationFunction.derivative(batchWeightedSums[k]);
+        }
+        
+        // Средние градиенты весов и смещений по пакету, затем градиенты входов
+        double inverseBatch = 1.0 / batchSize;
+        if (isSinglePrecision()) {
+            // Буфер одиночного обратного прохода служит строкой накопления
+            TensorOps.gemmAtB(batchDeltas, inputs, weightGradients32, inputGradients, batchSize, outputSize, inputSize);
+            TensorOps.scale(inverseBatch, weightGradients32, weightGradients32.length);
+            TensorOps.gemmAB(batchDeltas, weights32, batchInputGradients, batchSize, outputSize, inputSize);
+        } else {
+            TensorOps.gemmAtB(batchDeltas, inputs, weightGradients, batchSize, outputSize, inputSize);
+            TensorOps.scale(inverseBatch, weightGradients, weightGradients.length);
+            TensorOps.gemmAB(batchDeltas, weights, batchInputGradients, batchSize, outputSize, inputSize);
+        }
+        TensorOps.sumRows(batchDeltas, biasGradients, batchSize, outputSize);
+        TensorOps.scale(inverseBatch, biasGradients, outputSize);
+        
+        return batchInputGradients;
+    }
+    
+    /**
+     * Обеспечивает размер пакетных буферов
+     * 
+     * @param batchSize размер пакета
+     */
+    private void ensureBatchCapacity(int batchSize) {
+        if (batchActivations == null || batchActivations.length < batchSize * outputSize) {
+            batchWeightedSums = new double[batchSize * outputSize];
+            batchActivations = new double[batchSize * outputSize];
+            batchDeltas = new double[batchSize * outputSize];
+            batchInputGradients = new double[batchSize * inputSize];
+        }
     }
     
     /**
@@ -167,16 +345,139 @@ public class DenseLayer extends NetworkLayer {
      */
     @Override
     public void updateWeights(double learningRate) {
-        // Обновляем веса
-        for (int i = 0; i < inputSize; i++) {
-            for (int j = 0; j < outputSize; j++) {
-                weights[i][j] += learningRate * weightGradients[i][j];
-            }
+        if (isSinglePrecision()) {
+            TensorOps.axpy(learningRate, weightGradients32, weights32, weights32.length);
+        } else {
+            TensorOps.axpy(learningRate, weightGradients, weights, weights.length);
         }
-        
-        // Обновляем смещения
-        for (int j = 0; j < outputSize; j++) {
-            biases[j] += learningRate * biasGradients[j];
+        TensorOps.axpy(learningRate, biasGradients, biases, outputSize);
+    }
+    
+    // ==================== ПАРАЛЛЕЛЬНОЕ ОБУЧЕНИЕ ====================
+    
+    /**
+     * Создает реплику слоя для потока обучения
+     * 
+     * Реплика разделяет с исходным слоем веса и смещения, но имеет
+     * собственные градиенты и рабочие буферы, поэтому несколько реплик
+     * могут одновременно выполнять прямой и обратный проход по разным
+     * частям пакета. Реплика действительна, пока массивы весов слоя не
+     * заменены (например, через {@link #setWeights(double[][])}), и не
+     * должна обновлять веса сама.
+     * 
+     * @return реплика слоя
+     */
+    DenseLayer createReplica() {
+        DenseLayer replica = new DenseLayer(outputSize, activationFunction, precision);
+        replica.inputSize = inputSize;
+        replica.weights = weights;
+        replica.weights32 = weights32;
+        replica.biases = biases;
+        replica.allocateBuffers();
+        return replica;
+    }
+    
+    /**
+     * Умножает градиенты весов и смещений на число
+     * 
+     * @param alpha множитель
+     */
+    void scaleGradients(double alpha) {
+        if (isSinglePrecision()) {
+            TensorOps.scale(alpha, weightGradients32, weightGradients32.length);
+        } else {
+            TensorOps.scale(alpha, weightGradients, weightGradients.length);
+        }
+        TensorOps.scale(alpha, biasGradients, outputSize);
+    }
+    
+    /**
+     * Прибавляет градиенты другой реплики того же слоя
+     * 
+     * @param other реплика с градиентами
+     */
+    void addGradients(DenseLayer other) {
+        if (isSinglePrecision()) {
+            TensorOps.axpy(1.0, other.weightGradients32, weightGradients32, weightGradients32.length);
+        } else {
+            TensorOps.axpy(1.0, other.weightGradients, weightGradients, weightGradients.length);
+        }
+        TensorOps.axpy(1.0, other.biasGradients, biasGradients, outputSize);
+    }
+    
+    /**
+     * Обнуляет градиенты весов и смещений
+     */
+    void clearGradients() {
+        if (isSinglePrecision()) {
+            Arrays.fill(weightGradients32, 0.0f);
+        } else {
+            Arrays.fill(weightGradients, 0.0);
+        }
+        Arrays.fill(biasGradients, 0.0);
+    }
+    
+    // ==================== ТОЧНОСТЬ ====================
+    
+    /**
+     * Создает копию слоя с весами в заданной точности
+     * 
+     * При переходе к FLOAT32 веса округляются до ближайшего float, при
+     * переходе к FLOAT64 расширяются без потерь. Состояние обучения
+     * (активации и градиенты) не копируется.
+     * 
+     * @param target точность копии
+     * @return новый инициализированный слой
+     */
+    public DenseLayer toPrecision(Precision target) {
+        if (weights == null && weights32 == null) {
+            throw new IllegalStateException("Layer is not initialized");
+        }
+        DenseLayer copy = new DenseLayer(outputSize, activationFunction, target);
+        copy.inputSize = inputSize;
+        copy.setFlatWeights(getFlatWeights());
+        copy.biases = biases.clone();
+        copy.allocateBuffers();
+        return copy;
+    }
+    
+    /**
+     * Возвращает точность хранения весов
+     * 
+     * @return точность
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+    
+    /**
+     * Возвращает объем памяти, занимаемый весами и смещениями
+     * 
+     * @return размер параметров в байтах
+     */
+    public long getParameterBytes() {
+        return (long) outputSize * inputSize * precision.getBytesPerWeight() + (long) outputSize * Double.BYTES;
+    }
+    
+    private boolean isSinglePrecision() {
+        return precision == Precision.FLOAT32;
+    }
+    
+    /**
+     * Возвращает копию весов в плоской раскладке двойной точности
+     */
+    private double[] getFlatWeights() {
+        return isSinglePrecision() ? TensorOps.toDouble(weights32) : weights.clone();
+    }
+    
+    /**
+     * Устанавливает веса из плоской раскладки двойной точности
+     */
+    private void setFlatWeights(double[] flat) {
+        if (isSinglePrecision()) {
+            weights32 = TensorOps.toFloat(flat);
+        } else {
+            weights = flat;
         }
     }
     
@@ -186,28 +487,24 @@ public class DenseLayer extends NetworkLayer {
      * Инициализирует веса слоя
      */
     private void initializeWeights() {
-        weights = new double[inputSize][outputSize];
+        double[] initial = new double[outputSize * inputSize];
         Random random = new Random();
         
         // Используем инициализацию Xavier/Glorot
         double limit = Math.sqrt(6.0 / (inputSize + outputSize));
         
-        for (int i = 0; i < inputSize; i++) {
-            for (int j = 0; j < outputSize; j++) {
-                weights[i][j] = random.nextGaussian() * limit;
-            }
+        for (int k = 0; k < initial.length; k++) {
+            initial[k] = random.nextGaussian() * limit;
         }
+        setFlatWeights(initial);
     }
     
     /**
      * Инициализирует смещения слоя
      */
     private void initializeBiases() {
+        // Смещения инициализируются нулями
         biases = new double[outputSize];
-        // Инициализируем смещения нулями
-        for (int j = 0; j < outputSize; j++) {
-            biases[j] = 0.0;
-        }
     }
     
     // ==================== GETTERS ====================
@@ -215,10 +512,25 @@ public class DenseLayer extends NetworkLayer {
     /**
      * Возвращает веса слоя
      * 
-     * @return веса слоя
+     * @return копия весов слоя [inputSize][outputSize]
      */
     public double[][] getWeights() {
-        return weights.clone();
+        double[] flat = isSinglePrecision() ? TensorOps.toDouble(weights32) : weights;
+        return TensorOps.unflattenTransposed(flat, outputSize, inputSize);
+    }
+    
+    /**
+     * Устанавливает веса слоя
+     * 
+     * В режиме FLOAT32 значения округляются до float.
+     * 
+     * @param weights веса [inputSize][outputSize]
+     */
+    public void setWeights(double[][] weights) {
+        if (weights.length != inputSize || (inputSize > 0 && weights[0].length != outputSize)) {
+            throw new IllegalArgumentException("Weight shape mismatch: expected " + inputSize + "x" + outputSize);
+        }
+        setFlatWeights(TensorOps.flattenTransposed(weights));
     }
     
     /**
@@ -230,6 +542,18 @@ public class DenseLayer extends NetworkLayer {
         return biases.clone();
     }
     
+    /**
+     * Устанавливает смещения слоя
+     * 
+     * @param biases смещения [outputSize]
+     */
+    public void setBiases(double[] biases) {
+        if (biases.length != outputSize) {
+            throw new IllegalArgumentException("Bias size mismatch: expected " + outputSize + ", got " + biases.length);
+        }
+        this.biases = biases.clone();
+    }
+    
     /**
      * Возвращает функцию активации
      * 
@@ -0,0 +1,143 @@
+package net.sf.l2j.botmanager.learning;
+
+/**
+ * Отчет о соответствии сети-ученика ансамблю-учителю
+ *
+ * Сравнивает распределения ученика ({@link DeepNeuralNetwork}, обученного
+ * через {@link EnsembleDistiller}) с распределениями ансамбля на одних и
+ * тех же входах: долю примеров с совпадающим выбранным классом, среднее
+ * абсолютное отклонение вероятностей и среднюю дивергенцию KL, а также
+ * среднее время предсказания учителя и ученика.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class DistillationReport {
+
+    private static final double MIN_PROBABILITY = 1e-12;
+
+    private final DeepNeuralNetwork student;
+    private final int samples;
+    private final double topAgreement;
+    private final double meanAbsError;
+    private final double meanDivergence;
+    private final long teacherNanos;
+    private final long studentNanos;
+
+    /**
+     * Конструктор отчета
+     *
+     * @param student сеть-ученик
+     * @param samples количество сравненных примеров
+     * @param topAgreement доля примеров с совпадающим выбранным классом
+     * @param meanAbsError среднее абсолютное отклонение вероятностей
+     * @param meanDivergence средняя дивергенция KL(учитель || ученик)
+     * @param teacherNanos среднее время предсказания учителя (нс)
+     * @param studentNanos среднее время предсказания ученика (нс)
+     */
+    public DistillationReport(DeepNeuralNetwork student, int samples, double topAgreement, double meanAbsError,
+                              double meanDivergence, long teacherNanos, long studentNanos) {
+        this.student = student;
+        this.samples = samples;
+        this.topAgreement = topAgreement;
+        this.meanAbsError = meanAbsError;
+        this.meanDivergence = meanDivergence;
+        this.teacherNanos = teacherNanos;
+        this.studentNanos = studentNanos;
+    }
+
+    /**
+     * Сравнивает ученика с учителем
+     *
+     * Распределения ученика берутся из
+     * {@link DeepNeuralNetwork#predictProbabilities(double[])}. Входы, для которых учитель или ученик не дали
+     * предсказание подходящего размера, пропускаются.
+     *
+     * @param teacher ансамбль-учитель
+     * @param student сеть-ученик
+     * @param inputs входы для сравнения (может быть null)
+     * @return отчет
+     */
+    public static DistillationReport compare(EnsembleModel teacher, DeepNeuralNetwork student, double[][] inputs) {
+        int samples = 0;
+        int agreements = 0;
+        double totalError = 0.0;
+        double totalDivergence = 0.0;
+        long teacherTime = 0;
+        long studentTime = 0;
+
+        if (inputs != null) {
+            for (double[] input : inputs) {
+                long start = System.nanoTime();
+                double[] expected = teacher.predict(input);
+                long middle = System.nanoTime();
+                double[] actual = student.predictProbabilities(input);
+                long end = System.nanoTime();
+                if (expected == null || actual == null || expected.length != actual.length) {
+                    continue;
+                }
+
+                double error = 0.0;
+                double divergence = 0.0;
+                for (int j = 0; j < actual.length; j++) {
+                    error += Math.abs(expected[j] - actual[j]);
+                    if (expected[j] > 0.0) {
+                        divergence += expected[j] * Math.log(expected[j] / Math.max(actual[j], MIN_PROBABILITY));
+                    }
+                }
+                totalError += error / actual.length;
+                totalDivergence += divergence;
+                if (argMax(expected) == argMax(actual)) {
+                    agreements++;
+                }
+                teacherTime += middle - start;
+                studentTime += end - middle;
+                samples++;
+            }
+        }
+
+        return new DistillationReport(student, samples,
+            samples > 0 ? (double) agreements / samples : 0.0,
+            samples > 0 ? totalError / samples : 0.0,
+            samples > 0 ? totalDivergence / samples : 0.0,
+            samples > 0 ? teacherTime / samples : 0,
+            samples > 0 ? studentTime / samples : 0);
+    }
+
+    private static int argMax(double[] values) {
+        int best = 0;
+        for (int j = 1; j < values.length; j++) {
+            if (values[j] > values[best]) {
+                best = j;
+            }
+        }
+        return best;
+    }
+
+    // ==================== GETTERS ====================
+
+    public DeepNeuralNetwork getStudent() { return student; }
+    public int getSamples() { return samples; }
+    public double getTopAgreement() { return topAgreement; }
+    public double getMeanAbsError() { return meanAbsError; }
+    public double getMeanDivergence() { return meanDivergence; }
+    public long getTeacherNanos() { return teacherNanos; }
+    public long getStudentNanos() { return studentNanos; }
+
+    /**
+     * Возвращает ускорение предсказания ученика относительно учителя
+     *
+     * @return отношение времени учителя ко времени ученика
+     */
+    public double getSpeedup() {
+        return studentNanos > 0 ? (double) teacherNanos / studentNanos : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DistillationReport[samples=%d, topAgreement=%.2f%%, meanAbsError=%.5f, "
+                + "meanDivergence=%.5f, teacher=%dns, student=%dns (%.1fx)]",
+            samples, topAgreement * 100, meanAbsError, meanDivergence, teacherNanos, studentNanos, getSpeedup());
+    }
+}
@@ -0,0 +1,319 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.utils.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Дистилляция ансамбля моделей в компактную сеть-ученика
+ *
+ * Ансамбль-учитель ({@link VotingEnsemble}, {@link StackingEnsemble},
+ * {@link BaggingEnsemble}) размечает ситуации своими распределениями
+ * классов, после чего небольшая {@link DeepNeuralNetwork} обучается на
+ * смягченных температурой метках
+ * ({@link DeepNeuralNetwork#distill(double[][], double[][], double, int)}).
+ * Ученик дает решения уровня ансамбля ценой одного прохода небольшой сети
+ * и используется вместо ансамбля при предсказании: распределения классов
+ * ученика возвращает {@link DeepNeuralNetwork#predictProbabilities(double[])}.
+ *
+ * Ситуации берутся из записанных входов обучения и могут дополняться
+ * смоделированными - зашумленными копиями записанных
+ * ({@link #simulate(double[][], int, double, long)}). Часть ситуаций
+ * откладывается для проверки: на ней строится {@link DistillationReport}
+ * о соответствии ученика учителю.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class EnsembleDistiller {
+
+    private static final Logger _log = Logger.getLogger(EnsembleDistiller.class);
+
+    // ==================== КОНСТАНТЫ ====================
+
+    /**
+     * Температура по умолчанию
+     */
+    public static final double DEFAULT_TEMPERATURE = 2.0;
+
+    /**
+     * Максимальное количество эпох обучения ученика по умолчанию
+     */
+    public static final int DEFAULT_MAX_EPOCHS = 500;
+
+    /**
+     * Скорость обучения ученика по умолчанию
+     */
+    public static final double DEFAULT_LEARNING_RATE = 0.3;
+
+    /**
+     * Доля ситуаций для проверки по умолчанию
+     */
+    public static final double DEFAULT_HOLDOUT_FRACTION = 0.2;
+
+    /**
+     * Максимальная доля ситуаций для проверки
+     */
+    private static final double MAX_HOLDOUT_FRACTION = 0.5;
+
+    // ==================== ПОЛЯ ====================
+
+    /**
+     * Ансамбль-учитель
+     */
+    private final EnsembleModel teacher;
+
+    /**
+     * Температура смягчения меток
+     */
+    private double temperature = DEFAULT_TEMPERATURE;
+
+    /**
+     * Размеры скрытых слоев ученика
+     */
+    private int[] hiddenSizes = {32};
+
+    /**
+     * Максимальное количество эпох обучения ученика
+     */
+    private int maxEpochs = DEFAULT_MAX_EPOCHS;
+
+    /**
+     * Скорость обучения ученика
+     */
+    private double learningRate = DEFAULT_LEARNING_RATE;
+
+    /**
+     * Доля ситуаций, отложенных для проверки
+     */
+    private double holdoutFraction = DEFAULT_HOLDOUT_FRACTION;
+
+    /**
+     * Зерно перемешивания ситуаций
+     */
+    private long seed = 0L;
+
+    // ==================== КОНСТРУКТОР ====================
+
+    /**
+     * Создает дистиллятор для ансамбля
+     *
+     * @param teacher активный ансамбль-учитель
+     */
+    public EnsembleDistiller(EnsembleModel teacher) {
+        if (teacher == null) {
+            throw new IllegalArgumentException("Teacher must not be null");
+        }
+        this.teacher = teacher;
+    }
+
+    // ==================== ДИСТИЛЛЯЦИЯ ====================
+
+    /**
+     * Обучает сеть-ученика по ситуациям
+     *
+     * Ситуации перемешиваются, часть откладывается для проверки, остальные
+     * размечаются учителем и используются для обучения ученика. Если
+     * отложенных ситуаций нет, отчет строится по обучающим.
+     *
+     * @param botId ID бота ученика
+     * @param situations входы ситуаций одинакового размера
+     * @return отчет с обученным учеником или null, если учитель не разметил ни одной ситуации
+     */
+    public DistillationReport distill(int botId, double[][] situations) {
+        if (situations == null || situations.length == 0) {
+            _log.warn("Cannot distill ensemble of bot " + teacher.getBotId() + ": no situations");
+            return null;
+        }
+
+        double[][] shuffled = shuffle(situations);
+        int holdout = Math.min((int) (shuffled.length * holdoutFraction), shuffled.length - 1);
+        double[][] training = new double[shuffled.length - holdout][];
+        double[][] evaluation = new double[holdout][];
+        System.arraycopy(shuffled, 0, evaluation, 0, holdout);
+        System.arraycopy(shuffled, holdout, training, 0, training.length);
+
+        // Размечаем обучающие ситуации распределениями учителя
+        List<double[]> inputs = new ArrayList<>();
+        List<double[]> labels = new ArrayList<>();
+        for (double[] situation : training) {
+            double[] label = situation != null ? teacher.predict(situation) : null;
+            if (label != null && label.length > 0) {
+                inputs.add(situation);
+                labels.add(label);
+            }
+        }
+        if (inputs.isEmpty()) {
+            _log.warn("Cannot distill ensemble of bot " + teacher.getBotId() + ": teacher labeled no situations");
+            return null;
+        }
+
+        DeepNeuralNetwork student = createStudent(botId, inputs.get(0).length, hiddenSizes, labels.get(0).length);
+        student.setLearningRate(learningRate);
+        student.distill(inputs.toArray(new double[0][]), labels.toArray(new double[0][]), temperature, maxEpochs);
+
+        DistillationReport report = DistillationReport.compare(teacher, student, holdout > 0 ? evaluation : training);
+        _log.info("Distilled ensemble of bot " + teacher.getBotId() + " into " + student.getArchitecture()
+            + " from " + inputs.size() + " situations: " + report);
+        return report;
+    }
+
+    /**
+     * Создает сеть-ученика
+     *
+     * Скрытые слои используют гиперболический тангенс, выходной слой -
+     * {@link ActivationFunction.Softmax}, поэтому {@link DeepNeuralNetwork#forward(double[])}
+     * возвращает логиты классов, а вероятности, как у ансамбля, дает
+     * {@link DeepNeuralNetwork#predictProbabilities(double[])}.
+     *
+     * @param botId ID бота
+     * @param inputSize размер входа
+     * @param hiddenSizes размеры скрытых слоев
+     * @param outputs количество классов
+     * @return активная сеть-ученик
+     */
+    public static DeepNeuralNetwork createStudent(int botId, int inputSize, int[] hiddenSizes, int outputs) {
+        DeepNeuralNetwork student = new DeepNeuralNetwork(botId);
+        int previous = inputSize;
+        for (int size : hiddenSizes) {
+            student.addLayer(createLayer(previous, size, new ActivationFunction.Tanh()));
+            previous = size;
+        }
+        student.addLayer(createLayer(previous, outputs, new ActivationFunction.Softmax()));
+        student.activate();
+        return student;
+    }
+
+    private static DenseLayer createLayer(int inputSize, int outputSize, ActivationFunction activation) {
+        DenseLayer layer = new DenseLayer(outputSize, activation);
+        layer.initialize(inputSize, outputSize);
+        return layer;
+    }
+
+    /**
+     * Дополняет записанные ситуации смоделированными
+     *
+     * Каждая смоделированная ситуация - копия записанной с гауссовым
+     * шумом заданной величины в каждом признаке.
+     *
+     * @param recorded записанные ситуации
+     * @param copies количество смоделированных копий каждой ситуации
+     * @param noise стандартное отклонение шума
+     * @param seed зерно генератора шума
+     * @return записанные ситуации, за которыми следуют смоделированные
+     */
+    public static double[][] simulate(double[][] recorded, int copies, double noise, long seed) {
+        Random random = new Random(seed);
+        int count = Math.max(0, copies);
+        double[][] result = new double[recorded.length * (1 + count)][];
+        System.arraycopy(recorded, 0, result, 0, recorded.length);
+        int next = recorded.length;
+        for (int c = 0; c < count; c++) {
+            for (double[] situation : recorded) {
+                double[] copy = situation.clone();
+                for (int j = 0; j < copy.length; j++) {
+                    copy[j] += random.nextGaussian() * noise;
+                }
+                result[next++] = copy;
+            }
+        }
+        return result;
+    }
+
+    private double[][] shuffle(double[][] situations) {
+        double[][] result = situations.clone();
+        Random random = new Random(seed);
+        for (int i = result.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            double[] swap = result[i];
+            result[i] = result[j];
+            result[j] = swap;
+        }
+        return result;
+    }
+
+    // ==================== НАСТРОЙКА ====================
+
+    /**
+     * Устанавливает температуру смягчения меток
+     *
+     * @param temperature температура (больше нуля)
+     */
+    public void setTemperature(double temperature) {
+        if (temperature > 0.0) {
+            this.temperature = temperature;
+        }
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    /**
+     * Устанавливает размеры скрытых слоев ученика
+     *
+     * @param hiddenSizes размеры слоев (пустой массив - ученик без скрытых слоев)
+     */
+    public void setHiddenSizes(int... hiddenSizes) {
+        if (hiddenSizes != null) {
+            this.hiddenSizes = hiddenSizes.clone();
+        }
+    }
+
+    public int[] getHiddenSizes() {
+        return hiddenSizes.clone();
+    }
+
+    /**
+     * Устанавливает максимальное количество эпох обучения ученика
+     *
+     * @param maxEpochs количество эпох
+     */
+    public void setMaxEpochs(int maxEpochs) {
+        this.maxEpochs = Math.max(1, maxEpochs);
+    }
+
+    public int getMaxEpochs() {
+        return maxEpochs;
+    }
+
+    /**
+     * Устанавливает скорость обучения ученика
+     *
+     * @param learningRate скорость обучения
+     */
+    public void setLearningRate(double learningRate) {
+        if (learningRate > 0.0) {
+            this.learningRate = learningRate;
+        }
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * Устанавливает долю ситуаций, отложенных для проверки
+     *
+     * @param holdoutFraction доля (0 - проверка на обучающих ситуациях)
+     */
+    public void setHoldoutFraction(double holdoutFraction) {
+        this.holdoutFraction = Math.max(0.0, Math.min(MAX_HOLDOUT_FRACTION, holdoutFraction));
+    }
+
+    public double getHoldoutFraction() {
+        return holdoutFraction;
+    }
+
+    /**
+     * Устанавливает зерно перемешивания ситуаций
+     *
+     * @param seed зерно
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -4,6 +4,11 @@ import net.sf.l2j.botmanager.utils.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
 
 /**
  * Базовый класс для ансамблей моделей
@@ -12,6 +17,17 @@ import java.util.List;
  * для повышения точности и надежности. Это особенно важно
  * для сложных задач, где одна модель может не справиться.
  * 
+ * Модели ансамбля могут выполняться параллельно в {@link ForkJoinPool}
+ * ({@link #setParallelExecution(boolean)}): предсказание и обучение каждой
+ * модели становятся отдельной задачей, поэтому задержка ансамбля
+ * приближается к задержке самой медленной модели. Модели ансамбля должны
+ * быть разными объектами.
+ * 
+ * В каскадном режиме ({@link #setCascadeEnabled(boolean)}) модели
+ * опрашиваются последовательно от самой быстрой к самой медленной по
+ * измеренному времени предсказания, и опрос прекращается, как только
+ * оставшиеся модели уже не могут изменить победивший класс.
+ * 
  * @author ni-okr
  * @version 3.4
  */
@@ -39,6 +55,26 @@ public abstract class EnsembleModel {
     /** Количество моделей */
     protected int modelCount;
     
+    // ==================== ВЫПОЛНЕНИЕ ====================
+    
+    /** Выполнять ли модели параллельно */
+    private volatile boolean parallelExecution = false;
+    
+    /** Пул потоков параллельного выполнения (null - общий пул) */
+    private volatile ForkJoinPool executionPool;
+    
+    /** Включен ли каскадный режим */
+    private volatile boolean cascadeEnabled = false;
+    
+    /** Скользящее среднее времени предсказания каждой модели (нс) */
+    private volatile AtomicLongArray memberCosts = new AtomicLongArray(0);
+    
+    /** Количество досрочных остановок каскада */
+    private final AtomicLong cascadeExits = new AtomicLong(0);
+    
+    /** Количество предсказаний моделей, пропущенных каскадом */
+    private final AtomicLong skippedEvaluations = new AtomicLong(0);
+    
     // ==================== КОНСТАНТЫ ====================
     
     /** Минимальное количество моделей */
@@ -53,6 +89,12 @@ public abstract class EnsembleModel {
     /** Максимальный вес модели */
     private static final double MAX_WEIGHT = 1.0;
     
+    /** Сдвиг скользящего среднего времени предсказания (вес нового замера 1/8) */
+    private static final int COST_SMOOTHING_SHIFT = 3;
+    
+    /** Допуск сравнения отрыва лидера при каскадном голосовании */
+    private static final double MARGIN_EPSILON = 1e-9;
+    
     // ==================== КОНСТРУКТОРЫ ====================
     
     /**
@@ -155,6 +197,7 @@ public abstract class EnsembleModel {
         try {
             // Инициализируем веса моделей
             initializeWeights();
+            memberCosts = new AtomicLongArray(modelCount);
             
             // Активируем ансамбль
             isActive = true;
@@ -262,25 +305,182 @@ public abstract class EnsembleModel {
     /**
      * Получает предсказания от всех моделей
      * 
+     * При параллельном выполнении каждая модель опрашивается отдельной
+     * задачей пула.
+     * 
      * @param input входные данные
      * @return массив предсказаний от каждой модели
      */
     protected double[][] getAllPredictions(double[] input) {
         double[][] predictions = new double[modelCount][];
-        
+        forEachMember(i -> predictions[i] = predictMember(i, input));
+        return predictions;
+    }
+    
+    /**
+     * Получает предсказания моделей каскадом
+     * 
+     * Модели опрашиваются от самой быстрой к самой медленной. Голоса
+     * копятся по классам: при жестком голосовании модель отдает свой вес
+     * классу с наибольшим выходом, при мягком - добавляет к каждому классу
+     * выход, умноженный на вес. Опрос прекращается, когда отрыв лидера от
+     * второго класса больше суммарного веса оставшихся моделей. При мягком
+     * голосовании это гарантирует тот же победивший класс, только пока
+     * выходы моделей лежат в [0, 1]; после выхода за этот диапазон
+     * опрашиваются все модели.
+     * 
+     * @param input входные данные
+     * @param outputs количество классов
+     * @param hardVotes true - жесткое голосование, false - мягкое
+     * @param weights веса моделей (null - равные веса)
+     * @return предсказания моделей; для пропущенных моделей null
+     */
+    protected double[][] getCascadePredictions(double[] input, int outputs, boolean hardVotes, double[] weights) {
+        double[][] predictions = new double[modelCount][];
+        int[] order = getCostOrder();
+        double[] tally = new double[outputs];
+        double remaining = 0.0;
         for (int i = 0; i < modelCount; i++) {
-            try {
-                Object model = models.get(i);
-                predictions[i] = getModelPrediction(model, input);
-            } catch (Exception e) {
-                _log.error("Error getting prediction from model " + i + " for bot " + botId + ": " + e.getMessage());
-                predictions[i] = new double[0]; // Пустое предсказание
-            }
+            remaining += weights != null ? weights[i] : 1.0;
         }
         
+        boolean bounded = true;
+        for (int k = 0; k < order.length; k++) {
+            int member = order[k];
+            double weight = weights != null ? weights[member] : 1.0;
+            double[] prediction = predictMember(member, input);
+            predictions[member] = prediction;
+            remaining -= weight;
+            
+            if (prediction != null && prediction.length == outputs) {
+                if (hardVotes) {
+                    tally[argMax(prediction)] += weight;
+                } else {
+                    for (int j = 0; j < outputs; j++) {
+                        double value = prediction[j];
+                        if (!(value >= 0.0 && value <= 1.0)) {
+                            bounded = false;
+                        }
+                        tally[j] += weight * value;
+                    }
+                }
+            }
+            
+            if (bounded && k < order.length - 1 && leaderMargin(tally) > remaining + MARGIN_EPSILON) {
+                cascadeExits.incrementAndGet();
+                skippedEvaluations.addAndGet(order.length - 1 - k);
+                break;
+            }
+        }
         return predictions;
     }
     
+    /**
+     * Выполняет действие для каждой модели
+     * 
+     * При параллельном выполнении модели обрабатываются задачами пула, и
+     * метод возвращает управление после завершения всех задач.
+     * 
+     * @param action действие, принимающее индекс модели
+     */
+    protected void forEachMember(IntConsumer action) {
+        if (parallelExecution && modelCount > 1) {
+            ForkJoinPool pool = executionPool;
+            (pool != null ? pool : ForkJoinPool.commonPool()).invoke(new MemberTask(action, 0, modelCount));
+        } else {
+            for (int i = 0; i < modelCount; i++) {
+                action.accept(i);
+            }
+        }
+    }
+    
+    /**
+     * Получает предсказание модели и учитывает время его выполнения
+     * 
+     * @param index индекс модели
+     * @param input входные данные
+     * @return предсказание (пустой массив при ошибке)
+     */
+    private double[] predictMember(int index, double[] input) {
+        long start = System.nanoTime();
+        try {
+            return getModelPrediction(models.get(index), input);
+        } catch (Exception e) {
+            _log.error("Error getting prediction from model " + index + " for bot " + botId + ": " + e.getMessage());
+            return new double[0]; // Пустое предсказание
+        } finally {
+            recordCost(index, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Обновляет скользящее среднее времени предсказания модели
+     * 
+     * @param index индекс модели
+     * @param nanos время предсказания
+     */
+    private void recordCost(int index, long nanos) {
+        AtomicLongArray costs = memberCosts;
+        if (index < costs.length()) {
+            long previous = costs.get(index);
+            costs.set(index, previous == 0 ? nanos : previous + ((nanos - previous) >> COST_SMOOTHING_SHIFT));
+        }
+    }
+    
+    /**
+     * Возвращает индексы моделей по возрастанию времени предсказания
+     * 
+     * @return порядок опроса моделей
+     */
+    private int[] getCostOrder() {
+        AtomicLongArray costs = memberCosts;
+        int[] order = new int[modelCount];
+        long[] keys = new long[modelCount];
+        for (int i = 0; i < modelCount; i++) {
+            long cost = i < costs.length() ? costs.get(i) : 0;
+            // Сортировка вставками: моделей немного, порядок равных сохраняется
+            int k = i;
+            while (k > 0 && keys[k - 1] > cost) {
+                keys[k] = keys[k - 1];
+                order[k] = order[k - 1];
+                k--;
+            }
+            keys[k] = cost;
+            order[k] = i;
+        }
+        return order;
+    }
+    
+    private static int argMax(double[] values) {
+        int best = 0;
+        for (int j = 1; j < values.length; j++) {
+            if (values[j] > values[best]) {
+                best = j;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Возвращает отрыв наибольшей суммы голосов от второй по величине
+     * 
+     * @param tally суммы голосов по классам
+     * @return отрыв лидера
+     */
+    private static double leaderMargin(double[] tally) {
+        double first = Double.NEGATIVE_INFINITY;
+        double second = Double.NEGATIVE_INFINITY;
+        for (double value : tally) {
+            if (value > first) {
+                second = first;
+                first = value;
+            } else if (value > second) {
+                second = value;
+            }
+        }
+        return tally.length > 1 ? first - second : Double.POSITIVE_INFINITY;
+    }
+    
     /**
      * Получает предсказание от конкретной модели
      * 
@@ -337,6 +537,83 @@ public abstract class EnsembleModel {
         return modelWeights != null ? modelWeights.clone() : null;
     }
     
+    /**
+     * Включает или выключает параллельное выполнение моделей
+     * 
+     * @param parallel true - модели выполняются параллельно
+     */
+    public void setParallelExecution(boolean parallel) {
+        this.parallelExecution = parallel;
+    }
+    
+    /**
+     * Возвращает, выполняются ли модели параллельно
+     * 
+     * @return true, если выполнение параллельное
+     */
+    public boolean isParallelExecution() {
+        return parallelExecution;
+    }
+    
+    /**
+     * Устанавливает пул потоков параллельного выполнения
+     * 
+     * @param pool пул потоков или null для общего пула
+     */
+    public void setExecutionPool(ForkJoinPool pool) {
+        this.executionPool = pool;
+    }
+    
+    /**
+     * Включает или выключает каскадный режим предсказания
+     * 
+     * @param enabled true - каскадный режим
+     */
+    public void setCascadeEnabled(boolean enabled) {
+        this.cascadeEnabled = enabled;
+    }
+    
+    /**
+     * Возвращает, включен ли каскадный режим
+     * 
+     * @return true, если каскадный режим включен
+     */
+    public boolean isCascadeEnabled() {
+        return cascadeEnabled;
+    }
+    
+    /**
+     * Возвращает количество досрочных остановок каскада
+     * 
+     * @return количество остановок
+     */
+    public long getCascadeExits() {
+        return cascadeExits.get();
+    }
+    
+    /**
+     * Возвращает количество предсказаний моделей, пропущенных каскадом
+     * 
+     * @return количество пропущенных предсказаний
+     */
+    public long getSkippedEvaluations() {
+        return skippedEvaluations.get();
+    }
+    
+    /**
+     * Возвращает скользящее среднее времени предсказания каждой модели
+     * 
+     * @return время в наносекундах по индексам моделей
+     */
+    public long[] getMemberCosts() {
+        AtomicLongArray costs = memberCosts;
+        long[] result = new long[costs.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = costs.get(i);
+        }
+        return result;
+    }
+    
     /**
      * Возвращает статистику ансамбля
      * 
@@ -349,6 +626,10 @@ public abstract class EnsembleModel {
         stats.append("Type: ").append(type).append("\n");
         stats.append("Models: ").append(modelCount).append("\n");
         stats.append("Active: ").append(isActive).append("\n");
+        stats.append("Parallel: ").append(parallelExecution).append("\n");
+        stats.append("Cascade: ").append(cascadeEnabled)
+             .append(" (exits: ").append(cascadeExits.get())
+             .append(", skipped: ").append(skippedEvaluations.get()).append(")\n");
         
         if (modelWeights != null) {
             stats.append("Weights: ");
@@ -366,6 +647,33 @@ public abstract class EnsembleModel {
     
     // ==================== ВЛОЖЕННЫЕ КЛАССЫ ====================
     
+    /**
+     * Задача обработки моделей [lo, hi)
+     */
+    private static final class MemberTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer action;
+        private final int lo;
+        private final int hi;
+        
+        MemberTask(IntConsumer action, int lo, int hi) {
+            this.action = action;
+            this.lo = lo;
+            this.hi = hi;
+        }
+        
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                action.accept(lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new MemberTask(action, lo, mid), new MemberTask(action, mid, hi));
+        }
+    }
+    
     /**
      * Типы ансамблей
      */
@@ -0,0 +1,669 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.utils.Logger;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Буфер воспроизведения опыта вне кучи
+ *
+ * Хранит скользящее окно из последних записей опыта бота фиксированного
+ * размера: вектор признаков состояния, действие, награду, вектор признаков
+ * следующего состояния и признак завершения эпизода. Записи лежат в одном
+ * прямом {@link ByteBuffer} (признаки в float) или в файле, отображенном в
+ * память, поэтому окно опыта не создает объектов в куче и не нагружает
+ * сборщик мусора.
+ *
+ * Добавление записей не блокируется и безопасно из нескольких потоков
+ * тиков: позиция записи выделяется атомарным счетчиком, а каждая ячейка
+ * защищена последовательным номером (seqlock), по которому читатель
+ * отбрасывает записи, перезаписанные во время чтения. Выборка (равномерная
+ * или приоритетная по дереву сумм) и обновление приоритетов выполняются
+ * одним потоком обучения за раз и копируют записи в переиспользуемый
+ * {@link Batch}, поэтому цикл онлайн-обучения не создает мусора на пример.
+ *
+ * Буфер, открытый на файле, переживает перезапуск: при совпадении
+ * параметров записи восстанавливаются из файла.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class ExperienceReplayBuffer implements AutoCloseable {
+
+    private static final Logger _log = Logger.getLogger(ExperienceReplayBuffer.class);
+
+    // ==================== КОНСТАНТЫ ====================
+
+    /**
+     * Показатель степени приоритета по умолчанию
+     */
+    public static final double DEFAULT_ALPHA = 0.6;
+
+    /**
+     * Показатель степени весов важности по умолчанию
+     */
+    public static final double DEFAULT_BETA = 0.4;
+
+    private static final int MAGIC = 0x524A324C; // "L2JR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int ACTION_OFFSET = 8;
+    private static final int REWARD_OFFSET = 12;
+    private static final int PRIORITY_OFFSET = 16;
+    private static final int FLAGS_OFFSET = 20;
+    private static final int STATE_OFFSET = 24;
+
+    private static final int FLAG_DONE = 1;
+
+    /**
+     * Ячейка еще не записана
+     */
+    private static final long EMPTY = -1L;
+
+    /**
+     * Ячейка записывается
+     */
+    private static final long BUSY = -2L;
+
+    /**
+     * Добавка к приоритету, чтобы записи с нулевой ошибкой оставались в выборке
+     */
+    private static final double PRIORITY_EPSILON = 1e-6;
+
+    /**
+     * Количество попыток выбрать целую запись для одной позиции пакета
+     */
+    private static final int MAX_SAMPLE_ATTEMPTS = 8;
+
+    // ==================== ПОЛЯ ====================
+
+    private final int capacity;
+    private final int featureSize;
+    private final int recordSize;
+
+    /**
+     * Записи буфера
+     */
+    private final ByteBuffer records;
+
+    /**
+     * Канал файла (null для буфера в памяти)
+     */
+    private final FileChannel channel;
+
+    /**
+     * Номер последней опубликованной записи в каждой ячейке
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * Номер следующей записи
+     */
+    private final AtomicLong head = new AtomicLong(0);
+
+    /**
+     * Наибольший приоритет (приоритет новых записей)
+     */
+    private volatile double maxPriority = 1.0;
+
+    // Состояние выборки, доступное только под монитором буфера
+    private final SumTree priorities;
+    private long syncedHead;
+    private double alpha = DEFAULT_ALPHA;
+    private double beta = DEFAULT_BETA;
+    private SplittableRandom random = new SplittableRandom();
+
+    // ==================== КОНСТРУКТОРЫ ====================
+
+    /**
+     * Создает буфер в памяти вне кучи
+     *
+     * @param capacity количество записей
+     * @param featureSize размер вектора признаков состояния
+     */
+    public ExperienceReplayBuffer(int capacity, int featureSize) {
+        this.capacity = capacity;
+        this.featureSize = featureSize;
+        this.recordSize = recordSize(featureSize);
+        this.records = ByteBuffer.allocateDirect(checkedSize(capacity, featureSize)).order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = null;
+        this.published = new AtomicLongArray(capacity);
+        this.priorities = new SumTree(capacity);
+        initialize();
+    }
+
+    /**
+     * Создает буфер в файле, отображенном в память
+     *
+     * Если файл уже содержит буфер с теми же параметрами, записи
+     * восстанавливаются; иначе файл перезаписывается пустым буфером.
+     *
+     * @param capacity количество записей
+     * @param featureSize размер вектора признаков состояния
+     * @param file файл буфера
+     * @throws IOException при ошибке открытия файла
+     */
+    public ExperienceReplayBuffer(int capacity, int featureSize, Path file) throws IOException {
+        this.capacity = capacity;
+        this.featureSize = featureSize;
+        this.recordSize = recordSize(featureSize);
+        int size = checkedSize(capacity, featureSize);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean existing = channel.size() == size;
+            if (channel.size() > size) {
+                channel.truncate(size);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            this.records = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            this.published = new AtomicLongArray(capacity);
+            this.priorities = new SumTree(capacity);
+            if (existing && hasHeader()) {
+                recover();
+                _log.info("Experience replay buffer recovered " + size() + " records from " + file);
+            } else {
+                initialize();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int recordSize(int featureSize) {
+        return (STATE_OFFSET + 2 * Float.BYTES * featureSize + 7) & ~7;
+    }
+
+    private static int checkedSize(int capacity, int featureSize) {
+        if (capacity <= 0 || featureSize <= 0) {
+            throw new IllegalArgumentException("Capacity and feature size must be positive: "
+                + capacity + ", " + featureSize);
+        }
+        long size = HEADER_SIZE + (long) capacity * recordSize(featureSize);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Replay buffer too large: " + size + " bytes");
+        }
+        return (int) size;
+    }
+
+    private void initialize() {
+        records.putInt(0, MAGIC);
+        records.putInt(4, VERSION);
+        records.putInt(8, capacity);
+        records.putInt(12, featureSize);
+        for (int slot = 0; slot < capacity; slot++) {
+            records.putLong(base(slot) + SEQUENCE_OFFSET, EMPTY);
+            published.set(slot, EMPTY);
+        }
+    }
+
+    private boolean hasHeader() {
+        return records.getInt(0) == MAGIC && records.getInt(4) == VERSION
+            && records.getInt(8) == capacity && records.getInt(12) == featureSize;
+    }
+
+    /**
+     * Восстанавливает номера записей из файла
+     */
+    private void recover() {
+        long next = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            long sequence = records.getLong(base(slot) + SEQUENCE_OFFSET);
+            // Незавершенная при сбое запись имеет номер EMPTY и отбрасывается
+            if (sequence < 0 || sequence % capacity != slot) {
+                sequence = EMPTY;
+                records.putLong(base(slot) + SEQUENCE_OFFSET, EMPTY);
+            }
+            published.set(slot, sequence);
+            next = Math.max(next, sequence + 1);
+        }
+        head.set(next);
+        syncedHead = Math.max(0, next - capacity);
+    }
+
+    private int base(int slot) {
+        return HEADER_SIZE + slot * recordSize;
+    }
+
+    // ==================== ДОБАВЛЕНИЕ ====================
+
+    /**
+     * Добавляет запись опыта с наибольшим текущим приоритетом
+     *
+     * @param state признаки состояния (не меньше размера признаков)
+     * @param action выполненное действие
+     * @param reward полученная награда
+     * @param nextState признаки следующего состояния
+     * @param done завершился ли эпизод
+     * @return номер записи
+     */
+    public long append(double[] state, int action, double reward, double[] nextState, boolean done) {
+        return append(state, 0, action, reward, nextState, 0, done, maxPriority);
+    }
+
+    /**
+     * Добавляет запись опыта
+     *
+     * Метод не блокируется и не выделяет память. Если запись за время
+     * добавления уже перезаписана более новой (буфер обошли по кругу),
+     * она отбрасывается.
+     *
+     * @param state массив с признаками состояния
+     * @param stateOffset смещение признаков состояния
+     * @param action выполненное действие
+     * @param reward полученная награда
+     * @param nextState массив с признаками следующего состояния
+     * @param nextOffset смещение признаков следующего состояния
+     * @param done завершился ли эпизод
+     * @param priority приоритет записи
+     * @return номер записи
+     */
+    public long append(double[] state, int stateOffset, int action, double reward,
+                       double[] nextState, int nextOffset, boolean done, double priority) {
+        long sequence = head.getAndIncrement();
+        int slot = (int) (sequence % capacity);
+
+        // Захватываем ячейку; ее может еще записывать поток, обогнанный на круг
+        long previous;
+        do {
+            previous = published.get(slot);
+            if (previous > sequence) {
+                return sequence;
+            }
+        } while (previous == BUSY || !published.compareAndSet(slot, previous, BUSY));
+
+        int base = base(slot);
+        records.putLong(base + SEQUENCE_OFFSET, EMPTY);
+        records.putInt(base + ACTION_OFFSET, action);
+        records.putFloat(base + REWARD_OFFSET, (float) reward);
+        records.putFloat(base + PRIORITY_OFFSET, (float) priority);
+        records.putInt(base + FLAGS_OFFSET, done ? FLAG_DONE : 0);
+        int stateBase = base + STATE_OFFSET;
+        int nextBase = stateBase + featureSize * Float.BYTES;
+        for (int j = 0; j < featureSize; j++) {
+            records.putFloat(stateBase + j * Float.BYTES, (float) state[stateOffset + j]);
+            records.putFloat(nextBase + j * Float.BYTES, (float) nextState[nextOffset + j]);
+        }
+        records.putLong(base + SEQUENCE_OFFSET, sequence);
+
+        // Публикация (volatile) делает запись видимой читателям
+        published.set(slot, sequence);
+        return sequence;
+    }
+
+    // ==================== ВЫБОРКА ====================
+
+    /**
+     * Создает переиспользуемый пакет выборки
+     *
+     * @param batchSize размер пакета
+     * @return пакет
+     */
+    public Batch createBatch(int batchSize) {
+        return new Batch(Math.max(1, batchSize), featureSize);
+    }
+
+    /**
+     * Выбирает записи равномерно
+     *
+     * @param batch пакет для заполнения (его размер - размер выборки)
+     * @return количество выбранных записей
+     */
+    public synchronized int sampleUniform(Batch batch) {
+        long end = head.get();
+        long start = Math.max(0, end - capacity);
+        batch.size = 0;
+        if (end == start) {
+            return 0;
+        }
+
+        for (int k = 0; k < batch.capacity; k++) {
+            for (int attempt = 0; attempt < MAX_SAMPLE_ATTEMPTS; attempt++) {
+                int slot = (int) ((start + random.nextLong(end - start)) % capacity);
+                if (read(slot, batch, batch.size)) {
+                    batch.weights[batch.size++] = 1.0;
+                    break;
+                }
+            }
+        }
+        return batch.size;
+    }
+
+    /**
+     * Выбирает записи пропорционально приоритету
+     *
+     * Вероятность записи равна p^alpha / сумма p^alpha. Выборка
+     * стратифицирована: диапазон сумм делится на равные отрезки по
+     * размеру пакета. Веса важности (N * P)^-beta нормируются на
+     * наибольший вес пакета.
+     *
+     * @param batch пакет для заполнения (его размер - размер выборки)
+     * @return количество выбранных записей
+     */
+    public synchronized int samplePrioritized(Batch batch) {
+        syncPriorities();
+        batch.size = 0;
+        double total = priorities.total();
+        if (!(total > 0.0)) {
+            return 0;
+        }
+
+        int count = size();
+        double segment = total / batch.capacity;
+        double maxWeight = 0.0;
+        for (int k = 0; k < batch.capacity; k++) {
+            for (int attempt = 0; attempt < MAX_SAMPLE_ATTEMPTS; attempt++) {
+                int slot = priorities.find((k + random.nextDouble()) * segment);
+                double probability = priorities.get(slot) / total;
+                if (probability > 0.0 && read(slot, batch, batch.size)) {
+                    double weight = Math.pow(count * probability, -beta);
+                    batch.weights[batch.size++] = weight;
+                    maxWeight = Math.max(maxWeight, weight);
+                    break;
+                }
+            }
+        }
+        for (int k = 0; k < batch.size; k++) {
+            batch.weights[k] /= maxWeight;
+        }
+        return batch.size;
+    }
+
+    /**
+     * Обновляет приоритеты выбранных записей
+     *
+     * Записи, перезаписанные после выборки, пропускаются.
+     *
+     * @param batch пакет последней выборки
+     * @param newPriorities новые приоритеты по позициям пакета (например, модуль ошибки)
+     */
+    public synchronized void updatePriorities(Batch batch, double[] newPriorities) {
+        syncPriorities();
+        for (int k = 0; k < batch.size; k++) {
+            int slot = batch.slots[k];
+            if (published.get(slot) != batch.sequences[k]) {
+                continue;
+            }
+            double priority = Math.abs(newPriorities[k]);
+            records.putFloat(base(slot) + PRIORITY_OFFSET, (float) priority);
+            priorities.set(slot, Math.pow(priority + PRIORITY_EPSILON, alpha));
+            if (priority > maxPriority) {
+                maxPriority = priority;
+            }
+        }
+    }
+
+    /**
+     * Переносит приоритеты новых записей в дерево сумм
+     *
+     * Перенос останавливается на первой недописанной записи и
+     * продолжается при следующей выборке.
+     */
+    private void syncPriorities() {
+        long end = head.get();
+        long next = Math.max(syncedHead, end - capacity);
+        for (; next < end; next++) {
+            int slot = (int) (next % capacity);
+            long sequence = published.get(slot);
+            if (sequence == BUSY || sequence < next) {
+                break;
+            }
+            if (sequence == next) {
+                double priority = records.getFloat(base(slot) + PRIORITY_OFFSET);
+                priorities.set(slot, Math.pow(priority + PRIORITY_EPSILON, alpha));
+                if (priority > maxPriority) {
+                    maxPriority = priority;
+                }
+            }
+        }
+        syncedHead = next;
+    }
+
+    /**
+     * Копирует запись ячейки в позицию пакета
+     *
+     * @return false, если ячейка пуста или перезаписывалась во время чтения
+     */
+    private boolean read(int slot, Batch batch, int index) {
+        long sequence = published.get(slot);
+        if (sequence < 0) {
+            return false;
+        }
+
+        int base = base(slot);
+        batch.actions[index] = records.getInt(base + ACTION_OFFSET);
+        batch.rewards[index] = records.getFloat(base + REWARD_OFFSET);
+        batch.done[index] = (records.getInt(base + FLAGS_OFFSET) & FLAG_DONE) != 0;
+        int stateBase = base + STATE_OFFSET;
+        int nextBase = stateBase + featureSize * Float.BYTES;
+        int row = index * featureSize;
+        for (int j = 0; j < featureSize; j++) {
+            batch.states[row + j] = records.getFloat(stateBase + j * Float.BYTES);
+            batch.nextStates[row + j] = records.getFloat(nextBase + j * Float.BYTES);
+        }
+
+        // Чтения записи не должны переместиться за повторную проверку номера
+        VarHandle.acquireFence();
+        if (published.get(slot) != sequence) {
+            return false;
+        }
+        batch.slots[index] = slot;
+        batch.sequences[index] = sequence;
+        return true;
+    }
+
+    // ==================== УПРАВЛЕНИЕ ====================
+
+    /**
+     * Сбрасывает изменения файла на диск
+     */
+    public void flush() {
+        if (records instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) records).force();
+        }
+    }
+
+    /**
+     * Закрывает файл буфера
+     *
+     * Отображение файла освобождается сборщиком мусора после закрытия.
+     *
+     * @throws IOException при ошибке закрытия файла
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+        }
+    }
+
+    // ==================== НАСТРОЙКА И СТАТИСТИКА ====================
+
+    /**
+     * Устанавливает показатели степени приоритетной выборки
+     *
+     * @param alpha степень приоритета (0 - равномерная выборка)
+     * @param beta степень весов важности (1 - полная поправка)
+     */
+    public synchronized void setPrioritization(double alpha, double beta) {
+        if (alpha >= 0.0 && beta >= 0.0) {
+            this.alpha = alpha;
+            this.beta = beta;
+            // Пересчитываем дерево с новой степенью
+            syncedHead = Math.max(0, head.get() - capacity);
+            priorities.clear();
+            syncPriorities();
+        }
+    }
+
+    /**
+     * Устанавливает зерно генератора выборки
+     *
+     * @param seed зерно
+     */
+    public synchronized void setSeed(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Возвращает количество записей в буфере
+     *
+     * @return количество записей
+     */
+    public int size() {
+        return (int) Math.min(head.get(), capacity);
+    }
+
+    /**
+     * Возвращает количество записей, добавленных за все время
+     *
+     * @return количество записей
+     */
+    public long getTotalAppended() {
+        return head.get();
+    }
+
+    /**
+     * Возвращает наибольший приоритет (приоритет новых записей)
+     *
+     * @return приоритет
+     */
+    public double getMaxPriority() {
+        return maxPriority;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getFeatureSize() {
+        return featureSize;
+    }
+
+    /**
+     * Возвращает объем памяти записей
+     *
+     * @return размер в байтах
+     */
+    public long getMemoryBytes() {
+        return records.capacity();
+    }
+
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+
+    /**
+     * Переиспользуемый пакет выборки
+     *
+     * Признаки состояний хранятся построчно в одном массиве
+     * [размер * признаки], как пакетные входы полносвязных слоев.
+     * Массивы возвращаются без копирования и перезаписываются следующей
+     * выборкой.
+     */
+    public static final class Batch {
+        private final int capacity;
+        private final int featureSize;
+        private final double[] states;
+        private final double[] nextStates;
+        private final int[] actions;
+        private final double[] rewards;
+        private final boolean[] done;
+        private final double[] weights;
+        private final int[] slots;
+        private final long[] sequences;
+        private int size;
+
+        private Batch(int capacity, int featureSize) {
+            this.capacity = capacity;
+            this.featureSize = featureSize;
+            this.states = new double[capacity * featureSize];
+            this.nextStates = new double[capacity * featureSize];
+            this.actions = new int[capacity];
+            this.rewards = new double[capacity];
+            this.done = new boolean[capacity];
+            this.weights = new double[capacity];
+            this.slots = new int[capacity];
+            this.sequences = new long[capacity];
+        }
+
+        public int getCapacity() { return capacity; }
+        public int getFeatureSize() { return featureSize; }
+        public int size() { return size; }
+        public double[] getStates() { return states; }
+        public double[] getNextStates() { return nextStates; }
+        public int[] getActions() { return actions; }
+        public double[] getRewards() { return rewards; }
+        public boolean[] getDone() { return done; }
+        public double[] getWeights() { return weights; }
+        public long[] getSequences() { return sequences; }
+    }
+
+    /**
+     * Дерево сумм приоритетов по ячейкам
+     */
+    private static final class SumTree {
+        private final int leaves;
+        private final double[] tree;
+
+        SumTree(int capacity) {
+            int size = 1;
+            while (size < capacity) {
+                size <<= 1;
+            }
+            this.leaves = size;
+            this.tree = new double[2 * size];
+        }
+
+        void set(int slot, double value) {
+            int node = leaves + slot;
+            double delta = value - tree[node];
+            for (; node > 0; node >>= 1) {
+                tree[node] += delta;
+            }
+        }
+
+        double get(int slot) {
+            return tree[leaves + slot];
+        }
+
+        double total() {
+            return tree[1];
+        }
+
+        /**
+         * Находит ячейку, на которую приходится накопленная сумма
+         */
+        int find(double prefix) {
+            int node = 1;
+            while (node < leaves) {
+                int left = node << 1;
+                if (prefix < tree[left] || tree[left + 1] <= 0.0) {
+                    node = left;
+                } else {
+                    prefix -= tree[left];
+                    node = left + 1;
+                }
+            }
+            return node - leaves;
+        }
+
+        void clear() {
+            Arrays.fill(tree, 0.0);
+        }
+    }
+}
@@ -7,17 +7,25 @@ import net.sf.l2j.botmanager.actions.ActionType;
 import net.sf.l2j.botmanager.utils.Logger;
 
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Система сбора обратной связи для обучения ботов.
  * Собирает данные о результатах действий и эффективности поведения.
+ * 
+ * Кроме статистики по типам действий и поведений ведется сводная
+ * статистика каждого бота, доступная по его идентификатору без перебора.
+ * Запись не блокируется: счетчики распределены по ячейкам, детали
+ * хранятся кодами.
+ * 
+ * Слушатели уведомляются асинхронно пакетами через {@link FeedbackDispatcher}:
+ * запись лишь ставит результат в очередь, поэтому время тика не зависит
+ * от количества и скорости слушателей.
  */
 public class FeedbackCollector {
     private static final Logger logger = Logger.getLogger(FeedbackCollector.class);
@@ -29,16 +37,19 @@ public class FeedbackCollector {
     // Статистика по поведениям
     private final Map<BehaviorType, BehaviorFeedback> behaviorFeedback = new ConcurrentHashMap<>();
     
-    // Слушатели обратной связи
-    private final List<IFeedbackListener> listeners = new CopyOnWriteArrayList<>();
+    // Сводная статистика по ботам
+    private final Map<Integer, BotFeedback> botFeedback = new ConcurrentHashMap<>();
+    
+    // Рассылка слушателям обратной связи
+    private final FeedbackDispatcher dispatcher = new FeedbackDispatcher();
     
     // Общая статистика
-    private final AtomicLong totalActions = new AtomicLong(0);
-    private final AtomicLong totalBehaviors = new AtomicLong(0);
-    private final AtomicLong successfulActions = new AtomicLong(0);
-    private final AtomicLong successfulBehaviors = new AtomicLong(0);
+    private final LongAdder totalActions = new LongAdder();
+    private final LongAdder totalBehaviors = new LongAdder();
+    private final LongAdder successfulActions = new LongAdder();
+    private final LongAdder successfulBehaviors = new LongAdder();
     
-    private boolean active = false;
+    private volatile boolean active = false;
     
     private FeedbackCollector() {
         initialize();
@@ -79,21 +90,27 @@ public class FeedbackCollector {
                            long executionTime, String details) {
         if (!active) return;
         
+        int detailsCode = FeedbackDetails.codeOf(details);
         ActionFeedback feedback = actionFeedback.get(actionType);
         if (feedback != null) {
-            feedback.recordExecution(success, executionTime, details);
+            feedback.recordExecution(success, executionTime, detailsCode);
+        }
+        if (bot != null) {
+            feedbackOf(bot.getBotId()).actions.recordExecution(success, executionTime, detailsCode);
         }
         
-        totalActions.incrementAndGet();
+        totalActions.increment();
         if (success) {
-            successfulActions.incrementAndGet();
+            successfulActions.increment();
         }
         
         // Уведомить слушателей
         notifyActionFeedback(bot, actionType, success, executionTime, details);
         
-        logger.debug("Recorded action: " + actionType + " - " + (success ? "SUCCESS" : "FAILURE") + 
-                    " (" + executionTime + "ms)");
+        if (logger.isDebugEnabled()) {
+            logger.debug("Recorded action: " + actionType + " - " + (success ? "SUCCESS" : "FAILURE") + 
+                        " (" + executionTime + "ms)");
+        }
     }
     
     /**
@@ -103,21 +120,27 @@ public class FeedbackCollector {
                              long executionTime, int actionsPerformed, String details) {
         if (!active) return;
         
+        int detailsCode = FeedbackDetails.codeOf(details);
         BehaviorFeedback feedback = behaviorFeedback.get(behaviorType);
         if (feedback != null) {
-            feedback.recordExecution(success, executionTime, actionsPerformed, details);
+            feedback.recordExecution(success, executionTime, actionsPerformed, detailsCode);
+        }
+        if (bot != null) {
+            feedbackOf(bot.getBotId()).behaviors.recordExecution(success, executionTime, actionsPerformed, detailsCode);
         }
         
-        totalBehaviors.incrementAndGet();
+        totalBehaviors.increment();
         if (success) {
-            successfulBehaviors.incrementAndGet();
+            successfulBehaviors.increment();
         }
         
         // Уведомить слушателей
         notifyBehaviorFeedback(bot, behaviorType, success, executionTime, actionsPerformed, details);
         
-        logger.debug("Recorded behavior: " + behaviorType + " - " + (success ? "SUCCESS" : "FAILURE") + 
-                    " (" + executionTime + "ms, " + actionsPerformed + " actions)");
+        if (logger.isDebugEnabled()) {
+            logger.debug("Recorded behavior: " + behaviorType + " - " + (success ? "SUCCESS" : "FAILURE") + 
+                        " (" + executionTime + "ms, " + actionsPerformed + " actions)");
+        }
     }
     
     /**
@@ -127,10 +150,11 @@ public class FeedbackCollector {
                                   Map<String, Object> parameters, double learningValue) {
         if (!active) return;
         
-        LearningEvent event = new LearningEvent(bot.getBotId(), eventType, parameters, learningValue);
-        
         // Уведомить слушателей
-        notifyLearningEvent(bot, event);
+        if (dispatcher.hasListeners()) {
+            LearningEvent event = new LearningEvent(bot.getBotId(), eventType, parameters, learningValue);
+            dispatcher.publish(FeedbackRecord.learningEvent(bot, event));
+        }
         
         logger.debug("Recorded learning event: " + eventType + " for bot " + bot.getBotId() + 
                     " (value: " + learningValue + ")");
@@ -140,8 +164,14 @@ public class FeedbackCollector {
      * Добавить слушателя обратной связи.
      */
     public void addListener(IFeedbackListener listener) {
-        if (listener != null && !listeners.contains(listener)) {
-            listeners.add(listener);
+        addListener(listener, FeedbackDispatcher.DEFAULT_LISTENER_CAPACITY, FeedbackDispatcher.DropPolicy.DROP_OLDEST);
+    }
+    
+    /**
+     * Добавить слушателя с собственной емкостью очереди и политикой отбрасывания.
+     */
+    public void addListener(IFeedbackListener listener, int capacity, FeedbackDispatcher.DropPolicy policy) {
+        if (dispatcher.subscribe(listener, capacity, policy)) {
             logger.debug("Added feedback listener: " + listener.getClass().getSimpleName());
         }
     }
@@ -150,7 +180,7 @@ public class FeedbackCollector {
      * Удалить слушателя обратной связи.
      */
     public void removeListener(IFeedbackListener listener) {
-        if (listeners.remove(listener)) {
+        if (dispatcher.unsubscribe(listener)) {
             logger.debug("Removed feedback listener: " + listener.getClass().getSimpleName());
         }
     }
@@ -163,12 +193,13 @@ public class FeedbackCollector {
     }
     
     /**
-     * Получить статистику по действиям для конкретного бота.
+     * Получить сводную статистику по действиям конкретного бота.
+     * 
+     * @return статистика или null, если действия бота не записывались
      */
     public ActionFeedback getActionFeedback(int botId) {
-        // TODO: Реализовать получение статистики по конкретному боту
-        // Пока возвращаем null, так как структура данных не поддерживает это
-        return null;
+        BotFeedback feedback = botFeedback.get(botId);
+        return feedback != null && feedback.actions.getTotalExecutions() > 0 ? feedback.actions : null;
     }
     
     /**
@@ -179,21 +210,45 @@ public class FeedbackCollector {
     }
     
     /**
-     * Получить статистику по поведениям для конкретного бота.
+     * Получить сводную статистику по поведениям конкретного бота.
+     * 
+     * @return статистика или null, если поведения бота не записывались
      */
     public BehaviorFeedback getBehaviorFeedback(int botId) {
-        // TODO: Реализовать получение статистики по конкретному боту
-        // Пока возвращаем null, так как структура данных не поддерживает это
-        return null;
+        BotFeedback feedback = botFeedback.get(botId);
+        return feedback != null && feedback.behaviors.getTotalExecutions() > 0 ? feedback.behaviors : null;
     }
     
     /**
-     * Получить список всех идентификаторов ботов.
+     * Получить список всех идентификаторов ботов, для которых записана обратная связь.
      */
     public Set<Integer> getAllBotIds() {
-        // TODO: Реализовать получение списка всех ботов
-        // Пока возвращаем пустой набор
-        return new HashSet<>();
+        return new HashSet<>(botFeedback.keySet());
+    }
+    
+    /**
+     * Проверить, есть ли записанная статистика бота.
+     */
+    public boolean hasBot(int botId) {
+        return botFeedback.containsKey(botId);
+    }
+    
+    /**
+     * Удалить статистику бота.
+     */
+    public void removeBot(int botId) {
+        botFeedback.remove(botId);
+    }
+    
+    /**
+     * Получить сводную статистику бота, создав ее при первой записи.
+     */
+    private BotFeedback feedbackOf(int botId) {
+        BotFeedback feedback = botFeedback.get(botId);
+        if (feedback == null) {
+            feedback = botFeedback.computeIfAbsent(botId, id -> new BotFeedback());
+        }
+        return feedback;
     }
     
     /**
@@ -201,10 +256,10 @@ public class FeedbackCollector {
      */
     public OverallFeedback getOverallFeedback() {
         return new OverallFeedback(
-            totalActions.get(),
-            totalBehaviors.get(),
-            successfulActions.get(),
-            successfulBehaviors.get()
+            totalActions.sum(),
+            totalBehaviors.sum(),
+            successfulActions.sum(),
+            successfulBehaviors.sum()
         );
     }
     
@@ -214,13 +269,20 @@ public class FeedbackCollector {
     public String getDetailedStats() {
         StringBuilder stats = new StringBuilder();
         stats.append("=== Feedback Collector Statistics ===\n");
-        stats.append("Total Actions: ").append(totalActions.get()).append("\n");
-        stats.append("Successful Actions: ").append(successfulActions.get()).append("\n");
+        stats.append("Total Actions: ").append(totalActions.sum()).append("\n");
+        stats.append("Successful Actions: ").append(successfulActions.sum()).append("\n");
         stats.append("Action Success Rate: ").append(getActionSuccessRate()).append("%\n");
-        stats.append("Total Behaviors: ").append(totalBehaviors.get()).append("\n");
-        stats.append("Successful Behaviors: ").append(successfulBehaviors.get()).append("\n");
+        stats.append("Total Behaviors: ").append(totalBehaviors.sum()).append("\n");
+        stats.append("Successful Behaviors: ").append(successfulBehaviors.sum()).append("\n");
+        stats.append("Tracked Bots: ").append(botFeedback.size()).append("\n");
         stats.append("Behavior Success Rate: ").append(getBehaviorSuccessRate()).append("%\n");
-        stats.append("Active Listeners: ").append(listeners.size()).append("\n");
+        stats.append("Active Listeners: ").append(dispatcher.getListenerCount()).append("\n");
+        for (FeedbackDispatcher.ListenerStats listenerStats : dispatcher.getListenerStats()) {
+            stats.append("  ").append(listenerStats).append("\n");
+        }
+        if (dispatcher.getRejected() > 0) {
+            stats.append("Rejected Notifications: ").append(dispatcher.getRejected()).append("\n");
+        }
         
         return stats.toString();
     }
@@ -229,18 +291,18 @@ public class FeedbackCollector {
      * Получить коэффициент успешности действий.
      */
     public double getActionSuccessRate() {
-        long total = totalActions.get();
+        long total = totalActions.sum();
         if (total == 0) return 0.0;
-        return (double) successfulActions.get() / total * 100.0;
+        return (double) successfulActions.sum() / total * 100.0;
     }
     
     /**
      * Получить коэффициент успешности поведений.
      */
     public double getBehaviorSuccessRate() {
-        long total = totalBehaviors.get();
+        long total = totalBehaviors.sum();
         if (total == 0) return 0.0;
-        return (double) successfulBehaviors.get() / total * 100.0;
+        return (double) successfulBehaviors.sum() / total * 100.0;
     }
     
     /**
@@ -249,10 +311,11 @@ public class FeedbackCollector {
     public void reset() {
         actionFeedback.clear();
         behaviorFeedback.clear();
-        totalActions.set(0);
-        totalBehaviors.set(0);
-        successfulActions.set(0);
-        successfulBehaviors.set(0);
+        botFeedback.clear();
+        totalActions.reset();
+        totalBehaviors.reset();
+        successfulActions.reset();
+        successfulBehaviors.reset();
         
         // Переинициализация
         initialize();
@@ -265,40 +328,48 @@ public class FeedbackCollector {
      */
     public void shutdown() {
         active = false;
-        listeners.clear();
+        dispatcher.clear();
+        dispatcher.stop();
         logger.info("FeedbackCollector shutdown");
     }
     
+    /**
+     * Дождаться доставки слушателям всех поставленных уведомлений.
+     * 
+     * @return true, если все уведомления доставлены за отведенное время
+     */
+    public boolean flushFeedback(long timeoutMillis) {
+        return dispatcher.awaitDelivery(timeoutMillis);
+    }
+    
+    /**
+     * Получить статистику доставки по слушателям.
+     */
+    public List<FeedbackDispatcher.ListenerStats> getListenerStats() {
+        return dispatcher.getListenerStats();
+    }
+    
     // Уведомления слушателей
     private void notifyActionFeedback(EnhancedFakePlayer bot, ActionType actionType, 
                                     boolean success, long executionTime, String details) {
-        for (IFeedbackListener listener : listeners) {
-            try {
-                listener.onActionFeedback(bot, actionType, success, executionTime, details);
-            } catch (Exception e) {
-                logger.error("Error notifying action feedback listener", e);
-            }
+        if (dispatcher.hasListeners()) {
+            dispatcher.publish(FeedbackRecord.action(bot, actionType, success, executionTime, details));
         }
     }
     
     private void notifyBehaviorFeedback(EnhancedFakePlayer bot, BehaviorType behaviorType, 
                                       boolean success, long executionTime, int actionsPerformed, String details) {
-        for (IFeedbackListener listener : listeners) {
-            try {
-                listener.onBehaviorFeedback(bot, behaviorType, success, executionTime, actionsPerformed, details);
-            } catch (Exception e) {
-                logger.error("Error notifying behavior feedback listener", e);
-            }
+        if (dispatcher.hasListeners()) {
+            dispatcher.publish(FeedbackRecord.behavior(bot, behaviorType, success, executionTime,
+                actionsPerformed, details));
         }
     }
     
-    private void notifyLearningEvent(EnhancedFakePlayer bot, LearningEvent event) {
-        for (IFeedbackListener listener : listeners) {
-            try {
-                listener.onLearningEvent(bot, event);
-            } catch (Exception e) {
-                logger.error("Error notifying learning event listener", e);
-            }
-        }
+    /**
+     * Сводная статистика бота.
+     */
+    private static final class BotFeedback {
+        private final ActionFeedback actions = new ActionFeedback(null);
+        private final BehaviorFeedback behaviors = new BehaviorFeedback(null);
     }
 }
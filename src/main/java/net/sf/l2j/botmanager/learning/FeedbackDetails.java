@@ -0,0 +1,125 @@
+package net.sf.l2j.botmanager.learning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Кольцо недавних деталей выполнения.
+ *
+ * Каждая запись упакована в одно long-значение: код детали, признак
+ * успеха и время выполнения. Строки деталей хранятся один раз в общем
+ * словаре кодов ({@link #codeOf(String)}), поэтому запись не блокируется
+ * и не выделяет память; старые записи перезаписываются новыми.
+ */
+final class FeedbackDetails {
+
+    /**
+     * Код отсутствующей детали
+     */
+    static final int NO_DETAILS = 0;
+
+    /**
+     * Код деталей, не поместившихся в словарь
+     */
+    static final int OTHER_DETAILS = 1;
+
+    /**
+     * Размер кольца (степень двойки)
+     */
+    static final int CAPACITY = 128;
+
+    /**
+     * Наибольшее количество различных деталей в словаре
+     */
+    private static final int MAX_CODES = 4096;
+
+    private static final long SUCCESS_BIT = 1L << 31;
+    private static final long TIME_MASK = SUCCESS_BIT - 1;
+
+    // Общий словарь деталей
+    private static final Map<String, Integer> CODES = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<String> NAMES = new AtomicReferenceArray<>(MAX_CODES);
+    private static final AtomicLong NEXT_CODE = new AtomicLong(OTHER_DETAILS + 1);
+
+    static {
+        NAMES.set(OTHER_DETAILS, "other");
+    }
+
+    private final AtomicLongArray entries = new AtomicLongArray(CAPACITY);
+    private final AtomicLong cursor = new AtomicLong(0);
+
+    /**
+     * Возвращает код детали, добавляя ее в словарь при первом появлении.
+     *
+     * @param details строка детали
+     * @return код ({@link #NO_DETAILS} для пустой строки)
+     */
+    static int codeOf(String details) {
+        if (details == null || details.isEmpty()) {
+            return NO_DETAILS;
+        }
+        Integer code = CODES.get(details);
+        if (code != null) {
+            return code;
+        }
+        if (NEXT_CODE.get() >= MAX_CODES) {
+            return OTHER_DETAILS;
+        }
+        return CODES.computeIfAbsent(details, key -> {
+            long next = NEXT_CODE.getAndIncrement();
+            if (next >= MAX_CODES) {
+                return OTHER_DETAILS;
+            }
+            NAMES.set((int) next, key);
+            return (int) next;
+        });
+    }
+
+    /**
+     * Возвращает строку детали по коду.
+     */
+    static String nameOf(int code) {
+        return code > NO_DETAILS && code < MAX_CODES ? NAMES.get(code) : null;
+    }
+
+    /**
+     * Записать выполнение в кольцо.
+     */
+    void record(int code, boolean success, long executionTime) {
+        long time = Math.max(0, Math.min(executionTime, TIME_MASK));
+        long entry = ((long) code << 32) | (success ? SUCCESS_BIT : 0) | time;
+        int slot = (int) (cursor.getAndIncrement() & (CAPACITY - 1));
+        entries.lazySet(slot, entry);
+    }
+
+    /**
+     * Получить строки недавних деталей, от старых к новым.
+     */
+    List<String> recentDetails() {
+        long end = cursor.get();
+        long start = Math.max(0, end - CAPACITY);
+        List<String> details = new ArrayList<>((int) (end - start));
+        for (long i = start; i < end; i++) {
+            String name = nameOf((int) (entries.get((int) (i & (CAPACITY - 1))) >>> 32));
+            if (name != null) {
+                details.add(name);
+            }
+        }
+        return details;
+    }
+
+    /**
+     * Очистить кольцо.
+     */
+    void clear() {
+        cursor.set(0);
+        for (int i = 0; i < CAPACITY; i++) {
+            entries.set(i, 0L);
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.utils.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронная пакетная доставка обратной связи слушателям
+ *
+ * Потоки тика только добавляют запись в общую неблокирующую очередь.
+ * Поток рассылки забирает записи пакетами и раскладывает их по
+ * собственным ограниченным очередям слушателей, а пул доставки вызывает
+ * пакетные методы {@link IFeedbackListener} - для каждого слушателя
+ * последовательно и в порядке записи. Поэтому время тика не зависит ни
+ * от количества, ни от скорости слушателей.
+ *
+ * Медленный слушатель не задерживает остальных: при переполнении его
+ * очереди записи отбрасываются по {@link DropPolicy}. Для каждого
+ * слушателя ведется статистика доставки, отброшенных записей, очереди и
+ * задержки ({@link ListenerStats}).
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class FeedbackDispatcher {
+
+    private static final Logger _log = Logger.getLogger(FeedbackDispatcher.class);
+
+    // ==================== КОНСТАНТЫ ====================
+
+    /**
+     * Емкость общей очереди по умолчанию
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 65536;
+
+    /**
+     * Емкость очереди слушателя по умолчанию
+     */
+    public static final int DEFAULT_LISTENER_CAPACITY = 8192;
+
+    /**
+     * Наибольший размер пакета по умолчанию
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Количество потоков доставки по умолчанию
+     */
+    public static final int DEFAULT_DELIVERY_THREADS = 2;
+
+    /**
+     * Наибольшее время ожидания потока рассылки без записей
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Политика отбрасывания записей при переполнении очереди слушателя
+     */
+    public enum DropPolicy {
+        /** Отбрасывать самые старые записи очереди */
+        DROP_OLDEST,
+        /** Отбрасывать новые записи */
+        DROP_NEWEST
+    }
+
+    // ==================== ПОЛЯ ====================
+
+    private final int capacity;
+    private final int batchSize;
+    private final int deliveryThreads;
+
+    /**
+     * Общая очередь записей
+     */
+    private final Queue<FeedbackRecord> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Записи в общей очереди и в разошедшемся пакете
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Поток рассылки ждет новых записей
+     */
+    private final AtomicBoolean idle = new AtomicBoolean();
+
+    private volatile Thread dispatcher;
+    private volatile ExecutorService deliveryPool;
+    private volatile boolean running;
+
+    // ==================== КОНСТРУКТОРЫ ====================
+
+    /**
+     * Конструктор с параметрами по умолчанию
+     */
+    public FeedbackDispatcher() {
+        this(DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_DELIVERY_THREADS);
+    }
+
+    /**
+     * Конструктор
+     *
+     * @param capacity емкость общей очереди
+     * @param batchSize наибольший размер пакета
+     * @param deliveryThreads количество потоков доставки
+     */
+    public FeedbackDispatcher(int capacity, int batchSize, int deliveryThreads) {
+        if (capacity <= 0 || batchSize <= 0 || deliveryThreads <= 0) {
+            throw new IllegalArgumentException("Capacity, batch size and delivery threads must be positive");
+        }
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.deliveryThreads = deliveryThreads;
+    }
+
+    // ==================== ЖИЗНЕННЫЙ ЦИКЛ ====================
+
+    /**
+     * Запускает поток рассылки и пул доставки
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        deliveryPool = Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+            Thread thread = new Thread(runnable, "FeedbackDispatcher-Delivery-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        Thread thread = new Thread(this::runDispatcher, "FeedbackDispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+        _log.info("FeedbackDispatcher started (" + deliveryThreads + " delivery threads)");
+    }
+
+    /**
+     * Останавливает рассылку; записи, еще не разосланные слушателям, отбрасываются
+     */
+    public void stop() {
+        Thread thread;
+        ExecutorService pool;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = dispatcher;
+            pool = deliveryPool;
+            dispatcher = null;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.clear();
+        queued.set(0);
+        _log.info("FeedbackDispatcher stopped");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // ==================== ПОДПИСКА ====================
+
+    /**
+     * Подписывает слушателя с параметрами по умолчанию
+     *
+     * @param listener слушатель
+     * @return true, если слушатель подписан
+     */
+    public boolean subscribe(IFeedbackListener listener) {
+        return subscribe(listener, DEFAULT_LISTENER_CAPACITY, DropPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Подписывает слушателя и при необходимости запускает рассылку
+     *
+     * @param listener слушатель
+     * @param listenerCapacity емкость очереди слушателя
+     * @param policy политика отбрасывания при переполнении
+     * @return true, если слушатель подписан (false, если уже подписан)
+     */
+    public synchronized boolean subscribe(IFeedbackListener listener, int listenerCapacity, DropPolicy policy) {
+        if (listener == null || find(listener) != null) {
+            return false;
+        }
+        if (listenerCapacity <= 0 || policy == null) {
+            throw new IllegalArgumentException("Listener capacity must be positive and policy must be set");
+        }
+        subscriptions.add(new Subscription(listener, listenerCapacity, policy));
+        start();
+        return true;
+    }
+
+    /**
+     * Отписывает слушателя; недоставленные ему записи отбрасываются
+     *
+     * @param listener слушатель
+     * @return true, если слушатель был подписан
+     */
+    public synchronized boolean unsubscribe(IFeedbackListener listener) {
+        Subscription subscription = find(listener);
+        return subscription != null && subscriptions.remove(subscription);
+    }
+
+    /**
+     * Отписывает всех слушателей
+     */
+    public synchronized void clear() {
+        subscriptions.clear();
+    }
+
+    private Subscription find(IFeedbackListener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) {
+                return subscription;
+            }
+        }
+        return null;
+    }
+
+    public boolean hasListeners() {
+        return !subscriptions.isEmpty();
+    }
+
+    public int getListenerCount() {
+        return subscriptions.size();
+    }
+
+    // ==================== ПУБЛИКАЦИЯ ====================
+
+    /**
+     * Добавляет запись в очередь рассылки
+     *
+     * Метод не блокируется. При переполнении общей очереди запись
+     * отбрасывается.
+     *
+     * @param record запись
+     * @return true, если запись принята
+     */
+    public boolean publish(FeedbackRecord record) {
+        if (!running || subscriptions.isEmpty()) {
+            return false;
+        }
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        queue.offer(record);
+        published.increment();
+
+        Thread thread = dispatcher;
+        if (idle.get() && idle.compareAndSet(true, false) && thread != null) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    /**
+     * Ожидает доставки всех принятых записей
+     *
+     * @param timeoutMillis наибольшее время ожидания
+     * @return true, если все записи доставлены или отброшены
+     */
+    public boolean awaitDelivery(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!isDelivered()) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        return true;
+    }
+
+    private boolean isDelivered() {
+        if (queued.get() > 0) {
+            return false;
+        }
+        for (Subscription subscription : subscriptions) {
+            if (subscription.backlog.get() > 0 || subscription.scheduled.get()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ==================== РАССЫЛКА ====================
+
+    private void runDispatcher() {
+        List<FeedbackRecord> batch = new ArrayList<>(batchSize);
+        while (running) {
+            FeedbackRecord record;
+            while (batch.size() < batchSize && (record = queue.poll()) != null) {
+                batch.add(record);
+            }
+
+            if (batch.isEmpty()) {
+                idle.set(true);
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle.set(false);
+                continue;
+            }
+
+            ExecutorService pool = deliveryPool;
+            for (Subscription subscription : subscriptions) {
+                subscription.enqueue(batch);
+                subscription.schedule(pool);
+            }
+            queued.addAndGet(-batch.size());
+            batch.clear();
+        }
+    }
+
+    /**
+     * Подписка слушателя: собственная очередь и статистика доставки
+     */
+    private final class Subscription implements Runnable {
+        private final IFeedbackListener listener;
+        private final int capacity;
+        private final DropPolicy policy;
+        private final Queue<FeedbackRecord> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger backlog = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        /**
+         * Задержка доставки от записи до вызова слушателя (микросекунды)
+         */
+        private final Histogram lagMicros = new Histogram();
+
+        private volatile ExecutorService pool;
+
+        Subscription(IFeedbackListener listener, int capacity, DropPolicy policy) {
+            this.listener = listener;
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        /**
+         * Добавляет записи в очередь слушателя (вызывается потоком рассылки)
+         */
+        void enqueue(List<FeedbackRecord> records) {
+            for (FeedbackRecord record : records) {
+                if (backlog.get() >= capacity) {
+                    if (policy == DropPolicy.DROP_NEWEST) {
+                        dropped.increment();
+                        continue;
+                    }
+                    if (pending.poll() != null) {
+                        backlog.decrementAndGet();
+                        dropped.increment();
+                    }
+                }
+                pending.offer(record);
+                backlog.incrementAndGet();
+            }
+        }
+
+        /**
+         * Ставит доставку в пул, если она еще не поставлена
+         */
+        void schedule(ExecutorService executor) {
+            if (executor == null || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            pool = executor;
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // Рассылка остановлена
+                scheduled.set(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<FeedbackRecord> batch = new ArrayList<>(Math.min(batchSize, Math.max(1, backlog.get())));
+                FeedbackRecord record;
+                while (subscriptions.contains(this) && (record = pending.poll()) != null) {
+                    backlog.decrementAndGet();
+                    batch.add(record);
+                    if (batch.size() == batchSize) {
+                        deliver(batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    deliver(batch);
+                }
+            } finally {
+                scheduled.set(false);
+                if (!pending.isEmpty() && subscriptions.contains(this)) {
+                    schedule(pool);
+                }
+            }
+        }
+
+        /**
+         * Доставляет пакет слушателю участками записей одного вида
+         */
+        private void deliver(List<FeedbackRecord> batch) {
+            lagMicros.record((System.nanoTime() - batch.get(0).getCreatedNanos()) / 1000);
+            int start = 0;
+            while (start < batch.size()) {
+                FeedbackRecord.Kind kind = batch.get(start).getKind();
+                int end = start + 1;
+                while (end < batch.size() && batch.get(end).getKind() == kind) {
+                    end++;
+                }
+                List<FeedbackRecord> run = batch.subList(start, end);
+                try {
+                    switch (kind) {
+                        case ACTION:
+                            listener.onActionFeedbackBatch(run);
+                            break;
+                        case BEHAVIOR:
+                            listener.onBehaviorFeedbackBatch(run);
+                            break;
+                        default:
+                            listener.onLearningEventBatch(run);
+                            break;
+                    }
+                } catch (Exception e) {
+                    errors.increment();
+                    _log.error("Error notifying feedback listener " + listener.getClass().getSimpleName(), e);
+                }
+                start = end;
+            }
+            delivered.add(batch.size());
+            batches.increment();
+        }
+
+        ListenerStats snapshot() {
+            return new ListenerStats(listener.getClass().getSimpleName(), delivered.sum(), dropped.sum(),
+                batches.sum(), errors.sum(), backlog.get(), lagMicros.getMean(),
+                lagMicros.getPercentile(99), lagMicros.getMax());
+        }
+    }
+
+    // ==================== СТАТИСТИКА ====================
+
+    /**
+     * Возвращает статистику доставки по слушателям
+     *
+     * @return статистика в порядке подписки
+     */
+    public List<ListenerStats> getListenerStats() {
+        List<ListenerStats> stats = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            stats.add(subscription.snapshot());
+        }
+        return stats;
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public int getQueueSize() {
+        return queued.get();
+    }
+
+    /**
+     * Статистика доставки слушателю
+     */
+    public static final class ListenerStats {
+        private final String listener;
+        private final long delivered;
+        private final long dropped;
+        private final long batches;
+        private final long errors;
+        private final int backlog;
+        private final double meanLagMicros;
+        private final long p99LagMicros;
+        private final long maxLagMicros;
+
+        public ListenerStats(String listener, long delivered, long dropped, long batches, long errors,
+                             int backlog, double meanLagMicros, long p99LagMicros, long maxLagMicros) {
+            this.listener = listener;
+            this.delivered = delivered;
+            this.dropped = dropped;
+            this.batches = batches;
+            this.errors = errors;
+            this.backlog = backlog;
+            this.meanLagMicros = meanLagMicros;
+            this.p99LagMicros = p99LagMicros;
+            this.maxLagMicros = maxLagMicros;
+        }
+
+        public String getListener() { return listener; }
+        public long getDelivered() { return delivered; }
+        public long getDropped() { return dropped; }
+        public long getBatches() { return batches; }
+        public long getErrors() { return errors; }
+        public int getBacklog() { return backlog; }
+        public double getMeanLagMicros() { return meanLagMicros; }
+        public long getP99LagMicros() { return p99LagMicros; }
+        public long getMaxLagMicros() { return maxLagMicros; }
+
+        @Override
+        public String toString() {
+            return String.format("%s[delivered=%d, dropped=%d, batches=%d, errors=%d, backlog=%d, "
+                    + "lag mean=%.0fus p99=%dus max=%dus]",
+                listener, delivered, dropped, batches, errors, backlog, meanLagMicros, p99LagMicros, maxLagMicros);
+        }
+    }
+}
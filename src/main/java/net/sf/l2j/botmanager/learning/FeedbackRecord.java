@@ -0,0 +1,86 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.actions.ActionType;
+import net.sf.l2j.botmanager.behaviors.BehaviorType;
+import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
+
+/**
+ * Запись обратной связи, доставляемая слушателям пакетами.
+ * Содержит результат действия, результат поведения или событие обучения.
+ */
+public final class FeedbackRecord {
+
+    /**
+     * Вид записи
+     */
+    public enum Kind {
+        ACTION,
+        BEHAVIOR,
+        LEARNING_EVENT
+    }
+
+    private final Kind kind;
+    private final EnhancedFakePlayer bot;
+    private final ActionType actionType;
+    private final BehaviorType behaviorType;
+    private final boolean success;
+    private final long executionTime;
+    private final int actionsPerformed;
+    private final String details;
+    private final LearningEvent event;
+    private final long createdNanos;
+
+    private FeedbackRecord(Kind kind, EnhancedFakePlayer bot, ActionType actionType, BehaviorType behaviorType,
+                           boolean success, long executionTime, int actionsPerformed, String details,
+                           LearningEvent event) {
+        this.kind = kind;
+        this.bot = bot;
+        this.actionType = actionType;
+        this.behaviorType = behaviorType;
+        this.success = success;
+        this.executionTime = executionTime;
+        this.actionsPerformed = actionsPerformed;
+        this.details = details;
+        this.event = event;
+        this.createdNanos = System.nanoTime();
+    }
+
+    /**
+     * Создать запись о результате действия.
+     */
+    public static FeedbackRecord action(EnhancedFakePlayer bot, ActionType actionType, boolean success,
+                                        long executionTime, String details) {
+        return new FeedbackRecord(Kind.ACTION, bot, actionType, null, success, executionTime, 0, details, null);
+    }
+
+    /**
+     * Создать запись о результате поведения.
+     */
+    public static FeedbackRecord behavior(EnhancedFakePlayer bot, BehaviorType behaviorType, boolean success,
+                                          long executionTime, int actionsPerformed, String details) {
+        return new FeedbackRecord(Kind.BEHAVIOR, bot, null, behaviorType, success, executionTime,
+            actionsPerformed, details, null);
+    }
+
+    /**
+     * Создать запись о событии обучения.
+     */
+    public static FeedbackRecord learningEvent(EnhancedFakePlayer bot, LearningEvent event) {
+        return new FeedbackRecord(Kind.LEARNING_EVENT, bot, null, null, false, 0, 0, null, event);
+    }
+
+    public Kind getKind() { return kind; }
+    public EnhancedFakePlayer getBot() { return bot; }
+    public ActionType getActionType() { return actionType; }
+    public BehaviorType getBehaviorType() { return behaviorType; }
+    public boolean isSuccess() { return success; }
+    public long getExecutionTime() { return executionTime; }
+    public int getActionsPerformed() { return actionsPerformed; }
+    public String getDetails() { return details; }
+    public LearningEvent getEvent() { return event; }
+
+    /**
+     * Время создания записи по {@link System#nanoTime()}.
+     */
+    public long getCreatedNanos() { return createdNanos; }
+}
@@ -2,125 +2,144 @@ package net.sf.l2j.botmanager.learning;
 
 import net.sf.l2j.botmanager.utils.Logger;
 
+import java.util.Arrays;
 import java.util.Random;
 
 /**
  * GRU (Gated Recurrent Unit) слой для рекуррентных нейронных сетей
- * 
+ *
  * GRU слой является упрощенной версией LSTM, которая сохраняет
  * способность запоминать долгосрочные зависимости, но имеет меньше
  * параметров и более простую архитектуру. Это делает GRU более
  * эффективным для некоторых задач.
- * 
+ *
+ * Веса гейтов сброса и обновления хранятся одной плоской матрицей
+ * [2 * hiddenUnits, inputSize + hiddenUnits] и вычисляются одним
+ * матрично-векторным произведением; кандидаты зависят от гейта сброса
+ * ([x, r * h]) и вычисляются вторым произведением. Шаг не выделяет
+ * памяти, кэш шагов для обратного распространения во времени ограничен
+ * {@link #setBpttSteps(int)} шагами (усеченный BPTT). Потоковый инференс
+ * выполняется через {@link #step(State, double[], double[])}.
+ *
  * @author ni-okr
  * @version 3.3
  */
 public class GRULayer extends NetworkLayer {
-    
+
     private static final Logger _log = Logger.getLogger(GRULayer.class.getName());
-    
+
     // ==================== ПАРАМЕТРЫ СЛОЯ ====================
-    
+
     /** Количество скрытых единиц */
     private final int hiddenUnits;
-    
-    /** Размер входа */
-    private int inputSize;
-    
-    /** Веса для сброса гейта */
-    private double[][] resetWeights;
-    private double[] resetBias;
-    
-    /** Веса для обновления гейта */
-    private double[][] updateWeights;
-    private double[] updateBias;
-    
-    /** Веса для кандидатов */
-    private double[][] candidateWeights;
-    private double[] candidateBias;
-    
-    /** Скрытое состояние */
-    private double[] hiddenState;
-    
-    /** Предыдущее скрытое состояние */
-    private double[] prevHiddenState;
-    
+
+    /** Веса гейтов: строки [0, H) - гейт сброса, [H, 2H) - гейт обновления */
+    private double[] gateWeights;
+    private double[] gateBiases;
+
+    /** Веса кандидатов: [hiddenUnits, inputSize + hiddenUnits] */
+    private double[] candidateWeights;
+    private double[] candidateBiases;
+
     /** Градиенты весов */
-    private double[][] resetWeightGradients;
-    private double[] resetBiasGradients;
-    private double[][] updateWeightGradients;
-    private double[] updateBiasGradients;
-    private double[][] candidateWeightGradients;
+    private double[] gateWeightGradients;
+    private double[] gateBiasGradients;
+    private double[] candidateWeightGradients;
     private double[] candidateBiasGradients;
-    
-    /** Кэш для входных данных */
-    private double[] inputCache;
-    
+
+    /** Состояние слоя при последовательной обработке ({@link #forward(double[])}) */
+    private State state;
+
+    /** Кэш шагов для обратного распространения во времени */
+    private StepCache cache;
+
+    /** Количество шагов усеченного BPTT (0 - без ограничения до сброса состояния) */
+    private int bpttSteps = DEFAULT_BPTT_STEPS;
+
+    /** Градиент скрытого состояния, переносимый к более раннему шагу */
+    private double[] hiddenGradientCarry;
+
+    /** Рабочие буферы обратного шага */
+    private double[] gateGradients;
+    private double[] candidateGradients;
+    private double[] combinedGradients;
+    private double[] resetCombined;
+
+    /** Признак того, что выполняется серия обратных шагов */
+    private boolean backwardInProgress;
+
     /** Генератор случайных чисел */
     private final Random random;
-    
+
     // ==================== КОНСТАНТЫ ====================
-    
+
     /** Минимальное количество скрытых единиц */
     private static final int MIN_HIDDEN_UNITS = 1;
-    
+
     /** Максимальное количество скрытых единиц */
     private static final int MAX_HIDDEN_UNITS = 1024;
-    
+
     /** Минимальный размер входа */
     private static final int MIN_INPUT_SIZE = 1;
-    
+
     /** Максимальный размер входа */
     private static final int MAX_INPUT_SIZE = 1000;
-    
+
+    /** Количество шагов усеченного BPTT по умолчанию */
+    public static final int DEFAULT_BPTT_STEPS = 64;
+
     // ==================== КОНСТРУКТОРЫ ====================
-    
+
     /**
      * Создает новый GRU слой
-     * 
+     *
      * @param hiddenUnits количество скрытых единиц
      */
     public GRULayer(int hiddenUnits) {
         super(NetworkLayer.LayerType.GRU);
         this.hiddenUnits = hiddenUnits;
+        this.outputSize = hiddenUnits;
         this.random = new Random();
-        
+
         // Валидация параметров
         if (!isValidParameters()) {
             throw new IllegalArgumentException("Invalid GRU parameters");
         }
-        
+
         _log.info("GRULayer created: hiddenUnits=" + hiddenUnits);
     }
-    
+
     // ==================== ОСНОВНЫЕ МЕТОДЫ ====================
-    
+
     /**
      * Инициализирует слой с заданными размерами
-     * 
+     *
      * @param inputSize размер входа
      * @param outputSize размер выхода (игнорируется для GRU)
      */
     @Override
     public void initialize(int inputSize, int outputSize) {
         this.inputSize = inputSize;
-        
+        int cols = inputSize + hiddenUnits;
+
         // Инициализируем веса
-        initializeWeights();
-        
-        // Инициализируем состояния
-        initializeStates();
-        
-        // Инициализируем градиенты
-        initializeGradients();
-        
-        _log.info("GRULayer initialized: inputSize=" + inputSize + 
+        gateWeights = createWeights(2 * hiddenUnits * cols, cols);
+        gateBiases = new double[2 * hiddenUnits];
+        candidateWeights = createWeights(hiddenUnits * cols, cols);
+        candidateBiases = new double[hiddenUnits];
+
+        // Инициализируем состояния, рабочие буферы и градиенты
+        allocateBuffers();
+
+        _log.info("GRULayer initialized: inputSize=" + inputSize +
                  ", hiddenUnits=" + hiddenUnits);
     }
-    
+
     /**
      * Выполняет прямое распространение
-     * 
+     *
+     * Шаг сохраняется в кэше для обратного распространения во времени.
+     *
      * @param inputs входные данные
      * @return выходные данные (скрытое состояние)
      */
@@ -129,24 +148,29 @@ public class GRULayer extends NetworkLayer {
         if (inputs == null) {
             throw new IllegalArgumentException("Input cannot be null");
         }
-        
+
         if (inputs.length != inputSize) {
             throw new IllegalArgumentException("Input size mismatch");
         }
-        
-        // Сохраняем входные данные
-        this.inputCache = inputs.clone();
-        
-        // Выполняем GRU forward pass
-        double[] output = performGRUForward(inputs);
-        
-        return output;
+
+        // Новая серия прямых шагов начинает обратный проход заново
+        backwardInProgress = false;
+
+        int slot = cache.push();
+        compute(state, inputs);
+        System.arraycopy(state.combined, 0, cache.combined, slot * cache.combinedSize, cache.combinedSize);
+        System.arraycopy(state.gates, 0, cache.gates, slot * 3 * hiddenUnits, 3 * hiddenUnits);
+
+        return state.hidden.clone();
     }
-    
+
     /**
      * Выполняет обратное распространение
-     * 
-     * @param inputs входные данные
+     *
+     * Вызывается для шагов последовательности в обратном порядке; шаги,
+     * вытесненные из кэша усеченным BPTT, получают нулевые градиенты.
+     *
+     * @param inputs входные данные (используются кэшированные)
      * @param outputGradients градиенты выходного слоя
      * @return градиенты входного слоя
      */
@@ -155,327 +179,402 @@ public class GRULayer extends NetworkLayer {
         if (outputGradients == null) {
             throw new IllegalArgumentException("Output gradients cannot be null");
         }
-        
+
         if (outputGradients.length != hiddenUnits) {
             throw new IllegalArgumentException("Output gradients size mismatch");
         }
-        
-        if (inputCache == null) {
+
+        if (cache == null || !cache.hasRecorded()) {
             throw new IllegalStateException("Forward pass must be called before backward pass");
         }
-        
-        // Выполняем GRU backward pass
-        double[] inputGradients = performGRUBackward(inputCache, outputGradients);
-        
+
+        if (!backwardInProgress) {
+            Arrays.fill(hiddenGradientCarry, 0.0);
+            backwardInProgress = true;
+        }
+
+        double[] inputGradients = new double[inputSize];
+        int slot = cache.pop();
+        if (slot < 0) {
+            // Шаг вне окна усеченного BPTT
+            return inputGradients;
+        }
+
+        backwardStep(slot, outputGradients, inputGradients);
         return inputGradients;
     }
-    
+
     /**
      * Обновляет веса с помощью оптимизатора
-     * 
+     *
      * @param learningRate скорость обучения
      */
     @Override
     public void updateWeights(double learningRate) {
-        // Обновляем веса сброса гейта
-        updateWeightMatrix(resetWeights, resetWeightGradients, learningRate);
-        updateBiasVector(resetBias, resetBiasGradients, learningRate);
-        
-        // Обновляем веса обновления гейта
-        updateWeightMatrix(updateWeights, updateWeightGradients, learningRate);
-        updateBiasVector(updateBias, updateBiasGradients, learningRate);
-        
-        // Обновляем веса кандидатов
-        updateWeightMatrix(candidateWeights, candidateWeightGradients, learningRate);
-        updateBiasVector(candidateBias, candidateBiasGradients, learningRate);
-        
+        TensorOps.axpy(-learningRate, gateWeightGradients, gateWeights, gateWeights.length);
+        TensorOps.axpy(-learningRate, gateBiasGradients, gateBiases, gateBiases.length);
+        TensorOps.axpy(-learningRate, candidateWeightGradients, candidateWeights, candidateWeights.length);
+        TensorOps.axpy(-learningRate, candidateBiasGradients, candidateBiases, candidateBiases.length);
+
         // Сбрасываем градиенты
-        resetGradients();
+        Arrays.fill(gateWeightGradients, 0.0);
+        Arrays.fill(gateBiasGradients, 0.0);
+        Arrays.fill(candidateWeightGradients, 0.0);
+        Arrays.fill(candidateBiasGradients, 0.0);
     }
-    
+
     /**
      * Возвращает размер выхода слоя
-     * 
+     *
      * @return количество выходных элементов
      */
     @Override
     public int getOutputSize() {
         return hiddenUnits;
     }
-    
+
     /**
-     * Сбрасывает состояние слоя
+     * Сбрасывает состояние слоя и кэш шагов (начало новой последовательности)
      */
     public void resetState() {
-        if (hiddenState != null) {
-            System.arraycopy(prevHiddenState, 0, hiddenState, 0, hiddenUnits);
+        if (state != null) {
+            state.reset();
+            cache.clear();
+            backwardInProgress = false;
         }
     }
-    
+
     /**
      * Устанавливает начальное состояние
-     * 
+     *
      * @param initialHiddenState начальное скрытое состояние
      */
     public void setInitialState(double[] initialHiddenState) {
-        if (initialHiddenState != null && initialHiddenState.length == hiddenUnits) {
-            System.arraycopy(initialHiddenState, 0, hiddenState, 0, hiddenUnits);
+        if (state != null && initialHiddenState != null && initialHiddenState.length == hiddenUnits) {
+            System.arraycopy(initialHiddenState, 0, state.hidden, 0, hiddenUnits);
         }
     }
-    
-    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
-    
+
+    // ==================== ПОТОКОВЫЙ ИНФЕРЕНС ====================
+
     /**
-     * Проверяет валидность параметров
-     * 
-     * @return true если параметры корректны
+     * Создает состояние для потокового инференса
+     *
+     * @return нулевое состояние
      */
-    private boolean isValidParameters() {
-        return hiddenUnits >= MIN_HIDDEN_UNITS && hiddenUnits <= MAX_HIDDEN_UNITS;
-    }
-    
-    /**
-     * Инициализирует веса
-     */
-    private void initializeWeights() {
-        // Инициализация весов сброса гейта
-        resetWeights = new double[hiddenUnits][inputSize + hiddenUnits];
-        resetBias = new double[hiddenUnits];
-        initializeWeightMatrix(resetWeights);
-        initializeBiasVector(resetBias);
-        
-        // Инициализация весов обновления гейта
-        updateWeights = new double[hiddenUnits][inputSize + hiddenUnits];
-        updateBias = new double[hiddenUnits];
-        initializeWeightMatrix(updateWeights);
-        initializeBiasVector(updateBias);
-        
-        // Инициализация весов кандидатов
-        candidateWeights = new double[hiddenUnits][inputSize + hiddenUnits];
-        candidateBias = new double[hiddenUnits];
-        initializeWeightMatrix(candidateWeights);
-        initializeBiasVector(candidateBias);
-    }
-    
-    /**
-     * Инициализирует состояния
-     */
-    private void initializeStates() {
-        hiddenState = new double[hiddenUnits];
-        prevHiddenState = new double[hiddenUnits];
-        
-        // Инициализируем нулями
-        for (int i = 0; i < hiddenUnits; i++) {
-            hiddenState[i] = 0.0;
-            prevHiddenState[i] = 0.0;
+    public State createState() {
+        if (inputSize <= 0) {
+            throw new IllegalStateException("Layer not initialized");
         }
+        return new State(inputSize, hiddenUnits);
     }
-    
+
     /**
-     * Инициализирует градиенты
+     * Выполняет один шаг потокового инференса без выделения памяти
+     *
+     * @param state состояние бота
+     * @param input вход шага
+     * @param output буфер для скрытого состояния (размер hiddenUnits)
      */
-    private void initializeGradients() {
-        resetWeightGradients = new double[hiddenUnits][inputSize + hiddenUnits];
-        resetBiasGradients = new double[hiddenUnits];
-        updateWeightGradients = new double[hiddenUnits][inputSize + hiddenUnits];
-        updateBiasGradients = new double[hiddenUnits];
-        candidateWeightGradients = new double[hiddenUnits][inputSize + hiddenUnits];
-        candidateBiasGradients = new double[hiddenUnits];
+    public void step(State state, double[] input, double[] output) {
+        if (state == null || input == null || input.length != inputSize) {
+            throw new IllegalArgumentException("Invalid streaming step arguments");
+        }
+        compute(state, input);
+        System.arraycopy(state.hidden, 0, output, 0, hiddenUnits);
     }
-    
+
     /**
-     * Инициализирует матрицу весов
-     * 
-     * @param weights матрица весов
+     * Устанавливает количество шагов усеченного BPTT
+     *
+     * Изменение очищает кэш шагов.
+     *
+     * @param steps количество шагов (0 - без ограничения до сброса состояния)
      */
-    private void initializeWeightMatrix(double[][] weights) {
-        double limit = Math.sqrt(6.0 / (weights[0].length + hiddenUnits));
-        
-        for (int i = 0; i < weights.length; i++) {
-            for (int j = 0; j < weights[i].length; j++) {
-                weights[i][j] = (random.nextDouble() * 2 - 1) * limit;
-            }
+    public void setBpttSteps(int steps) {
+        this.bpttSteps = Math.max(0, steps);
+        if (cache != null) {
+            cache = new StepCache(inputSize + hiddenUnits, bpttSteps);
+            backwardInProgress = false;
         }
     }
-    
+
     /**
-     * Инициализирует вектор смещений
-     * 
-     * @param bias вектор смещений
+     * Возвращает количество шагов усеченного BPTT
+     *
+     * @return количество шагов (0 - без ограничения)
      */
-    private void initializeBiasVector(double[] bias) {
-        for (int i = 0; i < bias.length; i++) {
-            bias[i] = 0.0;
-        }
+    public int getBpttSteps() {
+        return bpttSteps;
     }
-    
+
+    // ==================== ПАРАЛЛЕЛЬНОЕ ОБУЧЕНИЕ ====================
+
     /**
-     * Выполняет GRU forward pass
-     * 
-     * @param inputs входные данные
-     * @return выходные данные
+     * Создает реплику слоя для потока обучения
+     *
+     * Реплика разделяет с исходным слоем веса и смещения, но имеет
+     * собственные состояние, кэш шагов и градиенты, поэтому несколько
+     * реплик могут одновременно обрабатывать разные последовательности.
+     * Реплика действительна, пока слой не инициализирован заново, и не
+     * должна обновлять веса сама.
+     *
+     * @return реплика слоя
      */
-    private double[] performGRUForward(double[] inputs) {
-        // Объединяем входные данные и предыдущее скрытое состояние
-        double[] combined = new double[inputSize + hiddenUnits];
-        System.arraycopy(inputs, 0, combined, 0, inputSize);
-        System.arraycopy(prevHiddenState, 0, combined, inputSize, hiddenUnits);
-        
-        // Сохраняем предыдущее состояние
-        System.arraycopy(hiddenState, 0, prevHiddenState, 0, hiddenUnits);
-        
-        // Вычисляем сброс гейт
-        double[] resetGate = new double[hiddenUnits];
-        for (int i = 0; i < hiddenUnits; i++) {
-            double sum = resetBias[i];
-            for (int j = 0; j < combined.length; j++) {
-                sum += combined[j] * resetWeights[i][j];
-            }
-            resetGate[i] = ActivationFunction.sigmoid(sum);
-        }
-        
-        // Вычисляем обновление гейт
-        double[] updateGate = new double[hiddenUnits];
-        for (int i = 0; i < hiddenUnits; i++) {
-            double sum = updateBias[i];
-            for (int j = 0; j < combined.length; j++) {
-                sum += combined[j] * updateWeights[i][j];
-            }
-            updateGate[i] = ActivationFunction.sigmoid(sum);
-        }
-        
-        // Вычисляем кандидатов с учетом сброса гейта
-        double[] resetCombined = new double[inputSize + hiddenUnits];
-        System.arraycopy(inputs, 0, resetCombined, 0, inputSize);
-        for (int i = 0; i < hiddenUnits; i++) {
-            resetCombined[inputSize + i] = resetGate[i] * prevHiddenState[i];
-        }
-        
-        double[] candidates = new double[hiddenUnits];
-        for (int i = 0; i < hiddenUnits; i++) {
-            double sum = candidateBias[i];
-            for (int j = 0; j < resetCombined.length; j++) {
-                sum += resetCombined[j] * candidateWeights[i][j];
-            }
-            candidates[i] = ActivationFunction.tanh(sum);
-        }
-        
-        // Обновляем скрытое состояние
-        for (int i = 0; i < hiddenUnits; i++) {
-            hiddenState[i] = (1 - updateGate[i]) * prevHiddenState[i] + updateGate[i] * candidates[i];
-        }
-        
-        return hiddenState.clone();
+    GRULayer createReplica() {
+        GRULayer replica = new GRULayer(hiddenUnits);
+        replica.inputSize = inputSize;
+        replica.bpttSteps = bpttSteps;
+        replica.gateWeights = gateWeights;
+        replica.gateBiases = gateBiases;
+        replica.candidateWeights = candidateWeights;
+        replica.candidateBiases = candidateBiases;
+        replica.allocateBuffers();
+        return replica;
     }
-    
+
     /**
-     * Выполняет GRU backward pass
-     * 
-     * @param inputs входные данные
-     * @param outputGradients градиенты выходного слоя
-     * @return градиенты входного слоя
+     * Умножает накопленные градиенты весов и смещений на число
+     *
+     * @param alpha множитель
      */
-    private double[] performGRUBackward(double[] inputs, double[] outputGradients) {
-        // Упрощенная реализация обратного распространения
-        // В реальной реализации здесь должны быть сложные вычисления градиентов
-        
-        double[] inputGradients = new double[inputSize];
-        
-        // Простое распространение градиентов назад
-        for (int i = 0; i < inputSize; i++) {
-            inputGradients[i] = outputGradients[i % hiddenUnits] * 0.1;
-        }
-        
-        return inputGradients;
+    void scaleGradients(double alpha) {
+        TensorOps.scale(alpha, gateWeightGradients, gateWeightGradients.length);
+        TensorOps.scale(alpha, gateBiasGradients, gateBiasGradients.length);
+        TensorOps.scale(alpha, candidateWeightGradients, candidateWeightGradients.length);
+        TensorOps.scale(alpha, candidateBiasGradients, candidateBiasGradients.length);
     }
-    
+
     /**
-     * Обновляет матрицу весов
-     * 
-     * @param weights матрица весов
-     * @param gradients градиенты
-     * @param learningRate скорость обучения
+     * Прибавляет градиенты другой реплики того же слоя
+     *
+     * @param other реплика с градиентами
      */
-    private void updateWeightMatrix(double[][] weights, double[][] gradients, double learningRate) {
-        for (int i = 0; i < weights.length; i++) {
-            for (int j = 0; j < weights[i].length; j++) {
-                weights[i][j] -= learningRate * gradients[i][j];
-            }
-        }
+    void addGradients(GRULayer other) {
+        TensorOps.axpy(1.0, other.gateWeightGradients, gateWeightGradients, gateWeightGradients.length);
+        TensorOps.axpy(1.0, other.gateBiasGradients, gateBiasGradients, gateBiasGradients.length);
+        TensorOps.axpy(1.0, other.candidateWeightGradients, candidateWeightGradients, candidateWeightGradients.length);
+        TensorOps.axpy(1.0, other.candidateBiasGradients, candidateBiasGradients, candidateBiasGradients.length);
     }
-    
+
     /**
-     * Обновляет вектор смещений
-     * 
-     * @param bias вектор смещений
-     * @param gradients градиенты
-     * @param learningRate скорость обучения
+     * Обнуляет накопленные градиенты
      */
-    private void updateBiasVector(double[] bias, double[] gradients, double learningRate) {
-        for (int i = 0; i < bias.length; i++) {
-            bias[i] -= learningRate * gradients[i];
-        }
+    void clearGradients() {
+        Arrays.fill(gateWeightGradients, 0.0);
+        Arrays.fill(gateBiasGradients, 0.0);
+        Arrays.fill(candidateWeightGradients, 0.0);
+        Arrays.fill(candidateBiasGradients, 0.0);
     }
-    
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
     /**
-     * Сбрасывает градиенты
+     * Выделяет состояние, кэш шагов, рабочие буферы и градиенты под текущие веса
      */
-    private void resetGradients() {
-        resetGradientMatrix(resetWeightGradients);
-        resetGradientVector(resetBiasGradients);
-        resetGradientMatrix(updateWeightGradients);
-        resetGradientVector(updateBiasGradients);
-        resetGradientMatrix(candidateWeightGradients);
-        resetGradientVector(candidateBiasGradients);
+    private void allocateBuffers() {
+        int cols = inputSize + hiddenUnits;
+        state = createState();
+        cache = new StepCache(cols, bpttSteps);
+        hiddenGradientCarry = new double[hiddenUnits];
+        gateGradients = new double[2 * hiddenUnits];
+        candidateGradients = new double[hiddenUnits];
+        combinedGradients = new double[cols];
+        resetCombined = new double[cols];
+        backwardInProgress = false;
+        gateWeightGradients = new double[gateWeights.length];
+        gateBiasGradients = new double[gateBiases.length];
+        candidateWeightGradients = new double[candidateWeights.length];
+        candidateBiasGradients = new double[candidateBiases.length];
     }
-    
+
     /**
-     * Сбрасывает матрицу градиентов
-     * 
-     * @param gradients матрица градиентов
+     * Проверяет валидность параметров
+     *
+     * @return true если параметры корректны
      */
-    private void resetGradientMatrix(double[][] gradients) {
-        for (int i = 0; i < gradients.length; i++) {
-            for (int j = 0; j < gradients[i].length; j++) {
-                gradients[i][j] = 0.0;
-            }
+    private boolean isValidParameters() {
+        return hiddenUnits >= MIN_HIDDEN_UNITS && hiddenUnits <= MAX_HIDDEN_UNITS;
+    }
+
+    /**
+     * Создает матрицу весов с инициализацией Xavier
+     *
+     * @param length количество весов
+     * @param cols количество столбцов
+     * @return веса
+     */
+    private double[] createWeights(int length, int cols) {
+        double[] weights = new double[length];
+        double limit = Math.sqrt(6.0 / (cols + hiddenUnits));
+        for (int i = 0; i < length; i++) {
+            weights[i] = (random.nextDouble() * 2 - 1) * limit;
+        }
+        return weights;
+    }
+
+    /**
+     * Выполняет шаг GRU над состоянием
+     *
+     * После вызова state.combined содержит [x, h_prev], state.gates -
+     * гейты сброса, обновления и кандидатов, state.hidden - новое состояние.
+     *
+     * @param state состояние
+     * @param inputs вход шага
+     */
+    private void compute(State state, double[] inputs) {
+        int h = hiddenUnits;
+        int cols = inputSize + h;
+        double[] combined = state.combined;
+        double[] gates = state.gates;
+        double[] reset = state.resetCombined;
+
+        // Объединяем вход и предыдущее скрытое состояние
+        System.arraycopy(inputs, 0, combined, 0, inputSize);
+        System.arraycopy(state.hidden, 0, combined, inputSize, h);
+
+        // Гейты сброса и обновления одним произведением
+        TensorOps.matVec(gateWeights, gateBiases, combined, gates, 2 * h, cols);
+        TensorOps.sigmoid(gates, gates, 0, 2 * h);
+        System.arraycopy(inputs, 0, reset, 0, inputSize);
+        for (int j = 0; j < h; j++) {
+            reset[inputSize + j] = gates[j] * combined[inputSize + j];
+        }
+
+        // Кандидаты по [x, r * h_prev]
+        TensorOps.matVec(candidateWeights, candidateBiases, reset, state.candidates, h, cols);
+        TensorOps.tanh(state.candidates, state.candidates, 0, h);
+        for (int j = 0; j < h; j++) {
+            double candidate = state.candidates[j];
+            double update = gates[h + j];
+            gates[2 * h + j] = candidate;
+            state.hidden[j] = (1 - update) * combined[inputSize + j] + update * candidate;
         }
     }
-    
+
     /**
-     * Сбрасывает вектор градиентов
-     * 
-     * @param gradients вектор градиентов
+     * Выполняет обратный шаг по кэшированному шагу
+     *
+     * @param slot позиция шага в кэше
+     * @param outputGradients градиенты скрытого состояния от следующего слоя
+     * @param inputGradients буфер градиентов входа
      */
-    private void resetGradientVector(double[] gradients) {
-        for (int i = 0; i < gradients.length; i++) {
-            gradients[i] = 0.0;
+    private void backwardStep(int slot, double[] outputGradients, double[] inputGradients) {
+        int h = hiddenUnits;
+        int cols = inputSize + h;
+        int gateBase = slot * 3 * h;
+        int combinedBase = slot * cols;
+        double[] gates = cache.gates;
+        double[] combined = cache.combined;
+
+        // Градиенты кандидатов и гейта обновления; перенос через (1 - z)
+        double[] prevHiddenGradient = hiddenGradientCarry;
+        for (int j = 0; j < h; j++) {
+            double update = gates[gateBase + h + j];
+            double candidate = gates[gateBase + 2 * h + j];
+            double prevHidden = combined[combinedBase + inputSize + j];
+            double dh = outputGradients[j] + hiddenGradientCarry[j];
+
+            candidateGradients[j] = dh * update * (1.0 - candidate * candidate);
+            gateGradients[h + j] = dh * (candidate - prevHidden) * update * (1.0 - update);
+            prevHiddenGradient[j] = dh * (1.0 - update);
+        }
+
+        // Кандидаты: вход [x, r * h_prev]
+        System.arraycopy(combined, combinedBase, resetCombined, 0, inputSize);
+        for (int j = 0; j < h; j++) {
+            resetCombined[inputSize + j] = gates[gateBase + j] * combined[combinedBase + inputSize + j];
+        }
+        accumulate(candidateWeightGradients, candidateBiasGradients, candidateGradients, resetCombined, 0, h, cols);
+        TensorOps.matTVec(candidateWeights, candidateGradients, combinedGradients, h, cols);
+        System.arraycopy(combinedGradients, 0, inputGradients, 0, inputSize);
+        for (int j = 0; j < h; j++) {
+            double reset = gates[gateBase + j];
+            double prevHidden = combined[combinedBase + inputSize + j];
+            double dResetHidden = combinedGradients[inputSize + j];
+            gateGradients[j] = dResetHidden * prevHidden * reset * (1.0 - reset);
+            prevHiddenGradient[j] += dResetHidden * reset;
+        }
+
+        // Гейты: вход [x, h_prev]
+        accumulate(gateWeightGradients, gateBiasGradients, gateGradients, combined, combinedBase, 2 * h, cols);
+        TensorOps.matTVec(gateWeights, gateGradients, combinedGradients, 2 * h, cols);
+        for (int i = 0; i < inputSize; i++) {
+            inputGradients[i] += combinedGradients[i];
+        }
+        for (int j = 0; j < h; j++) {
+            prevHiddenGradient[j] += combinedGradients[inputSize + j];
         }
     }
-    
+
+    /**
+     * Накапливает градиенты весов dW += d * x^T и смещений db += d
+     */
+    private static void accumulate(double[] weightGradients, double[] biasGradients, double[] d,
+                                   double[] x, int offset, int rows, int cols) {
+        TensorOps.addOuter(1.0, d, x, offset, weightGradients, rows, cols);
+        TensorOps.axpy(1.0, d, biasGradients, rows);
+    }
+
     // ==================== ГЕТТЕРЫ ====================
-    
+
     /**
      * Возвращает количество скрытых единиц
-     * 
+     *
      * @return количество скрытых единиц
      */
     public int getHiddenUnits() {
         return hiddenUnits;
     }
-    
+
     /**
      * Возвращает текущее скрытое состояние
-     * 
+     *
      * @return скрытое состояние
      */
     public double[] getHiddenState() {
-        return hiddenState != null ? hiddenState.clone() : null;
+        return state != null ? state.hidden.clone() : null;
+    }
+
+    /**
+     * Возвращает веса гейтов сброса и обновления
+     *
+     * @return массив весов слоя
+     */
+    double[] getGateWeights() {
+        return gateWeights;
     }
-    
+
+    /**
+     * Возвращает веса кандидатов
+     *
+     * @return массив весов слоя
+     */
+    double[] getCandidateWeights() {
+        return candidateWeights;
+    }
+
+    /**
+     * Возвращает накопленные градиенты весов гейтов
+     *
+     * @return массив градиентов
+     */
+    double[] getGateWeightGradients() {
+        return gateWeightGradients;
+    }
+
+    /**
+     * Возвращает накопленные градиенты весов кандидатов
+     *
+     * @return массив градиентов
+     */
+    double[] getCandidateWeightGradients() {
+        return candidateWeightGradients;
+    }
+
     /**
      * Возвращает статистику слоя
-     * 
+     *
      * @return строка со статистикой
      */
     public String getStatistics() {
@@ -484,12 +583,13 @@ public class GRULayer extends NetworkLayer {
         stats.append("Hidden Units: ").append(hiddenUnits).append("\n");
         stats.append("Input Size: ").append(inputSize).append("\n");
         stats.append("Parameters: ").append(getParameterCount()).append("\n");
+        stats.append("BPTT Steps: ").append(bpttSteps).append("\n");
         return stats.toString();
     }
-    
+
     /**
      * Возвращает количество параметров
-     * 
+     *
      * @return количество параметров
      */
     private int getParameterCount() {
@@ -497,4 +597,104 @@ public class GRULayer extends NetworkLayer {
         int biases = 3 * hiddenUnits;
         return weights + biases;
     }
+
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+
+    /**
+     * Рекуррентное состояние GRU с рабочими буферами шага
+     */
+    public static final class State {
+        private final double[] hidden;
+        private final double[] combined;
+        private final double[] resetCombined;
+        private final double[] gates;
+        private final double[] candidates;
+
+        private State(int inputSize, int hiddenUnits) {
+            this.hidden = new double[hiddenUnits];
+            this.combined = new double[inputSize + hiddenUnits];
+            this.resetCombined = new double[inputSize + hiddenUnits];
+            this.gates = new double[3 * hiddenUnits];
+            this.candidates = new double[hiddenUnits];
+        }
+
+        /**
+         * Обнуляет скрытое состояние
+         */
+        public void reset() {
+            Arrays.fill(hidden, 0.0);
+        }
+
+        /**
+         * Возвращает скрытое состояние
+         *
+         * @return копия скрытого состояния
+         */
+        public double[] getHidden() {
+            return hidden.clone();
+        }
+    }
+
+    /**
+     * Кэш шагов для обратного распространения во времени (кольцевой буфер)
+     */
+    private final class StepCache {
+        private final int combinedSize;
+        private final boolean bounded;
+        private double[] combined;
+        private double[] gates;
+        private int capacity;
+        private int start;
+        private int size;
+        private boolean recorded;
+
+        StepCache(int combinedSize, int limit) {
+            this.combinedSize = combinedSize;
+            this.bounded = limit > 0;
+            allocate(bounded ? limit : 16);
+        }
+
+        private void allocate(int newCapacity) {
+            double[] newCombined = new double[newCapacity * combinedSize];
+            double[] newGates = new double[newCapacity * 3 * hiddenUnits];
+            for (int k = 0; k < size; k++) {
+                int from = (start + k) % capacity;
+                System.arraycopy(combined, from * combinedSize, newCombined, k * combinedSize, combinedSize);
+                System.arraycopy(gates, from * 3 * hiddenUnits, newGates, k * 3 * hiddenUnits, 3 * hiddenUnits);
+            }
+            combined = newCombined;
+            gates = newGates;
+            capacity = newCapacity;
+            start = 0;
+        }
+
+        int push() {
+            if (size == capacity) {
+                if (bounded) {
+                    start = (start + 1) % capacity;
+                    size--;
+                } else {
+                    allocate(capacity * 2);
+                }
+            }
+            recorded = true;
+            return (start + size++) % capacity;
+        }
+
+        int pop() {
+            if (size == 0) {
+                return -1;
+            }
+            return (start + --size) % capacity;
+        }
+
+        boolean hasRecorded() {
+            return recorded;
+        }
+
+        void clear() {
+            start = 0;
+            size = 0;
+        }
+    }
 }
@@ -0,0 +1,174 @@
+package net.sf.l2j.botmanager.learning;
+
+import java.util.Arrays;
+
+/**
+ * XOR-сжатие последовательности значений double (как в Gorilla).
+ *
+ * Точки ряда идут с постоянным шагом, поэтому время не кодируется.
+ * Каждое значение сравнивается с предыдущим по XOR битов: совпадение
+ * занимает один бит, близкие значения - только значащие биты разницы.
+ * Медленно меняющиеся ряды и пропуски (NaN) сжимаются в несколько раз.
+ */
+final class GorillaCodec {
+
+    /**
+     * Наибольший размер одной точки в битах (кроме первой)
+     */
+    static final int MAX_BITS_PER_POINT = 2 + 5 + 6 + 64;
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * Наибольший размер сжатого блока в long-словах.
+     *
+     * @param count количество точек
+     */
+    static int maxWords(int count) {
+        long bits = count == 0 ? 0 : 64 + (long) (count - 1) * MAX_BITS_PER_POINT;
+        return (int) ((bits + 63) / 64);
+    }
+
+    /**
+     * Сжать значения.
+     *
+     * @param values значения
+     * @param count количество точек
+     * @return сжатые данные без неиспользуемых слов
+     */
+    static long[] encode(double[] values, int count) {
+        BitWriter writer = new BitWriter(maxWords(count));
+        if (count == 0) {
+            return writer.toArray();
+        }
+
+        long previous = Double.doubleToRawLongBits(values[0]);
+        writer.write(previous, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+
+        for (int i = 1; i < count; i++) {
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ previous;
+            previous = bits;
+
+            if (xor == 0) {
+                writer.write(0, 1);
+                continue;
+            }
+
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // Значащие биты помещаются в окно предыдущей точки
+                writer.write(0b10, 2);
+                writer.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int meaningful = 64 - leading - trailing;
+                writer.write(0b11, 2);
+                writer.write(leading, 5);
+                writer.write(meaningful - 1, 6);
+                writer.write(xor >>> trailing, meaningful);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+        return writer.toArray();
+    }
+
+    /**
+     * Восстановить значения.
+     *
+     * @param data сжатые данные
+     * @param count количество точек
+     * @param output массив результата
+     * @param offset смещение в массиве результата
+     */
+    static void decode(long[] data, int count, double[] output, int offset) {
+        if (count == 0) {
+            return;
+        }
+        BitReader reader = new BitReader(data);
+        long previous = reader.read(64);
+        output[offset] = Double.longBitsToDouble(previous);
+        int leading = 0;
+        int trailing = 0;
+
+        for (int i = 1; i < count; i++) {
+            if (reader.read(1) != 0) {
+                if (reader.read(1) != 0) {
+                    leading = (int) reader.read(5);
+                    int meaningful = (int) reader.read(6) + 1;
+                    trailing = 64 - leading - meaningful;
+                }
+                previous ^= reader.read(64 - leading - trailing) << trailing;
+            }
+            output[offset + i] = Double.longBitsToDouble(previous);
+        }
+    }
+
+    /**
+     * Запись битов в массив long-слов
+     */
+    private static final class BitWriter {
+        private final long[] words;
+        private long position;
+
+        BitWriter(int capacity) {
+            words = new long[capacity];
+        }
+
+        void write(long value, int bits) {
+            if (bits == 0) {
+                return;
+            }
+            if (bits < 64) {
+                value &= (1L << bits) - 1;
+            }
+            int word = (int) (position >>> 6);
+            int used = (int) (position & 63);
+            int free = 64 - used;
+            if (bits <= free) {
+                words[word] |= value << (free - bits);
+            } else {
+                words[word] |= value >>> (bits - free);
+                words[word + 1] |= value << (64 - (bits - free));
+            }
+            position += bits;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(words, (int) ((position + 63) >>> 6));
+        }
+    }
+
+    /**
+     * Чтение битов из массива long-слов
+     */
+    private static final class BitReader {
+        private final long[] words;
+        private long position;
+
+        BitReader(long[] words) {
+            this.words = words;
+        }
+
+        long read(int bits) {
+            if (bits == 0) {
+                return 0;
+            }
+            int word = (int) (position >>> 6);
+            int used = (int) (position & 63);
+            int available = 64 - used;
+            long value;
+            if (bits <= available) {
+                value = words[word] >>> (available - bits);
+            } else {
+                value = (words[word] << (bits - available)) | (words[word + 1] >>> (64 - (bits - available)));
+            }
+            position += bits;
+            return bits == 64 ? value : value & ((1L << bits) - 1);
+        }
+    }
+}
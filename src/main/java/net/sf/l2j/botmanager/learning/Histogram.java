@@ -0,0 +1,134 @@
+package net.sf.l2j.botmanager.learning;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасная гистограмма неотрицательных значений
+ *
+ * Значения раскладываются по логарифмическим корзинам: корзина {@code b}
+ * содержит значения из диапазона [2^(b-1), 2^b), корзина 0 - нули.
+ * Запись выполняется без блокировок, а процентили оцениваются верхней
+ * границей корзины, поэтому погрешность не превышает двукратной.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class Histogram {
+
+    /**
+     * Количество корзин (покрывает весь диапазон long)
+     */
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Записывает значение
+     *
+     * @param value значение (отрицательные считаются нулем)
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(bucketOf(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Возвращает количество записанных значений
+     *
+     * @return количество значений
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Возвращает среднее значение
+     *
+     * @return среднее или 0, если значений нет
+     */
+    public double getMean() {
+        long n = count.get();
+        return n > 0 ? (double) sum.get() / n : 0.0;
+    }
+
+    /**
+     * Возвращает максимальное значение
+     *
+     * @return максимум
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Оценивает процентиль
+     *
+     * @param percentile процентиль от 0 до 100
+     * @return верхняя граница корзины, содержащей процентиль (не больше максимума)
+     */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.max(0.0, Math.min(100.0, percentile)) / 100.0 * n);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets.get(b);
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBound(b), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Возвращает количество значений в корзине
+     *
+     * @param bucket индекс корзины
+     * @return количество значений
+     */
+    public long getBucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    /**
+     * Сбрасывает гистограмму
+     */
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets.set(b, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Возвращает индекс корзины для значения
+     *
+     * @param value неотрицательное значение
+     * @return индекс корзины
+     */
+    static int bucketOf(long value) {
+        return value == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.1f, p50=%d, p99=%d, max=%d",
+            getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+    }
+}
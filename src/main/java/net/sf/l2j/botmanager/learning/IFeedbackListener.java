@@ -4,8 +4,15 @@ import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
 import net.sf.l2j.botmanager.behaviors.BehaviorType;
 import net.sf.l2j.botmanager.actions.ActionType;
 
+import java.util.List;
+
 /**
  * Интерфейс слушателя обратной связи для обучения ботов.
+ * 
+ * Обратная связь доставляется асинхронно потоком доставки
+ * {@link FeedbackDispatcher} пакетами записей в порядке записи. По
+ * умолчанию пакетные методы вызывают поштучные; слушатель может
+ * переопределить их, чтобы обрабатывать пакет целиком.
  */
 public interface IFeedbackListener {
     
@@ -41,4 +48,39 @@ public interface IFeedbackListener {
      * @param event событие обучения
      */
     void onLearningEvent(EnhancedFakePlayer bot, LearningEvent event);
+    
+    /**
+     * Обработка пакета обратной связи по действиям.
+     * 
+     * @param records записи вида {@link FeedbackRecord.Kind#ACTION}
+     */
+    default void onActionFeedbackBatch(List<FeedbackRecord> records) {
+        for (FeedbackRecord record : records) {
+            onActionFeedback(record.getBot(), record.getActionType(), record.isSuccess(),
+                record.getExecutionTime(), record.getDetails());
+        }
+    }
+    
+    /**
+     * Обработка пакета обратной связи по поведениям.
+     * 
+     * @param records записи вида {@link FeedbackRecord.Kind#BEHAVIOR}
+     */
+    default void onBehaviorFeedbackBatch(List<FeedbackRecord> records) {
+        for (FeedbackRecord record : records) {
+            onBehaviorFeedback(record.getBot(), record.getBehaviorType(), record.isSuccess(),
+                record.getExecutionTime(), record.getActionsPerformed(), record.getDetails());
+        }
+    }
+    
+    /**
+     * Обработка пакета событий обучения.
+     * 
+     * @param records записи вида {@link FeedbackRecord.Kind#LEARNING_EVENT}
+     */
+    default void onLearningEventBatch(List<FeedbackRecord> records) {
+        for (FeedbackRecord record : records) {
+            onLearningEvent(record.getBot(), record.getEvent());
+        }
+    }
 }
@@ -0,0 +1,369 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.utils.Logger;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис пакетного инференса предсказаний
+ *
+ * Запросы предсказаний ботов накапливаются в очереди в пределах тика
+ * (или короткого окна микропакета) и выполняются при сбросе
+ * ({@link #flush()}): запросы группируются по модели, и для каждой группы
+ * выполняется один пакетный прямой проход
+ * {@link NeuralNetwork#forwardBatch(double[], int, double[], NeuralNetwork.OutputHead[])}.
+ * Тысячи матрично-векторных произведений отдельных ботов заменяются
+ * несколькими матричными умножениями.
+ *
+ * Результат каждого запроса передается через {@link CompletableFuture}.
+ * Сброс выполняется вызывающим кодом раз в тик, фоновым потоком с
+ * заданным окном ({@link #start(long)}) или сразу при накоплении
+ * максимального размера пакета.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class InferenceService {
+
+    private static final Logger _log = Logger.getLogger(InferenceService.class);
+
+    // ==================== КОНСТАНТЫ ====================
+
+    /**
+     * Максимальный размер пакета по умолчанию
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    // ==================== ПОЛЯ ====================
+
+    /**
+     * Максимальный размер пакета одного прямого прохода
+     */
+    private final int maxBatchSize;
+
+    /**
+     * Ожидающие запросы
+     */
+    private final Queue<Request> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Количество ожидающих запросов
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * Распределение размеров пакетов
+     */
+    private final Histogram batchSizes = new Histogram();
+
+    /**
+     * Распределение времени ожидания в очереди (микросекунды)
+     */
+    private final Histogram queueWaitMicros = new Histogram();
+
+    /**
+     * Количество выполненных запросов
+     */
+    private final AtomicLong completedRequests = new AtomicLong();
+
+    /**
+     * Количество пакетных прямых проходов
+     */
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * Фоновый поток сброса (если запущен)
+     */
+    private ScheduledExecutorService flusher;
+
+    // ==================== КОНСТРУКТОРЫ ====================
+
+    /**
+     * Конструктор с размером пакета по умолчанию
+     */
+    public InferenceService() {
+        this(DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Конструктор
+     *
+     * @param maxBatchSize максимальный размер пакета
+     */
+    public InferenceService(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    // ==================== ЖИЗНЕННЫЙ ЦИКЛ ====================
+
+    /**
+     * Запускает фоновый сброс с окном микропакета
+     *
+     * @param windowMs окно накопления запросов в миллисекундах
+     */
+    public synchronized void start(long windowMs) {
+        if (windowMs <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "InferenceService-Flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, windowMs, windowMs, TimeUnit.MILLISECONDS);
+        _log.info("InferenceService started with " + windowMs + "ms window");
+    }
+
+    /**
+     * Останавливает фоновый сброс и выполняет оставшиеся запросы
+     */
+    public void stop() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = flusher;
+            flusher = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            _log.info("InferenceService stopped");
+        }
+        flush();
+    }
+
+    // ==================== ЗАПРОСЫ ====================
+
+    /**
+     * Ставит запрос предсказания в очередь
+     *
+     * Входные данные подготавливаются сразу в потоке вызова, а прямой
+     * проход выполняется при ближайшем сбросе.
+     *
+     * @param network модель
+     * @param head выходной слой бота или null
+     * @param model модель предсказаний бота
+     * @param context контекст предсказания
+     * @return будущее предсказание (null, если предсказание невозможно)
+     */
+    public CompletableFuture<ActionPrediction> submit(NeuralNetwork network, NeuralNetwork.OutputHead head,
+                                                      PredictionModel model, PredictionContext context) {
+        if (network == null || model == null || context == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Request request = new Request(network, head, model, context, model.prepareInputs(context));
+        pending.add(request);
+        if (pendingCount.incrementAndGet() >= maxBatchSize) {
+            flush();
+        }
+        return request.future;
+    }
+
+    /**
+     * Выполняет все ожидающие запросы
+     *
+     * @return количество выполненных запросов
+     */
+    public int flush() {
+        if (pendingCount.get() == 0) {
+            return 0;
+        }
+
+        // Группируем запросы по модели
+        Map<NeuralNetwork, List<Request>> groups = new IdentityHashMap<>();
+        Request request;
+        int drained = 0;
+        while ((request = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            groups.computeIfAbsent(request.network, network -> new ArrayList<>()).add(request);
+            drained++;
+        }
+
+        long now = System.nanoTime();
+        for (Map.Entry<NeuralNetwork, List<Request>> group : groups.entrySet()) {
+            List<Request> requests = group.getValue();
+            for (int from = 0; from < requests.size(); from += maxBatchSize) {
+                runBatch(group.getKey(), requests.subList(from, Math.min(from + maxBatchSize, requests.size())), now);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Выполняет пакет запросов к одной модели
+     *
+     * @param network модель
+     * @param requests запросы
+     * @param flushTime время начала сброса (наносекунды)
+     */
+    private void runBatch(NeuralNetwork network, List<Request> requests, long flushTime) {
+        int inputSize = network.getInputSize();
+        int outputSize = network.getOutputSize();
+
+        // Запросы с неподходящим размером входа не могут быть выполнены
+        List<Request> batch = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            queueWaitMicros.record((flushTime - request.submitTime) / 1000);
+            if (request.inputs.length == inputSize) {
+                batch.add(request);
+            } else {
+                complete(request, null);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        int batchSize = batch.size();
+        double[] inputs = new double[batchSize * inputSize];
+        double[] outputs = new double[batchSize * outputSize];
+        NeuralNetwork.OutputHead[] heads = null;
+        for (int r = 0; r < batchSize; r++) {
+            Request request = batch.get(r);
+            System.arraycopy(request.inputs, 0, inputs, r * inputSize, inputSize);
+            if (request.head != null) {
+                if (heads == null) {
+                    heads = new NeuralNetwork.OutputHead[batchSize];
+                }
+                heads[r] = request.head;
+            }
+        }
+
+        boolean success = network.forwardBatch(inputs, batchSize, outputs, heads);
+        batchSizes.record(batchSize);
+        batches.incrementAndGet();
+
+        for (int r = 0; r < batchSize; r++) {
+            Request request = batch.get(r);
+            if (!success) {
+                complete(request, null);
+                continue;
+            }
+            double[] row = new double[outputSize];
+            System.arraycopy(outputs, r * outputSize, row, 0, outputSize);
+            try {
+                complete(request, request.model.completePrediction(row, request.context, request.startTime));
+            } catch (Exception e) {
+                _log.error("Error completing batched prediction: " + e.getMessage(), e);
+                complete(request, null);
+            }
+        }
+    }
+
+    private void complete(Request request, ActionPrediction prediction) {
+        completedRequests.incrementAndGet();
+        request.future.complete(prediction);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            _log.error("Error flushing inference requests: " + e.getMessage(), e);
+        }
+    }
+
+    // ==================== СТАТИСТИКА ====================
+
+    /**
+     * Возвращает количество ожидающих запросов
+     *
+     * @return количество запросов
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Возвращает распределение размеров пакетов
+     *
+     * @return гистограмма размеров пакетов
+     */
+    public Histogram getBatchSizeHistogram() {
+        return batchSizes;
+    }
+
+    /**
+     * Возвращает распределение времени ожидания в очереди
+     *
+     * @return гистограмма ожидания в микросекундах
+     */
+    public Histogram getQueueWaitHistogram() {
+        return queueWaitMicros;
+    }
+
+    /**
+     * Возвращает количество выполненных запросов
+     *
+     * @return количество запросов
+     */
+    public long getCompletedRequests() {
+        return completedRequests.get();
+    }
+
+    /**
+     * Возвращает количество пакетных прямых проходов
+     *
+     * @return количество пакетов
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Возвращает статистику сервиса
+     *
+     * @return статистика
+     */
+    public String getStatistics() {
+        return String.format("InferenceService Stats: Pending=%d, Completed=%d, Batches=%d, Batch Size [%s], Queue Wait us [%s]",
+            getPendingCount(), getCompletedRequests(), getBatchCount(), batchSizes, queueWaitMicros);
+    }
+
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+
+    /**
+     * Запрос предсказания в очереди
+     */
+    private static final class Request {
+        final NeuralNetwork network;
+        final NeuralNetwork.OutputHead head;
+        final PredictionModel model;
+        final PredictionContext context;
+        final double[] inputs;
+        final long submitTime = System.nanoTime();
+        final long startTime = System.currentTimeMillis();
+        final CompletableFuture<ActionPrediction> future = new CompletableFuture<>();
+
+        Request(NeuralNetwork network, NeuralNetwork.OutputHead head, PredictionModel model,
+                PredictionContext context, double[] inputs) {
+            this.network = network;
+            this.head = head;
+            this.model = model;
+            this.context = context;
+            this.inputs = inputs;
+        }
+    }
+}
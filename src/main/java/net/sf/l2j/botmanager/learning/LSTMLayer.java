@@ -2,137 +2,151 @@ package net.sf.l2j.botmanager.learning;
 
 import net.sf.l2j.botmanager.utils.Logger;
 
+import java.util.Arrays;
 import java.util.Random;
 
 /**
  * LSTM (Long Short-Term Memory) слой для рекуррентных нейронных сетей
- * 
+ *
  * LSTM слой решает проблему исчезающих градиентов в обычных RNN,
  * позволяя сети запоминать информацию на длительные периоды времени.
  * Это особенно важно для анализа временных последовательностей
  * и паттернов поведения ботов в игре.
- * 
+ *
+ * Веса четырех гейтов (забывающего, входного, кандидатов и выходного)
+ * хранятся одной плоской матрицей [4 * hiddenUnits, inputSize + hiddenUnits],
+ * поэтому все гейты шага вычисляются одним матрично-векторным произведением.
+ * Шаг не выделяет памяти: рабочие буферы и кэш шагов для обратного
+ * распространения во времени (BPTT) выделяются заранее.
+ *
+ * Обратное распространение вызывается для шагов в обратном порядке; кэш
+ * хранит не более {@link #setBpttSteps(int)} последних шагов (усеченный
+ * BPTT), что ограничивает память на длинных последовательностях.
+ * Для потокового инференса по одному шагу за тик служит
+ * {@link #step(State, double[], double[])} с состоянием бота {@link State}.
+ *
  * @author ni-okr
  * @version 3.3
  */
 public class LSTMLayer extends NetworkLayer {
-    
+
     private static final Logger _log = Logger.getLogger(LSTMLayer.class.getName());
-    
+
     // ==================== ПАРАМЕТРЫ СЛОЯ ====================
-    
+
     /** Количество скрытых единиц */
     private final int hiddenUnits;
-    
-    /** Размер входа */
-    private int inputSize;
-    
-    /** Веса для забывающего гейта */
-    private double[][] forgetWeights;
-    private double[] forgetBias;
-    
-    /** Веса для входного гейта */
-    private double[][] inputWeights;
-    private double[] inputBias;
-    
-    /** Веса для кандидатов */
-    private double[][] candidateWeights;
-    private double[] candidateBias;
-    
-    /** Веса для выходного гейта */
-    private double[][] outputWeights;
-    private double[] outputBias;
-    
-    /** Состояние ячейки */
-    private double[] cellState;
-    
-    /** Скрытое состояние */
-    private double[] hiddenState;
-    
-    /** Предыдущее скрытое состояние */
-    private double[] prevHiddenState;
-    
-    /** Предыдущее состояние ячейки */
-    private double[] prevCellState;
-    
+
+    /**
+     * Веса гейтов: строки [0, H) - забывающий, [H, 2H) - входной,
+     * [2H, 3H) - кандидаты, [3H, 4H) - выходной гейт
+     */
+    private double[] weights;
+
+    /** Смещения гейтов в той же раскладке */
+    private double[] biases;
+
     /** Градиенты весов */
-    private double[][] forgetWeightGradients;
-    private double[] forgetBiasGradients;
-    private double[][] inputWeightGradients;
-    private double[] inputBiasGradients;
-    private double[][] candidateWeightGradients;
-    private double[] candidateBiasGradients;
-    private double[][] outputWeightGradients;
-    private double[] outputBiasGradients;
-    
-    /** Кэш для входных данных */
-    private double[] inputCache;
-    
+    private double[] weightGradients;
+
+    /** Градиенты смещений */
+    private double[] biasGradients;
+
+    /** Состояние слоя при последовательной обработке ({@link #forward(double[])}) */
+    private State state;
+
+    /** Кэш шагов для обратного распространения во времени */
+    private StepCache cache;
+
+    /** Количество шагов усеченного BPTT (0 - без ограничения до сброса состояния) */
+    private int bpttSteps = DEFAULT_BPTT_STEPS;
+
+    /** Градиент скрытого состояния, переносимый к более раннему шагу */
+    private double[] hiddenGradientCarry;
+
+    /** Градиент состояния ячейки, переносимый к более раннему шагу */
+    private double[] cellGradientCarry;
+
+    /** Градиенты предактиваций гейтов шага */
+    private double[] gateGradients;
+
+    /** Градиенты объединенного входа шага */
+    private double[] combinedGradients;
+
+    /** Признак того, что выполняется серия обратных шагов */
+    private boolean backwardInProgress;
+
     /** Генератор случайных чисел */
     private final Random random;
-    
+
     // ==================== КОНСТАНТЫ ====================
-    
+
     /** Минимальное количество скрытых единиц */
     private static final int MIN_HIDDEN_UNITS = 1;
-    
+
     /** Максимальное количество скрытых единиц */
     private static final int MAX_HIDDEN_UNITS = 1024;
-    
+
     /** Минимальный размер входа */
     private static final int MIN_INPUT_SIZE = 1;
-    
+
     /** Максимальный размер входа */
     private static final int MAX_INPUT_SIZE = 1000;
-    
+
+    /** Количество шагов усеченного BPTT по умолчанию */
+    public static final int DEFAULT_BPTT_STEPS = 64;
+
+    /** Количество гейтов */
+    private static final int GATES = 4;
+
     // ==================== КОНСТРУКТОРЫ ====================
-    
+
     /**
      * Создает новый LSTM слой
-     * 
+     *
      * @param hiddenUnits количество скрытых единиц
      */
     public LSTMLayer(int hiddenUnits) {
         super(NetworkLayer.LayerType.LSTM);
         this.hiddenUnits = hiddenUnits;
+        this.outputSize = hiddenUnits;
         this.random = new Random();
-        
+
         // Валидация параметров
         if (!isValidParameters()) {
             throw new IllegalArgumentException("Invalid LSTM parameters");
         }
-        
+
         _log.info("LSTMLayer created: hiddenUnits=" + hiddenUnits);
     }
-    
+
     // ==================== ОСНОВНЫЕ МЕТОДЫ ====================
-    
+
     /**
      * Инициализирует слой с заданными размерами
-     * 
+     *
      * @param inputSize размер входа
      * @param outputSize размер выхода (игнорируется для LSTM)
      */
     @Override
     public void initialize(int inputSize, int outputSize) {
         this.inputSize = inputSize;
-        
+
         // Инициализируем веса
         initializeWeights();
-        
-        // Инициализируем состояния
-        initializeStates();
-        
-        // Инициализируем градиенты
-        initializeGradients();
-        
-        _log.info("LSTMLayer initialized: inputSize=" + inputSize + 
+
+        // Инициализируем состояния, рабочие буферы и градиенты
+        allocateBuffers();
+
+        _log.info("LSTMLayer initialized: inputSize=" + inputSize +
                  ", hiddenUnits=" + hiddenUnits);
     }
-    
+
     /**
      * Выполняет прямое распространение
-     * 
+     *
+     * Шаг сохраняется в кэше для обратного распространения во времени.
+     *
      * @param inputs входные данные
      * @return выходные данные (скрытое состояние)
      */
@@ -141,24 +155,33 @@ public class LSTMLayer extends NetworkLayer {
         if (inputs == null) {
             throw new IllegalArgumentException("Input cannot be null");
         }
-        
+
         if (inputs.length != inputSize) {
             throw new IllegalArgumentException("Input size mismatch");
         }
-        
-        // Сохраняем входные данные
-        this.inputCache = inputs.clone();
-        
-        // Выполняем LSTM forward pass
-        double[] output = performLSTMForward(inputs);
-        
-        return output;
+
+        // Новая серия прямых шагов начинает обратный проход заново
+        backwardInProgress = false;
+
+        int slot = cache.push();
+        System.arraycopy(state.cell, 0, cache.prevCells, slot * hiddenUnits, hiddenUnits);
+        compute(state, inputs);
+        System.arraycopy(state.combined, 0, cache.combined, slot * cache.combinedSize, cache.combinedSize);
+        System.arraycopy(state.gates, 0, cache.gates, slot * GATES * hiddenUnits, GATES * hiddenUnits);
+        System.arraycopy(state.cell, 0, cache.cells, slot * hiddenUnits, hiddenUnits);
+
+        return state.hidden.clone();
     }
-    
+
     /**
      * Выполняет обратное распространение
-     * 
-     * @param inputs входные данные
+     *
+     * Вызывается для шагов последовательности в обратном порядке: каждый
+     * вызов обрабатывает самый поздний еще не обработанный шаг кэша и
+     * переносит градиенты состояния к предыдущему шагу. Шаги, вытесненные
+     * из кэша усеченным BPTT, получают нулевые градиенты.
+     *
+     * @param inputs входные данные (используются кэшированные)
      * @param outputGradients градиенты выходного слоя
      * @return градиенты входного слоя
      */
@@ -167,371 +190,357 @@ public class LSTMLayer extends NetworkLayer {
         if (outputGradients == null) {
             throw new IllegalArgumentException("Output gradients cannot be null");
         }
-        
+
         if (outputGradients.length != hiddenUnits) {
             throw new IllegalArgumentException("Output gradients size mismatch");
         }
-        
-        if (inputCache == null) {
+
+        if (cache == null || !cache.hasRecorded()) {
             throw new IllegalStateException("Forward pass must be called before backward pass");
         }
-        
-        // Выполняем LSTM backward pass
-        double[] inputGradients = performLSTMBackward(inputCache, outputGradients);
-        
+
+        if (!backwardInProgress) {
+            Arrays.fill(hiddenGradientCarry, 0.0);
+            Arrays.fill(cellGradientCarry, 0.0);
+            backwardInProgress = true;
+        }
+
+        double[] inputGradients = new double[inputSize];
+        int slot = cache.pop();
+        if (slot < 0) {
+            // Шаг вне окна усеченного BPTT
+            return inputGradients;
+        }
+
+        backwardStep(slot, outputGradients);
+        System.arraycopy(combinedGradients, 0, inputGradients, 0, inputSize);
         return inputGradients;
     }
-    
+
     /**
      * Обновляет веса с помощью оптимизатора
-     * 
+     *
      * @param learningRate скорость обучения
      */
     @Override
     public void updateWeights(double learningRate) {
-        // Обновляем веса забывающего гейта
-        updateWeightMatrix(forgetWeights, forgetWeightGradients, learningRate);
-        updateBiasVector(forgetBias, forgetBiasGradients, learningRate);
-        
-        // Обновляем веса входного гейта
-        updateWeightMatrix(inputWeights, inputWeightGradients, learningRate);
-        updateBiasVector(inputBias, inputBiasGradients, learningRate);
-        
-        // Обновляем веса кандидатов
-        updateWeightMatrix(candidateWeights, candidateWeightGradients, learningRate);
-        updateBiasVector(candidateBias, candidateBiasGradients, learningRate);
-        
-        // Обновляем веса выходного гейта
-        updateWeightMatrix(outputWeights, outputWeightGradients, learningRate);
-        updateBiasVector(outputBias, outputBiasGradients, learningRate);
-        
+        TensorOps.axpy(-learningRate, weightGradients, weights, weights.length);
+        TensorOps.axpy(-learningRate, biasGradients, biases, biases.length);
+
         // Сбрасываем градиенты
-        resetGradients();
+        Arrays.fill(weightGradients, 0.0);
+        Arrays.fill(biasGradients, 0.0);
     }
-    
+
     /**
      * Возвращает размер выхода слоя
-     * 
+     *
      * @return количество выходных элементов
      */
     @Override
     public int getOutputSize() {
         return hiddenUnits;
     }
-    
+
     /**
-     * Сбрасывает состояние слоя
+     * Сбрасывает состояние слоя и кэш шагов (начало новой последовательности)
      */
     public void resetState() {
-        if (hiddenState != null) {
-            System.arraycopy(prevHiddenState, 0, hiddenState, 0, hiddenUnits);
-        }
-        if (cellState != null) {
-            System.arraycopy(prevCellState, 0, cellState, 0, hiddenUnits);
+        if (state != null) {
+            state.reset();
+            cache.clear();
+            backwardInProgress = false;
         }
     }
-    
+
     /**
      * Устанавливает начальное состояние
-     * 
+     *
      * @param initialHiddenState начальное скрытое состояние
      * @param initialCellState начальное состояние ячейки
      */
     public void setInitialState(double[] initialHiddenState, double[] initialCellState) {
+        if (state == null) {
+            return;
+        }
         if (initialHiddenState != null && initialHiddenState.length == hiddenUnits) {
-            System.arraycopy(initialHiddenState, 0, hiddenState, 0, hiddenUnits);
+            System.arraycopy(initialHiddenState, 0, state.hidden, 0, hiddenUnits);
         }
         if (initialCellState != null && initialCellState.length == hiddenUnits) {
-            System.arraycopy(initialCellState, 0, cellState, 0, hiddenUnits);
+            System.arraycopy(initialCellState, 0, state.cell, 0, hiddenUnits);
         }
     }
-    
-    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
-    
+
+    // ==================== ПОТОКОВЫЙ ИНФЕРЕНС ====================
+
     /**
-     * Проверяет валидность параметров
-     * 
-     * @return true если параметры корректны
+     * Создает состояние для потокового инференса
+     *
+     * @return нулевое состояние
      */
-    private boolean isValidParameters() {
-        return hiddenUnits >= MIN_HIDDEN_UNITS && hiddenUnits <= MAX_HIDDEN_UNITS;
+    public State createState() {
+        if (inputSize <= 0) {
+            throw new IllegalStateException("Layer not initialized");
+        }
+        return new State(inputSize, hiddenUnits);
     }
-    
+
     /**
-     * Инициализирует веса
+     * Выполняет один шаг потокового инференса без выделения памяти
+     *
+     * Состояние бота продвигается на один шаг; кэш обратного
+     * распространения не используется.
+     *
+     * @param state состояние бота
+     * @param input вход шага
+     * @param output буфер для скрытого состояния (размер hiddenUnits)
      */
-    private void initializeWeights() {
-        // Инициализация весов забывающего гейта
-        forgetWeights = new double[hiddenUnits][inputSize + hiddenUnits];
-        forgetBias = new double[hiddenUnits];
-        initializeWeightMatrix(forgetWeights);
-        initializeBiasVector(forgetBias);
-        
-        // Инициализация весов входного гейта
-        inputWeights = new double[hiddenUnits][inputSize + hiddenUnits];
-        inputBias = new double[hiddenUnits];
-        initializeWeightMatrix(inputWeights);
-        initializeBiasVector(inputBias);
-        
-        // Инициализация весов кандидатов
-        candidateWeights = new double[hiddenUnits][inputSize + hiddenUnits];
-        candidateBias = new double[hiddenUnits];
-        initializeWeightMatrix(candidateWeights);
-        initializeBiasVector(candidateBias);
-        
-        // Инициализация весов выходного гейта
-        outputWeights = new double[hiddenUnits][inputSize + hiddenUnits];
-        outputBias = new double[hiddenUnits];
-        initializeWeightMatrix(outputWeights);
-        initializeBiasVector(outputBias);
+    public void step(State state, double[] input, double[] output) {
+        if (state == null || input == null || input.length != inputSize) {
+            throw new IllegalArgumentException("Invalid streaming step arguments");
+        }
+        compute(state, input);
+        System.arraycopy(state.hidden, 0, output, 0, hiddenUnits);
     }
-    
+
     /**
-     * Инициализирует состояния
+     * Устанавливает количество шагов усеченного BPTT
+     *
+     * Изменение очищает кэш шагов.
+     *
+     * @param steps количество шагов (0 - без ограничения до сброса состояния)
      */
-    private void initializeStates() {
-        hiddenState = new double[hiddenUnits];
-        cellState = new double[hiddenUnits];
-        prevHiddenState = new double[hiddenUnits];
-        prevCellState = new double[hiddenUnits];
-        
-        // Инициализируем нулями
-        for (int i = 0; i < hiddenUnits; i++) {
-            hiddenState[i] = 0.0;
-            cellState[i] = 0.0;
-            prevHiddenState[i] = 0.0;
-            prevCellState[i] = 0.0;
+    public void setBpttSteps(int steps) {
+        this.bpttSteps = Math.max(0, steps);
+        if (cache != null) {
+            cache = new StepCache(inputSize + hiddenUnits, bpttSteps);
+            backwardInProgress = false;
         }
     }
-    
+
     /**
-     * Инициализирует градиенты
+     * Возвращает количество шагов усеченного BPTT
+     *
+     * @return количество шагов (0 - без ограничения)
      */
-    private void initializeGradients() {
-        forgetWeightGradients = new double[hiddenUnits][inputSize + hiddenUnits];
-        forgetBiasGradients = new double[hiddenUnits];
-        inputWeightGradients = new double[hiddenUnits][inputSize + hiddenUnits];
-        inputBiasGradients = new double[hiddenUnits];
-        candidateWeightGradients = new double[hiddenUnits][inputSize + hiddenUnits];
-        candidateBiasGradients = new double[hiddenUnits];
-        outputWeightGradients = new double[hiddenUnits][inputSize + hiddenUnits];
-        outputBiasGradients = new double[hiddenUnits];
+    public int getBpttSteps() {
+        return bpttSteps;
     }
-    
+
+    // ==================== ПАРАЛЛЕЛЬНОЕ ОБУЧЕНИЕ ====================
+
     /**
-     * Инициализирует матрицу весов
-     * 
-     * @param weights матрица весов
+     * Создает реплику слоя для потока обучения
+     *
+     * Реплика разделяет с исходным слоем веса и смещения, но имеет
+     * собственные состояние, кэш шагов и градиенты, поэтому несколько
+     * реплик могут одновременно обрабатывать разные последовательности.
+     * Реплика действительна, пока слой не инициализирован заново, и не
+     * должна обновлять веса сама.
+     *
+     * @return реплика слоя
      */
-    private void initializeWeightMatrix(double[][] weights) {
-        double limit = Math.sqrt(6.0 / (weights[0].length + hiddenUnits));
-        
-        for (int i = 0; i < weights.length; i++) {
-            for (int j = 0; j < weights[i].length; j++) {
-                weights[i][j] = (random.nextDouble() * 2 - 1) * limit;
-            }
-        }
+    LSTMLayer createReplica() {
+        LSTMLayer replica = new LSTMLayer(hiddenUnits);
+        replica.inputSize = inputSize;
+        replica.bpttSteps = bpttSteps;
+        replica.weights = weights;
+        replica.biases = biases;
+        replica.allocateBuffers();
+        return replica;
     }
-    
+
     /**
-     * Инициализирует вектор смещений
-     * 
-     * @param bias вектор смещений
+     * Умножает накопленные градиенты весов и смещений на число
+     *
+     * @param alpha множитель
      */
-    private void initializeBiasVector(double[] bias) {
-        for (int i = 0; i < bias.length; i++) {
-            bias[i] = 0.0;
-        }
+    void scaleGradients(double alpha) {
+        TensorOps.scale(alpha, weightGradients, weightGradients.length);
+        TensorOps.scale(alpha, biasGradients, biasGradients.length);
     }
-    
+
     /**
-     * Выполняет LSTM forward pass
-     * 
-     * @param inputs входные данные
-     * @return выходные данные
+     * Прибавляет градиенты другой реплики того же слоя
+     *
+     * @param other реплика с градиентами
      */
-    private double[] performLSTMForward(double[] inputs) {
-        // Объединяем входные данные и предыдущее скрытое состояние
-        double[] combined = new double[inputSize + hiddenUnits];
-        System.arraycopy(inputs, 0, combined, 0, inputSize);
-        System.arraycopy(prevHiddenState, 0, combined, inputSize, hiddenUnits);
-        
-        // Сохраняем предыдущие состояния
-        System.arraycopy(hiddenState, 0, prevHiddenState, 0, hiddenUnits);
-        System.arraycopy(cellState, 0, prevCellState, 0, hiddenUnits);
-        
-        // Вычисляем забывающий гейт
-        double[] forgetGate = new double[hiddenUnits];
-        for (int i = 0; i < hiddenUnits; i++) {
-            double sum = forgetBias[i];
-            for (int j = 0; j < combined.length; j++) {
-                sum += combined[j] * forgetWeights[i][j];
-            }
-            forgetGate[i] = ActivationFunction.sigmoid(sum);
-        }
-        
-        // Вычисляем входной гейт
-        double[] inputGate = new double[hiddenUnits];
-        for (int i = 0; i < hiddenUnits; i++) {
-            double sum = inputBias[i];
-            for (int j = 0; j < combined.length; j++) {
-                sum += combined[j] * inputWeights[i][j];
-            }
-            inputGate[i] = ActivationFunction.sigmoid(sum);
-        }
-        
-        // Вычисляем кандидатов
-        double[] candidates = new double[hiddenUnits];
-        for (int i = 0; i < hiddenUnits; i++) {
-            double sum = candidateBias[i];
-            for (int j = 0; j < combined.length; j++) {
-                sum += combined[j] * candidateWeights[i][j];
-            }
-            candidates[i] = ActivationFunction.tanh(sum);
-        }
-        
-        // Вычисляем выходной гейт
-        double[] outputGate = new double[hiddenUnits];
-        for (int i = 0; i < hiddenUnits; i++) {
-            double sum = outputBias[i];
-            for (int j = 0; j < combined.length; j++) {
-                sum += combined[j] * outputWeights[i][j];
-            }
-            outputGate[i] = ActivationFunction.sigmoid(sum);
-        }
-        
-        // Обновляем состояние ячейки
-        for (int i = 0; i < hiddenUnits; i++) {
-            cellState[i] = forgetGate[i] * prevCellState[i] + inputGate[i] * candidates[i];
-        }
-        
-        // Вычисляем скрытое состояние
-        for (int i = 0; i < hiddenUnits; i++) {
-            hiddenState[i] = outputGate[i] * ActivationFunction.tanh(cellState[i]);
-        }
-        
-        return hiddenState.clone();
+    void addGradients(LSTMLayer other) {
+        TensorOps.axpy(1.0, other.weightGradients, weightGradients, weightGradients.length);
+        TensorOps.axpy(1.0, other.biasGradients, biasGradients, biasGradients.length);
     }
-    
+
     /**
-     * Выполняет LSTM backward pass
-     * 
-     * @param inputs входные данные
-     * @param outputGradients градиенты выходного слоя
-     * @return градиенты входного слоя
+     * Обнуляет накопленные градиенты
      */
-    private double[] performLSTMBackward(double[] inputs, double[] outputGradients) {
-        // Упрощенная реализация обратного распространения
-        // В реальной реализации здесь должны быть сложные вычисления градиентов
-        
-        double[] inputGradients = new double[inputSize];
-        
-        // Простое распространение градиентов назад
-        for (int i = 0; i < inputSize; i++) {
-            inputGradients[i] = outputGradients[i % hiddenUnits] * 0.1;
-        }
-        
-        return inputGradients;
+    void clearGradients() {
+        Arrays.fill(weightGradients, 0.0);
+        Arrays.fill(biasGradients, 0.0);
     }
-    
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
     /**
-     * Обновляет матрицу весов
-     * 
-     * @param weights матрица весов
-     * @param gradients градиенты
-     * @param learningRate скорость обучения
+     * Выделяет состояние, кэш шагов, рабочие буферы и градиенты под текущие веса
      */
-    private void updateWeightMatrix(double[][] weights, double[][] gradients, double learningRate) {
-        for (int i = 0; i < weights.length; i++) {
-            for (int j = 0; j < weights[i].length; j++) {
-                weights[i][j] -= learningRate * gradients[i][j];
-            }
-        }
+    private void allocateBuffers() {
+        state = createState();
+        cache = new StepCache(inputSize + hiddenUnits, bpttSteps);
+        hiddenGradientCarry = new double[hiddenUnits];
+        cellGradientCarry = new double[hiddenUnits];
+        gateGradients = new double[GATES * hiddenUnits];
+        combinedGradients = new double[inputSize + hiddenUnits];
+        backwardInProgress = false;
+        weightGradients = new double[weights.length];
+        biasGradients = new double[biases.length];
     }
-    
+
     /**
-     * Обновляет вектор смещений
-     * 
-     * @param bias вектор смещений
-     * @param gradients градиенты
-     * @param learningRate скорость обучения
+     * Проверяет валидность параметров
+     *
+     * @return true если параметры корректны
      */
-    private void updateBiasVector(double[] bias, double[] gradients, double learningRate) {
-        for (int i = 0; i < bias.length; i++) {
-            bias[i] -= learningRate * gradients[i];
-        }
+    private boolean isValidParameters() {
+        return hiddenUnits >= MIN_HIDDEN_UNITS && hiddenUnits <= MAX_HIDDEN_UNITS;
     }
-    
+
     /**
-     * Сбрасывает градиенты
+     * Инициализирует веса и смещения
      */
-    private void resetGradients() {
-        resetGradientMatrix(forgetWeightGradients);
-        resetGradientVector(forgetBiasGradients);
-        resetGradientMatrix(inputWeightGradients);
-        resetGradientVector(inputBiasGradients);
-        resetGradientMatrix(candidateWeightGradients);
-        resetGradientVector(candidateBiasGradients);
-        resetGradientMatrix(outputWeightGradients);
-        resetGradientVector(outputBiasGradients);
+    private void initializeWeights() {
+        int cols = inputSize + hiddenUnits;
+        weights = new double[GATES * hiddenUnits * cols];
+        biases = new double[GATES * hiddenUnits];
+
+        double limit = Math.sqrt(6.0 / (cols + hiddenUnits));
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (random.nextDouble() * 2 - 1) * limit;
+        }
     }
-    
+
     /**
-     * Сбрасывает матрицу градиентов
-     * 
-     * @param gradients матрица градиентов
+     * Выполняет шаг LSTM над состоянием
+     *
+     * После вызова state.combined содержит [x, h_prev], state.gates -
+     * активированные гейты, state.hidden и state.cell - новое состояние.
+     *
+     * @param state состояние
+     * @param inputs вход шага
      */
-    private void resetGradientMatrix(double[][] gradients) {
-        for (int i = 0; i < gradients.length; i++) {
-            for (int j = 0; j < gradients[i].length; j++) {
-                gradients[i][j] = 0.0;
-            }
+    private void compute(State state, double[] inputs) {
+        int h = hiddenUnits;
+        double[] combined = state.combined;
+        double[] gates = state.gates;
+
+        // Объединяем вход и предыдущее скрытое состояние
+        System.arraycopy(inputs, 0, combined, 0, inputSize);
+        System.arraycopy(state.hidden, 0, combined, inputSize, h);
+
+        // Все гейты одним матрично-векторным произведением
+        TensorOps.matVec(weights, biases, combined, gates, GATES * h, inputSize + h);
+        TensorOps.sigmoid(gates, gates, 0, 2 * h);
+        TensorOps.tanh(gates, gates, 2 * h, h);
+        TensorOps.sigmoid(gates, gates, 3 * h, h);
+
+        for (int j = 0; j < h; j++) {
+            state.cell[j] = gates[j] * state.cell[j] + gates[h + j] * gates[2 * h + j];
+        }
+        TensorOps.tanh(state.cell, state.hidden, 0, h);
+        for (int j = 0; j < h; j++) {
+            state.hidden[j] *= gates[3 * h + j];
         }
     }
-    
+
     /**
-     * Сбрасывает вектор градиентов
-     * 
-     * @param gradients вектор градиентов
+     * Выполняет обратный шаг по кэшированному шагу
+     *
+     * @param slot позиция шага в кэше
+     * @param outputGradients градиенты скрытого состояния от следующего слоя
      */
-    private void resetGradientVector(double[] gradients) {
-        for (int i = 0; i < gradients.length; i++) {
-            gradients[i] = 0.0;
+    private void backwardStep(int slot, double[] outputGradients) {
+        int h = hiddenUnits;
+        int cols = inputSize + h;
+        int gateBase = slot * GATES * h;
+        int cellBase = slot * h;
+        int combinedBase = slot * cols;
+        double[] gates = cache.gates;
+
+        for (int j = 0; j < h; j++) {
+            double forget = gates[gateBase + j];
+            double input = gates[gateBase + h + j];
+            double candidate = gates[gateBase + 2 * h + j];
+            double output = gates[gateBase + 3 * h + j];
+            double cellTanh = ActivationFunction.tanh(cache.cells[cellBase + j]);
+
+            double dh = outputGradients[j] + hiddenGradientCarry[j];
+            double dc = dh * output * (1.0 - cellTanh * cellTanh) + cellGradientCarry[j];
+
+            gateGradients[j] = dc * cache.prevCells[cellBase + j] * forget * (1.0 - forget);
+            gateGradients[h + j] = dc * candidate * input * (1.0 - input);
+            gateGradients[2 * h + j] = dc * input * (1.0 - candidate * candidate);
+            gateGradients[3 * h + j] = dh * cellTanh * output * (1.0 - output);
+            cellGradientCarry[j] = dc * forget;
         }
+
+        // Накопление градиентов весов: dW += dz * combined^T
+        TensorOps.addOuter(1.0, gateGradients, cache.combined, combinedBase, weightGradients, GATES * h, cols);
+        TensorOps.axpy(1.0, gateGradients, biasGradients, GATES * h);
+
+        // Градиенты входа и предыдущего скрытого состояния
+        TensorOps.matTVec(weights, gateGradients, combinedGradients, GATES * h, cols);
+        System.arraycopy(combinedGradients, inputSize, hiddenGradientCarry, 0, h);
     }
-    
+
     // ==================== ГЕТТЕРЫ ====================
-    
+
     /**
      * Возвращает количество скрытых единиц
-     * 
+     *
      * @return количество скрытых единиц
      */
     public int getHiddenUnits() {
         return hiddenUnits;
     }
-    
+
     /**
      * Возвращает текущее скрытое состояние
-     * 
+     *
      * @return скрытое состояние
      */
     public double[] getHiddenState() {
-        return hiddenState != null ? hiddenState.clone() : null;
+        return state != null ? state.hidden.clone() : null;
     }
-    
+
     /**
      * Возвращает текущее состояние ячейки
-     * 
+     *
      * @return состояние ячейки
      */
     public double[] getCellState() {
-        return cellState != null ? cellState.clone() : null;
+        return state != null ? state.cell.clone() : null;
+    }
+
+    /**
+     * Возвращает веса гейтов (плоская матрица [4 * hiddenUnits, inputSize + hiddenUnits])
+     *
+     * @return массив весов слоя
+     */
+    double[] getWeights() {
+        return weights;
     }
-    
+
+    /**
+     * Возвращает накопленные градиенты весов
+     *
+     * @return массив градиентов в раскладке весов
+     */
+    double[] getWeightGradients() {
+        return weightGradients;
+    }
+
     /**
      * Возвращает статистику слоя
-     * 
+     *
      * @return строка со статистикой
      */
     public String getStatistics() {
@@ -540,17 +549,150 @@ public class LSTMLayer extends NetworkLayer {
         stats.append("Hidden Units: ").append(hiddenUnits).append("\n");
         stats.append("Input Size: ").append(inputSize).append("\n");
         stats.append("Parameters: ").append(getParameterCount()).append("\n");
+        stats.append("BPTT Steps: ").append(bpttSteps).append("\n");
         return stats.toString();
     }
-    
+
     /**
      * Возвращает количество параметров
-     * 
+     *
      * @return количество параметров
      */
     private int getParameterCount() {
-        int weights = 4 * hiddenUnits * (inputSize + hiddenUnits);
-        int biases = 4 * hiddenUnits;
+        int weights = GATES * hiddenUnits * (inputSize + hiddenUnits);
+        int biases = GATES * hiddenUnits;
         return weights + biases;
     }
+
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+
+    /**
+     * Рекуррентное состояние LSTM с рабочими буферами шага
+     *
+     * Каждый бот при потоковом инференсе хранит собственное состояние,
+     * а веса слоя остаются общими.
+     */
+    public static final class State {
+        private final double[] hidden;
+        private final double[] cell;
+        private final double[] combined;
+        private final double[] gates;
+
+        private State(int inputSize, int hiddenUnits) {
+            this.hidden = new double[hiddenUnits];
+            this.cell = new double[hiddenUnits];
+            this.combined = new double[inputSize + hiddenUnits];
+            this.gates = new double[GATES * hiddenUnits];
+        }
+
+        /**
+         * Обнуляет скрытое состояние и состояние ячейки
+         */
+        public void reset() {
+            Arrays.fill(hidden, 0.0);
+            Arrays.fill(cell, 0.0);
+        }
+
+        /**
+         * Возвращает скрытое состояние
+         *
+         * @return копия скрытого состояния
+         */
+        public double[] getHidden() {
+            return hidden.clone();
+        }
+
+        /**
+         * Возвращает состояние ячейки
+         *
+         * @return копия состояния ячейки
+         */
+        public double[] getCell() {
+            return cell.clone();
+        }
+    }
+
+    /**
+     * Кэш шагов для обратного распространения во времени
+     *
+     * Кольцевой буфер: при ограниченной емкости самые старые шаги
+     * вытесняются, без ограничения буфер растет до сброса состояния.
+     */
+    private final class StepCache {
+        private final int combinedSize;
+        private final boolean bounded;
+        private double[] combined;
+        private double[] gates;
+        private double[] prevCells;
+        private double[] cells;
+        private int capacity;
+        private int start;
+        private int size;
+        private boolean recorded;
+
+        StepCache(int combinedSize, int limit) {
+            this.combinedSize = combinedSize;
+            this.bounded = limit > 0;
+            allocate(bounded ? limit : 16);
+        }
+
+        private void allocate(int newCapacity) {
+            double[] newCombined = new double[newCapacity * combinedSize];
+            double[] newGates = new double[newCapacity * GATES * hiddenUnits];
+            double[] newPrevCells = new double[newCapacity * hiddenUnits];
+            double[] newCells = new double[newCapacity * hiddenUnits];
+            for (int k = 0; k < size; k++) {
+                int from = (start + k) % capacity;
+                System.arraycopy(combined, from * combinedSize, newCombined, k * combinedSize, combinedSize);
+                System.arraycopy(gates, from * GATES * hiddenUnits, newGates, k * GATES * hiddenUnits, GATES * hiddenUnits);
+                System.arraycopy(prevCells, from * hiddenUnits, newPrevCells, k * hiddenUnits, hiddenUnits);
+                System.arraycopy(cells, from * hiddenUnits, newCells, k * hiddenUnits, hiddenUnits);
+            }
+            combined = newCombined;
+            gates = newGates;
+            prevCells = newPrevCells;
+            cells = newCells;
+            capacity = newCapacity;
+            start = 0;
+        }
+
+        /**
+         * Резервирует позицию для нового шага
+         *
+         * @return позиция шага
+         */
+        int push() {
+            if (size == capacity) {
+                if (bounded) {
+                    start = (start + 1) % capacity;
+                    size--;
+                } else {
+                    allocate(capacity * 2);
+                }
+            }
+            recorded = true;
+            return (start + size++) % capacity;
+        }
+
+        /**
+         * Извлекает самый поздний шаг
+         *
+         * @return позиция шага или -1, если кэш пуст
+         */
+        int pop() {
+            if (size == 0) {
+                return -1;
+            }
+            return (start + --size) % capacity;
+        }
+
+        boolean hasRecorded() {
+            return recorded;
+        }
+
+        void clear() {
+            start = 0;
+            size = 0;
+        }
+    }
 }
@@ -3,6 +3,7 @@ package net.sf.l2j.botmanager.learning;
 import net.sf.l2j.botmanager.utils.Logger;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -14,7 +15,7 @@ import java.util.concurrent.atomic.AtomicLong;
  * 
  * Ключевые возможности:
  * - Обработка обучающих данных
- * - Нормализация и стандартизация данных
+ * - Потоковая нормализация признаков по накопленной статистике
  * - Обработка обратной связи
  * - Фильтрация и очистка данных
  * - Статистика обработки
@@ -27,6 +28,33 @@ public class LearningDataProcessor {
     
     private static final Logger _log = Logger.getLogger(LearningDataProcessor.class);
     
+    /**
+     * Размер вектора признаков ситуации ({@link #writeFeatures(TrainingData, double[], int)}):
+     * состояние бота (7), окружение (6), история действий (5), производительность (4)
+     */
+    public static final int FEATURE_SIZE = 22;
+    
+    /**
+     * Группа признаков состояния бота
+     */
+    public static final String BOT_STATE_GROUP = "botState";
+    
+    /**
+     * Группа признаков окружения
+     */
+    public static final String ENVIRONMENT_GROUP = "environment";
+    
+    /**
+     * Группы признаков ситуации в порядке {@link #writeFeatures(TrainingData, double[], int)}
+     */
+    private static final String[] FEATURE_GROUPS = {BOT_STATE_GROUP, ENVIRONMENT_GROUP, "actionHistory", "performance"};
+    private static final int[] FEATURE_GROUP_SIZES = {7, 6, 5, 4};
+    
+    /**
+     * Минимальное стандартное отклонение признака для стандартизации
+     */
+    private static final double MIN_DEVIATION = 1e-9;
+    
     // ==================== ПОЛЯ ====================
     
     /**
@@ -55,9 +83,14 @@ public class LearningDataProcessor {
     private volatile long lastProcessingTime = 0;
     
     /**
-     * Статистика нормализации
+     * Статистика нормализации по группам признаков
      */
-    private final Map<String, NormalizationStats> normalizationStats = new HashMap<>();
+    private final Map<String, NormalizationStats> normalizationStats = new ConcurrentHashMap<>();
+    
+    /**
+     * Коэффициент затухания статистики нормализации (1 - без затухания)
+     */
+    private volatile double normalizationDecay = 1.0;
     
     // ==================== КОНСТРУКТОР ====================
     
@@ -87,7 +120,7 @@ public class LearningDataProcessor {
         try {
             long startTime = System.currentTimeMillis();
             
-            // Извлекаем входные данные
+            // Извлекаем входные данные (нормализуются при извлечении)
             double[][] inputs = extractInputs(trainingData);
             if (inputs == null || inputs.length == 0) {
                 processingErrors.incrementAndGet();
@@ -101,10 +134,6 @@ public class LearningDataProcessor {
                 return null;
             }
             
-            // Нормализуем данные
-            inputs = normalizeInputs(inputs);
-            targets = normalizeTargets(targets);
-            
             // Создаем обработанные данные
             ProcessedData processedData = new ProcessedData(inputs, targets);
             
@@ -139,7 +168,7 @@ public class LearningDataProcessor {
         try {
             long startTime = System.currentTimeMillis();
             
-            // Извлекаем данные из обратной связи
+            // Извлекаем данные из обратной связи (нормализуются при извлечении)
             double[][] inputs = extractFeedbackInputs(feedback);
             if (inputs == null || inputs.length == 0) {
                 processingErrors.incrementAndGet();
@@ -152,10 +181,6 @@ public class LearningDataProcessor {
                 return null;
             }
             
-            // Нормализуем данные
-            inputs = normalizeInputs(inputs);
-            targets = normalizeTargets(targets);
-            
             // Создаем обработанные данные
             ProcessedData processedData = new ProcessedData(inputs, targets);
             
@@ -189,19 +214,19 @@ public class LearningDataProcessor {
         
         // Извлекаем данные из различных источников
         if (trainingData.getBotState() != null) {
-            inputList.add(extractBotStateInputs(trainingData.getBotState()));
+            inputList.add(standardize(BOT_STATE_GROUP, extractBotStateInputs(trainingData.getBotState())));
         }
         
         if (trainingData.getEnvironmentData() != null) {
-            inputList.add(extractEnvironmentInputs(trainingData.getEnvironmentData()));
+            inputList.add(standardize(ENVIRONMENT_GROUP, extractEnvironmentInputs(trainingData.getEnvironmentData())));
         }
         
         if (trainingData.getActionHistory() != null) {
-            inputList.add(extractActionHistoryInputs(trainingData.getActionHistory()));
+            inputList.add(standardize("actionHistory", extractActionHistoryInputs(trainingData.getActionHistory())));
         }
         
         if (trainingData.getPerformanceMetrics() != null) {
-            inputList.add(extractPerformanceInputs(trainingData.getPerformanceMetrics()));
+            inputList.add(standardize("performance", extractPerformanceInputs(trainingData.getPerformanceMetrics())));
         }
         
         return inputList.toArray(new double[0][]);
@@ -218,15 +243,15 @@ public class LearningDataProcessor {
         
         // Извлекаем целевые значения
         if (trainingData.getExpectedActions() != null) {
-            targetList.add(extractActionTargets(trainingData.getExpectedActions()));
+            targetList.add(rescale("expectedActions", extractActionTargets(trainingData.getExpectedActions())));
         }
         
         if (trainingData.getExpectedBehaviors() != null) {
-            targetList.add(extractBehaviorTargets(trainingData.getExpectedBehaviors()));
+            targetList.add(rescale("expectedBehaviors", extractBehaviorTargets(trainingData.getExpectedBehaviors())));
         }
         
         if (trainingData.getExpectedOutcomes() != null) {
-            targetList.add(extractOutcomeTargets(trainingData.getExpectedOutcomes()));
+            targetList.add(rescale("expectedOutcomes", extractOutcomeTargets(trainingData.getExpectedOutcomes())));
         }
         
         return targetList.toArray(new double[0][]);
@@ -242,15 +267,15 @@ public class LearningDataProcessor {
         List<double[]> inputList = new ArrayList<>();
         
         if (feedback.getActionFeedback() != null) {
-            inputList.add(extractActionFeedbackInputs(feedback.getActionFeedback()));
+            inputList.add(standardize("actionFeedback", extractActionFeedbackInputs(feedback.getActionFeedback())));
         }
         
         if (feedback.getBehaviorFeedback() != null) {
-            inputList.add(extractBehaviorFeedbackInputs(feedback.getBehaviorFeedback()));
+            inputList.add(standardize("behaviorFeedback", extractBehaviorFeedbackInputs(feedback.getBehaviorFeedback())));
         }
         
         if (feedback.getPerformanceData() != null) {
-            inputList.add(extractPerformanceDataInputs(feedback.getPerformanceData()));
+            inputList.add(standardize("performanceData", extractPerformanceDataInputs(feedback.getPerformanceData())));
         }
         
         return inputList.toArray(new double[0][]);
@@ -270,11 +295,71 @@ public class LearningDataProcessor {
         targetList.add(successTarget);
         
         double[] performanceTarget = {feedback.getPerformanceScore()};
-        targetList.add(performanceTarget);
+        targetList.add(rescale("performanceScore", performanceTarget));
         
         return targetList.toArray(new double[0][]);
     }
     
+    /**
+     * Записывает вектор признаков ситуации в массив без выделения памяти
+     * 
+     * Признаки идут в том же порядке, что и строки входов
+     * {@link #processTrainingData(TrainingData)}, но одной строкой из
+     * {@link #FEATURE_SIZE} значений и без нормализации; отсутствующие
+     * части заполняются нулями. Используется для записей
+     * {@link ExperienceReplayBuffer} и нормализуется
+     * {@link #normalizeFeatures(double[], int)}.
+     * 
+     * @param trainingData данные ситуации
+     * @param features массив признаков
+     * @param offset смещение в массиве
+     */
+    public static void writeFeatures(TrainingData trainingData, double[] features, int offset) {
+        Arrays.fill(features, offset, offset + FEATURE_SIZE, 0.0);
+        int i = offset;
+        
+        BotStateData botState = trainingData.getBotState();
+        if (botState != null) {
+            features[i] = botState.getHealth();
+            features[i + 1] = botState.getMana();
+            features[i + 2] = botState.getLevel();
+            features[i + 3] = botState.getExperience();
+            features[i + 4] = botState.getX();
+            features[i + 5] = botState.getY();
+            features[i + 6] = botState.getZ();
+        }
+        i += 7;
+        
+        EnvironmentData environment = trainingData.getEnvironmentData();
+        if (environment != null) {
+            features[i] = environment.getNearbyEnemies();
+            features[i + 1] = environment.getNearbyAllies();
+            features[i + 2] = environment.getNearbyNpcs();
+            features[i + 3] = environment.getTimeOfDay();
+            features[i + 4] = environment.getWeather();
+            features[i + 5] = environment.getDangerLevel();
+        }
+        i += 6;
+        
+        ActionHistoryData history = trainingData.getActionHistory();
+        if (history != null) {
+            features[i] = history.getTotalActions();
+            features[i + 1] = history.getSuccessfulActions();
+            features[i + 2] = history.getFailedActions();
+            features[i + 3] = history.getAverageExecutionTime();
+            features[i + 4] = history.getLastActionTime();
+        }
+        i += 5;
+        
+        PerformanceMetrics performance = trainingData.getPerformanceMetrics();
+        if (performance != null) {
+            features[i] = performance.getSuccessRate();
+            features[i + 1] = performance.getEfficiency();
+            features[i + 2] = performance.getResponseTime();
+            features[i + 3] = performance.getResourceUsage();
+        }
+    }
+    
     // ==================== ИЗВЛЕЧЕНИЕ КОНКРЕТНЫХ ДАННЫХ ====================
     
     /**
@@ -436,104 +521,143 @@ public class LearningDataProcessor {
     // ==================== НОРМАЛИЗАЦИЯ ====================
     
     /**
-     * Нормализует входные данные
+     * Добавляет входные признаки группы в статистику и стандартизирует их
+     * на месте: (x - среднее) / стандартное отклонение
      * 
-     * @param inputs входные данные
-     * @return нормализованные данные
+     * @param type группа признаков
+     * @param values признаки группы
+     * @return те же признаки, стандартизированные
      */
-    private double[][] normalizeInputs(double[][] inputs) {
-        if (inputs == null || inputs.length == 0) {
-            return inputs;
-        }
-        
-        double[][] normalized = new double[inputs.length][];
-        for (int i = 0; i < inputs.length; i++) {
-            normalized[i] = normalizeArray(inputs[i], "input");
-        }
-        
-        return normalized;
+    private double[] standardize(String type, double[] values) {
+        statsFor(type, values.length).updateAndStandardize(values, 0);
+        return values;
     }
     
     /**
-     * Нормализует целевые данные
+     * Добавляет целевые значения группы в статистику и приводит их на
+     * месте к диапазону [0, 1] по накопленным минимуму и максимуму
      * 
-     * @param targets целевые данные
-     * @return нормализованные данные
+     * @param type группа целевых значений
+     * @param values целевые значения группы
+     * @return те же значения, приведенные к диапазону
      */
-    private double[][] normalizeTargets(double[][] targets) {
-        if (targets == null || targets.length == 0) {
-            return targets;
-        }
-        
-        double[][] normalized = new double[targets.length][];
-        for (int i = 0; i < targets.length; i++) {
-            normalized[i] = normalizeArray(targets[i], "target");
-        }
-        
-        return normalized;
+    private double[] rescale(String type, double[] values) {
+        statsFor(type, values.length).updateAndRescale(values, 0);
+        return values;
     }
     
     /**
-     * Нормализует массив данных
+     * Возвращает статистику группы, создавая ее при необходимости
      * 
-     * @param data данные для нормализации
-     * @param type тип данных
-     * @return нормализованные данные
+     * Статистика с другим количеством признаков (например, восстановленная
+     * из файла прежней версии) заменяется пустой.
      */
-    private double[] normalizeArray(double[] data, String type) {
-        if (data == null || data.length == 0) {
-            return data;
-        }
-        
-        // Вычисляем статистики
-        double min = Double.MAX_VALUE;
-        double max = Double.MIN_VALUE;
-        double sum = 0.0;
-        
-        for (double value : data) {
-            if (Double.isFinite(value)) {
-                min = Math.min(min, value);
-                max = Math.max(max, value);
-                sum += value;
-            }
-        }
-        
-        double mean = sum / data.length;
-        double range = max - min;
-        
-        // Обновляем статистики нормализации
-        updateNormalizationStats(type, min, max, mean, range);
-        
-        // Нормализуем данные
-        double[] normalized = new double[data.length];
-        for (int i = 0; i < data.length; i++) {
-            if (Double.isFinite(data[i]) && range > 0) {
-                normalized[i] = (data[i] - min) / range;
+    private NormalizationStats statsFor(String type, int featureCount) {
+        NormalizationStats stats = normalizationStats.get(type);
+        if (stats == null || stats.getFeatureCount() != featureCount) {
+            NormalizationStats created = new NormalizationStats(featureCount);
+            created.setDecay(normalizationDecay);
+            if (stats == null) {
+                stats = normalizationStats.putIfAbsent(type, created);
+                if (stats == null) {
+                    stats = created;
+                }
+            } else if (normalizationStats.replace(type, stats, created)) {
+                stats = created;
             } else {
-                normalized[i] = 0.0;
+                stats = normalizationStats.get(type);
             }
         }
-        
-        return normalized;
+        return stats;
     }
     
     /**
-     * Обновляет статистики нормализации
+     * Стандартизирует вектор признаков ситуации на месте по накопленной
+     * статистике без ее изменения
      * 
-     * @param type тип данных
-     * @param min минимальное значение
-     * @param max максимальное значение
-     * @param mean среднее значение
-     * @param range диапазон значений
+     * Применяет к вектору {@link #writeFeatures(TrainingData, double[], int)}
+     * то же преобразование, что и к входам обучения, поэтому признаки при
+     * обучении и при предсказании согласованы. Группы без статистики
+     * остаются без изменений.
+     * 
+     * @param features массив признаков
+     * @param offset смещение вектора в массиве
      */
-    private void updateNormalizationStats(String type, double min, double max, double mean, double range) {
+    public void normalizeFeatures(double[] features, int offset) {
+        int position = offset;
+        for (int g = 0; g < FEATURE_GROUPS.length; g++) {
+            normalizeGroup(FEATURE_GROUPS[g], features, position, FEATURE_GROUP_SIZES[g]);
+            position += FEATURE_GROUP_SIZES[g];
+        }
+    }
+    
+    /**
+     * Стандартизирует признаки одной группы на месте по накопленной
+     * статистике без ее изменения
+     * 
+     * Используется при предсказании ({@link PredictionModel}), чтобы входы
+     * сети были в том же масштабе, что и входы обучения. Группа без
+     * статистики или с другим количеством признаков остается без изменений.
+     * 
+     * @param type группа признаков
+     * @param values массив значений
+     * @param offset начало группы в массиве
+     * @param count количество признаков группы
+     * @return true, если значения стандартизированы
+     */
+    public boolean normalizeGroup(String type, double[] values, int offset, int count) {
         NormalizationStats stats = normalizationStats.get(type);
-        if (stats == null) {
-            stats = new NormalizationStats();
-            normalizationStats.put(type, stats);
+        if (stats == null || stats.getFeatureCount() != count) {
+            return false;
         }
-        
-        stats.update(min, max, mean, range);
+        stats.standardize(values, offset, values, offset);
+        return true;
+    }
+    
+    /**
+     * Накапливает статистику группы по набору примеров
+     * 
+     * Примеры обрабатываются параллельно частями, статистики частей
+     * объединяются и добавляются к накопленной. Примеры неподходящего
+     * размера пропускаются.
+     * 
+     * @param type группа признаков
+     * @param rows примеры одинакового размера
+     */
+    public void fitNormalization(String type, double[][] rows) {
+        if (type == null || rows == null || rows.length == 0 || rows[0] == null || rows[0].length == 0) {
+            return;
+        }
+        int featureCount = rows[0].length;
+        NormalizationStats batch = Arrays.stream(rows)
+            .parallel()
+            .filter(row -> row != null && row.length == featureCount)
+            .collect(() -> new NormalizationStats(featureCount),
+                     (stats, row) -> stats.update(row, 0),
+                     NormalizationStats::merge);
+        statsFor(type, featureCount).merge(batch);
+    }
+    
+    /**
+     * Устанавливает коэффициент затухания статистики нормализации
+     * 
+     * Меньшие значения быстрее забывают старые примеры, и нормализация
+     * следует за изменением распределения признаков.
+     * 
+     * @param decay множитель веса накопленных примеров на каждый новый пример (0, 1]
+     */
+    public void setNormalizationDecay(double decay) {
+        if (!(decay > 0.0 && decay <= 1.0)) {
+            return;
+        }
+        normalizationDecay = decay;
+        for (NormalizationStats stats : normalizationStats.values()) {
+            stats.setDecay(decay);
+        }
+    }
+    
+    public double getNormalizationDecay() {
+        return normalizationDecay;
     }
     
     // ==================== СТАТИСТИКА ====================
@@ -553,14 +677,29 @@ public class LearningDataProcessor {
     }
     
     /**
-     * Возвращает статистику нормализации
+     * Возвращает копию статистики нормализации
      * 
-     * @return статистика нормализации
+     * @return статистика нормализации по группам признаков
      */
     public Map<String, NormalizationStats> getNormalizationStats() {
-        return new HashMap<>(normalizationStats);
+        Map<String, NormalizationStats> snapshot = new HashMap<>();
+        for (Map.Entry<String, NormalizationStats> entry : normalizationStats.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().copy());
+        }
+        return snapshot;
     }
-    
+
+    /**
+     * Восстанавливает сохраненную статистику нормализации
+     *
+     * Статистика типов, отсутствующих в сохраненных данных, сохраняется.
+     *
+     * @param stats статистика по типам данных
+     */
+    void restoreNormalizationStats(Map<String, NormalizationStats> stats) {
+        normalizationStats.putAll(stats);
+    }
+
     // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
     
     /**
@@ -592,27 +731,231 @@ public class LearningDataProcessor {
     }
     
     /**
-     * Статистика нормализации
+     * Потоковая статистика нормализации группы признаков
+     * 
+     * Для каждого признака хранит в примитивных массивах вес, среднее,
+     * сумму квадратов отклонений (алгоритм Уэлфорда), минимум и максимум.
+     * С коэффициентом затухания меньше 1 вклад старых примеров
+     * экспоненциально убывает. Статистики, накопленные независимо,
+     * объединяются без потери точности ({@link #merge(NormalizationStats)}).
      */
     public static class NormalizationStats {
-        private double minValue = Double.MAX_VALUE;
-        private double maxValue = Double.MIN_VALUE;
-        private double meanValue = 0.0;
-        private double rangeValue = 0.0;
-        private int updateCount = 0;
-        
-        public void update(double min, double max, double mean, double range) {
-            minValue = Math.min(minValue, min);
-            maxValue = Math.max(maxValue, max);
-            meanValue = (meanValue * updateCount + mean) / (updateCount + 1);
-            rangeValue = Math.max(rangeValue, range);
-            updateCount++;
-        }
-        
-        public double getMinValue() { return minValue; }
-        public double getMaxValue() { return maxValue; }
-        public double getMeanValue() { return meanValue; }
-        public double getRangeValue() { return rangeValue; }
-        public int getUpdateCount() { return updateCount; }
+        private final double[] weights;
+        private final double[] means;
+        private final double[] squares;
+        private final double[] minValues;
+        private final double[] maxValues;
+        private long sampleCount = 0;
+        private double decay = 1.0;
+        
+        /**
+         * Создает пустую статистику
+         * 
+         * @param featureCount количество признаков
+         */
+        public NormalizationStats(int featureCount) {
+            if (featureCount <= 0) {
+                throw new IllegalArgumentException("Feature count must be positive: " + featureCount);
+            }
+            weights = new double[featureCount];
+            means = new double[featureCount];
+            squares = new double[featureCount];
+            minValues = new double[featureCount];
+            maxValues = new double[featureCount];
+            Arrays.fill(minValues, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxValues, Double.NEGATIVE_INFINITY);
+        }
+        
+        /**
+         * Добавляет пример в статистику
+         * 
+         * Нечисловые и бесконечные значения пропускаются.
+         * 
+         * @param values массив значений
+         * @param offset смещение примера в массиве
+         */
+        public synchronized void update(double[] values, int offset) {
+            for (int j = 0; j < means.length; j++) {
+                accept(j, values[offset + j]);
+            }
+            sampleCount++;
+        }
+        
+        /**
+         * Добавляет пример в статистику и стандартизирует его на месте
+         * за один проход
+         * 
+         * @param values массив значений
+         * @param offset смещение примера в массиве
+         */
+        public synchronized void updateAndStandardize(double[] values, int offset) {
+            for (int j = 0; j < means.length; j++) {
+                accept(j, values[offset + j]);
+                values[offset + j] = standardize(j, values[offset + j]);
+            }
+            sampleCount++;
+        }
+        
+        /**
+         * Добавляет пример в статистику и приводит его на месте к
+         * диапазону [0, 1] по накопленным минимуму и максимуму
+         * 
+         * @param values массив значений
+         * @param offset смещение примера в массиве
+         */
+        public synchronized void updateAndRescale(double[] values, int offset) {
+            for (int j = 0; j < means.length; j++) {
+                accept(j, values[offset + j]);
+                values[offset + j] = rescale(j, values[offset + j]);
+            }
+            sampleCount++;
+        }
+        
+        /**
+         * Стандартизирует пример без изменения статистики
+         * 
+         * Источник и приемник могут совпадать.
+         * 
+         * @param source массив значений
+         * @param sourceOffset смещение примера
+         * @param target массив результата
+         * @param targetOffset смещение результата
+         */
+        public synchronized void standardize(double[] source, int sourceOffset, double[] target, int targetOffset) {
+            for (int j = 0; j < means.length; j++) {
+                target[targetOffset + j] = standardize(j, source[sourceOffset + j]);
+            }
+        }
+        
+        /**
+         * Приводит пример к диапазону [0, 1] без изменения статистики
+         * 
+         * Источник и приемник могут совпадать.
+         * 
+         * @param source массив значений
+         * @param sourceOffset смещение примера
+         * @param target массив результата
+         * @param targetOffset смещение результата
+         */
+        public synchronized void rescale(double[] source, int sourceOffset, double[] target, int targetOffset) {
+            for (int j = 0; j < means.length; j++) {
+                target[targetOffset + j] = rescale(j, source[sourceOffset + j]);
+            }
+        }
+        
+        /**
+         * Объединяет с независимо накопленной статистикой (формула Чана)
+         * 
+         * @param other статистика с тем же количеством признаков
+         */
+        public void merge(NormalizationStats other) {
+            if (other.getFeatureCount() != means.length) {
+                throw new IllegalArgumentException("Cannot merge stats of " + other.getFeatureCount()
+                    + " features into " + means.length);
+            }
+            NormalizationStats source = other.copy();
+            synchronized (this) {
+                for (int j = 0; j < means.length; j++) {
+                    double otherWeight = source.weights[j];
+                    if (otherWeight <= 0.0) {
+                        continue;
+                    }
+                    double weight = weights[j] + otherWeight;
+                    double delta = source.means[j] - means[j];
+                    means[j] += delta * otherWeight / weight;
+                    squares[j] += source.squares[j] + delta * delta * weights[j] * otherWeight / weight;
+                    weights[j] = weight;
+                    minValues[j] = Math.min(minValues[j], source.minValues[j]);
+                    maxValues[j] = Math.max(maxValues[j], source.maxValues[j]);
+                }
+                sampleCount += source.sampleCount;
+            }
+        }
+        
+        /**
+         * Возвращает согласованную копию статистики
+         * 
+         * @return копия
+         */
+        public synchronized NormalizationStats copy() {
+            NormalizationStats copy = new NormalizationStats(means.length);
+            copy.restore(sampleCount, decay, weights, means, squares, minValues, maxValues);
+            return copy;
+        }
+        
+        /**
+         * Восстанавливает сохраненную статистику
+         */
+        synchronized void restore(long sampleCount, double decay, double[] weights, double[] means,
+                                  double[] squares, double[] minValues, double[] maxValues) {
+            this.sampleCount = sampleCount;
+            this.decay = decay;
+            System.arraycopy(weights, 0, this.weights, 0, this.weights.length);
+            System.arraycopy(means, 0, this.means, 0, this.means.length);
+            System.arraycopy(squares, 0, this.squares, 0, this.squares.length);
+            System.arraycopy(minValues, 0, this.minValues, 0, this.minValues.length);
+            System.arraycopy(maxValues, 0, this.maxValues, 0, this.maxValues.length);
+        }
+        
+        private void accept(int j, double value) {
+            double weight = weights[j] * decay;
+            squares[j] *= decay;
+            if (Double.isFinite(value)) {
+                weight += 1.0;
+                double delta = value - means[j];
+                means[j] += delta / weight;
+                squares[j] += delta * (value - means[j]);
+                minValues[j] = Math.min(minValues[j], value);
+                maxValues[j] = Math.max(maxValues[j], value);
+            }
+            weights[j] = weight;
+        }
+        
+        private double standardize(int j, double value) {
+            double deviation = Math.sqrt(variance(j));
+            if (!Double.isFinite(value) || !(deviation > MIN_DEVIATION)) {
+                return 0.0;
+            }
+            return (value - means[j]) / deviation;
+        }
+        
+        private double rescale(int j, double value) {
+            double range = maxValues[j] - minValues[j];
+            if (!Double.isFinite(value) || !(range > 0.0)) {
+                return 0.0;
+            }
+            return Math.max(0.0, Math.min(1.0, (value - minValues[j]) / range));
+        }
+        
+        private double variance(int j) {
+            return weights[j] > 0.0 ? Math.max(0.0, squares[j] / weights[j]) : 0.0;
+        }
+        
+        /**
+         * Устанавливает коэффициент затухания
+         * 
+         * @param decay множитель веса накопленных примеров на каждый новый пример (0, 1]
+         */
+        public synchronized void setDecay(double decay) {
+            if (decay > 0.0 && decay <= 1.0) {
+                this.decay = decay;
+            }
+        }
+        
+        public int getFeatureCount() { return means.length; }
+        public synchronized long getSampleCount() { return sampleCount; }
+        public synchronized double getDecay() { return decay; }
+        public synchronized double getWeight(int feature) { return weights[feature]; }
+        public synchronized double getMean(int feature) { return means[feature]; }
+        public synchronized double getVariance(int feature) { return variance(feature); }
+        public synchronized double getMinValue(int feature) { return minValues[feature]; }
+        public synchronized double getMaxValue(int feature) { return maxValues[feature]; }
+        
+        // Массивы для сериализации копии статистики
+        double[] weights() { return weights; }
+        double[] means() { return means; }
+        double[] squares() { return squares; }
+        double[] minValues() { return minValues; }
+        double[] maxValues() { return maxValues; }
     }
 }
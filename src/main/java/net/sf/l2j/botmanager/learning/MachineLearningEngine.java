@@ -1,9 +1,12 @@
 package net.sf.l2j.botmanager.learning;
 
+import net.sf.l2j.botmanager.core.BotType;
 import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
 import net.sf.l2j.botmanager.utils.Logger;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -16,10 +19,14 @@ import java.util.concurrent.atomic.AtomicLong;
  * и обучение ботов на основе собранной информации.
  * 
  * Ключевые возможности:
- * - Управление нейронными сетями для каждого бота
+ * - Общие нейронные сети для ботов одного типа с индивидуальными
+ *   выходными слоями ({@link ModelRegistry})
  * - Обработка данных обучения
- * - Предсказание оптимальных действий
+ * - Предсказание оптимальных действий, в том числе пакетное
+ *   для многих ботов за тик ({@link InferenceService})
  * - Адаптация моделей на основе обратной связи
+ * - Квантование моделей в int8 для инференса ({@link #quantizeModel(BotType, List)})
+ * - Окно опыта каждого бота вне кучи ({@link ExperienceReplayBuffer})
  * - Статистика и мониторинг обучения
  * 
  * @author AI Assistant
@@ -51,12 +58,66 @@ public class MachineLearningEngine {
         return instance;
     }
     
+    // ==================== КОНСТАНТЫ ====================
+    
+    /**
+     * Окно микропакета инференса по умолчанию (мс)
+     */
+    public static final long DEFAULT_INFERENCE_WINDOW_MS = 5;
+    
     // ==================== ПОЛЯ ====================
     
     /**
-     * Нейронные сети для каждого бота
+     * Реестр моделей: общие модели типов ботов и индивидуальные выходные слои
+     */
+    private final ModelRegistry modelRegistry = new ModelRegistry();
+    
+    /**
+     * Сервис пакетного инференса предсказаний
+     */
+    private final InferenceService inferenceService = new InferenceService();
+    
+    /**
+     * Окно фонового сброса запросов инференса (0 - только {@link #flushPredictions()})
+     */
+    private volatile long inferenceWindowMs = DEFAULT_INFERENCE_WINDOW_MS;
+    
+    /**
+     * Фоновый конвейер обучения теневых копий моделей
+     */
+    private final TrainingPipeline trainingPipeline = new TrainingPipeline(modelRegistry);
+    
+    /**
+     * Выполнять обучение и адаптацию в фоновом конвейере
+     */
+    private volatile boolean backgroundTraining = true;
+    
+    /**
+     * Хранилище моделей на диске (null - модели не сохраняются)
+     */
+    private volatile ModelStore modelStore;
+    
+    /**
+     * Загруженная статистика нормализации ботов, ожидающих регистрации
+     */
+    private final Map<Integer, Map<String, LearningDataProcessor.NormalizationStats>> restoredNormalization =
+        new ConcurrentHashMap<>();
+    
+    /**
+     * Размер буфера воспроизведения опыта бота (0 - опыт не записывается)
+     */
+    private volatile int replayCapacity = 0;
+    
+    /**
+     * Буферы воспроизведения опыта для каждого бота
+     */
+    private final Map<Integer, ExperienceReplayBuffer> replayBuffers = new ConcurrentHashMap<>();
+    
+    /**
+     * Признаки состояния и следующего состояния для записи опыта в текущем потоке
      */
-    private final Map<Integer, NeuralNetwork> botNetworks = new ConcurrentHashMap<>();
+    private final ThreadLocal<double[]> experienceFeatures =
+        ThreadLocal.withInitial(() -> new double[2 * LearningDataProcessor.FEATURE_SIZE]);
     
     /**
      * Обработчики данных для каждого бота
@@ -99,6 +160,7 @@ public class MachineLearningEngine {
      * Приватный конструктор для синглтона
      */
     private MachineLearningEngine() {
+        trainingPipeline.setListener(this::recordTrainingResult);
         _log.info("MachineLearningEngine initialized");
     }
     
@@ -109,6 +171,10 @@ public class MachineLearningEngine {
      */
     public void start() {
         if (isActive.compareAndSet(false, true)) {
+            if (inferenceWindowMs > 0) {
+                inferenceService.start(inferenceWindowMs);
+            }
+            trainingPipeline.start();
             _log.info("MachineLearningEngine started");
         }
     }
@@ -118,6 +184,13 @@ public class MachineLearningEngine {
      */
     public void stop() {
         if (isActive.compareAndSet(true, false)) {
+            // Завершаем накопленные запросы, чтобы их ожидающие не зависли
+            inferenceService.stop();
+            trainingPipeline.stop();
+            // Сохраняем модели после завершения обучения, чтобы записать итоговые веса
+            if (modelStore != null) {
+                saveModels();
+            }
             _log.info("MachineLearningEngine stopped");
         }
     }
@@ -131,6 +204,170 @@ public class MachineLearningEngine {
         return isActive.get();
     }
     
+    /**
+     * Устанавливает точность весов для моделей, создаваемых после вызова
+     * 
+     * @param precision точность весов
+     */
+    public void setModelPrecision(Precision precision) {
+        modelRegistry.setPrecision(precision);
+        _log.info("MachineLearningEngine model precision set to " + precision);
+    }
+    
+    /**
+     * Возвращает точность весов новых моделей
+     * 
+     * @return точность весов
+     */
+    public Precision getModelPrecision() {
+        return modelRegistry.getPrecision();
+    }
+    
+    /**
+     * Возвращает реестр моделей
+     * 
+     * @return реестр моделей
+     */
+    public ModelRegistry getModelRegistry() {
+        return modelRegistry;
+    }
+    
+    /**
+     * Включает или выключает фоновое обучение
+     * 
+     * При выключенном фоновом обучении {@link #trainBot(int, TrainingData)} и
+     * {@link #adaptModel(int, LearningFeedback)} обучают модель в потоке вызова.
+     * 
+     * @param enabled true для фонового обучения
+     */
+    public void setBackgroundTraining(boolean enabled) {
+        this.backgroundTraining = enabled;
+    }
+    
+    /**
+     * Проверяет, выполняется ли обучение в фоновом конвейере
+     * 
+     * @return true, если обучение фоновое
+     */
+    public boolean isBackgroundTraining() {
+        return backgroundTraining && trainingPipeline.isRunning();
+    }
+    
+    /**
+     * Возвращает фоновый конвейер обучения
+     * 
+     * @return конвейер обучения
+     */
+    public TrainingPipeline getTrainingPipeline() {
+        return trainingPipeline;
+    }
+    
+    // ==================== ХРАНЕНИЕ МОДЕЛЕЙ ====================
+    
+    /**
+     * Устанавливает хранилище моделей
+     * 
+     * При остановке движка модели сохраняются в хранилище.
+     * 
+     * @param modelStore хранилище или null, чтобы не сохранять модели
+     */
+    public void setModelStore(ModelStore modelStore) {
+        this.modelStore = modelStore;
+    }
+    
+    /**
+     * Возвращает хранилище моделей
+     * 
+     * @return хранилище или null
+     */
+    public ModelStore getModelStore() {
+        return modelStore;
+    }
+    
+    /**
+     * Сохраняет измененные модели в хранилище
+     * 
+     * @return true, если модели сохранены
+     */
+    public boolean saveModels() {
+        ModelStore store = modelStore;
+        if (store == null) {
+            return false;
+        }
+        try {
+            store.save(modelRegistry, botDataProcessors);
+            return true;
+        } catch (IOException e) {
+            _log.error("Error saving models to " + store.getDirectory() + ": " + e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Загружает модели из хранилища (теплый старт после перезапуска)
+     * 
+     * Модели семейств заменяют текущие; выходные слои и статистика
+     * нормализации подключаются к зарегистрированным ботам сразу, к
+     * остальным - при их регистрации.
+     * 
+     * @return количество загруженных файлов или -1 при ошибке
+     */
+    public int loadModels() {
+        ModelStore store = modelStore;
+        if (store == null) {
+            return 0;
+        }
+        try {
+            Map<Integer, Map<String, LearningDataProcessor.NormalizationStats>> normalization = new HashMap<>();
+            int loaded = store.load(modelRegistry, normalization);
+            for (Map.Entry<Integer, Map<String, LearningDataProcessor.NormalizationStats>> entry
+                    : normalization.entrySet()) {
+                LearningDataProcessor processor = botDataProcessors.get(entry.getKey());
+                if (processor != null) {
+                    processor.restoreNormalizationStats(entry.getValue());
+                } else {
+                    restoredNormalization.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return loaded;
+        } catch (IOException e) {
+            _log.error("Error loading models from " + store.getDirectory() + ": " + e.getMessage(), e);
+            return -1;
+        }
+    }
+    
+    // ==================== КВАНТОВАНИЕ ====================
+    
+    /**
+     * Квантует модель семейства в int8 для инференса
+     * 
+     * Записанные обучающие данные обрабатываются так же, как при обучении,
+     * и служат для калибровки диапазонов слоев и оценки отклонения
+     * квантованной модели от исходной.
+     * 
+     * @param botType тип бота
+     * @param calibrationData записанные обучающие данные
+     * @return отчет о точности или null, если модели семейства нет
+     */
+    public QuantizationReport quantizeModel(BotType botType, List<TrainingData> calibrationData) {
+        if (botType == null || modelRegistry.getFamilyModel(botType) == null) {
+            return null;
+        }
+        
+        // Отдельный обработчик, чтобы калибровка не меняла статистику ботов
+        LearningDataProcessor processor = new LearningDataProcessor(-(botType.ordinal() + 1));
+        List<double[]> inputs = new ArrayList<>();
+        if (calibrationData != null) {
+            for (TrainingData trainingData : calibrationData) {
+                ProcessedData processed = processor.processTrainingData(trainingData);
+                if (processed != null && processed.getInputs() != null) {
+                    inputs.addAll(Arrays.asList(processed.getInputs()));
+                }
+            }
+        }
+        return modelRegistry.quantize(botType, inputs.toArray(new double[0][]));
+    }
+    
     // ==================== УПРАВЛЕНИЕ БОТАМИ ====================
     
     /**
@@ -145,16 +382,26 @@ public class MachineLearningEngine {
         
         int botId = bot.getBotId();
         
-        // Создаем нейронную сеть для бота
-        NeuralNetwork network = new NeuralNetwork(botId);
-        botNetworks.put(botId, network);
+        // Подключаем бота к общей модели его типа
+        modelRegistry.register(botId, bot.getBotType());
         
         // Создаем обработчик данных для бота
         LearningDataProcessor processor = new LearningDataProcessor(botId);
+        Map<String, LearningDataProcessor.NormalizationStats> normalization = restoredNormalization.remove(botId);
+        if (normalization != null) {
+            processor.restoreNormalizationStats(normalization);
+        }
         botDataProcessors.put(botId, processor);
         
+        // Создаем буфер опыта бота
+        int capacity = replayCapacity;
+        if (capacity > 0) {
+            replayBuffers.put(botId, new ExperienceReplayBuffer(capacity, LearningDataProcessor.FEATURE_SIZE));
+        }
+        
         // Создаем модель предсказаний для бота
         PredictionModel model = new PredictionModel(botId);
+        model.setDataProcessor(processor);
         botPredictionModels.put(botId, model);
         
         // Создаем статистику обучения для бота
@@ -167,13 +414,23 @@ public class MachineLearningEngine {
     /**
      * Удаляет бота из системы машинного обучения
      * 
+     * Вместе с моделями бота удаляются его накопленная обратная связь
+     * ({@link FeedbackCollector#removeBot(int)}) и данные анализа
+     * производительности ({@link PerformanceAnalyzer#removeBot(int)}).
+     * 
      * @param botId ID бота для удаления
      */
     public void unregisterBot(int botId) {
-        botNetworks.remove(botId);
+        modelRegistry.unregister(botId);
         botDataProcessors.remove(botId);
+        replayBuffers.remove(botId);
         botPredictionModels.remove(botId);
         botLearningStats.remove(botId);
+        FeedbackCollector.getInstance().removeBot(botId);
+        PerformanceAnalyzer analyzer = PerformanceAnalyzer.getInstance();
+        if (analyzer != null) {
+            analyzer.removeBot(botId);
+        }
         
         _log.info("Bot " + botId + " unregistered from MachineLearningEngine");
     }
@@ -185,7 +442,7 @@ public class MachineLearningEngine {
      * @return true, если бот зарегистрирован
      */
     public boolean isBotRegistered(int botId) {
-        return botNetworks.containsKey(botId);
+        return modelRegistry.isRegistered(botId);
     }
     
     // ==================== ОБУЧЕНИЕ ====================
@@ -193,9 +450,13 @@ public class MachineLearningEngine {
     /**
      * Обучает нейронную сеть бота на основе данных
      * 
+     * При фоновом обучении данные обрабатываются в потоке вызова, а сама
+     * модель обучается в конвейере; инференс до публикации обученной копии
+     * использует текущую модель.
+     * 
      * @param botId ID бота
      * @param trainingData данные для обучения
-     * @return true, если обучение прошло успешно
+     * @return true, если обучение прошло успешно (при фоновом обучении - если запрос принят)
      */
     public boolean trainBot(int botId, TrainingData trainingData) {
         if (!isActive.get() || !isBotRegistered(botId)) {
@@ -203,19 +464,23 @@ public class MachineLearningEngine {
         }
         
         try {
-            NeuralNetwork network = botNetworks.get(botId);
             LearningDataProcessor processor = botDataProcessors.get(botId);
             LearningStats stats = botLearningStats.get(botId);
             
-            if (network == null || processor == null || stats == null) {
+            if (processor == null || stats == null) {
                 return false;
             }
             
             // Обрабатываем данные для обучения
             ProcessedData processedData = processor.processTrainingData(trainingData);
             
-            // Обучаем нейронную сеть
-            boolean success = network.train(processedData);
+            if (isBackgroundTraining()) {
+                // Статистика обновляется по завершении задания
+                return trainingPipeline.submitTraining(botId, processedData);
+            }
+            
+            // Обучаем общую модель типа бота
+            boolean success = modelRegistry.train(botId, processedData);
             
             // Обновляем статистику
             if (success) {
@@ -246,7 +511,7 @@ public class MachineLearningEngine {
         }
         
         try {
-            NeuralNetwork network = botNetworks.get(botId);
+            NeuralNetwork network = modelRegistry.getInferenceModel(botId);
             PredictionModel model = botPredictionModels.get(botId);
             LearningStats stats = botLearningStats.get(botId);
             
@@ -254,19 +519,10 @@ public class MachineLearningEngine {
                 return null;
             }
             
-            // Предсказываем действие
-            ActionPrediction prediction = model.predict(network, context);
-            
-            // Обновляем статистику
-            if (prediction != null) {
-                stats.recordPrediction();
-                totalPredictions.incrementAndGet();
-                
-                if (prediction.getConfidence() > 0.7) {
-                    successfulPredictions.incrementAndGet();
-                }
-            }
+            // Предсказываем действие общей моделью с выходным слоем бота
+            ActionPrediction prediction = model.predict(network, modelRegistry.getHead(botId), context);
             
+            recordPrediction(stats, prediction);
             return prediction;
             
         } catch (Exception e) {
@@ -275,6 +531,154 @@ public class MachineLearningEngine {
         }
     }
     
+    /**
+     * Ставит предсказание действия в очередь пакетного инференса
+     * 
+     * Предсказание выполняется при ближайшем сбросе сервиса инференса
+     * вместе с запросами других ботов той же модели: фоновым окном
+     * микропакета ({@link #setInferenceWindow(long)}), заполнением пакета
+     * или вызовом {@link #flushPredictions()}.
+     * 
+     * @param botId ID бота
+     * @param context контекст для предсказания
+     * @return будущее предсказание (null, если предсказание невозможно)
+     */
+    public CompletableFuture<ActionPrediction> predictActionAsync(int botId, PredictionContext context) {
+        if (!isActive.get() || !isBotRegistered(botId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        NeuralNetwork network = modelRegistry.getInferenceModel(botId);
+        PredictionModel model = botPredictionModels.get(botId);
+        LearningStats stats = botLearningStats.get(botId);
+        
+        if (network == null || model == null || stats == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        return inferenceService.submit(network, modelRegistry.getHead(botId), model, context)
+            .thenApply(prediction -> {
+                recordPrediction(stats, prediction);
+                return prediction;
+            });
+    }
+    
+    /**
+     * Выполняет накопленные запросы предсказаний (вызывается раз в тик)
+     * 
+     * @return количество выполненных запросов
+     */
+    public int flushPredictions() {
+        return inferenceService.flush();
+    }
+    
+    /**
+     * Устанавливает окно фонового сброса запросов инференса
+     * 
+     * Применяется при следующем запуске движка.
+     * 
+     * @param windowMs окно в миллисекундах (0 - сброс только через {@link #flushPredictions()})
+     */
+    public void setInferenceWindow(long windowMs) {
+        this.inferenceWindowMs = Math.max(0, windowMs);
+    }
+    
+    /**
+     * Возвращает окно фонового сброса запросов инференса
+     * 
+     * @return окно в миллисекундах
+     */
+    public long getInferenceWindow() {
+        return inferenceWindowMs;
+    }
+    
+    /**
+     * Возвращает сервис пакетного инференса
+     * 
+     * @return сервис инференса
+     */
+    public InferenceService getInferenceService() {
+        return inferenceService;
+    }
+    
+    /**
+     * Обновляет статистику предсказаний
+     * 
+     * @param stats статистика бота
+     * @param prediction предсказание или null
+     */
+    private void recordPrediction(LearningStats stats, ActionPrediction prediction) {
+        if (prediction != null) {
+            stats.recordPrediction();
+            totalPredictions.incrementAndGet();
+            
+            if (prediction.getConfidence() > 0.7) {
+                successfulPredictions.incrementAndGet();
+            }
+        }
+    }
+    
+    // ==================== ВОСПРОИЗВЕДЕНИЕ ОПЫТА ====================
+    
+    /**
+     * Устанавливает размер буфера воспроизведения опыта
+     * 
+     * Применяется к ботам, зарегистрированным после вызова.
+     * 
+     * @param capacity количество записей на бота (0 - опыт не записывается)
+     */
+    public void setExperienceReplayCapacity(int capacity) {
+        this.replayCapacity = Math.max(0, capacity);
+    }
+    
+    /**
+     * Возвращает размер буфера воспроизведения опыта
+     * 
+     * @return количество записей на бота
+     */
+    public int getExperienceReplayCapacity() {
+        return replayCapacity;
+    }
+    
+    /**
+     * Записывает опыт бота в его буфер воспроизведения
+     * 
+     * Признаки ситуаций записываются через буфер потока, поэтому запись
+     * не выделяет память и может выполняться из потоков тиков.
+     * 
+     * @param botId ID бота
+     * @param state ситуация до действия
+     * @param action выполненное действие
+     * @param reward полученная награда
+     * @param nextState ситуация после действия
+     * @param done завершился ли эпизод
+     * @return true, если опыт записан
+     */
+    public boolean recordExperience(int botId, TrainingData state, int action, double reward,
+                                    TrainingData nextState, boolean done) {
+        ExperienceReplayBuffer buffer = replayBuffers.get(botId);
+        if (buffer == null || state == null || nextState == null) {
+            return false;
+        }
+        
+        double[] features = experienceFeatures.get();
+        int size = LearningDataProcessor.FEATURE_SIZE;
+        LearningDataProcessor.writeFeatures(state, features, 0);
+        LearningDataProcessor.writeFeatures(nextState, features, size);
+        buffer.append(features, 0, action, reward, features, size, done, buffer.getMaxPriority());
+        return true;
+    }
+    
+    /**
+     * Возвращает буфер воспроизведения опыта бота
+     * 
+     * @param botId ID бота
+     * @return буфер или null, если опыт бота не записывается
+     */
+    public ExperienceReplayBuffer getReplayBuffer(int botId) {
+        return replayBuffers.get(botId);
+    }
+    
     // ==================== АДАПТАЦИЯ ====================
     
     /**
@@ -282,7 +686,7 @@ public class MachineLearningEngine {
      * 
      * @param botId ID бота
      * @param feedback обратная связь
-     * @return true, если адаптация прошла успешно
+     * @return true, если адаптация прошла успешно (при фоновом обучении - если запрос принят)
      */
     public boolean adaptModel(int botId, LearningFeedback feedback) {
         if (!isActive.get() || !isBotRegistered(botId)) {
@@ -290,19 +694,22 @@ public class MachineLearningEngine {
         }
         
         try {
-            NeuralNetwork network = botNetworks.get(botId);
             LearningDataProcessor processor = botDataProcessors.get(botId);
             LearningStats stats = botLearningStats.get(botId);
             
-            if (network == null || processor == null || stats == null) {
+            if (processor == null || stats == null) {
                 return false;
             }
             
             // Обрабатываем обратную связь
             ProcessedData feedbackData = processor.processFeedback(feedback);
             
-            // Адаптируем нейронную сеть
-            boolean success = network.adapt(feedbackData);
+            if (isBackgroundTraining()) {
+                return trainingPipeline.submitAdaptation(botId, feedbackData);
+            }
+            
+            // Адаптируем выходной слой бота и общую модель его типа
+            boolean success = modelRegistry.adapt(botId, feedbackData);
             
             // Обновляем статистику
             if (success) {
@@ -319,6 +726,34 @@ public class MachineLearningEngine {
         }
     }
     
+    /**
+     * Обновляет статистику по завершении фонового задания
+     * 
+     * @param botId ID бота
+     * @param result результат задания
+     */
+    private void recordTrainingResult(Integer botId, TrainingPipeline.Result result) {
+        LearningStats stats = botLearningStats.get(botId);
+        if (stats == null) {
+            return;
+        }
+        if (result.getTrained() != null) {
+            if (result.getTrained()) {
+                stats.recordTrainingSuccess();
+                totalDataProcessed.incrementAndGet();
+            } else {
+                stats.recordTrainingFailure();
+            }
+        }
+        if (result.getAdapted() != null) {
+            if (result.getAdapted()) {
+                stats.recordAdaptationSuccess();
+            } else {
+                stats.recordAdaptationFailure();
+            }
+        }
+    }
+    
     // ==================== СТАТИСТИКА ====================
     
     /**
@@ -341,7 +776,7 @@ public class MachineLearningEngine {
             totalDataProcessed.get(),
             totalPredictions.get(),
             successfulPredictions.get(),
-            botNetworks.size()
+            modelRegistry.getBotCount()
         );
     }
     
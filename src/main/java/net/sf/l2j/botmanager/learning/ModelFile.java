@@ -0,0 +1,568 @@
+package net.sf.l2j.botmanager.learning;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Двоичный формат файла модели бота
+ *
+ * Файл состоит из заголовка и последовательности секций. Все числа
+ * записываются в порядке little-endian, каждая секция и каждый массив
+ * весов начинаются со смещения, кратного 8 байтам, поэтому веса читаются
+ * из отображенного в память файла одним блочным копированием.
+ *
+ * Заголовок (32 байта):
+ * <pre>
+ *  0  int   сигнатура "L2JM"
+ *  4  short версия формата
+ *  6  short флаги (зарезервировано)
+ *  8  int   количество секций
+ * 12  int   CRC32C полезной нагрузки (все байты после заголовка)
+ * 16  long  длина полезной нагрузки
+ * 24  long  зарезервировано
+ * </pre>
+ *
+ * Секция: int тип, int зарезервировано, long длина тела, тело, выравнивание
+ * до 8 байт. Неизвестные типы секций пропускаются, поэтому новые секции
+ * не ломают чтение старыми версиями.
+ *
+ * Запись выполняется атомарно: во временный файл с принудительным сбросом
+ * на диск и переименованием поверх прежнего файла. Чтение отображает файл
+ * через {@link FileChannel#map}, проверяет контрольную сумму прямо на
+ * страницах кэша и копирует веса в массивы сети.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+final class ModelFile {
+
+    // ==================== КОНСТАНТЫ ====================
+
+    /**
+     * Сигнатура файла: байты "L2JM"
+     */
+    static final int MAGIC = 0x4D4A324C;
+
+    /**
+     * Текущая версия формата
+     */
+    static final short VERSION = 1;
+
+    /**
+     * Размер заголовка файла
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Размер заголовка секции
+     */
+    private static final int SECTION_HEADER_SIZE = 16;
+
+    /** Семейство (тип бота), к которому относится файл */
+    static final int SECTION_FAMILY = 1;
+    /** Архитектура сети */
+    static final int SECTION_ARCHITECTURE = 2;
+    /** Веса и смещения слоев сети */
+    static final int SECTION_WEIGHTS = 3;
+    /** Состояние оптимизатора: скорость обучения, эпохи, ошибка */
+    static final int SECTION_TRAINING = 4;
+    /** Индивидуальный выходной слой бота */
+    static final int SECTION_HEAD = 5;
+    /** Сводная статистика нормализации прежнего формата (не читается) */
+    static final int SECTION_NORMALIZATION = 6;
+    /** Потоковая статистика нормализации по признакам */
+    static final int SECTION_FEATURE_STATS = 7;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private ModelFile() {
+    }
+
+    // ==================== ЗАПИСЬ ====================
+
+    /**
+     * Сериализует содержимое файла модели
+     *
+     * Сеть и выходной слой должны быть защищены от изменения на время
+     * вызова (синхронизацией на них).
+     *
+     * @param contents содержимое
+     * @return буфер little-endian, готовый к записи (позиция 0)
+     */
+    static ByteBuffer encode(Contents contents) {
+        if (contents.network != null && contents.network.isQuantized()) {
+            // Квантованная копия восстанавливается квантованием загруженной сети
+            throw new IllegalArgumentException("Quantized networks are not persisted");
+        }
+        byte[] family = contents.family != null ? contents.family.getBytes(StandardCharsets.UTF_8) : null;
+
+        int sections = 0;
+        long payload = 0;
+        if (family != null) {
+            sections++;
+            payload += SECTION_HEADER_SIZE + align(Integer.BYTES + family.length);
+        }
+        if (contents.network != null) {
+            sections += 3;
+            payload += 3L * SECTION_HEADER_SIZE + align(6 * Integer.BYTES)
+                + align(weightsLength(contents.network)) + align(trainingLength());
+        }
+        if (contents.head != null) {
+            sections++;
+            payload += SECTION_HEADER_SIZE + align(headLength(contents.head));
+        }
+        if (contents.normalization != null) {
+            sections++;
+            payload += SECTION_HEADER_SIZE + align(normalizationLength(contents.normalization));
+        }
+        if (HEADER_SIZE + payload > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Model is too large for a single file: " + payload + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_SIZE + payload)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_SIZE);
+
+        if (family != null) {
+            int start = beginSection(buffer, SECTION_FAMILY);
+            buffer.putInt(family.length);
+            buffer.put(family);
+            endSection(buffer, start);
+        }
+        if (contents.network != null) {
+            writeNetwork(buffer, contents.network);
+        }
+        if (contents.head != null) {
+            writeHead(buffer, contents.head);
+        }
+        if (contents.normalization != null) {
+            writeNormalization(buffer, contents.normalization);
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), HEADER_SIZE, (int) payload);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) 0);
+        buffer.putInt(8, sections);
+        buffer.putInt(12, (int) crc.getValue());
+        buffer.putLong(16, payload);
+        buffer.putLong(24, 0L);
+        buffer.position(0);
+        return buffer;
+    }
+
+    /**
+     * Атомарно записывает сериализованную модель в файл
+     *
+     * Данные записываются во временный файл рядом с целевым, сбрасываются
+     * на диск и переименовываются поверх целевого файла. При сбое прежний
+     * файл остается нетронутым.
+     *
+     * @param path путь к файлу
+     * @param data результат {@link #encode(Contents)}
+     * @throws IOException при ошибке записи
+     */
+    static void write(Path path, ByteBuffer data) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+        ByteBuffer source = data.duplicate();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeNetwork(ByteBuffer buffer, NeuralNetwork network) {
+        int start = beginSection(buffer, SECTION_ARCHITECTURE);
+        buffer.putInt(network.getBotId());
+        buffer.putInt(network.getInputSize());
+        buffer.putInt(network.getHiddenLayers());
+        buffer.putInt(network.getHiddenSize());
+        buffer.putInt(network.getOutputSize());
+        buffer.putInt(network.getPrecision().getBytesPerWeight());
+        endSection(buffer, start);
+
+        start = beginSection(buffer, SECTION_WEIGHTS);
+        boolean float32 = network.getPrecision() == Precision.FLOAT32;
+        for (int layer = 0; layer <= network.getHiddenLayers(); layer++) {
+            if (float32) {
+                float[] layerWeights = network.getLayerWeights32(layer);
+                buffer.asFloatBuffer().put(layerWeights);
+                buffer.position(buffer.position() + layerWeights.length * Float.BYTES);
+                pad(buffer);
+            } else {
+                putDoubles(buffer, network.getLayerWeights(layer));
+            }
+            putDoubles(buffer, network.getLayerBiases(layer));
+        }
+        endSection(buffer, start);
+
+        start = beginSection(buffer, SECTION_TRAINING);
+        buffer.putDouble(network.getLearningRate());
+        buffer.putLong(network.getTrainingEpochs());
+        buffer.putDouble(network.getCurrentError());
+        buffer.putLong(network.getLastTrainingTime());
+        buffer.putInt(network.isActive() ? 1 : 0);
+        endSection(buffer, start);
+    }
+
+    private static void writeHead(ByteBuffer buffer, NeuralNetwork.OutputHead head) {
+        int start = beginSection(buffer, SECTION_HEAD);
+        buffer.putInt(head.getRows());
+        buffer.putInt(head.getCols());
+        buffer.putDouble(head.getLastError());
+        buffer.putLong(head.getAdaptations());
+        putDoubles(buffer, head.getWeights());
+        putDoubles(buffer, head.getBiases());
+        endSection(buffer, start);
+    }
+
+    private static void writeNormalization(ByteBuffer buffer,
+                                           Map<String, LearningDataProcessor.NormalizationStats> normalization) {
+        int start = beginSection(buffer, SECTION_FEATURE_STATS);
+        buffer.putInt(normalization.size());
+        buffer.putInt(0);
+        for (Map.Entry<String, LearningDataProcessor.NormalizationStats> entry : normalization.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            // Копия, чтобы длина и содержимое секции были согласованы
+            LearningDataProcessor.NormalizationStats stats = entry.getValue().copy();
+            buffer.putInt(key.length);
+            buffer.putInt(stats.getFeatureCount());
+            buffer.putLong(stats.getSampleCount());
+            buffer.putDouble(stats.getDecay());
+            buffer.put(key);
+            pad(buffer);
+            putDoubles(buffer, stats.weights());
+            putDoubles(buffer, stats.means());
+            putDoubles(buffer, stats.squares());
+            putDoubles(buffer, stats.minValues());
+            putDoubles(buffer, stats.maxValues());
+        }
+        endSection(buffer, start);
+    }
+
+    // ==================== ЧТЕНИЕ ====================
+
+    /**
+     * Загружает модель из файла, отображенного в память
+     *
+     * @param path путь к файлу
+     * @return содержимое файла
+     * @throws IOException при ошибке чтения или повреждении файла
+     */
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid model file size " + size + ": " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                return decode(mapped);
+            } catch (IOException e) {
+                throw new IOException(e.getMessage() + ": " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Проверяет и разбирает сериализованную модель
+     *
+     * @param data данные файла (позиция 0)
+     * @return содержимое файла
+     * @throws IOException если данные повреждены или версия не поддерживается
+     */
+    static Contents decode(ByteBuffer data) throws IOException {
+        ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a model file");
+        }
+        short version = buffer.getShort(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported model file version " + version);
+        }
+        int sections = buffer.getInt(8);
+        long payload = buffer.getLong(16);
+        if (payload != buffer.limit() - HEADER_SIZE) {
+            throw new IOException("Truncated model file: expected " + payload + " payload bytes, found "
+                + (buffer.limit() - HEADER_SIZE));
+        }
+        if (checksum(buffer) != buffer.getInt(12)) {
+            throw new IOException("Model file checksum mismatch");
+        }
+
+        try {
+            Contents contents = readSections(buffer, sections);
+            contents.checksum = buffer.getInt(12);
+            return contents;
+        } catch (RuntimeException e) {
+            // Контрольная сумма совпала, но структура секций не согласована
+            throw new IOException("Malformed model file: " + e, e);
+        }
+    }
+
+    private static Contents readSections(ByteBuffer buffer, int sections) throws IOException {
+        Contents contents = new Contents();
+        int[] architecture = null;
+        buffer.position(HEADER_SIZE);
+        for (int i = 0; i < sections; i++) {
+            if (buffer.remaining() < SECTION_HEADER_SIZE) {
+                throw new IOException("Truncated section table");
+            }
+            int type = buffer.getInt();
+            buffer.getInt();
+            long length = buffer.getLong();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Section " + type + " exceeds file size");
+            }
+            int start = buffer.position();
+            switch (type) {
+                case SECTION_FAMILY:
+                    byte[] family = new byte[buffer.getInt()];
+                    buffer.get(family);
+                    contents.family = new String(family, StandardCharsets.UTF_8);
+                    break;
+                case SECTION_ARCHITECTURE:
+                    architecture = new int[6];
+                    for (int j = 0; j < architecture.length; j++) {
+                        architecture[j] = buffer.getInt();
+                    }
+                    break;
+                case SECTION_WEIGHTS:
+                    if (architecture == null) {
+                        throw new IOException("Weights section before architecture");
+                    }
+                    contents.network = readNetwork(buffer, architecture);
+                    break;
+                case SECTION_TRAINING:
+                    if (contents.network == null) {
+                        throw new IOException("Training section before weights");
+                    }
+                    readTraining(buffer, contents.network);
+                    break;
+                case SECTION_HEAD:
+                    contents.head = readHead(buffer);
+                    break;
+                case SECTION_FEATURE_STATS:
+                    contents.normalization = readNormalization(buffer);
+                    break;
+                case SECTION_NORMALIZATION:
+                    // Сводная статистика несовместима с признаковой и накапливается заново
+                    break;
+                default:
+                    // Секция более новой версии формата
+                    break;
+            }
+            if (buffer.position() - start > length) {
+                throw new IOException("Section " + type + " overruns its length");
+            }
+            buffer.position(start + (int) align(length));
+        }
+        return contents;
+    }
+
+    private static NeuralNetwork readNetwork(ByteBuffer buffer, int[] architecture) throws IOException {
+        Precision precision = null;
+        for (Precision candidate : Precision.values()) {
+            if (candidate.getBytesPerWeight() == architecture[5]) {
+                precision = candidate;
+            }
+        }
+        if (precision == null) {
+            throw new IOException("Unknown weight precision: " + architecture[5] + " bytes");
+        }
+
+        NeuralNetwork network = new NeuralNetwork(architecture[0], architecture[1], architecture[2],
+            architecture[3], architecture[4], precision);
+        for (int layer = 0; layer <= network.getHiddenLayers(); layer++) {
+            if (precision == Precision.FLOAT32) {
+                float[] layerWeights = network.getLayerWeights32(layer);
+                buffer.asFloatBuffer().get(layerWeights);
+                buffer.position(buffer.position() + layerWeights.length * Float.BYTES);
+                skipPadding(buffer);
+            } else {
+                getDoubles(buffer, network.getLayerWeights(layer));
+            }
+            getDoubles(buffer, network.getLayerBiases(layer));
+        }
+        return network;
+    }
+
+    private static void readTraining(ByteBuffer buffer, NeuralNetwork network) {
+        double learningRate = buffer.getDouble();
+        long epochs = buffer.getLong();
+        double error = buffer.getDouble();
+        long trainingTime = buffer.getLong();
+        boolean active = buffer.getInt() != 0;
+        network.restoreTrainingState(learningRate, epochs, error, trainingTime);
+        if (active) {
+            network.activate();
+        }
+    }
+
+    private static NeuralNetwork.OutputHead readHead(ByteBuffer buffer) {
+        int rows = buffer.getInt();
+        int cols = buffer.getInt();
+        double lastError = buffer.getDouble();
+        long adaptations = buffer.getLong();
+        NeuralNetwork.OutputHead head = NeuralNetwork.OutputHead.create(rows, cols);
+        getDoubles(buffer, head.getWeights());
+        getDoubles(buffer, head.getBiases());
+        head.restoreState(lastError, adaptations);
+        return head;
+    }
+
+    private static Map<String, LearningDataProcessor.NormalizationStats> readNormalization(ByteBuffer buffer)
+            throws IOException {
+        int count = buffer.getInt();
+        buffer.getInt();
+        Map<String, LearningDataProcessor.NormalizationStats> normalization = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[buffer.getInt()];
+            int featureCount = buffer.getInt();
+            long sampleCount = buffer.getLong();
+            double decay = buffer.getDouble();
+            buffer.get(key);
+            skipPadding(buffer);
+            if (featureCount <= 0 || (long) featureCount * 5 * Double.BYTES > buffer.remaining()) {
+                throw new IOException("Invalid normalization feature count: " + featureCount);
+            }
+            double[][] arrays = new double[5][featureCount];
+            for (double[] array : arrays) {
+                getDoubles(buffer, array);
+            }
+            LearningDataProcessor.NormalizationStats stats = new LearningDataProcessor.NormalizationStats(featureCount);
+            stats.restore(sampleCount, decay, arrays[0], arrays[1], arrays[2], arrays[3], arrays[4]);
+            normalization.put(new String(key, StandardCharsets.UTF_8), stats);
+        }
+        return normalization;
+    }
+
+    /**
+     * Вычисляет CRC32C полезной нагрузки без копирования данных
+     */
+    static int checksum(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(HEADER_SIZE));
+        return (int) crc.getValue();
+    }
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
+    private static long weightsLength(NeuralNetwork network) {
+        long length = 0;
+        int bytesPerWeight = network.getPrecision().getBytesPerWeight();
+        for (int layer = 0; layer <= network.getHiddenLayers(); layer++) {
+            int weightCount = network.getPrecision() == Precision.FLOAT32
+                ? network.getLayerWeights32(layer).length
+                : network.getLayerWeights(layer).length;
+            length += align((long) weightCount * bytesPerWeight);
+            length += (long) network.getLayerBiases(layer).length * Double.BYTES;
+        }
+        return length;
+    }
+
+    private static long trainingLength() {
+        return 4L * Long.BYTES + Integer.BYTES;
+    }
+
+    private static long headLength(NeuralNetwork.OutputHead head) {
+        return 2L * Integer.BYTES + Double.BYTES + Long.BYTES
+            + (long) (head.getWeights().length + head.getBiases().length) * Double.BYTES;
+    }
+
+    private static long normalizationLength(Map<String, LearningDataProcessor.NormalizationStats> normalization) {
+        long length = 2L * Integer.BYTES;
+        for (Map.Entry<String, LearningDataProcessor.NormalizationStats> entry : normalization.entrySet()) {
+            length += 2L * Integer.BYTES + Long.BYTES + Double.BYTES
+                + align(entry.getKey().getBytes(StandardCharsets.UTF_8).length)
+                + 5L * entry.getValue().getFeatureCount() * Double.BYTES;
+        }
+        return length;
+    }
+
+    private static int beginSection(ByteBuffer buffer, int type) {
+        buffer.putInt(type);
+        buffer.putInt(0);
+        buffer.putLong(0L);
+        return buffer.position();
+    }
+
+    private static void endSection(ByteBuffer buffer, int start) {
+        buffer.putLong(start - Long.BYTES, buffer.position() - start);
+        pad(buffer);
+    }
+
+    private static void putDoubles(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Double.BYTES);
+    }
+
+    private static void getDoubles(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Double.BYTES);
+    }
+
+    private static void pad(ByteBuffer buffer) {
+        while ((buffer.position() & 7) != 0) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static void skipPadding(ByteBuffer buffer) {
+        buffer.position((int) align(buffer.position()));
+    }
+
+    private static long align(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+
+    /**
+     * Содержимое файла модели
+     *
+     * Любая часть может отсутствовать: файл модели семейства содержит сеть,
+     * файл бота - выходной слой и статистику нормализации.
+     */
+    static final class Contents {
+        String family;
+        NeuralNetwork network;
+        NeuralNetwork.OutputHead head;
+        Map<String, LearningDataProcessor.NormalizationStats> normalization;
+        /** CRC32C полезной нагрузки прочитанного файла */
+        int checksum;
+
+        Contents() {
+        }
+
+        Contents(String family, NeuralNetwork network, NeuralNetwork.OutputHead head,
+                 Map<String, LearningDataProcessor.NormalizationStats> normalization) {
+            this.family = family;
+            this.network = network;
+            this.head = head;
+            this.normalization = normalization;
+        }
+    }
+}
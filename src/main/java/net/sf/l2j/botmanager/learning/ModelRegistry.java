@@ -0,0 +1,550 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.core.BotType;
+import net.sf.l2j.botmanager.utils.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр моделей ботов
+ *
+ * Боты одного типа ({@link BotType}) разделяют одну базовую нейронную сеть
+ * (модель семейства). Индивидуальная настройка бота хранится как
+ * собственный выходной слой {@link NeuralNetwork.OutputHead}, который
+ * создается только при первой адаптации бота (копирование при записи).
+ * До этого бот использует выходной слой модели семейства.
+ *
+ * Объем памяти растет с количеством семейств и адаптированных ботов, а не
+ * с общим количеством ботов: выходной слой занимает малую часть сети.
+ * Модели семейств продолжают обучаться на данных всех ботов семейства.
+ *
+ * Обучение модели семейства синхронизируется на самой модели, адаптация
+ * выходного слоя - на выходном слое; инференс выполняется без блокировок.
+ * Теневое обучение ({@link #trainShadow(int, ProcessedData)}) обучает копию
+ * и публикует ее атомарной заменой ссылки, не останавливая инференс.
+ *
+ * Модель семейства можно квантовать в int8 для инференса
+ * ({@link #quantize(BotType, double[][])}): квантованная копия
+ * обслуживает предсказания ({@link #getInferenceModel(int)}), пока модель
+ * семейства не заменена и не дообучена; после этого предсказания
+ * возвращаются к исходной модели до повторного квантования.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class ModelRegistry {
+
+    private static final Logger _log = Logger.getLogger(ModelRegistry.class);
+
+    // ==================== ПОЛЯ ====================
+
+    /**
+     * Модели семейств по типу бота
+     */
+    private final Map<BotType, NeuralNetwork> familyModels = new ConcurrentHashMap<>();
+
+    /**
+     * Семейство каждого зарегистрированного бота
+     */
+    private final Map<Integer, BotType> botFamilies = new ConcurrentHashMap<>();
+
+    /**
+     * Индивидуальные выходные слои адаптированных ботов
+     */
+    private final Map<Integer, NeuralNetwork.OutputHead> botHeads = new ConcurrentHashMap<>();
+
+    /**
+     * Загруженные выходные слои ботов, которые еще не зарегистрировались
+     */
+    private final Map<Integer, PendingHead> pendingHeads = new ConcurrentHashMap<>();
+
+    /**
+     * Квантованные копии моделей семейств для инференса
+     */
+    private final Map<BotType, QuantizedModel> quantizedModels = new ConcurrentHashMap<>();
+
+    /**
+     * Точность весов создаваемых моделей семейств
+     */
+    private volatile Precision precision = Precision.FLOAT64;
+
+    // ==================== РЕГИСТРАЦИЯ ====================
+
+    /**
+     * Регистрирует бота в семействе, создавая модель семейства при необходимости
+     *
+     * @param botId ID бота
+     * @param botType тип бота (семейство)
+     * @return модель семейства
+     */
+    public NeuralNetwork register(int botId, BotType botType) {
+        if (botType == null) {
+            throw new IllegalArgumentException("Bot type must not be null");
+        }
+
+        NeuralNetwork model = familyModels.computeIfAbsent(botType, this::createFamilyModel);
+        BotType previous = botFamilies.put(botId, botType);
+        if (previous != null && previous != botType) {
+            // Выходной слой другого семейства не подходит к новой модели
+            botHeads.remove(botId);
+        }
+
+        PendingHead pending = pendingHeads.remove(botId);
+        if (pending != null && pending.botType == botType && model.isCompatible(pending.head)) {
+            botHeads.putIfAbsent(botId, pending.head);
+        }
+        return model;
+    }
+
+    /**
+     * Удаляет бота из реестра
+     *
+     * Модель семейства сохраняется и продолжает обслуживать остальных ботов.
+     *
+     * @param botId ID бота
+     */
+    public void unregister(int botId) {
+        botFamilies.remove(botId);
+        botHeads.remove(botId);
+    }
+
+    /**
+     * Проверяет, зарегистрирован ли бот
+     *
+     * @param botId ID бота
+     * @return true, если бот зарегистрирован
+     */
+    public boolean isRegistered(int botId) {
+        return botFamilies.containsKey(botId);
+    }
+
+    /**
+     * Создает модель семейства
+     *
+     * @param botType тип бота
+     * @return активированная модель
+     */
+    private NeuralNetwork createFamilyModel(BotType botType) {
+        // Отрицательный ID обозначает модель семейства, а не отдельного бота
+        NeuralNetwork model = new NeuralNetwork(-(botType.ordinal() + 1), precision);
+        model.activate();
+        _log.info("Family model created for bot type " + botType + " (" + precision + ")");
+        return model;
+    }
+
+    // ==================== ДОСТУП К МОДЕЛЯМ ====================
+
+    /**
+     * Возвращает модель семейства бота
+     *
+     * @param botId ID бота
+     * @return модель семейства или null, если бот не зарегистрирован
+     */
+    public NeuralNetwork getModel(int botId) {
+        BotType botType = botFamilies.get(botId);
+        return botType != null ? familyModels.get(botType) : null;
+    }
+
+    /**
+     * Возвращает модель семейства по типу бота
+     *
+     * @param botType тип бота
+     * @return модель семейства или null
+     */
+    public NeuralNetwork getFamilyModel(BotType botType) {
+        return familyModels.get(botType);
+    }
+
+    /**
+     * Возвращает индивидуальный выходной слой бота
+     *
+     * @param botId ID бота
+     * @return выходной слой или null, если бот еще не адаптировался
+     */
+    public NeuralNetwork.OutputHead getHead(int botId) {
+        return botHeads.get(botId);
+    }
+
+    /**
+     * Возвращает модель для инференса предсказаний бота
+     *
+     * Если для семейства есть актуальная квантованная копия, возвращается
+     * она, иначе - модель семейства.
+     *
+     * @param botId ID бота
+     * @return модель для инференса или null, если бот не зарегистрирован
+     */
+    public NeuralNetwork getInferenceModel(int botId) {
+        BotType botType = botFamilies.get(botId);
+        if (botType == null) {
+            return null;
+        }
+        NeuralNetwork model = familyModels.get(botType);
+        QuantizedModel quantized = quantizedModels.get(botType);
+        if (quantized != null && quantized.isCurrent(model)) {
+            return quantized.network;
+        }
+        return model;
+    }
+
+    // ==================== КВАНТОВАНИЕ ====================
+
+    /**
+     * Квантует модель семейства в int8 для инференса
+     *
+     * Диапазоны входов слоев калибруются на переданных входах, на них же
+     * измеряется отклонение квантованной модели от исходной.
+     *
+     * @param botType тип бота
+     * @param calibrationInputs входы для калибровки и оценки точности
+     * @return отчет о точности или null, если модели семейства нет
+     */
+    public QuantizationReport quantize(BotType botType, double[][] calibrationInputs) {
+        NeuralNetwork model = botType != null ? familyModels.get(botType) : null;
+        if (model == null) {
+            return null;
+        }
+
+        NeuralNetwork quantized;
+        long epochs;
+        synchronized (model) {
+            quantized = model.quantize(calibrationInputs);
+            epochs = model.getTrainingEpochs();
+        }
+        QuantizationReport report = QuantizationReport.compare(model, quantized, calibrationInputs);
+        quantizedModels.put(botType, new QuantizedModel(model, epochs, quantized));
+        _log.info("Family model " + botType + " quantized: " + report);
+        return report;
+    }
+
+    /**
+     * Удаляет квантованную копию модели семейства
+     *
+     * @param botType тип бота
+     */
+    public void clearQuantization(BotType botType) {
+        quantizedModels.remove(botType);
+    }
+
+    /**
+     * Проверяет, обслуживает ли семейство актуальная квантованная копия
+     *
+     * @param botType тип бота
+     * @return true, если предсказания выполняются квантованной моделью
+     */
+    public boolean isQuantized(BotType botType) {
+        QuantizedModel quantized = quantizedModels.get(botType);
+        return quantized != null && quantized.isCurrent(familyModels.get(botType));
+    }
+
+    // ==================== ОБУЧЕНИЕ ====================
+
+    /**
+     * Обучает модель семейства бота на его данных
+     *
+     * @param botId ID бота
+     * @param data данные для обучения
+     * @return true, если обучение прошло успешно
+     */
+    public boolean train(int botId, ProcessedData data) {
+        NeuralNetwork model = getModel(botId);
+        if (model == null) {
+            return false;
+        }
+        synchronized (model) {
+            return model.train(data);
+        }
+    }
+
+    /**
+     * Адаптирует модель бота на основе обратной связи
+     *
+     * Выходной слой бота создается при первой адаптации и дообучается на
+     * обратной связи бота; затем та же обратная связь адаптирует модель
+     * семейства, чтобы она училась на данных всех ботов.
+     *
+     * @param botId ID бота
+     * @param data данные обратной связи
+     * @return true, если адаптирован выходной слой бота
+     */
+    public boolean adapt(int botId, ProcessedData data) {
+        NeuralNetwork model = getModel(botId);
+        if (model == null || data == null) {
+            return false;
+        }
+
+        NeuralNetwork.OutputHead head = botHeads.computeIfAbsent(botId, id -> model.createOutputHead());
+        boolean success;
+        synchronized (head) {
+            success = model.adaptOutputHead(head, data);
+        }
+
+        if (success) {
+            synchronized (model) {
+                model.adapt(data);
+            }
+        }
+        return success;
+    }
+
+    // ==================== ТЕНЕВОЕ ОБУЧЕНИЕ ====================
+
+    /**
+     * Обучает теневую копию модели семейства и публикует ее
+     *
+     * Копия обучается без блокировки текущей модели, которая продолжает
+     * обслуживать инференс. Обученная копия заменяет модель атомарно; если
+     * модель семейства за это время была заменена, результат отбрасывается.
+     *
+     * @param botId ID бота
+     * @param data данные для обучения
+     * @return true, если обученная модель опубликована
+     */
+    public boolean trainShadow(int botId, ProcessedData data) {
+        BotType botType = botFamilies.get(botId);
+        NeuralNetwork current = botType != null ? familyModels.get(botType) : null;
+        if (current == null || data == null) {
+            return false;
+        }
+
+        NeuralNetwork shadow;
+        synchronized (current) {
+            shadow = current.copy();
+        }
+        if (!shadow.train(data)) {
+            return false;
+        }
+        return familyModels.replace(botType, current, shadow);
+    }
+
+    /**
+     * Адаптирует теневые копии выходного слоя бота и модели семейства
+     *
+     * Выходной слой и модель семейства публикуются атомарной заменой
+     * ссылок; инференс до замены использует прежние версии.
+     *
+     * @param botId ID бота
+     * @param data данные обратной связи
+     * @return true, если опубликован адаптированный выходной слой бота
+     */
+    public boolean adaptShadow(int botId, ProcessedData data) {
+        BotType botType = botFamilies.get(botId);
+        NeuralNetwork current = botType != null ? familyModels.get(botType) : null;
+        if (current == null || data == null) {
+            return false;
+        }
+
+        NeuralNetwork.OutputHead head = botHeads.get(botId);
+        NeuralNetwork.OutputHead shadowHead;
+        if (head != null) {
+            synchronized (head) {
+                shadowHead = head.copy();
+            }
+        } else {
+            shadowHead = current.createOutputHead();
+        }
+        if (!current.adaptOutputHead(shadowHead, data)) {
+            return false;
+        }
+        boolean published = head != null
+            ? botHeads.replace(botId, head, shadowHead)
+            : botHeads.putIfAbsent(botId, shadowHead) == null;
+        if (!published) {
+            return false;
+        }
+
+        NeuralNetwork shadow;
+        synchronized (current) {
+            shadow = current.copy();
+        }
+        shadow.adapt(data);
+        familyModels.replace(botType, current, shadow);
+        return true;
+    }
+
+    // ==================== ВОССТАНОВЛЕНИЕ ====================
+
+    /**
+     * Устанавливает загруженную модель семейства
+     *
+     * Модель заменяет текущую модель семейства; выходные слои ботов, не
+     * подходящие к ее архитектуре, удаляются.
+     *
+     * @param botType тип бота
+     * @param model загруженная модель
+     */
+    public void restoreFamilyModel(BotType botType, NeuralNetwork model) {
+        if (botType == null || model == null) {
+            throw new IllegalArgumentException("Bot type and model must not be null");
+        }
+        familyModels.put(botType, model);
+        botHeads.entrySet().removeIf(entry ->
+            botFamilies.get(entry.getKey()) == botType && !model.isCompatible(entry.getValue()));
+    }
+
+    /**
+     * Устанавливает загруженный выходной слой бота
+     *
+     * Если бот еще не зарегистрирован, слой ожидает его регистрации в том
+     * же семействе и подключается в {@link #register(int, BotType)}.
+     *
+     * @param botId ID бота
+     * @param botType семейство, для которого обучен слой
+     * @param head загруженный выходной слой
+     * @return true, если слой подключен сразу
+     */
+    public boolean restoreHead(int botId, BotType botType, NeuralNetwork.OutputHead head) {
+        if (botType == null || head == null) {
+            throw new IllegalArgumentException("Bot type and head must not be null");
+        }
+        NeuralNetwork model = familyModels.get(botType);
+        if (botFamilies.get(botId) == botType && model != null) {
+            if (!model.isCompatible(head)) {
+                _log.warn("Restored head of bot " + botId + " does not match family model " + botType);
+                return false;
+            }
+            botHeads.put(botId, head);
+            return true;
+        }
+        pendingHeads.put(botId, new PendingHead(botType, head));
+        return false;
+    }
+
+    /**
+     * Возвращает модели всех семейств
+     *
+     * @return копия таблицы моделей по типу бота
+     */
+    public Map<BotType, NeuralNetwork> getFamilyModels() {
+        return new HashMap<>(familyModels);
+    }
+
+    /**
+     * Возвращает индивидуальные выходные слои всех адаптированных ботов
+     *
+     * @return копия таблицы выходных слоев по ID бота
+     */
+    public Map<Integer, NeuralNetwork.OutputHead> getHeads() {
+        return new HashMap<>(botHeads);
+    }
+
+    /**
+     * Возвращает семейство бота
+     *
+     * @param botId ID бота
+     * @return тип бота или null, если бот не зарегистрирован
+     */
+    public BotType getFamily(int botId) {
+        return botFamilies.get(botId);
+    }
+
+    // ==================== НАСТРОЙКА И СТАТИСТИКА ====================
+
+    /**
+     * Устанавливает точность весов для моделей семейств, создаваемых после вызова
+     *
+     * @param precision точность весов
+     */
+    public void setPrecision(Precision precision) {
+        if (precision == null) {
+            throw new IllegalArgumentException("Precision must not be null");
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * Возвращает точность весов новых моделей семейств
+     *
+     * @return точность весов
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Возвращает количество моделей семейств
+     *
+     * @return количество семейств
+     */
+    public int getFamilyCount() {
+        return familyModels.size();
+    }
+
+    /**
+     * Возвращает количество индивидуальных выходных слоев
+     *
+     * @return количество адаптированных ботов
+     */
+    public int getHeadCount() {
+        return botHeads.size();
+    }
+
+    /**
+     * Возвращает количество зарегистрированных ботов
+     *
+     * @return количество ботов
+     */
+    public int getBotCount() {
+        return botFamilies.size();
+    }
+
+    /**
+     * Возвращает суммарный объем параметров моделей семейств и выходных слоев
+     *
+     * @return размер в байтах
+     */
+    public long getParameterBytes() {
+        long total = 0;
+        for (NeuralNetwork model : familyModels.values()) {
+            total += model.getParameterBytes();
+        }
+        for (QuantizedModel quantized : quantizedModels.values()) {
+            total += quantized.network.getParameterBytes();
+        }
+        for (NeuralNetwork.OutputHead head : botHeads.values()) {
+            total += head.getParameterBytes();
+        }
+        return total;
+    }
+
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+
+    /**
+     * Квантованная копия модели семейства
+     *
+     * Копия актуальна, пока модель семейства - тот же объект с тем же
+     * количеством эпох обучения (обучение на месте увеличивает счетчик,
+     * теневое обучение заменяет объект).
+     */
+    private static final class QuantizedModel {
+        private final NeuralNetwork source;
+        private final long sourceEpochs;
+        private final NeuralNetwork network;
+
+        QuantizedModel(NeuralNetwork source, long sourceEpochs, NeuralNetwork network) {
+            this.source = source;
+            this.sourceEpochs = sourceEpochs;
+            this.network = network;
+        }
+
+        boolean isCurrent(NeuralNetwork model) {
+            return model == source && model.getTrainingEpochs() == sourceEpochs;
+        }
+    }
+
+    /**
+     * Загруженный выходной слой, ожидающий регистрации бота
+     */
+    private static final class PendingHead {
+        private final BotType botType;
+        private final NeuralNetwork.OutputHead head;
+
+        PendingHead(BotType botType, NeuralNetwork.OutputHead head) {
+            this.botType = botType;
+            this.head = head;
+        }
+    }
+}
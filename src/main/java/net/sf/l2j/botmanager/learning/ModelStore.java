@@ -0,0 +1,297 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.core.BotType;
+import net.sf.l2j.botmanager.utils.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Хранилище моделей ботов на диске
+ *
+ * Сохраняет содержимое {@link ModelRegistry} в каталог в формате
+ * {@link ModelFile}: по одному файлу на модель семейства и по одному
+ * файлу на бота с его выходным слоем и статистикой нормализации.
+ *
+ * Сохранение инкрементальное: хранилище помнит контрольную сумму каждого
+ * записанного или загруженного файла и не перезаписывает модели, которые
+ * не изменились. Каждый файл заменяется атомарно, поэтому сбой во время
+ * сохранения оставляет прежнюю версию модели.
+ *
+ * Загрузка отображает файлы в память и восстанавливает модели семейств и
+ * выходные слои в реестре; выходные слои ботов, которые еще не вошли в
+ * игру, подключаются при их регистрации.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class ModelStore {
+
+    private static final Logger _log = Logger.getLogger(ModelStore.class);
+
+    // ==================== КОНСТАНТЫ ====================
+
+    /**
+     * Расширение файлов моделей
+     */
+    public static final String FILE_EXTENSION = ".model";
+
+    private static final String FAMILY_PREFIX = "family-";
+    private static final String BOT_PREFIX = "bot-";
+
+    // ==================== ПОЛЯ ====================
+
+    /**
+     * Каталог хранилища
+     */
+    private final Path directory;
+
+    /**
+     * Контрольные суммы файлов, совпадающих с моделями в памяти
+     */
+    private final Map<String, Integer> checksums = new ConcurrentHashMap<>();
+
+    /**
+     * Количество записанных файлов
+     */
+    private final AtomicLong filesWritten = new AtomicLong(0);
+
+    /**
+     * Количество файлов, пропущенных как неизмененные
+     */
+    private final AtomicLong filesSkipped = new AtomicLong(0);
+
+    /**
+     * Количество загруженных файлов
+     */
+    private final AtomicLong filesLoaded = new AtomicLong(0);
+
+    // ==================== КОНСТРУКТОР ====================
+
+    /**
+     * Создает хранилище в каталоге
+     *
+     * @param directory каталог хранилища (создается при первом сохранении)
+     */
+    public ModelStore(Path directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory must not be null");
+        }
+        this.directory = directory;
+    }
+
+    // ==================== СОХРАНЕНИЕ ====================
+
+    /**
+     * Сохраняет модели реестра и статистику нормализации ботов
+     *
+     * Файлы неизмененных моделей не перезаписываются.
+     *
+     * @param registry реестр моделей
+     * @param processors обработчики данных ботов (источник статистики нормализации)
+     * @return количество записанных файлов
+     * @throws IOException при ошибке записи
+     */
+    public int save(ModelRegistry registry, Map<Integer, LearningDataProcessor> processors) throws IOException {
+        Files.createDirectories(directory);
+        int written = 0;
+
+        for (Map.Entry<BotType, NeuralNetwork> entry : registry.getFamilyModels().entrySet()) {
+            NeuralNetwork model = entry.getValue();
+            ByteBuffer data;
+            synchronized (model) {
+                data = ModelFile.encode(new ModelFile.Contents(entry.getKey().name(), model, null, null));
+            }
+            if (writeIfChanged(FAMILY_PREFIX + entry.getKey().name() + FILE_EXTENSION, data)) {
+                written++;
+            }
+        }
+
+        Map<Integer, NeuralNetwork.OutputHead> heads = registry.getHeads();
+        Set<Integer> botIds = new HashSet<>(heads.keySet());
+        botIds.addAll(processors.keySet());
+        for (Integer botId : botIds) {
+            BotType botType = registry.getFamily(botId);
+            NeuralNetwork.OutputHead head = botType != null ? heads.get(botId) : null;
+            LearningDataProcessor processor = processors.get(botId);
+            Map<String, LearningDataProcessor.NormalizationStats> normalization =
+                processor != null ? processor.getNormalizationStats() : null;
+            if (head == null && (normalization == null || normalization.isEmpty())) {
+                continue;
+            }
+
+            ByteBuffer data;
+            String family = botType != null ? botType.name() : null;
+            if (head != null) {
+                synchronized (head) {
+                    data = ModelFile.encode(new ModelFile.Contents(family, null, head, normalization));
+                }
+            } else {
+                data = ModelFile.encode(new ModelFile.Contents(family, null, null, normalization));
+            }
+            if (writeIfChanged(BOT_PREFIX + botId + FILE_EXTENSION, data)) {
+                written++;
+            }
+        }
+
+        _log.info("Model store saved " + written + " files to " + directory);
+        return written;
+    }
+
+    /**
+     * Записывает файл, если его содержимое отличается от сохраненного
+     *
+     * @param name имя файла
+     * @param data сериализованная модель
+     * @return true, если файл записан
+     */
+    private boolean writeIfChanged(String name, ByteBuffer data) throws IOException {
+        int checksum = ModelFile.checksum(data);
+        Integer saved = checksums.get(name);
+        Path path = directory.resolve(name);
+        if (saved != null && saved == checksum && Files.exists(path)) {
+            filesSkipped.incrementAndGet();
+            return false;
+        }
+        ModelFile.write(path, data);
+        checksums.put(name, checksum);
+        filesWritten.incrementAndGet();
+        return true;
+    }
+
+    // ==================== ЗАГРУЗКА ====================
+
+    /**
+     * Загружает модели из каталога в реестр
+     *
+     * Сначала загружаются модели семейств, затем выходные слои ботов.
+     * Поврежденные файлы и файлы неизвестных семейств пропускаются с
+     * записью в журнал.
+     *
+     * @param registry реестр моделей
+     * @param normalization приемник статистики нормализации по ID бота
+     * @return количество загруженных файлов
+     * @throws IOException если каталог не удается прочитать
+     */
+    public int load(ModelRegistry registry,
+                    Map<Integer, Map<String, LearningDataProcessor.NormalizationStats>> normalization)
+            throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+
+        int loaded = 0;
+        loaded += loadFiles(FAMILY_PREFIX + "*" + FILE_EXTENSION, (name, contents) -> {
+            BotType botType = parseFamily(contents.family);
+            if (botType == null || contents.network == null) {
+                return false;
+            }
+            registry.restoreFamilyModel(botType, contents.network);
+            return true;
+        });
+        loaded += loadFiles(BOT_PREFIX + "*" + FILE_EXTENSION, (name, contents) -> {
+            int botId = Integer.parseInt(name.substring(BOT_PREFIX.length(), name.length() - FILE_EXTENSION.length()));
+            BotType botType = parseFamily(contents.family);
+            if (contents.head != null && botType != null) {
+                registry.restoreHead(botId, botType, contents.head);
+            }
+            if (contents.normalization != null) {
+                normalization.put(botId, contents.normalization);
+            }
+            return true;
+        });
+
+        _log.info("Model store loaded " + loaded + " files from " + directory);
+        return loaded;
+    }
+
+    private int loadFiles(String glob, FileLoader loader) throws IOException {
+        int loaded = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                try {
+                    ModelFile.Contents contents = ModelFile.read(path);
+                    if (loader.apply(name, contents)) {
+                        // Загруженная модель совпадает с файлом: не перезаписываем до изменения
+                        checksums.put(name, contents.checksum);
+                        filesLoaded.incrementAndGet();
+                        loaded++;
+                    } else {
+                        _log.warn("Skipping model file " + path + ": unknown family or missing network");
+                    }
+                } catch (IOException | RuntimeException e) {
+                    _log.error("Failed to load model file " + path + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static BotType parseFamily(String family) {
+        if (family == null) {
+            return null;
+        }
+        try {
+            return BotType.valueOf(family);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // ==================== СТАТИСТИКА ====================
+
+    /**
+     * Возвращает каталог хранилища
+     *
+     * @return каталог
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Возвращает количество записанных файлов
+     *
+     * @return количество файлов
+     */
+    public long getFilesWritten() {
+        return filesWritten.get();
+    }
+
+    /**
+     * Возвращает количество файлов, пропущенных при сохранении как неизмененные
+     *
+     * @return количество файлов
+     */
+    public long getFilesSkipped() {
+        return filesSkipped.get();
+    }
+
+    /**
+     * Возвращает количество загруженных файлов
+     *
+     * @return количество файлов
+     */
+    public long getFilesLoaded() {
+        return filesLoaded.get();
+    }
+
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+
+    /**
+     * Обработчик загруженного файла
+     */
+    private interface FileLoader {
+        boolean apply(String name, ModelFile.Contents contents);
+    }
+}
@@ -21,6 +21,24 @@ import java.util.concurrent.atomic.AtomicLong;
  * - Сохранение и загрузка весов
  * - Статистика обучения
  * 
+ * Веса каждого слоя хранятся в одном непрерывном массиве построчно по
+ * выходам (раскладка {@link TensorOps}). Прямой проход использует буферы
+ * активаций, выделенные один раз на поток, поэтому инференс через
+ * {@link #forward(double[], double[])} не выделяет память.
+ * 
+ * Точность хранения весов ({@link Precision}) выбирается при создании
+ * сети; {@link #toPrecision(Precision)} преобразует обученную сеть в
+ * другую точность.
+ * 
+ * Одну сеть могут разделять несколько ботов: индивидуальная настройка
+ * бота хранится в {@link OutputHead} - собственной копии выходного слоя,
+ * которая дообучается поверх общих скрытых слоев.
+ * 
+ * Обученную сеть можно квантовать в int8 ({@link #quantize(double[][])}):
+ * квантованная копия хранит веса в байтах с масштабом на каждую строку
+ * (выходной нейрон), вычисляет скалярные произведения в int32 и
+ * предназначена только для инференса.
+ * 
  * @author AI Assistant
  * @version 3.1
  * @since 2025-09-26
@@ -56,6 +74,11 @@ public class NeuralNetwork {
      */
     private static final double MIN_ERROR = 0.001;
     
+    /**
+     * Множитель скорости обучения при адаптации
+     */
+    private static final double ADAPTATION_RATE_FACTOR = 0.1;
+    
     // ==================== ПОЛЯ ====================
     
     /**
@@ -84,15 +107,45 @@ public class NeuralNetwork {
     private final int outputSize;
     
     /**
-     * Веса между слоями
+     * Точность хранения весов
      */
-    private final List<double[][]> weights;
+    private final Precision precision;
+    
+    /**
+     * Веса между слоями, каждый слой [outputSize * inputSize] построчно (FLOAT64)
+     */
+    private final List<double[]> weights;
+    
+    /**
+     * Веса между слоями в одинарной точности (FLOAT32), раскладка как у weights
+     */
+    private final List<float[]> weights32;
     
     /**
      * Смещения для каждого слоя
      */
     private final List<double[]> biases;
     
+    /**
+     * Буферы прямого прохода текущего потока: нормализованный вход и активации скрытых слоев
+     */
+    private final ThreadLocal<double[][]> inferenceBuffers;
+    
+    /**
+     * Пакетные буферы текущего потока [batch * size] для каждого слоя, растут по необходимости
+     */
+    private final ThreadLocal<double[][]> batchBuffers = new ThreadLocal<>();
+    
+    /**
+     * Слои int8 квантованной сети (null для обучаемой сети)
+     */
+    private final QuantizedLayer[] quantizedLayers;
+    
+    /**
+     * Буферы квантованного входа слоя для каждого потока (только для квантованной сети)
+     */
+    private final ThreadLocal<byte[]> quantizedInputs;
+    
     /**
      * Скорость обучения
      */
@@ -126,7 +179,17 @@ public class NeuralNetwork {
      * @param botId ID бота
      */
     public NeuralNetwork(int botId) {
-        this(botId, 10, 2, 8, 5); // По умолчанию: 10 входов, 2 скрытых слоя по 8 нейронов, 5 выходов
+        this(botId, Precision.FLOAT64);
+    }
+    
+    /**
+     * Конструктор нейронной сети с заданной точностью весов
+     * 
+     * @param botId ID бота
+     * @param precision точность хранения весов
+     */
+    public NeuralNetwork(int botId, Precision precision) {
+        this(botId, 10, 2, 8, 5, precision); // По умолчанию: 10 входов, 2 скрытых слоя по 8 нейронов, 5 выходов
     }
     
     /**
@@ -139,6 +202,24 @@ public class NeuralNetwork {
      * @param outputSize количество выходных нейронов
      */
     public NeuralNetwork(int botId, int inputSize, int hiddenLayers, int hiddenSize, int outputSize) {
+        this(botId, inputSize, hiddenLayers, hiddenSize, outputSize, Precision.FLOAT64);
+    }
+    
+    /**
+     * Конструктор нейронной сети с настройками и точностью весов
+     * 
+     * @param botId ID бота
+     * @param inputSize количество входных нейронов
+     * @param hiddenLayers количество скрытых слоев
+     * @param hiddenSize количество нейронов в скрытом слое
+     * @param outputSize количество выходных нейронов
+     * @param precision точность хранения весов
+     */
+    public NeuralNetwork(int botId, int inputSize, int hiddenLayers, int hiddenSize, int outputSize,
+                         Precision precision) {
+        if (precision == null) {
+            throw new IllegalArgumentException("Precision must not be null");
+        }
         this.botId = botId;
         this.inputSize = inputSize;
         this.hiddenLayers = hiddenLayers;
@@ -147,13 +228,45 @@ public class NeuralNetwork {
         this.learningRate = DEFAULT_LEARNING_RATE;
         
         // Инициализируем веса и смещения
+        this.precision = precision;
         this.weights = new ArrayList<>();
+        this.weights32 = new ArrayList<>();
         this.biases = new ArrayList<>();
         
         initializeWeights();
+        this.inferenceBuffers = ThreadLocal.withInitial(this::createActivationBuffers);
+        this.quantizedLayers = null;
+        this.quantizedInputs = null;
         
         _log.info("NeuralNetwork created for bot " + botId + " with architecture: " + 
-                 inputSize + "-" + hiddenLayers + "x" + hiddenSize + "-" + outputSize);
+                 inputSize + "-" + hiddenLayers + "x" + hiddenSize + "-" + outputSize + " (" + precision + ")");
+    }
+    
+    /**
+     * Конструктор квантованной копии сети
+     * 
+     * @param source исходная сеть
+     * @param layers квантованные слои
+     */
+    private NeuralNetwork(NeuralNetwork source, QuantizedLayer[] layers) {
+        this.botId = source.botId;
+        this.inputSize = source.inputSize;
+        this.hiddenLayers = source.hiddenLayers;
+        this.hiddenSize = source.hiddenSize;
+        this.outputSize = source.outputSize;
+        this.precision = source.precision;
+        this.learningRate = source.learningRate;
+        this.weights = new ArrayList<>();
+        this.weights32 = new ArrayList<>();
+        this.biases = new ArrayList<>();
+        this.inferenceBuffers = ThreadLocal.withInitial(this::createActivationBuffers);
+        this.quantizedLayers = layers;
+        int maxCols = Math.max(inputSize, hiddenSize);
+        this.quantizedInputs = ThreadLocal.withInitial(() -> new byte[maxCols]);
+        this.trainingEpochs.set(source.trainingEpochs.get());
+        this.currentError = source.currentError;
+        this.lastTrainingTime = source.lastTrainingTime;
+        this.isActive.set(source.isActive.get());
     }
     
     // ==================== ИНИЦИАЛИЗАЦИЯ ====================
@@ -165,50 +278,69 @@ public class NeuralNetwork {
         Random random = new Random();
         
         // Веса между входным и первым скрытым слоем
-        double[][] inputToHidden = new double[inputSize][hiddenSize];
-        for (int i = 0; i < inputSize; i++) {
-            for (int j = 0; j < hiddenSize; j++) {
-                inputToHidden[i][j] = random.nextGaussian() * 0.5;
-            }
-        }
-        weights.add(inputToHidden);
+        addLayerWeights(randomArray(random, hiddenSize * inputSize, 0.5));
         
         // Веса между скрытыми слоями
         for (int layer = 1; layer < hiddenLayers; layer++) {
-            double[][] hiddenToHidden = new double[hiddenSize][hiddenSize];
-            for (int i = 0; i < hiddenSize; i++) {
-                for (int j = 0; j < hiddenSize; j++) {
-                    hiddenToHidden[i][j] = random.nextGaussian() * 0.5;
-                }
-            }
-            weights.add(hiddenToHidden);
+            addLayerWeights(randomArray(random, hiddenSize * hiddenSize, 0.5));
         }
         
         // Веса между последним скрытым и выходным слоем
-        double[][] hiddenToOutput = new double[hiddenSize][outputSize];
-        for (int i = 0; i < hiddenSize; i++) {
-            for (int j = 0; j < outputSize; j++) {
-                hiddenToOutput[i][j] = random.nextGaussian() * 0.5;
-            }
-        }
-        weights.add(hiddenToOutput);
+        addLayerWeights(randomArray(random, outputSize * hiddenSize, 0.5));
         
         // Инициализируем смещения
         // Смещения для скрытых слоев
         for (int layer = 0; layer < hiddenLayers; layer++) {
-            double[] bias = new double[hiddenSize];
-            for (int i = 0; i < hiddenSize; i++) {
-                bias[i] = random.nextGaussian() * 0.1;
-            }
-            biases.add(bias);
+            biases.add(randomArray(random, hiddenSize, 0.1));
         }
         
         // Смещения для выходного слоя
-        double[] outputBias = new double[outputSize];
-        for (int i = 0; i < outputSize; i++) {
-            outputBias[i] = random.nextGaussian() * 0.1;
+        biases.add(randomArray(random, outputSize, 0.1));
+    }
+    
+    /**
+     * Добавляет веса очередного слоя в хранилище нужной точности
+     * 
+     * @param layerWeights веса слоя в двойной точности
+     */
+    private void addLayerWeights(double[] layerWeights) {
+        if (precision == Precision.FLOAT32) {
+            weights32.add(TensorOps.toFloat(layerWeights));
+        } else {
+            weights.add(layerWeights);
         }
-        biases.add(outputBias);
+    }
+    
+    /**
+     * Создает массив со случайными значениями из нормального распределения
+     * 
+     * @param random генератор случайных чисел
+     * @param length длина массива
+     * @param scale масштаб
+     * @return массив
+     */
+    private static double[] randomArray(Random random, int length, double scale) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextGaussian() * scale;
+        }
+        return values;
+    }
+    
+    /**
+     * Создает буферы активаций: индекс 0 - вход, 1..hiddenLayers - скрытые слои,
+     * последний - выходной слой
+     * 
+     * @return буферы активаций
+     */
+    private double[][] createActivationBuffers() {
+        double[][] buffers = new double[hiddenLayers + 2][];
+        buffers[0] = new double[inputSize];
+        for (int layer = 1; layer <= hiddenLayers; layer++) {
+            buffers[layer] = new double[hiddenSize];
+        }
+        buffers[hiddenLayers + 1] = new double[outputSize];
+        return buffers;
     }
     
     // ==================== ОСНОВНЫЕ МЕТОДЫ ====================
@@ -247,93 +379,217 @@ public class NeuralNetwork {
      * @return выходные данные
      */
     public double[] forward(double[] inputs) {
-        if (!isActive.get() || inputs == null || inputs.length != inputSize) {
-            return null;
+        double[] output = new double[outputSize];
+        return forward(inputs, output) ? output : null;
+    }
+    
+    /**
+     * Выполняет прямое распространение сигнала через сеть без выделения памяти
+     * 
+     * @param inputs входные данные
+     * @param output буфер для выходных данных размера outputSize
+     * @return true, если результат записан в output
+     */
+    public boolean forward(double[] inputs, double[] output) {
+        return forward(inputs, output, null);
+    }
+    
+    /**
+     * Выполняет прямое распространение с индивидуальным выходным слоем бота
+     * 
+     * @param inputs входные данные
+     * @param head выходной слой бота или null для общего выходного слоя
+     * @return выходные данные
+     */
+    public double[] forward(double[] inputs, OutputHead head) {
+        double[] output = new double[outputSize];
+        return forward(inputs, output, head) ? output : null;
+    }
+    
+    /**
+     * Выполняет прямое распространение без выделения памяти
+     * 
+     * Скрытые слои всегда общие; выходной слой берется из head, если он задан.
+     * 
+     * @param inputs входные данные
+     * @param output буфер для выходных данных размера outputSize
+     * @param head выходной слой бота или null для общего выходного слоя
+     * @return true, если результат записан в output
+     */
+    public boolean forward(double[] inputs, double[] output, OutputHead head) {
+        if (!isActive.get() || inputs == null || inputs.length != inputSize
+                || output == null || output.length != outputSize
+                || (head != null && !isCompatible(head))) {
+            return false;
         }
         
         try {
-            // Нормализуем входные данные
-            double[] normalizedInputs = normalizeInputs(inputs);
+            double[][] buffers = inferenceBuffers.get();
             
-            // Вычисляем активации для каждого слоя
-            List<double[]> activations = new ArrayList<>();
-            activations.add(normalizedInputs);
+            // Нормализуем входные данные
+            normalizeInputs(inputs, inputSize, buffers[0]);
             
             // Скрытые слои
-            double[] currentActivation = normalizedInputs;
             for (int layer = 0; layer < hiddenLayers; layer++) {
-                currentActivation = computeLayerActivation(currentActivation, weights.get(layer), biases.get(layer));
-                currentActivation = applyActivationFunction(currentActivation);
-                activations.add(currentActivation);
+                computeLayer(buffers[layer], layer, buffers[layer + 1]);
             }
             
             // Выходной слой
-            double[] output = computeLayerActivation(currentActivation, weights.get(hiddenLayers), biases.get(hiddenLayers));
-            output = applyActivationFunction(output);
+            if (head != null) {
+                head.compute(buffers[hiddenLayers], output);
+            } else {
+                computeLayer(buffers[hiddenLayers], hiddenLayers, output);
+            }
             
-            return output;
+            return true;
             
         } catch (Exception e) {
             _log.error("Error in forward propagation for bot " + botId + ": " + e.getMessage(), e);
-            return null;
+            return false;
         }
     }
     
     /**
-     * Вычисляет активацию слоя
+     * Выполняет прямое распространение для пакета примеров
      * 
-     * @param inputs входные данные
-     * @param weights веса слоя
-     * @param biases смещения слоя
-     * @return активации нейронов
+     * Каждый слой вычисляется одним матричным умножением
+     * ({@link TensorOps#gemmABt}) для всего пакета, что заменяет множество
+     * матрично-векторных произведений отдельных ботов. Результат каждой
+     * строки совпадает с {@link #forward(double[], double[], OutputHead)}.
+     * 
+     * @param inputs входы пакета [batchSize * inputSize] построчно
+     * @param batchSize количество примеров
+     * @param outputs буфер выходов [batchSize * outputSize] построчно
+     * @param heads выходные слои ботов по строкам (элементы и сам массив могут быть null)
+     * @return true, если результат записан в outputs
      */
-    private double[] computeLayerActivation(double[] inputs, double[][] weights, double[] biases) {
-        int outputSize = biases.length;
-        double[] activations = new double[outputSize];
+    public boolean forwardBatch(double[] inputs, int batchSize, double[] outputs, OutputHead[] heads) {
+        if (!isActive.get() || batchSize <= 0 || inputs == null || inputs.length < batchSize * inputSize
+                || outputs == null || outputs.length < batchSize * outputSize
+                || (heads != null && heads.length < batchSize)) {
+            return false;
+        }
         
-        for (int j = 0; j < outputSize; j++) {
-            double sum = biases[j];
-            for (int i = 0; i < inputs.length; i++) {
-                sum += inputs[i] * weights[i][j];
+        try {
+            double[][] buffers = getBatchBuffers(batchSize);
+            
+            // Нормализуем входные данные всего пакета
+            normalizeInputs(inputs, batchSize * inputSize, buffers[0]);
+            
+            // Скрытые слои
+            int size = inputSize;
+            for (int layer = 0; layer < hiddenLayers; layer++) {
+                computeLayerBatch(buffers[layer], layer, buffers[layer + 1], batchSize, size, hiddenSize);
+                size = hiddenSize;
             }
-            activations[j] = sum;
+            
+            // Общий выходной слой
+            computeLayerBatch(buffers[hiddenLayers], hiddenLayers, outputs, batchSize, size, outputSize);
+            
+            // Строки с индивидуальными выходными слоями пересчитываются отдельно
+            if (heads != null) {
+                double[][] rowBuffers = inferenceBuffers.get();
+                double[] hidden = rowBuffers[hiddenLayers];
+                double[] row = rowBuffers[hiddenLayers + 1];
+                for (int r = 0; r < batchSize; r++) {
+                    OutputHead head = heads[r];
+                    if (head == null) {
+                        continue;
+                    }
+                    if (!isCompatible(head)) {
+                        return false;
+                    }
+                    System.arraycopy(buffers[hiddenLayers], r * hiddenSize, hidden, 0, hiddenSize);
+                    head.compute(hidden, row);
+                    System.arraycopy(row, 0, outputs, r * outputSize, outputSize);
+                }
+            }
+            
+            return true;
+            
+        } catch (Exception e) {
+            _log.error("Error in batch forward propagation for bot " + botId + ": " + e.getMessage(), e);
+            return false;
         }
-        
-        return activations;
     }
     
     /**
-     * Применяет функцию активации к нейронам
+     * Вычисляет активации слоя с сигмоидой для пакета
      * 
-     * @param activations активации нейронов
-     * @return активации после применения функции
+     * @param inputs входы слоя [batchSize * cols]
+     * @param layer индекс слоя
+     * @param output буфер активаций [batchSize * rows]
+     * @param batchSize количество примеров
+     * @param cols размер входа слоя
+     * @param rows размер выхода слоя
      */
-    private double[] applyActivationFunction(double[] activations) {
-        double[] result = new double[activations.length];
-        for (int i = 0; i < activations.length; i++) {
-            result[i] = sigmoid(activations[i]);
+    private void computeLayerBatch(double[] inputs, int layer, double[] output, int batchSize, int cols, int rows) {
+        if (quantizedLayers != null) {
+            QuantizedLayer quantized = quantizedLayers[layer];
+            byte[] q = quantizedInputs.get();
+            for (int r = 0; r < batchSize; r++) {
+                quantized.compute(inputs, r * cols, q, output, r * rows);
+            }
+            TensorOps.sigmoid(output, output, 0, batchSize * rows);
+            return;
+        }
+        double[] layerBiases = biases.get(layer);
+        if (precision == Precision.FLOAT32) {
+            TensorOps.gemmABt(inputs, weights32.get(layer), layerBiases, output, batchSize, rows, cols);
+        } else {
+            TensorOps.gemmABt(inputs, weights.get(layer), layerBiases, output, batchSize, rows, cols);
         }
-        return result;
+        TensorOps.sigmoid(output, output, 0, batchSize * rows);
     }
     
     /**
-     * Сигмоидальная функция активации
+     * Возвращает пакетные буферы текущего потока вместимостью не меньше batchSize
      * 
-     * @param x входное значение
-     * @return результат функции
+     * @param batchSize размер пакета
+     * @return буферы: индекс 0 - вход, 1..hiddenLayers - скрытые слои
      */
-    private double sigmoid(double x) {
-        return 1.0 / (1.0 + Math.exp(-x));
+    private double[][] getBatchBuffers(int batchSize) {
+        double[][] buffers = batchBuffers.get();
+        if (buffers == null || buffers[0].length < batchSize * inputSize) {
+            buffers = new double[hiddenLayers + 1][];
+            buffers[0] = new double[batchSize * inputSize];
+            for (int layer = 1; layer <= hiddenLayers; layer++) {
+                buffers[layer] = new double[batchSize * hiddenSize];
+            }
+            batchBuffers.set(buffers);
+        }
+        return buffers;
     }
     
     /**
-     * Производная сигмоидальной функции
+     * Вычисляет активацию слоя с сигмоидой
      * 
-     * @param x входное значение
+     * @param inputs входные данные слоя
+     * @param layer индекс слоя
+     * @param output буфер для активаций нейронов
+     */
+    private void computeLayer(double[] inputs, int layer, double[] output) {
+        if (quantizedLayers != null) {
+            quantizedLayers[layer].compute(inputs, 0, quantizedInputs.get(), output, 0);
+            TensorOps.sigmoid(output, output, 0, output.length);
+            return;
+        }
+        double[] layerBiases = biases.get(layer);
+        if (precision == Precision.FLOAT32) {
+            TensorOps.matVec(weights32.get(layer), layerBiases, inputs, output, layerBiases.length, inputs.length);
+        } else {
+            TensorOps.matVec(weights.get(layer), layerBiases, inputs, output, layerBiases.length, inputs.length);
+        }
+        TensorOps.sigmoid(output, output, 0, output.length);
+    }
+    
+    /**
+     * Производная сигмоидальной функции, выраженная через ее значение
+     * 
+     * @param s значение сигмоиды
      * @return производная
      */
-    private double sigmoidDerivative(double x) {
-        double s = sigmoid(x);
+    private double sigmoidDerivative(double s) {
         return s * (1.0 - s);
     }
     
@@ -346,7 +602,8 @@ public class NeuralNetwork {
      * @return true, если обучение прошло успешно
      */
     public boolean train(ProcessedData data) {
-        if (!isActive.get() || data == null) {
+        // Квантованная сеть предназначена только для инференса
+        if (!isActive.get() || data == null || quantizedLayers != null) {
             return false;
         }
         
@@ -358,6 +615,10 @@ public class NeuralNetwork {
                 return false;
             }
             
+            // Буферы активаций и ошибок выделяются один раз на вызов обучения
+            double[][] activations = createActivationBuffers();
+            double[][] deltas = createActivationBuffers();
+            
             int epochs = 0;
             double error = Double.MAX_VALUE;
             
@@ -370,28 +631,21 @@ public class NeuralNetwork {
                     double[] target = targets[i];
                     
                     // Прямое распространение
-                    List<double[]> activations = new ArrayList<>();
-                    activations.add(input);
-                    
-                    double[] currentActivation = input;
-                    for (int layer = 0; layer < hiddenLayers; layer++) {
-                        currentActivation = computeLayerActivation(currentActivation, weights.get(layer), biases.get(layer));
-                        currentActivation = applyActivationFunction(currentActivation);
-                        activations.add(currentActivation);
+                    System.arraycopy(input, 0, activations[0], 0, inputSize);
+                    for (int layer = 0; layer <= hiddenLayers; layer++) {
+                        computeLayer(activations[layer], layer, activations[layer + 1]);
                     }
                     
-                    double[] output = computeLayerActivation(currentActivation, weights.get(hiddenLayers), biases.get(hiddenLayers));
-                    output = applyActivationFunction(output);
-                    
                     // Вычисляем ошибку
-                    double[] outputError = new double[outputSize];
+                    double[] output = activations[hiddenLayers + 1];
+                    double[] outputError = deltas[hiddenLayers + 1];
                     for (int j = 0; j < outputSize; j++) {
                         outputError[j] = target[j] - output[j];
                         error += outputError[j] * outputError[j];
                     }
                     
                     // Обратное распространение ошибки
-                    backpropagate(activations, outputError);
+                    backpropagate(activations, deltas);
                 }
                 
                 error /= inputs.length;
@@ -416,31 +670,34 @@ public class NeuralNetwork {
     /**
      * Выполняет обратное распространение ошибки
      * 
-     * @param activations активации всех слоев
-     * @param outputError ошибка выходного слоя
+     * @param activations активации всех слоев, включая вход и выход
+     * @param deltas буферы ошибок слоев; последний содержит ошибку выходного слоя
      */
-    private void backpropagate(List<double[]> activations, double[] outputError) {
+    private void backpropagate(double[][] activations, double[][] deltas) {
         // Ошибка для выходного слоя
-        double[] delta = new double[outputSize];
+        double[] output = activations[hiddenLayers + 1];
+        double[] delta = deltas[hiddenLayers + 1];
         for (int j = 0; j < outputSize; j++) {
-            delta[j] = outputError[j] * sigmoidDerivative(activations.get(activations.size() - 1)[j]);
+            delta[j] *= sigmoidDerivative(output[j]);
         }
         
         // Обновляем веса и смещения для выходного слоя
-        updateLayerWeights(activations.get(activations.size() - 2), delta, hiddenLayers);
+        updateLayerWeights(activations[hiddenLayers], delta, hiddenLayers);
         
         // Обрабатываем скрытые слои
         for (int layer = hiddenLayers - 1; layer >= 0; layer--) {
-            double[] prevDelta = new double[hiddenSize];
+            double[] prevDelta = deltas[layer + 1];
+            double[] activation = activations[layer + 1];
+            if (precision == Precision.FLOAT32) {
+                TensorOps.matTVec(weights32.get(layer + 1), delta, prevDelta, delta.length, hiddenSize);
+            } else {
+                TensorOps.matTVec(weights.get(layer + 1), delta, prevDelta, delta.length, hiddenSize);
+            }
             for (int i = 0; i < hiddenSize; i++) {
-                double sum = 0.0;
-                for (int j = 0; j < delta.length; j++) {
-                    sum += delta[j] * weights.get(layer + 1)[i][j];
-                }
-                prevDelta[i] = sum * sigmoidDerivative(activations.get(layer + 1)[i]);
+                prevDelta[i] *= sigmoidDerivative(activation[i]);
             }
             
-            updateLayerWeights(activations.get(layer), prevDelta, layer);
+            updateLayerWeights(activations[layer], prevDelta, layer);
             delta = prevDelta;
         }
     }
@@ -453,20 +710,25 @@ public class NeuralNetwork {
      * @param layerIndex индекс слоя
      */
     private void updateLayerWeights(double[] inputs, double[] delta, int layerIndex) {
-        double[][] layerWeights = weights.get(layerIndex);
         double[] layerBiases = biases.get(layerIndex);
+        int cols = inputs.length;
         
-        // Обновляем веса
-        for (int i = 0; i < inputs.length; i++) {
+        // Обновляем веса: строка j получает learningRate * delta[j] * inputs
+        if (precision == Precision.FLOAT32) {
+            float[] layerWeights = weights32.get(layerIndex);
             for (int j = 0; j < delta.length; j++) {
-                layerWeights[i][j] += learningRate * delta[j] * inputs[i];
+                double scaled = learningRate * delta[j];
+                int row = j * cols;
+                for (int i = 0; i < cols; i++) {
+                    layerWeights[row + i] = (float) (layerWeights[row + i] + scaled * inputs[i]);
+                }
             }
+        } else {
+            TensorOps.addOuter(learningRate, delta, inputs, 0, weights.get(layerIndex), delta.length, cols);
         }
         
         // Обновляем смещения
-        for (int j = 0; j < delta.length; j++) {
-            layerBiases[j] += learningRate * delta[j];
-        }
+        TensorOps.axpy(learningRate, delta, layerBiases, delta.length);
     }
     
     // ==================== АДАПТАЦИЯ ====================
@@ -485,7 +747,7 @@ public class NeuralNetwork {
         try {
             // Используем меньшую скорость обучения для адаптации
             double originalLearningRate = learningRate;
-            learningRate *= 0.1; // Уменьшаем скорость обучения в 10 раз
+            learningRate *= ADAPTATION_RATE_FACTOR; // Уменьшаем скорость обучения в 10 раз
             
             boolean success = train(data);
             
@@ -500,21 +762,314 @@ public class NeuralNetwork {
         }
     }
     
+    // ==================== ИНДИВИДУАЛЬНЫЕ ВЫХОДНЫЕ СЛОИ ====================
+    
+    /**
+     * Создает индивидуальный выходной слой как копию текущего выходного слоя
+     * 
+     * @return новый выходной слой
+     */
+    public OutputHead createOutputHead() {
+        if (quantizedLayers != null) {
+            QuantizedLayer output = quantizedLayers[hiddenLayers];
+            return new OutputHead(output.dequantize(), output.biases.clone(), outputSize, hiddenSize);
+        }
+        double[] headWeights = precision == Precision.FLOAT32
+            ? TensorOps.toDouble(weights32.get(hiddenLayers))
+            : weights.get(hiddenLayers).clone();
+        return new OutputHead(headWeights, biases.get(hiddenLayers).clone(), outputSize, hiddenSize);
+    }
+    
+    /**
+     * Адаптирует индивидуальный выходной слой на основе обратной связи
+     * 
+     * Скрытые слои сети не изменяются, поэтому их выходы вычисляются один
+     * раз на пример, а эпохи обучения проходят только выходной слой.
+     * Скорость обучения уменьшается так же, как в {@link #adapt(ProcessedData)}.
+     * 
+     * @param head выходной слой бота
+     * @param data данные обратной связи
+     * @return true, если адаптация прошла успешно
+     */
+    public boolean adaptOutputHead(OutputHead head, ProcessedData data) {
+        if (!isActive.get() || head == null || data == null || !isCompatible(head)) {
+            return false;
+        }
+        
+        try {
+            double[][] inputs = data.getInputs();
+            double[][] targets = data.getTargets();
+            
+            if (inputs == null || targets == null || inputs.length != targets.length) {
+                return false;
+            }
+            
+            // Выходы последнего скрытого слоя для каждого примера
+            double[][] activations = createActivationBuffers();
+            double[][] features = new double[inputs.length][];
+            for (int i = 0; i < inputs.length; i++) {
+                if (inputs[i].length != inputSize || targets[i].length != outputSize) {
+                    return false;
+                }
+                System.arraycopy(inputs[i], 0, activations[0], 0, inputSize);
+                for (int layer = 0; layer < hiddenLayers; layer++) {
+                    computeLayer(activations[layer], layer, activations[layer + 1]);
+                }
+                features[i] = activations[hiddenLayers].clone();
+            }
+            
+            double rate = learningRate * ADAPTATION_RATE_FACTOR;
+            double[] output = new double[outputSize];
+            double[] delta = new double[outputSize];
+            int epochs = 0;
+            double error = Double.MAX_VALUE;
+            
+            while (epochs < MAX_EPOCHS && error > MIN_ERROR) {
+                error = 0.0;
+                for (int i = 0; i < features.length; i++) {
+                    head.compute(features[i], output);
+                    for (int j = 0; j < outputSize; j++) {
+                        delta[j] = targets[i][j] - output[j];
+                        error += delta[j] * delta[j];
+                        delta[j] *= sigmoidDerivative(output[j]);
+                    }
+                    head.update(features[i], delta, rate);
+                }
+                error /= features.length;
+                epochs++;
+            }
+            
+            head.recordAdaptation(error);
+            return true;
+            
+        } catch (Exception e) {
+            _log.error("Error adapting output head for bot " + botId + ": " + e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Проверяет, что выходной слой подходит к архитектуре сети
+     * 
+     * @param head выходной слой
+     * @return true, если размеры совпадают
+     */
+    boolean isCompatible(OutputHead head) {
+        return head.rows == outputSize && head.cols == hiddenSize;
+    }
+    
+    // ==================== ТОЧНОСТЬ ====================
+    
+    /**
+     * Создает копию сети с весами в заданной точности
+     * 
+     * Копия получает те же веса (округленные до float для FLOAT32 или
+     * расширенные без потерь для FLOAT64), смещения, скорость обучения и
+     * состояние активности.
+     * 
+     * @param target точность копии
+     * @return новая сеть
+     */
+    public NeuralNetwork toPrecision(Precision target) {
+        if (quantizedLayers != null) {
+            throw new IllegalStateException("Quantized network is inference-only and cannot be converted");
+        }
+        NeuralNetwork copy = new NeuralNetwork(botId, inputSize, hiddenLayers, hiddenSize, outputSize, target);
+        copy.weights.clear();
+        copy.weights32.clear();
+        copy.biases.clear();
+        for (int layer = 0; layer <= hiddenLayers; layer++) {
+            double[] layerWeights = precision == Precision.FLOAT32
+                ? TensorOps.toDouble(weights32.get(layer))
+                : weights.get(layer).clone();
+            copy.addLayerWeights(layerWeights);
+            copy.biases.add(biases.get(layer).clone());
+        }
+        copy.learningRate = learningRate;
+        copy.isActive.set(isActive.get());
+        return copy;
+    }
+    
+    /**
+     * Создает независимую копию сети той же точности
+     * 
+     * Копия используется как теневая модель: ее можно обучать, пока
+     * исходная сеть продолжает обслуживать инференс.
+     * 
+     * @return копия сети
+     */
+    public NeuralNetwork copy() {
+        return toPrecision(precision);
+    }
+    
+    /**
+     * Возвращает точность хранения весов
+     * 
+     * @return точность
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+    
+    /**
+     * Возвращает объем памяти, занимаемый весами и смещениями
+     * 
+     * @return размер параметров в байтах
+     */
+    public long getParameterBytes() {
+        if (quantizedLayers != null) {
+            long total = 0;
+            for (QuantizedLayer layer : quantizedLayers) {
+                total += layer.getParameterBytes();
+            }
+            return total;
+        }
+        long weightCount = 0;
+        for (double[] layerWeights : weights) {
+            weightCount += layerWeights.length;
+        }
+        for (float[] layerWeights : weights32) {
+            weightCount += layerWeights.length;
+        }
+        long biasCount = 0;
+        for (double[] layerBiases : biases) {
+            biasCount += layerBiases.length;
+        }
+        return weightCount * precision.getBytesPerWeight() + biasCount * Double.BYTES;
+    }
+
+    // ==================== КВАНТОВАНИЕ ====================
+    
+    /**
+     * Создает квантованную в int8 копию сети для инференса
+     * 
+     * Веса каждой строки (выходного нейрона) квантуются симметрично со
+     * своим масштабом max|w| / 127. Диапазон входа каждого слоя
+     * калибруется прямым проходом исходной сети по примерам: максимум
+     * модуля входа слоя делится на 127. Без примеров используется
+     * диапазон [0, 1], в котором лежат нормализованные входы и выходы
+     * сигмоиды. Значения вне откалиброванного диапазона ограничиваются.
+     * 
+     * Копия не обучается ({@link #train(ProcessedData)} возвращает false);
+     * индивидуальные выходные слои ботов работают с ней без изменений.
+     * 
+     * @param calibrationInputs входы для калибровки (может быть null или пустым)
+     * @return квантованная копия сети
+     */
+    public NeuralNetwork quantize(double[][] calibrationInputs) {
+        if (quantizedLayers != null) {
+            throw new IllegalStateException("Network is already quantized");
+        }
+        
+        // Максимум модуля входа каждого слоя на калибровочных примерах
+        double[] ranges = new double[hiddenLayers + 1];
+        if (calibrationInputs != null) {
+            double[][] activations = createActivationBuffers();
+            for (double[] input : calibrationInputs) {
+                if (input == null || input.length != inputSize) {
+                    continue;
+                }
+                normalizeInputs(input, inputSize, activations[0]);
+                for (int layer = 0; layer <= hiddenLayers; layer++) {
+                    ranges[layer] = Math.max(ranges[layer], TensorOps.maxAbs(activations[layer]));
+                    computeLayer(activations[layer], layer, activations[layer + 1]);
+                }
+            }
+        }
+        
+        QuantizedLayer[] layers = new QuantizedLayer[hiddenLayers + 1];
+        for (int layer = 0; layer <= hiddenLayers; layer++) {
+            double[] layerWeights = precision == Precision.FLOAT32
+                ? TensorOps.toDouble(weights32.get(layer))
+                : weights.get(layer);
+            double[] layerBiases = biases.get(layer);
+            double range = ranges[layer] > 0.0 ? ranges[layer] : 1.0;
+            layers[layer] = new QuantizedLayer(layerWeights, layerBiases, layerBiases.length,
+                layerWeights.length / layerBiases.length, range);
+        }
+        
+        NeuralNetwork quantized = new NeuralNetwork(this, layers);
+        _log.info("NeuralNetwork quantized to int8 for bot " + botId + ": " + getParameterBytes() + " -> "
+            + quantized.getParameterBytes() + " bytes");
+        return quantized;
+    }
+    
+    /**
+     * Проверяет, является ли сеть квантованной копией для инференса
+     * 
+     * @return true для сети int8
+     */
+    public boolean isQuantized() {
+        return quantizedLayers != null;
+    }
+    
+    // ==================== СОХРАНЕНИЕ ====================
+
+    /*
+     * Методы доступа для ModelFile: возвращают сами массивы слоев, а не копии,
+     * чтобы веса записывались и загружались одним блоком без промежуточных
+     * буферов. Вызывающий код синхронизируется на сети.
+     */
+
+    int getBotId() {
+        return botId;
+    }
+
+    int getHiddenLayers() {
+        return hiddenLayers;
+    }
+
+    int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    /**
+     * Возвращает веса слоя в двойной точности (только для FLOAT64)
+     */
+    double[] getLayerWeights(int layer) {
+        return weights.get(layer);
+    }
+
+    /**
+     * Возвращает веса слоя в одинарной точности (только для FLOAT32)
+     */
+    float[] getLayerWeights32(int layer) {
+        return weights32.get(layer);
+    }
+
+    double[] getLayerBiases(int layer) {
+        return biases.get(layer);
+    }
+
+    /**
+     * Восстанавливает состояние обучения загруженной сети
+     *
+     * @param learningRate скорость обучения
+     * @param epochs количество эпох обучения
+     * @param error текущая ошибка
+     * @param trainingTime время последнего обучения
+     */
+    void restoreTrainingState(double learningRate, long epochs, double error, long trainingTime) {
+        setLearningRate(learningRate);
+        trainingEpochs.set(epochs);
+        currentError = error;
+        lastTrainingTime = trainingTime;
+    }
+
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
     /**
      * Нормализует входные данные
      * 
      * @param inputs входные данные
-     * @return нормализованные данные
+     * @param length количество нормализуемых значений
+     * @param normalized буфер для нормализованных данных
      */
-    private double[] normalizeInputs(double[] inputs) {
-        double[] normalized = new double[inputs.length];
-        for (int i = 0; i < inputs.length; i++) {
+    private void normalizeInputs(double[] inputs, int length, double[] normalized) {
+        for (int i = 0; i < length; i++) {
             // Простая нормализация в диапазон [0, 1]
             normalized[i] = Math.max(0.0, Math.min(1.0, inputs[i]));
         }
-        return normalized;
     }
     
     /**
@@ -562,6 +1117,24 @@ public class NeuralNetwork {
         return lastTrainingTime;
     }
     
+    /**
+     * Возвращает количество входных нейронов
+     * 
+     * @return размер входа
+     */
+    public int getInputSize() {
+        return inputSize;
+    }
+    
+    /**
+     * Возвращает количество выходных нейронов
+     * 
+     * @return размер выхода
+     */
+    public int getOutputSize() {
+        return outputSize;
+    }
+    
     /**
      * Возвращает архитектуру сети
      * 
@@ -570,4 +1143,173 @@ public class NeuralNetwork {
     public String getArchitecture() {
         return inputSize + "-" + hiddenLayers + "x" + hiddenSize + "-" + outputSize;
     }
+    
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+    
+    /**
+     * Слой с весами int8 и масштабом на каждую строку
+     */
+    private static final class QuantizedLayer {
+        private final byte[] weights;
+        private final double[] weightScales;
+        private final double[] outputScales;
+        private final double[] biases;
+        private final double inverseInputScale;
+        private final int rows;
+        private final int cols;
+        
+        QuantizedLayer(double[] source, double[] biases, int rows, int cols, double inputRange) {
+            this.rows = rows;
+            this.cols = cols;
+            this.biases = biases.clone();
+            this.weights = new byte[rows * cols];
+            this.weightScales = new double[rows];
+            this.outputScales = new double[rows];
+            
+            double inputScale = inputRange / 127.0;
+            this.inverseInputScale = 1.0 / inputScale;
+            for (int j = 0; j < rows; j++) {
+                double max = 0.0;
+                for (int i = 0; i < cols; i++) {
+                    max = Math.max(max, Math.abs(source[j * cols + i]));
+                }
+                double scale = max > 0.0 ? max / 127.0 : 1.0;
+                weightScales[j] = scale;
+                outputScales[j] = scale * inputScale;
+                TensorOps.quantize(source, j * cols, cols, 1.0 / scale, weights, j * cols);
+            }
+        }
+        
+        /**
+         * Вычисляет взвешенные суммы слоя для входа, начинающегося с offset
+         */
+        void compute(double[] inputs, int offset, byte[] q, double[] output, int outputOffset) {
+            TensorOps.quantize(inputs, offset, cols, inverseInputScale, q, 0);
+            TensorOps.matVecInt8(weights, outputScales, biases, q, output, outputOffset, rows, cols);
+        }
+        
+        double[] dequantize() {
+            double[] result = new double[rows * cols];
+            for (int j = 0; j < rows; j++) {
+                for (int i = 0; i < cols; i++) {
+                    result[j * cols + i] = weights[j * cols + i] * weightScales[j];
+                }
+            }
+            return result;
+        }
+        
+        long getParameterBytes() {
+            return weights.length + (long) (weightScales.length + outputScales.length + biases.length) * Double.BYTES;
+        }
+    }
+    
+    /**
+     * Индивидуальный выходной слой бота поверх общих скрытых слоев
+     * 
+     * Хранит только веса выходного слоя [outputSize * hiddenSize] и смещения,
+     * поэтому занимает малую часть памяти полной сети.
+     */
+    public static final class OutputHead {
+        private final double[] weights;
+        private final double[] biases;
+        private final int rows;
+        private final int cols;
+        private volatile double lastError = Double.MAX_VALUE;
+        private volatile long adaptations = 0;
+        
+        private OutputHead(double[] weights, double[] biases, int rows, int cols) {
+            this.weights = weights;
+            this.biases = biases;
+            this.rows = rows;
+            this.cols = cols;
+        }
+        
+        /**
+         * Вычисляет выходы слоя с сигмоидой
+         */
+        void compute(double[] hidden, double[] output) {
+            TensorOps.matVec(weights, biases, hidden, output, rows, cols);
+            TensorOps.sigmoid(output, output, 0, rows);
+        }
+        
+        /**
+         * Обновляет веса: строка j получает rate * delta[j] * hidden
+         */
+        void update(double[] hidden, double[] delta, double rate) {
+            TensorOps.addOuter(rate, delta, hidden, 0, weights, rows, cols);
+            TensorOps.axpy(rate, delta, biases, rows);
+        }
+        
+        /**
+         * Создает независимую копию слоя
+         * 
+         * @return копия слоя
+         */
+        public OutputHead copy() {
+            OutputHead copy = new OutputHead(weights.clone(), biases.clone(), rows, cols);
+            copy.lastError = lastError;
+            copy.adaptations = adaptations;
+            return copy;
+        }
+        
+        void recordAdaptation(double error) {
+            lastError = error;
+            adaptations++;
+        }
+
+        /**
+         * Создает пустой слой для загрузки сохраненных весов
+         */
+        static OutputHead create(int rows, int cols) {
+            return new OutputHead(new double[rows * cols], new double[rows], rows, cols);
+        }
+
+        void restoreState(double error, long adaptationCount) {
+            lastError = error;
+            adaptations = adaptationCount;
+        }
+
+        double[] getWeights() {
+            return weights;
+        }
+
+        double[] getBiases() {
+            return biases;
+        }
+
+        int getRows() {
+            return rows;
+        }
+
+        int getCols() {
+            return cols;
+        }
+        
+        /**
+         * Возвращает ошибку последней адаптации
+         * 
+         * @return ошибка
+         */
+        public double getLastError() {
+            return lastError;
+        }
+        
+        /**
+         * Возвращает количество адаптаций слоя
+         * 
+         * @return количество адаптаций
+         */
+        public long getAdaptations() {
+            return adaptations;
+        }
+        
+        /**
+         * Возвращает объем памяти, занимаемый параметрами слоя
+         * 
+         * @return размер в байтах
+         */
+        public long getParameterBytes() {
+            return (long) (weights.length + biases.length) * Double.BYTES;
+        }
+    }
 }
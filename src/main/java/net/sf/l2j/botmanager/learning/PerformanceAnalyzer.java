@@ -2,9 +2,13 @@ package net.sf.l2j.botmanager.learning;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.stream.Collectors;
 
+import net.sf.l2j.botmanager.actions.ActionType;
+import net.sf.l2j.botmanager.behaviors.BehaviorType;
+import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
+
 /**
  * Анализатор производительности ботов.
  * 
@@ -21,6 +25,15 @@ import java.util.stream.Collectors;
  *   <li>Трендовый анализ производительности</li>
  * </ul>
  * 
+ * <p>Анализатор подписан на {@link FeedbackCollector} и по каждому пакету
+ * обратной связи инкрементально обновляет скользящие окна бота (1 мин,
+ * 15 мин, 1 ч) и его позицию в упорядоченном рейтинге. Поэтому запросы
+ * лучших и отстающих ботов стоят O(K) вместо сортировки всех результатов,
+ * а полный пересчет для отчетов выполняется параллельно.</p>
+ * 
+ * <p>Долгая история метрик хранится в сжатом {@link TimeSeriesStore} и
+ * используется трендовым анализом за несколько дней.</p>
+ * 
  * @author ni-okr
  * @version 1.0
  * @since 2025-09-26
@@ -48,6 +61,38 @@ public class PerformanceAnalyzer {
     /** Порог для определения значимых изменений (в процентах) */
     private static final double SIGNIFICANCE_THRESHOLD = 5.0;
     
+    /** Скользящие окна ботов в порядке {@link Window} */
+    private final Map<Integer, RollingWindow[]> botWindows = new ConcurrentHashMap<>();
+    
+    /** Текущие позиции ботов в рейтинге */
+    private final Map<Integer, RankEntry> rankEntries = new ConcurrentHashMap<>();
+    
+    /** Рейтинг ботов по общему баллу (по возрастанию) */
+    private final ConcurrentSkipListSet<RankEntry> ranking = new ConcurrentSkipListSet<>();
+    
+    /** История метрик ботов */
+    private final TimeSeriesStore history = new TimeSeriesStore();
+    
+    /** Рейтинг заполнен полным пересчетом */
+    private volatile boolean rankingSeeded = false;
+    
+    /**
+     * Скользящие окна производительности.
+     */
+    public enum Window {
+        MINUTE(60L * 1000),
+        QUARTER_HOUR(15L * 60 * 1000),
+        HOUR(60L * 60 * 1000);
+        
+        private final long millis;
+        
+        Window(long millis) {
+            this.millis = millis;
+        }
+        
+        public long getMillis() { return millis; }
+    }
+    
     /**
      * Приватный конструктор для Singleton паттерна.
      * 
@@ -55,6 +100,9 @@ public class PerformanceAnalyzer {
      */
     private PerformanceAnalyzer(FeedbackCollector feedbackCollector) {
         this.feedbackCollector = feedbackCollector;
+        if (feedbackCollector != null) {
+            feedbackCollector.addListener(new WindowUpdater());
+        }
     }
     
     /**
@@ -121,16 +169,34 @@ public class PerformanceAnalyzer {
      * @return карта результатов анализа по идентификаторам ботов
      */
     public Map<Integer, AnalysisResult> analyzeAllBotsPerformance() {
-        Map<Integer, AnalysisResult> results = new HashMap<>();
+        // Полный пересчет выполняется параллельно и обновляет рейтинг
+        Map<Integer, AnalysisResult> results = feedbackCollector.getAllBotIds().parallelStream()
+                .collect(Collectors.toConcurrentMap(botId -> botId, this::recomputeBotPerformance));
         
-        // Получаем список всех ботов
-        Set<Integer> botIds = feedbackCollector.getAllBotIds();
+        rankingSeeded = true;
+        return results;
+    }
+    
+    /**
+     * Пересчитать анализ бота без учета кэша и обновить его позицию в рейтинге.
+     * 
+     * @param botId идентификатор бота
+     * @return результат анализа
+     */
+    private AnalysisResult recomputeBotPerformance(int botId) {
+        ActionFeedback actionFeedback = feedbackCollector.getActionFeedback(botId);
+        BehaviorFeedback behaviorFeedback = feedbackCollector.getBehaviorFeedback(botId);
         
-        for (Integer botId : botIds) {
-            results.put(botId, analyzeBotPerformance(botId));
+        if (actionFeedback == null && behaviorFeedback == null) {
+            updateRanking(botId);
+            return new AnalysisResult(botId, "Недостаточно данных для анализа");
         }
         
-        return results;
+        AnalysisResult result = performAnalysis(botId, actionFeedback, behaviorFeedback);
+        analysisCache.put("bot_" + botId, result);
+        lastCacheUpdate = System.currentTimeMillis();
+        updateRanking(botId, result.getOverallScore());
+        return result;
     }
     
     /**
@@ -154,14 +220,21 @@ public class PerformanceAnalyzer {
      * @return список лучших ботов
      */
     public List<BotPerformanceRanking> getTopPerformers(int limit) {
-        Map<Integer, AnalysisResult> allResults = analyzeAllBotsPerformance();
-        
-        return allResults.values().stream()
-                .filter(result -> result.getOverallScore() > 0)
-                .sorted((r1, r2) -> Double.compare(r2.getOverallScore(), r1.getOverallScore()))
-                .limit(limit)
-                .map(result -> new BotPerformanceRanking(result.getBotId(), result.getOverallScore(), result.getSummary()))
-                .collect(Collectors.toList());
+        ensureRankingSeeded();
+        List<BotPerformanceRanking> top = new ArrayList<>(Math.max(0, Math.min(limit, rankEntries.size())));
+        
+        Iterator<RankEntry> iterator = ranking.descendingIterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            RankEntry entry = iterator.next();
+            if (entry.score <= 0) {
+                break;
+            }
+            BotPerformanceRanking performance = toRanking(entry);
+            if (performance != null) {
+                top.add(performance);
+            }
+        }
+        return top;
     }
     
     /**
@@ -171,13 +244,58 @@ public class PerformanceAnalyzer {
      * @return список ботов, требующих улучшения
      */
     public List<BotPerformanceRanking> getBotsNeedingImprovement(double threshold) {
-        Map<Integer, AnalysisResult> allResults = analyzeAllBotsPerformance();
+        ensureRankingSeeded();
+        List<BotPerformanceRanking> bottom = new ArrayList<>();
         
-        return allResults.values().stream()
-                .filter(result -> result.getOverallScore() < threshold)
-                .sorted((r1, r2) -> Double.compare(r1.getOverallScore(), r2.getOverallScore()))
-                .map(result -> new BotPerformanceRanking(result.getBotId(), result.getOverallScore(), result.getSummary()))
-                .collect(Collectors.toList());
+        for (RankEntry entry : ranking) {
+            if (entry.score >= threshold) {
+                break;
+            }
+            BotPerformanceRanking performance = toRanking(entry);
+            if (performance != null) {
+                bottom.add(performance);
+            }
+        }
+        return bottom;
+    }
+    
+    /**
+     * Найти отстающих ботов.
+     * 
+     * @param limit максимальное количество ботов
+     * @return список ботов с наименьшим баллом, начиная с худшего
+     */
+    public List<BotPerformanceRanking> getBottomPerformers(int limit) {
+        ensureRankingSeeded();
+        List<BotPerformanceRanking> bottom = new ArrayList<>(Math.max(0, Math.min(limit, rankEntries.size())));
+        
+        Iterator<RankEntry> iterator = ranking.iterator();
+        while (bottom.size() < limit && iterator.hasNext()) {
+            BotPerformanceRanking performance = toRanking(iterator.next());
+            if (performance != null) {
+                bottom.add(performance);
+            }
+        }
+        return bottom;
+    }
+    
+    /**
+     * Получить итоги скользящего окна бота.
+     * 
+     * @param botId идентификатор бота
+     * @param window окно
+     * @return итоги окна (пустые, если данных нет)
+     */
+    public WindowStats getWindowStats(int botId, Window window) {
+        return getWindowStats(botId, window, System.currentTimeMillis());
+    }
+    
+    WindowStats getWindowStats(int botId, Window window, long timeMillis) {
+        RollingWindow[] windows = botWindows.get(botId);
+        if (windows == null) {
+            return new WindowStats(window.getMillis(), 0, 0, 0, 0);
+        }
+        return windows[window.ordinal()].snapshot(timeMillis);
     }
     
     /**
@@ -188,8 +306,65 @@ public class PerformanceAnalyzer {
      * @return результат трендового анализа
      */
     public TrendAnalysis analyzePerformanceTrends(int botId, int days) {
-        // TODO: Реализовать трендовый анализ на основе исторических данных
-        return new TrendAnalysis(botId, days, "Трендовый анализ не реализован");
+        return analyzePerformanceTrends(botId, days, System.currentTimeMillis());
+    }
+    
+    TrendAnalysis analyzePerformanceTrends(int botId, int days, long timeMillis) {
+        TimeSeriesStore.Range hourly = history.query(botId, TimeSeriesStore.Metric.SUCCESS_RATE,
+                TimeSeriesStore.Resolution.HOUR, timeMillis - Math.max(1, days) * 24L * 60 * 60 * 1000 + 1, timeMillis);
+        
+        // Свежие скользящие окна
+        WindowStats minute = getWindowStats(botId, Window.MINUTE, timeMillis);
+        WindowStats quarter = getWindowStats(botId, Window.QUARTER_HOUR, timeMillis);
+        WindowStats hour = getWindowStats(botId, Window.HOUR, timeMillis);
+        
+        // Изменение последних 15 минут относительно часа, в процентных пунктах
+        double change;
+        if (hour.getSamples() >= MIN_DATA_POINTS) {
+            change = (quarter.getScore() - hour.getScore()) * 100.0;
+        } else {
+            // Свежих данных мало - сравниваем последний час истории со всем периодом
+            double period = hourly.getMean();
+            double latest = latestValue(hourly);
+            if (Double.isNaN(period) || Double.isNaN(latest)) {
+                return new TrendAnalysis(botId, days, "Недостаточно данных для трендового анализа", 0.0, hourly);
+            }
+            change = (latest - period) * 100.0;
+        }
+        String direction;
+        if (change > SIGNIFICANCE_THRESHOLD) {
+            direction = "улучшение";
+        } else if (change < -SIGNIFICANCE_THRESHOLD) {
+            direction = "ухудшение";
+        } else {
+            direction = "стабильно";
+        }
+        
+        String analysis = String.format("Тренд: %s (1 мин: %.1f%%, 15 мин: %.1f%%, 1 ч: %.1f%%, за %d дн.: %.1f%%)",
+                direction, minute.getScore() * 100.0, quarter.getScore() * 100.0, hour.getScore() * 100.0,
+                Math.max(1, days), hourly.getMean() * 100.0);
+        return new TrendAnalysis(botId, days, analysis, change, hourly);
+    }
+    
+    /**
+     * Последнее известное значение ряда.
+     */
+    private static double latestValue(TimeSeriesStore.Range range) {
+        for (int i = range.size() - 1; i >= 0; i--) {
+            if (!Double.isNaN(range.getValue(i))) {
+                return range.getValue(i);
+            }
+        }
+        return Double.NaN;
+    }
+    
+    /**
+     * Получить хранилище истории метрик (для отчетов и панели управления).
+     * 
+     * @return история метрик
+     */
+    public TimeSeriesStore getHistory() {
+        return history;
     }
     
     /**
@@ -229,6 +404,38 @@ public class PerformanceAnalyzer {
         lastCacheUpdate = 0;
     }
     
+    /**
+     * Удалить скользящие окна, историю метрик, позицию в рейтинге и кэш
+     * анализа бота.
+     * 
+     * Вызывается при удалении бота
+     * ({@link MachineLearningEngine#unregisterBot(int)}), чтобы данные
+     * ушедших ботов не накапливались.
+     * 
+     * @param botId идентификатор бота
+     */
+    public synchronized void removeBot(int botId) {
+        botWindows.remove(botId);
+        history.removeBot(botId);
+        RankEntry previous = rankEntries.remove(botId);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        analysisCache.remove("bot_" + botId);
+    }
+    
+    /**
+     * Сбросить кэш, скользящие окна и рейтинг.
+     */
+    public synchronized void reset() {
+        clearCache();
+        botWindows.clear();
+        history.clear();
+        rankEntries.clear();
+        ranking.clear();
+        rankingSeeded = false;
+    }
+    
     /**
      * Получить статистику анализатора.
      * 
@@ -238,6 +445,9 @@ public class PerformanceAnalyzer {
         StringBuilder stats = new StringBuilder();
         stats.append("=== Performance Analyzer Statistics ===\n");
         stats.append("Cached Results: ").append(analysisCache.size()).append("\n");
+        stats.append("Tracked Windows: ").append(botWindows.size()).append("\n");
+        stats.append("Ranked Bots: ").append(rankEntries.size()).append("\n");
+        stats.append("History: ").append(history.getStats()).append("\n");
         stats.append("Last Cache Update: ").append(new Date(lastCacheUpdate)).append("\n");
         stats.append("Cache TTL: ").append(CACHE_TTL / 1000).append(" seconds\n");
         stats.append("Min Data Points: ").append(MIN_DATA_POINTS).append("\n");
@@ -274,15 +484,209 @@ public class PerformanceAnalyzer {
         }
         
         // Общий балл
+        overallScore = overallScore(actionFeedback, behaviorFeedback);
+        
+        return new AnalysisResult(botId, actionScore, behaviorScore, overallScore, summary);
+    }
+    
+    /**
+     * Вычислить общий балл бота: среднее успешности действий и поведений.
+     * 
+     * @param actionFeedback данные по действиям
+     * @param behaviorFeedback данные по поведениям
+     * @return балл от 0.0 до 1.0
+     */
+    private static double overallScore(ActionFeedback actionFeedback, BehaviorFeedback behaviorFeedback) {
+        double actionScore = actionFeedback != null ? actionFeedback.getSuccessRate() / 100.0 : 0.0;
+        double behaviorScore = behaviorFeedback != null ? behaviorFeedback.getSuccessRate() / 100.0 : 0.0;
+        
         if (actionFeedback != null && behaviorFeedback != null) {
-            overallScore = (actionScore + behaviorScore) / 2.0;
+            return (actionScore + behaviorScore) / 2.0;
         } else if (actionFeedback != null) {
-            overallScore = actionScore;
+            return actionScore;
         } else if (behaviorFeedback != null) {
-            overallScore = behaviorScore;
+            return behaviorScore;
         }
+        return 0.0;
+    }
+    
+    // ==================== РЕЙТИНГ ====================
+    
+    /**
+     * Заполнить рейтинг полным пересчетом, если он еще не заполнен.
+     */
+    private void ensureRankingSeeded() {
+        if (!rankingSeeded) {
+            analyzeAllBotsPerformance();
+        }
+    }
+    
+    /**
+     * Обновить позицию бота по текущим данным коллектора.
+     * 
+     * @param botId идентификатор бота
+     */
+    private void updateRanking(int botId) {
+        ActionFeedback actionFeedback = feedbackCollector.getActionFeedback(botId);
+        BehaviorFeedback behaviorFeedback = feedbackCollector.getBehaviorFeedback(botId);
         
-        return new AnalysisResult(botId, actionScore, behaviorScore, overallScore, summary);
+        if (actionFeedback == null && behaviorFeedback == null) {
+            synchronized (this) {
+                RankEntry previous = rankEntries.remove(botId);
+                if (previous != null) {
+                    ranking.remove(previous);
+                }
+            }
+            return;
+        }
+        updateRanking(botId, overallScore(actionFeedback, behaviorFeedback));
+    }
+    
+    /**
+     * Обновить позицию бота в рейтинге за O(log N).
+     * 
+     * @param botId идентификатор бота
+     * @param score общий балл
+     */
+    private synchronized void updateRanking(int botId, double score) {
+        RankEntry entry = new RankEntry(botId, score);
+        RankEntry previous = rankEntries.put(botId, entry);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        ranking.add(entry);
+    }
+    
+    /**
+     * Построить запись рейтинга по актуальным данным бота.
+     * 
+     * @param entry позиция в рейтинге
+     * @return запись рейтинга или null, если данные бота сброшены
+     */
+    private BotPerformanceRanking toRanking(RankEntry entry) {
+        ActionFeedback actionFeedback = feedbackCollector.getActionFeedback(entry.botId);
+        BehaviorFeedback behaviorFeedback = feedbackCollector.getBehaviorFeedback(entry.botId);
+        
+        if (actionFeedback == null && behaviorFeedback == null) {
+            // Данные бота сброшены в коллекторе - убираем устаревшую позицию
+            synchronized (this) {
+                if (rankEntries.remove(entry.botId, entry)) {
+                    ranking.remove(entry);
+                }
+            }
+            return null;
+        }
+        AnalysisResult result = performAnalysis(entry.botId, actionFeedback, behaviorFeedback);
+        return new BotPerformanceRanking(entry.botId, entry.score, result.getSummary());
+    }
+    
+    /**
+     * Учесть результат в скользящих окнах бота.
+     */
+    void recordOutcome(int botId, boolean action, boolean success, long timeMillis) {
+        RollingWindow[] windows = botWindows.computeIfAbsent(botId, id -> {
+            Window[] values = Window.values();
+            RollingWindow[] created = new RollingWindow[values.length];
+            for (int i = 0; i < values.length; i++) {
+                created[i] = new RollingWindow(values[i].getMillis());
+            }
+            return created;
+        });
+        for (RollingWindow window : windows) {
+            window.record(action, success, timeMillis);
+        }
+    }
+    
+    /**
+     * Учесть пакет обратной связи: окна по каждой записи, рейтинг - один раз на бота.
+     * 
+     * Записи доставляются асинхронно, поэтому часть из них может прийти
+     * после удаления бота. Такие записи отбрасываются: коллектор удаляет
+     * статистику бота раньше анализатора, а пакет обрабатывается под тем же
+     * монитором, что и {@link #removeBot(int)}, так что окна и история
+     * удаленного бота не создаются заново.
+     */
+    private synchronized void onFeedbackBatch(List<FeedbackRecord> records, boolean action) {
+        long now = System.currentTimeMillis();
+        Set<Integer> changed = new HashSet<>();
+        for (FeedbackRecord record : records) {
+            EnhancedFakePlayer bot = record.getBot();
+            if (bot == null || !feedbackCollector.hasBot(bot.getBotId())) {
+                continue;
+            }
+            recordOutcome(bot.getBotId(), action, record.isSuccess(), now);
+            history.record(bot.getBotId(), TimeSeriesStore.Metric.SUCCESS_RATE, record.isSuccess() ? 1.0 : 0.0, now);
+            changed.add(bot.getBotId());
+        }
+        for (Integer botId : changed) {
+            updateRanking(botId);
+        }
+    }
+    
+    /**
+     * Слушатель обратной связи, обновляющий окна и рейтинг.
+     */
+    private final class WindowUpdater implements IFeedbackListener {
+        @Override
+        public void onActionFeedback(EnhancedFakePlayer bot, ActionType actionType, boolean success,
+                                     long executionTime, String details) {
+            onActionFeedbackBatch(Collections.singletonList(
+                FeedbackRecord.action(bot, actionType, success, executionTime, details)));
+        }
+        
+        @Override
+        public void onBehaviorFeedback(EnhancedFakePlayer bot, BehaviorType behaviorType, boolean success,
+                                       long executionTime, int actionsPerformed, String details) {
+            onBehaviorFeedbackBatch(Collections.singletonList(
+                FeedbackRecord.behavior(bot, behaviorType, success, executionTime, actionsPerformed, details)));
+        }
+        
+        @Override
+        public void onLearningEvent(EnhancedFakePlayer bot, LearningEvent event) {
+            // События обучения не влияют на окна
+        }
+        
+        @Override
+        public void onActionFeedbackBatch(List<FeedbackRecord> records) {
+            onFeedbackBatch(records, true);
+        }
+        
+        @Override
+        public void onBehaviorFeedbackBatch(List<FeedbackRecord> records) {
+            onFeedbackBatch(records, false);
+        }
+    }
+    
+    /**
+     * Позиция бота в рейтинге: упорядочена по баллу, затем по идентификатору.
+     */
+    private static final class RankEntry implements Comparable<RankEntry> {
+        private final int botId;
+        private final double score;
+        
+        RankEntry(int botId, double score) {
+            this.botId = botId;
+            this.score = score;
+        }
+        
+        @Override
+        public int compareTo(RankEntry other) {
+            int result = Double.compare(score, other.score);
+            return result != 0 ? result : Integer.compare(botId, other.botId);
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof RankEntry)) return false;
+            RankEntry other = (RankEntry) obj;
+            return botId == other.botId && Double.compare(score, other.score) == 0;
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * botId + Double.hashCode(score);
+        }
     }
     
     /**
@@ -391,15 +795,82 @@ public class PerformanceAnalyzer {
         private final int botId;
         private final int days;
         private final String analysis;
+        private final double change;
+        private final TimeSeriesStore.Range history;
         
         public TrendAnalysis(int botId, int days, String analysis) {
+            this(botId, days, analysis, 0.0, null);
+        }
+        
+        public TrendAnalysis(int botId, int days, String analysis, double change, TimeSeriesStore.Range history) {
             this.botId = botId;
             this.days = days;
             this.analysis = analysis;
+            this.change = change;
+            this.history = history;
         }
         
         public int getBotId() { return botId; }
         public int getDays() { return days; }
         public String getAnalysis() { return analysis; }
+        
+        /**
+         * Изменение балла за последние 15 минут относительно часа (в процентных пунктах).
+         */
+        public double getChange() { return change; }
+        
+        /**
+         * Почасовая успешность за период анализа (может быть null).
+         */
+        public TimeSeriesStore.Range getHistory() { return history; }
+    }
+    
+    /**
+     * Итоги скользящего окна бота.
+     */
+    public static class WindowStats {
+        private final long windowMillis;
+        private final long actions;
+        private final long successfulActions;
+        private final long behaviors;
+        private final long successfulBehaviors;
+        
+        public WindowStats(long windowMillis, long actions, long successfulActions,
+                           long behaviors, long successfulBehaviors) {
+            this.windowMillis = windowMillis;
+            this.actions = actions;
+            this.successfulActions = successfulActions;
+            this.behaviors = behaviors;
+            this.successfulBehaviors = successfulBehaviors;
+        }
+        
+        public long getWindowMillis() { return windowMillis; }
+        public long getActions() { return actions; }
+        public long getSuccessfulActions() { return successfulActions; }
+        public long getBehaviors() { return behaviors; }
+        public long getSuccessfulBehaviors() { return successfulBehaviors; }
+        public long getSamples() { return actions + behaviors; }
+        
+        public double getActionSuccessRate() {
+            return actions == 0 ? 0.0 : (double) successfulActions / actions * 100.0;
+        }
+        
+        public double getBehaviorSuccessRate() {
+            return behaviors == 0 ? 0.0 : (double) successfulBehaviors / behaviors * 100.0;
+        }
+        
+        /**
+         * Балл окна по той же формуле, что и общий балл бота (0.0 - 1.0).
+         */
+        public double getScore() {
+            if (actions > 0 && behaviors > 0) {
+                return (getActionSuccessRate() + getBehaviorSuccessRate()) / 200.0;
+            } else if (actions > 0) {
+                return getActionSuccessRate() / 100.0;
+            } else if (behaviors > 0) {
+                return getBehaviorSuccessRate() / 100.0;
+            }
+            return 0.0;
+        }
     }
 }
@@ -0,0 +1,40 @@
+package net.sf.l2j.botmanager.learning;
+
+/**
+ * Точность хранения весов модели
+ *
+ * Выбирается при создании модели. В режиме {@link #FLOAT32} веса и их
+ * градиенты хранятся в массивах {@code float[]}, что вдвое уменьшает
+ * память модели и объем данных, читаемых при каждом прямом проходе.
+ * Активации, смещения и промежуточные суммы остаются в двойной точности.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public enum Precision {
+    FLOAT64("float64", Double.BYTES),
+    FLOAT32("float32", Float.BYTES);
+
+    private final String name;
+    private final int bytesPerWeight;
+
+    Precision(String name, int bytesPerWeight) {
+        this.name = name;
+        this.bytesPerWeight = bytesPerWeight;
+    }
+
+    /**
+     * Возвращает размер одного веса в байтах
+     *
+     * @return размер веса в байтах
+     */
+    public int getBytesPerWeight() {
+        return bytesPerWeight;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
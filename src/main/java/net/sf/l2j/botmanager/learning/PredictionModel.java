@@ -57,6 +57,11 @@ public class PredictionModel {
      */
     private NeuralNetwork network;
     
+    /**
+     * Обработчик данных бота, чья статистика нормализует входы (может быть null)
+     */
+    private volatile LearningDataProcessor dataProcessor;
+    
     /**
      * Количество предсказаний
      */
@@ -116,6 +121,16 @@ public class PredictionModel {
         _log.info("Neural network set for PredictionModel of bot " + botId);
     }
     
+    /**
+     * Устанавливает обработчик данных, по статистике которого
+     * нормализуются входы предсказания
+     * 
+     * @param dataProcessor обработчик данных бота (null - входы без нормализации)
+     */
+    public void setDataProcessor(LearningDataProcessor dataProcessor) {
+        this.dataProcessor = dataProcessor;
+    }
+    
     /**
      * Предсказывает оптимальное действие
      * 
@@ -124,6 +139,18 @@ public class PredictionModel {
      * @return предсказание действия
      */
     public ActionPrediction predict(NeuralNetwork network, PredictionContext context) {
+        return predict(network, null, context);
+    }
+    
+    /**
+     * Предсказывает оптимальное действие с индивидуальным выходным слоем бота
+     * 
+     * @param network нейронная сеть (общая модель)
+     * @param head выходной слой бота или null
+     * @param context контекст для предсказания
+     * @return предсказание действия
+     */
+    public ActionPrediction predict(NeuralNetwork network, NeuralNetwork.OutputHead head, PredictionContext context) {
         if (network == null || context == null) {
             return null;
         }
@@ -133,30 +160,14 @@ public class PredictionModel {
             
             // Подготавливаем входные данные
             double[] inputs = prepareInputs(context);
-            if (inputs == null) {
-                return null;
-            }
             
             // Получаем выходы нейронной сети
-            double[] outputs = network.forward(inputs);
+            double[] outputs = network.forward(inputs, head);
             if (outputs == null) {
                 return null;
             }
             
-            // Интерпретируем выходы сети
-            ActionPrediction prediction = interpretOutputs(outputs, context);
-            
-            // Обновляем статистику
-            if (prediction != null) {
-                updateStatistics(prediction);
-                addToHistory(prediction);
-                lastPredictionTime = System.currentTimeMillis();
-                
-                _log.debug("Prediction made for bot " + botId + 
-                          " in " + (lastPredictionTime - startTime) + "ms");
-            }
-            
-            return prediction;
+            return completePrediction(outputs, context, startTime);
             
         } catch (Exception e) {
             _log.error("Error making prediction for bot " + botId + ": " + e.getMessage(), e);
@@ -164,41 +175,99 @@ public class PredictionModel {
         }
     }
     
+    /**
+     * Завершает предсказание по готовым выходам сети
+     * 
+     * Используется как прямым предсказанием, так и пакетным сервисом
+     * инференса ({@link InferenceService}), который вычисляет выходы сети
+     * для многих ботов одним пакетом.
+     * 
+     * @param outputs выходы сети
+     * @param context контекст предсказания
+     * @param startTime время начала предсказания в миллисекундах
+     * @return предсказание действия или null
+     */
+    ActionPrediction completePrediction(double[] outputs, PredictionContext context, long startTime) {
+        // Интерпретируем выходы сети
+        ActionPrediction prediction = interpretOutputs(outputs, context);
+        
+        // Обновляем статистику
+        if (prediction != null) {
+            updateStatistics(prediction);
+            addToHistory(prediction);
+            lastPredictionTime = System.currentTimeMillis();
+            
+            _log.debug("Prediction made for bot " + botId + 
+                      " in " + (lastPredictionTime - startTime) + "ms");
+        }
+        
+        return prediction;
+    }
+    
     // ==================== ПОДГОТОВКА ДАННЫХ ====================
     
+    /**
+     * Количество входов от каждой группы данных контекста
+     */
+    private static final int BOT_STATE_INPUTS = 7;
+    private static final int ENVIRONMENT_INPUTS = 6;
+    private static final int TARGET_INPUTS = 4;
+    private static final int HISTORICAL_INPUTS = 4;
+    
     /**
      * Подготавливает входные данные для предсказания
      * 
+     * Размер результата вычисляется заранее, и значения записываются
+     * прямо в массив без промежуточного списка.
+     * 
+     * Состояние бота и окружение стандартизируются статистикой
+     * обработчика данных ({@link #setDataProcessor}) так же, как входы
+     * обучения. Данные о целях и исторические данные не имеют
+     * соответствующих групп во входах обучения и передаются как есть.
+     * 
      * @param context контекст предсказания
      * @return входные данные
      */
-    private double[] prepareInputs(PredictionContext context) {
-        List<Double> inputList = new ArrayList<>();
+    double[] prepareInputs(PredictionContext context) {
+        BotStateData botState = context.getBotState();
+        EnvironmentData environmentData = context.getEnvironmentData();
+        TargetData targetData = context.getTargetData();
+        HistoricalData historicalData = context.getHistoricalData();
+        
+        int size = (botState != null ? BOT_STATE_INPUTS : 0)
+            + (environmentData != null ? ENVIRONMENT_INPUTS : 0)
+            + (targetData != null ? TARGET_INPUTS : 0)
+            + (historicalData != null ? HISTORICAL_INPUTS : 0);
+        double[] inputs = new double[size];
+        int offset = 0;
+        LearningDataProcessor processor = dataProcessor;
         
         // Добавляем данные состояния бота
-        if (context.getBotState() != null) {
-            addBotStateInputs(inputList, context.getBotState());
+        if (botState != null) {
+            int start = offset;
+            offset = addBotStateInputs(inputs, offset, botState);
+            if (processor != null) {
+                processor.normalizeGroup(LearningDataProcessor.BOT_STATE_GROUP, inputs, start, BOT_STATE_INPUTS);
+            }
         }
         
         // Добавляем данные окружения
-        if (context.getEnvironmentData() != null) {
-            addEnvironmentInputs(inputList, context.getEnvironmentData());
+        if (environmentData != null) {
+            int start = offset;
+            offset = addEnvironmentInputs(inputs, offset, environmentData);
+            if (processor != null) {
+                processor.normalizeGroup(LearningDataProcessor.ENVIRONMENT_GROUP, inputs, start, ENVIRONMENT_INPUTS);
+            }
         }
         
         // Добавляем данные о целях
-        if (context.getTargetData() != null) {
-            addTargetInputs(inputList, context.getTargetData());
+        if (targetData != null) {
+            offset = addTargetInputs(inputs, offset, targetData);
         }
         
         // Добавляем исторические данные
-        if (context.getHistoricalData() != null) {
-            addHistoricalInputs(inputList, context.getHistoricalData());
-        }
-        
-        // Преобразуем в массив
-        double[] inputs = new double[inputList.size()];
-        for (int i = 0; i < inputList.size(); i++) {
-            inputs[i] = inputList.get(i);
+        if (historicalData != null) {
+            addHistoricalInputs(inputs, offset, historicalData);
         }
         
         return inputs;
@@ -207,58 +276,70 @@ public class PredictionModel {
     /**
      * Добавляет данные состояния бота
      * 
-     * @param inputList список входных данных
+     * @param inputs массив входных данных
+     * @param offset позиция записи
      * @param botState состояние бота
+     * @return следующая позиция записи
      */
-    private void addBotStateInputs(List<Double> inputList, BotStateData botState) {
-        inputList.add(botState.getHealth());
-        inputList.add(botState.getMana());
-        inputList.add((double) botState.getLevel());
-        inputList.add(botState.getExperience());
-        inputList.add(botState.getX());
-        inputList.add(botState.getY());
-        inputList.add(botState.getZ());
+    private int addBotStateInputs(double[] inputs, int offset, BotStateData botState) {
+        inputs[offset++] = botState.getHealth();
+        inputs[offset++] = botState.getMana();
+        inputs[offset++] = botState.getLevel();
+        inputs[offset++] = botState.getExperience();
+        inputs[offset++] = botState.getX();
+        inputs[offset++] = botState.getY();
+        inputs[offset++] = botState.getZ();
+        return offset;
     }
     
     /**
      * Добавляет данные окружения
      * 
-     * @param inputList список входных данных
+     * @param inputs массив входных данных
+     * @param offset позиция записи
      * @param environmentData данные окружения
+     * @return следующая позиция записи
      */
-    private void addEnvironmentInputs(List<Double> inputList, EnvironmentData environmentData) {
-        inputList.add((double) environmentData.getNearbyEnemies());
-        inputList.add((double) environmentData.getNearbyAllies());
-        inputList.add((double) environmentData.getNearbyNpcs());
-        inputList.add(environmentData.getTimeOfDay());
-        inputList.add(environmentData.getWeather());
-        inputList.add(environmentData.getDangerLevel());
+    private int addEnvironmentInputs(double[] inputs, int offset, EnvironmentData environmentData) {
+        inputs[offset++] = environmentData.getNearbyEnemies();
+        inputs[offset++] = environmentData.getNearbyAllies();
+        inputs[offset++] = environmentData.getNearbyNpcs();
+        inputs[offset++] = environmentData.getTimeOfDay();
+        inputs[offset++] = environmentData.getWeather();
+        inputs[offset++] = environmentData.getDangerLevel();
+        return offset;
     }
     
     /**
      * Добавляет данные о целях
      * 
-     * @param inputList список входных данных
+     * @param inputs массив входных данных
+     * @param offset позиция записи
      * @param targetData данные о целях
+     * @return следующая позиция записи
      */
-    private void addTargetInputs(List<Double> inputList, TargetData targetData) {
-        inputList.add((double) targetData.getTargetCount());
-        inputList.add(targetData.getAverageDistance());
-        inputList.add(targetData.getAverageLevel());
-        inputList.add(targetData.getThreatLevel());
+    private int addTargetInputs(double[] inputs, int offset, TargetData targetData) {
+        inputs[offset++] = targetData.getTargetCount();
+        inputs[offset++] = targetData.getAverageDistance();
+        inputs[offset++] = targetData.getAverageLevel();
+        inputs[offset++] = targetData.getThreatLevel();
+        return offset;
     }
     
     /**
      * Добавляет исторические данные
      * 
-     * @param inputList список входных данных
+     * @param inputs массив входных данных
+     * @param offset позиция записи
      * @param historicalData исторические данные
+     * @return следующая позиция записи
      */
-    private void addHistoricalInputs(List<Double> inputList, HistoricalData historicalData) {
-        inputList.add(historicalData.getRecentSuccessRate());
-        inputList.add(historicalData.getAveragePerformance());
-        inputList.add(historicalData.getTrendDirection());
-        inputList.add(historicalData.getVolatility());
+    private int addHistoricalInputs(double[] inputs, int offset, HistoricalData historicalData) {
+        inputs[offset++] = historicalData.getRecentSuccessRate();
+        inputs[offset++] = historicalData.getAveragePerformance();
+        inputs[offset++] = historicalData.getTrendDirection();
+        inputs[offset++] = historicalData.getVolatility();
+        return offset;
     }
     
     // ==================== ИНТЕРПРЕТАЦИЯ ВЫХОДОВ ====================
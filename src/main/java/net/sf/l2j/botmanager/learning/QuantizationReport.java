@@ -0,0 +1,127 @@
+package net.sf.l2j.botmanager.learning;
+
+/**
+ * Отчет о точности квантованной сети относительно исходной
+ *
+ * Сравнивает выходы квантованной в int8 сети ({@link NeuralNetwork#quantize(double[][])})
+ * с выходами исходной сети на одних и тех же входах: максимальное и
+ * среднее абсолютное отклонение выходов и долю примеров, на которых
+ * совпадает выход с наибольшим значением (выбираемое действие).
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class QuantizationReport {
+
+    private final int samples;
+    private final double maxAbsError;
+    private final double meanAbsError;
+    private final double topAgreement;
+    private final long referenceBytes;
+    private final long quantizedBytes;
+
+    /**
+     * Конструктор отчета
+     *
+     * @param samples количество сравненных примеров
+     * @param maxAbsError максимальное абсолютное отклонение выхода
+     * @param meanAbsError среднее абсолютное отклонение выхода
+     * @param topAgreement доля примеров с совпадающим наибольшим выходом
+     * @param referenceBytes объем параметров исходной сети
+     * @param quantizedBytes объем параметров квантованной сети
+     */
+    public QuantizationReport(int samples, double maxAbsError, double meanAbsError, double topAgreement,
+                              long referenceBytes, long quantizedBytes) {
+        this.samples = samples;
+        this.maxAbsError = maxAbsError;
+        this.meanAbsError = meanAbsError;
+        this.topAgreement = topAgreement;
+        this.referenceBytes = referenceBytes;
+        this.quantizedBytes = quantizedBytes;
+    }
+
+    /**
+     * Сравнивает квантованную сеть с исходной
+     *
+     * Входы неподходящего размера пропускаются.
+     *
+     * @param reference исходная сеть
+     * @param quantized квантованная сеть
+     * @param inputs входы для сравнения (может быть null)
+     * @return отчет
+     */
+    public static QuantizationReport compare(NeuralNetwork reference, NeuralNetwork quantized, double[][] inputs) {
+        if (reference.getInputSize() != quantized.getInputSize()
+                || reference.getOutputSize() != quantized.getOutputSize()) {
+            throw new IllegalArgumentException("Networks have different architectures: "
+                + reference.getArchitecture() + " vs " + quantized.getArchitecture());
+        }
+
+        int outputSize = reference.getOutputSize();
+        double[] expected = new double[outputSize];
+        double[] actual = new double[outputSize];
+        int samples = 0;
+        int agreements = 0;
+        double maxError = 0.0;
+        double totalError = 0.0;
+
+        if (inputs != null) {
+            for (double[] input : inputs) {
+                if (!reference.forward(input, expected) || !quantized.forward(input, actual)) {
+                    continue;
+                }
+                for (int j = 0; j < outputSize; j++) {
+                    double error = Math.abs(expected[j] - actual[j]);
+                    maxError = Math.max(maxError, error);
+                    totalError += error;
+                }
+                if (argMax(expected) == argMax(actual)) {
+                    agreements++;
+                }
+                samples++;
+            }
+        }
+
+        return new QuantizationReport(samples, maxError,
+            samples > 0 ? totalError / ((long) samples * outputSize) : 0.0,
+            samples > 0 ? (double) agreements / samples : 1.0,
+            reference.getParameterBytes(), quantized.getParameterBytes());
+    }
+
+    private static int argMax(double[] values) {
+        int best = 0;
+        for (int j = 1; j < values.length; j++) {
+            if (values[j] > values[best]) {
+                best = j;
+            }
+        }
+        return best;
+    }
+
+    // ==================== GETTERS ====================
+
+    public int getSamples() { return samples; }
+    public double getMaxAbsError() { return maxAbsError; }
+    public double getMeanAbsError() { return meanAbsError; }
+    public double getTopAgreement() { return topAgreement; }
+    public long getReferenceBytes() { return referenceBytes; }
+    public long getQuantizedBytes() { return quantizedBytes; }
+
+    /**
+     * Возвращает коэффициент сжатия параметров
+     *
+     * @return отношение объема исходной сети к объему квантованной
+     */
+    public double getCompressionRatio() {
+        return quantizedBytes > 0 ? (double) referenceBytes / quantizedBytes : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QuantizationReport[samples=%d, maxAbsError=%.5f, meanAbsError=%.5f, "
+                + "topAgreement=%.2f%%, bytes=%d->%d (%.1fx)]",
+            samples, maxAbsError, meanAbsError, topAgreement * 100, referenceBytes, quantizedBytes,
+            getCompressionRatio());
+    }
+}
@@ -3,7 +3,10 @@ package net.sf.l2j.botmanager.learning;
 import net.sf.l2j.botmanager.utils.Logger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Recurrent Neural Network (RNN) для обработки временных последовательностей
@@ -42,6 +45,21 @@ public class RecurrentNeuralNetwork {
     /** Скорость обучения */
     private double learningRate;
     
+    /** Количество шагов усеченного BPTT рекуррентных слоев */
+    private int bpttSteps;
+    
+    /** Размер входа, под который инициализированы слои (0 - еще не инициализированы) */
+    private int sequenceInputSize;
+    
+    /** Входные последовательности слоев последнего прямого прохода */
+    private double[][][] layerInputs;
+    
+    /** Количество параллельных частей мини-пакета последовательностей (1 - обучение по одной) */
+    private int trainingShards;
+    
+    /** Пул потоков параллельного обучения (null - общий пул) */
+    private ForkJoinPool trainingPool;
+    
     // ==================== КОНСТАНТЫ ====================
     
     /** Минимальное количество слоев */
@@ -56,6 +74,9 @@ public class RecurrentNeuralNetwork {
     /** Максимальный размер батча */
     private static final int MAX_BATCH_SIZE = 1000;
     
+    /** Максимальное количество параллельных частей мини-пакета */
+    private static final int MAX_TRAINING_SHARDS = 256;
+    
     /** Минимальная скорость обучения */
     private static final double MIN_LEARNING_RATE = 0.0001;
     
@@ -77,6 +98,8 @@ public class RecurrentNeuralNetwork {
         this.trainingEpochs = 100;
         this.batchSize = 32;
         this.learningRate = 0.001;
+        this.bpttSteps = LSTMLayer.DEFAULT_BPTT_STEPS;
+        this.trainingShards = 1;
         
         _log.info("RecurrentNeuralNetwork created for bot " + botId);
     }
@@ -102,6 +125,7 @@ public class RecurrentNeuralNetwork {
         
         try {
             LSTMLayer lstmLayer = new LSTMLayer(hiddenUnits);
+            lstmLayer.setBpttSteps(bpttSteps);
             layers.add(lstmLayer);
             
             _log.info("LSTM layer added to RecurrentNeuralNetwork for bot " + botId + 
@@ -133,6 +157,7 @@ public class RecurrentNeuralNetwork {
         
         try {
             GRULayer gruLayer = new GRULayer(hiddenUnits);
+            gruLayer.setBpttSteps(bpttSteps);
             layers.add(gruLayer);
             
             _log.info("GRU layer added to RecurrentNeuralNetwork for bot " + botId + 
@@ -191,6 +216,7 @@ public class RecurrentNeuralNetwork {
         try {
             // Инициализируем слои
             initializeLayers();
+            sequenceInputSize = 0;
             
             // Активируем сеть
             isActive = true;
@@ -236,27 +262,10 @@ public class RecurrentNeuralNetwork {
         
         try {
             // Инициализируем слои с правильным размером входа при первом вызове
-            if (layers.get(0).getInputSize() == 1) {
-                initializeLayersWithInputSize(inputSequence[0].length);
-            }
-            
-            double[][] currentOutput = inputSequence;
+            ensureInputSize(inputSequence[0].length);
             
-            // Проходим через все слои
-            for (NetworkLayer layer : layers) {
-                if (layer instanceof LSTMLayer) {
-                    // LSTM слой - обрабатываем последовательность
-                    currentOutput = processSequenceWithLSTM((LSTMLayer) layer, currentOutput);
-                } else if (layer instanceof GRULayer) {
-                    // GRU слой - обрабатываем последовательность
-                    currentOutput = processSequenceWithGRU((GRULayer) layer, currentOutput);
-                } else if (layer instanceof DenseLayer) {
-                    // Dense слой - обрабатываем каждый временной шаг
-                    currentOutput = processSequenceWithDense((DenseLayer) layer, currentOutput);
-                }
-            }
-            
-            return currentOutput;
+            layerInputs = new double[layers.size()][][];
+            return propagate(layers, inputSequence, layerInputs);
             
         } catch (Exception e) {
             _log.error("Error in forward propagation for bot " + botId + ": " + e.getMessage());
@@ -289,26 +298,12 @@ public class RecurrentNeuralNetwork {
         }
         
         try {
+            SequenceTrainer batchTrainer = trainingShards > 1 && !layers.isEmpty()
+                ? new SequenceTrainer(inputSequences, targetSequences, batchSize, trainingShards) : null;
+            
             for (int epoch = 0; epoch < epochs; epoch++) {
-                double totalError = 0.0;
-                
-                // Обрабатываем каждую последовательность
-                for (int i = 0; i < inputSequences.length; i++) {
-                    // Прямое распространение
-                    double[][] output = forward(inputSequences[i]);
-                    
-                    if (output != null) {
-                        // Вычисляем ошибку
-                        double error = calculateError(output, targetSequences[i]);
-                        totalError += error;
-                        
-                        // Обратное распространение (упрощенное)
-                        performBackwardPass(inputSequences[i], targetSequences[i]);
-                    }
-                }
-                
-                // Обновляем веса
-                updateWeights();
+                double totalError = batchTrainer != null
+                    ? batchTrainer.trainEpoch() : trainEpochPerSequence(inputSequences, targetSequences);
                 
                 // Логируем прогресс
                 if (epoch % 10 == 0) {
@@ -325,19 +320,128 @@ public class RecurrentNeuralNetwork {
         }
     }
     
+    /**
+     * Выполняет эпоху обучения по одной последовательности
+     * 
+     * @param inputSequences входные последовательности
+     * @param targetSequences целевые последовательности
+     * @return сумма ошибок последовательностей за эпоху
+     */
+    private double trainEpochPerSequence(double[][][] inputSequences, double[][][] targetSequences) {
+        double totalError = 0.0;
+        
+        // Обрабатываем каждую последовательность
+        for (int i = 0; i < inputSequences.length; i++) {
+            // Каждая последовательность начинается с нулевого состояния
+            resetStates();
+            
+            // Прямое распространение
+            double[][] output = forward(inputSequences[i]);
+            
+            if (output != null) {
+                // Вычисляем ошибку
+                double error = calculateError(output, targetSequences[i]);
+                totalError += error;
+                
+                // Обратное распространение во времени и шаг обновления
+                performBackwardPass(layers, layerInputs, output, targetSequences[i]);
+                updateWeights();
+            }
+        }
+        
+        return totalError;
+    }
+    
     /**
      * Сбрасывает состояние всех рекуррентных слоев
      */
     public void resetStates() {
+        resetStates(layers);
+    }
+    
+    /**
+     * Создает состояние потокового инференса для бота
+     * 
+     * @return пустое состояние (слои инициализируются при первом шаге)
+     */
+    public StreamState createStreamState() {
+        return new StreamState(layers.size());
+    }
+    
+    /**
+     * Выполняет один шаг потокового инференса
+     * 
+     * Рекуррентные слои продвигают состояние бота на один шаг без кэша
+     * обратного распространения, поэтому последовательность можно подавать
+     * по одному шагу за тик. Веса слоев общие для всех состояний.
+     * 
+     * @param state состояние бота
+     * @param input вход текущего шага
+     * @return выход сети на шаге (буфер состояния, перезаписывается следующим шагом) или null
+     */
+    public double[] step(StreamState state, double[] input) {
+        if (!isActive) {
+            _log.warn("Cannot perform streaming step: network not active for bot " + botId);
+            return null;
+        }
+        
+        if (state == null || input == null || input.length == 0 || layers.isEmpty()) {
+            return null;
+        }
+        
+        try {
+            ensureInputSize(input.length);
+            if (state.inputSize != sequenceInputSize) {
+                state.bind(layers, sequenceInputSize);
+            }
+            
+            double[] current = input;
+            for (int i = 0; i < layers.size(); i++) {
+                NetworkLayer layer = layers.get(i);
+                if (layer instanceof LSTMLayer) {
+                    ((LSTMLayer) layer).step((LSTMLayer.State) state.layerStates[i], current, state.outputs[i]);
+                    current = state.outputs[i];
+                } else if (layer instanceof GRULayer) {
+                    ((GRULayer) layer).step((GRULayer.State) state.layerStates[i], current, state.outputs[i]);
+                    current = state.outputs[i];
+                } else if (layer instanceof DenseLayer) {
+                    current = layer.forward(current);
+                }
+            }
+            
+            return current;
+            
+        } catch (Exception e) {
+            _log.error("Error in streaming step for bot " + botId + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Устанавливает количество шагов усеченного BPTT для рекуррентных слоев
+     * 
+     * @param steps количество шагов (0 - без ограничения до сброса состояния)
+     */
+    public void setTruncatedBptt(int steps) {
+        this.bpttSteps = Math.max(0, steps);
         for (NetworkLayer layer : layers) {
             if (layer instanceof LSTMLayer) {
-                ((LSTMLayer) layer).resetState();
+                ((LSTMLayer) layer).setBpttSteps(bpttSteps);
             } else if (layer instanceof GRULayer) {
-                ((GRULayer) layer).resetState();
+                ((GRULayer) layer).setBpttSteps(bpttSteps);
             }
         }
     }
     
+    /**
+     * Возвращает количество шагов усеченного BPTT
+     * 
+     * @return количество шагов (0 - без ограничения)
+     */
+    public int getTruncatedBptt() {
+        return bpttSteps;
+    }
+    
     /**
      * Очищает все слои
      */
@@ -349,6 +453,63 @@ public class RecurrentNeuralNetwork {
     
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
+    /**
+     * Сбрасывает состояние рекуррентных слоев списка
+     * 
+     * @param netLayers слои сети или их реплики
+     */
+    private static void resetStates(List<NetworkLayer> netLayers) {
+        for (NetworkLayer layer : netLayers) {
+            if (layer instanceof LSTMLayer) {
+                ((LSTMLayer) layer).resetState();
+            } else if (layer instanceof GRULayer) {
+                ((GRULayer) layer).resetState();
+            }
+        }
+    }
+    
+    /**
+     * Пропускает последовательность через слои
+     * 
+     * @param netLayers слои сети или их реплики
+     * @param inputSequence входная последовательность
+     * @param inputs массив для входных последовательностей слоев
+     * @return выходная последовательность
+     */
+    private double[][] propagate(List<NetworkLayer> netLayers, double[][] inputSequence, double[][][] inputs) {
+        double[][] currentOutput = inputSequence;
+        
+        // Проходим через все слои
+        for (int i = 0; i < netLayers.size(); i++) {
+            NetworkLayer layer = netLayers.get(i);
+            inputs[i] = currentOutput;
+            if (layer instanceof LSTMLayer) {
+                // LSTM слой - обрабатываем последовательность
+                currentOutput = processSequenceWithLSTM((LSTMLayer) layer, currentOutput);
+            } else if (layer instanceof GRULayer) {
+                // GRU слой - обрабатываем последовательность
+                currentOutput = processSequenceWithGRU((GRULayer) layer, currentOutput);
+            } else if (layer instanceof DenseLayer) {
+                // Dense слой - обрабатываем каждый временной шаг
+                currentOutput = processSequenceWithDense((DenseLayer) layer, currentOutput);
+            }
+        }
+        
+        return currentOutput;
+    }
+    
+    /**
+     * Инициализирует слои под размер входа при первом вызове
+     * 
+     * @param inputSize размер входа
+     */
+    private void ensureInputSize(int inputSize) {
+        if (sequenceInputSize == 0) {
+            initializeLayersWithInputSize(inputSize);
+            sequenceInputSize = inputSize;
+        }
+    }
+    
     /**
      * Инициализирует все слои
      */
@@ -482,54 +643,65 @@ public class RecurrentNeuralNetwork {
     }
     
     /**
-     * Выполняет обратное распространение (упрощенное)
+     * Выполняет обратное распространение во времени
      * 
-     * @param inputSequence входная последовательность
+     * Функция потерь - средняя по шагам квадратичная ошибка
+     * L = 1/(2T) * sum ||y_t - target_t||^2. Рекуррентные слои получают
+     * градиенты шагов в обратном порядке и накапливают градиенты весов
+     * в пределах окна усеченного BPTT. Dense слои обрабатывают
+     * последовательность одним пакетом; их градиенты принимаются в
+     * направлении ошибки (target - output), как в {@link DeepNeuralNetwork}.
+     * 
+     * @param netLayers слои сети или их реплики, выполнившие прямой проход
+     * @param layerInputs входные последовательности слоев прямого прохода
+     * @param output выход сети прямого прохода
      * @param targetSequence целевая последовательность
      */
-    private void performBackwardPass(double[][] inputSequence, double[][] targetSequence) {
-        // Упрощенная реализация обратного распространения
-        // В реальной реализации здесь должны быть сложные вычисления градиентов
+    private void performBackwardPass(List<NetworkLayer> netLayers, double[][][] layerInputs,
+                                     double[][] output, double[][] targetSequence) {
+        int steps = output.length;
+        double[][] gradients = new double[steps][];
+        for (int t = 0; t < steps; t++) {
+            gradients[t] = new double[output[t].length];
+            for (int j = 0; j < output[t].length; j++) {
+                gradients[t][j] = (output[t][j] - targetSequence[t][j]) / steps;
+            }
+        }
         
-        for (int i = layers.size() - 1; i >= 0; i--) {
-            NetworkLayer layer = layers.get(i);
+        for (int i = netLayers.size() - 1; i >= 0; i--) {
+            NetworkLayer layer = netLayers.get(i);
+            double[][] inputs = layerInputs[i];
+            double[][] inputGradients = new double[steps][];
             
-            if (layer instanceof LSTMLayer) {
-                // Обработка LSTM слоя
-                LSTMLayer lstmLayer = (LSTMLayer) layer;
-                for (int t = inputSequence.length - 1; t >= 0; t--) {
-                    double[] gradients = new double[lstmLayer.getHiddenUnits()];
-                    // Простые градиенты для демонстрации
-                    for (int j = 0; j < gradients.length; j++) {
-                        gradients[j] = 0.1;
-                    }
-                    lstmLayer.backward(inputSequence[t], gradients);
+            if (layer instanceof LSTMLayer || layer instanceof GRULayer) {
+                for (int t = steps - 1; t >= 0; t--) {
+                    inputGradients[t] = layer.backward(inputs[t], gradients[t]);
                 }
                 
-            } else if (layer instanceof GRULayer) {
-                // Обработка GRU слоя
-                GRULayer gruLayer = (GRULayer) layer;
-                for (int t = inputSequence.length - 1; t >= 0; t--) {
-                    double[] gradients = new double[gruLayer.getHiddenUnits()];
-                    // Простые градиенты для демонстрации
-                    for (int j = 0; j < gradients.length; j++) {
-                        gradients[j] = 0.1;
+            } else if (layer instanceof DenseLayer) {
+                DenseLayer denseLayer = (DenseLayer) layer;
+                int inputSize = denseLayer.getInputSize();
+                int outputSize = denseLayer.getOutputSize();
+                double[] batchInputs = new double[steps * inputSize];
+                double[] batchErrors = new double[steps * outputSize];
+                for (int t = 0; t < steps; t++) {
+                    System.arraycopy(inputs[t], 0, batchInputs, t * inputSize, inputSize);
+                    for (int j = 0; j < outputSize; j++) {
+                        batchErrors[t * outputSize + j] = -gradients[t][j] * steps;
                     }
-                    gruLayer.backward(inputSequence[t], gradients);
                 }
                 
-                } else if (layer instanceof DenseLayer) {
-                    // Обработка Dense слоя
-                    DenseLayer denseLayer = (DenseLayer) layer;
-                    for (int t = inputSequence.length - 1; t >= 0; t--) {
-                        double[] gradients = new double[denseLayer.getOutputSize()];
-                    // Простые градиенты для демонстрации
-                    for (int j = 0; j < gradients.length; j++) {
-                        gradients[j] = 0.1;
+                denseLayer.forwardBatch(batchInputs, steps);
+                double[] batchGradients = denseLayer.backwardBatch(batchInputs, batchErrors, steps);
+                for (int t = 0; t < steps; t++) {
+                    inputGradients[t] = new double[inputSize];
+                    for (int k = 0; k < inputSize; k++) {
+                        inputGradients[t][k] = -batchGradients[t * inputSize + k] / steps;
                     }
-                    denseLayer.backward(inputSequence[t], gradients);
                 }
             }
+            
+            gradients = inputGradients;
         }
     }
     
@@ -542,6 +714,307 @@ public class RecurrentNeuralNetwork {
         }
     }
     
+    // ==================== ПАРАЛЛЕЛЬНОЕ ОБУЧЕНИЕ ====================
+    
+    /**
+     * Создает реплику слоя с общими весами и собственными градиентами
+     * 
+     * @param layer слой сети
+     * @return реплика слоя
+     */
+    private static NetworkLayer createReplica(NetworkLayer layer) {
+        if (layer instanceof LSTMLayer) {
+            return ((LSTMLayer) layer).createReplica();
+        } else if (layer instanceof GRULayer) {
+            return ((GRULayer) layer).createReplica();
+        } else if (layer instanceof DenseLayer) {
+            return ((DenseLayer) layer).createReplica();
+        }
+        throw new IllegalStateException("Layer type does not support parallel training: " + layer.getType());
+    }
+    
+    /**
+     * Обнуляет градиенты слоя
+     * 
+     * @param layer слой или реплика
+     */
+    private static void clearGradients(NetworkLayer layer) {
+        if (layer instanceof LSTMLayer) {
+            ((LSTMLayer) layer).clearGradients();
+        } else if (layer instanceof GRULayer) {
+            ((GRULayer) layer).clearGradients();
+        } else if (layer instanceof DenseLayer) {
+            ((DenseLayer) layer).clearGradients();
+        }
+    }
+    
+    /**
+     * Умножает градиенты слоя на число
+     * 
+     * @param layer слой или реплика
+     * @param alpha множитель
+     */
+    private static void scaleGradients(NetworkLayer layer, double alpha) {
+        if (layer instanceof LSTMLayer) {
+            ((LSTMLayer) layer).scaleGradients(alpha);
+        } else if (layer instanceof GRULayer) {
+            ((GRULayer) layer).scaleGradients(alpha);
+        } else if (layer instanceof DenseLayer) {
+            ((DenseLayer) layer).scaleGradients(alpha);
+        }
+    }
+    
+    /**
+     * Прибавляет градиенты реплики того же слоя
+     * 
+     * @param into слой-приемник
+     * @param from реплика с градиентами
+     */
+    private static void addGradients(NetworkLayer into, NetworkLayer from) {
+        if (into instanceof LSTMLayer) {
+            ((LSTMLayer) into).addGradients((LSTMLayer) from);
+        } else if (into instanceof GRULayer) {
+            ((GRULayer) into).addGradients((GRULayer) from);
+        } else if (into instanceof DenseLayer) {
+            ((DenseLayer) into).addGradients((DenseLayer) from);
+        }
+    }
+    
+    /**
+     * Обучение мини-пакетами последовательностей, разделенными на части
+     * 
+     * Пакет из {@link #getBatchSize()} последовательностей делится на
+     * непрерывные части, которые обрабатываются параллельно в
+     * {@link ForkJoinPool}. Каждая часть работает со своими репликами слоев
+     * (общие веса, собственные состояния, кэши шагов и градиенты) и
+     * накапливает градиенты BPTT своих последовательностей; сумма делится
+     * на размер пакета. Градиенты частей складываются попарным деревом в
+     * фиксированном порядке, после чего слои сети делают один шаг
+     * обновления по среднему градиенту пакета. Порядок суммирования не
+     * зависит от планирования потоков, поэтому результат детерминирован
+     * при заданных начальных весах и количестве частей.
+     * 
+     * Последовательности с неподходящим размером входа или длиной цели
+     * пропускаются.
+     */
+    private final class SequenceTrainer {
+        private final double[][][] inputs;
+        private final double[][][] targets;
+        private final int[] validSequences;
+        private final int batchSize;
+        private final Shard[] shards;
+        private final ForkJoinPool pool;
+        
+        SequenceTrainer(double[][][] inputs, double[][][] targets, int batchSize, int shardCount) {
+            this.inputs = inputs;
+            this.targets = targets;
+            
+            // Реплики создаются по инициализированным слоям
+            for (int i = 0; i < inputs.length && sequenceInputSize == 0; i++) {
+                if (inputs[i] != null && inputs[i].length > 0 && inputs[i][0] != null) {
+                    ensureInputSize(inputs[i][0].length);
+                }
+            }
+            
+            int count = 0;
+            int[] valid = new int[inputs.length];
+            for (int i = 0; i < inputs.length; i++) {
+                if (isValidSequence(inputs[i], targets[i])) {
+                    valid[count++] = i;
+                }
+            }
+            this.validSequences = Arrays.copyOf(valid, count);
+            this.batchSize = Math.max(1, Math.min(batchSize, Math.max(count, 1)));
+            
+            int parts = Math.max(1, Math.min(shardCount, this.batchSize));
+            this.shards = new Shard[parts];
+            for (int s = 0; s < parts; s++) {
+                shards[s] = new Shard();
+            }
+            ForkJoinPool configured = trainingPool;
+            this.pool = configured != null ? configured : ForkJoinPool.commonPool();
+        }
+        
+        /**
+         * Проверяет, что последовательность подходит под размер входа сети
+         * 
+         * @param input входная последовательность
+         * @param target целевая последовательность
+         * @return true, если последовательность можно обучать
+         */
+        private boolean isValidSequence(double[][] input, double[][] target) {
+            if (input == null || target == null || input.length == 0 || input.length != target.length) {
+                return false;
+            }
+            for (double[] step : input) {
+                if (step == null || step.length != sequenceInputSize) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Выполняет эпоху обучения мини-пакетами
+         * 
+         * @return сумма ошибок последовательностей за эпоху
+         */
+        double trainEpoch() {
+            double error = 0.0;
+            
+            for (int start = 0; start < validSequences.length; start += batchSize) {
+                int size = Math.min(batchSize, validSequences.length - start);
+                int parts = Math.min(shards.length, size);
+                
+                if (parts == 1) {
+                    shards[0].run(start, size, 1.0 / size);
+                    error += shards[0].error;
+                } else {
+                    pool.invoke(new ShardTask(start, size, parts, 0, parts));
+                    for (int s = 0; s < parts; s++) {
+                        error += shards[s].error;
+                    }
+                    
+                    // Попарное дерево: на уровне stride часть s получает градиенты части s + stride
+                    for (int stride = 1; stride < parts; stride <<= 1) {
+                        int pairs = (parts - stride + 2 * stride - 1) / (2 * stride);
+                        pool.invoke(new ReduceTask(stride, 0, pairs));
+                    }
+                }
+                
+                // Один шаг обновления на пакет по градиентам части 0
+                for (int l = 0; l < layers.size(); l++) {
+                    NetworkLayer layer = layers.get(l);
+                    clearGradients(layer);
+                    addGradients(layer, shards[0].gradients[l]);
+                    layer.updateWeights(learningRate);
+                }
+            }
+            
+            return error;
+        }
+        
+        /**
+         * Часть пакета со своими репликами слоев
+         */
+        private final class Shard {
+            private final List<NetworkLayer> workLayers;
+            private final NetworkLayer[] gradients;
+            private final double[][][] layerInputs;
+            private double error;
+            
+            Shard() {
+                this.workLayers = new ArrayList<>(layers.size());
+                this.gradients = new NetworkLayer[layers.size()];
+                this.layerInputs = new double[layers.size()][][];
+                for (int l = 0; l < gradients.length; l++) {
+                    NetworkLayer replica = createReplica(layers.get(l));
+                    workLayers.add(replica);
+                    // Dense слой перезаписывает градиенты на каждой последовательности,
+                    // поэтому сумма части копится в отдельной реплике
+                    gradients[l] = replica instanceof DenseLayer ? createReplica(layers.get(l)) : replica;
+                }
+            }
+            
+            /**
+             * Выполняет прямой проход и BPTT по последовательностям части
+             * 
+             * @param first позиция первой последовательности в списке допустимых
+             * @param count количество последовательностей
+             * @param weight множитель суммы градиентов (1 / размер пакета)
+             */
+            void run(int first, int count, double weight) {
+                for (NetworkLayer layer : gradients) {
+                    clearGradients(layer);
+                }
+                
+                double sum = 0.0;
+                for (int r = 0; r < count; r++) {
+                    int index = validSequences[first + r];
+                    resetStates(workLayers);
+                    double[][] output = propagate(workLayers, inputs[index], layerInputs);
+                    sum += calculateError(output, targets[index]);
+                    performBackwardPass(workLayers, layerInputs, output, targets[index]);
+                    for (int l = 0; l < gradients.length; l++) {
+                        if (gradients[l] != workLayers.get(l)) {
+                            addGradients(gradients[l], workLayers.get(l));
+                        }
+                    }
+                }
+                error = sum;
+                
+                for (NetworkLayer layer : gradients) {
+                    scaleGradients(layer, weight);
+                }
+            }
+        }
+        
+        /**
+         * Параллельная обработка частей [lo, hi) пакета
+         */
+        private final class ShardTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            
+            private final int start;
+            private final int size;
+            private final int parts;
+            private final int lo;
+            private final int hi;
+            
+            ShardTask(int start, int size, int parts, int lo, int hi) {
+                this.start = start;
+                this.size = size;
+                this.parts = parts;
+                this.lo = lo;
+                this.hi = hi;
+            }
+            
+            @Override
+            protected void compute() {
+                if (hi - lo == 1) {
+                    int from = (int) ((long) lo * size / parts);
+                    int to = (int) ((long) (lo + 1) * size / parts);
+                    shards[lo].run(start + from, to - from, 1.0 / size);
+                    return;
+                }
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ShardTask(start, size, parts, lo, mid), new ShardTask(start, size, parts, mid, hi));
+            }
+        }
+        
+        /**
+         * Параллельное сложение пар [lo, hi) одного уровня дерева редукции
+         */
+        private final class ReduceTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            
+            private final int stride;
+            private final int lo;
+            private final int hi;
+            
+            ReduceTask(int stride, int lo, int hi) {
+                this.stride = stride;
+                this.lo = lo;
+                this.hi = hi;
+            }
+            
+            @Override
+            protected void compute() {
+                if (hi - lo == 1) {
+                    int target = lo * 2 * stride;
+                    NetworkLayer[] into = shards[target].gradients;
+                    NetworkLayer[] from = shards[target + stride].gradients;
+                    for (int l = 0; l < into.length; l++) {
+                        addGradients(into[l], from[l]);
+                    }
+                    return;
+                }
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ReduceTask(stride, lo, mid), new ReduceTask(stride, mid, hi));
+            }
+        }
+    }
+    
     // ==================== ГЕТТЕРЫ И СЕТТЕРЫ ====================
     
     /**
@@ -562,6 +1035,16 @@ public class RecurrentNeuralNetwork {
         return layers.size();
     }
     
+    /**
+     * Возвращает слой сети по индексу
+     * 
+     * @param index индекс слоя
+     * @return слой
+     */
+    NetworkLayer getLayer(int index) {
+        return layers.get(index);
+    }
+    
     /**
      * Возвращает активна ли сеть
      * 
@@ -611,6 +1094,37 @@ public class RecurrentNeuralNetwork {
         return batchSize;
     }
     
+    /**
+     * Устанавливает количество параллельных частей мини-пакета
+     * 
+     * При значении больше 1 обучение идет мини-пакетами из
+     * {@link #getBatchSize()} последовательностей с одним шагом обновления
+     * на пакет; при 1 веса обновляются после каждой последовательности.
+     * 
+     * @param shards количество частей
+     */
+    public void setTrainingShards(int shards) {
+        this.trainingShards = Math.max(1, Math.min(MAX_TRAINING_SHARDS, shards));
+    }
+    
+    /**
+     * Возвращает количество параллельных частей мини-пакета
+     * 
+     * @return количество частей
+     */
+    public int getTrainingShards() {
+        return trainingShards;
+    }
+    
+    /**
+     * Устанавливает пул потоков параллельного обучения
+     * 
+     * @param pool пул потоков или null для общего пула
+     */
+    public void setTrainingPool(ForkJoinPool pool) {
+        this.trainingPool = pool;
+    }
+    
     /**
      * Возвращает статистику сети
      * 
@@ -624,6 +1138,8 @@ public class RecurrentNeuralNetwork {
         stats.append("Active: ").append(isActive).append("\n");
         stats.append("Learning Rate: ").append(learningRate).append("\n");
         stats.append("Batch Size: ").append(batchSize).append("\n");
+        stats.append("BPTT Steps: ").append(bpttSteps).append("\n");
+        stats.append("Training Shards: ").append(trainingShards).append("\n");
         
         for (int i = 0; i < layers.size(); i++) {
             stats.append("Layer ").append(i).append(": ").append(layers.get(i).getType()).append("\n");
@@ -631,4 +1147,53 @@ public class RecurrentNeuralNetwork {
         
         return stats.toString();
     }
+    
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+    
+    /**
+     * Состояние потокового инференса одного бота
+     * 
+     * Хранит рекуррентные состояния и выходные буферы слоев; создается
+     * через {@link #createStreamState()} и передается в {@link #step(StreamState, double[])}.
+     */
+    public static final class StreamState {
+        private final Object[] layerStates;
+        private final double[][] outputs;
+        private int inputSize;
+        
+        private StreamState(int layerCount) {
+            this.layerStates = new Object[layerCount];
+            this.outputs = new double[layerCount][];
+        }
+        
+        /**
+         * Создает состояния слоев под текущую инициализацию сети
+         */
+        private void bind(List<NetworkLayer> layers, int inputSize) {
+            for (int i = 0; i < layers.size() && i < layerStates.length; i++) {
+                NetworkLayer layer = layers.get(i);
+                if (layer instanceof LSTMLayer) {
+                    layerStates[i] = ((LSTMLayer) layer).createState();
+                    outputs[i] = new double[((LSTMLayer) layer).getHiddenUnits()];
+                } else if (layer instanceof GRULayer) {
+                    layerStates[i] = ((GRULayer) layer).createState();
+                    outputs[i] = new double[((GRULayer) layer).getHiddenUnits()];
+                }
+            }
+            this.inputSize = inputSize;
+        }
+        
+        /**
+         * Сбрасывает рекуррентные состояния (начало новой последовательности)
+         */
+        public void reset() {
+            for (Object layerState : layerStates) {
+                if (layerState instanceof LSTMLayer.State) {
+                    ((LSTMLayer.State) layerState).reset();
+                } else if (layerState instanceof GRULayer.State) {
+                    ((GRULayer.State) layerState).reset();
+                }
+            }
+        }
+    }
 }
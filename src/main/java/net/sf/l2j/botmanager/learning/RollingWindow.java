@@ -0,0 +1,88 @@
+package net.sf.l2j.botmanager.learning;
+
+import java.util.Arrays;
+
+/**
+ * Скользящее окно успешности действий и поведений.
+ *
+ * Окно разбито на кольцо интервалов фиксированной длины. Запись
+ * увеличивает счетчики текущего интервала, а интервал, вышедший за
+ * пределы окна, обнуляется при повторном использовании, поэтому обновление
+ * выполняется за O(1) без хранения отдельных событий.
+ */
+final class RollingWindow {
+
+    /**
+     * Количество интервалов в окне
+     */
+    static final int BUCKETS = 60;
+
+    private final long windowMillis;
+    private final long bucketMillis;
+
+    // Номер интервала (время / длина интервала), которому принадлежит ячейка
+    private final long[] bucketIndexes = new long[BUCKETS];
+    private final int[] actions = new int[BUCKETS];
+    private final int[] successfulActions = new int[BUCKETS];
+    private final int[] behaviors = new int[BUCKETS];
+    private final int[] successfulBehaviors = new int[BUCKETS];
+
+    RollingWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+        this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+        Arrays.fill(bucketIndexes, -1);
+    }
+
+    long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Записать результат действия или поведения.
+     */
+    synchronized void record(boolean action, boolean success, long timeMillis) {
+        long index = timeMillis / bucketMillis;
+        int slot = (int) Math.floorMod(index, (long) BUCKETS);
+        if (bucketIndexes[slot] != index) {
+            if (bucketIndexes[slot] > index) {
+                // Запись старше окна
+                return;
+            }
+            bucketIndexes[slot] = index;
+            actions[slot] = 0;
+            successfulActions[slot] = 0;
+            behaviors[slot] = 0;
+            successfulBehaviors[slot] = 0;
+        }
+        if (action) {
+            actions[slot]++;
+            if (success) successfulActions[slot]++;
+        } else {
+            behaviors[slot]++;
+            if (success) successfulBehaviors[slot]++;
+        }
+    }
+
+    /**
+     * Получить итоги окна на указанный момент.
+     */
+    synchronized PerformanceAnalyzer.WindowStats snapshot(long timeMillis) {
+        long current = timeMillis / bucketMillis;
+        long oldest = current - BUCKETS + 1;
+        long actionCount = 0;
+        long actionSuccesses = 0;
+        long behaviorCount = 0;
+        long behaviorSuccesses = 0;
+        for (int slot = 0; slot < BUCKETS; slot++) {
+            long index = bucketIndexes[slot];
+            if (index >= oldest && index <= current) {
+                actionCount += actions[slot];
+                actionSuccesses += successfulActions[slot];
+                behaviorCount += behaviors[slot];
+                behaviorSuccesses += successfulBehaviors[slot];
+            }
+        }
+        return new PerformanceAnalyzer.WindowStats(windowMillis, actionCount, actionSuccesses,
+            behaviorCount, behaviorSuccesses);
+    }
+}
@@ -9,6 +9,11 @@ import net.sf.l2j.botmanager.utils.Logger;
  * предсказаний базовых моделей. Это более сложный, но часто
  * более эффективный подход по сравнению с простым голосованием.
  * 
+ * Мета-обучателю нужны выходы всех базовых моделей, поэтому каскадный
+ * режим к стэкингу не применяется; параллельное выполнение моделей
+ * ({@link #setParallelExecution(boolean)}) используется и при
+ * предсказании, и при обучении базовых моделей.
+ * 
  * @author ni-okr
  * @version 3.4
  */
@@ -171,10 +176,7 @@ public class StackingEnsemble extends EnsembleModel {
      * @param epochs количество эпох
      */
     private void trainBaseModels(double[][] inputs, double[][] targets, int epochs) {
-        for (int i = 0; i < modelCount; i++) {
-            Object model = models.get(i);
-            trainModel(model, inputs, targets, epochs);
-        }
+        forEachMember(i -> trainModel(models.get(i), inputs, targets, epochs));
     }
     
     /**
@@ -0,0 +1,202 @@
+package net.sf.l2j.botmanager.learning;
+
+/**
+ * Векторизованная реализация вычислительных ядер {@link TensorOps}
+ *
+ * Контракты методов совпадают с одноименными методами {@link TensorOps}.
+ * Реализация выбирается при загрузке {@link TensorOps}; если она
+ * недоступна, используются скалярные циклы самого {@link TensorOps}.
+ * Интерфейс отделяет {@link TensorOps} от классов модуля
+ * {@code jdk.incubator.vector}, чтобы без модуля они не загружались.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+interface TensorKernels {
+
+    /**
+     * Возвращает название реализации
+     *
+     * @return название (для статистики)
+     */
+    String getName();
+
+    // ==================== МАТРИЧНО-ВЕКТОРНЫЕ ОПЕРАЦИИ ====================
+
+    /**
+     * Вычисляет y = W * x + b
+     *
+     * Суммирует по дорожкам вектора, поэтому может отличаться от скалярного
+     * {@link TensorOps#matVec} в пределах ошибки округления.
+     *
+     * @param weights веса [rows * cols], построчно
+     * @param biases смещения [rows]
+     * @param x вход [cols]
+     * @param y выход [rows]
+     * @param rows количество строк (выходов)
+     * @param cols количество столбцов (входов)
+     */
+    void matVec(double[] weights, double[] biases, double[] x, double[] y, int rows, int cols);
+
+    /**
+     * Вычисляет y = W^T * d (градиенты входа)
+     *
+     * @param weights веса [rows * cols], построчно
+     * @param d вектор [rows]
+     * @param y выход [cols], перезаписывается
+     * @param rows количество строк
+     * @param cols количество столбцов
+     */
+    void matTVec(double[] weights, double[] d, double[] y, int rows, int cols);
+
+    /**
+     * Записывает внешнее произведение g = d * x^T
+     *
+     * @param d вектор строк [rows]
+     * @param x вектор столбцов [cols]
+     * @param g результат [rows * cols], перезаписывается
+     * @param rows количество строк
+     * @param cols количество столбцов
+     */
+    void outer(double[] d, double[] x, double[] g, int rows, int cols);
+
+    /**
+     * Накапливает внешнее произведение g += alpha * d * x^T
+     *
+     * @param alpha множитель
+     * @param d вектор строк [rows]
+     * @param x массив, содержащий вектор столбцов [cols] начиная с xOffset
+     * @param xOffset начало вектора столбцов
+     * @param g накапливающая матрица [rows * cols]
+     * @param rows количество строк
+     * @param cols количество столбцов
+     */
+    void addOuter(double alpha, double[] d, double[] x, int xOffset, double[] g, int rows, int cols);
+
+    /**
+     * Выполняет y[yOffset..] += alpha * x[xOffset..]
+     *
+     * @param alpha множитель
+     * @param x вектор
+     * @param xOffset начало отрезка x
+     * @param y накапливающий вектор
+     * @param yOffset начало отрезка y
+     * @param length длина
+     */
+    void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length);
+
+    /**
+     * Умножает первые length элементов вектора на число
+     *
+     * @param alpha множитель
+     * @param x вектор
+     * @param length длина
+     */
+    void scale(double alpha, double[] x, int length);
+
+    // ==================== МАТРИЧНЫЕ ОПЕРАЦИИ (GEMM) ====================
+
+    /**
+     * Вычисляет строки [from, to) произведения C = A * B^T + bias
+     *
+     * Для каждой строки результат совпадает с {@link #matVec} этой же
+     * реализации; от скалярного {@link TensorOps#gemmABt} может отличаться
+     * в пределах ошибки округления.
+     *
+     * @param a матрица [m * k]
+     * @param b матрица [n * k]
+     * @param bias смещения [n]
+     * @param c результат [m * n]
+     * @param from первая строка A
+     * @param to строка A после последней
+     * @param n количество строк B (выходы)
+     * @param k общая размерность (входы)
+     */
+    void gemmABt(double[] a, double[] b, double[] bias, double[] c, int from, int to, int n, int k);
+
+    /**
+     * Вычисляет C = A^T * B по строкам [from, to) матриц A и B
+     *
+     * @param a матрица [m * n]
+     * @param b матрица [m * k]
+     * @param c результат [n * k], перезаписывается
+     * @param from первая строка
+     * @param to строка после последней
+     * @param n количество строк результата
+     * @param k количество столбцов результата
+     */
+    void gemmAtB(double[] a, double[] b, double[] c, int from, int to, int n, int k);
+
+    /**
+     * Вычисляет строки [from, to) произведения C = A * B
+     *
+     * @param a матрица [m * n]
+     * @param b матрица [n * k]
+     * @param c результат [m * k], строки диапазона перезаписываются
+     * @param from первая строка A
+     * @param to строка A после последней
+     * @param n общая размерность
+     * @param k количество столбцов результата
+     */
+    void gemmAB(double[] a, double[] b, double[] c, int from, int to, int n, int k);
+
+    /**
+     * Суммирует строки матрицы
+     *
+     * @param a матрица [m * n]
+     * @param sums результат [n], перезаписывается
+     * @param m количество строк
+     * @param n количество столбцов
+     */
+    void sumRows(double[] a, double[] sums, int m, int n);
+
+    // ==================== ФУНКЦИИ АКТИВАЦИИ ====================
+
+    /**
+     * Применяет сигмоиду к отрезку массива: y[i] = sigmoid(x[i])
+     *
+     * @param x вход
+     * @param y выход (может совпадать с x)
+     * @param offset начало отрезка
+     * @param length длина отрезка
+     */
+    void sigmoid(double[] x, double[] y, int offset, int length);
+
+    /**
+     * Применяет гиперболический тангенс к отрезку массива
+     *
+     * @param x вход
+     * @param y выход (может совпадать с x)
+     * @param offset начало отрезка
+     * @param length длина отрезка
+     */
+    void tanh(double[] x, double[] y, int offset, int length);
+
+    /**
+     * Применяет ReLU к отрезку массива
+     *
+     * @param x вход
+     * @param y выход (может совпадать с x)
+     * @param offset начало отрезка
+     * @param length длина отрезка
+     */
+    void relu(double[] x, double[] y, int offset, int length);
+
+    // ==================== INT8 ====================
+
+    /**
+     * Вычисляет y = scales * (Wq * xq) + b с накоплением в int32
+     *
+     * @param weights квантованные веса [rows * cols], построчно
+     * @param scales множители деквантования строк [rows]
+     * @param biases смещения [rows]
+     * @param x квантованный вход [cols]
+     * @param y выход
+     * @param yOffset начало выхода в y
+     * @param rows количество строк (выходов)
+     * @param cols количество столбцов (входов)
+     */
+    void matVecInt8(byte[] weights, double[] scales, double[] biases, byte[] x,
+                    double[] y, int yOffset, int rows, int cols);
+}
@@ -0,0 +1,1026 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.utils.Logger;
+
+import java.util.Arrays;
+
+/**
+ * Вычислительные ядра для слоев с плоским хранением весов
+ *
+ * Матрица весов хранится в одном массиве {@code double[]} построчно:
+ * строка {@code j} содержит веса всех входов выходного нейрона {@code j},
+ * то есть элемент (j, i) находится по индексу {@code j * cols + i}.
+ * При таком расположении внутренний цикл прямого прохода читает память
+ * последовательно. Строки обрабатываются блоками по {@link #ROW_BLOCK},
+ * чтобы каждый элемент входа загружался один раз на блок.
+ *
+ * Скалярные циклы суммируют в том же порядке, что и наивная реализация
+ * (смещение, затем входы по возрастанию индекса), и дают побитово те же
+ * результаты. Векторные скалярные произведения суммируют по дорожкам
+ * вектора, поэтому точное совпадение гарантируется только на скалярном
+ * пути; с векторными ядрами результаты совпадают в пределах ошибки
+ * округления.
+ *
+ * Пакетные операции (GEMM) работают с матрицами примеров, хранящимися
+ * построчно: строка {@code r} матрицы размера {@code m * k} - пример
+ * {@code r} пакета.
+ *
+ * Для моделей одинарной точности ({@link Precision#FLOAT32}) есть
+ * перегрузки с весами {@code float[]}: веса читаются как float, а
+ * суммирование ведется в double, поэтому вдвое меньший объем памяти не
+ * приводит к накоплению ошибки округления по длине скалярного произведения.
+ *
+ * Ядра двойной точности и поэлементные функции активации выполняются
+ * векторной реализацией {@link TensorKernels}, если JVM запущена с
+ * модулем {@code jdk.incubator.vector}
+ * ({@code --add-modules jdk.incubator.vector}); иначе используются
+ * скалярные циклы этого класса. Векторизацию можно отключить свойством
+ * {@value #VECTOR_PROPERTY}{@code =false}.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+final class TensorOps {
+
+    /**
+     * Количество строк матрицы, обрабатываемых за один проход по входу
+     */
+    static final int ROW_BLOCK = 4;
+
+    /**
+     * Количество строк весов в плитке матричного умножения (плитка
+     * {@code TILE_ROWS * inputSize} значений должна помещаться в кэш L2)
+     */
+    static final int TILE_ROWS = 64;
+
+    /**
+     * Системное свойство, отключающее векторные ядра
+     */
+    static final String VECTOR_PROPERTY = "botmanager.vector";
+
+    private static final Logger _log = Logger.getLogger(TensorOps.class);
+
+    /**
+     * Векторная реализация ядер (null, если модуль Vector API недоступен)
+     */
+    private static final TensorKernels VECTOR_KERNELS = loadVectorKernels();
+
+    /**
+     * Активная векторная реализация (null - скалярные циклы)
+     */
+    private static TensorKernels kernels = VECTOR_KERNELS;
+
+    private TensorOps() {
+    }
+
+    // ==================== ВЫБОР РЕАЛИЗАЦИИ ====================
+
+    /**
+     * Загружает векторную реализацию ядер, если она доступна
+     *
+     * @return реализация или null
+     */
+    private static TensorKernels loadVectorKernels() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))) {
+            return null;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            TensorKernels loaded = (TensorKernels) Class.forName(TensorOps.class.getPackageName() + ".VectorTensorKernels")
+                .getDeclaredConstructor().newInstance();
+            _log.info("TensorOps using " + loaded.getName() + " kernels");
+            return loaded;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            _log.warn("Vector kernels unavailable, using scalar loops: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Проверяет, используются ли векторные ядра
+     *
+     * @return true, если ядра векторизованы
+     */
+    static boolean isVectorized() {
+        return kernels != null;
+    }
+
+    /**
+     * Включает или отключает векторные ядра (для сравнения в тестах и бенчмарках)
+     *
+     * @param enabled true - векторные ядра, если они доступны
+     * @return true, если векторные ядра используются после вызова
+     */
+    static boolean setVectorized(boolean enabled) {
+        kernels = enabled ? VECTOR_KERNELS : null;
+        return kernels != null;
+    }
+
+    /**
+     * Возвращает название используемой реализации ядер
+     *
+     * @return название
+     */
+    static String getKernelName() {
+        TensorKernels active = kernels;
+        return active != null ? active.getName() : "scalar";
+    }
+
+    // ==================== МАТРИЧНО-ВЕКТОРНЫЕ ОПЕРАЦИИ ====================
+
+    /**
+     * Вычисляет y = W * x + b
+     *
+     * @param weights веса [rows * cols], построчно
+     * @param biases смещения [rows]
+     * @param x вход [cols]
+     * @param y выход [rows]
+     * @param rows количество строк (выходов)
+     * @param cols количество столбцов (входов)
+     */
+    static void matVec(double[] weights, double[] biases, double[] x, double[] y, int rows, int cols) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.matVec(weights, biases, x, y, rows, cols);
+            return;
+        }
+        int j = 0;
+        for (; j + ROW_BLOCK <= rows; j += ROW_BLOCK) {
+            int r0 = j * cols;
+            int r1 = r0 + cols;
+            int r2 = r1 + cols;
+            int r3 = r2 + cols;
+            double s0 = biases[j];
+            double s1 = biases[j + 1];
+            double s2 = biases[j + 2];
+            double s3 = biases[j + 3];
+            for (int i = 0; i < cols; i++) {
+                double xi = x[i];
+                s0 += xi * weights[r0 + i];
+                s1 += xi * weights[r1 + i];
+                s2 += xi * weights[r2 + i];
+                s3 += xi * weights[r3 + i];
+            }
+            y[j] = s0;
+            y[j + 1] = s1;
+            y[j + 2] = s2;
+            y[j + 3] = s3;
+        }
+        for (; j < rows; j++) {
+            int r = j * cols;
+            double s = biases[j];
+            for (int i = 0; i < cols; i++) {
+                s += x[i] * weights[r + i];
+            }
+            y[j] = s;
+        }
+    }
+
+    /**
+     * Вычисляет y = W^T * d (градиенты входа)
+     *
+     * @param weights веса [rows * cols], построчно
+     * @param d вектор [rows]
+     * @param y выход [cols], перезаписывается
+     * @param rows количество строк
+     * @param cols количество столбцов
+     */
+    static void matTVec(double[] weights, double[] d, double[] y, int rows, int cols) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.matTVec(weights, d, y, rows, cols);
+            return;
+        }
+        Arrays.fill(y, 0, cols, 0.0);
+        for (int j = 0; j < rows; j++) {
+            double dj = d[j];
+            int r = j * cols;
+            for (int i = 0; i < cols; i++) {
+                y[i] += weights[r + i] * dj;
+            }
+        }
+    }
+
+    /**
+     * Записывает внешнее произведение g = d * x^T
+     *
+     * @param d вектор строк [rows]
+     * @param x вектор столбцов [cols]
+     * @param g результат [rows * cols], перезаписывается
+     * @param rows количество строк
+     * @param cols количество столбцов
+     */
+    static void outer(double[] d, double[] x, double[] g, int rows, int cols) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.outer(d, x, g, rows, cols);
+            return;
+        }
+        for (int j = 0; j < rows; j++) {
+            double dj = d[j];
+            int r = j * cols;
+            for (int i = 0; i < cols; i++) {
+                g[r + i] = x[i] * dj;
+            }
+        }
+    }
+
+    /**
+     * Выполняет y += alpha * x
+     *
+     * @param alpha множитель
+     * @param x вектор
+     * @param y накапливающий вектор
+     * @param length длина
+     */
+    static void axpy(double alpha, double[] x, double[] y, int length) {
+        axpy(alpha, x, 0, y, 0, length);
+    }
+
+    /**
+     * Выполняет y[yOffset..] += alpha * x[xOffset..]
+     *
+     * @param alpha множитель
+     * @param x вектор
+     * @param xOffset начало отрезка x
+     * @param y накапливающий вектор
+     * @param yOffset начало отрезка y
+     * @param length длина
+     */
+    static void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.axpy(alpha, x, xOffset, y, yOffset, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    /**
+     * Накапливает внешнее произведение g += alpha * d * x^T
+     *
+     * @param alpha множитель
+     * @param d вектор строк [rows]
+     * @param x массив, содержащий вектор столбцов [cols] начиная с xOffset
+     * @param xOffset начало вектора столбцов
+     * @param g накапливающая матрица [rows * cols]
+     * @param rows количество строк
+     * @param cols количество столбцов
+     */
+    static void addOuter(double alpha, double[] d, double[] x, int xOffset, double[] g, int rows, int cols) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.addOuter(alpha, d, x, xOffset, g, rows, cols);
+            return;
+        }
+        for (int j = 0; j < rows; j++) {
+            double scaled = alpha * d[j];
+            int r = j * cols;
+            for (int i = 0; i < cols; i++) {
+                g[r + i] += scaled * x[xOffset + i];
+            }
+        }
+    }
+
+    // ==================== МАТРИЧНЫЕ ОПЕРАЦИИ (GEMM) ====================
+
+    /**
+     * Вычисляет C = A * B^T + bias для пакета строк
+     *
+     * Строки A - примеры пакета, строки B - веса нейронов (раскладка слоя).
+     * Строки B обрабатываются плитками по {@link #TILE_ROWS}, чтобы плитка
+     * весов оставалась в кэше, пока через нее проходят все примеры пакета.
+     * На скалярном пути для каждой строки результат совпадает с
+     * {@link #matVec} побитово; с векторными ядрами - в пределах ошибки
+     * округления.
+     *
+     * @param a матрица [m * k]
+     * @param b матрица [n * k]
+     * @param bias смещения [n]
+     * @param c результат [m * n]
+     * @param m количество строк A (размер пакета)
+     * @param n количество строк B (выходы)
+     * @param k общая размерность (входы)
+     */
+    static void gemmABt(double[] a, double[] b, double[] bias, double[] c, int m, int n, int k) {
+        gemmABt(a, b, bias, c, 0, m, n, k);
+    }
+
+    /**
+     * Вычисляет строки [from, to) произведения C = A * B^T + bias
+     *
+     * Позволяет делить матрицу A между параллельными задачами.
+     *
+     * @param a матрица [m * k]
+     * @param b матрица [n * k]
+     * @param bias смещения [n]
+     * @param c результат [m * n]
+     * @param from первая строка A
+     * @param to строка A после последней
+     * @param n количество строк B (выходы)
+     * @param k общая размерность (входы)
+     */
+    static void gemmABt(double[] a, double[] b, double[] bias, double[] c, int from, int to, int n, int k) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.gemmABt(a, b, bias, c, from, to, n, k);
+            return;
+        }
+        for (int j0 = 0; j0 < n; j0 += TILE_ROWS) {
+            int jEnd = Math.min(j0 + TILE_ROWS, n);
+            int r = from;
+            // Блок 2 примера x 4 нейрона: каждый загруженный вес используется дважды
+            for (; r + 2 <= to; r += 2) {
+                int a0 = r * k;
+                int a1 = a0 + k;
+                int c0 = r * n;
+                int c1 = c0 + n;
+                int j = j0;
+                for (; j + ROW_BLOCK <= jEnd; j += ROW_BLOCK) {
+                    int b0 = j * k;
+                    int b1 = b0 + k;
+                    int b2 = b1 + k;
+                    int b3 = b2 + k;
+                    double s00 = bias[j], s01 = bias[j + 1], s02 = bias[j + 2], s03 = bias[j + 3];
+                    double s10 = s00, s11 = s01, s12 = s02, s13 = s03;
+                    for (int i = 0; i < k; i++) {
+                        double x0 = a[a0 + i];
+                        double x1 = a[a1 + i];
+                        double w0 = b[b0 + i];
+                        double w1 = b[b1 + i];
+                        double w2 = b[b2 + i];
+                        double w3 = b[b3 + i];
+                        s00 += x0 * w0;
+                        s01 += x0 * w1;
+                        s02 += x0 * w2;
+                        s03 += x0 * w3;
+                        s10 += x1 * w0;
+                        s11 += x1 * w1;
+                        s12 += x1 * w2;
+                        s13 += x1 * w3;
+                    }
+                    c[c0 + j] = s00;
+                    c[c0 + j + 1] = s01;
+                    c[c0 + j + 2] = s02;
+                    c[c0 + j + 3] = s03;
+                    c[c1 + j] = s10;
+                    c[c1 + j + 1] = s11;
+                    c[c1 + j + 2] = s12;
+                    c[c1 + j + 3] = s13;
+                }
+                for (; j < jEnd; j++) {
+                    int bRow = j * k;
+                    double s0 = bias[j];
+                    double s1 = bias[j];
+                    for (int i = 0; i < k; i++) {
+                        double w = b[bRow + i];
+                        s0 += a[a0 + i] * w;
+                        s1 += a[a1 + i] * w;
+                    }
+                    c[c0 + j] = s0;
+                    c[c1 + j] = s1;
+                }
+            }
+            for (; r < to; r++) {
+                int aRow = r * k;
+                int cRow = r * n;
+                for (int j = j0; j < jEnd; j++) {
+                    int bRow = j * k;
+                    double s = bias[j];
+                    for (int i = 0; i < k; i++) {
+                        s += a[aRow + i] * b[bRow + i];
+                    }
+                    c[cRow + j] = s;
+                }
+            }
+        }
+    }
+
+    /**
+     * Вычисляет C = A^T * B (градиенты весов по пакету)
+     *
+     * @param a матрица [m * n] (ошибки нейронов по примерам)
+     * @param b матрица [m * k] (входы слоя по примерам)
+     * @param c результат [n * k], перезаписывается
+     * @param m размер пакета
+     * @param n количество строк результата (выходы)
+     * @param k количество столбцов результата (входы)
+     */
+    static void gemmAtB(double[] a, double[] b, double[] c, int m, int n, int k) {
+        gemmAtB(a, b, c, 0, m, n, k);
+    }
+
+    /**
+     * Вычисляет C = A^T * B по строкам [from, to) матриц A и B
+     *
+     * Частичные суммы разных диапазонов строк складываются вызывающим кодом.
+     *
+     * @param a матрица [m * n]
+     * @param b матрица [m * k]
+     * @param c результат [n * k], перезаписывается
+     * @param from первая строка
+     * @param to строка после последней
+     * @param n количество строк результата
+     * @param k количество столбцов результата
+     */
+    static void gemmAtB(double[] a, double[] b, double[] c, int from, int to, int n, int k) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.gemmAtB(a, b, c, from, to, n, k);
+            return;
+        }
+        Arrays.fill(c, 0, n * k, 0.0);
+        int j = 0;
+        // Блок из 4 строк результата: каждый загруженный вход используется 4 раза
+        for (; j + ROW_BLOCK <= n; j += ROW_BLOCK) {
+            int c0 = j * k;
+            int c1 = c0 + k;
+            int c2 = c1 + k;
+            int c3 = c2 + k;
+            for (int r = from; r < to; r++) {
+                int aRow = r * n + j;
+                double d0 = a[aRow];
+                double d1 = a[aRow + 1];
+                double d2 = a[aRow + 2];
+                double d3 = a[aRow + 3];
+                int bRow = r * k;
+                for (int i = 0; i < k; i++) {
+                    double x = b[bRow + i];
+                    c[c0 + i] += d0 * x;
+                    c[c1 + i] += d1 * x;
+                    c[c2 + i] += d2 * x;
+                    c[c3 + i] += d3 * x;
+                }
+            }
+        }
+        for (; j < n; j++) {
+            int cRow = j * k;
+            for (int r = from; r < to; r++) {
+                double d = a[r * n + j];
+                int bRow = r * k;
+                for (int i = 0; i < k; i++) {
+                    c[cRow + i] += d * b[bRow + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Вычисляет C = A * B (градиенты входов по пакету)
+     *
+     * @param a матрица [m * n] (ошибки нейронов по примерам)
+     * @param b матрица [n * k] (веса слоя)
+     * @param c результат [m * k], перезаписывается
+     * @param m размер пакета
+     * @param n общая размерность (выходы)
+     * @param k количество столбцов результата (входы)
+     */
+    static void gemmAB(double[] a, double[] b, double[] c, int m, int n, int k) {
+        gemmAB(a, b, c, 0, m, n, k);
+    }
+
+    /**
+     * Вычисляет строки [from, to) произведения C = A * B
+     *
+     * @param a матрица [m * n]
+     * @param b матрица [n * k]
+     * @param c результат [m * k], строки диапазона перезаписываются
+     * @param from первая строка A
+     * @param to строка A после последней
+     * @param n общая размерность
+     * @param k количество столбцов результата
+     */
+    static void gemmAB(double[] a, double[] b, double[] c, int from, int to, int n, int k) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.gemmAB(a, b, c, from, to, n, k);
+            return;
+        }
+        Arrays.fill(c, from * k, to * k, 0.0);
+        for (int j0 = 0; j0 < n; j0 += TILE_ROWS) {
+            int jEnd = Math.min(j0 + TILE_ROWS, n);
+            for (int r = from; r < to; r++) {
+                int aRow = r * n;
+                int cRow = r * k;
+                int j = j0;
+                // Четыре строки весов за проход: строка результата читается и пишется один раз
+                for (; j + ROW_BLOCK <= jEnd; j += ROW_BLOCK) {
+                    double d0 = a[aRow + j];
+                    double d1 = a[aRow + j + 1];
+                    double d2 = a[aRow + j + 2];
+                    double d3 = a[aRow + j + 3];
+                    int b0 = j * k;
+                    int b1 = b0 + k;
+                    int b2 = b1 + k;
+                    int b3 = b2 + k;
+                    for (int i = 0; i < k; i++) {
+                        c[cRow + i] += d0 * b[b0 + i] + d1 * b[b1 + i] + d2 * b[b2 + i] + d3 * b[b3 + i];
+                    }
+                }
+                for (; j < jEnd; j++) {
+                    double d = a[aRow + j];
+                    int bRow = j * k;
+                    for (int i = 0; i < k; i++) {
+                        c[cRow + i] += d * b[bRow + i];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Суммирует строки матрицы
+     *
+     * @param a матрица [m * n]
+     * @param sums результат [n], перезаписывается
+     * @param m количество строк
+     * @param n количество столбцов
+     */
+    static void sumRows(double[] a, double[] sums, int m, int n) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.sumRows(a, sums, m, n);
+            return;
+        }
+        Arrays.fill(sums, 0, n, 0.0);
+        for (int r = 0; r < m; r++) {
+            int row = r * n;
+            for (int j = 0; j < n; j++) {
+                sums[j] += a[row + j];
+            }
+        }
+    }
+
+    /**
+     * Умножает первые length элементов вектора на число
+     *
+     * @param alpha множитель
+     * @param x вектор
+     * @param length длина
+     */
+    static void scale(double alpha, double[] x, int length) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.scale(alpha, x, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            x[i] *= alpha;
+        }
+    }
+
+    // ==================== ФУНКЦИИ АКТИВАЦИИ ====================
+
+    /**
+     * Применяет сигмоиду к отрезку массива: y[i] = sigmoid(x[i])
+     *
+     * @param x вход
+     * @param y выход (может совпадать с x)
+     * @param offset начало отрезка
+     * @param length длина отрезка
+     */
+    static void sigmoid(double[] x, double[] y, int offset, int length) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.sigmoid(x, y, offset, length);
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            y[i] = ActivationFunction.sigmoid(x[i]);
+        }
+    }
+
+    /**
+     * Применяет гиперболический тангенс к отрезку массива
+     *
+     * @param x вход
+     * @param y выход (может совпадать с x)
+     * @param offset начало отрезка
+     * @param length длина отрезка
+     */
+    static void tanh(double[] x, double[] y, int offset, int length) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.tanh(x, y, offset, length);
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            y[i] = ActivationFunction.tanh(x[i]);
+        }
+    }
+
+    /**
+     * Применяет ReLU к отрезку массива
+     *
+     * @param x вход
+     * @param y выход (может совпадать с x)
+     * @param offset начало отрезка
+     * @param length длина отрезка
+     */
+    static void relu(double[] x, double[] y, int offset, int length) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.relu(x, y, offset, length);
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            y[i] = Math.max(0.0, x[i]);
+        }
+    }
+
+    // ==================== ЯДРА ОДИНАРНОЙ ТОЧНОСТИ ====================
+
+    /**
+     * Вычисляет y = W * x + b для весов одинарной точности
+     *
+     * @param weights веса [rows * cols], построчно
+     * @param biases смещения [rows]
+     * @param x вход [cols]
+     * @param y выход [rows]
+     * @param rows количество строк (выходов)
+     * @param cols количество столбцов (входов)
+     */
+    static void matVec(float[] weights, double[] biases, double[] x, double[] y, int rows, int cols) {
+        int j = 0;
+        for (; j + ROW_BLOCK <= rows; j += ROW_BLOCK) {
+            int r0 = j * cols;
+            int r1 = r0 + cols;
+            int r2 = r1 + cols;
+            int r3 = r2 + cols;
+            double s0 = biases[j];
+            double s1 = biases[j + 1];
+            double s2 = biases[j + 2];
+            double s3 = biases[j + 3];
+            for (int i = 0; i < cols; i++) {
+                double xi = x[i];
+                s0 += xi * weights[r0 + i];
+                s1 += xi * weights[r1 + i];
+                s2 += xi * weights[r2 + i];
+                s3 += xi * weights[r3 + i];
+            }
+            y[j] = s0;
+            y[j + 1] = s1;
+            y[j + 2] = s2;
+            y[j + 3] = s3;
+        }
+        for (; j < rows; j++) {
+            int r = j * cols;
+            double s = biases[j];
+            for (int i = 0; i < cols; i++) {
+                s += x[i] * weights[r + i];
+            }
+            y[j] = s;
+        }
+    }
+
+    /**
+     * Вычисляет y = W^T * d для весов одинарной точности
+     *
+     * @param weights веса [rows * cols], построчно
+     * @param d вектор [rows]
+     * @param y выход [cols], перезаписывается
+     * @param rows количество строк
+     * @param cols количество столбцов
+     */
+    static void matTVec(float[] weights, double[] d, double[] y, int rows, int cols) {
+        Arrays.fill(y, 0, cols, 0.0);
+        for (int j = 0; j < rows; j++) {
+            double dj = d[j];
+            int r = j * cols;
+            for (int i = 0; i < cols; i++) {
+                y[i] += weights[r + i] * dj;
+            }
+        }
+    }
+
+    /**
+     * Записывает внешнее произведение g = d * x^T в одинарной точности
+     *
+     * @param d вектор строк [rows]
+     * @param x вектор столбцов [cols]
+     * @param g результат [rows * cols], перезаписывается
+     * @param rows количество строк
+     * @param cols количество столбцов
+     */
+    static void outer(double[] d, double[] x, float[] g, int rows, int cols) {
+        for (int j = 0; j < rows; j++) {
+            double dj = d[j];
+            int r = j * cols;
+            for (int i = 0; i < cols; i++) {
+                g[r + i] = (float) (x[i] * dj);
+            }
+        }
+    }
+
+    /**
+     * Выполняет y += alpha * x в одинарной точности
+     *
+     * @param alpha множитель
+     * @param x вектор
+     * @param y накапливающий вектор
+     * @param length длина
+     */
+    static void axpy(double alpha, float[] x, float[] y, int length) {
+        for (int i = 0; i < length; i++) {
+            y[i] = (float) (y[i] + alpha * x[i]);
+        }
+    }
+
+    /**
+     * Умножает первые length элементов вектора одинарной точности на число
+     *
+     * @param alpha множитель
+     * @param x вектор
+     * @param length длина
+     */
+    static void scale(double alpha, float[] x, int length) {
+        for (int i = 0; i < length; i++) {
+            x[i] = (float) (x[i] * alpha);
+        }
+    }
+
+    /**
+     * Вычисляет C = A * B^T + bias для весов B одинарной точности
+     *
+     * @param a матрица [m * k]
+     * @param b матрица весов [n * k]
+     * @param bias смещения [n]
+     * @param c результат [m * n]
+     * @param m количество строк A (размер пакета)
+     * @param n количество строк B (выходы)
+     * @param k общая размерность (входы)
+     */
+    static void gemmABt(double[] a, float[] b, double[] bias, double[] c, int m, int n, int k) {
+        for (int j0 = 0; j0 < n; j0 += TILE_ROWS) {
+            int jEnd = Math.min(j0 + TILE_ROWS, n);
+            for (int r = 0; r < m; r++) {
+                int aRow = r * k;
+                int cRow = r * n;
+                int j = j0;
+                for (; j + ROW_BLOCK <= jEnd; j += ROW_BLOCK) {
+                    int b0 = j * k;
+                    int b1 = b0 + k;
+                    int b2 = b1 + k;
+                    int b3 = b2 + k;
+                    double s0 = bias[j], s1 = bias[j + 1], s2 = bias[j + 2], s3 = bias[j + 3];
+                    for (int i = 0; i < k; i++) {
+                        double x = a[aRow + i];
+                        s0 += x * b[b0 + i];
+                        s1 += x * b[b1 + i];
+                        s2 += x * b[b2 + i];
+                        s3 += x * b[b3 + i];
+                    }
+                    c[cRow + j] = s0;
+                    c[cRow + j + 1] = s1;
+                    c[cRow + j + 2] = s2;
+                    c[cRow + j + 3] = s3;
+                }
+                for (; j < jEnd; j++) {
+                    int bRow = j * k;
+                    double s = bias[j];
+                    for (int i = 0; i < k; i++) {
+                        s += a[aRow + i] * b[bRow + i];
+                    }
+                    c[cRow + j] = s;
+                }
+            }
+        }
+    }
+
+    /**
+     * Вычисляет C = A^T * B с результатом одинарной точности
+     *
+     * Каждая строка результата накапливается в буфере двойной точности и
+     * округляется до float один раз.
+     *
+     * @param a матрица [m * n] (ошибки нейронов по примерам)
+     * @param b матрица [m * k] (входы слоя по примерам)
+     * @param c результат [n * k], перезаписывается
+     * @param row буфер строки [k]
+     * @param m размер пакета
+     * @param n количество строк результата (выходы)
+     * @param k количество столбцов результата (входы)
+     */
+    static void gemmAtB(double[] a, double[] b, float[] c, double[] row, int m, int n, int k) {
+        for (int j = 0; j < n; j++) {
+            Arrays.fill(row, 0, k, 0.0);
+            for (int r = 0; r < m; r++) {
+                double d = a[r * n + j];
+                int bRow = r * k;
+                for (int i = 0; i < k; i++) {
+                    row[i] += d * b[bRow + i];
+                }
+            }
+            int cRow = j * k;
+            for (int i = 0; i < k; i++) {
+                c[cRow + i] = (float) row[i];
+            }
+        }
+    }
+
+    /**
+     * Вычисляет C = A * B для весов B одинарной точности
+     *
+     * @param a матрица [m * n] (ошибки нейронов по примерам)
+     * @param b матрица весов [n * k]
+     * @param c результат [m * k], перезаписывается
+     * @param m размер пакета
+     * @param n общая размерность (выходы)
+     * @param k количество столбцов результата (входы)
+     */
+    static void gemmAB(double[] a, float[] b, double[] c, int m, int n, int k) {
+        Arrays.fill(c, 0, m * k, 0.0);
+        for (int j0 = 0; j0 < n; j0 += TILE_ROWS) {
+            int jEnd = Math.min(j0 + TILE_ROWS, n);
+            for (int r = 0; r < m; r++) {
+                int aRow = r * n;
+                int cRow = r * k;
+                int j = j0;
+                for (; j + ROW_BLOCK <= jEnd; j += ROW_BLOCK) {
+                    double d0 = a[aRow + j];
+                    double d1 = a[aRow + j + 1];
+                    double d2 = a[aRow + j + 2];
+                    double d3 = a[aRow + j + 3];
+                    int b0 = j * k;
+                    int b1 = b0 + k;
+                    int b2 = b1 + k;
+                    int b3 = b2 + k;
+                    for (int i = 0; i < k; i++) {
+                        c[cRow + i] += d0 * b[b0 + i] + d1 * b[b1 + i] + d2 * b[b2 + i] + d3 * b[b3 + i];
+                    }
+                }
+                for (; j < jEnd; j++) {
+                    double d = a[aRow + j];
+                    int bRow = j * k;
+                    for (int i = 0; i < k; i++) {
+                        c[cRow + i] += d * b[bRow + i];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Округляет массив до одинарной точности
+     *
+     * @param values значения
+     * @return новый массив float
+     */
+    static float[] toFloat(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Расширяет массив одинарной точности до двойной
+     *
+     * @param values значения
+     * @return новый массив double
+     */
+    static double[] toDouble(float[] values) {
+        double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+
+    // ==================== ЦЕЛОЧИСЛЕННЫЕ ЯДРА (INT8) ====================
+
+    /**
+     * Квантует отрезок массива в int8: q[qOffset + i] = round(x[offset + i] / scale)
+     *
+     * Значения вне диапазона [-127, 127] ограничиваются (симметричное
+     * квантование без нулевой точки).
+     *
+     * @param x вход
+     * @param offset начало отрезка
+     * @param length длина отрезка
+     * @param inverseScale величина 1 / scale
+     * @param q результат
+     * @param qOffset начало результата в q
+     */
+    static void quantize(double[] x, int offset, int length, double inverseScale, byte[] q, int qOffset) {
+        for (int i = 0; i < length; i++) {
+            long value = Math.round(x[offset + i] * inverseScale);
+            q[qOffset + i] = (byte) Math.max(-127, Math.min(127, value));
+        }
+    }
+
+    /**
+     * Возвращает максимум модуля элементов массива
+     *
+     * @param x массив
+     * @return max |x[i]| (0 для пустого массива)
+     */
+    static double maxAbs(double[] x) {
+        double max = 0.0;
+        for (double value : x) {
+            max = Math.max(max, Math.abs(value));
+        }
+        return max;
+    }
+
+    /**
+     * Вычисляет y = scales * (Wq * xq) + b с накоплением в int32
+     *
+     * Скалярные произведения строк весов int8 на квантованный вход
+     * накапливаются точно в int32 (переполнение невозможно при
+     * cols &lt; 2^31 / 127^2), затем каждая строка деквантуется своим
+     * множителем.
+     *
+     * @param weights квантованные веса [rows * cols], построчно
+     * @param scales множители деквантования строк [rows] (масштаб строки, умноженный на масштаб входа)
+     * @param biases смещения [rows]
+     * @param x квантованный вход [cols]
+     * @param y выход
+     * @param yOffset начало выхода в y
+     * @param rows количество строк (выходов)
+     * @param cols количество столбцов (входов)
+     */
+    static void matVecInt8(byte[] weights, double[] scales, double[] biases, byte[] x,
+                           double[] y, int yOffset, int rows, int cols) {
+        TensorKernels vector = kernels;
+        if (vector != null) {
+            vector.matVecInt8(weights, scales, biases, x, y, yOffset, rows, cols);
+            return;
+        }
+        int j = 0;
+        for (; j + ROW_BLOCK <= rows; j += ROW_BLOCK) {
+            int r0 = j * cols;
+            int r1 = r0 + cols;
+            int r2 = r1 + cols;
+            int r3 = r2 + cols;
+            int s0 = 0;
+            int s1 = 0;
+            int s2 = 0;
+            int s3 = 0;
+            for (int i = 0; i < cols; i++) {
+                int xi = x[i];
+                s0 += xi * weights[r0 + i];
+                s1 += xi * weights[r1 + i];
+                s2 += xi * weights[r2 + i];
+                s3 += xi * weights[r3 + i];
+            }
+            y[yOffset + j] = biases[j] + s0 * scales[j];
+            y[yOffset + j + 1] = biases[j + 1] + s1 * scales[j + 1];
+            y[yOffset + j + 2] = biases[j + 2] + s2 * scales[j + 2];
+            y[yOffset + j + 3] = biases[j + 3] + s3 * scales[j + 3];
+        }
+        for (; j < rows; j++) {
+            int r = j * cols;
+            int s = 0;
+            for (int i = 0; i < cols; i++) {
+                s += x[i] * weights[r + i];
+            }
+            y[yOffset + j] = biases[j] + s * scales[j];
+        }
+    }
+
+    // ==================== ПРЕОБРАЗОВАНИЕ РАСКЛАДКИ ====================
+
+    /**
+     * Преобразует матрицу [cols][rows] (вход-выход) в плоский построчный массив
+     *
+     * @param matrix матрица [cols][rows]
+     * @return плоский массив [rows * cols]
+     */
+    static double[] flattenTransposed(double[][] matrix) {
+        int cols = matrix.length;
+        int rows = cols > 0 ? matrix[0].length : 0;
+        double[] flat = new double[rows * cols];
+        for (int i = 0; i < cols; i++) {
+            for (int j = 0; j < rows; j++) {
+                flat[j * cols + i] = matrix[i][j];
+            }
+        }
+        return flat;
+    }
+
+    /**
+     * Преобразует плоский построчный массив в матрицу [cols][rows] (вход-выход)
+     *
+     * @param flat плоский массив [rows * cols]
+     * @param rows количество строк
+     * @param cols количество столбцов
+     * @return матрица [cols][rows]
+     */
+    static double[][] unflattenTransposed(double[] flat, int rows, int cols) {
+        double[][] matrix = new double[cols][rows];
+        for (int j = 0; j < rows; j++) {
+            int r = j * cols;
+            for (int i = 0; i < cols; i++) {
+                matrix[i][j] = flat[r + i];
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,466 @@
+package net.sf.l2j.botmanager.learning;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранилище истории метрик ботов с понижением разрешения (в стиле RRD)
+ *
+ * Каждая метрика бота хранится в кольцах трех разрешений ({@link Resolution}):
+ * 10 секунд, 1 минута и 1 час. Закрытый интервал мелкого кольца
+ * автоматически сворачивается в текущий интервал следующего, поэтому
+ * подробная история хранится минуты, минутная - часы, а часовая - неделю.
+ *
+ * Кольцо состоит из открытого блока в массиве double и кольца
+ * заполненных блоков, сжатых {@link GorillaCodec}. Количество блоков
+ * фиксировано, поэтому объем памяти ряда ограничен заранее известной
+ * величиной ({@link #getMaxBytesPerSeries()}), а на практике за счет
+ * сжатия в несколько раз меньше ({@link #getMemoryUsage()}). Глубина
+ * колец подобрана так, чтобы все метрики 10 000 ботов в худшем случае
+ * занимали около 300 МБ ({@link #getMaxBytesPerBot()} - около 29 КБ).
+ * Ряды метрик создаются при первой записи, а история ушедшего бота
+ * удаляется {@link #removeBot(int)}.
+ *
+ * Помимо рядов ботов ведутся общие ряды по всем ботам: счетчики
+ * суммируются, а измерения усредняются по всем записям.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class TimeSeriesStore {
+
+    // ==================== МЕТРИКИ И РАЗРЕШЕНИЯ ====================
+
+    /**
+     * Метрика истории
+     */
+    public enum Metric {
+        /** Доля успешных действий и поведений (среднее значений 0/1) */
+        SUCCESS_RATE(false),
+        /** Количество убийств за интервал */
+        KILLS(true),
+        /** Количество смертей за интервал */
+        DEATHS(true),
+        /** Полученное золото за интервал */
+        GOLD(true),
+        /** Опыт в час */
+        XP_PER_HOUR(false),
+        /** Задержка принятия решения в миллисекундах */
+        DECISION_LATENCY(false);
+
+        private final boolean counter;
+
+        Metric(boolean counter) {
+            this.counter = counter;
+        }
+
+        /**
+         * Счетчик суммируется за интервал, измерение - усредняется
+         */
+        public boolean isCounter() { return counter; }
+    }
+
+    /**
+     * Разрешение ряда
+     */
+    public enum Resolution {
+        /** 10 секунд, блоки по 5 минут, 10 минут истории */
+        TEN_SECONDS(10L * 1000, 30, 2),
+        /** 1 минута, блоки по 1 часу, 3 часа истории */
+        MINUTE(60L * 1000, 60, 3),
+        /** 1 час, блоки по 1 суткам, 1 неделя истории */
+        HOUR(60L * 60 * 1000, 24, 7);
+
+        private final long intervalMillis;
+        private final int pointsPerBlock;
+        private final int blocks;
+
+        Resolution(long intervalMillis, int pointsPerBlock, int blocks) {
+            this.intervalMillis = intervalMillis;
+            this.pointsPerBlock = pointsPerBlock;
+            this.blocks = blocks;
+        }
+
+        public long getIntervalMillis() { return intervalMillis; }
+        public int getPointsPerBlock() { return pointsPerBlock; }
+        public int getBlocks() { return blocks; }
+
+        /**
+         * Глубина хранимой истории в миллисекундах
+         */
+        public long getRetentionMillis() {
+            return intervalMillis * pointsPerBlock * blocks;
+        }
+    }
+
+    /**
+     * Идентификатор общих рядов в запросах
+     */
+    public static final int GLOBAL_ID = -1;
+
+    // ==================== ПОЛЯ ====================
+
+    private final Map<Integer, Series[]> botSeries = new ConcurrentHashMap<>();
+    private final Series[] globalSeries = new Series[Metric.values().length];
+
+    public TimeSeriesStore() {
+        for (Metric metric : Metric.values()) {
+            globalSeries[metric.ordinal()] = new Series(metric);
+        }
+    }
+
+    // ==================== ЗАПИСЬ ====================
+
+    /**
+     * Записать значение метрики бота (и общего ряда).
+     *
+     * @param botId идентификатор бота
+     * @param metric метрика
+     * @param value значение
+     * @param timeMillis время значения
+     */
+    public void record(int botId, Metric metric, double value, long timeMillis) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        Series[] series = botSeries.computeIfAbsent(botId, id -> new Series[Metric.values().length]);
+        Series target = series[metric.ordinal()];
+        if (target == null) {
+            synchronized (series) {
+                target = series[metric.ordinal()];
+                if (target == null) {
+                    target = new Series(metric);
+                    series[metric.ordinal()] = target;
+                }
+            }
+        }
+        target.record(value, timeMillis);
+        globalSeries[metric.ordinal()].record(value, timeMillis);
+    }
+
+    // ==================== ЗАПРОСЫ ====================
+
+    /**
+     * Получить значения ряда за период.
+     *
+     * @param botId идентификатор бота или {@link #GLOBAL_ID}
+     * @param metric метрика
+     * @param resolution разрешение
+     * @param fromMillis начало периода
+     * @param toMillis конец периода (включительно)
+     * @return значения по интервалам; NaN - нет данных
+     */
+    public Range query(int botId, Metric metric, Resolution resolution, long fromMillis, long toMillis) {
+        Series series = seriesOf(botId, metric);
+        long interval = resolution.getIntervalMillis();
+        long from = fromMillis / interval;
+        long to = toMillis / interval;
+        if (to < from) {
+            return new Range(from * interval, interval, new double[0]);
+        }
+        // Больше глубины кольца данных быть не может
+        long retained = (long) resolution.getPointsPerBlock() * (resolution.getBlocks() + 1);
+        if (to - from + 1 > retained) {
+            from = to - retained + 1;
+        }
+        double[] values = new double[(int) (to - from + 1)];
+        Arrays.fill(values, Double.NaN);
+        if (series != null) {
+            series.read(resolution, from, values);
+        }
+        return new Range(from * interval, interval, values);
+    }
+
+    private Series seriesOf(int botId, Metric metric) {
+        if (botId == GLOBAL_ID) {
+            return globalSeries[metric.ordinal()];
+        }
+        Series[] series = botSeries.get(botId);
+        return series != null ? series[metric.ordinal()] : null;
+    }
+
+    // ==================== УПРАВЛЕНИЕ ====================
+
+    /**
+     * Удалить историю бота (вызывается при удалении бота из анализатора).
+     */
+    public void removeBot(int botId) {
+        botSeries.remove(botId);
+    }
+
+    public Set<Integer> getBotIds() {
+        return botSeries.keySet();
+    }
+
+    /**
+     * Очистить всю историю.
+     */
+    public void clear() {
+        botSeries.clear();
+        for (Metric metric : Metric.values()) {
+            globalSeries[metric.ordinal()] = new Series(metric);
+        }
+    }
+
+    /**
+     * Фактический объем данных всех рядов в байтах.
+     */
+    public long getMemoryUsage() {
+        long bytes = 0;
+        for (Series series : globalSeries) {
+            bytes += series.getMemoryUsage();
+        }
+        for (Series[] metrics : botSeries.values()) {
+            for (Series series : metrics) {
+                if (series != null) {
+                    bytes += series.getMemoryUsage();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Наибольший объем данных одного ряда в байтах (при несжимаемых значениях).
+     */
+    public static long getMaxBytesPerSeries() {
+        long bytes = 0;
+        for (Resolution resolution : Resolution.values()) {
+            bytes += (long) resolution.getBlocks() * GorillaCodec.maxWords(resolution.getPointsPerBlock()) * Long.BYTES;
+            bytes += (long) resolution.getPointsPerBlock() * Double.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Наибольший объем данных одного бота в байтах.
+     */
+    public static long getMaxBytesPerBot() {
+        return getMaxBytesPerSeries() * Metric.values().length;
+    }
+
+    public String getStats() {
+        return String.format("TimeSeriesStore[bots=%d, memory=%d KB, max per bot=%d KB]",
+            botSeries.size(), getMemoryUsage() / 1024, getMaxBytesPerBot() / 1024);
+    }
+
+    // ==================== РЯДЫ ====================
+
+    /**
+     * Ряд метрики во всех разрешениях
+     */
+    private static final class Series {
+        private final boolean counter;
+        private final Ring[] rings;
+
+        Series(Metric metric) {
+            this.counter = metric.isCounter();
+            Resolution[] resolutions = Resolution.values();
+            rings = new Ring[resolutions.length];
+            for (int i = 0; i < resolutions.length; i++) {
+                rings[i] = new Ring(resolutions[i]);
+            }
+        }
+
+        synchronized void record(double value, long timeMillis) {
+            long slot = timeMillis / rings[0].interval;
+            if (slot < rings[0].currentSlot) {
+                // Значения старше текущего интервала не принимаются
+                return;
+            }
+            advance(0, slot);
+            rings[0].sum += value;
+            rings[0].count++;
+        }
+
+        /**
+         * Перейти к интервалу slot в кольце level, свернув закрытый интервал выше
+         */
+        private void advance(int level, long slot) {
+            Ring ring = rings[level];
+            if (ring.currentSlot == slot) {
+                return;
+            }
+            if (ring.currentSlot >= 0 && ring.count > 0) {
+                double value = counter ? ring.sum : ring.sum / ring.count;
+                ring.append(ring.currentSlot, value);
+                if (level + 1 < rings.length) {
+                    Ring next = rings[level + 1];
+                    advance(level + 1, ring.currentSlot * ring.interval / next.interval);
+                    next.sum += ring.sum;
+                    next.count += ring.count;
+                }
+            }
+            ring.currentSlot = slot;
+            ring.sum = 0.0;
+            ring.count = 0;
+        }
+
+        synchronized void read(Resolution resolution, long from, double[] values) {
+            Ring ring = rings[resolution.ordinal()];
+            ring.read(from, values);
+            long current = ring.currentSlot;
+            if (ring.count > 0 && current >= from && current < from + values.length) {
+                values[(int) (current - from)] = counter ? ring.sum : ring.sum / ring.count;
+            }
+        }
+
+        synchronized long getMemoryUsage() {
+            long bytes = 0;
+            for (Ring ring : rings) {
+                bytes += ring.getMemoryUsage();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Кольцо одного разрешения: открытый блок и сжатые заполненные блоки
+     */
+    private static final class Ring {
+        private final long interval;
+        private final int pointsPerBlock;
+        private final double[] open;
+        private final long[][] sealed;
+        private final long[] sealedStarts;
+        private int openCount;
+        private long nextSlot = -1;
+        private long sealedTotal;
+
+        // Накопитель текущего интервала
+        private long currentSlot = -1;
+        private double sum;
+        private long count;
+
+        Ring(Resolution resolution) {
+            this.interval = resolution.getIntervalMillis();
+            this.pointsPerBlock = resolution.getPointsPerBlock();
+            this.open = new double[pointsPerBlock];
+            this.sealed = new long[resolution.getBlocks()][];
+            this.sealedStarts = new long[resolution.getBlocks()];
+        }
+
+        /**
+         * Добавить значение закрытого интервала; пропущенные интервалы заполняются NaN
+         */
+        void append(long slot, double value) {
+            long capacity = (long) pointsPerBlock * (sealed.length + 1);
+            if (nextSlot < 0 || slot - nextSlot >= capacity) {
+                // Разрыв длиннее истории - начинаем ряд заново
+                Arrays.fill(sealed, null);
+                sealedTotal = 0;
+                openCount = 0;
+                nextSlot = slot;
+            }
+            while (nextSlot < slot) {
+                push(Double.NaN);
+            }
+            push(value);
+        }
+
+        private void push(double value) {
+            open[openCount++] = value;
+            nextSlot++;
+            if (openCount == pointsPerBlock) {
+                int index = (int) (sealedTotal % sealed.length);
+                sealed[index] = GorillaCodec.encode(open, openCount);
+                sealedStarts[index] = nextSlot - pointsPerBlock;
+                sealedTotal++;
+                openCount = 0;
+            }
+        }
+
+        void read(long from, double[] values) {
+            if (nextSlot < 0) {
+                return;
+            }
+            long to = from + values.length;
+            double[] block = null;
+            for (int i = 0; i < sealed.length; i++) {
+                if (sealed[i] == null) {
+                    continue;
+                }
+                long start = sealedStarts[i];
+                long end = start + pointsPerBlock;
+                if (end <= from || start >= to) {
+                    continue;
+                }
+                if (block == null) {
+                    block = new double[pointsPerBlock];
+                }
+                GorillaCodec.decode(sealed[i], pointsPerBlock, block, 0);
+                copy(block, start, from, values);
+            }
+            long openStart = nextSlot - openCount;
+            for (int i = 0; i < openCount; i++) {
+                long slot = openStart + i;
+                if (slot >= from && slot < to) {
+                    values[(int) (slot - from)] = open[i];
+                }
+            }
+        }
+
+        private void copy(double[] block, long start, long from, double[] values) {
+            long first = Math.max(start, from);
+            long last = Math.min(start + pointsPerBlock, from + values.length);
+            for (long slot = first; slot < last; slot++) {
+                values[(int) (slot - from)] = block[(int) (slot - start)];
+            }
+        }
+
+        long getMemoryUsage() {
+            long bytes = (long) open.length * Double.BYTES;
+            for (long[] block : sealed) {
+                if (block != null) {
+                    bytes += (long) block.length * Long.BYTES;
+                }
+            }
+            return bytes;
+        }
+    }
+
+    // ==================== РЕЗУЛЬТАТ ЗАПРОСА ====================
+
+    /**
+     * Значения ряда за период с постоянным шагом
+     */
+    public static final class Range {
+        private final long startMillis;
+        private final long intervalMillis;
+        private final double[] values;
+
+        public Range(long startMillis, long intervalMillis, double[] values) {
+            this.startMillis = startMillis;
+            this.intervalMillis = intervalMillis;
+            this.values = values;
+        }
+
+        public long getStartMillis() { return startMillis; }
+        public long getIntervalMillis() { return intervalMillis; }
+        public int size() { return values.length; }
+        public double getValue(int index) { return values[index]; }
+        public long getTime(int index) { return startMillis + index * intervalMillis; }
+
+        public double[] getValues() {
+            return values.clone();
+        }
+
+        /**
+         * Среднее известных значений (NaN, если значений нет).
+         */
+        public double getMean() {
+            double sum = 0.0;
+            int count = 0;
+            for (double value : values) {
+                if (!Double.isNaN(value)) {
+                    sum += value;
+                    count++;
+                }
+            }
+            return count == 0 ? Double.NaN : sum / count;
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.utils.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Фоновый конвейер обучения моделей
+ *
+ * Запросы обучения и адаптации ставятся в ограниченную очередь и
+ * выполняются отдельным потоком с пониженным приоритетом, поэтому потоки
+ * тика ботов не ждут обучения. Повторные запросы одного бота, ожидающие в
+ * очереди, объединяются в одно задание: их данные склеиваются.
+ *
+ * Задание обучает теневую копию модели через
+ * {@link ModelRegistry#trainShadow(int, ProcessedData)} и
+ * {@link ModelRegistry#adaptShadow(int, ProcessedData)}; инференс до
+ * атомарной замены ссылки использует прежнюю модель.
+ *
+ * Частота заданий ограничивается, чтобы обучение не отнимало процессор у
+ * тика AI под нагрузкой.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+public class TrainingPipeline {
+
+    private static final Logger _log = Logger.getLogger(TrainingPipeline.class);
+
+    // ==================== КОНСТАНТЫ ====================
+
+    /**
+     * Емкость очереди заданий по умолчанию
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Ограничение частоты заданий по умолчанию (заданий в секунду)
+     */
+    public static final double DEFAULT_MAX_JOBS_PER_SECOND = 20.0;
+
+    /**
+     * Максимальное количество примеров в объединенном задании
+     *
+     * Ограничение применяется при объединении запросов: старые примеры
+     * ожидающего задания вытесняются новыми, последний запрос сохраняется
+     * целиком.
+     */
+    private static final int MAX_COALESCED_SAMPLES = 4096;
+
+    // ==================== ПОЛЯ ====================
+
+    private final ModelRegistry registry;
+
+    private final int capacity;
+
+    /**
+     * Ожидающие задания по ID бота
+     */
+    private final Map<Integer, Job> pendingJobs = new HashMap<>();
+
+    /**
+     * Порядок выполнения ожидающих заданий
+     */
+    private final BlockingQueue<Integer> order = new LinkedBlockingQueue<>();
+
+    /**
+     * Минимальный интервал между заданиями (наносекунды)
+     */
+    private volatile long minIntervalNanos;
+
+    /**
+     * Обработчик завершения заданий: ID бота и результат
+     */
+    private volatile BiConsumer<Integer, Result> listener;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    /**
+     * Время выполнения заданий (микросекунды)
+     */
+    private final Histogram jobMicros = new Histogram();
+
+    private Thread worker;
+
+    private volatile boolean running;
+
+    // ==================== КОНСТРУКТОРЫ ====================
+
+    /**
+     * Конструктор с параметрами по умолчанию
+     *
+     * @param registry реестр моделей
+     */
+    public TrainingPipeline(ModelRegistry registry) {
+        this(registry, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_JOBS_PER_SECOND);
+    }
+
+    /**
+     * Конструктор
+     *
+     * @param registry реестр моделей
+     * @param capacity максимальное количество ожидающих заданий
+     * @param maxJobsPerSecond ограничение частоты заданий (0 - без ограничения)
+     */
+    public TrainingPipeline(ModelRegistry registry, int capacity, double maxJobsPerSecond) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry must not be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.registry = registry;
+        this.capacity = capacity;
+        setMaxJobsPerSecond(maxJobsPerSecond);
+    }
+
+    // ==================== ЖИЗНЕННЫЙ ЦИКЛ ====================
+
+    /**
+     * Запускает фоновый поток обучения
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "TrainingPipeline-Worker");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+        _log.info("TrainingPipeline started (capacity " + capacity + ")");
+    }
+
+    /**
+     * Останавливает фоновый поток; ожидающие задания отбрасываются
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = worker;
+            worker = null;
+            running = false;
+        }
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (pendingJobs) {
+            pendingJobs.clear();
+            order.clear();
+        }
+        _log.info("TrainingPipeline stopped");
+    }
+
+    /**
+     * Проверяет, запущен ли конвейер
+     *
+     * @return true, если фоновый поток работает
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    // ==================== ЗАДАНИЯ ====================
+
+    /**
+     * Ставит в очередь обучение модели бота
+     *
+     * @param botId ID бота
+     * @param data данные для обучения
+     * @return true, если запрос принят (в том числе объединен с ожидающим)
+     */
+    public boolean submitTraining(int botId, ProcessedData data) {
+        return submit(botId, data, false);
+    }
+
+    /**
+     * Ставит в очередь адаптацию модели бота
+     *
+     * @param botId ID бота
+     * @param data данные обратной связи
+     * @return true, если запрос принят (в том числе объединен с ожидающим)
+     */
+    public boolean submitAdaptation(int botId, ProcessedData data) {
+        return submit(botId, data, true);
+    }
+
+    private boolean submit(int botId, ProcessedData data, boolean feedback) {
+        if (data == null || data.getInputs() == null || data.getTargets() == null) {
+            return false;
+        }
+
+        synchronized (pendingJobs) {
+            Job job = pendingJobs.get(botId);
+            if (job != null) {
+                droppedSamples.addAndGet(job.add(data, feedback));
+                coalesced.incrementAndGet();
+                return true;
+            }
+            if (pendingJobs.size() >= capacity) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            job = new Job();
+            job.add(data, feedback);
+            pendingJobs.put(botId, job);
+            order.add(botId);
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Выполняет все ожидающие задания в потоке вызова
+     *
+     * Используется, когда фоновый поток не запущен (например, в тестах
+     * или при остановке сервера).
+     *
+     * @return количество выполненных заданий
+     */
+    public int drain() {
+        int count = 0;
+        Integer botId;
+        while ((botId = order.poll()) != null) {
+            if (runJob(botId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void runWorker() {
+        long nextStart = System.nanoTime();
+        while (running) {
+            try {
+                Integer botId = order.take();
+
+                // Ограничение частоты: ждем, пока не наступит время следующего задания
+                long wait = nextStart - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                nextStart = System.nanoTime() + minIntervalNanos;
+
+                runJob(botId);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                _log.error("Error in training pipeline: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Выполняет задание бота
+     *
+     * @param botId ID бота
+     * @return true, если задание было в очереди
+     */
+    private boolean runJob(int botId) {
+        Job job;
+        synchronized (pendingJobs) {
+            job = pendingJobs.remove(botId);
+        }
+        if (job == null) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        boolean trained = !job.training.isEmpty() && registry.trainShadow(botId, merge(job.training));
+        boolean adapted = !job.feedback.isEmpty() && registry.adaptShadow(botId, merge(job.feedback));
+        jobMicros.record((System.nanoTime() - start) / 1000);
+
+        completed.incrementAndGet();
+        if (trained || adapted) {
+            published.incrementAndGet();
+        }
+
+        BiConsumer<Integer, Result> callback = listener;
+        if (callback != null) {
+            callback.accept(botId, new Result(job.training.isEmpty() ? null : trained,
+                job.feedback.isEmpty() ? null : adapted));
+        }
+        return true;
+    }
+
+    /**
+     * Склеивает данные объединенных запросов в один набор
+     *
+     * @param parts данные запросов
+     * @return объединенные данные (не более {@link #MAX_COALESCED_SAMPLES} последних примеров)
+     */
+    static ProcessedData merge(List<ProcessedData> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+
+        int total = 0;
+        for (ProcessedData part : parts) {
+            total += Math.min(part.getInputs().length, part.getTargets().length);
+        }
+        int skip = Math.max(0, total - MAX_COALESCED_SAMPLES);
+        int size = total - skip;
+
+        double[][] inputs = new double[size][];
+        double[][] targets = new double[size][];
+        int index = 0;
+        for (ProcessedData part : parts) {
+            int count = Math.min(part.getInputs().length, part.getTargets().length);
+            for (int i = 0; i < count; i++) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                inputs[index] = part.getInputs()[i];
+                targets[index] = part.getTargets()[i];
+                index++;
+            }
+        }
+        return new ProcessedData(inputs, targets);
+    }
+
+    // ==================== НАСТРОЙКА И СТАТИСТИКА ====================
+
+    /**
+     * Устанавливает ограничение частоты заданий
+     *
+     * @param maxJobsPerSecond заданий в секунду (0 - без ограничения)
+     */
+    public void setMaxJobsPerSecond(double maxJobsPerSecond) {
+        if (maxJobsPerSecond < 0) {
+            throw new IllegalArgumentException("Rate limit must not be negative");
+        }
+        this.minIntervalNanos = maxJobsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxJobsPerSecond) : 0;
+    }
+
+    /**
+     * Устанавливает обработчик завершения заданий
+     *
+     * @param listener обработчик (ID бота и результат) или null
+     */
+    public void setListener(BiConsumer<Integer, Result> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Возвращает количество ожидающих заданий
+     *
+     * @return количество заданий
+     */
+    public int getPendingCount() {
+        synchronized (pendingJobs) {
+            return pendingJobs.size();
+        }
+    }
+
+    /**
+     * Возвращает количество принятых заданий (без объединенных запросов)
+     *
+     * @return количество заданий
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * Возвращает количество запросов, объединенных с ожидающим заданием бота
+     *
+     * @return количество запросов
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Возвращает количество запросов, отклоненных из-за заполненной очереди
+     *
+     * @return количество запросов
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Возвращает количество выполненных заданий
+     *
+     * @return количество заданий
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Возвращает количество заданий, после которых теневая модель
+     * опубликована как активная
+     *
+     * @return количество заданий
+     */
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    /**
+     * Возвращает количество примеров, вытесненных из ожидающих заданий
+     * ограничением {@link #MAX_COALESCED_SAMPLES}
+     *
+     * @return количество примеров
+     */
+    public long getDroppedSampleCount() {
+        return droppedSamples.get();
+    }
+
+    /**
+     * Возвращает распределение времени выполнения заданий
+     *
+     * @return гистограмма в микросекундах
+     */
+    public Histogram getJobTimeHistogram() {
+        return jobMicros;
+    }
+
+    /**
+     * Возвращает статистику конвейера
+     *
+     * @return статистика
+     */
+    public String getStatistics() {
+        return String.format("TrainingPipeline Stats: Pending=%d, Submitted=%d, Coalesced=%d, Rejected=%d, Completed=%d, Published=%d, Dropped Samples=%d, Job us [%s]",
+            getPendingCount(), getSubmittedCount(), getCoalescedCount(), getRejectedCount(),
+            getCompletedCount(), getPublishedCount(), getDroppedSampleCount(), jobMicros);
+    }
+
+    // ==================== ВНУТРЕННИЕ КЛАССЫ ====================
+
+    /**
+     * Результат задания: null означает, что операция не запрашивалась
+     */
+    public static final class Result {
+        private final Boolean trained;
+        private final Boolean adapted;
+
+        Result(Boolean trained, Boolean adapted) {
+            this.trained = trained;
+            this.adapted = adapted;
+        }
+
+        public Boolean getTrained() { return trained; }
+        public Boolean getAdapted() { return adapted; }
+    }
+
+    /**
+     * Ожидающее задание бота с объединенными запросами
+     *
+     * Пока задание ждет ограничения частоты, количество примеров каждого
+     * вида не превышает {@link #MAX_COALESCED_SAMPLES} (кроме случая, когда
+     * больше содержит один последний запрос): самые старые примеры
+     * вытесняются при добавлении.
+     */
+    private static final class Job {
+        final List<ProcessedData> training = new ArrayList<>(1);
+        final List<ProcessedData> feedback = new ArrayList<>(1);
+        private int trainingSamples;
+        private int feedbackSamples;
+
+        /**
+         * Добавляет запрос и вытесняет старые примеры сверх ограничения
+         *
+         * @param data данные запроса
+         * @param isFeedback true для обратной связи
+         * @return количество вытесненных примеров
+         */
+        int add(ProcessedData data, boolean isFeedback) {
+            List<ProcessedData> parts = isFeedback ? feedback : training;
+            parts.add(data);
+            int total = (isFeedback ? feedbackSamples : trainingSamples) + sampleCount(data);
+            int dropped = 0;
+
+            while (total > MAX_COALESCED_SAMPLES && parts.size() > 1) {
+                ProcessedData oldest = parts.get(0);
+                int count = sampleCount(oldest);
+                int excess = total - MAX_COALESCED_SAMPLES;
+                if (count <= excess) {
+                    parts.remove(0);
+                    total -= count;
+                    dropped += count;
+                } else {
+                    parts.set(0, new ProcessedData(
+                        Arrays.copyOfRange(oldest.getInputs(), excess, count),
+                        Arrays.copyOfRange(oldest.getTargets(), excess, count)));
+                    total -= excess;
+                    dropped += excess;
+                }
+            }
+
+            if (isFeedback) {
+                feedbackSamples = total;
+            } else {
+                trainingSamples = total;
+            }
+            return dropped;
+        }
+
+        private static int sampleCount(ProcessedData data) {
+            return Math.min(data.getInputs().length, data.getTargets().length);
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package net.sf.l2j.botmanager.learning;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Вычислительные ядра на Java Vector API ({@code jdk.incubator.vector})
+ *
+ * Класс загружается {@link TensorOps} только при наличии модуля
+ * {@code jdk.incubator.vector} (JVM запущена с
+ * {@code --add-modules jdk.incubator.vector}). Используется
+ * предпочтительная ширина вектора платформы (4 double для AVX2,
+ * 8 для AVX-512).
+ *
+ * Поэлементные ядра (axpy, outer, matTVec, gemmAtB, gemmAB, sumRows)
+ * сохраняют порядок операций скалярных циклов и дают побитово те же
+ * результаты. Скалярные произведения (matVec, gemmABt) суммируют по
+ * дорожкам вектора, поэтому отличаются от скалярных в пределах ошибки
+ * округления. Умножение и сложение выполняются раздельно: без аппаратной
+ * поддержки FMA операция {@code fma} Vector API эмулируется и медленна.
+ *
+ * Ядро int8 расширяет байты до int32 по всей предпочтительной ширине
+ * вектора и накапливает точно, поэтому совпадает со скалярным побитово.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+final class VectorTensorKernels implements TensorKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private static final int LANES = SPECIES.length();
+
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private static final int INT_LANES = INT_SPECIES.length();
+
+    /**
+     * Байтовый вид с тем же числом дорожек, что у INT_SPECIES (для расширения B2I)
+     */
+    private static final VectorSpecies<Byte> BYTE_SPECIES =
+        VectorSpecies.of(byte.class, VectorShape.forBitSize(INT_LANES * Byte.SIZE));
+
+    /**
+     * Граница насыщения сигмоиды (как в {@link ActivationFunction#sigmoid(double)})
+     */
+    private static final double SIGMOID_LIMIT = 700.0;
+
+    @Override
+    public String getName() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+
+    // ==================== МАТРИЧНО-ВЕКТОРНЫЕ ОПЕРАЦИИ ====================
+
+    @Override
+    public void matVec(double[] weights, double[] biases, double[] x, double[] y, int rows, int cols) {
+        int bound = SPECIES.loopBound(cols);
+        int j = 0;
+        for (; j + TensorOps.ROW_BLOCK <= rows; j += TensorOps.ROW_BLOCK) {
+            int r0 = j * cols;
+            int r1 = r0 + cols;
+            int r2 = r1 + cols;
+            int r3 = r2 + cols;
+            DoubleVector s0 = DoubleVector.zero(SPECIES);
+            DoubleVector s1 = DoubleVector.zero(SPECIES);
+            DoubleVector s2 = DoubleVector.zero(SPECIES);
+            DoubleVector s3 = DoubleVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += LANES) {
+                DoubleVector xv = DoubleVector.fromArray(SPECIES, x, i);
+                s0 = s0.add(xv.mul(DoubleVector.fromArray(SPECIES, weights, r0 + i)));
+                s1 = s1.add(xv.mul(DoubleVector.fromArray(SPECIES, weights, r1 + i)));
+                s2 = s2.add(xv.mul(DoubleVector.fromArray(SPECIES, weights, r2 + i)));
+                s3 = s3.add(xv.mul(DoubleVector.fromArray(SPECIES, weights, r3 + i)));
+            }
+            double t0 = biases[j] + s0.reduceLanes(VectorOperators.ADD);
+            double t1 = biases[j + 1] + s1.reduceLanes(VectorOperators.ADD);
+            double t2 = biases[j + 2] + s2.reduceLanes(VectorOperators.ADD);
+            double t3 = biases[j + 3] + s3.reduceLanes(VectorOperators.ADD);
+            for (; i < cols; i++) {
+                double xi = x[i];
+                t0 += xi * weights[r0 + i];
+                t1 += xi * weights[r1 + i];
+                t2 += xi * weights[r2 + i];
+                t3 += xi * weights[r3 + i];
+            }
+            y[j] = t0;
+            y[j + 1] = t1;
+            y[j + 2] = t2;
+            y[j + 3] = t3;
+        }
+        for (; j < rows; j++) {
+            y[j] = dot(biases[j], x, 0, weights, j * cols, cols);
+        }
+    }
+
+    @Override
+    public void matTVec(double[] weights, double[] d, double[] y, int rows, int cols) {
+        Arrays.fill(y, 0, cols, 0.0);
+        for (int j = 0; j < rows; j++) {
+            axpy(d[j], weights, j * cols, y, 0, cols);
+        }
+    }
+
+    @Override
+    public void outer(double[] d, double[] x, double[] g, int rows, int cols) {
+        int bound = SPECIES.loopBound(cols);
+        for (int j = 0; j < rows; j++) {
+            double dj = d[j];
+            int r = j * cols;
+            int i = 0;
+            for (; i < bound; i += LANES) {
+                DoubleVector.fromArray(SPECIES, x, i).mul(dj).intoArray(g, r + i);
+            }
+            for (; i < cols; i++) {
+                g[r + i] = x[i] * dj;
+            }
+        }
+    }
+
+    @Override
+    public void addOuter(double alpha, double[] d, double[] x, int xOffset, double[] g, int rows, int cols) {
+        for (int j = 0; j < rows; j++) {
+            axpy(alpha * d[j], x, xOffset, g, j * cols, cols);
+        }
+    }
+
+    @Override
+    public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            DoubleVector yv = DoubleVector.fromArray(SPECIES, y, yOffset + i);
+            yv.add(DoubleVector.fromArray(SPECIES, x, xOffset + i).mul(alpha)).intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void scale(double alpha, double[] x, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            DoubleVector.fromArray(SPECIES, x, i).mul(alpha).intoArray(x, i);
+        }
+        for (; i < length; i++) {
+            x[i] *= alpha;
+        }
+    }
+
+    // ==================== МАТРИЧНЫЕ ОПЕРАЦИИ (GEMM) ====================
+
+    @Override
+    public void gemmABt(double[] a, double[] b, double[] bias, double[] c, int from, int to, int n, int k) {
+        int bound = SPECIES.loopBound(k);
+        for (int j0 = 0; j0 < n; j0 += TensorOps.TILE_ROWS) {
+            int jEnd = Math.min(j0 + TensorOps.TILE_ROWS, n);
+            int r = from;
+            // Блок 2 примера x 4 нейрона: каждый загруженный вектор весов используется дважды
+            for (; r + 2 <= to; r += 2) {
+                int a0 = r * k;
+                int a1 = a0 + k;
+                int c0 = r * n;
+                int c1 = c0 + n;
+                int j = j0;
+                for (; j + TensorOps.ROW_BLOCK <= jEnd; j += TensorOps.ROW_BLOCK) {
+                    int b0 = j * k;
+                    int b1 = b0 + k;
+                    int b2 = b1 + k;
+                    int b3 = b2 + k;
+                    DoubleVector s00 = DoubleVector.zero(SPECIES), s01 = s00, s02 = s00, s03 = s00;
+                    DoubleVector s10 = s00, s11 = s00, s12 = s00, s13 = s00;
+                    int i = 0;
+                    for (; i < bound; i += LANES) {
+                        DoubleVector x0 = DoubleVector.fromArray(SPECIES, a, a0 + i);
+                        DoubleVector x1 = DoubleVector.fromArray(SPECIES, a, a1 + i);
+                        DoubleVector w0 = DoubleVector.fromArray(SPECIES, b, b0 + i);
+                        DoubleVector w1 = DoubleVector.fromArray(SPECIES, b, b1 + i);
+                        DoubleVector w2 = DoubleVector.fromArray(SPECIES, b, b2 + i);
+                        DoubleVector w3 = DoubleVector.fromArray(SPECIES, b, b3 + i);
+                        s00 = s00.add(x0.mul(w0));
+                        s01 = s01.add(x0.mul(w1));
+                        s02 = s02.add(x0.mul(w2));
+                        s03 = s03.add(x0.mul(w3));
+                        s10 = s10.add(x1.mul(w0));
+                        s11 = s11.add(x1.mul(w1));
+                        s12 = s12.add(x1.mul(w2));
+                        s13 = s13.add(x1.mul(w3));
+                    }
+                    double t00 = bias[j] + s00.reduceLanes(VectorOperators.ADD);
+                    double t01 = bias[j + 1] + s01.reduceLanes(VectorOperators.ADD);
+                    double t02 = bias[j + 2] + s02.reduceLanes(VectorOperators.ADD);
+                    double t03 = bias[j + 3] + s03.reduceLanes(VectorOperators.ADD);
+                    double t10 = bias[j] + s10.reduceLanes(VectorOperators.ADD);
+                    double t11 = bias[j + 1] + s11.reduceLanes(VectorOperators.ADD);
+                    double t12 = bias[j + 2] + s12.reduceLanes(VectorOperators.ADD);
+                    double t13 = bias[j + 3] + s13.reduceLanes(VectorOperators.ADD);
+                    for (; i < k; i++) {
+                        double x0 = a[a0 + i];
+                        double x1 = a[a1 + i];
+                        t00 += x0 * b[b0 + i];
+                        t01 += x0 * b[b1 + i];
+                        t02 += x0 * b[b2 + i];
+                        t03 += x0 * b[b3 + i];
+                        t10 += x1 * b[b0 + i];
+                        t11 += x1 * b[b1 + i];
+                        t12 += x1 * b[b2 + i];
+                        t13 += x1 * b[b3 + i];
+                    }
+                    c[c0 + j] = t00;
+                    c[c0 + j + 1] = t01;
+                    c[c0 + j + 2] = t02;
+                    c[c0 + j + 3] = t03;
+                    c[c1 + j] = t10;
+                    c[c1 + j + 1] = t11;
+                    c[c1 + j + 2] = t12;
+                    c[c1 + j + 3] = t13;
+                }
+                for (; j < jEnd; j++) {
+                    c[c0 + j] = dot(bias[j], a, a0, b, j * k, k);
+                    c[c1 + j] = dot(bias[j], a, a1, b, j * k, k);
+                }
+            }
+            for (; r < to; r++) {
+                int aRow = r * k;
+                int cRow = r * n;
+                for (int j = j0; j < jEnd; j++) {
+                    c[cRow + j] = dot(bias[j], a, aRow, b, j * k, k);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void gemmAtB(double[] a, double[] b, double[] c, int from, int to, int n, int k) {
+        Arrays.fill(c, 0, n * k, 0.0);
+        int bound = SPECIES.loopBound(k);
+        int j = 0;
+        // Блок из 4 строк результата: каждый загруженный вектор входа используется 4 раза
+        for (; j + TensorOps.ROW_BLOCK <= n; j += TensorOps.ROW_BLOCK) {
+            int c0 = j * k;
+            int c1 = c0 + k;
+            int c2 = c1 + k;
+            int c3 = c2 + k;
+            for (int r = from; r < to; r++) {
+                int aRow = r * n + j;
+                double d0 = a[aRow];
+                double d1 = a[aRow + 1];
+                double d2 = a[aRow + 2];
+                double d3 = a[aRow + 3];
+                int bRow = r * k;
+                int i = 0;
+                for (; i < bound; i += LANES) {
+                    DoubleVector x = DoubleVector.fromArray(SPECIES, b, bRow + i);
+                    DoubleVector.fromArray(SPECIES, c, c0 + i).add(x.mul(d0)).intoArray(c, c0 + i);
+                    DoubleVector.fromArray(SPECIES, c, c1 + i).add(x.mul(d1)).intoArray(c, c1 + i);
+                    DoubleVector.fromArray(SPECIES, c, c2 + i).add(x.mul(d2)).intoArray(c, c2 + i);
+                    DoubleVector.fromArray(SPECIES, c, c3 + i).add(x.mul(d3)).intoArray(c, c3 + i);
+                }
+                for (; i < k; i++) {
+                    double x = b[bRow + i];
+                    c[c0 + i] += d0 * x;
+                    c[c1 + i] += d1 * x;
+                    c[c2 + i] += d2 * x;
+                    c[c3 + i] += d3 * x;
+                }
+            }
+        }
+        for (; j < n; j++) {
+            int cRow = j * k;
+            for (int r = from; r < to; r++) {
+                axpy(a[r * n + j], b, r * k, c, cRow, k);
+            }
+        }
+    }
+
+    @Override
+    public void gemmAB(double[] a, double[] b, double[] c, int from, int to, int n, int k) {
+        Arrays.fill(c, from * k, to * k, 0.0);
+        int bound = SPECIES.loopBound(k);
+        for (int j0 = 0; j0 < n; j0 += TensorOps.TILE_ROWS) {
+            int jEnd = Math.min(j0 + TensorOps.TILE_ROWS, n);
+            for (int r = from; r < to; r++) {
+                int aRow = r * n;
+                int cRow = r * k;
+                int j = j0;
+                // Четыре строки весов за проход: строка результата читается и пишется один раз
+                for (; j + TensorOps.ROW_BLOCK <= jEnd; j += TensorOps.ROW_BLOCK) {
+                    double d0 = a[aRow + j];
+                    double d1 = a[aRow + j + 1];
+                    double d2 = a[aRow + j + 2];
+                    double d3 = a[aRow + j + 3];
+                    int b0 = j * k;
+                    int b1 = b0 + k;
+                    int b2 = b1 + k;
+                    int b3 = b2 + k;
+                    int i = 0;
+                    for (; i < bound; i += LANES) {
+                        DoubleVector sum = DoubleVector.fromArray(SPECIES, b, b0 + i).mul(d0)
+                            .add(DoubleVector.fromArray(SPECIES, b, b1 + i).mul(d1))
+                            .add(DoubleVector.fromArray(SPECIES, b, b2 + i).mul(d2))
+                            .add(DoubleVector.fromArray(SPECIES, b, b3 + i).mul(d3));
+                        DoubleVector.fromArray(SPECIES, c, cRow + i).add(sum).intoArray(c, cRow + i);
+                    }
+                    for (; i < k; i++) {
+                        c[cRow + i] += d0 * b[b0 + i] + d1 * b[b1 + i] + d2 * b[b2 + i] + d3 * b[b3 + i];
+                    }
+                }
+                for (; j < jEnd; j++) {
+                    axpy(a[aRow + j], b, j * k, c, cRow, k);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void sumRows(double[] a, double[] sums, int m, int n) {
+        Arrays.fill(sums, 0, n, 0.0);
+        for (int r = 0; r < m; r++) {
+            axpy(1.0, a, r * n, sums, 0, n);
+        }
+    }
+
+    // ==================== ФУНКЦИИ АКТИВАЦИИ ====================
+
+    @Override
+    public void sigmoid(double[] x, double[] y, int offset, int length) {
+        // Хвост обрабатывается по маске: результат элемента не зависит от его позиции
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        for (int i = 0; i < length; i += LANES) {
+            VectorMask<Double> range = SPECIES.indexInRange(i, length);
+            DoubleVector v = DoubleVector.fromArray(SPECIES, x, offset + i, range);
+            VectorMask<Double> saturated = v.compare(VectorOperators.LT, -SIGMOID_LIMIT);
+            one.div(one.add(v.neg().lanewise(VectorOperators.EXP)))
+                .blend(0.0, saturated)
+                .intoArray(y, offset + i, range);
+        }
+    }
+
+    @Override
+    public void tanh(double[] x, double[] y, int offset, int length) {
+        for (int i = 0; i < length; i += LANES) {
+            VectorMask<Double> range = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, x, offset + i, range)
+                .lanewise(VectorOperators.TANH)
+                .intoArray(y, offset + i, range);
+        }
+    }
+
+    @Override
+    public void relu(double[] x, double[] y, int offset, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            DoubleVector.fromArray(SPECIES, x, offset + i).max(0.0).intoArray(y, offset + i);
+        }
+        for (; i < length; i++) {
+            y[offset + i] = Math.max(0.0, x[offset + i]);
+        }
+    }
+
+    // ==================== INT8 ====================
+
+    @Override
+    public void matVecInt8(byte[] weights, double[] scales, double[] biases, byte[] x,
+                           double[] y, int yOffset, int rows, int cols) {
+        int bound = INT_SPECIES.loopBound(cols);
+        int j = 0;
+        for (; j + TensorOps.ROW_BLOCK <= rows; j += TensorOps.ROW_BLOCK) {
+            int r0 = j * cols;
+            int r1 = r0 + cols;
+            int r2 = r1 + cols;
+            int r3 = r2 + cols;
+            IntVector s0 = IntVector.zero(INT_SPECIES);
+            IntVector s1 = IntVector.zero(INT_SPECIES);
+            IntVector s2 = IntVector.zero(INT_SPECIES);
+            IntVector s3 = IntVector.zero(INT_SPECIES);
+            int i = 0;
+            for (; i < bound; i += INT_LANES) {
+                IntVector xv = widen(x, i);
+                s0 = s0.add(xv.mul(widen(weights, r0 + i)));
+                s1 = s1.add(xv.mul(widen(weights, r1 + i)));
+                s2 = s2.add(xv.mul(widen(weights, r2 + i)));
+                s3 = s3.add(xv.mul(widen(weights, r3 + i)));
+            }
+            int t0 = s0.reduceLanes(VectorOperators.ADD);
+            int t1 = s1.reduceLanes(VectorOperators.ADD);
+            int t2 = s2.reduceLanes(VectorOperators.ADD);
+            int t3 = s3.reduceLanes(VectorOperators.ADD);
+            for (; i < cols; i++) {
+                int xi = x[i];
+                t0 += xi * weights[r0 + i];
+                t1 += xi * weights[r1 + i];
+                t2 += xi * weights[r2 + i];
+                t3 += xi * weights[r3 + i];
+            }
+            y[yOffset + j] = biases[j] + t0 * scales[j];
+            y[yOffset + j + 1] = biases[j + 1] + t1 * scales[j + 1];
+            y[yOffset + j + 2] = biases[j + 2] + t2 * scales[j + 2];
+            y[yOffset + j + 3] = biases[j + 3] + t3 * scales[j + 3];
+        }
+        for (; j < rows; j++) {
+            int r = j * cols;
+            IntVector acc = IntVector.zero(INT_SPECIES);
+            int i = 0;
+            for (; i < bound; i += INT_LANES) {
+                acc = acc.add(widen(x, i).mul(widen(weights, r + i)));
+            }
+            int t = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < cols; i++) {
+                t += x[i] * weights[r + i];
+            }
+            y[yOffset + j] = biases[j] + t * scales[j];
+        }
+    }
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
+    /**
+     * Загружает INT_LANES байтов и расширяет их до int32
+     */
+    private static IntVector widen(byte[] values, int offset) {
+        return (IntVector) ByteVector.fromArray(BYTE_SPECIES, values, offset)
+            .convertShape(VectorOperators.B2I, INT_SPECIES, 0);
+    }
+
+    /**
+     * Вычисляет init + скалярное произведение отрезков двух массивов
+     *
+     * Порядок суммирования (init, сумма дорожек, хвост) совпадает с
+     * блочными ветвями, поэтому matVec и gemmABt дают одинаковые результаты.
+     */
+    private static double dot(double init, double[] x, int xOffset, double[] w, int wOffset, int length) {
+        int bound = SPECIES.loopBound(length);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            acc = acc.add(DoubleVector.fromArray(SPECIES, x, xOffset + i)
+                .mul(DoubleVector.fromArray(SPECIES, w, wOffset + i)));
+        }
+        double sum = init + acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += x[xOffset + i] * w[wOffset + i];
+        }
+        return sum;
+    }
+}
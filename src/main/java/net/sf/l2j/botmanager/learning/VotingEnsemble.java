@@ -10,6 +10,10 @@ import net.sf.l2j.botmanager.utils.Logger;
  * (для регрессии). Это простой, но эффективный способ
  * повышения точности предсказаний.
  * 
+ * В каскадном режиме ({@link #setCascadeEnabled(boolean)}) выбранный
+ * класс совпадает с полным голосованием, а распределение считается только
+ * по опрошенным моделям.
+ * 
  * @author ni-okr
  * @version 3.4
  */
@@ -87,8 +91,14 @@ public class VotingEnsemble extends EnsembleModel {
         }
         
         try {
-            // Получаем предсказания от всех моделей
-            double[][] predictions = getAllPredictions(input);
+            // Получаем предсказания от всех моделей или каскадом до определенного исхода
+            double[][] predictions;
+            if (isCascadeEnabled()) {
+                boolean hard = votingType == VotingType.HARD;
+                predictions = getCascadePredictions(input, outputClasses, hard, hard ? null : modelWeights);
+            } else {
+                predictions = getAllPredictions(input);
+            }
             
             // Комбинируем предсказания в зависимости от типа голосования
             double[] result = combinePredictions(predictions);
@@ -128,10 +138,7 @@ public class VotingEnsemble extends EnsembleModel {
         
         try {
             // Обучаем каждую модель отдельно
-            for (int i = 0; i < modelCount; i++) {
-                Object model = models.get(i);
-                trainModel(model, inputs, targets, epochs);
-            }
+            forEachMember(i -> trainModel(models.get(i), inputs, targets, epochs));
             
             _log.info("VotingEnsemble training completed for bot " + botId);
             return true;
@@ -202,11 +209,12 @@ public class VotingEnsemble extends EnsembleModel {
         double[] result = new double[outputClasses];
         int validPredictions = 0;
         
-        // Суммируем предсказания от всех моделей
-        for (double[] prediction : predictions) {
+        // Суммируем предсказания от всех моделей с весами их моделей
+        for (int m = 0; m < predictions.length; m++) {
+            double[] prediction = predictions[m];
             if (prediction != null && prediction.length == outputClasses) {
                 for (int i = 0; i < outputClasses; i++) {
-                    result[i] += prediction[i] * modelWeights[validPredictions];
+                    result[i] += prediction[i] * modelWeights[m];
                 }
                 validPredictions++;
             }
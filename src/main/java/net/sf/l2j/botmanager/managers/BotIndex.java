@@ -0,0 +1,246 @@
+package net.sf.l2j.botmanager.managers;
+
+import net.sf.l2j.botmanager.core.BotContext;
+import net.sf.l2j.botmanager.core.BotState;
+import net.sf.l2j.botmanager.core.BotType;
+import net.sf.l2j.botmanager.core.ContextKey;
+import net.sf.l2j.botmanager.core.IContextListener;
+import net.sf.l2j.gameserver.model.actor.instance.L2PcInstance;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Вторичные индексы ботов для {@link BotManager}.
+ *
+ * <p>Поддерживает наборы ботов по типу, состоянию, владельцу (objectId),
+ * замку и наличию экземпляра игрока. Индексы обновляются синхронно через
+ * {@link IContextListener} при изменении соответствующих данных контекста,
+ * поэтому запросы не сканируют всех ботов, а возвращают неизменяемые
+ * представления наборов. Размер набора на {@link ConcurrentHashMap}
+ * поддерживается счетчиками, поэтому подсчет по ключу не требует обхода.</p>
+ */
+class BotIndex implements IContextListener {
+
+    /** Ключи индекса, под которыми бот учтен сейчас */
+    private static final class Entry {
+        BotType type;
+        BotState state;
+        int ownerId;
+        int castleId;
+        boolean active;
+        boolean removed;
+    }
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<BotType, Set<BotContext>> byType = new EnumMap<>(BotType.class);
+    private final Map<BotState, Set<BotContext>> byState = new EnumMap<>(BotState.class);
+    private final Map<Integer, Set<BotContext>> byOwner = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<BotContext>> byCastle = new ConcurrentHashMap<>();
+    private final Set<BotContext> active = ConcurrentHashMap.newKeySet();
+
+    BotIndex() {
+        // EnumMap заполняется один раз и далее только читается
+        for (BotType type : BotType.values()) {
+            byType.put(type, ConcurrentHashMap.newKeySet());
+        }
+        for (BotState state : BotState.values()) {
+            byState.put(state, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Добавляет бота в индексы и подписывается на изменения его контекста.
+     */
+    void add(BotContext context) {
+        entries.put(context.getBotId(), new Entry());
+        context.setListener(this);
+        // Пустая запись переносится в актуальные наборы теми же обработчиками,
+        // что и последующие изменения, поэтому гонка с ними безопасна
+        onStateChanged(context, null, context.getState());
+        onDataChanged(context, null);
+        onPlayerInstanceChanged(context);
+    }
+
+    /**
+     * Удаляет бота из индексов.
+     */
+    void remove(BotContext context) {
+        context.setListener(null);
+        Entry entry = entries.remove(context.getBotId());
+        if (entry != null) {
+            synchronized (entry) {
+                entry.removed = true;
+                if (entry.type != null) {
+                    byType.get(entry.type).remove(context);
+                }
+                if (entry.state != null) {
+                    byState.get(entry.state).remove(context);
+                }
+                removeFrom(byOwner, entry.ownerId, context);
+                removeFrom(byCastle, entry.castleId, context);
+                active.remove(context);
+            }
+        }
+    }
+
+    /**
+     * Очищает все индексы.
+     */
+    void clear() {
+        entries.clear();
+        byType.values().forEach(Set::clear);
+        byState.values().forEach(Set::clear);
+        byOwner.clear();
+        byCastle.clear();
+        active.clear();
+    }
+
+    Collection<BotContext> getByType(BotType type) {
+        return Collections.unmodifiableSet(byType.get(type));
+    }
+
+    Collection<BotContext> getByState(BotState state) {
+        return Collections.unmodifiableSet(byState.get(state));
+    }
+
+    Collection<BotContext> getByOwner(int ownerId) {
+        Set<BotContext> set = byOwner.get(ownerId);
+        return set != null ? Collections.unmodifiableSet(set) : Collections.emptySet();
+    }
+
+    Collection<BotContext> getByCastle(int castleId) {
+        Set<BotContext> set = byCastle.get(castleId);
+        return set != null ? Collections.unmodifiableSet(set) : Collections.emptySet();
+    }
+
+    Collection<BotContext> getActive() {
+        return Collections.unmodifiableSet(active);
+    }
+
+    int countByType(BotType type) {
+        return byType.get(type).size();
+    }
+
+    int countByState(BotState state) {
+        return byState.get(state).size();
+    }
+
+    int countActive() {
+        return active.size();
+    }
+
+    @Override
+    public void onStateChanged(BotContext context, BotState oldState, BotState newState) {
+        Entry entry = entries.get(context.getBotId());
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (entry.removed) {
+                return;
+            }
+            BotState current = context.getState();
+            if (current != entry.state) {
+                if (entry.state != null) {
+                    byState.get(entry.state).remove(context);
+                }
+                entry.state = current;
+                if (current != null) {
+                    byState.get(current).add(context);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onDataChanged(BotContext context, ContextKey<?> key) {
+        if (key != null && key != BotContext.BOT_TYPE && key != BotContext.OWNER && key != BotContext.CASTLE_ID) {
+            return;
+        }
+        Entry entry = entries.get(context.getBotId());
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (entry.removed) {
+                return;
+            }
+            BotType type = context.get(BotContext.BOT_TYPE);
+            if (type != entry.type) {
+                if (entry.type != null) {
+                    byType.get(entry.type).remove(context);
+                }
+                entry.type = type;
+                if (type != null) {
+                    byType.get(type).add(context);
+                }
+            }
+
+            int ownerId = ownerId(context);
+            if (ownerId != entry.ownerId) {
+                removeFrom(byOwner, entry.ownerId, context);
+                entry.ownerId = ownerId;
+                addTo(byOwner, ownerId, context);
+            }
+
+            int castleId = context.getInt(BotContext.CASTLE_ID);
+            if (castleId != entry.castleId) {
+                removeFrom(byCastle, entry.castleId, context);
+                entry.castleId = castleId;
+                addTo(byCastle, castleId, context);
+            }
+        }
+    }
+
+    @Override
+    public void onPlayerInstanceChanged(BotContext context) {
+        Entry entry = entries.get(context.getBotId());
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (entry.removed) {
+                return;
+            }
+            boolean isActive = context.getPlayerInstance() != null;
+            if (isActive != entry.active) {
+                entry.active = isActive;
+                if (isActive) {
+                    active.add(context);
+                } else {
+                    active.remove(context);
+                }
+            }
+        }
+    }
+
+    private static int ownerId(BotContext context) {
+        L2PcInstance owner = context.get(BotContext.OWNER);
+        return owner != null ? owner.getObjectId() : 0;
+    }
+
+    private static void addTo(Map<Integer, Set<BotContext>> index, int key, BotContext context) {
+        if (key != 0) {
+            index.compute(key, (k, set) -> {
+                Set<BotContext> target = set != null ? set : ConcurrentHashMap.<BotContext>newKeySet();
+                target.add(context);
+                return target;
+            });
+        }
+    }
+
+    private static void removeFrom(Map<Integer, Set<BotContext>> index, int key, BotContext context) {
+        if (key == 0) {
+            return;
+        }
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(context);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
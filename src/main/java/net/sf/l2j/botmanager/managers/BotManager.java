@@ -7,6 +7,7 @@ import net.sf.l2j.botmanager.core.BotException;
 import net.sf.l2j.botmanager.events.BotCreatedEvent;
 import net.sf.l2j.botmanager.events.BotRemovedEvent;
 import net.sf.l2j.gameserver.model.actor.instance.L2PcInstance;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -15,6 +16,11 @@ import java.util.logging.Logger;
 
 /**
  * Менеджер для управления ботами
+ *
+ * Запросы по типу, состоянию, владельцу и замку обслуживаются вторичными
+ * индексами {@link BotIndex} и, как и прежде, возвращают снимки - списки,
+ * которые вызывающий код может изменять и которые не меняются вместе с
+ * индексом.
  */
 public class BotManager {
     private static final Logger _log = Logger.getLogger(BotManager.class.getName());
@@ -22,6 +28,7 @@ public class BotManager {
     private static BotManager instance;
 
     private final Map<Integer, BotContext> bots = new ConcurrentHashMap<>();
+    private final BotIndex index = new BotIndex();
     private final AtomicInteger nextBotId = new AtomicInteger(1);
     private final EventManager eventManager;
     private int maxBotCount = 1000;
@@ -53,10 +60,11 @@ public class BotManager {
         int botId = nextBotId.getAndIncrement();
         BotContext context = new BotContext(botId);
 
-        context.setData("botName", botName);
-        context.setData("botType", type);
+        context.set(BotContext.BOT_NAME, botName);
+        context.set(BotContext.BOT_TYPE, type);
 
         bots.put(botId, context);
+        index.add(context);
 
         _log.info("Created bot with ID: " + botId + ", name: " + botName + ", type: " + type);
 
@@ -83,6 +91,7 @@ public class BotManager {
         if (context == null) {
             throw new BotException("Bot with ID " + botId + " not found");
         }
+        index.remove(context);
 
         _log.info("Removed bot with ID: " + botId);
 
@@ -122,36 +131,49 @@ public class BotManager {
      * Получает ботов по типу
      */
     public Collection<BotContext> getBotsByType(BotType type) {
-        return bots.values().stream()
-                .filter(bot -> type.equals(bot.getData("botType")))
-                .collect(java.util.stream.Collectors.toList());
+        return new ArrayList<>(index.getByType(type));
     }
 
     /**
      * Получает активных ботов
      */
     public Collection<BotContext> getActiveBots() {
-        return bots.values().stream()
-                .filter(bot -> bot.getPlayerInstance() != null)
-                .collect(java.util.stream.Collectors.toList());
+        return new ArrayList<>(index.getActive());
     }
 
     /**
      * Получает ботов по состоянию
      */
     public Collection<BotContext> getBotsByState(BotState state) {
-        return bots.values().stream()
-                .filter(bot -> bot.getState() == state)
-                .collect(java.util.stream.Collectors.toList());
+        return new ArrayList<>(index.getByState(state));
     }
 
     /**
      * Получает ботов владельца
      */
     public Collection<BotContext> getBotsByOwner(L2PcInstance owner) {
-        return bots.values().stream()
-                .filter(bot -> owner.equals(bot.getData("owner")))
-                .collect(java.util.stream.Collectors.toList());
+        return new ArrayList<>(index.getByOwner(owner.getObjectId()));
+    }
+
+    /**
+     * Получает ботов замка
+     */
+    public Collection<BotContext> getBotsByCastle(int castleId) {
+        return new ArrayList<>(index.getByCastle(castleId));
+    }
+
+    /**
+     * Получает количество ботов указанного типа
+     */
+    public int getBotCountByType(BotType type) {
+        return index.countByType(type);
+    }
+
+    /**
+     * Получает количество ботов в указанном состоянии
+     */
+    public int getBotCountByState(BotState state) {
+        return index.countByState(state);
     }
 
     /**
@@ -160,7 +182,7 @@ public class BotManager {
     public void setBotOwner(int botId, L2PcInstance owner) {
         BotContext bot = getBot(botId);
         if (bot != null) {
-            bot.setData("owner", owner);
+            bot.set(BotContext.OWNER, owner);
         }
     }
 
@@ -183,7 +205,9 @@ public class BotManager {
      */
     public void clearAllBots() {
         _log.info("Clearing all bots...");
+        bots.values().forEach(bot -> bot.setListener(null));
         bots.clear();
+        index.clear();
         _log.info("All bots cleared");
     }
 
@@ -192,7 +216,7 @@ public class BotManager {
      */
     public String getBotStatistics() {
         int totalBots = getBotCount();
-        int activeBots = getActiveBots().size();
+        int activeBots = index.countActive();
 
         StringBuilder stats = new StringBuilder();
         stats.append("Bot Statistics:\n");
@@ -202,7 +226,7 @@ public class BotManager {
 
         // Статистика по типам
         for (BotType type : BotType.values()) {
-            int count = getBotsByType(type).size();
+            int count = index.countByType(type);
             if (count > 0) {
                 stats.append(type.getName()).append(": ").append(count).append("\n");
             }
@@ -210,7 +234,7 @@ public class BotManager {
 
         // Статистика по состояниям
         for (BotState state : BotState.values()) {
-            int count = getBotsByState(state).size();
+            int count = index.countByState(state);
             if (count > 0) {
                 stats.append(state.getName()).append(": ").append(count).append("\n");
             }
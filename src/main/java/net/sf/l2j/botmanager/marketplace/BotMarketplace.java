@@ -78,7 +78,7 @@ public class BotMarketplace {
 
         // Создаем бота
         BotContext bot = botManager.createBot(botType, botName);
-        bot.setData("owner", player);
+        bot.set(BotContext.OWNER, player);
         bot.setData("isPersonalBot", true);
         bot.setState(net.sf.l2j.botmanager.core.BotState.IDLE);
 
@@ -126,7 +126,7 @@ public class BotMarketplace {
      */
     public Collection<BotContext> getPlayerBotsByType(L2PcInstance player, BotType type) {
         return getPlayerBots(player).stream()
-                .filter(bot -> type.equals(bot.getData("botType")))
+                .filter(bot -> type == bot.get(BotContext.BOT_TYPE))
                 .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
     }
 
@@ -154,7 +154,7 @@ public class BotMarketplace {
             throw new BotException("Бот не найден");
         }
 
-        if (!player.equals(bot.getData("owner"))) {
+        if (!player.equals(bot.get(BotContext.OWNER))) {
             throw new BotException("Этот бот не принадлежит вам");
         }
 
@@ -174,7 +174,7 @@ public class BotMarketplace {
             throw new BotException("Бот не найден");
         }
 
-        if (!player.equals(bot.getData("owner"))) {
+        if (!player.equals(bot.get(BotContext.OWNER))) {
             throw new BotException("Этот бот не принадлежит вам");
         }
 
@@ -194,7 +194,7 @@ public class BotMarketplace {
             throw new BotException("Бот не найден");
         }
 
-        if (!player.equals(bot.getData("owner"))) {
+        if (!player.equals(bot.get(BotContext.OWNER))) {
             throw new BotException("Этот бот не принадлежит вам");
         }
 
@@ -224,7 +224,7 @@ public class BotMarketplace {
         Map<BotType, Integer> typeCount = new HashMap<>();
         for (PersonalBotGroup group : playerBots.values()) {
             for (BotContext bot : group.getAllBots()) {
-                BotType type = bot.getData("botType");
+                BotType type = bot.get(BotContext.BOT_TYPE);
                 if (type != null) {
                     typeCount.merge(type, 1, Integer::sum);
                 }
@@ -44,7 +44,7 @@ public class PersonalBotGroup {
     public void addBot(BotContext bot) {
         if (bot == null) return;
 
-        BotType botType = bot.getData("botType");
+        BotType botType = bot.get(BotContext.BOT_TYPE);
         if (botType != null && canAddMoreBots(botType)) {
             bots.put(bot.getBotId(), bot);
             _log.info("Added bot " + bot.getBotId() + " (" + botType.getName() + ") to player " + owner.getName() + "'s group");
@@ -74,7 +74,7 @@ public class PersonalBotGroup {
      */
     public Collection<BotContext> getBotsByType(BotType type) {
         return bots.values().stream()
-                .filter(bot -> type.equals(bot.getData("botType")))
+                .filter(bot -> type == bot.get(BotContext.BOT_TYPE))
                 .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
     }
 
@@ -0,0 +1,117 @@
+package net.sf.l2j.botmanager.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+/**
+ * Тесты для типизированных слотов BotContext.
+ *
+ * @author ni-okr
+ * @version 1.0
+ */
+@DisplayName("BotContext Tests")
+public class BotContextTest {
+
+    private static final ContextKey<String> TEST_LABEL = ContextKey.of("test_label", String.class);
+    private static final ContextKey<Integer> TEST_COUNTER = ContextKey.ofInt("test_counter", -1);
+    private static final ContextKey<Double> TEST_SCORE = ContextKey.ofDouble("test_score", 0.5);
+
+    private BotContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new BotContext(1);
+    }
+
+    @Test
+    @DisplayName("Should store and read typed object values")
+    void testObjectSlots() {
+        assertNull(context.get(TEST_LABEL));
+        assertEquals("fallback", context.get(TEST_LABEL, "fallback"));
+
+        context.set(TEST_LABEL, "guard");
+        assertEquals("guard", context.get(TEST_LABEL));
+        assertTrue(context.has(TEST_LABEL));
+
+        context.remove(TEST_LABEL);
+        assertFalse(context.has(TEST_LABEL));
+    }
+
+    @Test
+    @DisplayName("Should keep primitive slots at their declared defaults")
+    void testPrimitiveSlots() {
+        assertEquals(-1, context.getInt(TEST_COUNTER));
+        assertEquals(0.5, context.getDouble(TEST_SCORE), 0.0);
+        assertFalse(context.has(TEST_COUNTER));
+
+        context.setInt(TEST_COUNTER, 42);
+        context.setDouble(TEST_SCORE, 0.75);
+        assertEquals(42, context.getInt(TEST_COUNTER));
+        assertEquals(0.75, context.getDouble(TEST_SCORE), 0.0);
+
+        context.remove(TEST_COUNTER);
+        assertEquals(-1, context.getInt(TEST_COUNTER));
+    }
+
+    @Test
+    @DisplayName("Should grow slots for keys registered after context creation")
+    void testLateRegisteredKey() {
+        ContextKey<Long> lateKey = ContextKey.ofLong("test_late_key", 7L);
+
+        assertEquals(7L, context.getLong(lateKey));
+        context.setLong(lateKey, 100L);
+        assertEquals(100L, context.getLong(lateKey));
+    }
+
+    @Test
+    @DisplayName("Should route legacy string keys to registered slots")
+    void testLegacyStringAccess() {
+        context.setData("botType", BotType.OFFICER);
+        assertEquals(BotType.OFFICER, context.get(BotContext.BOT_TYPE));
+
+        context.set(BotContext.BOT_NAME, "Guard");
+        assertEquals("Guard", context.getData("botName"));
+
+        context.setData("custom", 5);
+        assertEquals(Integer.valueOf(5), context.getData("custom"));
+
+        Map<String, Object> all = context.getAllData();
+        assertEquals(BotType.OFFICER, all.get("botType"));
+        assertEquals(5, all.get("custom"));
+
+        context.clearData();
+        assertFalse(context.hasData("botType"));
+        assertFalse(context.hasData("custom"));
+    }
+
+    @Test
+    @DisplayName("Should reject primitive access through keys of another kind")
+    void testPrimitiveKindMismatch() {
+        ContextKey<Integer> objectKey = ContextKey.of("test_boxed_counter", Integer.class);
+
+        assertThrows(ClassCastException.class, () -> context.getInt(objectKey));
+        assertThrows(ClassCastException.class, () -> context.setInt(objectKey, 3));
+        assertEquals(-1, context.getInt(TEST_COUNTER), "Primitive slots should be untouched");
+    }
+
+    @Test
+    @DisplayName("Should return the caller default for unset primitive string keys")
+    void testLegacyPrimitiveDefault() {
+        assertEquals(Integer.valueOf(10), context.getData("test_counter", 10));
+        assertEquals(Integer.valueOf(-1), context.getData("test_counter"));
+
+        context.setInt(TEST_COUNTER, 4);
+        assertEquals(Integer.valueOf(4), context.getData("test_counter", 10));
+    }
+
+    @Test
+    @DisplayName("Should reject conflicting key registration")
+    void testConflictingRegistration() {
+        assertSame(TEST_LABEL, ContextKey.of("test_label", String.class));
+        assertThrows(IllegalArgumentException.class, () -> ContextKey.ofInt("test_label", 0));
+    }
+}
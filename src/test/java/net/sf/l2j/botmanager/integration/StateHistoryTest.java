@@ -0,0 +1,67 @@
+package net.sf.l2j.botmanager.integration;
+
+import net.sf.l2j.botmanager.behaviors.BehaviorType;
+import net.sf.l2j.botmanager.core.BotState;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+/**
+ * Тесты кольцевого буфера истории состояний.
+ */
+@DisplayName("State History Tests")
+public class StateHistoryTest {
+    
+    @Test
+    @DisplayName("Should decode packed transitions with timestamps")
+    void testRecordAndDecode() {
+        StateHistory history = new StateHistory(4, 1000L);
+        int reason = TransitionReasons.intern("Test reason");
+        
+        history.record(BotState.IDLE, BotState.MOVING, reason, 1500L);
+        history.record(BotState.MOVING, BotState.FIGHTING, TransitionReasons.forBehavior(BehaviorType.PVP), 1750L);
+        
+        List<BotStateManager.StateTransition> transitions = history.snapshot();
+        assertEquals(2, transitions.size());
+        
+        BotStateManager.StateTransition first = transitions.get(0);
+        assertEquals(BotState.IDLE, first.getFromState());
+        assertEquals(BotState.MOVING, first.getToState());
+        assertEquals("Test reason", first.getReason());
+        assertEquals(1500L, first.getTimestamp());
+        
+        BotStateManager.StateTransition second = transitions.get(1);
+        assertEquals(BotState.FIGHTING, second.getToState());
+        assertEquals("Behavior: " + BehaviorType.PVP, second.getReason());
+        assertEquals(1750L, second.getTimestamp());
+    }
+    
+    @Test
+    @DisplayName("Should keep only the newest transitions when full")
+    void testRingOverwrite() {
+        StateHistory history = new StateHistory(3, 0L);
+        BotState[] states = {BotState.IDLE, BotState.MOVING, BotState.FIGHTING, BotState.FARMING, BotState.RESTING};
+        for (int i = 1; i < states.length; i++) {
+            history.record(states[i - 1], states[i], TransitionReasons.UNKNOWN, i * 10L);
+        }
+        
+        List<BotStateManager.StateTransition> transitions = history.snapshot();
+        assertEquals(3, transitions.size());
+        assertEquals(BotState.MOVING, transitions.get(0).getFromState());
+        assertEquals(20L, transitions.get(0).getTimestamp());
+        assertEquals(BotState.RESTING, transitions.get(2).getToState());
+        assertEquals(40L, transitions.get(2).getTimestamp());
+    }
+    
+    @Test
+    @DisplayName("Should return the same id for the same reason")
+    void testReasonInterning() {
+        int id = TransitionReasons.intern("Repeated reason");
+        assertEquals(id, TransitionReasons.intern("Repeated reason"));
+        assertEquals("Repeated reason", TransitionReasons.name(id));
+        assertEquals(TransitionReasons.UNKNOWN, TransitionReasons.intern(null));
+    }
+}
@@ -0,0 +1,278 @@
+package net.sf.l2j.botmanager.integration;
+
+import net.sf.l2j.botmanager.core.BotContext;
+import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Тесты планировщика задач ботов.
+ */
+@DisplayName("Task Scheduler Tests")
+public class TaskSchedulerTest {
+
+    private TaskScheduler scheduler;
+
+    private static class RecordingTask implements TaskScheduler.ITask {
+        private final List<String> log;
+        private final String name;
+        private final long deadlineMs;
+        private final long cost;
+
+        RecordingTask(List<String> log, String name, long deadlineMs, long cost) {
+            this.log = log;
+            this.name = name;
+            this.deadlineMs = deadlineMs;
+            this.cost = cost;
+        }
+
+        RecordingTask(List<String> log, String name) {
+            this(log, name, TaskScheduler.DEFAULT_TASK_DEADLINE_MS, 1);
+        }
+
+        @Override
+        public boolean execute(EnhancedFakePlayer bot) {
+            log.add(name);
+            return true;
+        }
+
+        @Override
+        public String getType() {
+            return name;
+        }
+
+        @Override
+        public double getPriority() {
+            return 0.5;
+        }
+
+        @Override
+        public long getDeadlineMs() {
+            return deadlineMs;
+        }
+
+        @Override
+        public long getEstimatedCost() {
+            return cost;
+        }
+    }
+
+    private static EnhancedFakePlayer createBot(int botId) {
+        return new EnhancedFakePlayer(new BotContext(botId), null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null && scheduler.isActive()) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run ready tasks by priority")
+    void testPriorityOrder() {
+        scheduler = new TaskScheduler(null, 1);
+        scheduler.initialize();
+        EnhancedFakePlayer bot = createBot(1);
+        List<String> log = new ArrayList<>();
+
+        scheduler.addTask(bot, new RecordingTask(log, "low"), 0.1);
+        scheduler.addTask(bot, new RecordingTask(log, "high"), 0.9);
+
+        assertEquals(2, scheduler.processCycle(System.currentTimeMillis()));
+        assertEquals(List.of("high", "low"), log);
+    }
+
+    @Test
+    @DisplayName("Should fire delayed and periodic tasks from the timing wheel")
+    void testDelayedAndPeriodic() {
+        scheduler = new TaskScheduler(null, 1);
+        scheduler.initialize();
+        EnhancedFakePlayer bot = createBot(1);
+        List<String> log = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        scheduler.scheduleTask(bot, new RecordingTask(log, "delayed"), 0.5, 500);
+        long cancelled = scheduler.scheduleTask(bot, new RecordingTask(log, "cancelled"), 0.5, 100);
+        scheduler.scheduleAtFixedRate(bot, new RecordingTask(log, "periodic"), 0.5, 200, 200);
+        assertEquals(3, scheduler.getPendingTimerCount());
+        assertTrue(scheduler.cancelTask(bot, cancelled));
+        assertEquals(2, scheduler.getPendingTimerCount());
+
+        scheduler.processCycle(now);
+        assertTrue(log.isEmpty());
+
+        for (long t = now + 50; t <= now + 650; t += 50) {
+            scheduler.processCycle(t);
+        }
+        assertEquals(1, Collections.frequency(log, "delayed"));
+        assertEquals(3, Collections.frequency(log, "periodic"));
+        assertFalse(log.contains("cancelled"));
+    }
+
+    @Test
+    @DisplayName("Should keep the phase of a periodic task without initial delay")
+    void testPeriodicWithoutInitialDelay() {
+        scheduler = new TaskScheduler(null, 1);
+        scheduler.initialize();
+        EnhancedFakePlayer bot = createBot(1);
+        List<String> log = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        scheduler.scheduleAtFixedRate(bot, new RecordingTask(log, "periodic"), 0.5, 0, 1000);
+
+        List<Long> offsets = new ArrayList<>();
+        for (long t = now; t <= now + 2500; t += 10) {
+            int before = log.size();
+            scheduler.processCycle(t);
+            if (log.size() > before) {
+                offsets.add(t - now);
+            }
+        }
+        assertEquals(3, offsets.size(), "Runs: " + offsets);
+        assertEquals(0L, (long) offsets.get(0));
+        assertTrue(offsets.get(1) >= 1000 && offsets.get(1) < 1100, "Runs: " + offsets);
+        assertTrue(offsets.get(2) >= 2000 && offsets.get(2) < 2100, "Runs: " + offsets);
+    }
+
+    @Test
+    @DisplayName("Should dispatch earliest deadline first")
+    void testEdfOrder() {
+        scheduler = new TaskScheduler(null, 1, TaskScheduler.DispatchMode.EDF);
+        scheduler.initialize();
+        EnhancedFakePlayer bot = createBot(1);
+        List<String> log = new ArrayList<>();
+
+        scheduler.addTask(bot, new RecordingTask(log, "loot", 2000, 1), 0.9);
+        scheduler.addTask(bot, new RecordingTask(log, "heal", 50, 1), 0.1);
+        scheduler.addTask(bot, new RecordingTask(log, "move", 500, 1), 0.5);
+
+        scheduler.processCycle(System.currentTimeMillis());
+        assertEquals(List.of("heal", "move", "loot"), log);
+    }
+
+    @Test
+    @DisplayName("Should keep flooding bots within their share of a cycle")
+    void testDeficitRoundRobin() {
+        scheduler = new TaskScheduler(null, 1, TaskScheduler.DispatchMode.EDF);
+        scheduler.setCycleBudget(10);
+        scheduler.initialize();
+        EnhancedFakePlayer flooder = createBot(1);
+        EnhancedFakePlayer victim = createBot(2);
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < 100; i++) {
+            scheduler.addTask(flooder, new RecordingTask(log, "spam", 10, 1), 1.0);
+        }
+        scheduler.addTask(victim, new RecordingTask(log, "heal", 100, 1), 0.1);
+
+        // Квант каждого бота - половина бюджета цикла
+        assertEquals(6, scheduler.processCycle(now));
+        assertTrue(log.contains("heal"), "Victim should get its share despite the flood");
+        assertEquals(5, Collections.frequency(log, "spam"));
+        assertEquals(0, scheduler.getMissedDeadlines());
+    }
+
+    @Test
+    @DisplayName("Should count missed deadlines")
+    void testMissedDeadlines() {
+        scheduler = new TaskScheduler(null, 1, TaskScheduler.DispatchMode.EDF);
+        scheduler.setCycleBudget(1);
+        scheduler.initialize();
+        EnhancedFakePlayer bot = createBot(1);
+        List<String> log = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        scheduler.addTask(bot, new RecordingTask(log, "first", 10, 1), 0.5);
+        scheduler.addTask(bot, new RecordingTask(log, "second", 10, 1), 0.5);
+
+        assertEquals(1, scheduler.processCycle(now));
+        assertEquals(0, scheduler.getMissedDeadlines());
+
+        assertEquals(1, scheduler.processCycle(now + 1000));
+        assertEquals(1, scheduler.getMissedDeadlines());
+        assertTrue(scheduler.getStatistics().contains("Missed Deadlines=1"));
+    }
+
+    @Test
+    @DisplayName("Should count overdue tasks that are still waiting for the budget")
+    void testMissedDeadlinesOfWaitingTasks() {
+        scheduler = new TaskScheduler(null, 1, TaskScheduler.DispatchMode.EDF);
+        scheduler.setCycleBudget(1);
+        scheduler.initialize();
+        EnhancedFakePlayer bot = createBot(1);
+        List<String> log = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        scheduler.addTask(bot, new RecordingTask(log, "first", 10, 1), 0.5);
+        scheduler.addTask(bot, new RecordingTask(log, "second", 10, 1), 0.5);
+        scheduler.addTask(bot, new RecordingTask(log, "third", 10, 1), 0.5);
+
+        assertEquals(1, scheduler.processCycle(now));
+        assertEquals(0, scheduler.getMissedDeadlines());
+
+        // Выполнена одна задача, но просрочены обе оставшиеся
+        assertEquals(1, scheduler.processCycle(now + 1000));
+        assertEquals(2, scheduler.getMissedDeadlines());
+
+        // Повторно одна и та же задача не учитывается
+        assertEquals(1, scheduler.processCycle(now + 2000));
+        assertEquals(2, scheduler.getMissedDeadlines());
+    }
+
+    @Test
+    @DisplayName("Should keep each cycle within the budget")
+    void testCycleBudgetIsNotExceeded() {
+        scheduler = new TaskScheduler(null, 1, TaskScheduler.DispatchMode.EDF);
+        scheduler.setCycleBudget(10);
+        scheduler.initialize();
+        EnhancedFakePlayer urgent = createBot(1);
+        EnhancedFakePlayer heavy = createBot(2);
+        List<String> log = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        scheduler.addTask(urgent, new RecordingTask(log, "urgent", 10, 5), 0.5);
+        scheduler.addTask(heavy, new RecordingTask(log, "heavy", 1000, 8), 0.5);
+        assertEquals(1, scheduler.processCycle(now));
+
+        // Дефицита тяжелого бота хватает, но остаток бюджета цикла меньше стоимости
+        scheduler.addTask(urgent, new RecordingTask(log, "urgent", 10, 5), 0.5);
+        assertEquals(1, scheduler.processCycle(now));
+        assertEquals(List.of("urgent", "urgent"), log);
+
+        assertEquals(1, scheduler.processCycle(now));
+        assertEquals(List.of("urgent", "urgent", "heavy"), log);
+    }
+
+    @Test
+    @DisplayName("Should count failed tasks separately from completed ones")
+    void testFailedTasks() {
+        scheduler = new TaskScheduler(null, 1);
+        scheduler.initialize();
+        EnhancedFakePlayer bot = createBot(1);
+        List<String> log = new ArrayList<>();
+
+        scheduler.addTask(bot, new RecordingTask(log, "ok"), 0.5);
+        scheduler.addTask(bot, new RecordingTask(log, "broken") {
+            @Override
+            public boolean execute(EnhancedFakePlayer target) {
+                super.execute(target);
+                return false;
+            }
+        }, 0.5);
+
+        assertEquals(1, scheduler.processCycle(System.currentTimeMillis()));
+        assertEquals(2, log.size());
+        assertEquals(1, scheduler.getFailedTasks());
+        assertTrue(scheduler.getStatistics().contains("Completed=1, Failed=1"), scheduler.getStatistics());
+        assertTrue(scheduler.getBotStatistics(1).contains("Completed=1, Failed=1"), scheduler.getBotStatistics(1));
+    }
+}
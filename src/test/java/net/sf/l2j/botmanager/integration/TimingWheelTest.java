@@ -0,0 +1,126 @@
+package net.sf.l2j.botmanager.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тесты иерархического колеса таймеров.
+ */
+@DisplayName("Timing Wheel Tests")
+public class TimingWheelTest {
+
+    private static class Timer extends TimingWheel.Entry {
+        final String name;
+
+        Timer(String name) {
+            this.name = name;
+        }
+    }
+
+    @Test
+    @DisplayName("Should fire entries only after their deadline")
+    void testFireOnTime() {
+        TimingWheel<Timer> wheel = new TimingWheel<>(10, 8, 0);
+        Timer timer = new Timer("a");
+        assertTrue(wheel.add(timer, 35));
+        assertTrue(timer.isScheduled());
+
+        List<Timer> fired = new ArrayList<>();
+        assertEquals(0, wheel.advance(30, fired::add));
+        assertTrue(fired.isEmpty());
+
+        assertEquals(1, wheel.advance(40, fired::add));
+        assertSame(timer, fired.get(0));
+        assertFalse(timer.isScheduled());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should cascade long delays through upper levels")
+    void testCascade() {
+        TimingWheel<Timer> wheel = new TimingWheel<>(10, 8, 0);
+        Timer near = new Timer("near");
+        Timer far = new Timer("far");
+        Timer veryFar = new Timer("veryFar");
+        wheel.add(near, 50);
+        wheel.add(far, 1234);
+        wheel.add(veryFar, 50_000);
+        assertEquals(3, wheel.size());
+
+        List<Timer> fired = new ArrayList<>();
+        for (long now = 0; now <= 60_000; now += 10) {
+            int before = fired.size();
+            wheel.advance(now, fired::add);
+            for (int i = before; i < fired.size(); i++) {
+                Timer timer = fired.get(i);
+                assertTrue(now > timer.getDeadline(), timer.name + " fired early");
+                assertTrue(now - timer.getDeadline() <= 10, timer.name + " fired late");
+            }
+        }
+
+        assertEquals(3, fired.size());
+        assertEquals("near", fired.get(0).name);
+        assertEquals("far", fired.get(1).name);
+        assertEquals("veryFar", fired.get(2).name);
+    }
+
+    @Test
+    @DisplayName("Should jump over large time gaps")
+    void testLargeAdvance() {
+        TimingWheel<Timer> wheel = new TimingWheel<>(10, 8, 0);
+        Timer timer = new Timer("a");
+        wheel.add(timer, 5_000);
+
+        List<Timer> fired = new ArrayList<>();
+        assertEquals(1, wheel.advance(100_000, fired::add));
+        assertEquals(100_000, wheel.getCurrentTime());
+    }
+
+    @Test
+    @DisplayName("Should cancel scheduled entries")
+    void testCancel() {
+        TimingWheel<Timer> wheel = new TimingWheel<>(10, 8, 0);
+        Timer kept = new Timer("kept");
+        Timer cancelled = new Timer("cancelled");
+        wheel.add(kept, 100);
+        wheel.add(cancelled, 100);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(1, wheel.size());
+
+        List<Timer> fired = new ArrayList<>();
+        wheel.advance(200, fired::add);
+        assertEquals(1, fired.size());
+        assertSame(kept, fired.get(0));
+    }
+
+    @Test
+    @DisplayName("Should reject past deadlines and allow rescheduling")
+    void testPastDeadlineAndReschedule() {
+        TimingWheel<Timer> wheel = new TimingWheel<>(10, 8, 1000);
+        Timer timer = new Timer("a");
+        assertFalse(wheel.add(timer, 500));
+        assertFalse(timer.isScheduled());
+
+        assertTrue(wheel.add(timer, 1020));
+        assertThrows(IllegalStateException.class, () -> wheel.add(timer, 1050));
+
+        List<Timer> fired = new ArrayList<>();
+        wheel.advance(1030, fired::add);
+        assertEquals(1, fired.size());
+        assertTrue(wheel.add(timer, 1100));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should validate constructor arguments")
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<Timer>(0, 8, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<Timer>(10, 6, 0));
+    }
+}
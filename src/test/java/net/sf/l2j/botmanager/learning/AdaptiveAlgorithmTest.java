@@ -25,6 +25,7 @@ public class AdaptiveAlgorithmTest {
     @BeforeEach
     void setUp() {
         feedbackCollector = FeedbackCollector.getInstance();
+        feedbackCollector.reset();
         performanceAnalyzer = PerformanceAnalyzer.getInstance(feedbackCollector);
         adaptiveAlgorithm = AdaptiveAlgorithm.getInstance(feedbackCollector, performanceAnalyzer);
     }
@@ -4,6 +4,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -252,6 +255,78 @@ class Conv2DLayerTest {
         }
     }
     
+    @Test
+    @DisplayName("im2col convolution should match the direct loop implementation")
+    void testGradientEquivalence() {
+        int[][] configs = {
+            // filters, kernel, stride, padding, height, width, channels
+            {8, 3, 1, 1, 12, 12, 3},
+            {5, 5, 2, 2, 13, 11, 2},
+            {4, 1, 1, 0, 7, 9, 4},
+            {6, 3, 3, 0, 10, 10, 1}
+        };
+        Random random = new Random(42);
+        
+        for (int[] config : configs) {
+            Conv2DLayer conv = new Conv2DLayer(config[0], config[1], config[2], config[3]);
+            conv.initialize(config[4], config[5], config[6]);
+            double[] biases = conv.getBiases();
+            for (int f = 0; f < biases.length; f++) {
+                biases[f] = random.nextGaussian() * 0.1;
+            }
+            
+            double[][][] input = createRandomImage(random, config[4], config[5], config[6]);
+            double[][][] output = conv.forward(input);
+            double[][][] gradient = createRandomImage(random, output.length, output[0].length, output[0][0].length);
+            double[][][] inputGradient = conv.backward(gradient);
+            
+            double[] expectedWeightGradients = new double[conv.getWeights().length];
+            double[] expectedBiasGradients = new double[biases.length];
+            double[][][] expectedOutput = referenceForward(conv, input);
+            double[][][] expectedInputGradient = referenceBackward(conv, input, gradient,
+                expectedWeightGradients, expectedBiasGradients);
+            
+            String name = Arrays.toString(config);
+            assertArrayEquals(flatten(expectedOutput), flatten(output), 1e-12, "Forward should match for " + name);
+            assertArrayEquals(flatten(expectedInputGradient), flatten(inputGradient), 1e-12, "Input gradients should match for " + name);
+            assertArrayEquals(expectedWeightGradients, conv.getWeightGradients(), 1e-12, "Weight gradients should match for " + name);
+            assertArrayEquals(expectedBiasGradients, conv.getBiasGradients(), 1e-12, "Bias gradients should match for " + name);
+        }
+    }
+    
+    @Test
+    @DisplayName("Parallel convolution should match sequential convolution exactly")
+    void testParallelMatchesSequential() {
+        Random random = new Random(7);
+        Conv2DLayer sequential = new Conv2DLayer(8, 3, 1, 1);
+        sequential.initialize(32, 32, 4);
+        Conv2DLayer parallel = new Conv2DLayer(8, 3, 1, 1);
+        parallel.initialize(32, 32, 4);
+        System.arraycopy(sequential.getWeights(), 0, parallel.getWeights(), 0, sequential.getWeights().length);
+        parallel.setParallelism(4);
+        
+        double[] input = flatten(createRandomImage(random, 32, 32, 4));
+        double[] gradient = flatten(createRandomImage(random, 32, 32, 8));
+        
+        assertArrayEquals(sequential.forward(input), parallel.forward(input), 0.0);
+        assertArrayEquals(sequential.backward(input, gradient), parallel.backward(input, gradient), 0.0);
+        assertArrayEquals(sequential.getWeightGradients(), parallel.getWeightGradients(), 1e-12);
+        assertArrayEquals(sequential.getBiasGradients(), parallel.getBiasGradients(), 0.0);
+    }
+    
+    @Test
+    @DisplayName("Flat and 3D APIs should agree")
+    void testFlatApiMatches3D() {
+        layer.initialize(8, 8, 3);
+        double[][][] input = createTestImage(8, 8, 3);
+        
+        double[] flat = layer.forward(flatten(input));
+        double[] shaped = flatten(layer.forward(input));
+        
+        assertEquals(layer.getOutputSize(), flat.length);
+        assertArrayEquals(shaped, flat, 0.0);
+    }
+    
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
     /**
@@ -275,5 +350,94 @@ class Conv2DLayerTest {
         
         return image;
     }
+    
+    private static double[][][] createRandomImage(Random random, int height, int width, int channels) {
+        double[][][] image = new double[height][width][channels];
+        for (int h = 0; h < height; h++) {
+            for (int w = 0; w < width; w++) {
+                for (int c = 0; c < channels; c++) {
+                    image[h][w][c] = random.nextGaussian();
+                }
+            }
+        }
+        return image;
+    }
+    
+    private static double[] flatten(double[][][] array) {
+        double[] flat = new double[array.length * array[0].length * array[0][0].length];
+        int index = 0;
+        for (double[][] row : array) {
+            for (double[] pixel : row) {
+                for (double value : pixel) {
+                    flat[index++] = value;
+                }
+            }
+        }
+        return flat;
+    }
+    
+    /**
+     * Прямая свертка вложенными циклами (эталонная реализация)
+     */
+    private static double[][][] referenceForward(Conv2DLayer conv, double[][][] input) {
+        int[] in = conv.getInputShape();
+        int[] out = conv.getOutputShape();
+        int k = conv.getKernelSize();
+        double[] weights = conv.getWeights();
+        double[][][] output = new double[out[0]][out[1]][out[2]];
+        for (int f = 0; f < out[2]; f++) {
+            for (int oh = 0; oh < out[0]; oh++) {
+                for (int ow = 0; ow < out[1]; ow++) {
+                    double sum = 0.0;
+                    for (int kh = 0; kh < k; kh++) {
+                        for (int kw = 0; kw < k; kw++) {
+                            int ih = oh * conv.getStride() + kh - conv.getPadding();
+                            int iw = ow * conv.getStride() + kw - conv.getPadding();
+                            if (ih >= 0 && ih < in[0] && iw >= 0 && iw < in[1]) {
+                                for (int c = 0; c < in[2]; c++) {
+                                    sum += input[ih][iw][c] * weights[((f * k + kh) * k + kw) * in[2] + c];
+                                }
+                            }
+                        }
+                    }
+                    output[oh][ow][f] = sum + conv.getBiases()[f];
+                }
+            }
+        }
+        return output;
+    }
+    
+    /**
+     * Обратный проход вложенными циклами (эталонная реализация)
+     */
+    private static double[][][] referenceBackward(Conv2DLayer conv, double[][][] input, double[][][] gradient,
+                                                  double[] weightGradients, double[] biasGradients) {
+        int[] in = conv.getInputShape();
+        int[] out = conv.getOutputShape();
+        int k = conv.getKernelSize();
+        double[] weights = conv.getWeights();
+        double[][][] inputGradient = new double[in[0]][in[1]][in[2]];
+        for (int f = 0; f < out[2]; f++) {
+            for (int oh = 0; oh < out[0]; oh++) {
+                for (int ow = 0; ow < out[1]; ow++) {
+                    double grad = gradient[oh][ow][f];
+                    biasGradients[f] += grad;
+                    for (int kh = 0; kh < k; kh++) {
+                        for (int kw = 0; kw < k; kw++) {
+                            int ih = oh * conv.getStride() + kh - conv.getPadding();
+                            int iw = ow * conv.getStride() + kw - conv.getPadding();
+                            if (ih >= 0 && ih < in[0] && iw >= 0 && iw < in[1]) {
+                                for (int c = 0; c < in[2]; c++) {
+                                    int w = ((f * k + kh) * k + kw) * in[2] + c;
+                                    weightGradients[w] += grad * input[ih][iw][c];
+                                    inputGradient[ih][iw][c] += grad * weights[w];
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return inputGradient;
+    }
 }
-
@@ -348,6 +348,138 @@ class DeepNeuralNetworkTest {
         assertTrue(network.getTrainingEpochs() > 0, "Should have trained for some epochs");
     }
     
+    @Test
+    @DisplayName("Should configure mini-batch size")
+    void testBatchSizeConfiguration() {
+        assertEquals(DeepNeuralNetwork.DEFAULT_BATCH_SIZE, network.getBatchSize(), "Should use default batch size");
+        
+        network.setBatchSize(8);
+        assertEquals(8, network.getBatchSize(), "Should set batch size");
+        
+        network.setBatchSize(0);
+        assertEquals(1, network.getBatchSize(), "Should clamp to minimum");
+    }
+    
+    @Test
+    @DisplayName("Should reduce error with mini-batch training")
+    void testMiniBatchTraining() {
+        network.activate();
+        network.addDenseLayer(16, new ActivationFunction.Tanh());
+        network.addDenseLayer(2, new ActivationFunction.Sigmoid());
+        network.setBatchSize(4);
+        network.setLearningRate(0.5);
+        
+        int samples = 64;
+        ProcessedData data = createClassificationData(samples);
+        double[][] inputs = data.getInputs();
+        double[][] targets = data.getTargets();
+        
+        double initialError = 0.0;
+        for (int i = 0; i < samples; i++) {
+            double[] output = network.forward(inputs[i]);
+            for (int j = 0; j < 2; j++) {
+                initialError += (targets[i][j] - output[j]) * (targets[i][j] - output[j]);
+            }
+        }
+        initialError /= samples;
+        
+        assertTrue(network.train(data), "Training should succeed");
+        assertTrue(network.getCurrentError() < initialError, "Mini-batch training should reduce error");
+        assertTrue(network.getTrainingThroughput() > 0.0, "Throughput should be measured");
+    }
+    
+    @Test
+    @DisplayName("Should write inference output into caller buffer")
+    void testForwardIntoBuffer() {
+        network.activate();
+        network.addDenseLayer(8, new ActivationFunction.ReLU());
+        network.addDenseLayer(3, new ActivationFunction.Sigmoid());
+        
+        double[] inputs = {1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0};
+        double[] output = new double[3];
+        
+        assertTrue(network.forward(inputs, output), "Should write output");
+        assertArrayEquals(network.forward(inputs), output, 0.0, "Buffered inference should match forward");
+        assertFalse(network.forward(inputs, new double[2]), "Should reject wrong output size");
+    }
+    
+    @Test
+    @DisplayName("Should convert dense networks between precisions")
+    void testPrecisionConversion() {
+        network.activate();
+        network.addDenseLayer(8, new ActivationFunction.Tanh());
+        network.addDenseLayer(3, new ActivationFunction.Sigmoid());
+        
+        DeepNeuralNetwork single = network.toPrecision(Precision.FLOAT32);
+        assertEquals(Precision.FLOAT32, single.getPrecision());
+        assertEquals(network.getArchitecture(), single.getArchitecture());
+        assertTrue(single.getStatistics().contains("Precision: float32"));
+        
+        double[] inputs = {1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0};
+        assertArrayEquals(network.forward(inputs), single.forward(inputs), 1e-5);
+        
+        network.addDropoutLayer(0.2);
+        assertThrows(IllegalStateException.class, () -> network.toPrecision(Precision.FLOAT32));
+    }
+    
+    @Test
+    @DisplayName("Should configure training shards")
+    void testTrainingShardsConfiguration() {
+        assertEquals(1, network.getTrainingShards(), "Should train on a single thread by default");
+        
+        network.setTrainingShards(4);
+        assertEquals(4, network.getTrainingShards(), "Should set shard count");
+        assertTrue(network.getStatistics().contains("Training Shards: 4"));
+        
+        network.setTrainingShards(0);
+        assertEquals(1, network.getTrainingShards(), "Should clamp to minimum");
+    }
+    
+    @Test
+    @DisplayName("Sharded training should be deterministic and match single-threaded training")
+    void testShardedTrainingDeterminism() {
+        network.activate();
+        network.addDenseLayer(16, new ActivationFunction.Tanh());
+        network.addDenseLayer(2, new ActivationFunction.Sigmoid());
+        network.setBatchSize(16);
+        network.setLearningRate(0.1);
+        
+        DeepNeuralNetwork first = network.toPrecision(Precision.FLOAT64);
+        DeepNeuralNetwork second = network.toPrecision(Precision.FLOAT64);
+        first.setTrainingShards(4);
+        second.setTrainingShards(4);
+        
+        ProcessedData data = createClassificationData(64);
+        assertTrue(network.train(data), "Single-threaded training should succeed");
+        assertTrue(first.train(data), "Sharded training should succeed");
+        assertTrue(second.train(data), "Sharded training should succeed");
+        
+        double[] inputs = data.getInputs()[5];
+        assertArrayEquals(first.forward(inputs), second.forward(inputs), 0.0, "Same shard count should give identical weights");
+        assertEquals(first.getTrainingEpochs(), second.getTrainingEpochs());
+        assertArrayEquals(network.forward(inputs), first.forward(inputs), 1e-6, "Shards should only change summation order");
+    }
+    
+    @Test
+    @DisplayName("Distillation should fit softened teacher distributions")
+    void testDistillation() {
+        DeepNeuralNetwork student = EnsembleDistiller.createStudent(1, 10, new int[] {16}, 2);
+        student.setLearningRate(EnsembleDistiller.DEFAULT_LEARNING_RATE);
+        ProcessedData data = createClassificationData(64);
+        double[][] teacher = new double[64][];
+        for (int i = 0; i < teacher.length; i++) {
+            // Уверенный, но не однозначный учитель
+            teacher[i] = data.getTargets()[i][0] > 0 ? new double[] {0.8, 0.2} : new double[] {0.1, 0.9};
+        }
+        
+        assertThrows(IllegalArgumentException.class, () -> student.distill(data.getInputs(), teacher, 0.0, 10));
+        assertTrue(student.distill(data.getInputs(), teacher, 2.0, 400), "Distillation should succeed");
+        assertTrue(student.getCurrentError() < 0.01, "Softened KL divergence should be small: " + student.getCurrentError());
+        
+        double[] probabilities = DeepNeuralNetwork.softmax(student.forward(data.getInputs()[3]), 1.0);
+        assertArrayEquals(teacher[3], probabilities, 0.1, "Student should reproduce teacher distribution");
+    }
+    
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
     /**
@@ -371,4 +503,23 @@ class DeepNeuralNetworkTest {
         
         return new ProcessedData(inputs, targets);
     }
+    
+    /**
+     * Создает данные бинарной классификации с десятью входами
+     * 
+     * @param samples количество примеров
+     * @return данные для обучения
+     */
+    private ProcessedData createClassificationData(int samples) {
+        double[][] inputs = new double[samples][10];
+        double[][] targets = new double[samples][2];
+        for (int i = 0; i < samples; i++) {
+            for (int j = 0; j < 10; j++) {
+                inputs[i][j] = ((i * 7 + j * 3) % 11) / 10.0 - 0.5;
+            }
+            int label = inputs[i][0] + inputs[i][1] > 0 ? 1 : 0;
+            targets[i][label] = 1.0;
+        }
+        return new ProcessedData(inputs, targets);
+    }
 }
@@ -0,0 +1,314 @@
+package net.sf.l2j.botmanager.learning;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для DenseLayer
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("DenseLayer Tests")
+class DenseLayerTest {
+
+    private static final int INPUT_SIZE = 7;
+    private static final int OUTPUT_SIZE = 6;
+
+    private DenseLayer layer;
+    private double[] inputs;
+
+    @BeforeEach
+    void setUp() {
+        // Точное совпадение с наивным произведением гарантируется только скалярными циклами
+        TensorOps.setVectorized(false);
+
+        layer = new DenseLayer(OUTPUT_SIZE, new ActivationFunction.Tanh());
+        layer.initialize(INPUT_SIZE, OUTPUT_SIZE);
+
+        double[] biases = new double[OUTPUT_SIZE];
+        for (int j = 0; j < OUTPUT_SIZE; j++) {
+            biases[j] = 0.05 * j - 0.1;
+        }
+        layer.setBiases(biases);
+
+        inputs = new double[INPUT_SIZE];
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            inputs[i] = Math.sin(i + 1.0);
+        }
+    }
+
+    @AfterEach
+    void restoreKernels() {
+        TensorOps.setVectorized(true);
+    }
+
+    /**
+     * Наивный прямой проход по матрице [inputSize][outputSize]
+     */
+    private double[] referenceForward(double[] x) {
+        double[][] weights = layer.getWeights();
+        double[] biases = layer.getBiases();
+        double[] result = new double[OUTPUT_SIZE];
+        for (int j = 0; j < OUTPUT_SIZE; j++) {
+            double sum = biases[j];
+            for (int i = 0; i < INPUT_SIZE; i++) {
+                sum += x[i] * weights[i][j];
+            }
+            result[j] = Math.tanh(sum);
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("Forward should match the naive matrix product")
+    void testForwardMatchesReference() {
+        double[] expected = referenceForward(inputs);
+        double[] actual = layer.forward(inputs);
+
+        assertArrayEquals(expected, actual, 0.0, "Flat layout must reproduce the naive result exactly");
+    }
+
+    @Test
+    @DisplayName("Infer should write into the caller buffer without touching layer state")
+    void testInferMatchesForward() {
+        double[] other = new double[INPUT_SIZE];
+        other[0] = 1.0;
+        double[] trained = layer.forward(other);
+
+        double[] output = new double[OUTPUT_SIZE];
+        layer.infer(inputs, output);
+
+        assertArrayEquals(referenceForward(inputs), output, 0.0);
+        assertArrayEquals(trained, layer.getActivations(), 0.0, "Infer must not overwrite training activations");
+    }
+
+    @Test
+    @DisplayName("Forward should return a copy that survives later calls")
+    void testForwardReturnsCopy() {
+        double[] first = layer.forward(inputs);
+        double[] snapshot = first.clone();
+        layer.forward(new double[INPUT_SIZE]);
+
+        assertArrayEquals(snapshot, first, 0.0);
+    }
+
+    @Test
+    @DisplayName("Backward gradients should match numerical gradients")
+    void testBackwardMatchesNumericalGradient() {
+        double[] outputGradients = new double[OUTPUT_SIZE];
+        for (int j = 0; j < OUTPUT_SIZE; j++) {
+            outputGradients[j] = 1.0;
+        }
+
+        layer.forward(inputs);
+        double[] inputGradients = layer.backward(inputs, outputGradients).clone();
+
+        double eps = 1e-6;
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            double[] plus = inputs.clone();
+            double[] minus = inputs.clone();
+            plus[i] += eps;
+            minus[i] -= eps;
+            double numerical = (sum(referenceForward(plus)) - sum(referenceForward(minus))) / (2 * eps);
+            assertEquals(numerical, inputGradients[i], 1e-6, "Input gradient " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Weight update should follow the weight gradients")
+    void testUpdateWeights() {
+        double[][] before = layer.getWeights();
+        double[] outputGradients = new double[OUTPUT_SIZE];
+        outputGradients[2] = 1.0;
+
+        layer.forward(inputs);
+        layer.backward(inputs, outputGradients);
+        layer.updateWeights(0.5);
+
+        double[][] after = layer.getWeights();
+        double[] sums = layer.getWeightedSums();
+        double derivative = new ActivationFunction.Tanh().derivative(sums[2]);
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            for (int j = 0; j < OUTPUT_SIZE; j++) {
+                double expected = before[i][j] + (j == 2 ? 0.5 * inputs[i] * derivative : 0.0);
+                assertEquals(expected, after[i][j], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Set weights should round-trip through the flat layout")
+    void testSetWeightsRoundTrip() {
+        double[][] weights = new double[INPUT_SIZE][OUTPUT_SIZE];
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            for (int j = 0; j < OUTPUT_SIZE; j++) {
+                weights[i][j] = i * 10 + j;
+            }
+        }
+        layer.setWeights(weights);
+
+        double[][] copy = layer.getWeights();
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            assertArrayEquals(weights[i], copy[i], 0.0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> layer.setWeights(new double[OUTPUT_SIZE][INPUT_SIZE]));
+    }
+
+    @Test
+    @DisplayName("Batch forward should match per-sample forward")
+    void testForwardBatchMatchesForward() {
+        int batch = 5;
+        double[] packed = new double[batch * INPUT_SIZE];
+        for (int k = 0; k < packed.length; k++) {
+            packed[k] = Math.cos(k * 0.37);
+        }
+
+        double[] outputs = layer.forwardBatch(packed, batch).clone();
+        for (int r = 0; r < batch; r++) {
+            double[] row = new double[INPUT_SIZE];
+            System.arraycopy(packed, r * INPUT_SIZE, row, 0, INPUT_SIZE);
+            double[] expected = layer.forward(row);
+            for (int j = 0; j < OUTPUT_SIZE; j++) {
+                assertEquals(expected[j], outputs[r * OUTPUT_SIZE + j], 0.0, "Row " + r + ", output " + j);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Batch backward should average per-sample gradients")
+    void testBackwardBatchAveragesGradients() {
+        int batch = 3;
+        double[] packed = new double[batch * INPUT_SIZE];
+        double[] gradients = new double[batch * OUTPUT_SIZE];
+        for (int k = 0; k < packed.length; k++) {
+            packed[k] = Math.sin(k * 0.53);
+        }
+        for (int k = 0; k < gradients.length; k++) {
+            gradients[k] = (k % 4) - 1.5;
+        }
+
+        // Ожидаемое изменение весов - среднее изменений по отдельным примерам
+        double[][] before = layer.getWeights();
+        double[][] expectedDelta = new double[INPUT_SIZE][OUTPUT_SIZE];
+        double[] expectedInputGradients = new double[batch * INPUT_SIZE];
+        for (int r = 0; r < batch; r++) {
+            DenseLayer single = new DenseLayer(OUTPUT_SIZE, new ActivationFunction.Tanh());
+            single.initialize(INPUT_SIZE, OUTPUT_SIZE);
+            single.setWeights(before);
+            single.setBiases(layer.getBiases());
+
+            double[] row = new double[INPUT_SIZE];
+            double[] rowGradients = new double[OUTPUT_SIZE];
+            System.arraycopy(packed, r * INPUT_SIZE, row, 0, INPUT_SIZE);
+            System.arraycopy(gradients, r * OUTPUT_SIZE, rowGradients, 0, OUTPUT_SIZE);
+            single.forward(row);
+            double[] inputGradients = single.backward(row, rowGradients);
+            System.arraycopy(inputGradients, 0, expectedInputGradients, r * INPUT_SIZE, INPUT_SIZE);
+            single.updateWeights(1.0);
+
+            double[][] after = single.getWeights();
+            for (int i = 0; i < INPUT_SIZE; i++) {
+                for (int j = 0; j < OUTPUT_SIZE; j++) {
+                    expectedDelta[i][j] += (after[i][j] - before[i][j]) / batch;
+                }
+            }
+        }
+
+        layer.forwardBatch(packed, batch);
+        double[] inputGradients = layer.backwardBatch(packed, gradients, batch);
+        layer.updateWeights(1.0);
+
+        assertArrayEquals(expectedInputGradients, Arrays.copyOf(inputGradients, batch * INPUT_SIZE), 1e-12);
+        double[][] after = layer.getWeights();
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            for (int j = 0; j < OUTPUT_SIZE; j++) {
+                assertEquals(before[i][j] + expectedDelta[i][j], after[i][j], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Float32 layer should match float64 outputs and gradients")
+    void testFloatPrecisionParity() {
+        DenseLayer single = layer.toPrecision(Precision.FLOAT32);
+        assertEquals(Precision.FLOAT32, single.getPrecision());
+        assertEquals(Precision.FLOAT64, layer.getPrecision());
+        assertTrue(single.getParameterBytes() < layer.getParameterBytes());
+        
+        assertArrayEquals(layer.forward(inputs), single.forward(inputs), 1e-6);
+        double[] output = new double[OUTPUT_SIZE];
+        single.infer(inputs, output);
+        assertArrayEquals(layer.getActivations(), output, 1e-6);
+        
+        double[] outputGradients = new double[OUTPUT_SIZE];
+        Arrays.fill(outputGradients, 1.0);
+        double[] expected = layer.backward(inputs, outputGradients).clone();
+        assertArrayEquals(expected, single.backward(inputs, outputGradients), 1e-6);
+        
+        layer.updateWeights(0.1);
+        single.updateWeights(0.1);
+        double[][] doubleWeights = layer.getWeights();
+        double[][] floatWeights = single.getWeights();
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            assertArrayEquals(doubleWeights[i], floatWeights[i], 1e-6);
+        }
+    }
+    
+    @Test
+    @DisplayName("Float32 batch training should match float64 batch training")
+    void testFloatPrecisionBatchParity() {
+        DenseLayer single = layer.toPrecision(Precision.FLOAT32);
+        int batch = 4;
+        double[] packed = new double[batch * INPUT_SIZE];
+        double[] gradients = new double[batch * OUTPUT_SIZE];
+        for (int k = 0; k < packed.length; k++) {
+            packed[k] = Math.sin(k * 0.29);
+        }
+        for (int k = 0; k < gradients.length; k++) {
+            gradients[k] = Math.cos(k * 0.41);
+        }
+        
+        assertArrayEquals(layer.forwardBatch(packed, batch).clone(), single.forwardBatch(packed, batch), 1e-6);
+        double[] expected = layer.backwardBatch(packed, gradients, batch).clone();
+        assertArrayEquals(expected, single.backwardBatch(packed, gradients, batch), 1e-6);
+        
+        layer.updateWeights(0.5);
+        single.updateWeights(0.5);
+        double[][] doubleWeights = layer.getWeights();
+        double[][] floatWeights = single.getWeights();
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            assertArrayEquals(doubleWeights[i], floatWeights[i], 1e-6);
+        }
+        assertArrayEquals(layer.getBiases(), single.getBiases(), 1e-6);
+    }
+    
+    @Test
+    @DisplayName("Converting to float32 and back should round weights to float")
+    void testPrecisionRoundTrip() {
+        double[][] original = layer.getWeights();
+        double[][] restored = layer.toPrecision(Precision.FLOAT32).toPrecision(Precision.FLOAT64).getWeights();
+        
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            for (int j = 0; j < OUTPUT_SIZE; j++) {
+                assertEquals((float) original[i][j], restored[i][j], 0.0);
+            }
+        }
+        assertArrayEquals(layer.getBiases(), layer.toPrecision(Precision.FLOAT32).getBiases(), 0.0);
+    }
+    
+    private static double sum(double[] values) {
+        double total = 0.0;
+        for (double value : values) {
+            total += value;
+        }
+        return total;
+    }
+}
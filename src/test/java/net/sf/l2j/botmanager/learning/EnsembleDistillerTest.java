@@ -0,0 +1,97 @@
+package net.sf.l2j.botmanager.learning;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для EnsembleDistiller
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("EnsembleDistiller Tests")
+class EnsembleDistillerTest {
+
+    @Test
+    @DisplayName("Student should agree with the ensemble on held-out situations")
+    void testDistillEnsemble() {
+        VotingEnsemble teacher = new VotingEnsemble(1, VotingEnsemble.VotingType.SOFT, 3);
+        for (int i = 0; i < 3; i++) {
+            DeepNeuralNetwork member = new DeepNeuralNetwork(i);
+            member.addDenseLayer(8, new ActivationFunction.Tanh());
+            member.addDenseLayer(3, new ActivationFunction.Sigmoid());
+            member.activate();
+            teacher.addModel(member);
+        }
+        assertTrue(teacher.activate());
+
+        double[][] situations = EnsembleDistiller.simulate(createSituations(50), 3, 0.1, 7);
+        EnsembleDistiller distiller = new EnsembleDistiller(teacher);
+        distiller.setHiddenSizes(16);
+        distiller.setMaxEpochs(300);
+        distiller.setSeed(3);
+
+        DistillationReport report = distiller.distill(2, situations);
+
+        assertNotNull(report, "Distillation should produce a report");
+        assertEquals(40, report.getSamples(), "Report should use the 20% holdout");
+        assertEquals(2, report.getStudent().getLayerCount(), "Student should have one hidden layer");
+        // Случайные члены ансамбля дают близкие вероятности классов, поэтому порог согласия умеренный
+        assertTrue(report.getTopAgreement() >= 0.6, "Student should agree with teacher: " + report);
+        assertTrue(report.getMeanAbsError() < 0.05, "Distributions should be close: " + report);
+        assertTrue(report.getStudentNanos() > 0 && report.getTeacherNanos() > 0);
+
+        // Ученик заменяет ансамбль: возвращает распределение классов, а не логиты
+        double[] probabilities = report.getStudent().predictProbabilities(situations[0]);
+        double[] expected = teacher.predict(situations[0]);
+        assertEquals(expected.length, probabilities.length);
+        double total = 0.0;
+        for (int j = 0; j < probabilities.length; j++) {
+            assertTrue(probabilities[j] >= 0.0 && probabilities[j] <= 1.0);
+            assertEquals(expected[j], probabilities[j], 0.1);
+            total += probabilities[j];
+        }
+        assertEquals(1.0, total, 1e-9, "Probabilities should sum to one");
+    }
+
+    @Test
+    @DisplayName("Simulated situations should be reproducible noisy copies")
+    void testSimulate() {
+        double[][] recorded = createSituations(5);
+        double[][] first = EnsembleDistiller.simulate(recorded, 2, 0.05, 11);
+        double[][] second = EnsembleDistiller.simulate(recorded, 2, 0.05, 11);
+
+        assertEquals(15, first.length);
+        assertSame(recorded[0], first[0], "Recorded situations should come first");
+        for (int i = 0; i < first.length; i++) {
+            assertArrayEquals(first[i], second[i], "Same seed should give same situations");
+        }
+        assertArrayEquals(recorded[1], first[6], 0.3, "Copies should stay near the recorded situation");
+    }
+
+    @Test
+    @DisplayName("Inactive teacher should produce no student")
+    void testInactiveTeacher() {
+        VotingEnsemble teacher = new VotingEnsemble(1, VotingEnsemble.VotingType.SOFT, 3);
+        assertNull(new EnsembleDistiller(teacher).distill(2, createSituations(10)));
+        assertThrows(IllegalArgumentException.class, () -> new EnsembleDistiller(null));
+    }
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
+    private static double[][] createSituations(int count) {
+        Random random = new Random(5);
+        double[][] situations = new double[count][10];
+        for (double[] situation : situations) {
+            for (int j = 0; j < situation.length; j++) {
+                situation[j] = random.nextDouble() * 2 - 1;
+            }
+        }
+        return situations;
+    }
+}
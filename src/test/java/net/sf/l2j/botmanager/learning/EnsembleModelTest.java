@@ -294,6 +294,104 @@ class EnsembleModelTest {
         }
     }
     
+    @Nested
+    @DisplayName("Execution Engine Tests")
+    class ExecutionEngineTests {
+        
+        @Test
+        @DisplayName("Parallel prediction should match sequential prediction")
+        void testParallelPrediction() {
+            for (int i = 0; i < 4; i++) {
+                ensemble.addModel(createMember(i));
+            }
+            ensemble.activate();
+            
+            for (int n = 0; n < 20; n++) {
+                double[] input = createTestInput(10);
+                ensemble.setParallelExecution(false);
+                double[] expected = ensemble.predict(input);
+                ensemble.setParallelExecution(true);
+                assertArrayEquals(expected, ensemble.predict(input), "Parallel prediction should be identical");
+            }
+            assertEquals(4, ensemble.getMemberCosts().length, "Costs should be tracked per member");
+        }
+        
+        @Test
+        @DisplayName("Cascade should stop once the hard vote is decided")
+        void testCascadeEarlyExit() {
+            VotingEnsemble hard = new VotingEnsemble(TEST_BOT_ID, VotingEnsemble.VotingType.HARD, 3);
+            DeepNeuralNetwork member = createMember(0);
+            hard.addModel(member);
+            for (int i = 1; i < 5; i++) {
+                hard.addModel(member.toPrecision(Precision.FLOAT64));
+            }
+            hard.activate();
+            
+            double[] input = createTestInput(10);
+            double[] expected = hard.predict(input);
+            hard.setCascadeEnabled(true);
+            double[] result = hard.predict(input);
+            
+            assertEquals(1, hard.getCascadeExits(), "Unanimous votes should stop the cascade");
+            assertEquals(2, hard.getSkippedEvaluations(), "Three of five votes decide the outcome");
+            assertArrayEquals(expected, result, "Unanimous vote should give the same distribution");
+        }
+        
+        @Test
+        @DisplayName("Cascade should preserve the winning class")
+        void testCascadePreservesWinner() {
+            BaggingEnsemble bagging = new BaggingEnsemble(TEST_BOT_ID, 0.8, 3);
+            for (int i = 0; i < 6; i++) {
+                DeepNeuralNetwork member = createMember(i);
+                ensemble.addModel(member);
+                bagging.addModel(member.toPrecision(Precision.FLOAT64));
+            }
+            ensemble.activate();
+            bagging.activate();
+            
+            for (EnsembleModel model : new EnsembleModel[] {ensemble, bagging}) {
+                for (int n = 0; n < 100; n++) {
+                    double[] input = createTestInput(10);
+                    model.setCascadeEnabled(false);
+                    double[] expected = model.predict(input);
+                    model.setCascadeEnabled(true);
+                    assertEquals(argMax(expected), argMax(model.predict(input)),
+                        "Cascade should choose the same class for " + model.getType());
+                }
+            }
+        }
+        
+        @Test
+        @DisplayName("Bootstrap samples should depend only on the seed")
+        void testReproducibleBootstrapSamples() {
+            double[][] inputs = createTestData(20, 10, 3);
+            double[][] targets = createTestData(20, 3, 3);
+            BaggingEnsemble first = new BaggingEnsemble(TEST_BOT_ID, 0.5, 3);
+            BaggingEnsemble second = new BaggingEnsemble(TEST_BOT_ID, 0.5, 3);
+            for (int i = 0; i < 3; i++) {
+                first.addModel(createMember(i));
+                second.addModel(createMember(i));
+            }
+            first.setSeed(42);
+            second.setSeed(42);
+            
+            java.util.SplittableRandom[] firstStreams = first.createMemberStreams();
+            java.util.SplittableRandom[] secondStreams = second.createMemberStreams();
+            for (int i = 2; i >= 0; i--) {
+                BaggingEnsemble.BootstrapSample a = first.createBootstrapSample(inputs, targets, firstStreams[i]);
+                BaggingEnsemble.BootstrapSample b = second.createBootstrapSample(inputs, targets, secondStreams[i]);
+                assertEquals(10, a.inputs.length);
+                for (int r = 0; r < a.inputs.length; r++) {
+                    assertArrayEquals(a.inputs[r], b.inputs[r], "Member " + i + " samples should match");
+                }
+            }
+            
+            first.activate();
+            first.setParallelExecution(true);
+            assertTrue(first.train(inputs, targets, 1), "Parallel training should succeed");
+        }
+    }
+    
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
     /**
@@ -310,6 +408,30 @@ class EnsembleModelTest {
         return input;
     }
     
+    /**
+     * Создает активную модель ансамбля 10 -> 8 -> 3 с сигмоидой на выходе
+     * 
+     * @param botId ID бота модели
+     * @return модель
+     */
+    private DeepNeuralNetwork createMember(int botId) {
+        DeepNeuralNetwork model = new DeepNeuralNetwork(botId);
+        model.addDenseLayer(8, new ActivationFunction.Tanh());
+        model.addDenseLayer(3, new ActivationFunction.Sigmoid());
+        model.activate();
+        return model;
+    }
+    
+    private static int argMax(double[] values) {
+        int best = 0;
+        for (int j = 1; j < values.length; j++) {
+            if (values[j] > values[best]) {
+                best = j;
+            }
+        }
+        return best;
+    }
+    
     /**
      * Создает тестовые данные обучения
      * 
@@ -0,0 +1,196 @@
+package net.sf.l2j.botmanager.learning;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для ExperienceReplayBuffer
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("ExperienceReplayBuffer Tests")
+class ExperienceReplayBufferTest {
+
+    private static final int FEATURES = 4;
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("replay-buffer");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    @DisplayName("Uniform sampling should return appended records")
+    void testUniformSampling() {
+        ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(16, FEATURES);
+        for (int i = 0; i < 10; i++) {
+            buffer.append(state(i), i, i * 0.5, state(i + 1), i == 9);
+        }
+        assertEquals(10, buffer.size());
+
+        ExperienceReplayBuffer.Batch batch = buffer.createBatch(8);
+        assertEquals(8, buffer.sampleUniform(batch));
+        for (int k = 0; k < batch.size(); k++) {
+            int action = batch.getActions()[k];
+            assertEquals(action * 0.5, batch.getRewards()[k], 1e-6);
+            assertEquals(action == 9, batch.getDone()[k]);
+            assertEquals(1.0, batch.getWeights()[k]);
+            for (int j = 0; j < FEATURES; j++) {
+                assertEquals(state(action)[j], batch.getStates()[k * FEATURES + j], 1e-6);
+                assertEquals(state(action + 1)[j], batch.getNextStates()[k * FEATURES + j], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Buffer should keep only the latest records")
+    void testWraparound() {
+        ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(8, FEATURES);
+        for (int i = 0; i < 100; i++) {
+            buffer.append(state(i), i, 0.0, state(i), false);
+        }
+        assertEquals(8, buffer.size());
+        assertEquals(100, buffer.getTotalAppended());
+
+        ExperienceReplayBuffer.Batch batch = buffer.createBatch(64);
+        buffer.sampleUniform(batch);
+        for (int k = 0; k < batch.size(); k++) {
+            assertTrue(batch.getActions()[k] >= 92, "Stale record sampled: " + batch.getActions()[k]);
+        }
+    }
+
+    @Test
+    @DisplayName("Prioritized sampling should favour high priority records")
+    void testPrioritizedSampling() {
+        ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(32, FEATURES);
+        buffer.setSeed(7);
+        buffer.setPrioritization(1.0, 1.0);
+        for (int i = 0; i < 32; i++) {
+            buffer.append(state(i), 0, i == 0 ? 1 : 0, 0.0, state(i), 0, false, i == 0 ? 100.0 : 1.0);
+        }
+
+        ExperienceReplayBuffer.Batch batch = buffer.createBatch(32);
+        int selected = 0;
+        for (int round = 0; round < 10; round++) {
+            assertEquals(32, buffer.samplePrioritized(batch));
+            for (int k = 0; k < batch.size(); k++) {
+                assertTrue(batch.getWeights()[k] > 0.0 && batch.getWeights()[k] <= 1.0);
+                if (batch.getActions()[k] == 1) {
+                    selected++;
+                }
+            }
+        }
+        // Запись с приоритетом 100 занимает 100 / 131 суммы приоритетов
+        assertTrue(selected > 200, "High priority record selected " + selected + " times");
+
+        double[] errors = new double[batch.size()];
+        buffer.updatePriorities(batch, errors);
+        assertEquals(100.0, buffer.getMaxPriority(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Concurrent appends should publish complete records")
+    void testConcurrentAppend() throws InterruptedException {
+        ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(64, FEATURES);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int writer = t;
+            writers[t] = new Thread(() -> {
+                double[] features = new double[FEATURES];
+                for (int i = 0; i < 10000; i++) {
+                    Arrays.fill(features, writer * 100000 + i);
+                    buffer.append(features, writer * 100000 + i, 0.0, features, false);
+                }
+            });
+            writers[t].start();
+        }
+
+        ExperienceReplayBuffer.Batch batch = buffer.createBatch(16);
+        while (isAlive(writers)) {
+            buffer.sampleUniform(batch);
+            assertConsistent(batch);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(40000, buffer.getTotalAppended());
+        assertEquals(64, buffer.size());
+        assertEquals(16, buffer.sampleUniform(batch));
+        assertConsistent(batch);
+    }
+
+    @Test
+    @DisplayName("File buffer should recover records after reopening")
+    void testFileRecovery() throws IOException {
+        Path file = directory.resolve("replay.bin");
+        try (ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(8, FEATURES, file)) {
+            for (int i = 0; i < 12; i++) {
+                buffer.append(state(i), i, 1.0, state(i), false);
+            }
+            buffer.flush();
+        }
+
+        try (ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(8, FEATURES, file)) {
+            assertEquals(8, buffer.size());
+            assertEquals(12, buffer.getTotalAppended());
+            ExperienceReplayBuffer.Batch batch = buffer.createBatch(16);
+            assertEquals(16, buffer.sampleUniform(batch));
+            for (int k = 0; k < batch.size(); k++) {
+                assertTrue(batch.getActions()[k] >= 4);
+            }
+        }
+
+        // Файл с другими параметрами перезаписывается пустым буфером
+        try (ExperienceReplayBuffer buffer = new ExperienceReplayBuffer(8, FEATURES + 1, file)) {
+            assertEquals(0, buffer.size());
+        }
+    }
+
+    private static double[] state(int index) {
+        double[] state = new double[FEATURES];
+        for (int j = 0; j < FEATURES; j++) {
+            state[j] = index + j * 0.25;
+        }
+        return state;
+    }
+
+    private static boolean isAlive(Thread[] threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertConsistent(ExperienceReplayBuffer.Batch batch) {
+        for (int k = 0; k < batch.size(); k++) {
+            int action = batch.getActions()[k];
+            for (int j = 0; j < FEATURES; j++) {
+                assertEquals((float) action, batch.getStates()[k * FEATURES + j], "Torn record");
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.actions.ActionType;
+import net.sf.l2j.botmanager.behaviors.BehaviorType;
+import net.sf.l2j.botmanager.core.BotContext;
+import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для FeedbackCollector, ActionFeedback и BehaviorFeedback
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("FeedbackCollector Tests")
+class FeedbackCollectorTest {
+
+    private FeedbackCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        collector = FeedbackCollector.getInstance();
+        collector.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        collector.reset();
+    }
+
+    @Test
+    @DisplayName("Feedback should be tracked per bot")
+    void testPerBotFeedback() {
+        EnhancedFakePlayer first = createBot(101);
+        EnhancedFakePlayer second = createBot(102);
+
+        collector.recordAction(first, ActionType.ATTACK, true, 10, "hit");
+        collector.recordAction(first, ActionType.ATTACK, false, 30, "miss");
+        collector.recordBehavior(second, BehaviorType.PVP, true, 100, 4, "duel");
+
+        ActionFeedback firstActions = collector.getActionFeedback(101);
+        assertNotNull(firstActions);
+        assertEquals(2, firstActions.getTotalExecutions());
+        assertEquals(50.0, firstActions.getSuccessRate(), 1e-9);
+        assertEquals(20.0, firstActions.getAverageExecutionTime(), 1e-9);
+        assertEquals(10, firstActions.getMinExecutionTime());
+        assertEquals(30, firstActions.getMaxExecutionTime());
+        assertNull(collector.getBehaviorFeedback(101), "Bot without behaviors should have no behavior feedback");
+
+        BehaviorFeedback secondBehaviors = collector.getBehaviorFeedback(102);
+        assertNotNull(secondBehaviors);
+        assertEquals(4.0, secondBehaviors.getAverageActionsPerformed(), 1e-9);
+        assertNull(collector.getActionFeedback(102));
+
+        assertEquals(2, collector.getAllBotIds().size());
+        assertEquals(2, collector.getActionFeedback().get(ActionType.ATTACK).getTotalExecutions());
+
+        collector.removeBot(101);
+        assertNull(collector.getActionFeedback(101));
+    }
+
+    @Test
+    @DisplayName("Recent details should keep the latest records")
+    void testRecentDetails() {
+        ActionFeedback feedback = new ActionFeedback(ActionType.ATTACK);
+        for (int i = 0; i < 300; i++) {
+            feedback.recordExecution(true, i, i % 2 == 0 ? "even" : null);
+        }
+
+        List<String> details = feedback.getRecentDetails();
+        assertEquals(FeedbackDetails.CAPACITY / 2, details.size());
+        assertTrue(details.stream().allMatch("even"::equals));
+        assertEquals(FeedbackDetails.codeOf("even"), FeedbackDetails.codeOf("even"));
+
+        feedback.reset();
+        assertTrue(feedback.getRecentDetails().isEmpty());
+        assertEquals(0, feedback.getTotalExecutions());
+        assertEquals(0.0, feedback.getAverageExecutionTime());
+    }
+
+    @Test
+    @DisplayName("Concurrent recording should not lose executions")
+    void testConcurrentRecording() throws InterruptedException {
+        EnhancedFakePlayer bot = createBot(103);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    collector.recordAction(bot, ActionType.ATTACK, i % 4 != 0, 5, "tick");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        ActionFeedback feedback = collector.getActionFeedback(103);
+        assertEquals(20000, feedback.getTotalExecutions());
+        assertEquals(75.0, feedback.getSuccessRate(), 1e-9);
+        assertEquals(20000, collector.getOverallFeedback().getTotalActions());
+        assertEquals(5.0, feedback.getAverageExecutionTime(), 1e-9);
+    }
+
+    private static EnhancedFakePlayer createBot(int botId) {
+        BotContext context = new BotContext(botId);
+        EnhancedFakePlayer bot = new EnhancedFakePlayer(context, null);
+        context.setBot(bot);
+        return bot;
+    }
+}
@@ -0,0 +1,187 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.actions.ActionType;
+import net.sf.l2j.botmanager.behaviors.BehaviorType;
+import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для FeedbackDispatcher
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("FeedbackDispatcher Tests")
+class FeedbackDispatcherTest {
+
+    private FeedbackDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new FeedbackDispatcher(1024, 16, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.stop();
+    }
+
+    @Test
+    @DisplayName("Records should be delivered in order as batches of one kind")
+    void testOrderedBatchDelivery() {
+        RecordingListener listener = new RecordingListener();
+        assertTrue(dispatcher.subscribe(listener));
+        assertFalse(dispatcher.subscribe(listener), "Listener should be subscribed once");
+
+        for (int i = 0; i < 100; i++) {
+            dispatcher.publish(FeedbackRecord.action(null, ActionType.ATTACK, true, i, null));
+        }
+        dispatcher.publish(FeedbackRecord.behavior(null, BehaviorType.PVP, true, 100, 3, "duel"));
+
+        assertTrue(dispatcher.awaitDelivery(5000));
+        assertEquals(100, listener.actions.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, listener.actions.get(i).getExecutionTime());
+        }
+        assertEquals(1, listener.behaviors.size());
+        assertTrue(listener.maxBatch <= 16, "Batches should not exceed batch size");
+
+        FeedbackDispatcher.ListenerStats stats = dispatcher.getListenerStats().get(0);
+        assertEquals(101, stats.getDelivered());
+        assertEquals(0, stats.getDropped());
+        assertEquals(0, stats.getBacklog());
+    }
+
+    @Test
+    @DisplayName("Blocked listeners should drop by policy without stalling publishers or others")
+    void testSlowListenerIsolation() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener oldest = new BlockedListener(release);
+        RecordingListener newest = new BlockedListener(release);
+        RecordingListener fast = new RecordingListener();
+        dispatcher.subscribe(oldest, 8, FeedbackDispatcher.DropPolicy.DROP_OLDEST);
+        dispatcher.subscribe(newest, 8, FeedbackDispatcher.DropPolicy.DROP_NEWEST);
+        dispatcher.subscribe(fast);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 500; i++) {
+            dispatcher.publish(FeedbackRecord.action(null, ActionType.MOVE, true, i, null));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000,
+            "Publishing should not wait for listeners");
+
+        // Быстрый слушатель получает все записи, пока медленные заблокированы
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fast.actions.size() < 500 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(500, fast.actions.size());
+
+        release.countDown();
+        assertTrue(dispatcher.awaitDelivery(5000));
+
+        List<FeedbackDispatcher.ListenerStats> stats = dispatcher.getListenerStats();
+        for (int i = 0; i < 2; i++) {
+            assertTrue(stats.get(i).getDropped() > 0, "Blocked listener should drop records");
+            assertEquals(500, stats.get(i).getDelivered() + stats.get(i).getDropped());
+        }
+        assertEquals(0, stats.get(2).getDropped());
+        assertEquals(499, oldest.actions.get(oldest.actions.size() - 1).getExecutionTime(),
+            "DROP_OLDEST should keep the latest record");
+        assertTrue(newest.actions.get(newest.actions.size() - 1).getExecutionTime() < 499,
+            "DROP_NEWEST should drop the latest records");
+        assertEquals(0, newest.actions.get(0).getExecutionTime());
+
+        assertTrue(dispatcher.unsubscribe(fast));
+        assertEquals(2, dispatcher.getListenerCount());
+    }
+
+    @Test
+    @DisplayName("Listener errors should be counted and not stop delivery")
+    void testListenerErrors() {
+        RecordingListener failing = new RecordingListener() {
+            @Override
+            public void onLearningEventBatch(List<FeedbackRecord> records) {
+                throw new IllegalStateException("listener failure");
+            }
+        };
+        dispatcher.subscribe(failing);
+
+        dispatcher.publish(FeedbackRecord.learningEvent(null, new LearningEvent(1, "test", null, 1.0)));
+        assertTrue(dispatcher.awaitDelivery(5000));
+        dispatcher.publish(FeedbackRecord.action(null, ActionType.ATTACK, false, 1, null));
+        assertTrue(dispatcher.awaitDelivery(5000));
+
+        FeedbackDispatcher.ListenerStats stats = dispatcher.getListenerStats().get(0);
+        assertEquals(1, stats.getErrors());
+        assertEquals(2, stats.getDelivered());
+        assertEquals(1, failing.actions.size());
+    }
+
+    /**
+     * Слушатель, ожидающий разрешения перед приемом действий
+     */
+    private static class BlockedListener extends RecordingListener {
+        private final CountDownLatch release;
+
+        BlockedListener(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void onActionFeedbackBatch(List<FeedbackRecord> records) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.onActionFeedbackBatch(records);
+        }
+    }
+
+    /**
+     * Слушатель, сохраняющий полученные записи
+     */
+    private static class RecordingListener implements IFeedbackListener {
+        final List<FeedbackRecord> actions = Collections.synchronizedList(new ArrayList<>());
+        final List<FeedbackRecord> behaviors = Collections.synchronizedList(new ArrayList<>());
+        volatile int maxBatch;
+
+        @Override
+        public void onActionFeedback(EnhancedFakePlayer bot, ActionType actionType, boolean success,
+                                     long executionTime, String details) {
+        }
+
+        @Override
+        public void onBehaviorFeedback(EnhancedFakePlayer bot, BehaviorType behaviorType, boolean success,
+                                       long executionTime, int actionsPerformed, String details) {
+        }
+
+        @Override
+        public void onLearningEvent(EnhancedFakePlayer bot, LearningEvent event) {
+        }
+
+        @Override
+        public void onActionFeedbackBatch(List<FeedbackRecord> records) {
+            maxBatch = Math.max(maxBatch, records.size());
+            actions.addAll(records);
+        }
+
+        @Override
+        public void onBehaviorFeedbackBatch(List<FeedbackRecord> records) {
+            behaviors.addAll(records);
+        }
+    }
+}
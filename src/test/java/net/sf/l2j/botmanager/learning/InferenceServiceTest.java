@@ -0,0 +1,136 @@
+package net.sf.l2j.botmanager.learning;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для InferenceService
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("InferenceService Tests")
+class InferenceServiceTest {
+
+    /**
+     * Размер входа сети: контекст содержит только состояние бота (7 значений)
+     */
+    private static final int INPUT_SIZE = 7;
+
+    private InferenceService service;
+    private NeuralNetwork first;
+    private NeuralNetwork second;
+
+    @BeforeEach
+    void setUp() {
+        service = new InferenceService(64);
+        first = new NeuralNetwork(1, INPUT_SIZE, 1, 8, 5);
+        second = new NeuralNetwork(2, INPUT_SIZE, 1, 8, 5);
+        first.activate();
+        second.activate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    @DisplayName("Should group requests by model and complete them on flush")
+    void testFlushGroupsByModel() throws Exception {
+        List<CompletableFuture<ActionPrediction>> futures = new ArrayList<>();
+        List<PredictionContext> contexts = new ArrayList<>();
+        List<NeuralNetwork> networks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            NeuralNetwork network = i % 2 == 0 ? first : second;
+            PredictionContext context = createContext(i);
+            futures.add(service.submit(network, null, new PredictionModel(i), context));
+            contexts.add(context);
+            networks.add(network);
+        }
+        assertEquals(20, service.getPendingCount());
+        assertFalse(futures.get(0).isDone(), "Requests should wait for the flush");
+
+        assertEquals(20, service.flush());
+
+        assertEquals(0, service.getPendingCount());
+        assertEquals(2, service.getBatchCount(), "One batched pass per model");
+        assertEquals(20, service.getCompletedRequests());
+        assertEquals(2, service.getBatchSizeHistogram().getCount());
+        assertEquals(10, service.getBatchSizeHistogram().getMax());
+        assertEquals(20, service.getQueueWaitHistogram().getCount());
+
+        // Результат совпадает с прямым предсказанием
+        PredictionModel reference = new PredictionModel(0);
+        for (int i = 0; i < futures.size(); i++) {
+            ActionPrediction batched = futures.get(i).get(1, TimeUnit.SECONDS);
+            double[] outputs = networks.get(i).forward(reference.prepareInputs(contexts.get(i)));
+            if (outputs[2] < 0.3) {
+                assertNull(batched, "Low-confidence output should yield no prediction");
+            } else {
+                assertNotNull(batched);
+                assertEquals(outputs[2], batched.getConfidence(), 0.0);
+                assertEquals((int) (outputs[0] * 10), batched.getActionType());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should flush automatically when the batch is full")
+    void testAutoFlushOnFullBatch() {
+        InferenceService small = new InferenceService(4);
+        List<CompletableFuture<ActionPrediction>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(small.submit(first, null, new PredictionModel(i), createContext(i)));
+        }
+
+        assertEquals(0, small.getPendingCount());
+        for (CompletableFuture<ActionPrediction> future : futures) {
+            assertTrue(future.isDone());
+        }
+        assertEquals(1, small.getBatchCount());
+    }
+
+    @Test
+    @DisplayName("Should complete mismatched inputs with null")
+    void testMismatchedInputs() throws Exception {
+        PredictionContext context = new PredictionContext();
+        context.setEnvironmentData(new EnvironmentData());
+
+        CompletableFuture<ActionPrediction> future = service.submit(first, null, new PredictionModel(1), context);
+        service.flush();
+
+        assertNull(future.get(1, TimeUnit.SECONDS));
+        assertEquals(0, service.getBatchCount(), "No forward pass for invalid requests");
+        assertNull(service.submit(first, null, new PredictionModel(1), null).get());
+    }
+
+    @Test
+    @DisplayName("Should flush pending requests from the background window")
+    void testBackgroundWindow() throws Exception {
+        service.start(5);
+        CompletableFuture<ActionPrediction> future = service.submit(first, null, new PredictionModel(1), createContext(1));
+
+        future.get(2, TimeUnit.SECONDS);
+        assertTrue(future.isDone());
+        assertTrue(service.getStatistics().contains("Batches=1"));
+    }
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
+    private static PredictionContext createContext(int seed) {
+        PredictionContext context = new PredictionContext();
+        context.setBotState(new BotStateData(0.1 * (seed % 10), 0.5, 1 + seed % 3, 0.2, 0.3, 0.4, 0.05 * seed));
+        return context;
+    }
+}
@@ -332,6 +332,124 @@ class LSTMLayerTest {
         }
     }
     
+    @Nested
+    @DisplayName("Fused Gates And BPTT Tests")
+    class FusedGateTests {
+        
+        @Test
+        @DisplayName("Should match numerical gradients over a sequence")
+        void testGradientCheck() {
+            java.util.Random random = new java.util.Random(7);
+            double[][] inputs = new double[4][INPUT_SIZE];
+            double[][] gradients = new double[4][HIDDEN_UNITS];
+            for (int t = 0; t < inputs.length; t++) {
+                for (int i = 0; i < INPUT_SIZE; i++) {
+                    inputs[t][i] = random.nextDouble() * 2 - 1;
+                }
+                for (int j = 0; j < HIDDEN_UNITS; j++) {
+                    gradients[t][j] = random.nextDouble() * 2 - 1;
+                }
+            }
+            
+            // Аналитические градиенты: обратный проход по шагам в обратном порядке
+            layer.updateWeights(0.0);
+            layer.resetState();
+            for (double[] input : inputs) {
+                layer.forward(input);
+            }
+            double[] firstInputGradient = null;
+            for (int t = inputs.length - 1; t >= 0; t--) {
+                firstInputGradient = layer.backward(inputs[t], gradients[t]);
+            }
+            double[] analytic = layer.getWeightGradients().clone();
+            
+            double[] weights = layer.getWeights();
+            double epsilon = 1e-6;
+            for (int index = 0; index < weights.length; index += 97) {
+                double saved = weights[index];
+                weights[index] = saved + epsilon;
+                double plus = sequenceLoss(inputs, gradients);
+                weights[index] = saved - epsilon;
+                double minus = sequenceLoss(inputs, gradients);
+                weights[index] = saved;
+                
+                double numeric = (plus - minus) / (2 * epsilon);
+                assertEquals(numeric, analytic[index], 1e-6, "Weight gradient mismatch at " + index);
+            }
+            
+            // Градиент входа первого шага
+            for (int i = 0; i < INPUT_SIZE; i++) {
+                double saved = inputs[0][i];
+                inputs[0][i] = saved + epsilon;
+                double plus = sequenceLoss(inputs, gradients);
+                inputs[0][i] = saved - epsilon;
+                double minus = sequenceLoss(inputs, gradients);
+                inputs[0][i] = saved;
+                
+                assertEquals((plus - minus) / (2 * epsilon), firstInputGradient[i], 1e-6,
+                    "Input gradient mismatch at " + i);
+            }
+        }
+        
+        @Test
+        @DisplayName("Should cap cached steps with truncated BPTT")
+        void testTruncatedBptt() {
+            layer.setBpttSteps(2);
+            assertEquals(2, layer.getBpttSteps(), "Should keep BPTT steps");
+            
+            for (int t = 0; t < 5; t++) {
+                layer.forward(createTestInput(INPUT_SIZE));
+            }
+            
+            double[] outputGradients = createTestInput(HIDDEN_UNITS);
+            for (int t = 0; t < 5; t++) {
+                double[] inputGradients = layer.backward(null, outputGradients);
+                double norm = 0.0;
+                for (double gradient : inputGradients) {
+                    norm += Math.abs(gradient);
+                }
+                if (t < 2) {
+                    assertTrue(norm > 0.0, "Steps inside the window should get gradients");
+                } else {
+                    assertEquals(0.0, norm, "Steps outside the window should get zero gradients");
+                }
+            }
+        }
+        
+        @Test
+        @DisplayName("Should match forward pass in streaming mode")
+        void testStreamingStepMatchesForward() {
+            LSTMLayer.State state = layer.createState();
+            double[] output = new double[HIDDEN_UNITS];
+            layer.resetState();
+            
+            for (int t = 0; t < 6; t++) {
+                double[] input = createTestInput(INPUT_SIZE);
+                double[] expected = layer.forward(input);
+                layer.step(state, input, output);
+                assertArrayEquals(expected, output, 1e-12, "Streaming step should match forward at " + t);
+            }
+            
+            state.reset();
+            assertArrayEquals(new double[HIDDEN_UNITS], state.getHidden(), "Reset should clear hidden state");
+        }
+        
+        /**
+         * Вычисляет функцию потерь L = sum(g_t * h_t) по последовательности
+         */
+        private double sequenceLoss(double[][] inputs, double[][] gradients) {
+            layer.resetState();
+            double loss = 0.0;
+            for (int t = 0; t < inputs.length; t++) {
+                double[] output = layer.forward(inputs[t]);
+                for (int j = 0; j < output.length; j++) {
+                    loss += gradients[t][j] * output[j];
+                }
+            }
+            return loss;
+        }
+    }
+    
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
     /**
@@ -0,0 +1,170 @@
+package net.sf.l2j.botmanager.learning;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для LearningDataProcessor
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("LearningDataProcessor Tests")
+class LearningDataProcessorTest {
+
+    @Test
+    @DisplayName("Streaming stats should match two-pass mean and variance")
+    void testWelfordStats() {
+        double[][] rows = createRows(1000, 3, 11);
+        LearningDataProcessor.NormalizationStats stats = new LearningDataProcessor.NormalizationStats(3);
+        for (double[] row : rows) {
+            stats.update(row, 0);
+        }
+
+        for (int j = 0; j < 3; j++) {
+            double mean = 0.0;
+            for (double[] row : rows) {
+                mean += row[j];
+            }
+            mean /= rows.length;
+            double variance = 0.0;
+            for (double[] row : rows) {
+                variance += (row[j] - mean) * (row[j] - mean);
+            }
+            variance /= rows.length;
+
+            assertEquals(mean, stats.getMean(j), 1e-6);
+            assertEquals(variance, stats.getVariance(j), 1e-6);
+        }
+        assertEquals(1000, stats.getSampleCount());
+    }
+
+    @Test
+    @DisplayName("Merged stats should equal sequential stats")
+    void testMerge() {
+        double[][] rows = createRows(500, 2, 5);
+        LearningDataProcessor.NormalizationStats sequential = new LearningDataProcessor.NormalizationStats(2);
+        LearningDataProcessor.NormalizationStats left = new LearningDataProcessor.NormalizationStats(2);
+        LearningDataProcessor.NormalizationStats right = new LearningDataProcessor.NormalizationStats(2);
+        for (int i = 0; i < rows.length; i++) {
+            sequential.update(rows[i], 0);
+            (i < 137 ? left : right).update(rows[i], 0);
+        }
+        left.merge(right);
+
+        for (int j = 0; j < 2; j++) {
+            assertEquals(sequential.getMean(j), left.getMean(j), 1e-6);
+            assertEquals(sequential.getVariance(j), left.getVariance(j), 1e-6);
+            assertEquals(sequential.getMinValue(j), left.getMinValue(j));
+            assertEquals(sequential.getMaxValue(j), left.getMaxValue(j));
+        }
+
+        LearningDataProcessor processor = new LearningDataProcessor(1);
+        processor.fitNormalization("batch", rows);
+        LearningDataProcessor.NormalizationStats fitted = processor.getNormalizationStats().get("batch");
+        assertEquals(sequential.getMean(1), fitted.getMean(1), 1e-6);
+        assertEquals(sequential.getVariance(1), fitted.getVariance(1), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Decay should follow a shifted distribution")
+    void testDecay() {
+        LearningDataProcessor.NormalizationStats stats = new LearningDataProcessor.NormalizationStats(1);
+        stats.setDecay(0.9);
+        double[] value = new double[1];
+        for (int i = 0; i < 200; i++) {
+            value[0] = i < 100 ? 0.0 : 10.0;
+            stats.update(value, 0);
+        }
+        assertEquals(10.0, stats.getMean(0), 1e-3);
+        assertEquals(1.0 / (1.0 - 0.9), stats.getWeight(0), 1e-3);
+    }
+
+    @Test
+    @DisplayName("Training inputs and situation features should be normalized alike")
+    void testConsistentNormalization() {
+        LearningDataProcessor processor = new LearningDataProcessor(1);
+        Random random = new Random(3);
+        ProcessedData processed = null;
+        TrainingData data = null;
+        for (int i = 0; i < 50; i++) {
+            data = new TrainingData();
+            data.setBotState(new BotStateData(random.nextDouble() * 100, random.nextDouble() * 50,
+                1 + random.nextInt(80), random.nextDouble() * 1e6, random.nextDouble(), random.nextDouble(), 0.0));
+            ExpectedActions actions = new ExpectedActions();
+            actions.setActionType(random.nextInt(5));
+            actions.setPriority(random.nextDouble());
+            data.setExpectedActions(actions);
+            processed = processor.processTrainingData(data);
+        }
+
+        assertNotNull(processed);
+        double[] input = processed.getInputs()[0];
+        for (double target : processed.getTargets()[0]) {
+            assertTrue(target >= 0.0 && target <= 1.0, "Target should be rescaled: " + target);
+        }
+
+        // Тот же пример после обновления статистики нормализуется так же
+        double[] features = new double[LearningDataProcessor.FEATURE_SIZE];
+        LearningDataProcessor.writeFeatures(data, features, 0);
+        processor.normalizeFeatures(features, 0);
+        for (int j = 0; j < input.length; j++) {
+            assertEquals(input[j], features[j], 1e-9);
+        }
+        assertEquals(0.0, features[6], "Constant feature should normalize to zero");
+    }
+
+    @Test
+    @DisplayName("Prediction inputs should be normalized with the training statistics")
+    void testPredictionNormalization() {
+        LearningDataProcessor processor = new LearningDataProcessor(1);
+        Random random = new Random(5);
+        ProcessedData processed = null;
+        BotStateData botState = null;
+        for (int i = 0; i < 20; i++) {
+            TrainingData data = new TrainingData();
+            botState = new BotStateData(random.nextDouble() * 100, random.nextDouble() * 50,
+                1 + random.nextInt(80), random.nextDouble() * 1e6, random.nextDouble(), random.nextDouble(), 0.0);
+            data.setBotState(botState);
+            ExpectedActions actions = new ExpectedActions();
+            actions.setActionType(random.nextInt(5));
+            data.setExpectedActions(actions);
+            processed = processor.processTrainingData(data);
+        }
+        assertNotNull(processed);
+
+        PredictionContext context = new PredictionContext();
+        context.setBotState(botState);
+        context.setTargetData(new TargetData());
+        PredictionModel model = new PredictionModel(1);
+        double[] raw = model.prepareInputs(context);
+        model.setDataProcessor(processor);
+        double[] inputs = model.prepareInputs(context);
+
+        assertEquals(11, inputs.length);
+        double[] trained = processed.getInputs()[0];
+        for (int j = 0; j < trained.length; j++) {
+            assertEquals(trained[j], inputs[j], 1e-9, "Bot state should match the training input");
+        }
+        assertEquals(raw[3], botState.getExperience(), "Inputs without a processor should stay raw");
+        for (int j = 7; j < inputs.length; j++) {
+            assertEquals(raw[j], inputs[j], "Groups without training statistics should stay raw");
+        }
+    }
+
+    private static double[][] createRows(int count, int features, long seed) {
+        Random random = new Random(seed);
+        double[][] rows = new double[count][features];
+        for (double[] row : rows) {
+            for (int j = 0; j < features; j++) {
+                row[j] = 1e6 + random.nextGaussian() * (j + 1);
+            }
+        }
+        return rows;
+    }
+}
@@ -1,5 +1,6 @@
 package net.sf.l2j.botmanager.learning;
 
+import net.sf.l2j.botmanager.actions.ActionType;
 import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
 import net.sf.l2j.botmanager.core.BotContext;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,6 +8,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -65,9 +68,61 @@ class MachineLearningEngineTest {
         
         engine.registerBot(bot);
         assertTrue(engine.isBotRegistered(botId), "Bot should be registered after registration");
+        FeedbackCollector.getInstance().recordAction(bot, ActionType.ATTACK, true, 10, null);
+        assertNotNull(FeedbackCollector.getInstance().getActionFeedback(botId), "Feedback should be recorded");
         
         engine.unregisterBot(botId);
         assertFalse(engine.isBotRegistered(botId), "Bot should not be registered after unregistration");
+        assertNull(FeedbackCollector.getInstance().getActionFeedback(botId), "Bot feedback should be removed");
+    }
+
+    @Test
+    @DisplayName("Should record experience into bot replay buffer")
+    void testRecordExperience() {
+        int botId = bot.getBotId();
+        engine.unregisterBot(botId);
+        engine.setExperienceReplayCapacity(16);
+        try {
+            engine.registerBot(bot);
+            ExperienceReplayBuffer buffer = engine.getReplayBuffer(botId);
+            assertNotNull(buffer, "Replay buffer should be created on registration");
+
+            TrainingData state = new TrainingData();
+            assertTrue(engine.recordExperience(botId, state, 2, 1.5, new TrainingData(), false));
+            assertFalse(engine.recordExperience(botId, null, 2, 1.5, state, false));
+            assertEquals(1, buffer.size(), "Buffer should contain recorded experience");
+
+            engine.unregisterBot(botId);
+            assertNull(engine.getReplayBuffer(botId), "Replay buffer should be removed with bot");
+        } finally {
+            engine.setExperienceReplayCapacity(0);
+        }
+    }
+    
+    @Test
+    @DisplayName("Async prediction should complete without a manual flush")
+    void testPredictActionAsyncCompletes() throws Exception {
+        int botId = bot.getBotId();
+        engine.start();
+        try {
+            engine.registerBot(bot);
+            PredictionContext predictionContext = new PredictionContext();
+            // Окружение и цель дают 10 входов модели по умолчанию
+            predictionContext.setEnvironmentData(new EnvironmentData());
+            predictionContext.setTargetData(new TargetData());
+
+            long completed = engine.getInferenceService().getCompletedRequests();
+            CompletableFuture<ActionPrediction> future = engine.predictActionAsync(botId, predictionContext);
+            // Предсказание случайно инициализированной модели может быть отброшено по уверенности,
+            // поэтому проверяется только завершение запроса фоновым сбросом
+            future.get(5, TimeUnit.SECONDS);
+            assertTrue(future.isDone(), "Future should complete without a manual flush");
+            assertEquals(completed + 1, engine.getInferenceService().getCompletedRequests(),
+                "Request should be executed by the background flush");
+        } finally {
+            engine.unregisterBot(botId);
+            engine.stop();
+        }
     }
     
     @Test
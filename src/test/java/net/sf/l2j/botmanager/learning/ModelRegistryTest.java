@@ -0,0 +1,157 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.core.BotType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для ModelRegistry
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("ModelRegistry Tests")
+class ModelRegistryTest {
+
+    private static final double[] INPUT = {0.1, 0.9, 0.3, 0.7, 0.5, 0.2, 0.8, 0.4, 0.6, 0.0};
+
+    private ModelRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ModelRegistry();
+    }
+
+    @Test
+    @DisplayName("Bots of one type should share a single model")
+    void testFamilySharing() {
+        NeuralNetwork first = registry.register(1, BotType.FARMER);
+        NeuralNetwork second = registry.register(2, BotType.FARMER);
+        NeuralNetwork guard = registry.register(3, BotType.GUARD);
+
+        assertSame(first, second, "Same type should share the family model");
+        assertNotSame(first, guard, "Different types should use different models");
+        assertSame(first, registry.getModel(2));
+        assertSame(first, registry.getFamilyModel(BotType.FARMER));
+        assertEquals(2, registry.getFamilyCount());
+        assertEquals(3, registry.getBotCount());
+        assertTrue(first.isActive(), "Family models should be ready for training");
+    }
+
+    @Test
+    @DisplayName("Memory should grow with families, not bots")
+    void testMemoryGrowsWithFamilies() {
+        registry.register(1, BotType.SOLDIER);
+        long single = registry.getParameterBytes();
+
+        for (int botId = 2; botId <= 500; botId++) {
+            registry.register(botId, BotType.SOLDIER);
+        }
+
+        assertEquals(single, registry.getParameterBytes(), "Unadapted bots should not add parameters");
+        assertEquals(0, registry.getHeadCount());
+    }
+
+    @Test
+    @DisplayName("Adaptation should create a per-bot head copy on write")
+    void testAdaptCreatesHead() {
+        NeuralNetwork model = registry.register(1, BotType.MERCHANT);
+        registry.register(2, BotType.MERCHANT);
+        double[] before = model.forward(INPUT);
+        assertNull(registry.getHead(1), "Head should not exist before adaptation");
+
+        assertTrue(registry.adapt(1, createFeedback()));
+
+        NeuralNetwork.OutputHead head = registry.getHead(1);
+        assertNotNull(head, "Head should be created on first adaptation");
+        assertNull(registry.getHead(2), "Other bots should keep the shared output layer");
+        assertEquals(1, head.getAdaptations());
+        assertTrue(head.getParameterBytes() < model.getParameterBytes() / 2, "Head should be a small fraction of the model");
+
+        double[] adapted = model.forward(INPUT, head);
+        double[] shared = model.forward(INPUT, (NeuralNetwork.OutputHead) null);
+        assertNotNull(adapted);
+        assertFalse(Arrays.equals(adapted, shared), "Adapted bot should predict differently");
+        assertFalse(Arrays.equals(before, shared), "Family model should learn from pooled feedback");
+    }
+
+    @Test
+    @DisplayName("Head adaptation should move outputs towards the targets")
+    void testHeadAdaptationReducesError() {
+        NeuralNetwork model = registry.register(1, BotType.OFFICER);
+        ProcessedData feedback = createFeedback();
+        NeuralNetwork.OutputHead head = model.createOutputHead();
+
+        double[] target = feedback.getTargets()[0];
+        double errorBefore = squaredError(model.forward(INPUT, head), target);
+        assertTrue(model.adaptOutputHead(head, feedback));
+        double errorAfter = squaredError(model.forward(INPUT, head), target);
+
+        assertTrue(errorAfter < errorBefore, "Adaptation should reduce the error on the feedback");
+    }
+
+    @Test
+    @DisplayName("Unregistering a bot should drop its head but keep the family")
+    void testUnregister() {
+        registry.register(1, BotType.GUARD);
+        registry.register(2, BotType.GUARD);
+        registry.adapt(1, createFeedback());
+
+        registry.unregister(1);
+
+        assertFalse(registry.isRegistered(1));
+        assertNull(registry.getHead(1));
+        assertNull(registry.getModel(1));
+        assertNotNull(registry.getModel(2), "Family should survive while other bots use it");
+        assertFalse(registry.adapt(1, createFeedback()));
+    }
+
+    @Test
+    @DisplayName("Quantized family model should serve inference until retrained")
+    void testQuantizedInferenceModel() {
+        NeuralNetwork model = registry.register(1, BotType.FARMER);
+        assertSame(model, registry.getInferenceModel(1), "Float model should serve inference by default");
+
+        QuantizationReport report = registry.quantize(BotType.FARMER, new double[][] {INPUT});
+        assertNotNull(report);
+        assertEquals(1, report.getSamples());
+        assertTrue(registry.isQuantized(BotType.FARMER));
+        NeuralNetwork inference = registry.getInferenceModel(1);
+        assertTrue(inference.isQuantized(), "Quantized copy should serve inference");
+        assertSame(model, registry.getModel(1), "Training should keep using the float model");
+
+        assertTrue(registry.train(1, createFeedback()));
+        assertFalse(registry.isQuantized(BotType.FARMER), "Retraining should invalidate the quantized copy");
+        assertSame(model, registry.getInferenceModel(1));
+        assertNull(registry.quantize(BotType.GUARD, null), "Missing family should not be quantized");
+    }
+
+    @Test
+    @DisplayName("Should reject null bot types")
+    void testNullBotType() {
+        assertThrows(IllegalArgumentException.class, () -> registry.register(1, null));
+    }
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
+    private static ProcessedData createFeedback() {
+        double[][] inputs = {INPUT.clone()};
+        double[][] targets = {{1.0, 0.0, 0.0, 0.0, 1.0}};
+        return new ProcessedData(inputs, targets);
+    }
+
+    private static double squaredError(double[] output, double[] target) {
+        double error = 0.0;
+        for (int i = 0; i < output.length; i++) {
+            double diff = target[i] - output[i];
+            error += diff * diff;
+        }
+        return error;
+    }
+}
@@ -0,0 +1,198 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.core.BotType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для ModelStore и формата ModelFile
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("ModelStore Tests")
+class ModelStoreTest {
+
+    private static final double[] INPUT = {0.1, 0.9, 0.3, 0.7, 0.5, 0.2, 0.8, 0.4, 0.6, 0.0};
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("model-store");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    @DisplayName("Network should round-trip bit for bit in both precisions")
+    void testNetworkRoundTrip() throws IOException {
+        for (Precision precision : Precision.values()) {
+            NeuralNetwork network = new NeuralNetwork(-1, INPUT.length, 2, 16, 5, precision);
+            network.activate();
+            network.train(createData());
+
+            Path path = directory.resolve("network-" + precision + ModelStore.FILE_EXTENSION);
+            ModelFile.write(path, ModelFile.encode(new ModelFile.Contents("FARMER", network, null, null)));
+            ModelFile.Contents contents = ModelFile.read(path);
+
+            assertEquals("FARMER", contents.family);
+            NeuralNetwork restored = contents.network;
+            assertNotNull(restored);
+            assertEquals(precision, restored.getPrecision());
+            assertEquals(network.getArchitecture(), restored.getArchitecture());
+            assertEquals(network.getTrainingEpochs(), restored.getTrainingEpochs());
+            assertEquals(network.getLearningRate(), restored.getLearningRate());
+            assertEquals(network.getCurrentError(), restored.getCurrentError());
+            assertTrue(restored.isActive());
+            assertArrayEquals(network.forward(INPUT), restored.forward(INPUT), "Outputs should be identical");
+            assertEquals(0, Files.size(path) % 8, "File should be 8-byte aligned");
+        }
+    }
+
+    @Test
+    @DisplayName("Head and normalization stats should round-trip")
+    void testHeadAndNormalizationRoundTrip() throws IOException {
+        NeuralNetwork network = new NeuralNetwork(-1, INPUT.length, 2, 16, 5, Precision.FLOAT64);
+        network.activate();
+        NeuralNetwork.OutputHead head = network.createOutputHead();
+        network.adaptOutputHead(head, createData());
+
+        LearningDataProcessor.NormalizationStats stats = new LearningDataProcessor.NormalizationStats(3);
+        stats.setDecay(0.9);
+        stats.update(new double[]{-2.0, 3.0, 0.5}, 0);
+        stats.update(new double[]{-1.0, 4.0, Double.NaN}, 0);
+        Map<String, LearningDataProcessor.NormalizationStats> normalization = new HashMap<>();
+        normalization.put("combat", stats);
+
+        ByteBuffer data = ModelFile.encode(new ModelFile.Contents("GUARD", null, head, normalization));
+        ModelFile.Contents contents = ModelFile.decode(data);
+
+        assertNull(contents.network);
+        assertEquals(head.getAdaptations(), contents.head.getAdaptations());
+        assertEquals(head.getLastError(), contents.head.getLastError());
+        assertArrayEquals(network.forward(INPUT, head), network.forward(INPUT, contents.head));
+
+        LearningDataProcessor.NormalizationStats restored = contents.normalization.get("combat");
+        assertNotNull(restored);
+        assertEquals(3, restored.getFeatureCount());
+        assertEquals(2, restored.getSampleCount());
+        assertEquals(0.9, restored.getDecay());
+        for (int j = 0; j < 3; j++) {
+            assertEquals(stats.getWeight(j), restored.getWeight(j));
+            assertEquals(stats.getMean(j), restored.getMean(j));
+            assertEquals(stats.getVariance(j), restored.getVariance(j));
+            assertEquals(stats.getMinValue(j), restored.getMinValue(j));
+            assertEquals(stats.getMaxValue(j), restored.getMaxValue(j));
+        }
+    }
+
+    @Test
+    @DisplayName("Corrupted or truncated files should be rejected")
+    void testCorruptionDetected() throws IOException {
+        NeuralNetwork network = new NeuralNetwork(-1, INPUT.length, 1, 8, 5, Precision.FLOAT32);
+        ByteBuffer data = ModelFile.encode(new ModelFile.Contents("FARMER", network, null, null));
+
+        byte[] corrupted = data.array().clone();
+        corrupted[corrupted.length - 3] ^= 0x10;
+        IOException error = assertThrows(IOException.class, () -> ModelFile.decode(ByteBuffer.wrap(corrupted)));
+        assertTrue(error.getMessage().contains("checksum"));
+
+        byte[] truncated = new byte[data.limit() - 8];
+        System.arraycopy(data.array(), 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> ModelFile.decode(ByteBuffer.wrap(truncated)));
+
+        byte[] foreign = new byte[64];
+        assertThrows(IOException.class, () -> ModelFile.decode(ByteBuffer.wrap(foreign)));
+    }
+
+    @Test
+    @DisplayName("Store should skip unchanged models and replace files atomically")
+    void testIncrementalSave() throws IOException {
+        ModelRegistry registry = new ModelRegistry();
+        registry.register(1, BotType.FARMER);
+        registry.register(2, BotType.GUARD);
+        assertTrue(registry.adapt(1, createData()));
+
+        ModelStore store = new ModelStore(directory);
+        Map<Integer, LearningDataProcessor> processors = new HashMap<>();
+        assertEquals(3, store.save(registry, processors), "Two families and one head should be written");
+        assertEquals(0, store.save(registry, processors), "Unchanged models should be skipped");
+        assertEquals(3, store.getFilesSkipped());
+
+        registry.train(2, createData());
+        assertEquals(1, store.save(registry, processors), "Only the trained family should be rewritten");
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".tmp")), "No temporary files should remain");
+        }
+    }
+
+    @Test
+    @DisplayName("Warm start should restore families and attach heads on registration")
+    void testWarmStart() throws IOException {
+        ModelRegistry registry = new ModelRegistry();
+        NeuralNetwork model = registry.register(7, BotType.MERCHANT);
+        registry.adapt(7, createData());
+        double[] expected = model.forward(INPUT, registry.getHead(7));
+
+        LearningDataProcessor processor = new LearningDataProcessor(7);
+        LearningDataProcessor.NormalizationStats stats = new LearningDataProcessor.NormalizationStats(1);
+        stats.update(new double[]{2.0}, 0);
+        stats.update(new double[]{6.0}, 0);
+        Map<String, LearningDataProcessor.NormalizationStats> normalization = new HashMap<>();
+        normalization.put("economy", stats);
+        processor.restoreNormalizationStats(normalization);
+        Map<Integer, LearningDataProcessor> processors = new HashMap<>();
+        processors.put(7, processor);
+
+        new ModelStore(directory).save(registry, processors);
+
+        ModelRegistry restarted = new ModelRegistry();
+        ModelStore store = new ModelStore(directory);
+        Map<Integer, Map<String, LearningDataProcessor.NormalizationStats>> restoredStats = new HashMap<>();
+        assertEquals(2, store.load(restarted, restoredStats));
+        assertEquals(1, restarted.getFamilyCount());
+        assertNull(restarted.getHead(7), "Head should wait for the bot to register");
+        assertEquals(4.0, restoredStats.get(7).get("economy").getMean(0));
+
+        NeuralNetwork restored = restarted.register(7, BotType.MERCHANT);
+        assertNotNull(restarted.getHead(7), "Head should be attached on registration");
+        assertArrayEquals(expected, restored.forward(INPUT, restarted.getHead(7)));
+        assertEquals(0, store.save(restarted, processors), "Loaded models should not be rewritten");
+    }
+
+    @Test
+    @DisplayName("Loading an empty or missing directory should be a no-op")
+    void testMissingDirectory() throws IOException {
+        ModelStore store = new ModelStore(directory.resolve("missing"));
+        assertEquals(0, store.load(new ModelRegistry(), new HashMap<>()));
+    }
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
+    private static ProcessedData createData() {
+        double[][] inputs = {INPUT.clone()};
+        double[][] targets = {{1.0, 0.0, 0.0, 0.0, 1.0}};
+        return new ProcessedData(inputs, targets);
+    }
+}
@@ -230,6 +230,117 @@ class NeuralNetworkTest {
         assertTrue(network.getTrainingEpochs() > 0, "Should have trained for some epochs");
     }
     
+    @Test
+    @DisplayName("Float32 copy should match float64 predictions")
+    void testFloatPrecisionParity() {
+        network.activate();
+        NeuralNetwork single = network.toPrecision(Precision.FLOAT32);
+        
+        assertEquals(Precision.FLOAT32, single.getPrecision());
+        assertTrue(single.isActive(), "Copy should keep the activation state");
+        assertEquals(network.getArchitecture(), single.getArchitecture());
+        assertTrue(single.getParameterBytes() < network.getParameterBytes(), "Float32 weights should take less memory");
+        
+        double[][] inputs = createTestData().getInputs();
+        for (double[] input : inputs) {
+            assertArrayEquals(network.forward(input), single.forward(input), 1e-5);
+        }
+        
+        // Обратное преобразование расширяет веса без потерь
+        NeuralNetwork restored = single.toPrecision(Precision.FLOAT64);
+        for (double[] input : inputs) {
+            assertArrayEquals(single.forward(input), restored.forward(input), 1e-12);
+        }
+    }
+    
+    @Test
+    @DisplayName("Float32 training should track float64 training")
+    void testFloatPrecisionTrainingParity() {
+        network.activate();
+        NeuralNetwork single = network.toPrecision(Precision.FLOAT32);
+        ProcessedData data = createTestData();
+        
+        assertTrue(network.train(data));
+        assertTrue(single.train(data));
+        
+        assertEquals(network.getCurrentError(), single.getCurrentError(), 1e-3);
+        for (double[] input : data.getInputs()) {
+            assertArrayEquals(network.forward(input), single.forward(input), 1e-3);
+        }
+    }
+    
+    @Test
+    @DisplayName("Batch forward should match per-row forward with heads")
+    void testForwardBatchMatchesForward() {
+        for (Precision precision : Precision.values()) {
+            NeuralNetwork model = new NeuralNetwork(botId, precision);
+            model.activate();
+            NeuralNetwork.OutputHead head = model.createOutputHead();
+            ProcessedData feedback = createTestData();
+            assertTrue(model.adaptOutputHead(head, feedback));
+            
+            int batch = 5;
+            double[] packed = new double[batch * 10];
+            for (int k = 0; k < packed.length; k++) {
+                packed[k] = Math.abs(Math.sin(k * 0.31));
+            }
+            NeuralNetwork.OutputHead[] heads = {null, head, null, head, null};
+            double[] outputs = new double[batch * 5];
+            
+            assertTrue(model.forwardBatch(packed, batch, outputs, heads));
+            for (int r = 0; r < batch; r++) {
+                double[] row = new double[10];
+                System.arraycopy(packed, r * 10, row, 0, 10);
+                double[] expected = model.forward(row, heads[r]);
+                for (int j = 0; j < 5; j++) {
+                    assertEquals(expected[j], outputs[r * 5 + j], 0.0, precision + " row " + r + ", output " + j);
+                }
+            }
+            assertFalse(model.forwardBatch(packed, batch, new double[3], null), "Should reject a short output buffer");
+        }
+    }
+    
+    @Test
+    @DisplayName("Int8 quantized copy should track the float model")
+    void testQuantizedInference() {
+        NeuralNetwork model = new NeuralNetwork(botId, 32, 2, 64, 8);
+        model.activate();
+        java.util.Random random = new java.util.Random(5);
+        double[][] calibration = new double[64][32];
+        for (double[] input : calibration) {
+            for (int i = 0; i < input.length; i++) {
+                input[i] = random.nextDouble();
+            }
+        }
+        
+        NeuralNetwork quantized = model.quantize(calibration);
+        QuantizationReport report = QuantizationReport.compare(model, quantized, calibration);
+        
+        assertTrue(quantized.isQuantized());
+        assertFalse(model.isQuantized());
+        assertEquals(calibration.length, report.getSamples());
+        assertTrue(report.getMaxAbsError() < 0.05, "Int8 outputs should stay close: " + report);
+        assertTrue(report.getCompressionRatio() > 4.0, "Int8 weights should take far less memory: " + report);
+        assertFalse(quantized.train(createTestData()), "Quantized network should be inference-only");
+        assertThrows(IllegalStateException.class, quantized::copy);
+        
+        // Пакетный проход и выходной слой бота работают с квантованной сетью
+        NeuralNetwork.OutputHead head = model.createOutputHead();
+        int batch = 3;
+        double[] packed = new double[batch * 32];
+        for (int r = 0; r < batch; r++) {
+            System.arraycopy(calibration[r], 0, packed, r * 32, 32);
+        }
+        double[] outputs = new double[batch * 8];
+        assertTrue(quantized.forwardBatch(packed, batch, outputs, new NeuralNetwork.OutputHead[] {null, head, null}));
+        for (int r = 0; r < batch; r++) {
+            double[] expected = quantized.forward(calibration[r], r == 1 ? head : null);
+            for (int j = 0; j < 8; j++) {
+                assertEquals(expected[j], outputs[r * 8 + j], 0.0, "Row " + r + ", output " + j);
+            }
+        }
+    }
+    
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
     /**
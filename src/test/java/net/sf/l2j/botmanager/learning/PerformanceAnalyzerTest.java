@@ -1,5 +1,8 @@
 package net.sf.l2j.botmanager.learning;
 
+import net.sf.l2j.botmanager.actions.ActionType;
+import net.sf.l2j.botmanager.core.BotContext;
+import net.sf.l2j.botmanager.core.EnhancedFakePlayer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -24,7 +27,9 @@ public class PerformanceAnalyzerTest {
     @BeforeEach
     void setUp() {
         feedbackCollector = FeedbackCollector.getInstance();
+        feedbackCollector.reset();
         performanceAnalyzer = PerformanceAnalyzer.getInstance(feedbackCollector);
+        performanceAnalyzer.reset();
     }
     
     @Test
@@ -170,4 +175,137 @@ public class PerformanceAnalyzerTest {
         assertEquals(days, trend.getDays(), "Days should match");
         assertNotNull(trend.getAnalysis(), "Analysis should not be null");
     }
+    
+    @Test
+    @DisplayName("Should rank bots incrementally from feedback")
+    void testIncrementalRanking() {
+        // Arrange
+        double[] successRates = {0.9, 0.2, 0.6, 0.75, 0.4};
+        for (int i = 0; i < successRates.length; i++) {
+            EnhancedFakePlayer bot = createBot(201 + i);
+            for (int j = 0; j < 20; j++) {
+                feedbackCollector.recordAction(bot, ActionType.ATTACK, j < successRates[i] * 20, 10, null);
+            }
+        }
+        assertTrue(feedbackCollector.flushFeedback(5000), "Feedback should be delivered");
+        
+        // Act
+        List<PerformanceAnalyzer.BotPerformanceRanking> top = performanceAnalyzer.getTopPerformers(2);
+        List<PerformanceAnalyzer.BotPerformanceRanking> bottom = performanceAnalyzer.getBottomPerformers(1);
+        List<PerformanceAnalyzer.BotPerformanceRanking> weak = performanceAnalyzer.getBotsNeedingImprovement(0.5);
+        
+        // Assert
+        assertEquals(2, top.size());
+        assertEquals(201, top.get(0).getBotId(), "Best bot should be first");
+        assertEquals(204, top.get(1).getBotId());
+        assertEquals(0.9, top.get(0).getScore(), 1e-9);
+        assertFalse(top.get(0).getSummary().isEmpty(), "Summary should be filled");
+        assertEquals(202, bottom.get(0).getBotId(), "Worst bot should be first");
+        assertEquals(2, weak.size());
+        assertEquals(202, weak.get(0).getBotId());
+        assertEquals(205, weak.get(1).getBotId());
+        
+        // Позиция обновляется при изменении результатов бота
+        EnhancedFakePlayer improved = createBot(202);
+        for (int j = 0; j < 200; j++) {
+            feedbackCollector.recordAction(improved, ActionType.ATTACK, true, 10, null);
+        }
+        assertTrue(feedbackCollector.flushFeedback(5000), "Feedback should be delivered");
+        assertEquals(202, performanceAnalyzer.getTopPerformers(1).get(0).getBotId(), "Improved bot should lead");
+        
+        // Сброшенные в коллекторе боты исключаются из рейтинга
+        feedbackCollector.reset();
+        assertTrue(performanceAnalyzer.getTopPerformers(5).isEmpty(), "Reset bots should not be ranked");
+    }
+    
+    @Test
+    @DisplayName("Should maintain rolling windows and detect trends")
+    void testRollingWindowsAndTrends() {
+        // Arrange
+        int botId = 301;
+        long start = 10L * 60 * 60 * 1000;
+        // Первые 40 минут - 20% успеха, последние 15 минут - 100%
+        for (int minute = 0; minute < 55; minute++) {
+            for (int j = 0; j < 5; j++) {
+                boolean success = minute >= 40 || j == 0;
+                performanceAnalyzer.recordOutcome(botId, true, success, start + minute * 60_000L + j);
+            }
+        }
+        long now = start + 55 * 60_000L - 1;
+        
+        // Act
+        PerformanceAnalyzer.WindowStats minute = performanceAnalyzer.getWindowStats(botId, PerformanceAnalyzer.Window.MINUTE, now);
+        PerformanceAnalyzer.WindowStats quarter = performanceAnalyzer.getWindowStats(botId, PerformanceAnalyzer.Window.QUARTER_HOUR, now);
+        PerformanceAnalyzer.WindowStats hour = performanceAnalyzer.getWindowStats(botId, PerformanceAnalyzer.Window.HOUR, now);
+        PerformanceAnalyzer.TrendAnalysis trend = performanceAnalyzer.analyzePerformanceTrends(botId, 1, now);
+        
+        // Assert
+        assertEquals(5, minute.getActions(), "Minute window should hold the last minute only");
+        assertEquals(1.0, minute.getScore(), 1e-9);
+        assertEquals(75, quarter.getActions());
+        assertEquals(275, hour.getActions());
+        assertEquals((40 + 75) / 275.0, hour.getScore(), 1e-9);
+        assertTrue(trend.getChange() > 0, "Trend should show improvement");
+        assertTrue(trend.getAnalysis().contains("улучшение"), trend.getAnalysis());
+        
+        // Через два часа окна пустеют
+        long later = now + 2 * 60 * 60 * 1000L;
+        assertEquals(0, performanceAnalyzer.getWindowStats(botId, PerformanceAnalyzer.Window.HOUR, later).getSamples());
+    }
+    
+    @Test
+    @DisplayName("Should drop windows, history and ranking of removed bots")
+    void testRemoveBot() {
+        // Arrange
+        EnhancedFakePlayer bot = createBot(401);
+        for (int j = 0; j < 10; j++) {
+            feedbackCollector.recordAction(bot, ActionType.ATTACK, true, 10, null);
+        }
+        assertTrue(feedbackCollector.flushFeedback(5000), "Feedback should be delivered");
+        assertEquals(10, performanceAnalyzer.getWindowStats(401, PerformanceAnalyzer.Window.HOUR).getActions());
+        assertEquals(401, performanceAnalyzer.getTopPerformers(1).get(0).getBotId());
+        assertTrue(performanceAnalyzer.getHistory().getBotIds().contains(401), "History should be recorded");
+        
+        // Act
+        feedbackCollector.removeBot(401);
+        performanceAnalyzer.removeBot(401);
+        
+        // Assert
+        assertEquals(0, performanceAnalyzer.getWindowStats(401, PerformanceAnalyzer.Window.HOUR).getSamples());
+        assertTrue(performanceAnalyzer.getTopPerformers(5).isEmpty(), "Removed bot should not be ranked");
+        assertFalse(performanceAnalyzer.getHistory().getBotIds().contains(401), "History should be evicted");
+        assertTrue(performanceAnalyzer.getAnalyzerStats().contains("Tracked Windows: 0"));
+        assertTrue(performanceAnalyzer.getAnalyzerStats().contains("Ranked Bots: 0"));
+    }
+    
+    @Test
+    @DisplayName("Should drop feedback delivered after the bot is unregistered")
+    void testLateFeedbackAfterUnregister() {
+        // Arrange
+        EnhancedFakePlayer bot = createBot(402);
+        MachineLearningEngine engine = MachineLearningEngine.getInstance();
+        
+        // Act: монитор анализатора удерживает доставку, пока бот не удален
+        synchronized (performanceAnalyzer) {
+            for (int j = 0; j < 10; j++) {
+                feedbackCollector.recordAction(bot, ActionType.ATTACK, true, 10, null);
+            }
+            engine.unregisterBot(402);
+        }
+        assertTrue(feedbackCollector.flushFeedback(5000), "Feedback should be delivered");
+        
+        // Assert
+        assertFalse(feedbackCollector.hasBot(402), "Collector should not track the removed bot");
+        assertEquals(0, performanceAnalyzer.getWindowStats(402, PerformanceAnalyzer.Window.HOUR).getSamples());
+        assertFalse(performanceAnalyzer.getHistory().getBotIds().contains(402), "History should not be recreated");
+        assertTrue(performanceAnalyzer.getTopPerformers(5).stream().noneMatch(r -> r.getBotId() == 402),
+            "Removed bot should not be ranked");
+    }
+    
+    private static EnhancedFakePlayer createBot(int botId) {
+        BotContext context = new BotContext(botId);
+        EnhancedFakePlayer bot = new EnhancedFakePlayer(context, null);
+        context.setBot(bot);
+        return bot;
+    }
 }
\ No newline at end of file
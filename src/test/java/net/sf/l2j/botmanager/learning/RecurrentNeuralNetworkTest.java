@@ -170,6 +170,21 @@ class RecurrentNeuralNetworkTest {
             assertNull(result, "Result should be null for inactive network");
         }
         
+        @Test
+        @DisplayName("Should match forward propagation in streaming mode")
+        void testStreamingStepMatchesForward() {
+            double[][] inputSequence = createTestSequence(8, 5);
+            double[][] expected = network.forward(inputSequence);
+            assertNotNull(expected, "Forward result should not be null");
+            
+            RecurrentNeuralNetwork.StreamState state = network.createStreamState();
+            for (int t = 0; t < inputSequence.length; t++) {
+                double[] output = network.step(state, inputSequence[t]);
+                assertNotNull(output, "Streaming output should not be null at step " + t);
+                assertArrayEquals(expected[t], output, 1e-12, "Streaming step should match forward at step " + t);
+            }
+        }
+        
         @Test
         @DisplayName("Should handle empty sequence")
         void testForwardPropagationWithEmptySequence() {
@@ -204,6 +219,98 @@ class RecurrentNeuralNetworkTest {
             assertTrue(result, "Training should succeed");
         }
         
+        @Test
+        @DisplayName("Should reduce error with backpropagation through time")
+        void testTrainingReducesError() {
+            RecurrentNeuralNetwork rnn = new RecurrentNeuralNetwork(TEST_BOT_ID);
+            rnn.addLSTMLayer(8);
+            rnn.addDenseLayer(1, new ActivationFunction.Sigmoid());
+            rnn.activate();
+            rnn.setLearningRate(0.5);
+            rnn.setTruncatedBptt(4);
+            
+            // Цель зависит от знака накопленной суммы входов - требуется память
+            java.util.Random random = new java.util.Random(3);
+            double[][][] inputs = new double[6][6][2];
+            double[][][] targets = new double[6][6][1];
+            for (int s = 0; s < inputs.length; s++) {
+                double sum = 0.0;
+                for (int t = 0; t < inputs[s].length; t++) {
+                    inputs[s][t][0] = random.nextDouble() * 2 - 1;
+                    inputs[s][t][1] = random.nextDouble() * 2 - 1;
+                    sum += inputs[s][t][0];
+                    targets[s][t][0] = sum > 0 ? 0.9 : 0.1;
+                }
+            }
+            
+            double before = sequenceError(rnn, inputs, targets);
+            assertTrue(rnn.train(inputs, targets, 100), "Training should succeed");
+            double after = sequenceError(rnn, inputs, targets);
+            
+            assertEquals(4, rnn.getTruncatedBptt(), "Should keep BPTT steps");
+            assertTrue(after < before * 0.5, "Error should decrease: " + before + " -> " + after);
+        }
+        
+        @Test
+        @DisplayName("Should configure training shards")
+        void testTrainingShardsConfiguration() {
+            assertEquals(1, network.getTrainingShards(), "Should train sequence by sequence by default");
+            
+            network.setTrainingShards(4);
+            assertEquals(4, network.getTrainingShards(), "Should set shard count");
+            assertTrue(network.getStatistics().contains("Training Shards: 4"));
+            
+            network.setTrainingShards(0);
+            assertEquals(1, network.getTrainingShards(), "Should clamp to minimum");
+        }
+        
+        @Test
+        @DisplayName("Sharded training should be deterministic and independent of shard count")
+        void testShardedTrainingDeterminism() {
+            double[][][] inputs = new double[8][][];
+            double[][][] targets = new double[8][][];
+            java.util.Random random = new java.util.Random(5);
+            for (int s = 0; s < inputs.length; s++) {
+                inputs[s] = new double[4 + s % 3][3];
+                targets[s] = new double[inputs[s].length][2];
+                for (int t = 0; t < inputs[s].length; t++) {
+                    for (int j = 0; j < 3; j++) {
+                        inputs[s][t][j] = random.nextDouble() * 2 - 1;
+                    }
+                    targets[s][t][0] = inputs[s][t][0] > 0 ? 0.9 : 0.1;
+                    targets[s][t][1] = 1.0 - targets[s][t][0];
+                }
+            }
+            
+            RecurrentNeuralNetwork first = createShardedNetwork(2);
+            RecurrentNeuralNetwork second = createShardedNetwork(2);
+            RecurrentNeuralNetwork third = createShardedNetwork(4);
+            first.forward(inputs[0]);
+            second.forward(inputs[0]);
+            third.forward(inputs[0]);
+            copyWeights(first, second);
+            copyWeights(first, third);
+            
+            double before = sequenceError(first, inputs, targets);
+            assertTrue(first.train(inputs, targets, 30), "Sharded training should succeed");
+            assertTrue(second.train(inputs, targets, 30), "Sharded training should succeed");
+            assertTrue(third.train(inputs, targets, 30), "Sharded training should succeed");
+            
+            for (double[][] sequence : inputs) {
+                first.resetStates();
+                second.resetStates();
+                third.resetStates();
+                double[][] expected = first.forward(sequence);
+                double[][] same = second.forward(sequence);
+                double[][] other = third.forward(sequence);
+                for (int t = 0; t < expected.length; t++) {
+                    assertArrayEquals(expected[t], same[t], 0.0, "Same shard count should give identical weights");
+                    assertArrayEquals(expected[t], other[t], 1e-9, "Shards should only change summation order");
+                }
+            }
+            assertTrue(sequenceError(first, inputs, targets) < before, "Mini-batch training should reduce error");
+        }
+        
         @Test
         @DisplayName("Should not train with inactive network")
         void testTrainWithInactiveNetwork() {
@@ -387,6 +494,61 @@ class RecurrentNeuralNetworkTest {
     
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
     
+    /**
+     * Создает сеть LSTM + GRU + Dense для обучения мини-пакетами по частям
+     */
+    private RecurrentNeuralNetwork createShardedNetwork(int shards) {
+        RecurrentNeuralNetwork rnn = new RecurrentNeuralNetwork(TEST_BOT_ID);
+        rnn.addLSTMLayer(6);
+        rnn.addGRULayer(5);
+        rnn.addDenseLayer(2, new ActivationFunction.Sigmoid());
+        rnn.activate();
+        rnn.setLearningRate(0.5);
+        rnn.setBatchSize(8);
+        rnn.setTrainingShards(shards);
+        return rnn;
+    }
+    
+    /**
+     * Копирует веса инициализированной сети в сеть той же архитектуры
+     */
+    private void copyWeights(RecurrentNeuralNetwork from, RecurrentNeuralNetwork to) {
+        for (int i = 0; i < from.getLayerCount(); i++) {
+            NetworkLayer source = from.getLayer(i);
+            NetworkLayer target = to.getLayer(i);
+            if (source instanceof LSTMLayer) {
+                double[] weights = ((LSTMLayer) source).getWeights();
+                System.arraycopy(weights, 0, ((LSTMLayer) target).getWeights(), 0, weights.length);
+            } else if (source instanceof GRULayer) {
+                double[] weights = ((GRULayer) source).getGateWeights();
+                System.arraycopy(weights, 0, ((GRULayer) target).getGateWeights(), 0, weights.length);
+                weights = ((GRULayer) source).getCandidateWeights();
+                System.arraycopy(weights, 0, ((GRULayer) target).getCandidateWeights(), 0, weights.length);
+            } else if (source instanceof DenseLayer) {
+                ((DenseLayer) target).setWeights(((DenseLayer) source).getWeights());
+                ((DenseLayer) target).setBiases(((DenseLayer) source).getBiases());
+            }
+        }
+    }
+    
+    /**
+     * Вычисляет суммарную квадратичную ошибку сети по последовательностям
+     */
+    private double sequenceError(RecurrentNeuralNetwork rnn, double[][][] inputs, double[][][] targets) {
+        double error = 0.0;
+        for (int s = 0; s < inputs.length; s++) {
+            rnn.resetStates();
+            double[][] output = rnn.forward(inputs[s]);
+            for (int t = 0; t < output.length; t++) {
+                for (int j = 0; j < output[t].length; j++) {
+                    double diff = output[t][j] - targets[s][t][j];
+                    error += diff * diff;
+                }
+            }
+        }
+        return error;
+    }
+    
     /**
      * Создает тестовую последовательность
      * 
@@ -0,0 +1,196 @@
+package net.sf.l2j.botmanager.learning;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Тесты вычислительных ядер TensorOps
+ *
+ * Векторные ядра сравниваются со скалярными циклами; без модуля
+ * jdk.incubator.vector такие тесты пропускаются.
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("TensorOps Tests")
+class TensorOpsTest {
+
+    /** Размеры, не кратные ширине вектора и блоку строк */
+    private static final int ROWS = 37;
+    private static final int COLS = 13;
+    private static final int BATCH = 5;
+
+    private final Random random = new Random(11);
+
+    @AfterEach
+    void restoreKernels() {
+        TensorOps.setVectorized(true);
+    }
+
+    @Test
+    @DisplayName("Should fall back to scalar loops when disabled")
+    void testScalarFallback() {
+        assertFalse(TensorOps.setVectorized(false), "Disabled kernels should be scalar");
+        assertFalse(TensorOps.isVectorized());
+        assertEquals("scalar", TensorOps.getKernelName());
+
+        double[] x = {-800.0, -1.0, 0.0, 2.0};
+        double[] y = new double[x.length];
+        TensorOps.sigmoid(x, y, 0, x.length);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(ActivationFunction.sigmoid(x[i]), y[i], "Sigmoid mismatch at " + i);
+        }
+        TensorOps.relu(x, y, 0, x.length);
+        assertArrayEquals(new double[] {0.0, 0.0, 0.0, 2.0}, y);
+    }
+
+    @Test
+    @DisplayName("Vector matrix-vector kernels should match scalar loops")
+    void testMatrixVectorKernels() {
+        double[] weights = randomArray(ROWS * COLS);
+        double[] biases = randomArray(ROWS);
+        double[] x = randomArray(COLS);
+        double[] d = randomArray(ROWS);
+
+        double[][] scalar = runMatrixVector(false, weights, biases, x, d);
+        assumeTrue(TensorOps.setVectorized(true), "Vector API module not available");
+        double[][] vector = runMatrixVector(true, weights, biases, x, d);
+
+        assertArrayEquals(scalar[0], vector[0], 1e-12, "matVec mismatch");
+        assertArrayEquals(scalar[1], vector[1], "matTVec should be bitwise identical");
+        assertArrayEquals(scalar[2], vector[2], "outer should be bitwise identical");
+        assertArrayEquals(scalar[3], vector[3], "addOuter should be bitwise identical");
+    }
+
+    @Test
+    @DisplayName("Vector GEMM kernels should match scalar loops")
+    void testGemmKernels() {
+        double[] a = randomArray(BATCH * COLS);
+        double[] b = randomArray(ROWS * COLS);
+        double[] bias = randomArray(ROWS);
+        double[] deltas = randomArray(BATCH * ROWS);
+
+        double[][] scalar = runGemm(false, a, b, bias, deltas);
+        assumeTrue(TensorOps.setVectorized(true), "Vector API module not available");
+        double[][] vector = runGemm(true, a, b, bias, deltas);
+
+        assertArrayEquals(scalar[0], vector[0], 1e-12, "gemmABt mismatch");
+        assertArrayEquals(scalar[1], vector[1], "gemmAtB should be bitwise identical");
+        assertArrayEquals(scalar[2], vector[2], "gemmAB should be bitwise identical");
+        assertArrayEquals(scalar[3], vector[3], "sumRows should be bitwise identical");
+
+        // Строки пакета совпадают с матрично-векторным произведением той же реализации
+        double[] row = new double[ROWS];
+        double[] input = new double[COLS];
+        System.arraycopy(a, (BATCH - 1) * COLS, input, 0, COLS);
+        TensorOps.matVec(b, bias, input, row, ROWS, COLS);
+        for (int j = 0; j < ROWS; j++) {
+            assertEquals(row[j], vector[0][(BATCH - 1) * ROWS + j], "gemmABt row should match matVec");
+        }
+    }
+
+    @Test
+    @DisplayName("Vector activations should match scalar functions")
+    void testActivationKernels() {
+        double[] x = randomArray(ROWS);
+        x[0] = -800.0;
+        x[1] = 800.0;
+
+        TensorOps.setVectorized(false);
+        double[] sigmoid = new double[ROWS];
+        double[] tanh = new double[ROWS];
+        double[] relu = new double[ROWS];
+        TensorOps.sigmoid(x, sigmoid, 0, ROWS);
+        TensorOps.tanh(x, tanh, 0, ROWS);
+        TensorOps.relu(x, relu, 0, ROWS);
+
+        assumeTrue(TensorOps.setVectorized(true), "Vector API module not available");
+        double[] vector = new double[ROWS];
+        TensorOps.sigmoid(x, vector, 0, ROWS);
+        assertArrayEquals(sigmoid, vector, 1e-12, "Sigmoid mismatch");
+        TensorOps.tanh(x, vector, 0, ROWS);
+        assertArrayEquals(tanh, vector, 1e-12, "Tanh mismatch");
+        TensorOps.relu(x, vector, 0, ROWS);
+        assertArrayEquals(relu, vector, "ReLU should be bitwise identical");
+
+        // Отрезок массива: элементы вне отрезка не изменяются
+        double[] partial = x.clone();
+        TensorOps.sigmoid(partial, partial, 3, ROWS - 5);
+        assertEquals(x[2], partial[2]);
+        assertEquals(x[ROWS - 1], partial[ROWS - 1]);
+        assertEquals(sigmoid[3], partial[3], 1e-12);
+    }
+
+    @Test
+    @DisplayName("Vector int8 kernel should match scalar accumulation exactly")
+    void testInt8Kernel() {
+        int cols = 45;
+        double[] source = randomArray(ROWS * cols);
+        byte[] weights = new byte[ROWS * cols];
+        TensorOps.quantize(source, 0, source.length, 127.0, weights, 0);
+        double[] scales = randomArray(ROWS);
+        double[] biases = randomArray(ROWS);
+        byte[] x = new byte[cols];
+        TensorOps.quantize(randomArray(cols), 0, cols, 127.0, x, 0);
+        assertEquals(127, TensorOps.maxAbs(new double[] {0.5, -127.0, 3.0}));
+
+        TensorOps.setVectorized(false);
+        double[] scalar = new double[ROWS + 2];
+        TensorOps.matVecInt8(weights, scales, biases, x, scalar, 2, ROWS, cols);
+        for (int j = 0; j < ROWS; j++) {
+            int sum = 0;
+            for (int i = 0; i < cols; i++) {
+                sum += weights[j * cols + i] * x[i];
+            }
+            assertEquals(biases[j] + sum * scales[j], scalar[j + 2], "Scalar int8 mismatch at " + j);
+        }
+
+        assumeTrue(TensorOps.setVectorized(true), "Vector API module not available");
+        double[] vector = new double[ROWS + 2];
+        TensorOps.matVecInt8(weights, scales, biases, x, vector, 2, ROWS, cols);
+        assertArrayEquals(scalar, vector, "Int8 kernel should be bitwise identical");
+    }
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
+    private double[][] runMatrixVector(boolean vectorized, double[] weights, double[] biases, double[] x, double[] d) {
+        TensorOps.setVectorized(vectorized);
+        double[] y = new double[ROWS];
+        double[] back = new double[COLS];
+        double[] outer = new double[ROWS * COLS];
+        double[] accumulated = weights.clone();
+        TensorOps.matVec(weights, biases, x, y, ROWS, COLS);
+        TensorOps.matTVec(weights, d, back, ROWS, COLS);
+        TensorOps.outer(d, x, outer, ROWS, COLS);
+        TensorOps.addOuter(0.5, d, x, 0, accumulated, ROWS, COLS);
+        return new double[][] {y, back, outer, accumulated};
+    }
+
+    private double[][] runGemm(boolean vectorized, double[] a, double[] b, double[] bias, double[] deltas) {
+        TensorOps.setVectorized(vectorized);
+        double[] forward = new double[BATCH * ROWS];
+        double[] weightGradients = new double[ROWS * COLS];
+        double[] inputGradients = new double[BATCH * COLS];
+        double[] sums = new double[ROWS];
+        TensorOps.gemmABt(a, b, bias, forward, BATCH, ROWS, COLS);
+        TensorOps.gemmAtB(deltas, a, weightGradients, BATCH, ROWS, COLS);
+        TensorOps.gemmAB(deltas, b, inputGradients, BATCH, ROWS, COLS);
+        TensorOps.sumRows(deltas, sums, BATCH, ROWS);
+        return new double[][] {forward, weightGradients, inputGradients, sums};
+    }
+
+    private double[] randomArray(int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextDouble() * 2 - 1;
+        }
+        return values;
+    }
+}
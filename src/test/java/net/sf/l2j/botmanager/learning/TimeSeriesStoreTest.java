@@ -0,0 +1,129 @@
+package net.sf.l2j.botmanager.learning;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для TimeSeriesStore и GorillaCodec
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("TimeSeriesStore Tests")
+class TimeSeriesStoreTest {
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    @DisplayName("Codec should restore values exactly and compress smooth series")
+    void testCodecRoundTrip() {
+        Random random = new Random(7);
+        double[] values = new double[60];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 7 == 0 ? Double.NaN : random.nextGaussian() * Math.pow(10, i % 5);
+        }
+        double[] decoded = new double[values.length];
+        GorillaCodec.decode(GorillaCodec.encode(values, values.length), values.length, decoded, 0);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoded[i]));
+        }
+
+        double[] smooth = new double[60];
+        for (int i = 0; i < smooth.length; i++) {
+            smooth[i] = i < 30 ? 0.75 : 1.0;
+        }
+        long[] encoded = GorillaCodec.encode(smooth, smooth.length);
+        assertTrue(encoded.length <= 3, "Repeated values should take about one bit each: " + encoded.length);
+        assertTrue(GorillaCodec.encode(values, values.length).length <= GorillaCodec.maxWords(values.length));
+    }
+
+    @Test
+    @DisplayName("Closed intervals should roll up into coarser resolutions")
+    void testRollUp() {
+        TimeSeriesStore store = new TimeSeriesStore();
+        long start = 100 * HOUR;
+        // Одно убийство каждые 10 секунд, успешность 1.0 в первый час и 0.5 во второй
+        for (long time = start; time < start + 2 * HOUR + MINUTE; time += 10 * SECOND) {
+            store.record(1, TimeSeriesStore.Metric.KILLS, 1.0, time);
+            store.record(1, TimeSeriesStore.Metric.SUCCESS_RATE, time < start + HOUR ? 1.0 : 0.5, time);
+            store.record(2, TimeSeriesStore.Metric.KILLS, 2.0, time);
+        }
+
+        TimeSeriesStore.Range minutes = store.query(1, TimeSeriesStore.Metric.KILLS,
+            TimeSeriesStore.Resolution.MINUTE, start, start + 10 * MINUTE - 1);
+        assertEquals(10, minutes.size());
+        for (int i = 0; i < minutes.size(); i++) {
+            assertEquals(6.0, minutes.getValue(i), 1e-9);
+        }
+        assertEquals(start, minutes.getStartMillis());
+
+        TimeSeriesStore.Range hours = store.query(1, TimeSeriesStore.Metric.KILLS,
+            TimeSeriesStore.Resolution.HOUR, start, start + 2 * HOUR - 1);
+        assertEquals(360.0, hours.getValue(0), 1e-9);
+        assertEquals(360.0, hours.getValue(1), 1e-9);
+
+        TimeSeriesStore.Range rates = store.query(1, TimeSeriesStore.Metric.SUCCESS_RATE,
+            TimeSeriesStore.Resolution.HOUR, start, start + 2 * HOUR - 1);
+        assertEquals(1.0, rates.getValue(0), 1e-9);
+        assertEquals(0.5, rates.getValue(1), 1e-9);
+
+        TimeSeriesStore.Range global = store.query(TimeSeriesStore.GLOBAL_ID, TimeSeriesStore.Metric.KILLS,
+            TimeSeriesStore.Resolution.HOUR, start, start + HOUR - 1);
+        assertEquals(3 * 360.0, global.getValue(0), 1e-9, "Global counters should sum all bots");
+
+        assertTrue(Double.isNaN(store.query(3, TimeSeriesStore.Metric.KILLS,
+            TimeSeriesStore.Resolution.HOUR, start, start + HOUR).getMean()), "Unknown bot should have no data");
+    }
+
+    @Test
+    @DisplayName("History should be bounded, keep gaps and drop expired data")
+    void testBoundedRetention() {
+        TimeSeriesStore store = new TimeSeriesStore();
+        long start = 1000 * HOUR;
+        long end = start + 20L * 24 * HOUR;
+        for (long time = start; time < end; time += MINUTE) {
+            // Пропуск в 3 часа на семнадцатые сутки
+            if (time >= start + 16 * 24 * HOUR && time < start + 16 * 24 * HOUR + 3 * HOUR) {
+                continue;
+            }
+            store.record(1, TimeSeriesStore.Metric.DECISION_LATENCY, 5.0 + (time / MINUTE) % 3, time);
+        }
+
+        long usage = store.getMemoryUsage();
+        // Ряд бота и общий ряд
+        long bound = 2 * TimeSeriesStore.getMaxBytesPerSeries();
+        assertTrue(usage <= bound, "Usage should stay within the bound");
+        assertTrue(usage < bound * 0.8, "Compression should beat the bound: " + usage + " of " + bound);
+        assertTrue(TimeSeriesStore.getMaxBytesPerBot() * 10_000 <= 300L * 1024 * 1024,
+            "History of 10k bots should fit in 300 MB: " + TimeSeriesStore.getMaxBytesPerBot());
+
+        // Десятисекундная история хранится минуты, минутная - часы
+        TimeSeriesStore.Range old = store.query(1, TimeSeriesStore.Metric.DECISION_LATENCY,
+            TimeSeriesStore.Resolution.TEN_SECONDS, end - HOUR, end - 30 * MINUTE);
+        assertTrue(Double.isNaN(old.getMean()), "Expired fine data should be gone");
+        assertTrue(Double.isNaN(store.query(1, TimeSeriesStore.Metric.DECISION_LATENCY,
+            TimeSeriesStore.Resolution.MINUTE, end - 6 * HOUR, end - 5 * HOUR).getMean()), "Expired minute data should be gone");
+        assertEquals(6.0, store.query(1, TimeSeriesStore.Metric.DECISION_LATENCY,
+            TimeSeriesStore.Resolution.MINUTE, end - 3 * HOUR, end - 1).getMean(), 0.01);
+
+        TimeSeriesStore.Range hours = store.query(1, TimeSeriesStore.Metric.DECISION_LATENCY,
+            TimeSeriesStore.Resolution.HOUR, end - 7 * 24 * HOUR, end - 1);
+        assertEquals(6.0, hours.getMean(), 0.01);
+
+        TimeSeriesStore.Range gap = store.query(1, TimeSeriesStore.Metric.DECISION_LATENCY,
+            TimeSeriesStore.Resolution.HOUR, start + 16 * 24 * HOUR, start + 16 * 24 * HOUR + 3 * HOUR - 1);
+        assertTrue(Double.isNaN(gap.getMean()), "Gap should read as NaN");
+        assertTrue(Double.isNaN(store.query(1, TimeSeriesStore.Metric.DECISION_LATENCY,
+            TimeSeriesStore.Resolution.HOUR, end - 10 * 24 * HOUR, end - 9 * 24 * HOUR).getMean()), "Data older than a week should expire");
+
+        store.removeBot(1);
+        assertTrue(store.getBotIds().isEmpty());
+    }
+}
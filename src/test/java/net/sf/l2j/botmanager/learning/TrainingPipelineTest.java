@@ -0,0 +1,156 @@
+package net.sf.l2j.botmanager.learning;
+
+import net.sf.l2j.botmanager.core.BotType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для TrainingPipeline
+ *
+ * @author AI Assistant
+ * @version 3.2
+ * @since 2025-09-27
+ */
+@DisplayName("TrainingPipeline Tests")
+class TrainingPipelineTest {
+
+    private static final double[] INPUT = {0.1, 0.9, 0.3, 0.7, 0.5, 0.2, 0.8, 0.4, 0.6, 0.0};
+
+    private ModelRegistry registry;
+    private TrainingPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ModelRegistry();
+        pipeline = new TrainingPipeline(registry, 2, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.stop();
+    }
+
+    @Test
+    @DisplayName("Training should publish a shadow copy and leave the served model untouched")
+    void testShadowTrainingSwap() {
+        NeuralNetwork served = registry.register(1, BotType.FARMER);
+        double[] before = served.forward(INPUT);
+
+        assertTrue(pipeline.submitTraining(1, createData()));
+        assertEquals(1, pipeline.drain());
+
+        NeuralNetwork published = registry.getModel(1);
+        assertNotSame(served, published, "Trained copy should replace the model");
+        assertArrayEquals(before, served.forward(INPUT), 0.0, "Served model should not change while a copy trains");
+        assertFalse(Arrays.equals(before, published.forward(INPUT)), "Published model should be trained");
+        assertEquals(1, pipeline.getPublishedCount());
+    }
+
+    @Test
+    @DisplayName("Repeated requests for one bot should be coalesced")
+    void testCoalescing() {
+        registry.register(1, BotType.GUARD);
+
+        assertTrue(pipeline.submitTraining(1, createData()));
+        assertTrue(pipeline.submitTraining(1, createData()));
+        assertTrue(pipeline.submitAdaptation(1, createData()));
+
+        assertEquals(1, pipeline.getPendingCount());
+        assertEquals(2, pipeline.getCoalescedCount());
+        assertEquals(1, pipeline.drain());
+        assertNotNull(registry.getHead(1), "Adaptation should publish the bot head");
+    }
+
+    @Test
+    @DisplayName("Queue should be bounded")
+    void testBoundedQueue() {
+        assertTrue(pipeline.submitTraining(1, createData()));
+        assertTrue(pipeline.submitTraining(2, createData()));
+        assertFalse(pipeline.submitTraining(3, createData()), "Full queue should reject new bots");
+        assertTrue(pipeline.submitTraining(1, createData()), "Pending bots should still coalesce");
+        assertEquals(1, pipeline.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("Background worker should complete jobs and notify the listener")
+    void testBackgroundWorker() throws InterruptedException {
+        registry.register(7, BotType.MERCHANT);
+        CountDownLatch done = new CountDownLatch(1);
+        TrainingPipeline.Result[] result = new TrainingPipeline.Result[1];
+        pipeline.setListener((botId, jobResult) -> {
+            result[0] = jobResult;
+            done.countDown();
+        });
+
+        pipeline.start();
+        assertTrue(pipeline.isRunning());
+        assertTrue(pipeline.submitTraining(7, createData()));
+
+        assertTrue(done.await(30, TimeUnit.SECONDS), "Job should complete in the background");
+        assertEquals(Boolean.TRUE, result[0].getTrained());
+        assertNull(result[0].getAdapted(), "Adaptation was not requested");
+    }
+
+    @Test
+    @DisplayName("Coalescing should drop the oldest samples beyond the cap")
+    void testCoalescedSampleCap() {
+        assertTrue(pipeline.submitTraining(1, createData(2000)));
+        assertTrue(pipeline.submitTraining(1, createData(2000)));
+        assertEquals(0, pipeline.getDroppedSampleCount(), "Data under the cap should be kept");
+
+        assertTrue(pipeline.submitTraining(1, createData(2000)));
+        assertEquals(6000 - 4096, pipeline.getDroppedSampleCount(), "Oldest samples should be dropped");
+
+        assertTrue(pipeline.submitTraining(1, createData(5000)));
+        assertEquals(6000, pipeline.getDroppedSampleCount(), "Newest request should be kept whole");
+        assertEquals(1, pipeline.getPendingCount());
+        assertTrue(pipeline.getStatistics().contains("Dropped Samples=6000"));
+    }
+
+    @Test
+    @DisplayName("Merged data should keep samples in submission order")
+    void testMerge() {
+        ProcessedData first = new ProcessedData(new double[][]{{1.0}}, new double[][]{{0.0}});
+        ProcessedData second = new ProcessedData(new double[][]{{2.0}, {3.0}}, new double[][]{{1.0}, {1.0}});
+
+        ProcessedData merged = TrainingPipeline.merge(List.of(first, second));
+
+        assertEquals(3, merged.getInputs().length);
+        assertEquals(1.0, merged.getInputs()[0][0]);
+        assertEquals(3.0, merged.getInputs()[2][0]);
+    }
+
+    @Test
+    @DisplayName("Should reject invalid configuration")
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TrainingPipeline(null));
+        assertThrows(IllegalArgumentException.class, () -> new TrainingPipeline(registry, 0, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> pipeline.setMaxJobsPerSecond(-1.0));
+        assertFalse(pipeline.submitTraining(1, null));
+    }
+
+    // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
+
+    private static ProcessedData createData() {
+        double[][] inputs = {INPUT.clone()};
+        double[][] targets = {{1.0, 0.0, 0.0, 0.0, 1.0}};
+        return new ProcessedData(inputs, targets);
+    }
+
+    private static ProcessedData createData(int samples) {
+        double[][] inputs = new double[samples][];
+        double[][] targets = new double[samples][];
+        Arrays.fill(inputs, INPUT);
+        Arrays.fill(targets, new double[]{1.0, 0.0, 0.0, 0.0, 1.0});
+        return new ProcessedData(inputs, targets);
+    }
+}
@@ -0,0 +1,92 @@
+package net.sf.l2j.botmanager.managers;
+
+import net.sf.l2j.botmanager.core.BotContext;
+import net.sf.l2j.botmanager.core.BotState;
+import net.sf.l2j.botmanager.core.BotType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collection;
+
+/**
+ * Тесты вторичных индексов BotManager.
+ *
+ * @author ni-okr
+ * @version 1.0
+ */
+@DisplayName("BotManager Index Tests")
+public class BotManagerTest {
+
+    private BotManager botManager;
+
+    @BeforeEach
+    void setUp() {
+        botManager = BotManager.getInstance();
+        botManager.clearAllBots();
+    }
+
+    @AfterEach
+    void tearDown() {
+        botManager.clearAllBots();
+    }
+
+    @Test
+    @DisplayName("Should index bots by type on creation")
+    void testIndexByType() throws Exception {
+        BotContext soldier = botManager.createBot(BotType.SOLDIER, "Soldier");
+        botManager.createBot(BotType.OFFICER, "Officer");
+
+        assertEquals(1, botManager.getBotCountByType(BotType.SOLDIER));
+        assertTrue(botManager.getBotsByType(BotType.SOLDIER).contains(soldier));
+
+        soldier.set(BotContext.BOT_TYPE, BotType.OFFICER);
+        assertEquals(0, botManager.getBotCountByType(BotType.SOLDIER));
+        assertEquals(2, botManager.getBotCountByType(BotType.OFFICER));
+    }
+
+    @Test
+    @DisplayName("Should move bots between state indexes")
+    void testIndexByState() throws Exception {
+        BotContext bot = botManager.createBot(BotType.SOLDIER, "Soldier");
+        assertTrue(botManager.getBotsByState(BotState.IDLE).contains(bot));
+
+        bot.setState(BotState.FIGHTING);
+        assertFalse(botManager.getBotsByState(BotState.IDLE).contains(bot));
+        assertTrue(botManager.getBotsByState(BotState.FIGHTING).contains(bot));
+        assertEquals(1, botManager.getBotCountByState(BotState.FIGHTING));
+    }
+
+    @Test
+    @DisplayName("Should index bots by castle and drop removed bots")
+    void testIndexByCastle() throws Exception {
+        BotContext bot = botManager.createBot(BotType.SOLDIER, "Guard");
+        bot.setInt(BotContext.CASTLE_ID, 3);
+        assertEquals(1, botManager.getBotsByCastle(3).size());
+
+        botManager.removeBot(bot.getBotId());
+        assertTrue(botManager.getBotsByCastle(3).isEmpty());
+        assertEquals(0, botManager.getBotCountByType(BotType.SOLDIER));
+
+        // Изменения удаленного бота не должны возвращать его в индексы
+        bot.setState(BotState.MOVING);
+        assertFalse(botManager.getBotsByState(BotState.MOVING).contains(bot));
+    }
+
+    @Test
+    @DisplayName("Should return snapshot copies")
+    void testQueriesReturnSnapshots() throws Exception {
+        BotContext soldier = botManager.createBot(BotType.SOLDIER, "Soldier");
+        Collection<BotContext> snapshot = botManager.getBotsByType(BotType.SOLDIER);
+
+        snapshot.clear();
+        assertTrue(botManager.getBotsByType(BotType.SOLDIER).contains(soldier), "Index should not change");
+
+        Collection<BotContext> before = botManager.getBotsByType(BotType.SOLDIER);
+        botManager.removeBot(soldier.getBotId());
+        assertTrue(before.contains(soldier), "Snapshot should not follow the index");
+    }
+}